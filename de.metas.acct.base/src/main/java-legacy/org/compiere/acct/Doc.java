@@ -286,6 +286,8 @@ public abstract class Doc
 	 * Is (Source) Multi-Currency Document - i.e. the document has different currencies (if true, the document will not be source balanced)
 	 */
 	private boolean m_MultiCurrency = false;
+	/** Set if the last {@link #post(boolean, boolean)} failed because the document could not be locked */
+	private boolean m_LockFailed = false;
 	/** BP Sales Region */
 	private int m_BP_C_SalesRegion_ID = -1;
 	/** B Partner */
@@ -800,6 +802,7 @@ public abstract class Doc
 			sql.append(" AND Posted='N'");
 		}
 
+		m_LockFailed = false;
 		final int updatedCount = DB.executeUpdateEx(sql.toString(), trxName);
 		if (updatedCount == 1)
 		{
@@ -807,6 +810,7 @@ public abstract class Doc
 		}
 		else
 		{
+			m_LockFailed = true;
 			final PO po = getPO();
 			final String errmsg = force ? "Cannot Lock - ReSubmit" : "Cannot Lock - ReSubmit or RePost with Force";
 			throw newPostingException()
@@ -1759,6 +1763,14 @@ public abstract class Doc
 		m_DateDoc = dd;
 	}	// setDateDoc
 
+	/**
+	 * @return true if the last {@link #post(boolean, boolean)} failed because the document was already locked (e.g. it is posted by somebody else right now) or was already posted
+	 */
+	public final boolean isLockFailed()
+	{
+		return m_LockFailed;
+	}
+
 	/**
 	 * Is Document Posted
 	 *
@@ -39,12 +39,14 @@ import org.adempiere.ad.trx.api.ITrxRunConfig.OnRunnableSuccess;
 import org.adempiere.ad.trx.api.ITrxRunConfig.TrxPropagation;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
 import org.adempiere.util.Pair;
 import org.adempiere.util.Services;
 import org.compiere.model.I_C_ElementValue;
 import org.compiere.model.I_PA_ReportCube;
 import org.compiere.model.MAcctSchemaElement;
+import org.compiere.model.MPeriod;
 import org.compiere.model.X_C_AcctSchema_Element;
 import org.compiere.print.MPrintFormat;
 import org.compiere.print.MPrintFormatItem;
@@ -73,6 +75,9 @@ public class FinReport extends JavaProcess
 	private final transient ITrxManager trxManager = Services.get(ITrxManager.class);
 	private final transient IAcctSchemaBL acctSchemaBL = Services.get(IAcctSchemaBL.class);
 
+	/** If true, the report is reading from Fact_Acct_Period_Balance instead of Fact_Acct whenever possible (see {@link #isUsePeriodBalances()}). Off by default. */
+	private static final String SYSCONFIG_UsePeriodBalances = "de.metas.acct.FinReport.UsePeriodBalances";
+
 	/** Period Parameter */
 	private int p_C_Period_ID = 0;
 	/** Org Parameter */
@@ -123,6 +128,8 @@ public class FinReport extends JavaProcess
 	private MReportColumn[] m_columns;
 	/** The Report Lines */
 	private MReportLine[] m_lines;
+	/** Read the amounts from Fact_Acct_Period_Balance instead of Fact_Acct */
+	private boolean m_usePeriodBalances = false;
 
 	/**
 	 * Prepare - e.g., get Parameters.
@@ -400,6 +407,9 @@ public class FinReport extends JavaProcess
 			throw new AdempiereUserError("@No@ @PA_ReportLine_ID@");
 
 		includeSublines(); // metas-2009_0021_AP1_CR080
+		m_usePeriodBalances = isUsePeriodBalances();
+		log.info("UsePeriodBalances={}", m_usePeriodBalances);
+
 		// for all lines
 		for (int line = 0; line < m_lines.length; line++)
 		{
@@ -421,6 +431,102 @@ public class FinReport extends JavaProcess
 		return MSG_OK;
 	}	// doIt
 
+	/**
+	 * Checks if this report can read its amounts from <code>Fact_Acct_Period_Balance</code>.
+	 * <p>
+	 * The period balances are only aggregated by organization, account schema, account, posting type and period,
+	 * so we can use them only if the report is not filtering or grouping by any other dimension.
+	 * Note that the balances are dated on their period's start date, so the report calendar's periods shall match the accounting periods.
+	 *
+	 * @return true if the period balances can be used
+	 */
+	private boolean isUsePeriodBalances()
+	{
+		if (!Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_UsePeriodBalances, false, getAD_Client_ID()))
+		{
+			return false;
+		}
+
+		// The period balances also have the accounting schema, but anything else in the report's where clause might refer to any Fact_Acct column
+		final String reportWhereClause = m_report.getWhereClause();
+		if (!Check.isEmpty(reportWhereClause, true)
+				&& !reportWhereClause.trim().equals("C_AcctSchema_ID=" + m_report.getC_AcctSchema_ID()))
+		{
+			return false;
+		}
+
+		if (!isReportCalendarUsedForAccounting())
+		{
+			return false;
+		}
+
+		// Report cubes have their own summary table
+		if (p_PA_ReportCube_ID > 0)
+		{
+			return false;
+		}
+
+		// Parameters other than organization and account
+		if (p_C_BPartner_ID != 0 || p_M_Product_ID != 0 || p_C_Project_ID != 0 || p_C_Activity_ID != 0
+				|| p_C_SalesRegion_ID != 0 || p_C_Campaign_ID != 0
+				|| p_User1_ID != 0 || p_User2_ID != 0 || p_UserElement1_ID != 0 || p_UserElement2_ID != 0)
+		{
+			return false;
+		}
+
+		for (final MReportLine line : m_lines)
+		{
+			if (MReportLine.POSTINGTYPE_Budget.equals(line.getPostingType()) && line.getGL_Budget_ID() > 0)
+			{
+				return false;
+			}
+			for (final MReportSource source : line.getSources())
+			{
+				if (!isPeriodBalanceElementType(source.getElementType()))
+				{
+					return false;
+				}
+			}
+		}
+
+		for (final MReportColumn column : m_columns)
+		{
+			if (MReportColumn.POSTINGTYPE_Budget.equals(column.getPostingType()) && column.getGL_Budget_ID() > 0)
+			{
+				return false;
+			}
+			if (column.isColumnTypeSegmentValue() && !isPeriodBalanceElementType(column.getElementType()))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return true if the report's calendar is the one of the client and no organization has a calendar of its own, i.e. the report periods are the accounting periods
+	 */
+	private boolean isReportCalendarUsedForAccounting()
+	{
+		final int reportCalendarId = m_report.getC_Calendar_ID();
+		if (MPeriod.getC_Calendar_ID(getCtx(), 0) != reportCalendarId)
+		{
+			return false;
+		}
+
+		final int countOrgsWithOtherCalendar = DB.getSQLValueEx(ITrx.TRXNAME_None,
+				"SELECT COUNT(1) FROM AD_OrgInfo WHERE AD_Client_ID=? AND C_Calendar_ID>0 AND C_Calendar_ID<>?",
+				getAD_Client_ID(), reportCalendarId);
+		return countOrgsWithOtherCalendar <= 0;
+	}
+
+	private static boolean isPeriodBalanceElementType(final String elementType)
+	{
+		return MAcctSchemaElement.ELEMENTTYPE_Account.equals(elementType)
+				|| MAcctSchemaElement.ELEMENTTYPE_Organization.equals(elementType);
+	}
+
 	/**************************************************************************
 	 * For all columns (in a line) with relative period access
 	 * 
@@ -487,6 +593,10 @@ public class FinReport extends JavaProcess
 			{
 				select.append(" FROM Fact_Acct_Summary fa WHERE DateAcct ");
 			}
+			else if (m_usePeriodBalances)
+			{
+				select.append(" FROM Fact_Acct_Period_Balance fa WHERE DateAcct ");
+			}
 			else
 			{
 				// Get Period/Date info
@@ -1188,6 +1298,10 @@ public class FinReport extends JavaProcess
 			{
 				select.append(" FROM Fact_Acct_Summary fb WHERE DateAcct ");
 			}  // report cube
+			else if (m_usePeriodBalances)
+			{
+				select.append(" FROM Fact_Acct_Period_Balance fb WHERE DateAcct ");
+			}
 			else
 			{
 				// Get Period info
@@ -1294,6 +1408,10 @@ public class FinReport extends JavaProcess
 		{
 			insert.append(" FROM Fact_Acct_Summary x WHERE ").append(where);
 		}
+		else if (m_usePeriodBalances)
+		{
+			insert.append(" FROM Fact_Acct_Period_Balance x WHERE ").append(where);
+		}
 		else
 		{
 			// FROM .. WHERE
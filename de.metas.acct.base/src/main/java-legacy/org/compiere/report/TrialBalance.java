@@ -29,6 +29,8 @@ import de.metas.logging.LogManager;
 import de.metas.process.ProcessInfoParameter;
 import de.metas.process.JavaProcess;
 
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Services;
 import org.compiere.model.MAcctSchemaElement;
 import org.compiere.model.MElementValue;
 import org.compiere.model.MPeriod;
@@ -88,6 +90,9 @@ public class TrialBalance extends JavaProcess
 	/**	Account							*/ 
 	private MElementValue 		m_acct = null;
 	
+	/** If true, the beginning balance is read from Fact_Acct_Period_Balance instead of Fact_Acct whenever possible */
+	private static final String SYSCONFIG_UsePeriodBalances = "de.metas.acct.TrialBalance.UsePeriodBalances";
+
 	/**	Start Time						*/
 	private long 				m_start = System.currentTimeMillis();
 	/**	Insert Statement				*/
@@ -399,7 +404,8 @@ public class TrialBalance extends JavaProcess
 			sql.append (p_User2_ID);
 		sql.append(", null,null");
 		//
-		sql.append(" FROM Fact_Acct WHERE AD_Client_ID=").append(getAD_Client_ID())
+		final String fromTableName = isUsePeriodBalances() ? "Fact_Acct_Period_Balance" : "Fact_Acct";
+		sql.append(" FROM ").append(fromTableName).append(" WHERE AD_Client_ID=").append(getAD_Client_ID())
 			.append (" AND ").append(m_parameterWhere)
 			.append(" AND DateAcct < ").append(DB.TO_DATE(p_DateAcct_From, true));
 		//	Start Beginning of Year
@@ -422,6 +428,29 @@ public class TrialBalance extends JavaProcess
 		log.debug("#" + no + " (Account_ID=" + p_Account_ID + ")");
 	}	//	createBalanceLine
 
+	/**
+	 * Checks if the beginning balance can be read from <code>Fact_Acct_Period_Balance</code>.
+	 * <p>
+	 * The period balances are only aggregated by organization, account schema, account, posting type and period
+	 * and they are dated on their period's start date. So we can use them only if no other dimension is filtered
+	 * and if the report starts at the beginning of a period.
+	 *
+	 * @return true if the period balances can be used
+	 */
+	private boolean isUsePeriodBalances()
+	{
+		if (!Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_UsePeriodBalances, true, getAD_Client_ID()))
+			return false;
+		if (p_C_BPartner_ID != 0 || p_M_Product_ID != 0 || p_C_Project_ID != 0
+			|| p_C_Activity_ID != 0 || p_C_SalesRegion_ID != 0 || p_C_Campaign_ID != 0)
+			return false;
+		//	DateAcct From shall be the start of a period
+		final int periodsCount = DB.getSQLValueEx(get_TrxName(),
+				"SELECT COUNT(1) FROM C_Period WHERE AD_Client_ID=? AND PeriodType='S' AND StartDate=?",
+				getAD_Client_ID(), p_DateAcct_From);
+		return periodsCount > 0;
+	}	//	isUsePeriodBalances
+
 	/**
 	 * 	Create Beginning Balance Line
 	 */
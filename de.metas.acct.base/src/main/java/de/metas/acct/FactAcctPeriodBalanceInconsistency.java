@@ -0,0 +1,57 @@
+package de.metas.acct;
+
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A <code>Fact_Acct_Period_Balance</code> row which does not match the <code>Fact_Acct</code> records of its dimension and period.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@Value
+@Builder
+public class FactAcctPeriodBalanceInconsistency
+{
+	private final int adOrgId;
+	private final int acctSchemaId;
+	private final int accountId;
+	private final String postingType;
+	private final int periodId;
+
+	private final BigDecimal amtAcctDrExpected;
+	private final BigDecimal amtAcctDr;
+	private final BigDecimal amtAcctCrExpected;
+	private final BigDecimal amtAcctCr;
+	private final BigDecimal qtyExpected;
+	private final BigDecimal qty;
+	private final BigDecimal amtAcctDrYTDExpected;
+	private final BigDecimal amtAcctDrYTD;
+	private final BigDecimal amtAcctCrYTDExpected;
+	private final BigDecimal amtAcctCrYTD;
+}
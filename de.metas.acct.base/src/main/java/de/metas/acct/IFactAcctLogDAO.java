@@ -70,4 +70,11 @@ public interface IFactAcctLogDAO extends ISingletonService
 	boolean hasLogs(Properties ctx, String processingTag);
 
 	void updateFactAcctEndingBalanceForTag(String processingTag);
+
+	/**
+	 * Incrementally updates the period and year-to-date amounts of <code>Fact_Acct_Period_Balance</code> using the {@link I_Fact_Acct_Log}s tagged with given tag.
+	 * 
+	 * @param processingTag
+	 */
+	void updateFactAcctPeriodBalanceForTag(String processingTag);
 }
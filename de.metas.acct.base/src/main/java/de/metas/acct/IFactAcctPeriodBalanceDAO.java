@@ -0,0 +1,57 @@
+package de.metas.acct;
+
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.adempiere.util.ISingletonService;
+
+/**
+ * DAO for <code>Fact_Acct_Period_Balance</code>, the incrementally maintained balances per org/account schema/account/posting type and period.
+ * <p>
+ * The balances are updated by {@link IFactAcctLogBL} from the same {@link de.metas.acct.model.I_Fact_Acct_Log}s which are also updating the <code>Fact_Acct_Summary</code>.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public interface IFactAcctPeriodBalanceDAO extends ISingletonService
+{
+	String Table_Name = "Fact_Acct_Period_Balance";
+
+	/**
+	 * Compares the balances of given client with <code>Fact_Acct</code>.
+	 * Dimensions which still have unprocessed logs are not checked.
+	 *
+	 * @param adClientId
+	 * @return inconsistent balances; empty if everything is consistent
+	 */
+	List<FactAcctPeriodBalanceInconsistency> retrieveInconsistencies(int adClientId);
+
+	/**
+	 * Deletes all balances and builds them again from <code>Fact_Acct</code>.
+	 *
+	 * @return info message
+	 */
+	String rebuildAll();
+}
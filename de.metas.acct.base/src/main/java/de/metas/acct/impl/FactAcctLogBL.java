@@ -87,6 +87,10 @@ public class FactAcctLogBL implements IFactAcctLogBL
 		// Update Fact_Acct_EndingBalance
 		Services.get(IFactAcctLogDAO.class).updateFactAcctEndingBalanceForTag(logs.getProcessingTag());
 
+		//
+		// Update Fact_Acct_Period_Balance
+		Services.get(IFactAcctLogDAO.class).updateFactAcctPeriodBalanceForTag(logs.getProcessingTag());
+
 		//
 		// Delete all processed logs
 		logs.deleteAll();
@@ -55,6 +55,8 @@ public class FactAcctLogDAO implements IFactAcctLogDAO
 {
 	/** Function used to check {@link I_Fact_Acct_Log}s for a given tag and update {@link I_Fact_Acct_EndingBalance} */
 	private static final String DB_FUNC_Fact_Acct_EndingBalance_UpdateForTag = IFactAcctDAO.DB_SCHEMA + ".Fact_Acct_EndingBalance_UpdateForTag";
+	/** Function used to check {@link I_Fact_Acct_Log}s for a given tag and update <code>Fact_Acct_Period_Balance</code> */
+	private static final String DB_FUNC_Fact_Acct_Period_Balance_UpdateForTag = IFactAcctDAO.DB_SCHEMA + ".Fact_Acct_Period_Balance_UpdateForTag";
 
 	@Override
 	public IFactAcctLogIterable tagAndRetrieve(final Properties ctx, final int limit)
@@ -164,7 +166,18 @@ public class FactAcctLogDAO implements IFactAcctLogDAO
 	@Override
 	public void updateFactAcctEndingBalanceForTag(final String processingTag)
 	{
-		final String sql = "SELECT " + DB_FUNC_Fact_Acct_EndingBalance_UpdateForTag + "(?)";
+		executeUpdateForTagFunction(DB_FUNC_Fact_Acct_EndingBalance_UpdateForTag, processingTag);
+	}
+
+	@Override
+	public void updateFactAcctPeriodBalanceForTag(final String processingTag)
+	{
+		executeUpdateForTagFunction(DB_FUNC_Fact_Acct_Period_Balance_UpdateForTag, processingTag);
+	}
+
+	private void executeUpdateForTagFunction(final String functionName, final String processingTag)
+	{
+		final String sql = "SELECT " + functionName + "(?)";
 		final Object[] sqlParams = new Object[] { processingTag };
 		PreparedStatement pstmt = null;
 		ResultSet rs = null;
@@ -0,0 +1,102 @@
+package de.metas.acct.impl;
+
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.acct.api.IFactAcctDAO;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.DBException;
+import org.compiere.util.DB;
+
+import de.metas.acct.FactAcctPeriodBalanceInconsistency;
+import de.metas.acct.IFactAcctPeriodBalanceDAO;
+
+public class FactAcctPeriodBalanceDAO implements IFactAcctPeriodBalanceDAO
+{
+	private static final String DB_FUNC_Fact_Acct_Period_Balance_Check = IFactAcctDAO.DB_SCHEMA + ".Fact_Acct_Period_Balance_Check";
+	private static final String DB_FUNC_Fact_Acct_Period_Balance_RebuildAll = IFactAcctDAO.DB_SCHEMA + ".Fact_Acct_Period_Balance_RebuildAll";
+
+	@Override
+	public List<FactAcctPeriodBalanceInconsistency> retrieveInconsistencies(final int adClientId)
+	{
+		final String sql = "SELECT * FROM " + DB_FUNC_Fact_Acct_Period_Balance_Check + "(?)";
+		final Object[] sqlParams = new Object[] { adClientId };
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_ThreadInherited);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+
+			final List<FactAcctPeriodBalanceInconsistency> result = new ArrayList<>();
+			while (rs.next())
+			{
+				result.add(retrieveInconsistency(rs));
+			}
+			return result;
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql, sqlParams);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	private static FactAcctPeriodBalanceInconsistency retrieveInconsistency(final ResultSet rs) throws SQLException
+	{
+		return FactAcctPeriodBalanceInconsistency.builder()
+				.adOrgId(rs.getInt("AD_Org_ID"))
+				.acctSchemaId(rs.getInt("C_AcctSchema_ID"))
+				.accountId(rs.getInt("Account_ID"))
+				.postingType(rs.getString("PostingType"))
+				.periodId(rs.getInt("C_Period_ID"))
+				.amtAcctDrExpected(rs.getBigDecimal("AmtAcctDr_Expected"))
+				.amtAcctDr(rs.getBigDecimal("AmtAcctDr"))
+				.amtAcctCrExpected(rs.getBigDecimal("AmtAcctCr_Expected"))
+				.amtAcctCr(rs.getBigDecimal("AmtAcctCr"))
+				.qtyExpected(rs.getBigDecimal("Qty_Expected"))
+				.qty(rs.getBigDecimal("Qty"))
+				.amtAcctDrYTDExpected(rs.getBigDecimal("AmtAcctDr_YTD_Expected"))
+				.amtAcctDrYTD(rs.getBigDecimal("AmtAcctDr_YTD"))
+				.amtAcctCrYTDExpected(rs.getBigDecimal("AmtAcctCr_YTD_Expected"))
+				.amtAcctCrYTD(rs.getBigDecimal("AmtAcctCr_YTD"))
+				.build();
+	}
+
+	@Override
+	public String rebuildAll()
+	{
+		final String sql = "SELECT " + DB_FUNC_Fact_Acct_Period_Balance_RebuildAll + "()";
+		return DB.getSQLValueStringEx(ITrx.TRXNAME_ThreadInherited, sql);
+	}
+}
@@ -34,4 +34,10 @@ public class PlainFactAcctLogDAO extends FactAcctLogDAO
 	{
 		logger.warn("Updating Fact_Acct_EndingBalance not supported. Skipped.");
 	}
+
+	@Override
+	public void updateFactAcctPeriodBalanceForTag(String processingTag)
+	{
+		logger.warn("Updating Fact_Acct_Period_Balance not supported. Skipped.");
+	}
 }
@@ -0,0 +1,175 @@
+package de.metas.acct.posting;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.adempiere.util.jmx.JMXRegistry;
+import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
+import org.compiere.util.TimeUtil;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Posting statistics of one document table.
+ * <p>
+ * The statistics are collected by {@link DocumentsPostingEngine} and are exposed by {@link JMXDocumentPostingStatistics}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class DocumentPostingStatistics
+{
+	private static final ConcurrentHashMap<String, DocumentPostingStatistics> statisticsByTableName = new ConcurrentHashMap<>();
+
+	static
+	{
+		JMXRegistry.get().registerJMX(new JMXDocumentPostingStatistics(), OnJMXAlreadyExistsPolicy.Replace);
+	}
+
+	public static DocumentPostingStatistics getOrCreate(final String tableName)
+	{
+		return statisticsByTableName.computeIfAbsent(tableName, DocumentPostingStatistics::new);
+	}
+
+	/** @return all statistics, ordered by table name */
+	public static List<DocumentPostingStatistics> getAll()
+	{
+		final List<DocumentPostingStatistics> statistics = new ArrayList<>(statisticsByTableName.values());
+		statistics.sort(Comparator.comparing(DocumentPostingStatistics::getTableName));
+		return statistics;
+	}
+
+	public static void resetAll()
+	{
+		statisticsByTableName.values().forEach(DocumentPostingStatistics::reset);
+	}
+
+	private final String tableName;
+	private final LongAdder countPosted = new LongAdder();
+	private final LongAdder countErrors = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private volatile long resetMillis = System.currentTimeMillis();
+	private volatile long lagMillis = 0;
+	private volatile long lagRecordedMillis = 0;
+
+	private DocumentPostingStatistics(final String tableName)
+	{
+		this.tableName = tableName;
+	}
+
+	@Override
+	public String toString()
+	{
+		final long countPosted = getPostedCount();
+		final long countErrors = getErrorsCount();
+		final long count = countPosted + countErrors;
+		final long avgMillis = count > 0 ? TimeUnit.NANOSECONDS.toMillis(getTotalNanos() / count) : 0;
+
+		return tableName
+				+ ": posted=" + countPosted
+				+ ", errors=" + countErrors
+				+ ", avgMillis=" + avgMillis
+				+ ", throughputPerMinute=" + getThroughputPerMinute()
+				+ ", lag=" + TimeUtil.formatElapsed(getLagMillis())
+				+ (lagRecordedMillis > 0 ? " (as of " + new Timestamp(lagRecordedMillis) + ")" : "");
+	}
+
+	/* package */ void recordPosting(final boolean success, final long durationNanos)
+	{
+		if (success)
+		{
+			countPosted.increment();
+		}
+		else
+		{
+			countErrors.increment();
+		}
+		totalNanos.add(durationNanos);
+	}
+
+	/**
+	 * Records the lag, i.e. how long the oldest not posted document is waiting to be posted.
+	 *
+	 * @param oldestNotPostedCreated creation date of the oldest not posted document
+	 */
+	/* package */ void recordLag(final Timestamp oldestNotPostedCreated)
+	{
+		final long nowMillis = System.currentTimeMillis();
+		lagMillis = computeLagMillis(oldestNotPostedCreated, nowMillis);
+		lagRecordedMillis = nowMillis;
+	}
+
+	@VisibleForTesting
+	static long computeLagMillis(final Timestamp oldestNotPostedCreated, final long nowMillis)
+	{
+		return oldestNotPostedCreated == null ? 0 : Math.max(nowMillis - oldestNotPostedCreated.getTime(), 0);
+	}
+
+	public String getTableName()
+	{
+		return tableName;
+	}
+
+	public long getPostedCount()
+	{
+		return countPosted.sum();
+	}
+
+	public long getErrorsCount()
+	{
+		return countErrors.sum();
+	}
+
+	public long getTotalNanos()
+	{
+		return totalNanos.sum();
+	}
+
+	/** @return posted documents per minute, since the statistics were reset */
+	public long getThroughputPerMinute()
+	{
+		final long elapsedMillis = Math.max(System.currentTimeMillis() - resetMillis, 1);
+		return getPostedCount() * TimeUnit.MINUTES.toMillis(1) / elapsedMillis;
+	}
+
+	/** @return how long the oldest not posted document was waiting to be posted, when the documents were retrieved the last time */
+	public long getLagMillis()
+	{
+		return lagMillis;
+	}
+
+	private void reset()
+	{
+		countPosted.reset();
+		countErrors.reset();
+		totalNanos.reset();
+		resetMillis = System.currentTimeMillis();
+	}
+}
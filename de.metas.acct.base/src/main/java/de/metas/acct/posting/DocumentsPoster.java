@@ -0,0 +1,86 @@
+package de.metas.acct.posting;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.adempiere.acct.api.IDocMetaInfo;
+import org.compiere.acct.Doc;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.Value;
+
+/**
+ * Retrieves and posts the not posted documents on behalf of {@link DocumentsPostingEngine}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */interface DocumentsPoster
+{
+	/**
+	 * Calls given consumer for each not posted document of given tables, ordered by their creation date (over all given tables).
+	 *
+	 * @param consumer returns <code>false</code> if no more documents shall be provided
+	 */
+	void streamNotPosted(int adClientId, List<IDocMetaInfo> docMetaInfos, Predicate<DocumentToPost> consumer);
+
+	/**
+	 * Posts given document in its own transaction, using the already loaded {@link DocumentToPost#getDoc()} if any.
+	 *
+	 * @throws RuntimeException in case of failure; it's the same as returning {@link PostingOutcome#Error}
+	 */
+	PostingOutcome post(DocumentToPost document);
+
+	@Value
+	@ToString(exclude = "doc")
+	@EqualsAndHashCode(exclude = "doc")
+	static final class DocumentToPost
+	{
+		@NonNull
+		private final IDocMetaInfo docMetaInfo;
+		private final int recordId;
+		private final Timestamp created;
+		/** the document, as it was loaded when retrieved; <code>null</code> if it shall be loaded by {@link DocumentsPoster#post(DocumentToPost)} */
+		private final Doc doc;
+
+		public String getTableName()
+		{
+			return docMetaInfo.getTableName();
+		}
+	}
+
+	static enum PostingOutcome
+	{
+		Posted,
+
+		/** The document was not posted because it is already locked, most probably because it is just posted by somebody else */
+		Locked,
+
+		Error,
+	}
+}
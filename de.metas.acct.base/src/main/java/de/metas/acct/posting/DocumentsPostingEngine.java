@@ -0,0 +1,427 @@
+package de.metas.acct.posting;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.adempiere.acct.api.IDocMetaInfo;
+import org.adempiere.util.Check;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.compiere.acct.Doc;
+import org.compiere.model.I_C_AllocationHdr;
+import org.compiere.model.I_C_BankStatement;
+import org.compiere.model.I_M_InOut;
+import org.compiere.model.I_M_Inventory;
+import org.compiere.model.I_M_MatchInv;
+import org.compiere.model.I_M_MatchPO;
+import org.compiere.model.I_M_Movement;
+import org.compiere.model.I_M_Production;
+import org.compiere.model.MAcctSchema;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.acct.posting.DocumentsPoster.DocumentToPost;
+import de.metas.acct.posting.DocumentsPoster.PostingOutcome;
+import de.metas.logging.LogManager;
+import lombok.Builder;
+import lombok.NonNull;
+
+/**
+ * Posts all not posted documents of a client, using a bounded pool of worker threads. If it's configured with only one thread, all documents are posted in the current thread.
+ * <p>
+ * The documents are posted in two phases: first all the "regular" documents and then the documents which are referencing them (e.g. matchings and allocations are posted after the invoices,
+ * payments and receipts they are referencing).<br>
+ * Within a phase, the documents of all the tables which are sensitive to posting order (e.g. because of costing) are posted one by one by one task, ordered by their creation date over all
+ * those tables, while the documents of all other tables are posted in parallel.
+ * <p>
+ * Each document is posted in its own transaction by {@link Doc#post(boolean, boolean)}, which is also locking the document (i.e. <code>Processing='Y'</code>), so the same document is never
+ * posted twice, not even by two nodes at the same time. A document which could not be locked is skipped and not counted as error.
+ * <p>
+ * Throughput, errors and lag are collected in {@link DocumentPostingStatistics}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class DocumentsPostingEngine
+{
+	private static final Logger logger = LogManager.getLogger(DocumentsPostingEngine.class);
+
+	/** Tables whose documents are referencing other accountable documents and therefore are posted after all the other ones */
+	private static final Set<String> TABLENAMES_PostAfterReferencedDocuments = ImmutableSet.of(
+			I_M_MatchInv.Table_Name,
+			I_M_MatchPO.Table_Name,
+			I_C_AllocationHdr.Table_Name,
+			I_C_BankStatement.Table_Name);
+
+	/** Tables whose documents shall be posted one by one, in the order they were created */
+	private static final Set<String> TABLENAMES_PostSequentially = ImmutableSet.of(
+			I_M_InOut.Table_Name,
+			I_M_Inventory.Table_Name,
+			I_M_Movement.Table_Name,
+			I_M_Production.Table_Name,
+			I_M_MatchInv.Table_Name,
+			I_M_MatchPO.Table_Name,
+			"PP_Cost_Collector");
+
+	/** How many tasks per worker thread can wait to be executed, before the dispatching thread is posting the documents itself */
+	private static final int QUEUE_SIZE_PerThread = 10;
+
+	private final int adClientId;
+	private final List<IDocMetaInfo> docMetaInfos;
+	private final int threadsCount;
+	private final BooleanSupplier interruptedChecker;
+	private final DocumentsPoster documentsPoster;
+
+	private final Map<String, TableResult> resultsByTableName = new LinkedHashMap<>();
+
+	/**
+	 * @param documentsPoster optional; by default the documents are retrieved from database and posted using {@link Doc#post(boolean, boolean)}
+	 */
+	@Builder
+	private DocumentsPostingEngine(
+			@NonNull final Properties ctx,
+			final int adClientId,
+			@NonNull final MAcctSchema[] acctSchemas,
+			@NonNull final List<IDocMetaInfo> docMetaInfos,
+			final int threadsCount,
+			final BooleanSupplier interruptedChecker,
+			final DocumentsPoster documentsPoster)
+	{
+		Check.assume(adClientId >= 0, "adClientId >= 0");
+
+		this.adClientId = adClientId;
+		this.docMetaInfos = ImmutableList.copyOf(docMetaInfos);
+		this.threadsCount = threadsCount > 0 ? threadsCount : 1;
+		this.interruptedChecker = interruptedChecker != null ? interruptedChecker : () -> false;
+		this.documentsPoster = documentsPoster != null ? documentsPoster : new SqlDocumentsPoster(ctx, acctSchemas);
+	}
+
+	/**
+	 * Posts all not posted documents.
+	 *
+	 * @return results, one per document table which had documents to post
+	 */
+	public List<TableResult> post()
+	{
+		for (final List<IDocMetaInfo> phaseDocMetaInfos : groupByPhase(docMetaInfos))
+		{
+			if (isInterrupted())
+			{
+				break;
+			}
+			postPhase(phaseDocMetaInfos);
+		}
+
+		return resultsByTableName.values()
+				.stream()
+				.filter(result -> result.getCount() > 0 || result.getCountSkipped() > 0)
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * @return document tables grouped by the phase in which they shall be posted, in phase order
+	 */
+	@VisibleForTesting
+	static List<List<IDocMetaInfo>> groupByPhase(final List<IDocMetaInfo> docMetaInfos)
+	{
+		final List<IDocMetaInfo> firstPhase = new ArrayList<>();
+		final List<IDocMetaInfo> secondPhase = new ArrayList<>();
+		for (final IDocMetaInfo docMetaInfo : docMetaInfos)
+		{
+			if (TABLENAMES_PostAfterReferencedDocuments.contains(docMetaInfo.getTableName()))
+			{
+				secondPhase.add(docMetaInfo);
+			}
+			else
+			{
+				firstPhase.add(docMetaInfo);
+			}
+		}
+
+		return ImmutableList.of(firstPhase, secondPhase);
+	}
+
+	@VisibleForTesting
+	static boolean isPostSequentially(final IDocMetaInfo docMetaInfo)
+	{
+		return TABLENAMES_PostSequentially.contains(docMetaInfo.getTableName());
+	}
+
+	private boolean isInterrupted()
+	{
+		return interruptedChecker.getAsBoolean();
+	}
+
+	private void postPhase(final List<IDocMetaInfo> phaseDocMetaInfos)
+	{
+		if (phaseDocMetaInfos.isEmpty())
+		{
+			return;
+		}
+
+		// NOTE: create the results upfront, so the worker threads are only reading resultsByTableName
+		final List<IDocMetaInfo> sequentialDocMetaInfos = new ArrayList<>();
+		final List<IDocMetaInfo> parallelDocMetaInfos = new ArrayList<>();
+		for (final IDocMetaInfo docMetaInfo : phaseDocMetaInfos)
+		{
+			getTableResult(docMetaInfo);
+			if (isPostSequentially(docMetaInfo))
+			{
+				sequentialDocMetaInfos.add(docMetaInfo);
+			}
+			else
+			{
+				parallelDocMetaInfos.add(docMetaInfo);
+			}
+		}
+
+		if (threadsCount <= 1)
+		{
+			// Not parallel at all: post everything in the current thread
+			if (!sequentialDocMetaInfos.isEmpty())
+			{
+				postSequentially(sequentialDocMetaInfos);
+			}
+			for (final IDocMetaInfo docMetaInfo : parallelDocMetaInfos)
+			{
+				if (isInterrupted())
+				{
+					break;
+				}
+				dispatchPerDocument(docMetaInfo, Runnable::run);
+			}
+			return;
+		}
+
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				threadsCount, threadsCount,
+				0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(threadsCount * QUEUE_SIZE_PerThread),
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(DocumentsPostingEngine.class.getName() + "-Worker")
+						.setDaemon(true)
+						.build(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		try
+		{
+			if (!sequentialDocMetaInfos.isEmpty())
+			{
+				executor.execute(() -> postSequentially(sequentialDocMetaInfos));
+			}
+
+			for (final IDocMetaInfo docMetaInfo : parallelDocMetaInfos)
+			{
+				if (isInterrupted())
+				{
+					break;
+				}
+				dispatchPerDocument(docMetaInfo, executor);
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+			awaitTermination(executor);
+		}
+	}
+
+	private void awaitTermination(final ThreadPoolExecutor executor)
+	{
+		try
+		{
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+			{
+				if (isInterrupted())
+				{
+					executor.shutdownNow();
+				}
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Posts the documents of all given tables one by one, in the current thread, ordered by their creation date over all tables.
+	 */
+	private void postSequentially(final List<IDocMetaInfo> docMetaInfos)
+	{
+		final Set<String> tableNamesWithLagRecorded = new HashSet<>();
+		documentsPoster.streamNotPosted(adClientId, docMetaInfos, document -> {
+			if (isInterrupted())
+			{
+				return false;
+			}
+
+			final TableResult result = getTableResult(document.getDocMetaInfo());
+			if (tableNamesWithLagRecorded.add(document.getTableName()))
+			{
+				result.getStatistics().recordLag(document.getCreated());
+			}
+
+			postDocument(document, result);
+			return true;
+		});
+	}
+
+	/**
+	 * Retrieves the not posted documents of given table and submits one posting task per document to the given executor.
+	 */
+	private void dispatchPerDocument(final IDocMetaInfo docMetaInfo, final Executor executor)
+	{
+		final TableResult result = getTableResult(docMetaInfo);
+		final AtomicBoolean lagRecorded = new AtomicBoolean(false);
+		documentsPoster.streamNotPosted(adClientId, ImmutableList.of(docMetaInfo), document -> {
+			if (isInterrupted())
+			{
+				return false;
+			}
+
+			if (lagRecorded.compareAndSet(false, true))
+			{
+				result.getStatistics().recordLag(document.getCreated());
+			}
+
+			executor.execute(() -> postDocument(document, result));
+			return true;
+		});
+	}
+
+	private void postDocument(final DocumentToPost document, final TableResult result)
+	{
+		if (isInterrupted())
+		{
+			return;
+		}
+
+		final long startNanos = System.nanoTime();
+		PostingOutcome outcome = PostingOutcome.Error;
+		try
+		{
+			outcome = documentsPoster.post(document);
+		}
+		catch (final Exception e)
+		{
+			logger.error("{}_ID={}: {}", document.getTableName(), document.getRecordId(), e.getLocalizedMessage(), e);
+		}
+		finally
+		{
+			result.recordPosting(outcome, System.nanoTime() - startNanos);
+		}
+	}
+
+	private TableResult getTableResult(final IDocMetaInfo docMetaInfo)
+	{
+		return resultsByTableName.computeIfAbsent(docMetaInfo.getTableName(), TableResult::new);
+	}
+
+	/**
+	 * Posting result of one document table.
+	 */
+	public static final class TableResult
+	{
+		private final String tableName;
+		private final DocumentPostingStatistics statistics;
+		private final AtomicInteger count = new AtomicInteger(0);
+		private final AtomicInteger countErrors = new AtomicInteger(0);
+		private final AtomicInteger countSkipped = new AtomicInteger(0);
+
+		private TableResult(final String tableName)
+		{
+			this.tableName = tableName;
+			this.statistics = DocumentPostingStatistics.getOrCreate(tableName);
+		}
+
+		@Override
+		public String toString()
+		{
+			return tableName + "=" + getCount()
+					+ (getCountErrors() > 0 ? "(Errors=" + getCountErrors() + ")" : "")
+					+ (getCountSkipped() > 0 ? "(Skipped=" + getCountSkipped() + ")" : "");
+		}
+
+		private DocumentPostingStatistics getStatistics()
+		{
+			return statistics;
+		}
+
+		private void recordPosting(final PostingOutcome outcome, final long durationNanos)
+		{
+			if (outcome == PostingOutcome.Locked)
+			{
+				// somebody else is posting the document right now => neither a posting nor an error
+				countSkipped.incrementAndGet();
+				return;
+			}
+
+			final boolean success = outcome == PostingOutcome.Posted;
+			count.incrementAndGet();
+			if (!success)
+			{
+				countErrors.incrementAndGet();
+			}
+			statistics.recordPosting(success, durationNanos);
+		}
+
+		public String getTableName()
+		{
+			return tableName;
+		}
+
+		/** @return how many documents were posted or failed */
+		public int getCount()
+		{
+			return count.get();
+		}
+
+		public int getCountErrors()
+		{
+			return countErrors.get();
+		}
+
+		/** @return how many documents were skipped because they were locked by somebody else */
+		public int getCountSkipped()
+		{
+			return countSkipped.get();
+		}
+	}
+}
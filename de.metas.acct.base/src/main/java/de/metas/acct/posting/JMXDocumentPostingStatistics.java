@@ -0,0 +1,90 @@
+package de.metas.acct.posting;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import org.adempiere.util.jmx.IJMXNameAware;
+
+/**
+ * JMX bean for documents posting statistics (implementation).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class JMXDocumentPostingStatistics implements JMXDocumentPostingStatisticsMBean, IJMXNameAware
+{
+	private static final String JMX_NAME = "de.metas.acct.posting:type=DocumentPostingStatistics";
+
+	/* package */ JMXDocumentPostingStatistics()
+	{
+		super();
+	}
+
+	@Override
+	public String getJMXName()
+	{
+		return JMX_NAME;
+	}
+
+	@Override
+	public String[] getStatistics()
+	{
+		return DocumentPostingStatistics.getAll()
+				.stream()
+				.map(DocumentPostingStatistics::toString)
+				.toArray(String[]::new);
+	}
+
+	@Override
+	public long getTotalPostedCount()
+	{
+		return DocumentPostingStatistics.getAll()
+				.stream()
+				.mapToLong(DocumentPostingStatistics::getPostedCount)
+				.sum();
+	}
+
+	@Override
+	public long getTotalErrorsCount()
+	{
+		return DocumentPostingStatistics.getAll()
+				.stream()
+				.mapToLong(DocumentPostingStatistics::getErrorsCount)
+				.sum();
+	}
+
+	@Override
+	public long getMaxLagMillis()
+	{
+		return DocumentPostingStatistics.getAll()
+				.stream()
+				.mapToLong(DocumentPostingStatistics::getLagMillis)
+				.max()
+				.orElse(0);
+	}
+
+	@Override
+	public void resetStatistics()
+	{
+		DocumentPostingStatistics.resetAll();
+	}
+}
@@ -0,0 +1,240 @@
+package de.metas.acct.posting;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Predicate;
+
+import org.adempiere.acct.api.IDocFactory;
+import org.adempiere.acct.api.IDocMetaInfo;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.util.Services;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.acct.Doc;
+import org.compiere.model.MAcctSchema;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import de.metas.logging.LogManager;
+import lombok.NonNull;
+
+/**
+ * Default {@link DocumentsPoster}, which is retrieving the not posted documents from database and is posting them using {@link Doc#post(boolean, boolean)}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class SqlDocumentsPoster implements DocumentsPoster
+{
+	private static final Logger logger = LogManager.getLogger(SqlDocumentsPoster.class);
+
+	private static final Comparator<DocumentToPost> ORDER_BY_Created = Comparator.comparing(DocumentToPost::getCreated)
+			.thenComparing(document -> document.getDocMetaInfo().getAD_Table_ID())
+			.thenComparing(DocumentToPost::getRecordId);
+
+	private final IDocFactory docFactory = Services.get(IDocFactory.class);
+
+	private final Properties ctx;
+	private final MAcctSchema[] acctSchemas;
+
+	public SqlDocumentsPoster(@NonNull final Properties ctx, @NonNull final MAcctSchema[] acctSchemas)
+	{
+		this.ctx = ctx;
+		this.acctSchemas = acctSchemas;
+	}
+
+	@Override
+	public void streamNotPosted(final int adClientId, final List<IDocMetaInfo> docMetaInfos, final Predicate<DocumentToPost> consumer)
+	{
+		if (docMetaInfos.isEmpty())
+		{
+			return;
+		}
+
+		final List<NotPostedCursor> cursors = new ArrayList<>(docMetaInfos.size());
+		try
+		{
+			for (final IDocMetaInfo docMetaInfo : docMetaInfos)
+			{
+				final NotPostedCursor cursor = new NotPostedCursor(docMetaInfo);
+				cursors.add(cursor);
+				cursor.open(adClientId);
+			}
+
+			// Merge the cursors, so that the documents are provided ordered by their creation date over all tables
+			while (true)
+			{
+				final NotPostedCursor cursor = cursors.stream()
+						.filter(NotPostedCursor::hasCurrent)
+						.min(Comparator.comparing(NotPostedCursor::getCurrent, ORDER_BY_Created))
+						.orElse(null);
+				if (cursor == null)
+				{
+					break;
+				}
+				if (!consumer.test(cursor.getCurrent()))
+				{
+					break;
+				}
+				cursor.next();
+			}
+		}
+		catch (final Exception e)
+		{
+			logger.error("Failed retrieving the not posted documents of {}", docMetaInfos, e);
+		}
+		finally
+		{
+			cursors.forEach(NotPostedCursor::close);
+		}
+	}
+
+	/**
+	 * @return SQL which selects the not posted documents of given table, ordered by <code>Created</code>
+	 */
+	@VisibleForTesting
+	static String buildSelectNotPostedSql(final IDocMetaInfo docMetaInfo)
+	{
+		final String tableName = docMetaInfo.getTableName();
+		return "SELECT * FROM " + tableName
+				+ " WHERE AD_Client_ID=?"
+				+ " AND Processed='Y' AND Posted='N' AND IsActive='Y'"
+				+ " ORDER BY Created, " + tableName + "_ID";
+	}
+
+	/**
+	 * Iterates the not posted documents of one table and loads their {@link Doc}s.
+	 */
+	private final class NotPostedCursor
+	{
+		private final IDocMetaInfo docMetaInfo;
+		private PreparedStatement pstmt;
+		private ResultSet rs;
+		private DocumentToPost current;
+
+		private NotPostedCursor(final IDocMetaInfo docMetaInfo)
+		{
+			this.docMetaInfo = docMetaInfo;
+		}
+
+		public void open(final int adClientId) throws SQLException
+		{
+			pstmt = DB.prepareStatement(buildSelectNotPostedSql(docMetaInfo), ITrx.TRXNAME_None);
+			pstmt.setInt(1, adClientId);
+			rs = pstmt.executeQuery();
+			next();
+		}
+
+		public boolean hasCurrent()
+		{
+			return current != null;
+		}
+
+		public DocumentToPost getCurrent()
+		{
+			return current;
+		}
+
+		public void next() throws SQLException
+		{
+			if (!rs.next())
+			{
+				current = null;
+				return;
+			}
+
+			final String tableName = docMetaInfo.getTableName();
+			final int recordId = rs.getInt(tableName + "_ID");
+			current = new DocumentToPost(
+					docMetaInfo,
+					recordId,
+					rs.getTimestamp("Created"),
+					createDocOrNull(recordId));
+		}
+
+		/**
+		 * @return the document, loaded from the current row; <code>null</code> if it could not be loaded, so it will be loaded again by ID when it's posted
+		 */
+		private Doc createDocOrNull(final int recordId)
+		{
+			try
+			{
+				// NOTE: the document might be posted in another thread, so give it its own context
+				return docFactory.get(Env.snapshotCtx(ctx), docMetaInfo, acctSchemas, rs, ITrx.TRXNAME_None);
+			}
+			catch (final Exception e)
+			{
+				logger.warn("Failed loading {}_ID={}", docMetaInfo.getTableName(), recordId, e);
+				return null;
+			}
+		}
+
+		public void close()
+		{
+			DB.close(rs, pstmt);
+			rs = null;
+			pstmt = null;
+			current = null;
+		}
+	}
+
+	@Override
+	public PostingOutcome post(final DocumentToPost document)
+	{
+		try (final IAutoCloseable c = Env.switchContext(Env.snapshotCtx(ctx)))
+		{
+			final Doc doc = document.getDoc() != null
+					? document.getDoc()
+					: docFactory.getOrNull(Env.getCtx(), acctSchemas, document.getDocMetaInfo().getAD_Table_ID(), document.getRecordId(), ITrx.TRXNAME_None);
+			if (doc == null)
+			{
+				logger.error("No Doc for {}_ID={}", document.getTableName(), document.getRecordId());
+				return PostingOutcome.Error;
+			}
+
+			final String error = doc.post(false, false); // post no force/repost
+			if (error == null)
+			{
+				return PostingOutcome.Posted;
+			}
+			else if (doc.isLockFailed())
+			{
+				logger.debug("Skip {}_ID={} because it's already locked: {}", document.getTableName(), document.getRecordId(), error);
+				return PostingOutcome.Locked;
+			}
+			else
+			{
+				return PostingOutcome.Error;
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package de.metas.acct.process;
+
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.adempiere.util.Services;
+
+import de.metas.acct.FactAcctPeriodBalanceInconsistency;
+import de.metas.acct.IFactAcctPeriodBalanceDAO;
+import de.metas.process.JavaProcess;
+
+/**
+ * Compares <code>Fact_Acct_Period_Balance</code> with <code>Fact_Acct</code> and logs each inconsistent balance.
+ * <p>
+ * If inconsistencies are found, they can be fixed by calling <code>de_metas_acct.Fact_Acct_Period_Balance_RebuildAll()</code>.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class Fact_Acct_Period_Balance_Check extends JavaProcess
+{
+	private final transient IFactAcctPeriodBalanceDAO factAcctPeriodBalanceDAO = Services.get(IFactAcctPeriodBalanceDAO.class);
+
+	@Override
+	protected void prepare()
+	{
+		// nothing
+	}
+
+	@Override
+	protected String doIt() throws Exception
+	{
+		final List<FactAcctPeriodBalanceInconsistency> inconsistencies = factAcctPeriodBalanceDAO.retrieveInconsistencies(getAD_Client_ID());
+		for (final FactAcctPeriodBalanceInconsistency inconsistency : inconsistencies)
+		{
+			addLog("Inconsistent: {0}", inconsistency);
+		}
+
+		if (!inconsistencies.isEmpty())
+		{
+			log.warn("Found {} inconsistent {} records", inconsistencies.size(), IFactAcctPeriodBalanceDAO.Table_Name);
+			return "@Error@ " + inconsistencies.size() + " inconsistent " + IFactAcctPeriodBalanceDAO.Table_Name + " records";
+		}
+
+		return MSG_OK;
+	}
+}
@@ -0,0 +1,82 @@
+drop function if exists de_metas_acct.Fact_Acct_Period_Balance_Check(p_AD_Client_ID numeric);
+create or replace function de_metas_acct.Fact_Acct_Period_Balance_Check(p_AD_Client_ID numeric)
+returns table
+(
+	AD_Org_ID numeric
+	, C_AcctSchema_ID numeric
+	, Account_ID numeric
+	, PostingType char(1)
+	, C_Period_ID numeric
+	, AmtAcctDr_Expected numeric, AmtAcctDr numeric
+	, AmtAcctCr_Expected numeric, AmtAcctCr numeric
+	, Qty_Expected numeric, Qty numeric
+	, AmtAcctDr_YTD_Expected numeric, AmtAcctDr_YTD numeric
+	, AmtAcctCr_YTD_Expected numeric, AmtAcctCr_YTD numeric
+)
+AS
+$BODY$
+	with expected as (
+		select
+			t.*
+			, sum(t.AmtAcctDr) over year_to_date as AmtAcctDr_YTD
+			, sum(t.AmtAcctCr) over year_to_date as AmtAcctCr_YTD
+		from (
+			select
+				fa.AD_Client_ID, fa.AD_Org_ID, fa.C_AcctSchema_ID, fa.Account_ID, fa.PostingType
+				, fa.C_Period_ID, p.C_Year_ID, p.StartDate as DateAcct
+				, sum(fa.AmtAcctDr) as AmtAcctDr, sum(fa.AmtAcctCr) as AmtAcctCr, sum(fa.Qty) as Qty
+			from Fact_Acct fa
+			inner join C_Period p on (p.C_Period_ID=fa.C_Period_ID)
+			where fa.AD_Client_ID=$1
+			group by fa.AD_Client_ID, fa.AD_Org_ID, fa.C_AcctSchema_ID, fa.Account_ID, fa.PostingType, fa.C_Period_ID, p.C_Year_ID, p.StartDate
+		) t
+		window year_to_date as (partition by t.AD_Client_ID, t.AD_Org_ID, t.C_AcctSchema_ID, t.Account_ID, t.PostingType, t.C_Year_ID order by t.DateAcct)
+	)
+	, actual as (
+		select pb.*
+		from Fact_Acct_Period_Balance pb
+		where pb.AD_Client_ID=$1
+	)
+	select
+		coalesce(e.AD_Org_ID, a.AD_Org_ID)
+		, coalesce(e.C_AcctSchema_ID, a.C_AcctSchema_ID)
+		, coalesce(e.Account_ID, a.Account_ID)
+		, coalesce(e.PostingType, a.PostingType)
+		, coalesce(e.C_Period_ID, a.C_Period_ID)
+		, coalesce(e.AmtAcctDr, 0), coalesce(a.AmtAcctDr, 0)
+		, coalesce(e.AmtAcctCr, 0), coalesce(a.AmtAcctCr, 0)
+		, coalesce(e.Qty, 0), coalesce(a.Qty, 0)
+		, coalesce(e.AmtAcctDr_YTD, 0), coalesce(a.AmtAcctDr_YTD, 0)
+		, coalesce(e.AmtAcctCr_YTD, 0), coalesce(a.AmtAcctCr_YTD, 0)
+	from expected e
+	full outer join actual a on (
+		a.AD_Org_ID=e.AD_Org_ID and a.C_AcctSchema_ID=e.C_AcctSchema_ID and a.Account_ID=e.Account_ID
+		and a.PostingType=e.PostingType and a.C_Period_ID=e.C_Period_ID
+	)
+	where (
+		coalesce(e.AmtAcctDr, 0) <> coalesce(a.AmtAcctDr, 0)
+		or coalesce(e.AmtAcctCr, 0) <> coalesce(a.AmtAcctCr, 0)
+		or coalesce(e.Qty, 0) <> coalesce(a.Qty, 0)
+		or coalesce(e.AmtAcctDr_YTD, 0) <> coalesce(a.AmtAcctDr_YTD, 0)
+		or coalesce(e.AmtAcctCr_YTD, 0) <> coalesce(a.AmtAcctCr_YTD, 0)
+	)
+	-- skip the dimensions which still have pending logs; they are not inconsistent, just not yet processed
+	and not exists (
+		select 1 from Fact_Acct_Log log
+		where log.AD_Client_ID=$1
+			and log.AD_Org_ID=coalesce(e.AD_Org_ID, a.AD_Org_ID)
+			and log.C_AcctSchema_ID=coalesce(e.C_AcctSchema_ID, a.C_AcctSchema_ID)
+			and log.C_ElementValue_ID=coalesce(e.Account_ID, a.Account_ID)
+			and log.PostingType=coalesce(e.PostingType, a.PostingType)
+	)
+	order by 1, 2, 3, 4, 5
+	;
+$BODY$
+LANGUAGE sql STABLE;
+
+COMMENT ON FUNCTION de_metas_acct.Fact_Acct_Period_Balance_Check(numeric) IS 'Compares Fact_Acct_Period_Balance with Fact_Acct and returns the inconsistent rows. Dimensions with pending Fact_Acct_Log records are skipped.';
+
+
+/*
+select * from de_metas_acct.Fact_Acct_Period_Balance_Check(1000000);
+*/
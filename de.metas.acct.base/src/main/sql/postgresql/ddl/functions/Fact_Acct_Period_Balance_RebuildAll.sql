@@ -0,0 +1,47 @@
+drop function if exists de_metas_acct.Fact_Acct_Period_Balance_RebuildAll();
+create or replace function de_metas_acct.Fact_Acct_Period_Balance_RebuildAll()
+returns text
+AS
+$BODY$
+declare
+	v_CountInserted integer;
+begin
+	--
+	-- WARNING: Perform the actual change:
+	delete from Fact_Acct_Period_Balance;
+
+	insert into Fact_Acct_Period_Balance
+	(
+		AD_Client_ID, AD_Org_ID, C_AcctSchema_ID, Account_ID, PostingType
+		, C_Period_ID, C_Year_ID, DateAcct
+		, AmtAcctDr, AmtAcctCr, Qty
+		, AmtAcctDr_YTD, AmtAcctCr_YTD, Qty_YTD
+		, Created, Updated
+	)
+	select
+		t.AD_Client_ID, t.AD_Org_ID, t.C_AcctSchema_ID, t.Account_ID, t.PostingType
+		, t.C_Period_ID, t.C_Year_ID, t.DateAcct
+		, t.AmtAcctDr, t.AmtAcctCr, t.Qty
+		, sum(t.AmtAcctDr) over year_to_date
+		, sum(t.AmtAcctCr) over year_to_date
+		, sum(t.Qty) over year_to_date
+		, now(), now()
+	from (
+		select
+			fa.AD_Client_ID, fa.AD_Org_ID, fa.C_AcctSchema_ID, fa.Account_ID, fa.PostingType
+			, fa.C_Period_ID, p.C_Year_ID, p.StartDate as DateAcct
+			, sum(fa.AmtAcctDr) as AmtAcctDr, sum(fa.AmtAcctCr) as AmtAcctCr, sum(fa.Qty) as Qty
+		from Fact_Acct fa
+		inner join C_Period p on (p.C_Period_ID=fa.C_Period_ID)
+		group by fa.AD_Client_ID, fa.AD_Org_ID, fa.C_AcctSchema_ID, fa.Account_ID, fa.PostingType, fa.C_Period_ID, p.C_Year_ID, p.StartDate
+	) t
+	window year_to_date as (partition by t.AD_Client_ID, t.AD_Org_ID, t.C_AcctSchema_ID, t.Account_ID, t.PostingType, t.C_Year_ID order by t.DateAcct)
+	;
+	GET DIAGNOSTICS v_CountInserted = ROW_COUNT;
+
+	return ''||v_CountInserted||' rows inserted into Fact_Acct_Period_Balance';
+end;
+$BODY$
+LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION de_metas_acct.Fact_Acct_Period_Balance_RebuildAll() IS 'Rebuilds Fact_Acct_Period_Balance from Fact_Acct.';
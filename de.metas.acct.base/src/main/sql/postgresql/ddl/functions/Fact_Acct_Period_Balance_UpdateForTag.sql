@@ -0,0 +1,114 @@
+drop function if exists de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag(p_ProcessingTag varchar);
+create or replace function de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag(p_ProcessingTag varchar)
+returns text
+AS
+$BODY$
+declare
+	v_CountInserted integer;
+	v_CountUpdated integer;
+	v_CountUpdatedYTD integer;
+begin
+	--
+	-- Aggregate the logs of given tag to per period deltas.
+	-- A log with Action='D' is the old image of a deleted or updated Fact_Acct, so it's subtracted.
+	drop table if exists TMP_Fact_Acct_Period_Balance_Delta;
+	create temporary table TMP_Fact_Acct_Period_Balance_Delta as
+	select
+		log.AD_Client_ID, log.AD_Org_ID, log.C_AcctSchema_ID, log.C_ElementValue_ID as Account_ID, log.PostingType
+		, log.C_Period_ID, p.C_Year_ID, p.StartDate as DateAcct
+		, sum(case when log.Action='D' then -log.AmtAcctDr else log.AmtAcctDr end) as AmtAcctDr
+		, sum(case when log.Action='D' then -log.AmtAcctCr else log.AmtAcctCr end) as AmtAcctCr
+		, sum(case when log.Action='D' then -log.Qty else log.Qty end) as Qty
+	from Fact_Acct_Log log
+	inner join C_Period p on (p.C_Period_ID=log.C_Period_ID)
+	where log.ProcessingTag=p_ProcessingTag
+	group by log.AD_Client_ID, log.AD_Org_ID, log.C_AcctSchema_ID, log.C_ElementValue_ID, log.PostingType, log.C_Period_ID, p.C_Year_ID, p.StartDate;
+
+	--
+	-- Create the missing period rows.
+	-- The YTD amounts are initialized from the previous period of the same year (deltas are added below).
+	insert into Fact_Acct_Period_Balance
+	(
+		AD_Client_ID, AD_Org_ID, C_AcctSchema_ID, Account_ID, PostingType
+		, C_Period_ID, C_Year_ID, DateAcct
+		, AmtAcctDr, AmtAcctCr, Qty
+		, AmtAcctDr_YTD, AmtAcctCr_YTD, Qty_YTD
+		, Created, Updated
+	)
+	select
+		d.AD_Client_ID, d.AD_Org_ID, d.C_AcctSchema_ID, d.Account_ID, d.PostingType
+		, d.C_Period_ID, d.C_Year_ID, d.DateAcct
+		, 0, 0, 0
+		, coalesce(prev.AmtAcctDr_YTD, 0), coalesce(prev.AmtAcctCr_YTD, 0), coalesce(prev.Qty_YTD, 0)
+		, now(), now()
+	from TMP_Fact_Acct_Period_Balance_Delta d
+	left outer join lateral (
+		select pb.AmtAcctDr_YTD, pb.AmtAcctCr_YTD, pb.Qty_YTD
+		from Fact_Acct_Period_Balance pb
+		where pb.AD_Client_ID=d.AD_Client_ID and pb.AD_Org_ID=d.AD_Org_ID and pb.C_AcctSchema_ID=d.C_AcctSchema_ID
+			and pb.Account_ID=d.Account_ID and pb.PostingType=d.PostingType
+			and pb.C_Year_ID=d.C_Year_ID and pb.DateAcct < d.DateAcct
+		order by pb.DateAcct desc
+		limit 1
+	) prev on true
+	where not exists (
+		select 1 from Fact_Acct_Period_Balance pb
+		where pb.AD_Client_ID=d.AD_Client_ID and pb.AD_Org_ID=d.AD_Org_ID and pb.C_AcctSchema_ID=d.C_AcctSchema_ID
+			and pb.Account_ID=d.Account_ID and pb.PostingType=d.PostingType
+			and pb.C_Period_ID=d.C_Period_ID
+	);
+	GET DIAGNOSTICS v_CountInserted = ROW_COUNT;
+
+	--
+	-- Add the deltas to the period amounts
+	update Fact_Acct_Period_Balance pb set
+		AmtAcctDr = pb.AmtAcctDr + d.AmtAcctDr
+		, AmtAcctCr = pb.AmtAcctCr + d.AmtAcctCr
+		, Qty = pb.Qty + d.Qty
+		, Updated = now()
+	from TMP_Fact_Acct_Period_Balance_Delta d
+	where pb.AD_Client_ID=d.AD_Client_ID and pb.AD_Org_ID=d.AD_Org_ID and pb.C_AcctSchema_ID=d.C_AcctSchema_ID
+		and pb.Account_ID=d.Account_ID and pb.PostingType=d.PostingType
+		and pb.C_Period_ID=d.C_Period_ID;
+	GET DIAGNOSTICS v_CountUpdated = ROW_COUNT;
+
+	--
+	-- Add the deltas to the YTD amounts of the delta's period and of all later periods of the same year
+	update Fact_Acct_Period_Balance pb set
+		AmtAcctDr_YTD = pb.AmtAcctDr_YTD + ytd.AmtAcctDr
+		, AmtAcctCr_YTD = pb.AmtAcctCr_YTD + ytd.AmtAcctCr
+		, Qty_YTD = pb.Qty_YTD + ytd.Qty
+		, Updated = now()
+	from (
+		select
+			pb2.AD_Client_ID, pb2.AD_Org_ID, pb2.C_AcctSchema_ID, pb2.Account_ID, pb2.PostingType, pb2.C_Period_ID
+			, sum(d.AmtAcctDr) as AmtAcctDr, sum(d.AmtAcctCr) as AmtAcctCr, sum(d.Qty) as Qty
+		from Fact_Acct_Period_Balance pb2
+		inner join TMP_Fact_Acct_Period_Balance_Delta d on (
+			d.AD_Client_ID=pb2.AD_Client_ID and d.AD_Org_ID=pb2.AD_Org_ID and d.C_AcctSchema_ID=pb2.C_AcctSchema_ID
+			and d.Account_ID=pb2.Account_ID and d.PostingType=pb2.PostingType
+			and d.C_Year_ID=pb2.C_Year_ID and d.DateAcct <= pb2.DateAcct
+		)
+		group by pb2.AD_Client_ID, pb2.AD_Org_ID, pb2.C_AcctSchema_ID, pb2.Account_ID, pb2.PostingType, pb2.C_Period_ID
+	) ytd
+	where pb.AD_Client_ID=ytd.AD_Client_ID and pb.AD_Org_ID=ytd.AD_Org_ID and pb.C_AcctSchema_ID=ytd.C_AcctSchema_ID
+		and pb.Account_ID=ytd.Account_ID and pb.PostingType=ytd.PostingType
+		and pb.C_Period_ID=ytd.C_Period_ID;
+	GET DIAGNOSTICS v_CountUpdatedYTD = ROW_COUNT;
+
+	drop table if exists TMP_Fact_Acct_Period_Balance_Delta;
+
+	return ''||v_CountInserted||' rows inserted, '||v_CountUpdated||' rows updated, '||v_CountUpdatedYTD||' YTD rows updated in Fact_Acct_Period_Balance for tag='||p_ProcessingTag;
+end;
+$BODY$
+LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag(character varying) IS 'Checks Fact_Acct_Log for given tag and incrementally updates the period and year-to-date amounts of Fact_Acct_Period_Balance.';
+
+
+/*
+delete from Fact_Acct_log where ProcessingTag='test';
+update Fact_Acct_Log set ProcessingTag='test';
+select * from Fact_Acct_Log
+select de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag('test');
+*/
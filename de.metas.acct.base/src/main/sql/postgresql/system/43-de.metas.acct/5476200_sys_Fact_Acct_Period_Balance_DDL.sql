@@ -0,0 +1,13 @@
+-- 18.10.2017
+-- Fact_Acct_Period_Balance: incrementally maintained period balances (see de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag)
+-- DateAcct is the StartDate of C_Period_ID, so the financial reports can apply their DateAcct conditions unchanged.
+CREATE TABLE Fact_Acct_Period_Balance (AD_Client_ID NUMERIC(10) NOT NULL, AD_Org_ID NUMERIC(10) NOT NULL, C_AcctSchema_ID NUMERIC(10) NOT NULL, Account_ID NUMERIC(10) NOT NULL, PostingType CHAR(1) NOT NULL, C_Period_ID NUMERIC(10) NOT NULL, C_Year_ID NUMERIC(10) NOT NULL, DateAcct TIMESTAMP WITHOUT TIME ZONE NOT NULL, AmtAcctDr NUMERIC NOT NULL, AmtAcctCr NUMERIC NOT NULL, Qty NUMERIC NOT NULL, AmtAcctDr_YTD NUMERIC NOT NULL, AmtAcctCr_YTD NUMERIC NOT NULL, Qty_YTD NUMERIC NOT NULL, Created TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(), Updated TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(), CONSTRAINT Fact_Acct_Period_Balance_Key PRIMARY KEY (AD_Client_ID, AD_Org_ID, C_AcctSchema_ID, Account_ID, PostingType, C_Period_ID))
+;
+
+drop index if exists Fact_Acct_Period_Balance_Year;
+create index Fact_Acct_Period_Balance_Year on Fact_Acct_Period_Balance(Account_ID, C_AcctSchema_ID, PostingType, AD_Org_ID, C_Year_ID, DateAcct);
+COMMENT ON INDEX Fact_Acct_Period_Balance_Year IS 'Index required to speed up the YTD update in Fact_Acct_Period_Balance_UpdateForTag';
+
+drop index if exists Fact_Acct_Period_Balance_Report;
+create index Fact_Acct_Period_Balance_Report on Fact_Acct_Period_Balance(C_AcctSchema_ID, PostingType, DateAcct);
+COMMENT ON INDEX Fact_Acct_Period_Balance_Report IS 'Index used by FinReport and TrialBalance';
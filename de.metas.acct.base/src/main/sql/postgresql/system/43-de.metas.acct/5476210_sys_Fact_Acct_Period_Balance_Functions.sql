@@ -0,0 +1,249 @@
+-- 18.10.2017
+-- functions to maintain and check Fact_Acct_Period_Balance
+
+drop function if exists de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag(p_ProcessingTag varchar);
+create or replace function de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag(p_ProcessingTag varchar)
+returns text
+AS
+$BODY$
+declare
+	v_CountInserted integer;
+	v_CountUpdated integer;
+	v_CountUpdatedYTD integer;
+begin
+	--
+	-- Aggregate the logs of given tag to per period deltas.
+	-- A log with Action='D' is the old image of a deleted or updated Fact_Acct, so it's subtracted.
+	drop table if exists TMP_Fact_Acct_Period_Balance_Delta;
+	create temporary table TMP_Fact_Acct_Period_Balance_Delta as
+	select
+		log.AD_Client_ID, log.AD_Org_ID, log.C_AcctSchema_ID, log.C_ElementValue_ID as Account_ID, log.PostingType
+		, log.C_Period_ID, p.C_Year_ID, p.StartDate as DateAcct
+		, sum(case when log.Action='D' then -log.AmtAcctDr else log.AmtAcctDr end) as AmtAcctDr
+		, sum(case when log.Action='D' then -log.AmtAcctCr else log.AmtAcctCr end) as AmtAcctCr
+		, sum(case when log.Action='D' then -log.Qty else log.Qty end) as Qty
+	from Fact_Acct_Log log
+	inner join C_Period p on (p.C_Period_ID=log.C_Period_ID)
+	where log.ProcessingTag=p_ProcessingTag
+	group by log.AD_Client_ID, log.AD_Org_ID, log.C_AcctSchema_ID, log.C_ElementValue_ID, log.PostingType, log.C_Period_ID, p.C_Year_ID, p.StartDate;
+
+	--
+	-- Create the missing period rows.
+	-- The YTD amounts are initialized from the previous period of the same year (deltas are added below).
+	insert into Fact_Acct_Period_Balance
+	(
+		AD_Client_ID, AD_Org_ID, C_AcctSchema_ID, Account_ID, PostingType
+		, C_Period_ID, C_Year_ID, DateAcct
+		, AmtAcctDr, AmtAcctCr, Qty
+		, AmtAcctDr_YTD, AmtAcctCr_YTD, Qty_YTD
+		, Created, Updated
+	)
+	select
+		d.AD_Client_ID, d.AD_Org_ID, d.C_AcctSchema_ID, d.Account_ID, d.PostingType
+		, d.C_Period_ID, d.C_Year_ID, d.DateAcct
+		, 0, 0, 0
+		, coalesce(prev.AmtAcctDr_YTD, 0), coalesce(prev.AmtAcctCr_YTD, 0), coalesce(prev.Qty_YTD, 0)
+		, now(), now()
+	from TMP_Fact_Acct_Period_Balance_Delta d
+	left outer join lateral (
+		select pb.AmtAcctDr_YTD, pb.AmtAcctCr_YTD, pb.Qty_YTD
+		from Fact_Acct_Period_Balance pb
+		where pb.AD_Client_ID=d.AD_Client_ID and pb.AD_Org_ID=d.AD_Org_ID and pb.C_AcctSchema_ID=d.C_AcctSchema_ID
+			and pb.Account_ID=d.Account_ID and pb.PostingType=d.PostingType
+			and pb.C_Year_ID=d.C_Year_ID and pb.DateAcct < d.DateAcct
+		order by pb.DateAcct desc
+		limit 1
+	) prev on true
+	where not exists (
+		select 1 from Fact_Acct_Period_Balance pb
+		where pb.AD_Client_ID=d.AD_Client_ID and pb.AD_Org_ID=d.AD_Org_ID and pb.C_AcctSchema_ID=d.C_AcctSchema_ID
+			and pb.Account_ID=d.Account_ID and pb.PostingType=d.PostingType
+			and pb.C_Period_ID=d.C_Period_ID
+	);
+	GET DIAGNOSTICS v_CountInserted = ROW_COUNT;
+
+	--
+	-- Add the deltas to the period amounts
+	update Fact_Acct_Period_Balance pb set
+		AmtAcctDr = pb.AmtAcctDr + d.AmtAcctDr
+		, AmtAcctCr = pb.AmtAcctCr + d.AmtAcctCr
+		, Qty = pb.Qty + d.Qty
+		, Updated = now()
+	from TMP_Fact_Acct_Period_Balance_Delta d
+	where pb.AD_Client_ID=d.AD_Client_ID and pb.AD_Org_ID=d.AD_Org_ID and pb.C_AcctSchema_ID=d.C_AcctSchema_ID
+		and pb.Account_ID=d.Account_ID and pb.PostingType=d.PostingType
+		and pb.C_Period_ID=d.C_Period_ID;
+	GET DIAGNOSTICS v_CountUpdated = ROW_COUNT;
+
+	--
+	-- Add the deltas to the YTD amounts of the delta's period and of all later periods of the same year
+	update Fact_Acct_Period_Balance pb set
+		AmtAcctDr_YTD = pb.AmtAcctDr_YTD + ytd.AmtAcctDr
+		, AmtAcctCr_YTD = pb.AmtAcctCr_YTD + ytd.AmtAcctCr
+		, Qty_YTD = pb.Qty_YTD + ytd.Qty
+		, Updated = now()
+	from (
+		select
+			pb2.AD_Client_ID, pb2.AD_Org_ID, pb2.C_AcctSchema_ID, pb2.Account_ID, pb2.PostingType, pb2.C_Period_ID
+			, sum(d.AmtAcctDr) as AmtAcctDr, sum(d.AmtAcctCr) as AmtAcctCr, sum(d.Qty) as Qty
+		from Fact_Acct_Period_Balance pb2
+		inner join TMP_Fact_Acct_Period_Balance_Delta d on (
+			d.AD_Client_ID=pb2.AD_Client_ID and d.AD_Org_ID=pb2.AD_Org_ID and d.C_AcctSchema_ID=pb2.C_AcctSchema_ID
+			and d.Account_ID=pb2.Account_ID and d.PostingType=pb2.PostingType
+			and d.C_Year_ID=pb2.C_Year_ID and d.DateAcct <= pb2.DateAcct
+		)
+		group by pb2.AD_Client_ID, pb2.AD_Org_ID, pb2.C_AcctSchema_ID, pb2.Account_ID, pb2.PostingType, pb2.C_Period_ID
+	) ytd
+	where pb.AD_Client_ID=ytd.AD_Client_ID and pb.AD_Org_ID=ytd.AD_Org_ID and pb.C_AcctSchema_ID=ytd.C_AcctSchema_ID
+		and pb.Account_ID=ytd.Account_ID and pb.PostingType=ytd.PostingType
+		and pb.C_Period_ID=ytd.C_Period_ID;
+	GET DIAGNOSTICS v_CountUpdatedYTD = ROW_COUNT;
+
+	drop table if exists TMP_Fact_Acct_Period_Balance_Delta;
+
+	return ''||v_CountInserted||' rows inserted, '||v_CountUpdated||' rows updated, '||v_CountUpdatedYTD||' YTD rows updated in Fact_Acct_Period_Balance for tag='||p_ProcessingTag;
+end;
+$BODY$
+LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag(character varying) IS 'Checks Fact_Acct_Log for given tag and incrementally updates the period and year-to-date amounts of Fact_Acct_Period_Balance.';
+
+
+/*
+delete from Fact_Acct_log where ProcessingTag='test';
+update Fact_Acct_Log set ProcessingTag='test';
+select * from Fact_Acct_Log
+select de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag('test');
+*/
+
+drop function if exists de_metas_acct.Fact_Acct_Period_Balance_RebuildAll();
+create or replace function de_metas_acct.Fact_Acct_Period_Balance_RebuildAll()
+returns text
+AS
+$BODY$
+declare
+	v_CountInserted integer;
+begin
+	--
+	-- WARNING: Perform the actual change:
+	delete from Fact_Acct_Period_Balance;
+
+	insert into Fact_Acct_Period_Balance
+	(
+		AD_Client_ID, AD_Org_ID, C_AcctSchema_ID, Account_ID, PostingType
+		, C_Period_ID, C_Year_ID, DateAcct
+		, AmtAcctDr, AmtAcctCr, Qty
+		, AmtAcctDr_YTD, AmtAcctCr_YTD, Qty_YTD
+		, Created, Updated
+	)
+	select
+		t.AD_Client_ID, t.AD_Org_ID, t.C_AcctSchema_ID, t.Account_ID, t.PostingType
+		, t.C_Period_ID, t.C_Year_ID, t.DateAcct
+		, t.AmtAcctDr, t.AmtAcctCr, t.Qty
+		, sum(t.AmtAcctDr) over year_to_date
+		, sum(t.AmtAcctCr) over year_to_date
+		, sum(t.Qty) over year_to_date
+		, now(), now()
+	from (
+		select
+			fa.AD_Client_ID, fa.AD_Org_ID, fa.C_AcctSchema_ID, fa.Account_ID, fa.PostingType
+			, fa.C_Period_ID, p.C_Year_ID, p.StartDate as DateAcct
+			, sum(fa.AmtAcctDr) as AmtAcctDr, sum(fa.AmtAcctCr) as AmtAcctCr, sum(fa.Qty) as Qty
+		from Fact_Acct fa
+		inner join C_Period p on (p.C_Period_ID=fa.C_Period_ID)
+		group by fa.AD_Client_ID, fa.AD_Org_ID, fa.C_AcctSchema_ID, fa.Account_ID, fa.PostingType, fa.C_Period_ID, p.C_Year_ID, p.StartDate
+	) t
+	window year_to_date as (partition by t.AD_Client_ID, t.AD_Org_ID, t.C_AcctSchema_ID, t.Account_ID, t.PostingType, t.C_Year_ID order by t.DateAcct)
+	;
+	GET DIAGNOSTICS v_CountInserted = ROW_COUNT;
+
+	return ''||v_CountInserted||' rows inserted into Fact_Acct_Period_Balance';
+end;
+$BODY$
+LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION de_metas_acct.Fact_Acct_Period_Balance_RebuildAll() IS 'Rebuilds Fact_Acct_Period_Balance from Fact_Acct.';
+
+drop function if exists de_metas_acct.Fact_Acct_Period_Balance_Check(p_AD_Client_ID numeric);
+create or replace function de_metas_acct.Fact_Acct_Period_Balance_Check(p_AD_Client_ID numeric)
+returns table
+(
+	AD_Org_ID numeric
+	, C_AcctSchema_ID numeric
+	, Account_ID numeric
+	, PostingType char(1)
+	, C_Period_ID numeric
+	, AmtAcctDr_Expected numeric, AmtAcctDr numeric
+	, AmtAcctCr_Expected numeric, AmtAcctCr numeric
+	, Qty_Expected numeric, Qty numeric
+	, AmtAcctDr_YTD_Expected numeric, AmtAcctDr_YTD numeric
+	, AmtAcctCr_YTD_Expected numeric, AmtAcctCr_YTD numeric
+)
+AS
+$BODY$
+	with expected as (
+		select
+			t.*
+			, sum(t.AmtAcctDr) over year_to_date as AmtAcctDr_YTD
+			, sum(t.AmtAcctCr) over year_to_date as AmtAcctCr_YTD
+		from (
+			select
+				fa.AD_Client_ID, fa.AD_Org_ID, fa.C_AcctSchema_ID, fa.Account_ID, fa.PostingType
+				, fa.C_Period_ID, p.C_Year_ID, p.StartDate as DateAcct
+				, sum(fa.AmtAcctDr) as AmtAcctDr, sum(fa.AmtAcctCr) as AmtAcctCr, sum(fa.Qty) as Qty
+			from Fact_Acct fa
+			inner join C_Period p on (p.C_Period_ID=fa.C_Period_ID)
+			where fa.AD_Client_ID=$1
+			group by fa.AD_Client_ID, fa.AD_Org_ID, fa.C_AcctSchema_ID, fa.Account_ID, fa.PostingType, fa.C_Period_ID, p.C_Year_ID, p.StartDate
+		) t
+		window year_to_date as (partition by t.AD_Client_ID, t.AD_Org_ID, t.C_AcctSchema_ID, t.Account_ID, t.PostingType, t.C_Year_ID order by t.DateAcct)
+	)
+	, actual as (
+		select pb.*
+		from Fact_Acct_Period_Balance pb
+		where pb.AD_Client_ID=$1
+	)
+	select
+		coalesce(e.AD_Org_ID, a.AD_Org_ID)
+		, coalesce(e.C_AcctSchema_ID, a.C_AcctSchema_ID)
+		, coalesce(e.Account_ID, a.Account_ID)
+		, coalesce(e.PostingType, a.PostingType)
+		, coalesce(e.C_Period_ID, a.C_Period_ID)
+		, coalesce(e.AmtAcctDr, 0), coalesce(a.AmtAcctDr, 0)
+		, coalesce(e.AmtAcctCr, 0), coalesce(a.AmtAcctCr, 0)
+		, coalesce(e.Qty, 0), coalesce(a.Qty, 0)
+		, coalesce(e.AmtAcctDr_YTD, 0), coalesce(a.AmtAcctDr_YTD, 0)
+		, coalesce(e.AmtAcctCr_YTD, 0), coalesce(a.AmtAcctCr_YTD, 0)
+	from expected e
+	full outer join actual a on (
+		a.AD_Org_ID=e.AD_Org_ID and a.C_AcctSchema_ID=e.C_AcctSchema_ID and a.Account_ID=e.Account_ID
+		and a.PostingType=e.PostingType and a.C_Period_ID=e.C_Period_ID
+	)
+	where (
+		coalesce(e.AmtAcctDr, 0) <> coalesce(a.AmtAcctDr, 0)
+		or coalesce(e.AmtAcctCr, 0) <> coalesce(a.AmtAcctCr, 0)
+		or coalesce(e.Qty, 0) <> coalesce(a.Qty, 0)
+		or coalesce(e.AmtAcctDr_YTD, 0) <> coalesce(a.AmtAcctDr_YTD, 0)
+		or coalesce(e.AmtAcctCr_YTD, 0) <> coalesce(a.AmtAcctCr_YTD, 0)
+	)
+	-- skip the dimensions which still have pending logs; they are not inconsistent, just not yet processed
+	and not exists (
+		select 1 from Fact_Acct_Log log
+		where log.AD_Client_ID=$1
+			and log.AD_Org_ID=coalesce(e.AD_Org_ID, a.AD_Org_ID)
+			and log.C_AcctSchema_ID=coalesce(e.C_AcctSchema_ID, a.C_AcctSchema_ID)
+			and log.C_ElementValue_ID=coalesce(e.Account_ID, a.Account_ID)
+			and log.PostingType=coalesce(e.PostingType, a.PostingType)
+	)
+	order by 1, 2, 3, 4, 5
+	;
+$BODY$
+LANGUAGE sql STABLE;
+
+COMMENT ON FUNCTION de_metas_acct.Fact_Acct_Period_Balance_Check(numeric) IS 'Compares Fact_Acct_Period_Balance with Fact_Acct and returns the inconsistent rows. Dimensions with pending Fact_Acct_Log records are skipped.';
+
+
+/*
+select * from de_metas_acct.Fact_Acct_Period_Balance_Check(1000000);
+*/
+
@@ -0,0 +1,3 @@
+-- 18.10.2017
+-- initial build of Fact_Acct_Period_Balance
+select de_metas_acct.Fact_Acct_Period_Balance_RebuildAll();
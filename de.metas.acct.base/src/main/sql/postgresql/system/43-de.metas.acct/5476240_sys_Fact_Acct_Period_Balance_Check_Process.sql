@@ -0,0 +1,14 @@
+-- 2017-10-24T10:12:31.244
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process (AccessLevel,AD_Client_ID,AD_Org_ID,AD_Process_ID,AllowProcessReRun,Classname,CopyFromProcess,Created,CreatedBy,Description,EntityType,IsActive,IsApplySecuritySettings,IsBetaFunctionality,IsDirectPrint,IsOneInstanceOnly,IsReport,IsServerProcess,IsUseBPartnerLanguage,LockWaitTimeout,Name,RefreshAllAfterExecution,ShowHelp,Type,Updated,UpdatedBy,Value) VALUES ('3',0,0,540879,'Y','de.metas.acct.process.Fact_Acct_Period_Balance_Check','N',TO_TIMESTAMP('2017-10-24 10:12:31','YYYY-MM-DD HH24:MI:SS'),100,'Compares Fact_Acct_Period_Balance with Fact_Acct and logs the inconsistent balances','de.metas.acct','Y','N','N','N','Y','N','N','Y',0,'Check period balances','N','Y','Java',TO_TIMESTAMP('2017-10-24 10:12:31','YYYY-MM-DD HH24:MI:SS'),100,'Fact_Acct_Period_Balance_Check')
+;
+
+-- 2017-10-24T10:12:31.251
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process_Trl (AD_Language,AD_Process_ID, Description,Help,Name, IsTranslated,AD_Client_ID,AD_Org_ID,Created,Createdby,Updated,UpdatedBy) SELECT l.AD_Language,t.AD_Process_ID, t.Description,t.Help,t.Name, 'N',t.AD_Client_ID,t.AD_Org_ID,t.Created,t.Createdby,t.Updated,t.UpdatedBy FROM AD_Language l, AD_Process t WHERE l.IsActive='Y' AND l.IsSystemLanguage='Y' AND l.IsBaseLanguage='N' AND t.AD_Process_ID=540879 AND NOT EXISTS (SELECT 1 FROM AD_Process_Trl tt WHERE tt.AD_Language=l.AD_Language AND tt.AD_Process_ID=t.AD_Process_ID)
+;
+
+-- 2017-10-24T10:13:05.618
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+UPDATE AD_Process_Trl SET IsTranslated='Y',Name='Check period balances',Description='Compares Fact_Acct_Period_Balance with Fact_Acct and logs the inconsistent balances',Updated=TO_TIMESTAMP('2017-10-24 10:13:05','YYYY-MM-DD HH24:MI:SS'),UpdatedBy=100 WHERE AD_Process_ID=540879 AND AD_Language='en_US'
+;
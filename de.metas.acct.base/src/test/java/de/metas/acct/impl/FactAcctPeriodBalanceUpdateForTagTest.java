@@ -0,0 +1,179 @@
+package de.metas.acct.impl;
+
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.util.Services;
+import org.compiere.Adempiere;
+import org.compiere.util.DB;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the incremental update of <code>Fact_Acct_Period_Balance</code> which is done by the database function <code>de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag</code>.
+ * <p>
+ * Because the update is implemented in the database, this test needs a database and is skipped if none is configured (see {@link #init()}).
+ * Everything is done in a transaction which is rolled back at the end. The balances are created for a not existing account schema and account, so existing data is not affected.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class FactAcctPeriodBalanceUpdateForTagTest
+{
+	private static final int C_AcctSchema_ID = -999;
+	private static final int Account_ID = -999;
+	private static final String PostingType = "A";
+
+	private String trxName;
+	private int adClientId;
+	private int periodId1;
+	private int periodId2;
+	private int periodId3;
+
+	@BeforeClass
+	public static void init()
+	{
+		final String propertyFile = System.getProperty("PropertyFile");
+		Assume.assumeTrue("No database configured. Set -DPropertyFile=<Adempiere.properties file> to run this test", propertyFile != null && new File(propertyFile).exists());
+
+		Adempiere.startup(true);
+	}
+
+	@Before
+	public void beforeTest()
+	{
+		trxName = Services.get(ITrxManager.class).createTrxName("FactAcctPeriodBalanceUpdateForTagTest", true);
+
+		periodId1 = retrievePeriodId(0);
+		periodId2 = retrievePeriodId(1);
+		periodId3 = retrievePeriodId(2);
+		Assume.assumeTrue("No year with at least 3 periods found", periodId1 > 0 && periodId2 > 0 && periodId3 > 0);
+
+		adClientId = DB.getSQLValueEx(trxName, "SELECT AD_Client_ID FROM C_Period WHERE C_Period_ID=?", periodId1);
+	}
+
+	/** @return the C_Period_ID of the n-th period of the first year which has at least 3 periods */
+	private int retrievePeriodId(final int index)
+	{
+		return DB.getSQLValueEx(trxName, "SELECT C_Period_ID FROM C_Period p"
+				+ " WHERE p.C_Year_ID=(SELECT C_Year_ID FROM C_Period GROUP BY C_Year_ID HAVING COUNT(1) >= 3 ORDER BY C_Year_ID LIMIT 1)"
+				+ " ORDER BY p.StartDate OFFSET ? LIMIT 1",
+				index);
+	}
+
+	@After
+	public void afterTest()
+	{
+		final ITrx trx = trxName == null ? null : Services.get(ITrxManager.class).get(trxName, false);
+		if (trx != null)
+		{
+			trx.rollback();
+			trx.close();
+		}
+	}
+
+	@Test
+	public void test_DeltaInEarlierPeriod_UpdatesYTDOfLaterPeriods()
+	{
+		// Period 3 gets 100
+		addLog("T1", "I", periodId3, 100, 0);
+		updateForTag("T1");
+		assertBalance(periodId3, 100, 0, 100, 0);
+
+		// Period 1 gets 10, which is also added to the YTD of period 3
+		addLog("T2", "I", periodId1, 10, 0);
+		updateForTag("T2");
+		assertBalance(periodId1, 10, 0, 10, 0);
+		assertBalance(periodId3, 100, 0, 110, 0);
+
+		// Period 1's record is deleted and period 2 gets 5 on the credit side:
+		// period 2's row is created with the YTD of period 1 and all deltas are propagated to the later periods
+		addLog("T3", "D", periodId1, 10, 0);
+		addLog("T3", "I", periodId2, 0, 5);
+		updateForTag("T3");
+		assertBalance(periodId1, 0, 0, 0, 0);
+		assertBalance(periodId2, 0, 5, 0, 5);
+		assertBalance(periodId3, 100, 0, 100, 5);
+	}
+
+	@Test
+	public void test_DeltaInLaterPeriod_DoesNotUpdateEarlierPeriods()
+	{
+		addLog("T1", "I", periodId1, 10, 0);
+		updateForTag("T1");
+
+		addLog("T2", "I", periodId3, 100, 0);
+		updateForTag("T2");
+
+		assertBalance(periodId1, 10, 0, 10, 0);
+		assertBalance(periodId3, 100, 0, 110, 0);
+	}
+
+	private void addLog(final String processingTag, final String action, final int periodId, final int amtAcctDr, final int amtAcctCr)
+	{
+		DB.executeUpdateEx("INSERT INTO Fact_Acct_Log"
+				+ " (Fact_Acct_ID, Action, ProcessingTag, C_ElementValue_ID, C_AcctSchema_ID, C_Period_ID, DateAcct, PostingType, AmtAcctDr, AmtAcctCr, Qty"
+				+ ", AD_Client_ID, AD_Org_ID, CreatedBy, UpdatedBy)"
+				+ " SELECT -1, ?, ?, ?, ?, p.C_Period_ID, p.StartDate, ?, ?, ?, 0"
+				+ ", ?, 0, 0, 0"
+				+ " FROM C_Period p WHERE p.C_Period_ID=?",
+				new Object[] { action, processingTag, Account_ID, C_AcctSchema_ID, PostingType, amtAcctDr, amtAcctCr, adClientId, periodId },
+				trxName);
+	}
+
+	private void updateForTag(final String processingTag)
+	{
+		DB.getSQLValueStringEx(trxName, "SELECT de_metas_acct.Fact_Acct_Period_Balance_UpdateForTag(?)", processingTag);
+		DB.executeUpdateEx("DELETE FROM Fact_Acct_Log WHERE ProcessingTag=?", new Object[] { processingTag }, trxName);
+	}
+
+	private void assertBalance(final int periodId, final int amtAcctDr, final int amtAcctCr, final int amtAcctDrYTD, final int amtAcctCrYTD)
+	{
+		final String sqlFrom = " FROM Fact_Acct_Period_Balance"
+				+ " WHERE AD_Client_ID=? AND AD_Org_ID=0 AND C_AcctSchema_ID=? AND Account_ID=? AND PostingType=? AND C_Period_ID=?";
+		final List<Object> sqlParams = ImmutableList.of(adClientId, C_AcctSchema_ID, Account_ID, PostingType, periodId);
+
+		final String info = "C_Period_ID=" + periodId;
+		assertEquals(info + ": AmtAcctDr", amtAcctDr, DB.getSQLValueBDEx(trxName, "SELECT AmtAcctDr" + sqlFrom, sqlParams));
+		assertEquals(info + ": AmtAcctCr", amtAcctCr, DB.getSQLValueBDEx(trxName, "SELECT AmtAcctCr" + sqlFrom, sqlParams));
+		assertEquals(info + ": AmtAcctDr_YTD", amtAcctDrYTD, DB.getSQLValueBDEx(trxName, "SELECT AmtAcctDr_YTD" + sqlFrom, sqlParams));
+		assertEquals(info + ": AmtAcctCr_YTD", amtAcctCrYTD, DB.getSQLValueBDEx(trxName, "SELECT AmtAcctCr_YTD" + sqlFrom, sqlParams));
+	}
+
+	private static void assertEquals(final String message, final int expected, final BigDecimal actual)
+	{
+		Assert.assertNotNull(message + " (no record)", actual);
+		Assert.assertEquals(message, 0, BigDecimal.valueOf(expected).compareTo(actual));
+	}
+}
@@ -0,0 +1,340 @@
+package de.metas.acct.posting;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.lang.reflect.Constructor;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.adempiere.acct.api.IDocMetaInfo;
+import org.compiere.acct.Doc;
+import org.compiere.model.MAcctSchema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.acct.posting.DocumentsPoster.DocumentToPost;
+import de.metas.acct.posting.DocumentsPoster.PostingOutcome;
+import de.metas.acct.posting.DocumentsPostingEngine.TableResult;
+import lombok.Value;
+
+public class DocumentsPostingEngineTest
+{
+	private static IDocMetaInfo docMetaInfo(final String tableName)
+	{
+		return docMetaInfo(tableName, 0);
+	}
+
+	private static IDocMetaInfo docMetaInfo(final String tableName, final int adTableId)
+	{
+		return new IDocMetaInfo()
+		{
+			@Override
+			public String getTableName()
+			{
+				return tableName;
+			}
+
+			@Override
+			public int getAD_Table_ID()
+			{
+				return adTableId;
+			}
+
+			@Override
+			public Class<? extends Doc> getDocClass()
+			{
+				return null;
+			}
+
+			@Override
+			public Constructor<? extends Doc> getDocConstructor()
+			{
+				return null;
+			}
+		};
+	}
+
+	private static List<String> toTableNames(final List<IDocMetaInfo> docMetaInfos)
+	{
+		return docMetaInfos.stream().map(IDocMetaInfo::getTableName).collect(Collectors.toList());
+	}
+
+	@Test
+	public void test_groupByPhase_ReferencingDocumentsArePostedLast()
+	{
+		final List<IDocMetaInfo> docMetaInfos = Arrays.asList(
+				docMetaInfo("C_AllocationHdr"),
+				docMetaInfo("C_Invoice"),
+				docMetaInfo("M_MatchInv"),
+				docMetaInfo("C_Payment"),
+				docMetaInfo("M_InOut"));
+
+		final List<List<IDocMetaInfo>> phases = DocumentsPostingEngine.groupByPhase(docMetaInfos);
+
+		Assert.assertEquals(2, phases.size());
+		Assert.assertEquals(Arrays.asList("C_Invoice", "C_Payment", "M_InOut"), toTableNames(phases.get(0)));
+		Assert.assertEquals(Arrays.asList("C_AllocationHdr", "M_MatchInv"), toTableNames(phases.get(1)));
+	}
+
+	@Test
+	public void test_isPostSequentially()
+	{
+		Assert.assertTrue(DocumentsPostingEngine.isPostSequentially(docMetaInfo("M_InOut")));
+		Assert.assertTrue(DocumentsPostingEngine.isPostSequentially(docMetaInfo("M_MatchInv")));
+		Assert.assertFalse(DocumentsPostingEngine.isPostSequentially(docMetaInfo("C_Invoice")));
+	}
+
+	@Test
+	public void test_buildSelectNotPostedSql()
+	{
+		final String sql = SqlDocumentsPoster.buildSelectNotPostedSql(docMetaInfo("M_InOut", 319));
+
+		Assert.assertEquals("SELECT * FROM M_InOut WHERE AD_Client_ID=? AND Processed='Y' AND Posted='N' AND IsActive='Y' ORDER BY Created, M_InOut_ID", sql);
+	}
+
+	@Test
+	public void test_post_SequentialTablesArePostedByOneTaskOrderedByCreated()
+	{
+		final IDocMetaInfo inout = docMetaInfo("M_InOut", 1);
+		final IDocMetaInfo inventory = docMetaInfo("M_Inventory", 2);
+		final IDocMetaInfo movement = docMetaInfo("M_Movement", 3);
+		final IDocMetaInfo production = docMetaInfo("M_Production", 4);
+		final IDocMetaInfo costCollector = docMetaInfo("PP_Cost_Collector", 5);
+		final IDocMetaInfo invoice = docMetaInfo("C_Invoice", 6);
+
+		final FakeDocumentsPoster documentsPoster = new FakeDocumentsPoster();
+		documentsPoster.addDocument(inout, 10, 3);
+		documentsPoster.addDocument(inventory, 20, 1);
+		documentsPoster.addDocument(movement, 30, 4);
+		documentsPoster.addDocument(production, 40, 2);
+		documentsPoster.addDocument(costCollector, 50, 0);
+		documentsPoster.addDocument(inout, 11, 5);
+		for (int i = 1; i <= 20; i++)
+		{
+			documentsPoster.addDocument(invoice, 100 + i, i);
+		}
+
+		final List<TableResult> results = newEngine(documentsPoster, inout, inventory, movement, production, costCollector, invoice).post();
+
+		// all order sensitive tables were retrieved together
+		Assert.assertEquals(Arrays.asList("M_InOut", "M_Inventory", "M_Movement", "M_Production", "PP_Cost_Collector"), documentsPoster.getStreamedTableNames().get(0));
+
+		// ... and were posted by one thread, in the order they were created
+		final List<PostedDocument> sequentiallyPosted = documentsPoster.getPosted()
+				.stream()
+				.filter(posted -> !"C_Invoice".equals(posted.getTableName()))
+				.collect(Collectors.toList());
+		Assert.assertEquals(Arrays.asList(50, 20, 40, 10, 30, 11), sequentiallyPosted.stream().map(PostedDocument::getRecordId).collect(Collectors.toList()));
+		Assert.assertEquals(1, sequentiallyPosted.stream().map(PostedDocument::getThreadName).distinct().count());
+
+		Assert.assertEquals(20, documentsPoster.getPosted().stream().filter(posted -> "C_Invoice".equals(posted.getTableName())).count());
+		Assert.assertEquals(6, results.size());
+	}
+
+	@Test
+	public void test_post_ReferencingDocumentsArePostedAfterAllOthers()
+	{
+		final IDocMetaInfo invoice = docMetaInfo("C_Invoice", 1);
+		final IDocMetaInfo payment = docMetaInfo("C_Payment", 2);
+		final IDocMetaInfo inout = docMetaInfo("M_InOut", 3);
+		final IDocMetaInfo matchInv = docMetaInfo("M_MatchInv", 4);
+		final IDocMetaInfo allocation = docMetaInfo("C_AllocationHdr", 5);
+
+		final FakeDocumentsPoster documentsPoster = new FakeDocumentsPoster();
+		for (int i = 1; i <= 10; i++)
+		{
+			// the referencing documents are created before the ones they are referencing, to make sure the phase is what matters
+			documentsPoster.addDocument(matchInv, 400 + i, i);
+			documentsPoster.addDocument(allocation, 500 + i, i);
+			documentsPoster.addDocument(invoice, 100 + i, 100 + i);
+			documentsPoster.addDocument(payment, 200 + i, 100 + i);
+			documentsPoster.addDocument(inout, 300 + i, 100 + i);
+		}
+
+		newEngine(documentsPoster, matchInv, allocation, invoice, payment, inout).post();
+
+		final List<String> postedTableNames = documentsPoster.getPosted()
+				.stream()
+				.map(PostedDocument::getTableName)
+				.collect(Collectors.toList());
+		Assert.assertEquals(50, postedTableNames.size());
+
+		final Set<String> firstPhaseTableNames = ImmutableSet.copyOf(postedTableNames.subList(0, 30));
+		final Set<String> secondPhaseTableNames = ImmutableSet.copyOf(postedTableNames.subList(30, 50));
+		Assert.assertEquals(ImmutableSet.of("C_Invoice", "C_Payment", "M_InOut"), firstPhaseTableNames);
+		Assert.assertEquals(ImmutableSet.of("M_MatchInv", "C_AllocationHdr"), secondPhaseTableNames);
+	}
+
+	@Test
+	public void test_post_LockedDocumentsAreNotCountedAsErrors()
+	{
+		final IDocMetaInfo invoice = docMetaInfo("C_Invoice", 1);
+		final IDocMetaInfo inout = docMetaInfo("M_InOut", 2);
+
+		final FakeDocumentsPoster documentsPoster = new FakeDocumentsPoster();
+		documentsPoster.addDocument(invoice, 1, 1);
+		documentsPoster.addDocument(invoice, 2, 2, PostingOutcome.Locked);
+		documentsPoster.addDocument(invoice, 3, 3, PostingOutcome.Error);
+		documentsPoster.addDocument(inout, 4, 1, PostingOutcome.Locked);
+
+		final Map<String, TableResult> results = newEngine(documentsPoster, invoice, inout).post()
+				.stream()
+				.collect(Collectors.toMap(TableResult::getTableName, Function.identity()));
+
+		final TableResult invoiceResult = results.get("C_Invoice");
+		Assert.assertEquals(2, invoiceResult.getCount());
+		Assert.assertEquals(1, invoiceResult.getCountErrors());
+		Assert.assertEquals(1, invoiceResult.getCountSkipped());
+
+		final TableResult inoutResult = results.get("M_InOut");
+		Assert.assertEquals(0, inoutResult.getCount());
+		Assert.assertEquals(0, inoutResult.getCountErrors());
+		Assert.assertEquals(1, inoutResult.getCountSkipped());
+	}
+
+	@Test
+	public void test_post_OneThread_PostsInCurrentThread()
+	{
+		final IDocMetaInfo invoice = docMetaInfo("C_Invoice", 1);
+		final IDocMetaInfo inout = docMetaInfo("M_InOut", 2);
+
+		final FakeDocumentsPoster documentsPoster = new FakeDocumentsPoster();
+		for (int i = 1; i <= 10; i++)
+		{
+			documentsPoster.addDocument(invoice, 100 + i, i);
+			documentsPoster.addDocument(inout, 200 + i, i);
+		}
+
+		newEngine(documentsPoster, 1, invoice, inout).post();
+
+		Assert.assertEquals(20, documentsPoster.getPosted().size());
+		final Set<String> threadNames = documentsPoster.getPosted()
+				.stream()
+				.map(PostedDocument::getThreadName)
+				.collect(Collectors.toSet());
+		Assert.assertEquals(ImmutableSet.of(Thread.currentThread().getName()), threadNames);
+	}
+
+	private static DocumentsPostingEngine newEngine(final DocumentsPoster documentsPoster, final IDocMetaInfo... docMetaInfos)
+	{
+		return newEngine(documentsPoster, 4, docMetaInfos);
+	}
+
+	private static DocumentsPostingEngine newEngine(final DocumentsPoster documentsPoster, final int threadsCount, final IDocMetaInfo... docMetaInfos)
+	{
+		return DocumentsPostingEngine.builder()
+				.ctx(new Properties())
+				.adClientId(1)
+				.acctSchemas(new MAcctSchema[] {})
+				.docMetaInfos(Arrays.asList(docMetaInfos))
+				.threadsCount(threadsCount)
+				.documentsPoster(documentsPoster)
+				.build();
+	}
+
+	@Value
+	private static final class PostedDocument
+	{
+		private final String tableName;
+		private final int recordId;
+		private final String threadName;
+	}
+
+	/** In memory {@link DocumentsPoster} which records the posted documents in the order they were posted */
+	private static final class FakeDocumentsPoster implements DocumentsPoster
+	{
+		private final List<DocumentToPost> documents = new ArrayList<>();
+		private final Map<DocumentToPost, PostingOutcome> outcomes = new HashMap<>();
+		private final List<List<String>> streamedTableNames = Collections.synchronizedList(new ArrayList<>());
+		private final List<PostedDocument> posted = Collections.synchronizedList(new ArrayList<>());
+
+		public void addDocument(final IDocMetaInfo docMetaInfo, final int recordId, final long created)
+		{
+			addDocument(docMetaInfo, recordId, created, PostingOutcome.Posted);
+		}
+
+		public void addDocument(final IDocMetaInfo docMetaInfo, final int recordId, final long created, final PostingOutcome outcome)
+		{
+			final DocumentToPost document = new DocumentToPost(docMetaInfo, recordId, new Timestamp(created), null);
+			documents.add(document);
+			outcomes.put(document, outcome);
+		}
+
+		public List<List<String>> getStreamedTableNames()
+		{
+			return streamedTableNames;
+		}
+
+		public List<PostedDocument> getPosted()
+		{
+			return posted;
+		}
+
+		@Override
+		public void streamNotPosted(final int adClientId, final List<IDocMetaInfo> docMetaInfos, final Predicate<DocumentToPost> consumer)
+		{
+			streamedTableNames.add(docMetaInfos.stream().map(IDocMetaInfo::getTableName).collect(Collectors.toList()));
+
+			final Set<String> tableNames = docMetaInfos.stream().map(IDocMetaInfo::getTableName).collect(Collectors.toSet());
+			final List<DocumentToPost> notPosted = documents.stream()
+					.filter(document -> tableNames.contains(document.getTableName()))
+					.sorted(Comparator.comparing(DocumentToPost::getCreated))
+					.collect(Collectors.toList());
+			for (final DocumentToPost document : notPosted)
+			{
+				if (!consumer.test(document))
+				{
+					break;
+				}
+			}
+		}
+
+		@Override
+		public PostingOutcome post(final DocumentToPost document)
+		{
+			posted.add(new PostedDocument(document.getTableName(), document.getRecordId(), Thread.currentThread().getName()));
+			return outcomes.get(document);
+		}
+	}
+
+	@Test
+	public void test_computeLagMillis()
+	{
+		Assert.assertEquals(0, DocumentPostingStatistics.computeLagMillis(null, 1000));
+		Assert.assertEquals(600, DocumentPostingStatistics.computeLagMillis(new Timestamp(400), 1000));
+		Assert.assertEquals(0, DocumentPostingStatistics.computeLagMillis(new Timestamp(2000), 1000));
+	}
+}
@@ -0,0 +1,196 @@
+package org.adempiere.ad.dao.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.adempiere.exceptions.DBException;
+import org.compiere.util.DB;
+import org.slf4j.Logger;
+
+import de.metas.logging.LogManager;
+
+/**
+ * Iterates the models of an open {@link ResultSet}, creating them one by one. Closes the {@link ResultSet} and the statement when there are no more models.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ * @see TypedSqlQuery#streamUsingCursor(Class)
+ */
+/* package */ final class CursorModelIterator<T> implements Iterator<T>
+{
+	/**
+	 * Executes the given statement and returns it's {@link ResultSet}.
+	 */
+	@FunctionalInterface
+	/* package */ interface ResultSetFactory
+	{
+		ResultSet createResultSet(PreparedStatement pstmt) throws SQLException;
+	}
+
+	/**
+	 * Creates the model of the next row.
+	 */
+	@FunctionalInterface
+	/* package */ interface ModelLoader<T>
+	{
+		/** @return model or <code>null</code> if there are no more rows */
+		T retrieveNextModel(ResultSet rs) throws SQLException;
+	}
+
+	private static final Logger logger = LogManager.getLogger(CursorModelIterator.class);
+
+	/**
+	 * Executes the given statement and streams the resulting models.
+	 * <p>
+	 * The database driver is fetching the rows in chunks of <code>fetchSize</code> only if the statement is forward-only and it's connection is not in auto-commit mode (i.e. we are in a transaction).
+	 * Else the driver is loading the whole result in memory, so in that case a warning is logged, but the models are still created lazily.
+	 * <p>
+	 * The statement is closed when the stream is consumed until the end or when the stream is closed.
+	 *
+	 * @param pstmt forward-only statement; it will be closed by this method if it fails
+	 * @param sqlParams used only for error reporting
+	 */
+	/* package */ static <T> Stream<T> stream(
+			final PreparedStatement pstmt,
+			final int fetchSize,
+			final ResultSetFactory resultSetFactory,
+			final ModelLoader<T> modelLoader,
+			final String sql,
+			final List<Object> sqlParams)
+	{
+		ResultSet rs = null;
+		CursorModelIterator<T> iterator = null;
+		try
+		{
+			if (pstmt.getConnection().getAutoCommit())
+			{
+				logger.warn("Connection is in auto-commit mode, so no database cursor will be used and the whole result will be loaded in memory. Consider running in a transaction. SQL: {}", sql);
+			}
+
+			pstmt.setFetchSize(fetchSize);
+			rs = resultSetFactory.createResultSet(pstmt);
+			iterator = new CursorModelIterator<>(pstmt, rs, modelLoader, sql, sqlParams);
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql, sqlParams);
+		}
+		finally
+		{
+			// If there was an error, then close the statement and resultset
+			if (iterator == null)
+			{
+				DB.close(rs, pstmt);
+			}
+		}
+
+		final CursorModelIterator<T> cursorIterator = iterator;
+		final boolean parallel = false;
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursorIterator, Spliterator.ORDERED | Spliterator.NONNULL), parallel)
+				.onClose(cursorIterator::close);
+	}
+
+	private PreparedStatement pstmt;
+	private ResultSet rs;
+	private final ModelLoader<T> modelLoader;
+	private final String sql;
+	private final List<Object> sqlParams;
+
+	private T nextModel = null;
+	private boolean nextModelFetched = false;
+
+	private CursorModelIterator(final PreparedStatement pstmt, final ResultSet rs, final ModelLoader<T> modelLoader, final String sql, final List<Object> sqlParams)
+	{
+		super();
+		this.pstmt = pstmt;
+		this.rs = rs;
+		this.modelLoader = modelLoader;
+		this.sql = sql;
+		this.sqlParams = sqlParams;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		if (!nextModelFetched)
+		{
+			nextModel = fetchNextModel();
+			nextModelFetched = true;
+		}
+		return nextModel != null;
+	}
+
+	@Override
+	public T next()
+	{
+		if (!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+
+		final T model = nextModel;
+		nextModel = null; // don't hold a reference to it
+		nextModelFetched = false;
+		return model;
+	}
+
+	private T fetchNextModel()
+	{
+		if (rs == null)
+		{
+			return null; // already closed
+		}
+
+		try
+		{
+			final T model = modelLoader.retrieveNextModel(rs);
+			if (model == null)
+			{
+				close();
+			}
+			return model;
+		}
+		catch (final SQLException e)
+		{
+			close();
+			throw new DBException(e, sql, sqlParams);
+		}
+	}
+
+	private void close()
+	{
+		DB.close(rs, pstmt);
+		rs = null;
+		pstmt = null;
+	}
+}
@@ -30,6 +30,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
@@ -173,7 +174,7 @@ public class TypedSqlQuery<T> extends AbstractTypedQuery<T>
 	 *
 	 * @return SQL to be used in FROM clause; it returns the custom SQL FROM set by {@link #setSqlFrom(String)} or {@link #getTableName()}.
 	 */
-	private final String getSqlFrom()
+	public final String getSqlFrom()
 	{
 		if (sqlFrom == null || sqlFrom.isEmpty())
 		{
@@ -972,6 +973,18 @@ public class TypedSqlQuery<T> extends AbstractTypedQuery<T>
 		return idList;
 	}
 
+	@Override
+	public <ET extends T> Stream<ET> streamUsingCursor(final Class<ET> clazz) throws DBException
+	{
+		final Integer fetchSizeOption = getOption(OPTION_CursorFetchSize);
+		final int fetchSize = fetchSizeOption != null && fetchSizeOption > 0 ? fetchSizeOption : DEFAULT_OPTION_CursorFetchSize;
+
+		final String sql = buildSQL(null, true);
+		final PreparedStatement pstmt = DB.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, trxName);
+		final Stream<ET> stream = CursorModelIterator.stream(pstmt, fetchSize, this::createResultSet, rs -> retrieveNextModel(rs, clazz), sql, getParametersEffective());
+		return limit > 0 ? stream.limit(limit) : stream;
+	}
+
 	/**
 	 * Return a simple wrapper over a JDBC {@link ResultSet}. It is the caller responsibility to call the close method to release the underlying database resources.
 	 *
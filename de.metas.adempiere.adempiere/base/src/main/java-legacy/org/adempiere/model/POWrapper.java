@@ -38,6 +38,7 @@ import org.compiere.model.POInfo;
 import org.compiere.util.Env;
 import org.slf4j.Logger;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 
 import de.metas.i18n.IModelTranslationMap;
@@ -144,9 +145,36 @@ public class POWrapper implements InvocationHandler, IInterfaceWrapper
 			}
 		}
 
+		final POWrapper poWrapper = new POWrapper(cl, po, useOldValuesEffective, trlAdLanguageEffective);
+		return wrap(cl, poWrapper, POWrapperAccessorFactory.instance);
+	}
+
+	/**
+	 * Wraps given PO using the generated accessor class if the accessor factory provides one, else using a {@link Proxy}.
+	 *
+	 * @param accessorFactory may be <code>null</code>, in which case a {@link Proxy} is always created
+	 */
+	@VisibleForTesting
+	/* package */ static <T> T wrap(final Class<T> cl, final PO po, final POWrapperAccessorFactory accessorFactory)
+	{
+		final boolean useOldValues = false;
+		final String trlAdLanguage = null;
+		return wrap(cl, new POWrapper(cl, po, useOldValues, trlAdLanguage), accessorFactory);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T wrap(final Class<T> cl, final POWrapper poWrapper, final POWrapperAccessorFactory accessorFactory)
+	{
+		// Prefer the generated accessor class, which does not dispatch the getters/setters through reflection
+		final T accessor = accessorFactory == null ? null : accessorFactory.createAccessor(cl, poWrapper);
+		if (accessor != null)
+		{
+			return accessor;
+		}
+
 		return (T)Proxy.newProxyInstance(cl.getClassLoader(),
 				new Class<?>[] { cl },
-				new POWrapper(cl, po, useOldValuesEffective, trlAdLanguageEffective));
+				poWrapper);
 	}
 
 	/**
@@ -308,6 +336,11 @@ public class POWrapper implements InvocationHandler, IInterfaceWrapper
 				return wrapper.getPO();
 			}
 		}
+		else if (model instanceof POWrapperAccessor)
+		{
+			final POWrapper wrapper = ((POWrapperAccessor)model).getPOWrapper();
+			return (T)wrapper.getPO();
+		}
 
 		return null;
 	}
@@ -323,6 +356,10 @@ public class POWrapper implements InvocationHandler, IInterfaceWrapper
 				return wrapper;
 			}
 		}
+		else if (model instanceof POWrapperAccessor)
+		{
+			return ((POWrapperAccessor)model).getPOWrapper();
+		}
 
 		return null;
 	}
@@ -0,0 +1,132 @@
+package org.adempiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.lang.reflect.Method;
+
+import org.adempiere.exceptions.AdempiereException;
+
+/**
+ * Base class of the concrete model interface implementations which are generated by {@link POWrapperAccessorFactory}.
+ * <p>
+ * The generated classes are wrapping a {@link POWrapper}, same as the {@link java.lang.reflect.Proxy} based wrappers do,
+ * but the plain value getters and setters are implemented directly, using precomputed column indexes,
+ * instead of dispatching every call through {@link POWrapper#invoke(Object, Method, Object[])}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public abstract class POWrapperAccessor
+{
+	private final POWrapper wrapper;
+	private final POWrapperAccessorClassInfo classInfo;
+
+	protected POWrapperAccessor(final POWrapper wrapper, final POWrapperAccessorClassInfo classInfo)
+	{
+		super();
+		this.wrapper = wrapper;
+		this.classInfo = classInfo;
+	}
+
+	public final POWrapper getPOWrapper()
+	{
+		return wrapper;
+	}
+
+	/**
+	 * Implements a value getter (e.g. <code>getGrandTotal()</code>), same as <code>ValueGetterMethodInfo</code> does.
+	 *
+	 * @param slot method slot
+	 * @return value or the default value of method's return type
+	 */
+	protected final Object getValueBySlot(final int slot)
+	{
+		final POWrapperAccessorClassInfo.ColumnIndexes columnIndexes = classInfo.getColumnIndexes(wrapper.getPO());
+		final int columnIndex = columnIndexes.getColumnIndex(slot);
+
+		Object value = null;
+		if (columnIndex >= 0)
+		{
+			value = wrapper.getValue(columnIndexes.getColumnName(slot), columnIndex, classInfo.getReturnType(slot));
+		}
+
+		if (value != null)
+		{
+			return value;
+		}
+		return classInfo.getDefaultValue(slot);
+	}
+
+	/**
+	 * Implements a boolean getter (e.g. <code>isProcessed()</code>), same as <code>BooleanGetterMethodInfo</code> does.
+	 *
+	 * @param slot method slot
+	 * @return value
+	 */
+	protected final Object getBooleanValueBySlot(final int slot)
+	{
+		final POWrapperAccessorClassInfo.ColumnIndexes columnIndexes = classInfo.getColumnIndexes(wrapper.getPO());
+		final int columnIndex = columnIndexes.getColumnIndex(slot);
+		if (columnIndex < 0)
+		{
+			throw new IllegalArgumentException("Method " + classInfo.getMethod(slot) + " is not supported on model " + wrapper.getPO());
+		}
+
+		return wrapper.getValue(columnIndexes.getColumnName(slot), columnIndex, classInfo.getReturnType(slot));
+	}
+
+	/**
+	 * Implements a value setter (e.g. <code>setGrandTotal(BigDecimal)</code>), same as <code>ValueSetterMethodInfo</code> does.
+	 *
+	 * @param slot method slot
+	 * @param value
+	 */
+	protected final void setValueBySlot(final int slot, final Object value)
+	{
+		wrapper.setValue(classInfo.getColumnNameCandidates(slot)[0], value);
+	}
+
+	/**
+	 * Implements all the other methods by delegating them to {@link POWrapper}, same as the {@link java.lang.reflect.Proxy} based wrapper does.
+	 *
+	 * @param slot method slot
+	 * @param args method arguments
+	 * @return method's result
+	 */
+	protected final Object invokeBySlot(final int slot, final Object[] args)
+	{
+		final Method method = classInfo.getMethod(slot);
+		try
+		{
+			return wrapper.invoke(this, method, args);
+		}
+		catch (final RuntimeException | Error e)
+		{
+			throw e;
+		}
+		catch (final Throwable e)
+		{
+			throw AdempiereException.wrapIfNeeded(e);
+		}
+	}
+}
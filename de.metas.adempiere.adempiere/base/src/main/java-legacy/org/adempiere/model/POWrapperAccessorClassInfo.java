@@ -0,0 +1,191 @@
+package org.adempiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.Check;
+import org.compiere.model.PO;
+import org.compiere.model.POInfo;
+
+/**
+ * Meta data of a generated {@link POWrapperAccessor} class.
+ * <p>
+ * Each implemented interface method has a "slot". For each slot we keep the interface method, its return type, default value and the column names it maps to.
+ * The column indexes are computed once per {@link POInfo} and then reused by all instances.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class POWrapperAccessorClassInfo
+{
+	private final Class<?> interfaceClass;
+	private final Method[] methods;
+	private final String[][] columnNameCandidates;
+	private final Class<?>[] returnTypes;
+	private final Object[] defaultValues;
+
+	private Constructor<?> accessorConstructor;
+	private volatile ColumnIndexes _columnIndexes;
+
+	/* package */ POWrapperAccessorClassInfo(final Class<?> interfaceClass, final Method[] methods, final String[][] columnNameCandidates)
+	{
+		super();
+		Check.assume(methods.length == columnNameCandidates.length, "methods and columnNameCandidates shall have the same size");
+
+		this.interfaceClass = interfaceClass;
+		this.methods = methods;
+		this.columnNameCandidates = columnNameCandidates;
+
+		returnTypes = new Class<?>[methods.length];
+		defaultValues = new Object[methods.length];
+		for (int slot = 0; slot < methods.length; slot++)
+		{
+			final Class<?> returnType = methods[slot].getReturnType();
+			returnTypes[slot] = returnType;
+
+			// same default values as ValueGetterMethodInfo
+			if (returnType == int.class)
+			{
+				defaultValues[slot] = Integer.valueOf(0);
+			}
+			else if (returnType == BigDecimal.class)
+			{
+				defaultValues[slot] = BigDecimal.ZERO;
+			}
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "POWrapperAccessorClassInfo[" + interfaceClass + ", methods=" + methods.length + "]";
+	}
+
+	/* package */ void setAccessorClass(final Class<?> accessorClass) throws NoSuchMethodException
+	{
+		accessorConstructor = accessorClass.getConstructor(POWrapper.class, POWrapperAccessorClassInfo.class);
+	}
+
+	/* package */ Object newAccessor(final POWrapper wrapper)
+	{
+		try
+		{
+			return accessorConstructor.newInstance(wrapper, this);
+		}
+		catch (final Exception e)
+		{
+			throw new AdempiereException("Failed creating the accessor for " + interfaceClass, e);
+		}
+	}
+
+	public Method getMethod(final int slot)
+	{
+		return methods[slot];
+	}
+
+	public Class<?> getReturnType(final int slot)
+	{
+		return returnTypes[slot];
+	}
+
+	public Object getDefaultValue(final int slot)
+	{
+		return defaultValues[slot];
+	}
+
+	public String[] getColumnNameCandidates(final int slot)
+	{
+		return columnNameCandidates[slot];
+	}
+
+	/**
+	 * @return column indexes for given PO; computed only when the PO has another {@link POInfo} than the last one we've seen
+	 */
+	public ColumnIndexes getColumnIndexes(final PO po)
+	{
+		final POInfo poInfo = po.getPOInfo();
+		ColumnIndexes columnIndexes = _columnIndexes;
+		if (columnIndexes == null || columnIndexes.poInfo != poInfo)
+		{
+			columnIndexes = new ColumnIndexes(poInfo, columnNameCandidates);
+			_columnIndexes = columnIndexes;
+		}
+		return columnIndexes;
+	}
+
+	/**
+	 * Slot to column index mapping for a given {@link POInfo}. Immutable.
+	 */
+	public static final class ColumnIndexes
+	{
+		private final POInfo poInfo;
+		private final int[] columnIndexes;
+		private final String[] columnNames;
+
+		private ColumnIndexes(final POInfo poInfo, final String[][] columnNameCandidates)
+		{
+			super();
+			this.poInfo = poInfo;
+
+			final int slotsCount = columnNameCandidates.length;
+			columnIndexes = new int[slotsCount];
+			columnNames = new String[slotsCount];
+			for (int slot = 0; slot < slotsCount; slot++)
+			{
+				columnIndexes[slot] = -1;
+
+				final String[] candidates = columnNameCandidates[slot];
+				if (candidates == null)
+				{
+					continue;
+				}
+
+				// first matching candidate wins, same as BooleanGetterMethodInfo does
+				for (final String columnName : candidates)
+				{
+					final int columnIndex = poInfo.getColumnIndex(columnName);
+					if (columnIndex >= 0)
+					{
+						columnIndexes[slot] = columnIndex;
+						columnNames[slot] = columnName;
+						break;
+					}
+				}
+			}
+		}
+
+		public int getColumnIndex(final int slot)
+		{
+			return columnIndexes[slot];
+		}
+
+		public String getColumnName(final int slot)
+		{
+			return columnNames[slot];
+		}
+	}
+}
@@ -0,0 +1,371 @@
+package org.adempiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+
+import de.metas.logging.LogManager;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+/**
+ * Generates, for each model interface, a concrete {@link POWrapperAccessor} subclass implementing that interface.
+ * <p>
+ * The generated class implements:
+ * <ul>
+ * <li>value getters (<code>getX()</code>) and boolean getters (<code>isX()</code>) by reading the PO value directly, using column indexes which are computed once per {@link org.compiere.model.POInfo}
+ * <li>value setters (<code>setX(value)</code>) by setting the PO value directly
+ * <li>all the other methods (model getters/setters, equals, hashCode, toString, custom methods) by delegating to {@link POWrapper}, same as the {@link java.lang.reflect.Proxy} based wrapper does.
+ * </ul>
+ * In case the class cannot be generated, {@link #createAccessor(Class, POWrapper)} returns <code>null</code> and the caller shall fallback to {@link java.lang.reflect.Proxy}.
+ * <p>
+ * To disable this feature, set the <code>{@value #SYSTEM_PROPERTY_Enabled}=false</code> JVM system property.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class POWrapperAccessorFactory
+{
+	public static final transient POWrapperAccessorFactory instance = new POWrapperAccessorFactory();
+
+	/* package */static final String SYSTEM_PROPERTY_Enabled = "org.adempiere.model.POWrapper.UseGeneratedAccessors";
+
+	private static final String CLASSNAME_SUFFIX = "$POWrapperAccessor";
+
+	private static final Logger logger = LogManager.getLogger(POWrapperAccessorFactory.class);
+
+	private final boolean enabled;
+	private final ClassPool classPool;
+	private final Set<ClassLoader> classPoolLoaders = new HashSet<>();
+	private final Map<Class<?>, Optional<POWrapperAccessorClassInfo>> classInfos = new ConcurrentHashMap<>();
+
+	private POWrapperAccessorFactory()
+	{
+		super();
+		enabled = !"false".equalsIgnoreCase(System.getProperty(SYSTEM_PROPERTY_Enabled, "true"));
+
+		classPool = new ClassPool(true);
+		appendClassLoader(POWrapperAccessor.class.getClassLoader());
+	}
+
+	private void appendClassLoader(final ClassLoader classLoader)
+	{
+		if (classLoader != null && classPoolLoaders.add(classLoader))
+		{
+			classPool.appendClassPath(new LoaderClassPath(classLoader));
+		}
+	}
+
+	/**
+	 * @return generated accessor instance or <code>null</code> if the accessor class could not be generated for given interface
+	 */
+	public <T> T createAccessor(final Class<T> interfaceClass, final POWrapper wrapper)
+	{
+		if (!enabled)
+		{
+			return null;
+		}
+
+		final POWrapperAccessorClassInfo classInfo = getClassInfo(interfaceClass).orElse(null);
+		if (classInfo == null)
+		{
+			return null;
+		}
+
+		return interfaceClass.cast(classInfo.newAccessor(wrapper));
+	}
+
+	private Optional<POWrapperAccessorClassInfo> getClassInfo(final Class<?> interfaceClass)
+	{
+		final Optional<POWrapperAccessorClassInfo> classInfo = classInfos.get(interfaceClass);
+		if (classInfo != null)
+		{
+			return classInfo;
+		}
+
+		// NOTE: we are generating the classes one by one because the ClassPool is not thread safe.
+		synchronized (classPool)
+		{
+			return classInfos.computeIfAbsent(interfaceClass, this::generateClassInfoOrEmpty);
+		}
+	}
+
+	private Optional<POWrapperAccessorClassInfo> generateClassInfoOrEmpty(final Class<?> interfaceClass)
+	{
+		try
+		{
+			final POWrapperAccessorClassInfo classInfo = generateClassInfo(interfaceClass);
+			logger.debug("Generated {}", classInfo);
+			return Optional.ofNullable(classInfo);
+		}
+		catch (final Throwable e)
+		{
+			logger.warn("Failed generating the accessor class for {}. Using the proxy based wrapper.", interfaceClass, e);
+			return Optional.empty();
+		}
+	}
+
+	private POWrapperAccessorClassInfo generateClassInfo(final Class<?> interfaceClass) throws Exception
+	{
+		if (!interfaceClass.isInterface() || !Modifier.isPublic(interfaceClass.getModifiers()))
+		{
+			return null;
+		}
+
+		final List<Method> methods = collectMethods(interfaceClass);
+		if (methods == null)
+		{
+			return null;
+		}
+
+		final int methodsCount = methods.size();
+		final String[][] columnNameCandidates = new String[methodsCount][];
+		final String[] bodies = new String[methodsCount];
+		for (int slot = 0; slot < methodsCount; slot++)
+		{
+			final Method method = methods.get(slot);
+			final AccessorType accessorType = getAccessorType(method);
+			columnNameCandidates[slot] = accessorType.getColumnNameCandidates(method);
+			bodies[slot] = accessorType.getBody(method, slot);
+		}
+
+		final POWrapperAccessorClassInfo classInfo = new POWrapperAccessorClassInfo(interfaceClass, methods.toArray(new Method[methodsCount]), columnNameCandidates);
+
+		//
+		// Generate the class
+		final ClassLoader classLoader = interfaceClass.getClassLoader();
+		appendClassLoader(classLoader);
+
+		final CtClass ctAccessorClass = classPool.makeClass(interfaceClass.getName() + CLASSNAME_SUFFIX, classPool.get(POWrapperAccessor.class.getName()));
+		ctAccessorClass.addInterface(classPool.get(interfaceClass.getName()));
+		ctAccessorClass.addConstructor(CtNewConstructor.make(
+				new CtClass[] { classPool.get(POWrapper.class.getName()), classPool.get(POWrapperAccessorClassInfo.class.getName()) },
+				new CtClass[] {},
+				"{ super($1, $2); }",
+				ctAccessorClass));
+
+		for (int slot = 0; slot < methodsCount; slot++)
+		{
+			final Method method = methods.get(slot);
+			ctAccessorClass.addMethod(CtNewMethod.make(
+					Modifier.PUBLIC,
+					toCtClass(method.getReturnType()),
+					method.getName(),
+					toCtClasses(method.getParameterTypes()),
+					toCtClasses(method.getExceptionTypes()),
+					bodies[slot],
+					ctAccessorClass));
+		}
+
+		final Class<?> accessorClass = ctAccessorClass.toClass(classLoader, interfaceClass.getProtectionDomain());
+		ctAccessorClass.detach();
+
+		classInfo.setAccessorClass(accessorClass);
+		return classInfo;
+	}
+
+	/**
+	 * @return the methods to be implemented, including {@link Object}'s <code>equals</code>, <code>hashCode</code> and <code>toString</code>;
+	 *         or <code>null</code> if the interface cannot be implemented (e.g. it inherits same method with different return types)
+	 */
+	private static List<Method> collectMethods(final Class<?> interfaceClass) throws NoSuchMethodException
+	{
+		final Map<String, Method> methodsBySignature = new LinkedHashMap<>();
+		final List<Method> candidates = new ArrayList<>();
+		candidates.add(Object.class.getMethod("equals", Object.class));
+		candidates.add(Object.class.getMethod("hashCode"));
+		candidates.add(Object.class.getMethod("toString"));
+		candidates.addAll(Arrays.asList(interfaceClass.getMethods()));
+
+		for (final Method method : candidates)
+		{
+			if (Modifier.isStatic(method.getModifiers()))
+			{
+				continue;
+			}
+
+			final String signature = method.getName() + Arrays.toString(method.getParameterTypes());
+			final Method existingMethod = methodsBySignature.get(signature);
+			if (existingMethod == null)
+			{
+				methodsBySignature.put(signature, method);
+			}
+			else if (existingMethod.getReturnType() != method.getReturnType())
+			{
+				// e.g. covariant return types in inherited interfaces; let the proxy handle it
+				return null;
+			}
+		}
+
+		return new ArrayList<>(methodsBySignature.values());
+	}
+
+	/** Same classification as {@link org.adempiere.ad.persistence.ModelClassIntrospector#createModelMethodInfo(Method)} */
+	private static AccessorType getAccessorType(final Method method)
+	{
+		if (method.getDeclaringClass() == Object.class)
+		{
+			return AccessorType.Fallback;
+		}
+
+		final String methodName = method.getName();
+		final Class<?>[] parameterTypes = method.getParameterTypes();
+		final Class<?> returnType = method.getReturnType();
+
+		if (methodName.startsWith("set") && parameterTypes.length == 1)
+		{
+			if (InterfaceWrapperHelper.isModelInterface(parameterTypes[0]) || returnType != void.class)
+			{
+				return AccessorType.Fallback;
+			}
+			return AccessorType.ValueSetter;
+		}
+		else if (methodName.startsWith("get") && parameterTypes.length == 0)
+		{
+			if (InterfaceWrapperHelper.isModelInterface(returnType)
+					|| org.compiere.model.PO.class.isAssignableFrom(returnType)
+					|| returnType == void.class)
+			{
+				return AccessorType.Fallback;
+			}
+			return AccessorType.ValueGetter;
+		}
+		else if (methodName.startsWith("is") && parameterTypes.length == 0)
+		{
+			if (returnType == void.class)
+			{
+				return AccessorType.Fallback;
+			}
+			return AccessorType.BooleanGetter;
+		}
+		else
+		{
+			return AccessorType.Fallback;
+		}
+	}
+
+	private static enum AccessorType
+	{
+		ValueGetter
+		{
+			@Override
+			public String[] getColumnNameCandidates(final Method method)
+			{
+				return new String[] { method.getName().substring(3) };
+			}
+
+			@Override
+			public String getBody(final Method method, final int slot)
+			{
+				return "{ return ($r)getValueBySlot(" + slot + "); }";
+			}
+		},
+		BooleanGetter
+		{
+			@Override
+			public String[] getColumnNameCandidates(final Method method)
+			{
+				final String propertyName = method.getName().substring(2);
+				return new String[] { propertyName, "Is" + propertyName, "is" + propertyName };
+			}
+
+			@Override
+			public String getBody(final Method method, final int slot)
+			{
+				return "{ return ($r)getBooleanValueBySlot(" + slot + "); }";
+			}
+		},
+		ValueSetter
+		{
+			@Override
+			public String[] getColumnNameCandidates(final Method method)
+			{
+				return new String[] { method.getName().substring(3) };
+			}
+
+			@Override
+			public String getBody(final Method method, final int slot)
+			{
+				return "{ setValueBySlot(" + slot + ", ($w)$1); }";
+			}
+		},
+		Fallback
+		{
+			@Override
+			public String[] getColumnNameCandidates(final Method method)
+			{
+				return null;
+			}
+
+			@Override
+			public String getBody(final Method method, final int slot)
+			{
+				if (method.getReturnType() == void.class)
+				{
+					return "{ invokeBySlot(" + slot + ", $args); }";
+				}
+				return "{ return ($r)invokeBySlot(" + slot + ", $args); }";
+			}
+		};
+
+		public abstract String[] getColumnNameCandidates(final Method method);
+
+		public abstract String getBody(final Method method, final int slot);
+	}
+
+	private CtClass[] toCtClasses(final Class<?>[] classes) throws NotFoundException
+	{
+		final CtClass[] ctClasses = new CtClass[classes.length];
+		for (int i = 0; i < classes.length; i++)
+		{
+			ctClasses[i] = toCtClass(classes[i]);
+		}
+		return ctClasses;
+	}
+
+	private CtClass toCtClass(final Class<?> clazz) throws NotFoundException
+	{
+		if (clazz.isArray())
+		{
+			return classPool.get(toCtClass(clazz.getComponentType()).getName() + "[]");
+		}
+		// NOTE: for primitives (e.g. "int") and for nested classes (e.g. "a.b.C$D") the class name is understood by javassist as is
+		return classPool.get(clazz.getName());
+	}
+}
@@ -5,11 +5,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.RowSet;
 
 import org.adempiere.ad.dao.IQueryStatisticsCollector;
 import org.compiere.util.CStatement;
+import org.compiere.util.CStatementVO;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Stopwatch;
@@ -75,31 +77,48 @@ class TracingStatement<StatementType extends AbstractCStatementProxy<? extends S
 	protected final <T> T trace(final String sql, final SqlCall<T> sqlCall) throws SQLException
 	{
 		final IQueryStatisticsCollector collector = SQL_QUERIES_COLLECTOR;
-		if (collector == null)
+		final StatementsStatistics statistics = StatementsStatistics.instance;
+		if (collector == null && !statistics.isEnabled())
 		{
 			return sqlCall.call();
 		}
 
 		final Stopwatch duration = Stopwatch.createStarted();
 		final T retValue = sqlCall.call();
-		collector.collect(sql, duration.stop());
+		duration.stop();
 
-		return retValue;
+		if (collector != null)
+		{
+			collector.collect(sql, duration);
+		}
+		return statistics.recordExecute(sql, getTrxName(), duration.elapsed(TimeUnit.NANOSECONDS), retValue);
 	}
 
 	protected final <T> T trace(final SqlCall<T> sqlCall) throws SQLException
 	{
 		final IQueryStatisticsCollector collector = SQL_QUERIES_COLLECTOR;
-		if (collector == null)
+		final StatementsStatistics statistics = StatementsStatistics.instance;
+		if (collector == null && !statistics.isEnabled())
 		{
 			return sqlCall.call();
 		}
 
 		final Stopwatch duration = Stopwatch.createStarted();
 		final T retValue = sqlCall.call();
-		collector.collect(delegate.getVO(), duration.stop());
+		duration.stop();
 
-		return retValue;
+		final CStatementVO vo = delegate.getVO();
+		if (collector != null)
+		{
+			collector.collect(vo, duration);
+		}
+		return statistics.recordExecute(vo == null ? null : vo.getSql(), getTrxName(), duration.elapsed(TimeUnit.NANOSECONDS), retValue);
+	}
+
+	private final String getTrxName()
+	{
+		final CStatementVO vo = delegate.getVO();
+		return vo == null ? null : vo.getTrxName();
 	}
 
 	@Override
@@ -33,6 +33,7 @@ import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.DBConnectionAcquireTimeoutException;
 import org.adempiere.exceptions.DBException;
 import org.adempiere.exceptions.DBNoConnectionException;
+import org.adempiere.sql.impl.StatementsStatistics;
 import org.adempiere.util.Check;
 import org.adempiere.util.SystemUtils;
 import org.compiere.dbPort.Convert;
@@ -336,6 +337,7 @@ public class DB_PostgreSQL implements AdempiereDatabase
 			sb.append(" , # Busy Connections: ").append(m_ds.getNumBusyConnections()).append("/").append(m_maxbusyconnectionsThreshold);
 			sb.append(" , # Idle Connections: ").append(m_ds.getNumIdleConnections());
 			sb.append(" , # Orphaned Connections: ").append(m_ds.getNumUnclosedOrphanedConnections());
+			sb.append(" , # Threads Awaiting Connection: ").append(m_ds.getNumThreadsAwaitingCheckoutDefaultUser());
 		}
 		catch (Exception e)
 		{
@@ -446,7 +448,10 @@ public class DB_PostgreSQL implements AdempiereDatabase
 				throw new DBNoConnectionException("Data source could not be retrieved for " + connection);
 			}
 
+			final long poolWaitStartNanos = System.nanoTime();
 			conn = m_ds.getConnection();
+			StatementsStatistics.instance.recordPoolWait(System.nanoTime() - poolWaitStartNanos);
+
 			conn.setAutoCommit(autoCommit);
 			conn.setTransactionIsolation(transactionIsolation);
 
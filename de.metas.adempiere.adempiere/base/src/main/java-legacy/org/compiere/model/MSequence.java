@@ -29,6 +29,8 @@ import java.util.Properties;
 
 import org.adempiere.ad.migration.logger.IMigrationLogger;
 import org.adempiere.ad.service.ISequenceDAO;
+import org.adempiere.ad.service.ITableIDBlockAllocator;
+import org.adempiere.ad.service.TableIDBlock;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.service.ISysConfigBL;
@@ -80,14 +82,46 @@ public class MSequence extends X_AD_Sequence
 	 */
 	// metas: 01558 - refactored in order to use newly introduced methods
 	public static int getNextID (int AD_Client_ID, String TableName, String trxName_NOT_USED)
+	{
+		if (TableName == null || TableName.length() == 0)
+			throw new IllegalArgumentException("TableName missing");
+
+		// If configured, serve the ID from a node-local block which was reserved in one go
+		final ITableIDBlockAllocator idBlockAllocator = Services.get(ITableIDBlockAllocator.class);
+		if (idBlockAllocator.isBlockAllocationEnabled(AD_Client_ID, TableName))
+		{
+			return idBlockAllocator.getNextID(AD_Client_ID, TableName);
+		}
+
+		final TableIDBlock idBlock = retrieveIDBlock(AD_Client_ID, TableName, 1);
+		return idBlock == null ? -1 : idBlock.getFirstID();
+	}	//	getNextID
+
+	/**
+	 * Reserves the next <code>blockSize</code> IDs of given table by advancing the <code>AD_Sequence</code> in one go.
+	 * <p>
+	 * NOTE: if the IDs are fetched from an external ID server or by the <code>nextID</code> database procedure, the returned block has always size 1.
+	 *
+	 * @param AD_Client_ID client
+	 * @param TableName table name
+	 * @param blockSize how many IDs shall be reserved
+	 * @return reserved block or <code>null</code> if not found or error
+	 * @throws AdempiereException if the sequence's IncrementNo is not positive
+	 */
+	public static TableIDBlock retrieveIDBlock(final int AD_Client_ID, final String TableName, final int blockSize)
 	{
 		// FIXME: 08240 because we had big issues with AD_Sequence getting locked, we decided to acquire next sequence out of transaction (as a workaround) 
 		final String trxName = ITrx.TRXNAME_None;
 		
 		if (TableName == null || TableName.length() == 0)
 			throw new IllegalArgumentException("TableName missing");
+		if (blockSize <= 0)
+			throw new IllegalArgumentException("blockSize shall be greater than zero: " + blockSize);
 
 		int retValue = -1;
+		int retIncrementNo = 1;
+		int retBlockSize = 1;
+		Integer invalidIncrementNo = null;
 
 		//	Check AdempiereSys
 		final boolean adempiereSys = isAdempiereSys(AD_Client_ID);
@@ -115,7 +149,7 @@ public class MSequence extends X_AD_Sequence
 				conn = DB.getConnectionID();
 				//	Error
 				if (conn == null)
-					return -1;
+					return null;
 
 				pstmt = conn.prepareStatement(selectSQL,
 					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
@@ -182,8 +216,16 @@ public class MSequence extends X_AD_Sequence
 						}
 						else
 						{
+							final int incrementNo = rs.getInt(3);
+							if (incrementNo <= 0)
+							{
+								// we would hand out the same ID(s) again and again
+								invalidIncrementNo = incrementNo;
+								conn.rollback();
+								break;
+							}
+
 							PreparedStatement updateSQL;
-							int incrementNo = rs.getInt(3);
 							if (adempiereSys) {
 								updateSQL = conn
 										.prepareStatement("UPDATE AD_Sequence SET CurrentNextSys = CurrentNextSys + ? WHERE AD_Sequence_ID = ?");
@@ -194,12 +236,14 @@ public class MSequence extends X_AD_Sequence
 								retValue = rs.getInt(1);
 							}
 							try {
-								updateSQL.setInt(1, incrementNo);
+								updateSQL.setInt(1, incrementNo * blockSize);
 								updateSQL.setInt(2, AD_Sequence_ID);
 								updateSQL.executeUpdate();
 							} finally {
 								updateSQL.close();
 							}
+							retIncrementNo = incrementNo;
+							retBlockSize = blockSize;
 						}
 					}
 
@@ -239,8 +283,16 @@ public class MSequence extends X_AD_Sequence
 
 
 		//s_log.trace(retValue + " - Table=" + TableName + " [" + trx + "]");
-		return retValue;
-	}	//	getNextID
+		if (invalidIncrementNo != null)
+		{
+			throw new AdempiereException("AD_Sequence of " + TableName + " has an invalid IncrementNo: " + invalidIncrementNo);
+		}
+		if (retValue <= 0)
+		{
+			return null;
+		}
+		return new TableIDBlock(retValue, retIncrementNo, retBlockSize);
+	}	//	retrieveIDBlock
 
 	/**
 	 * 	Get Next ID
@@ -35,6 +35,7 @@ import org.adempiere.ad.modelvalidator.AnnotatedModelInterceptorFactory;
 import org.adempiere.ad.modelvalidator.DocTimingType;
 import org.adempiere.ad.modelvalidator.IModelInterceptor;
 import org.adempiere.ad.modelvalidator.IModelValidationEngine;
+import org.adempiere.ad.modelvalidator.JMXModelInterceptorStatistics;
 import org.adempiere.ad.modelvalidator.ModelChangeType;
 import org.adempiere.ad.modelvalidator.ModelInterceptor2ModelValidatorWrapper;
 import org.adempiere.ad.modelvalidator.ModelInterceptorInitException;
@@ -59,6 +60,8 @@ import org.adempiere.service.IClientDAO;
 import org.adempiere.util.Check;
 import org.adempiere.util.LegacyAdapters;
 import org.adempiere.util.Services;
+import org.adempiere.util.jmx.JMXRegistry;
+import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
 import org.compiere.Adempiere;
 import org.compiere.Adempiere.RunMode;
 import org.compiere.util.Env;
@@ -167,6 +170,8 @@ public class ModelValidationEngine implements IModelValidationEngine
 	{
 		super();
 		// metas: tsa: begin: break this in 2 parts because if the get() method is called during initialization we will end with multiple instances of ModelVaidationEngine
+
+		JMXRegistry.get().registerJMX(new JMXModelInterceptorStatistics(), OnJMXAlreadyExistsPolicy.Replace);
 	}
 
 	private void init()
@@ -341,6 +341,9 @@ public abstract class PO
 	/** Do not overwrite assigned ID with generated one */
 	private boolean isAssignedID = false;
 
+	/** Batch which collects our INSERT/UPDATE statements instead of executing them right away (see {@link POSaveBatch}) */
+	private transient POSaveBatch m_saveBatch = null;
+
 	public final boolean isAssignedID()
 	{
 		return isAssignedID;
@@ -2745,6 +2748,14 @@ public abstract class PO
 	 */
 	public final void saveEx() throws AdempiereException
 	{
+		//
+		// In case we are saved again while our statement is pending in a save batch (e.g. from an after save hook),
+		// let the batch execute our statement and finish our previous saving first
+		if (m_saveBatch != null && m_saveBatch.isPending(this))
+		{
+			m_saveBatch.finishPendingSave(this);
+		}
+
 		//
 		// Check and prepare the saving
 		// (this shall happen before running the part which is handled in transaction)
@@ -2754,9 +2765,28 @@ public abstract class PO
 			return;
 		}
 
+		final boolean newRecordInitial = m_createNew;
+
+		//
+		// In case we are saved as part of a batch, don't create a savepoint for each PO.
+		// The whole batch is running in one savepoint (see POSaveBatch).
+		if (m_saveBatch != null)
+		{
+			try
+			{
+				save0();
+			}
+			catch (final Exception e)
+			{
+				// restoring settings and flags before failing
+				m_createNew = newRecordInitial;
+				throw AdempiereException.wrapIfNeeded(e);
+			}
+			return;
+		}
+
 		final ITrxManager trxManager = get_TrxManager();
 		final String trxNameInitial = m_trxName;
-		final boolean newRecordInitial = m_createNew;
 		trxManager.run(trxNameInitial, new TrxRunnable2()
 		{
 
@@ -3289,6 +3319,21 @@ public abstract class PO
 			 * @todo status locking goes here
 			 */
 
+			//
+			// In case we are saved as part of a batch, only collect the UPDATE.
+			// The batch will execute it together with the others and then it will call saveUpdate_afterUpdate.
+			if (m_saveBatch != null)
+			{
+				if (!lobHasValues())
+				{
+					m_saveBatch.addStatement(this, false, sql.toString()); // newRecord=false
+					return true;
+				}
+
+				// we cannot be batched => write the records which were collected before us first
+				m_saveBatch.executePending();
+			}
+
 			//
 			// Execute UPDATE SQL
 			log.trace("Save update: SQL={}", sql);
@@ -3297,31 +3342,80 @@ public abstract class PO
 				no = DB.executeUpdateEx(sql.toString(), m_trxName, QUERY_TIME_OUT);
 			else
 				no = DB.executeUpdateEx(sql.toString(), m_trxName);
-			boolean ok = no == 1;
 
-			//
-			// Create change logs
-			if (ok)
-			{
-				createChangeLog(X_AD_ChangeLog.EVENTCHANGELOG_Update);
-				logMigration(X_AD_MigrationStep.ACTION_Update);
-			}
+			return saveUpdate_afterUpdate(no);
+		}
+
+		// nothing changed, so OK=true
+		return saveFinish(false, true);  // newRecord=false, success=true
+	}   // saveUpdate
+
+	/**
+	 * Continues the {@link #saveUpdate()} after the actual database UPDATE was executed.
+	 *
+	 * @param no how many records were updated
+	 * @return true if updated
+	 */
+	private final boolean saveUpdate_afterUpdate(final int no) throws Exception
+	{
+		boolean ok = no == 1;
 
-			if (ok)
+		//
+		// Create change logs
+		if (ok)
+		{
+			createChangeLog(X_AD_ChangeLog.EVENTCHANGELOG_Update);
+			logMigration(X_AD_MigrationStep.ACTION_Update);
+		}
+
+		if (ok)
+		{
+			ok = lobSave();
+		}
+		else
+		{
+			log.warn("#" + no + " - [" + m_trxName + "] - " + p_info.getTableName() + "." + get_WhereClause(true));
+		}
+
+		return saveFinish(false, ok); // newRecord=false, success=ok
+	}   // saveUpdate_afterUpdate
+
+	/**
+	 * Sets the batch which collects the INSERT/UPDATE statements of this PO instead of executing them right away.
+	 *
+	 * @param saveBatch batch or <code>null</code> to execute the statements right away
+	 * @see POSaveBatch
+	 */
+	/* package */ final void setSaveBatch(final POSaveBatch saveBatch)
+	{
+		this.m_saveBatch = saveBatch;
+	}
+
+	/**
+	 * Finishes the saving after our INSERT/UPDATE statement was executed by the batch.
+	 *
+	 * @param newRecord true if our statement was an INSERT
+	 * @param no how many records were inserted/updated
+	 * @param sql the executed statement (used for logging)
+	 * @see POSaveBatch
+	 */
+	/* package */ final void saveBatchFinish(final boolean newRecord, final int no, final String sql) throws Exception
+	{
+		if (newRecord)
+		{
+			if (!saveNew_afterInsert(no == 1, sql))
 			{
-				ok = lobSave();
+				throw new AdempiereException("saveNew failed").setParameter("po", this).appendParametersToMessage();
 			}
-			else
+		}
+		else
+		{
+			if (!saveUpdate_afterUpdate(no))
 			{
-				log.warn("#" + no + " - [" + m_trxName + "] - " + p_info.getTableName() + "." + where);
+				throw new AdempiereException("saveUpdate failed").setParameter("po", this).appendParametersToMessage();
 			}
-
-			return saveFinish(false, ok); // newRecord=false, success=ok
 		}
-
-		// nothing changed, so OK=true
-		return saveFinish(false, true);  // newRecord=false, success=true
-	}   // saveUpdate
+	}
 
 	private final boolean isUseTimeoutForUpdate()
 	{
@@ -3687,6 +3781,21 @@ public abstract class PO
 			loadAfterInsertProcessor = null;
 		}
 
+		//
+		// In case we are saved as part of a batch, only collect the INSERT.
+		// The batch will execute it together with the others and then it will call saveNew_afterInsert.
+		if (m_saveBatch != null)
+		{
+			if (loadAfterInsertProcessor == null && !lobHasValues())
+			{
+				m_saveBatch.addStatement(this, true, sqlInsert.toString()); // newRecord=true
+				return true;
+			}
+
+			// we cannot be batched => write the records which were collected before us first
+			m_saveBatch.executePending();
+		}
+
 		//
 		// Execute actual database INSERT
 		final int no = DB.executeUpdate(sqlInsert.toString(),
@@ -3695,7 +3804,20 @@ public abstract class PO
 				m_trxName,
 				0,  // timeOut,
 				loadAfterInsertProcessor);
-		boolean ok = no == 1;
+
+		return saveNew_afterInsert(no == 1, sqlInsert.toString());
+	}   // saveNew
+
+	/**
+	 * Continues the {@link #saveNew()} after the actual database INSERT was executed.
+	 *
+	 * @param inserted true if the record was inserted
+	 * @param sqlInsert the executed INSERT (used for logging)
+	 * @return true if new record inserted
+	 */
+	private boolean saveNew_afterInsert(final boolean inserted, final String sqlInsert) throws Exception
+	{
+		boolean ok = inserted;
 
 		//
 		// Save LOBs
@@ -3732,7 +3854,7 @@ public abstract class PO
 		{
 			String msg = "Not inserted - ";
 			if (LogManager.isLevelFiner())
-				msg += sqlInsert.toString();
+				msg += sqlInsert;
 			else
 				msg += get_TableName();
 			if (m_trxName == null)
@@ -3742,7 +3864,7 @@ public abstract class PO
 		}
 
 		return saveFinish(true, ok);
-	}   // saveNew
+	}   // saveNew_afterInsert
 
 	/**
 	 * Get ID for new record during save.
@@ -4600,6 +4722,11 @@ public abstract class PO
 	 *
 	 * @return true if saved or ok
 	 */
+	private boolean lobHasValues()
+	{
+		return m_lobInfo != null && !m_lobInfo.isEmpty();
+	}
+
 	private boolean lobSave()
 	{
 		if (m_lobInfo == null || m_lobInfo.isEmpty())
@@ -5230,6 +5357,7 @@ public abstract class PO
 		// m_loadingLock : ReentrantLock
 		poCopy.m_lobInfo = null; // don't copy the LOB Info for now
 		poCopy.m_poCacheLocals = null; // don't copy the cache locals for now
+		poCopy.m_saveBatch = null; // don't copy the save batch
 		poCopy.m_stale = this.m_stale;
 		// m_translations : Map<String, Map<String, String>> // TODO: copy the translations
 		poCopy.m_valueLoaded = this.m_valueLoaded == null ? null : Arrays.copyOf(this.m_valueLoaded, this.m_valueLoaded.length);
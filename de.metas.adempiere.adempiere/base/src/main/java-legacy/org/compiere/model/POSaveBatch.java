@@ -0,0 +1,623 @@
+package org.compiere.model;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.exceptions.DBException;
+import org.adempiere.util.Check;
+import org.adempiere.util.GuavaCollectors;
+import org.adempiere.util.Services;
+import org.compiere.util.DB;
+import org.compiere.util.TrxRunnableAdapter;
+import org.slf4j.Logger;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.logging.LogManager;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Saves a bunch of {@link PO}s using JDBC batch statements instead of one database round trip per record.
+ * <p>
+ * The POs are saved in their original order:
+ * <ul>
+ * <li>consecutive POs of the same table and statement type (INSERT/UPDATE) form a run. For each PO of the run {@link PO#beforeSave(boolean)} and the before new/change model interceptors are called
+ * and its statement is collected.
+ * <li>when the table or the statement type changes (or the run is full), the collected statements are executed in one JDBC batch, in collecting order.
+ * Right after that, the saving of each PO of the run is finished, in the same order: change logs, {@link PO#afterSave(boolean, boolean)}, the after new/change model interceptors etc.
+ * </ul>
+ * So the records are inserted in the same order as by saving them one by one (e.g. parent record before child record), and the after save hooks run only when the record exists in database.
+ * <p>
+ * NOTE: because of this, the before save model interceptors of a PO are called before the preceding POs of the same run are in database,
+ * and before the after save model interceptors of those POs were called. Interceptors which are querying the sibling records shall not be used with batched saving.
+ * <p>
+ * If the PO's class is overriding {@link PO#beforeSave(boolean)} (e.g. to compute the next line number from the sibling records),
+ * the statements which were collected before it are executed first, so its <code>beforeSave</code> finds the preceding records in database.
+ * <p>
+ * POs whose statements cannot be batched (e.g. LOB columns or columns which have to be fetched back by a RETURNING clause)
+ * are saved right away, after executing the statements which were collected before them.
+ * <p>
+ * If a PO which is pending in a batch is saved again (e.g. from the after save hook of another PO), its statement is executed and its saving is finished first.
+ * <p>
+ * Batching is only done for POs which are saved in an existing transaction. The whole batch runs in one savepoint, so if a statement fails, all records of the batch are rolled back.
+ * POs which are saved out of transaction are saved one by one, as usual.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class POSaveBatch
+{
+	/**
+	 * Saves given POs in JDBC batches, grouped by their transaction.
+	 *
+	 * @param pos
+	 * @return statistics of the executed batches
+	 */
+	public static List<BatchStatistics> saveAll(final Collection<? extends PO> pos)
+	{
+		if (pos == null || pos.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		//
+		// Group the POs by transaction, keeping their order
+		final Map<String, List<PO>> trxName2pos = new LinkedHashMap<>();
+		final Set<PO> seenPOs = Collections.newSetFromMap(new IdentityHashMap<PO, Boolean>());
+		for (final PO po : pos)
+		{
+			if (po == null || !seenPOs.add(po))
+			{
+				continue;
+			}
+			trxName2pos.computeIfAbsent(po.get_TrxName(), trxName -> new ArrayList<>()).add(po);
+		}
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ImmutableList.Builder<BatchStatistics> statistics = ImmutableList.builder();
+		for (final Map.Entry<String, List<PO>> e : trxName2pos.entrySet())
+		{
+			final List<PO> trxPOs = e.getValue();
+			final ITrx trx = trxManager.get(e.getKey(), OnTrxMissingPolicy.ReturnTrxNone);
+			if (trxManager.isNull(trx))
+			{
+				// No transaction => each PO will be saved and committed in it's own transaction, so there is nothing to batch
+				trxPOs.forEach(PO::saveEx);
+				continue;
+			}
+
+			final List<BatchedModel> models = trxPOs.stream()
+					.map(POBatchedModel::new)
+					.collect(GuavaCollectors.toImmutableList());
+
+			final POSaveBatch batch = new POSaveBatch(trx.getTrxName(), DEFAULT_MaxStatementsPerBatch, JDBCStatementsExecutor.instance);
+
+			// one savepoint for the whole batch, instead of one per PO
+			trxManager.run(trx.getTrxName(), new TrxRunnableAdapter()
+			{
+				@Override
+				public void run(final String localTrxName) throws Exception
+				{
+					batch.save(models);
+				}
+			});
+			statistics.addAll(batch.getStatistics());
+		}
+
+		return statistics.build();
+	}
+
+	/**
+	 * A model which is saved by {@link POSaveBatch}.
+	 */
+	/* package */ interface BatchedModel
+	{
+		/** @return the underlying model; that's the one which is passed to {@link POSaveBatch#addStatement(Object, boolean, String)} */
+		Object getModel();
+
+		String getTableName();
+
+		boolean isNew();
+
+		/** @return true if the statements which were collected before shall be executed before saving this model (e.g. because its before save hook is querying its siblings) */
+		boolean isExecutePendingBeforeSave();
+
+		/**
+		 * Saves the model.
+		 *
+		 * @param batch if not null, the model shall collect its INSERT/UPDATE statement via {@link POSaveBatch#addStatement(Object, boolean, String)} instead of executing it
+		 */
+		void save(POSaveBatch batch);
+
+		/** Finishes the saving after the model's collected statement was executed. */
+		void finishSave(boolean newRecord, int updateCount, String sql) throws Exception;
+
+		/** Called if the batch failed before the saving of this model was finished. */
+		void unbind();
+	}
+
+	/**
+	 * Executes a JDBC batch.
+	 */
+	@FunctionalInterface
+	/* package */ interface StatementsExecutor
+	{
+		/** @return update counts, like {@link Statement#executeBatch()} */
+		int[] executeBatch(String trxName, List<String> sqls) throws SQLException;
+	}
+
+	private static final Logger logger = LogManager.getLogger(POSaveBatch.class);
+
+	private static final int DEFAULT_MaxStatementsPerBatch = 500;
+
+	private final String trxName;
+	private final int maxStatementsPerBatch;
+	private final StatementsExecutor statementsExecutor;
+
+	/** The model which is currently saved with this batch */
+	private BatchedModel savingModel = null;
+	/** Statements which were collected but not yet executed, in collecting order */
+	private final List<PendingStatement> pendingStatements = new ArrayList<>();
+	/** Statements which were executed but whose models were not yet finished, in collecting order */
+	private final Deque<PendingStatement> executedStatements = new ArrayDeque<>();
+	/** All statements which are not yet finished, indexed by their model */
+	private final Map<Object, PendingStatement> model2statement = new IdentityHashMap<>();
+
+	private final List<BatchStatistics> statistics = new ArrayList<>();
+
+	/* package */ POSaveBatch(final String trxName, final int maxStatementsPerBatch, final StatementsExecutor statementsExecutor)
+	{
+		super();
+		Check.assumeNotEmpty(trxName, "trxName not empty");
+		Check.assume(maxStatementsPerBatch > 0, "maxStatementsPerBatch > 0");
+		Check.assumeNotNull(statementsExecutor, "Parameter statementsExecutor is not null");
+
+		this.trxName = trxName;
+		this.maxStatementsPerBatch = maxStatementsPerBatch;
+		this.statementsExecutor = statementsExecutor;
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("trxName", trxName)
+				.add("pendingStatements", pendingStatements.size())
+				.add("executedStatements", executedStatements.size())
+				.toString();
+	}
+
+	/* package */ List<BatchStatistics> getStatistics()
+	{
+		return ImmutableList.copyOf(statistics);
+	}
+
+	/* package */ void save(final List<BatchedModel> models)
+	{
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		try
+		{
+			for (final BatchedModel model : models)
+			{
+				if (!pendingStatements.isEmpty() && !isSameRun(pendingStatements.get(pendingStatements.size() - 1), model))
+				{
+					flush();
+				}
+				else if (model.isExecutePendingBeforeSave())
+				{
+					executePending();
+				}
+
+				savingModel = model;
+				try
+				{
+					model.save(this);
+				}
+				finally
+				{
+					savingModel = null;
+				}
+
+				if (pendingStatements.size() >= maxStatementsPerBatch)
+				{
+					flush();
+				}
+			}
+
+			flush();
+		}
+		catch (final RuntimeException e)
+		{
+			// Make sure no model remains bound to this batch
+			model2statement.values().forEach(statement -> statement.getModel().unbind());
+			model2statement.clear();
+			pendingStatements.clear();
+			executedStatements.clear();
+			throw e;
+		}
+
+		logger.debug("Saved {} models in trx {} in {}ms; batches: {}", models.size(), trxName, stopwatch.elapsed(TimeUnit.MILLISECONDS), statistics);
+	}
+
+	private static boolean isSameRun(final PendingStatement statement, final BatchedModel model)
+	{
+		return statement.getModel().getTableName().equals(model.getTableName())
+				&& statement.isNewRecord() == model.isNew();
+	}
+
+	/**
+	 * Called by {@link PO} when saving, instead of executing the given statement.
+	 */
+	/* package */ void addStatement(final Object model, final boolean newRecord, final String sql)
+	{
+		Check.assume(savingModel != null && savingModel.getModel() == model, "Model {} is the one currently saved in {}", model, this);
+		if (model2statement.containsKey(model))
+		{
+			throw new AdempiereException("Model was already saved in this batch and it's still pending: " + model);
+		}
+
+		final PendingStatement statement = new PendingStatement(savingModel, newRecord, sql);
+		pendingStatements.add(statement);
+		model2statement.put(model, statement);
+	}
+
+	/**
+	 * @return true if given model has a statement which was collected by this batch but its saving was not yet finished
+	 */
+	/* package */ boolean isPending(final Object model)
+	{
+		return model2statement.containsKey(model);
+	}
+
+	/**
+	 * Executes the statement of given model (if not already executed) and finishes its saving, so the model can be saved again.
+	 */
+	/* package */ void finishPendingSave(final Object model)
+	{
+		final PendingStatement statement = model2statement.get(model);
+		if (statement == null)
+		{
+			return;
+		}
+
+		if (!statement.isExecuted())
+		{
+			executePending();
+		}
+		finish(statement);
+	}
+
+	/**
+	 * Executes all collected statements, but does not finish the saving of their models.
+	 * <p>
+	 * Called by {@link PO} before it executes a statement which cannot be batched, so that the records are written in the right order.
+	 */
+	/* package */ void executePending()
+	{
+		if (pendingStatements.isEmpty())
+		{
+			return;
+		}
+
+		final List<PendingStatement> statements = new ArrayList<>(pendingStatements);
+		pendingStatements.clear();
+
+		for (int fromIndex = 0; fromIndex < statements.size(); fromIndex += maxStatementsPerBatch)
+		{
+			final int toIndex = Math.min(fromIndex + maxStatementsPerBatch, statements.size());
+			executeBatch(statements.subList(fromIndex, toIndex));
+		}
+
+		executedStatements.addAll(statements);
+	}
+
+	private void flush()
+	{
+		executePending();
+
+		while (!executedStatements.isEmpty())
+		{
+			finish(executedStatements.peekFirst());
+		}
+	}
+
+	private void finish(final PendingStatement statement)
+	{
+		final BatchedModel model = statement.getModel();
+		model2statement.remove(model.getModel());
+		executedStatements.remove(statement);
+
+		try
+		{
+			model.finishSave(statement.isNewRecord(), statement.getUpdateCount(), statement.getSql());
+		}
+		catch (final Exception e)
+		{
+			throw AdempiereException.wrapIfNeeded(e);
+		}
+	}
+
+	private void executeBatch(final List<PendingStatement> batchStatements)
+	{
+		final PendingStatement firstStatement = batchStatements.get(0);
+		final List<String> sqls = batchStatements.stream()
+				.map(PendingStatement::getSql)
+				.collect(GuavaCollectors.toImmutableList());
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		try
+		{
+			final int[] updateCounts = statementsExecutor.executeBatch(trxName, sqls);
+			for (int i = 0; i < batchStatements.size(); i++)
+			{
+				final int updateCount = i < updateCounts.length ? updateCounts[i] : Statement.EXECUTE_FAILED;
+				batchStatements.get(i).setExecuted(updateCount == Statement.SUCCESS_NO_INFO ? 1 : updateCount);
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, firstStatement.getSql());
+		}
+
+		stopwatch.stop();
+		statistics.add(new BatchStatistics(firstStatement.getModel().getTableName(), firstStatement.isNewRecord(), batchStatements.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+	}
+
+	private static final class PendingStatement
+	{
+		private final BatchedModel model;
+		private final boolean newRecord;
+		private final String sql;
+		private boolean executed = false;
+		private int updateCount = -1;
+
+		public PendingStatement(final BatchedModel model, final boolean newRecord, final String sql)
+		{
+			super();
+			this.model = model;
+			this.newRecord = newRecord;
+			this.sql = sql;
+		}
+
+		public BatchedModel getModel()
+		{
+			return model;
+		}
+
+		public boolean isNewRecord()
+		{
+			return newRecord;
+		}
+
+		public String getSql()
+		{
+			return sql;
+		}
+
+		public boolean isExecuted()
+		{
+			return executed;
+		}
+
+		public int getUpdateCount()
+		{
+			return updateCount;
+		}
+
+		public void setExecuted(final int updateCount)
+		{
+			this.executed = true;
+			this.updateCount = updateCount;
+		}
+	}
+
+	/**
+	 * {@link BatchedModel} of a {@link PO}.
+	 */
+	private static final class POBatchedModel implements BatchedModel
+	{
+		/** Tells if a PO class is overriding {@link PO#beforeSave(boolean)} */
+		private static final ClassValue<Boolean> beforeSaveOverridden = new ClassValue<Boolean>()
+		{
+			@Override
+			protected Boolean computeValue(final Class<?> poClass)
+			{
+				for (Class<?> clazz = poClass; clazz != null && clazz != PO.class; clazz = clazz.getSuperclass())
+				{
+					try
+					{
+						clazz.getDeclaredMethod("beforeSave", boolean.class);
+						return true;
+					}
+					catch (final NoSuchMethodException e)
+					{
+						// check the superclass
+					}
+				}
+				return false;
+			}
+		};
+
+		private final PO po;
+
+		public POBatchedModel(final PO po)
+		{
+			super();
+			this.po = po;
+		}
+
+		@Override
+		public String toString()
+		{
+			return po.toString();
+		}
+
+		@Override
+		public Object getModel()
+		{
+			return po;
+		}
+
+		@Override
+		public String getTableName()
+		{
+			return po.get_TableName();
+		}
+
+		@Override
+		public boolean isNew()
+		{
+			return po.is_new();
+		}
+
+		@Override
+		public boolean isExecutePendingBeforeSave()
+		{
+			return beforeSaveOverridden.get(po.getClass());
+		}
+
+		@Override
+		public void save(final POSaveBatch batch)
+		{
+			po.setSaveBatch(batch);
+			try
+			{
+				po.saveEx();
+			}
+			finally
+			{
+				// If the PO was saved right away, it's no longer bound to the batch
+				if (batch == null || !batch.isPending(po))
+				{
+					po.setSaveBatch(null);
+				}
+			}
+		}
+
+		@Override
+		public void finishSave(final boolean newRecord, final int updateCount, final String sql) throws Exception
+		{
+			po.setSaveBatch(null);
+			po.saveBatchFinish(newRecord, updateCount, sql);
+		}
+
+		@Override
+		public void unbind()
+		{
+			po.setSaveBatch(null);
+		}
+	}
+
+	/**
+	 * Executes the batches using plain JDBC statements.
+	 */
+	private static final class JDBCStatementsExecutor implements StatementsExecutor
+	{
+		public static final JDBCStatementsExecutor instance = new JDBCStatementsExecutor();
+
+		@Override
+		public int[] executeBatch(final String trxName, final List<String> sqls) throws SQLException
+		{
+			Statement stmt = null;
+			try
+			{
+				stmt = DB.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE, trxName);
+				for (final String sql : sqls)
+				{
+					stmt.addBatch(sql);
+				}
+				return stmt.executeBatch();
+			}
+			finally
+			{
+				DB.close(stmt);
+				stmt = null;
+			}
+		}
+	}
+
+	/**
+	 * Timings of one executed JDBC batch.
+	 */
+	public static final class BatchStatistics
+	{
+		private final String tableName;
+		private final boolean insert;
+		private final int statementsCount;
+		private final long durationMillis;
+
+		private BatchStatistics(final String tableName, final boolean insert, final int statementsCount, final long durationMillis)
+		{
+			super();
+			this.tableName = tableName;
+			this.insert = insert;
+			this.statementsCount = statementsCount;
+			this.durationMillis = durationMillis;
+		}
+
+		@Override
+		public String toString()
+		{
+			return tableName + (insert ? " INSERT" : " UPDATE") + " x" + statementsCount + " in " + durationMillis + "ms";
+		}
+
+		public String getTableName()
+		{
+			return tableName;
+		}
+
+		public boolean isInsert()
+		{
+			return insert;
+		}
+
+		public int getStatementsCount()
+		{
+			return statementsCount;
+		}
+
+		public long getDurationMillis()
+		{
+			return durationMillis;
+		}
+	}
+}
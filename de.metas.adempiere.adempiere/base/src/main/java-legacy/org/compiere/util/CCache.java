@@ -334,6 +334,24 @@ public class CCache<K, V> implements ITableAwareCacheInterface
 
 	@Override
 	public int resetForRecordId(final String tableName, final Object key)
+	{
+		return resetIfMatchingTableName(tableName);
+	}
+
+	/**
+	 * Resets this cache once, no matter how many records were given.
+	 */
+	@Override
+	public int resetForRecordIds(final String tableName, final Collection<Integer> recordIds)
+	{
+		if (recordIds.isEmpty())
+		{
+			return 0;
+		}
+		return resetIfMatchingTableName(tableName);
+	}
+
+	private final int resetIfMatchingTableName(final String tableName)
 	{
 		if (tableName == null)
 		{
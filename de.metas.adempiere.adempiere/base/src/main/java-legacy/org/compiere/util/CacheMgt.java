@@ -16,9 +16,17 @@
  *****************************************************************************/
 package org.compiere.util;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -32,6 +40,7 @@ import org.adempiere.ad.trx.spi.TrxListenerAdapter;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
 import org.adempiere.util.WeakList;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
 import org.adempiere.util.jmx.JMXRegistry;
 import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
 import org.adempiere.util.lang.EqualsBuilder;
@@ -100,6 +109,15 @@ public final class CacheMgt
 	 */
 	private final Map<String, AtomicInteger> tableNames = new HashMap<>();
 
+	/**
+	 * Index of the cache instances which shall be checked when the cache for a given table is reset.
+	 * 
+	 * i.e. map of TableName to cache instances which are about that table
+	 */
+	private final Map<String, WeakList<CacheInterface>> cacheInstancesByTableName = new HashMap<>();
+	/** {@link CCache} instances without a table name. They are matched by cache name (see {@link CCache#resetForRecordId(String, Object)}), so they are checked on each table reset. */
+	private final WeakList<CacheInterface> cacheInstancesMatchedByName = new WeakList<>();
+
 	/** Logger */
 	static final transient Logger log = LogManager.getLogger(CacheMgt.class);
 
@@ -164,6 +182,14 @@ public final class CacheMgt
 						.incrementAndGet();
 			}
 
+			//
+			// Index it by table name
+			final WeakList<CacheInterface> tableCacheInstances = getTableCacheInstances(instance, true);
+			if (tableCacheInstances != null)
+			{
+				tableCacheInstances.add(instance, registerWeakEffective);
+			}
+
 			return cacheInstances.add(instance, registerWeakEffective);
 		}
 		finally
@@ -204,6 +230,17 @@ public final class CacheMgt
 				}
 			}
 
+			//
+			// Remove it from table index
+			final WeakList<CacheInterface> tableCacheInstances = getTableCacheInstances(instance, false);
+			if (tableCacheInstances != null)
+			{
+				for (int i = 0; i < countRemoved; i++)
+				{
+					tableCacheInstances.remove(instance);
+				}
+			}
+
 			//
 			// Remove it from tableNames
 			if (tableName != null)
@@ -267,6 +304,33 @@ public final class CacheMgt
 		return null;
 	}
 
+	/**
+	 * Gets the list in which given cache instance is indexed.
+	 * 
+	 * @param instance
+	 * @param create if true, the list is created if it does not already exist
+	 * @return list or <code>null</code> if the cache instance shall not be reset by table name (e.g. it's not table aware)
+	 */
+	private WeakList<CacheInterface> getTableCacheInstances(final CacheInterface instance, final boolean create)
+	{
+		if (!(instance instanceof ITableAwareCacheInterface))
+		{
+			return null;
+		}
+
+		final String cacheTableName = ((ITableAwareCacheInterface)instance).getTableName();
+		if (cacheTableName == null || cacheTableName.isEmpty())
+		{
+			return instance instanceof CCache ? cacheInstancesMatchedByName : null;
+		}
+
+		if (create)
+		{
+			return cacheInstancesByTableName.computeIfAbsent(cacheTableName, k -> new WeakList<>());
+		}
+		return cacheInstancesByTableName.get(cacheTableName);
+	}
+
 	public Set<String> getTableNames()
 	{
 		return ImmutableSet.copyOf(tableNames.keySet());
@@ -389,6 +453,44 @@ public final class CacheMgt
 		RecordsToResetOnTrxCommitCollector.getCreate(trx).addRecord(tableName, recordId);
 	}
 
+	/**
+	 * @param trxName transaction name; {@link ITrx#TRXNAME_ThreadInherited} is resolved to the thread's transaction
+	 * @return <code>true</code> if records of any of the given tables were changed in given transaction and their cache reset is waiting for the commit
+	 */
+	public boolean hasPendingResetOnTrxCommit(final String trxName, @NonNull final Collection<String> tableNames)
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.get(trxName, OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isNull(trx))
+		{
+			return false;
+		}
+
+		final RecordsToResetOnTrxCommitCollector collector = trx.getProperty(RecordsToResetOnTrxCommitCollector.TRX_PROPERTY);
+		return collector != null && collector.hasRecordsForAnyTable(tableNames);
+	}
+
+	/**
+	 * Invalidate all cached entries for given TableName/Record_IDs.
+	 * 
+	 * The remote cache invalidation is broadcasted in one go.
+	 * 
+	 * @param tableName table name
+	 * @param recordIds record IDs
+	 * @return how many cache entries were invalidated
+	 */
+	public int reset(@NonNull final String tableName, @NonNull final Collection<Integer> recordIds)
+	{
+		if (recordIds.isEmpty())
+		{
+			return 0;
+		}
+
+		final int total = resetLocal(tableName, recordIds);
+		RemoteCacheInvalidationHandler.instance.postEvent(tableName, recordIds);
+		return total;
+	}
+
 	/**
 	 * Invalidate all cached entries for given TableName/Record_ID.
 	 * 
@@ -404,6 +506,28 @@ public final class CacheMgt
 			return reset();
 		}
 
+		final int total = resetLocal(tableName, ImmutableSet.of(recordId));
+
+		//
+		// Broadcast cache invalidation.
+		// We do this, even if we don't have any cache interface registered locally, because there might be remotely.
+		if (broadcast)
+		{
+			RemoteCacheInvalidationHandler.instance.postEvent(tableName, recordId);
+		}
+
+		return total;
+	}	// reset
+
+	/**
+	 * Invalidate all local cached entries for given TableName/Record_IDs. The event won't be broadcasted.
+	 * 
+	 * @param tableName
+	 * @param recordIds record IDs; {@link #RECORD_ID_ALL} is also accepted
+	 * @return how many cache entries were invalidated
+	 */
+	private final int resetLocal(final String tableName, final Collection<Integer> recordIds)
+	{
 		cacheInstancesLock.lock();
 		try
 		{
@@ -414,67 +538,45 @@ public final class CacheMgt
 			// Invalidate local caches if we have at least one cache interface about our table
 			if (tableNames.containsKey(tableName))
 			{
-				for (final CacheInterface cacheInstance : cacheInstances)
+				// NOTE: we are checking only the cache instances which are about our table (and the CCaches which are matched by name)
+				// because the other ones would not reset anything anyways.
+				final List<CacheInterface> tableCacheInstances = new ArrayList<>();
+				final WeakList<CacheInterface> cacheInstancesForTableName = cacheInstancesByTableName.get(tableName);
+				if (cacheInstancesForTableName != null)
+				{
+					tableCacheInstances.addAll(cacheInstancesForTableName.hardList());
+				}
+				tableCacheInstances.addAll(cacheInstancesMatchedByName.hardList());
+
+				for (final CacheInterface cacheInstance : tableCacheInstances)
 				{
 					if (cacheInstance == null)
 					{
 						// nothing to reset
+						continue;
 					}
-					else if (cacheInstance instanceof CCache)
-					{
-						// NOTE: CCache requires all reset events, even if they were not it's table.
-						// inside checks if table matches OR if it's cache name starts with given table name.
-						// A total fucked up, not performant.
-						// FIXME at least we shall use ConcurrentSkipListMap and prepare the steps to switch to some well known cache frameworks.
-						final ITableAwareCacheInterface recordsCache = (ITableAwareCacheInterface)cacheInstance;
-						final int itemsRemoved = recordsCache.resetForRecordId(tableName, recordId);
-						if (itemsRemoved > 0)
-						{
-							log.debug("Rest cache instance for {}/{}: {}", tableName, recordId, cacheInstance);
-							total += itemsRemoved;
-							counter++;
-						}
-					}
-					else if (cacheInstance instanceof ITableAwareCacheInterface)
-					{
-						if (tableName.equals(((ITableAwareCacheInterface)cacheInstance).getTableName()))
-						{
-							final ITableAwareCacheInterface recordsCache = (ITableAwareCacheInterface)cacheInstance;
-							final int itemsRemoved = recordsCache.resetForRecordId(tableName, recordId);
-							if (itemsRemoved > 0)
-							{
-								log.debug("Rest cache instance for {}/{}: {}", tableName, recordId, cacheInstance);
-								total += itemsRemoved;
-								counter++;
-							}
-						}
-					}
-					else
+
+					final ITableAwareCacheInterface recordsCache = (ITableAwareCacheInterface)cacheInstance;
+					final int itemsRemoved = recordsCache.resetForRecordIds(tableName, recordIds);
+
+					if (itemsRemoved > 0)
 					{
-						// NOTE: for other cache implementations we shall skip reseting by tableName/key because they don't support it.
-						// e.g. de.metas.adempiere.report.jasper.client.JRClient.cacheListener, org.adempiere.ad.dao.cache.impl.ModelCacheService.ModelCacheService()
-						log.debug("Unknown cache instance to reset: {}", cacheInstance);
+						log.debug("Rest cache instance for {}/{}: {}", tableName, recordIds, cacheInstance);
+						total += itemsRemoved;
+						counter++;
 					}
 				}
 			}
 			//
 			log.debug("Reset {}: {} cache interfaces checked ({} records invalidated)", tableName, counter, total);
 
-			//
-			// Broadcast cache invalidation.
-			// We do this, even if we don't have any cache interface registered locally, because there might be remotely.
-			if (broadcast)
-			{
-				RemoteCacheInvalidationHandler.instance.postEvent(tableName, recordId);
-			}
-
 			return total;
 		}
 		finally
 		{
 			cacheInstancesLock.unlock();
 		}
-	}	// reset
+	}
 
 	/**
 	 * Total Cached Elements
@@ -558,6 +660,8 @@ public final class CacheMgt
 
 			cacheInstances.clear();
 			tableNames.clear();
+			cacheInstancesByTableName.clear();
+			cacheInstancesMatchedByName.clear();
 		}
 		finally
 		{
@@ -684,8 +788,13 @@ public final class CacheMgt
 		}
 	}
 
-	/** Bidirectional binding between local cache system and remote cache systems */
-	private static final class RemoteCacheInvalidationHandler implements IEventListener
+	/**
+	 * Bidirectional binding between local cache system and remote cache systems.
+	 * <p>
+	 * Outgoing cache invalidations are not sent right away but they are collected for a short time window (see {@link #getBatchWindowMillis()}) and then sent as one event per table.
+	 * Multiple records of the same table are sent as one event. If there are more than {@link #getBatchMaxRecordIds()} records for a table, the whole table is invalidated instead.
+	 */
+	static final class RemoteCacheInvalidationHandler implements IEventListener
 	{
 		public static final transient CacheMgt.RemoteCacheInvalidationHandler instance = new CacheMgt.RemoteCacheInvalidationHandler();
 
@@ -695,10 +804,32 @@ public final class CacheMgt
 				.build();
 		private static final String EVENT_PROPERTY_TableName = "TableName";
 		private static final String EVENT_PROPERTY_Record_ID = "Record_ID";
+		/** Record IDs, encoded using {@link RecordIdRanges}. When set, {@link #EVENT_PROPERTY_Record_ID} is {@link CacheMgt#RECORD_ID_ALL} so older receivers will invalidate the whole table */
+		private static final String EVENT_PROPERTY_Record_IDs = "Record_IDs";
+
+		private static final String SYSTEM_PROPERTY_BatchWindowMillis = CacheMgt.class.getName() + ".RemoteInvalidation.BatchWindowMillis";
+		private static final int DEFAULT_BatchWindowMillis = 100;
+		private static final String SYSTEM_PROPERTY_BatchMaxRecordIds = CacheMgt.class.getName() + ".RemoteInvalidation.BatchMaxRecordIds";
+		private static final int DEFAULT_BatchMaxRecordIds = 1000;
 
 		private boolean _initalized = false;
 		private final Set<String> tableNamesToBroadcast = Sets.newConcurrentHashSet();
 
+		private volatile int batchWindowMillis = Integer.getInteger(SYSTEM_PROPERTY_BatchWindowMillis, DEFAULT_BatchWindowMillis);
+		private volatile int batchMaxRecordIds = Integer.getInteger(SYSTEM_PROPERTY_BatchMaxRecordIds, DEFAULT_BatchMaxRecordIds);
+
+		private final Object pendingLock = new Object();
+		private Map<String, PendingTableInvalidation> pendingByTableName = new HashMap<>();
+		private boolean flushScheduled = false;
+		private ScheduledExecutorService _flushExecutor;
+
+		// Statistics
+		private final AtomicLong countInvalidationsRequested = new AtomicLong();
+		private final AtomicLong countInvalidationsCoalesced = new AtomicLong();
+		private final AtomicLong countEventsSent = new AtomicLong();
+		private final AtomicLong countEventsReceived = new AtomicLong();
+		private final AtomicLong countRecordsReceived = new AtomicLong();
+
 		private RemoteCacheInvalidationHandler()
 		{
 			super();
@@ -744,6 +875,33 @@ public final class CacheMgt
 			return ImmutableSet.copyOf(tableNamesToBroadcast);
 		}
 
+		public int getBatchWindowMillis()
+		{
+			return batchWindowMillis;
+		}
+
+		/**
+		 * @param batchWindowMillis for how long the cache invalidations are collected before sending them; zero or negative means they are sent right away
+		 */
+		public void setBatchWindowMillis(final int batchWindowMillis)
+		{
+			this.batchWindowMillis = batchWindowMillis;
+		}
+
+		public int getBatchMaxRecordIds()
+		{
+			return batchMaxRecordIds;
+		}
+
+		/**
+		 * @param batchMaxRecordIds how many record IDs of one table are collected before switching to invalidating the whole table
+		 */
+		public void setBatchMaxRecordIds(final int batchMaxRecordIds)
+		{
+			Check.assume(batchMaxRecordIds > 0, "batchMaxRecordIds > 0 but it was {}", batchMaxRecordIds);
+			this.batchMaxRecordIds = batchMaxRecordIds;
+		}
+
 		/**
 		 * Broadcast a cache invalidation request.
 		 * 
@@ -751,6 +909,17 @@ public final class CacheMgt
 		 * @param recordId
 		 */
 		public void postEvent(final String tableName, final int recordId)
+		{
+			postEvent(tableName, ImmutableSet.of(recordId));
+		}
+
+		/**
+		 * Broadcast a cache invalidation request for given records.
+		 * 
+		 * @param tableName
+		 * @param recordIds
+		 */
+		public void postEvent(final String tableName, final Collection<Integer> recordIds)
 		{
 			// Do nothing if cache invalidation broadcasting is not enabled
 			if (!isEnabled())
@@ -764,15 +933,79 @@ public final class CacheMgt
 				return;
 			}
 
-			// Broadcast the event.
-			final Event event = Event.builder()
-					.putProperty(EVENT_PROPERTY_TableName, tableName)
-					.putProperty(EVENT_PROPERTY_Record_ID, recordId < 0 ? RECORD_ID_ALL : recordId)
-					.build();
-			Services.get(IEventBusFactory.class)
-					.getEventBus(TOPIC_CacheInvalidation)
-					.postEvent(event);
-			log.debug("Broadcasting cache invalidation of {}/{}, event={}", tableName, recordId, event);
+			final boolean flushNow;
+			synchronized (pendingLock)
+			{
+				final PendingTableInvalidation pending = pendingByTableName.computeIfAbsent(tableName, PendingTableInvalidation::new);
+				for (final Integer recordId : recordIds)
+				{
+					countInvalidationsRequested.incrementAndGet();
+					if (!pending.addRecordId(recordId, batchMaxRecordIds))
+					{
+						countInvalidationsCoalesced.incrementAndGet();
+					}
+				}
+
+				final int batchWindowMillis = this.batchWindowMillis;
+				flushNow = batchWindowMillis <= 0;
+				if (!flushNow && !flushScheduled)
+				{
+					getFlushExecutor().schedule(this::flush, batchWindowMillis, TimeUnit.MILLISECONDS);
+					flushScheduled = true;
+				}
+			}
+
+			if (flushNow)
+			{
+				flush();
+			}
+		}
+
+		private ScheduledExecutorService getFlushExecutor()
+		{
+			if (_flushExecutor == null)
+			{
+				_flushExecutor = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(CacheMgt.class.getName() + "-RemoteInvalidation")
+						.setDaemon(true)
+						.build());
+			}
+			return _flushExecutor;
+		}
+
+		/**
+		 * Sends all pending cache invalidations.
+		 */
+		public void flush()
+		{
+			final Map<String, PendingTableInvalidation> pendingByTableNameToSend;
+			synchronized (pendingLock)
+			{
+				pendingByTableNameToSend = pendingByTableName;
+				pendingByTableName = new HashMap<>();
+				flushScheduled = false;
+			}
+
+			if (pendingByTableNameToSend.isEmpty())
+			{
+				return;
+			}
+
+			final IEventBus eventBus = Services.get(IEventBusFactory.class).getEventBus(TOPIC_CacheInvalidation);
+			for (final PendingTableInvalidation pending : pendingByTableNameToSend.values())
+			{
+				try
+				{
+					final Event event = pending.toEvent();
+					eventBus.postEvent(event);
+					countEventsSent.incrementAndGet();
+					log.debug("Broadcasting cache invalidation of {}, event={}", pending, event);
+				}
+				catch (final Exception e)
+				{
+					log.warn("Failed broadcasting cache invalidation of {}", pending, e);
+				}
+			}
 		}
 
 		/**
@@ -788,6 +1021,8 @@ public final class CacheMgt
 				return;
 			}
 
+			countEventsReceived.incrementAndGet();
+
 			//
 			// TableName
 			final String tableName = event.getProperty(EVENT_PROPERTY_TableName);
@@ -798,6 +1033,19 @@ public final class CacheMgt
 			}
 			// NOTE: we try to invalidate the local cache even if the tableName is not in our tableNames to broadcast list.
 
+			//
+			// Record_IDs
+			final String recordIdsStr = event.getProperty(EVENT_PROPERTY_Record_IDs);
+			if (!Check.isEmpty(recordIdsStr, true))
+			{
+				final Set<Integer> recordIds = RecordIdRanges.parse(recordIdsStr);
+				countRecordsReceived.addAndGet(recordIds.size());
+
+				log.debug("Reseting cache for {}/{} because we got remote event: {}", tableName, recordIds, event);
+				CacheMgt.get().resetLocal(tableName, recordIds); // don't broadcast it anymore because else we would introduce recursion
+				return;
+			}
+
 			//
 			// Record_ID
 			Integer recordId = event.getProperty(EVENT_PROPERTY_Record_ID);
@@ -805,6 +1053,7 @@ public final class CacheMgt
 			{
 				recordId = RECORD_ID_ALL;
 			}
+			countRecordsReceived.incrementAndGet();
 
 			//
 			// Reset cache for TableName/Record_ID
@@ -812,6 +1061,118 @@ public final class CacheMgt
 			final boolean broadcast = false; // don't broadcast it anymore because else we would introduce recursion
 			CacheMgt.get().reset(tableName, recordId, broadcast);
 		}
+
+		public long getInvalidationsRequestedCount()
+		{
+			return countInvalidationsRequested.get();
+		}
+
+		public long getInvalidationsCoalescedCount()
+		{
+			return countInvalidationsCoalesced.get();
+		}
+
+		public long getEventsSentCount()
+		{
+			return countEventsSent.get();
+		}
+
+		public long getEventsReceivedCount()
+		{
+			return countEventsReceived.get();
+		}
+
+		public long getRecordsReceivedCount()
+		{
+			return countRecordsReceived.get();
+		}
+
+		public void resetStatistics()
+		{
+			countInvalidationsRequested.set(0);
+			countInvalidationsCoalesced.set(0);
+			countEventsSent.set(0);
+			countEventsReceived.set(0);
+			countRecordsReceived.set(0);
+		}
+	}
+
+	/** Cache invalidations of one table which were not yet sent */
+	private static final class PendingTableInvalidation
+	{
+		private final String tableName;
+		private boolean allRecords = false;
+		private final SortedSet<Integer> recordIds = new TreeSet<>();
+
+		public PendingTableInvalidation(final String tableName)
+		{
+			super();
+			this.tableName = tableName;
+		}
+
+		@Override
+		public String toString()
+		{
+			return MoreObjects.toStringHelper(this)
+					.add("tableName", tableName)
+					.add("allRecords", allRecords)
+					.add("recordIds.count", recordIds.size())
+					.toString();
+		}
+
+		/**
+		 * @param recordId record ID or {@link CacheMgt#RECORD_ID_ALL}
+		 * @param maxRecordIds maximum record IDs to collect before switching to invalidating the whole table
+		 * @return true if added; false if it was coalesced with an already pending invalidation
+		 */
+		public boolean addRecordId(final Integer recordId, final int maxRecordIds)
+		{
+			if (allRecords)
+			{
+				return false;
+			}
+
+			if (recordId == null || recordId < 0)
+			{
+				allRecords = true;
+				recordIds.clear();
+				return true;
+			}
+
+			if (!recordIds.add(recordId))
+			{
+				return false;
+			}
+
+			if (recordIds.size() > maxRecordIds)
+			{
+				allRecords = true;
+				recordIds.clear();
+			}
+			return true;
+		}
+
+		public Event toEvent()
+		{
+			final Event.Builder eventBuilder = Event.builder()
+					.putProperty(RemoteCacheInvalidationHandler.EVENT_PROPERTY_TableName, tableName);
+
+			if (allRecords || recordIds.isEmpty())
+			{
+				eventBuilder.putProperty(RemoteCacheInvalidationHandler.EVENT_PROPERTY_Record_ID, RECORD_ID_ALL);
+			}
+			else if (recordIds.size() == 1)
+			{
+				eventBuilder.putProperty(RemoteCacheInvalidationHandler.EVENT_PROPERTY_Record_ID, recordIds.first());
+			}
+			else
+			{
+				eventBuilder.putProperty(RemoteCacheInvalidationHandler.EVENT_PROPERTY_Record_ID, RECORD_ID_ALL);
+				eventBuilder.putProperty(RemoteCacheInvalidationHandler.EVENT_PROPERTY_Record_IDs, RecordIdRanges.toString(recordIds));
+			}
+
+			return eventBuilder.build();
+		}
 	}
 
 	/** Collects records that needs to be removed from cache when a given transaction is committed */
@@ -871,6 +1232,11 @@ public final class CacheMgt
 			log.debug("Scheduled cache invalidation on transaction commit: {}", record);
 		}
 
+		public boolean hasRecordsForAnyTable(final Collection<String> tableNames)
+		{
+			return records.stream().anyMatch(record -> tableNames.contains(record.getTableName()));
+		}
+
 		/** Reset the cache for all enqueued records */
 		private void run()
 		{
@@ -879,12 +1245,19 @@ public final class CacheMgt
 				return;
 			}
 
-			final CacheMgt cacheMgt = CacheMgt.get();
+			//
+			// Group the records by table name, so we can reset them and broadcast them per table in one go
+			final Map<String, Set<Integer>> recordIdsByTableName = new HashMap<>();
 			for (final ITableRecordReference record : records)
 			{
-				cacheMgt.reset(record.getTableName(), record.getRecord_ID());
+				recordIdsByTableName
+						.computeIfAbsent(record.getTableName(), k -> new TreeSet<>())
+						.add(record.getRecord_ID());
 			}
 
+			final CacheMgt cacheMgt = CacheMgt.get();
+			recordIdsByTableName.forEach(cacheMgt::reset);
+
 			records.clear();
 		}
 	}
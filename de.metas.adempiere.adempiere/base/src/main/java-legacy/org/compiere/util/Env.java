@@ -42,6 +42,7 @@ import org.adempiere.ad.security.IUserRolePermissions;
 import org.adempiere.ad.security.IUserRolePermissionsDAO;
 import org.adempiere.ad.security.UserRolePermissionsKey;
 import org.adempiere.ad.session.ISessionBL;
+import org.adempiere.context.ArrayBackedContext;
 import org.adempiere.context.ContextProvider;
 import org.adempiere.context.ThreadLocalContextProvider;
 import org.adempiere.model.IWindowNoAware;
@@ -362,6 +363,10 @@ public final class Env
 	 */
 	public static final Properties newTemporaryCtx()
 	{
+		if (ArrayBackedContext.isEnabled())
+		{
+			return ArrayBackedContext.newInstance();
+		}
 		return new Properties();
 	}
 
@@ -376,6 +381,10 @@ public final class Env
 	public static final Properties deriveCtx(final Properties ctx)
 	{
 		Check.assumeNotNull(ctx, "ctx not null");
+		if (ArrayBackedContext.isEnabled())
+		{
+			return ArrayBackedContext.newChild(ctx);
+		}
 		return new Properties(ctx);
 	}
 
@@ -391,7 +400,7 @@ public final class Env
 	{
 		Check.assumeNotNull(ctx, "ctx not null");
 
-		final Properties newCtx = new Properties();
+		final Properties newCtx = newTemporaryCtx();
 
 		// we can't use this great tool, because it (reasonably) assumes that the given ctx doews not have null values
 		// org.springframework.util.CollectionUtils.mergePropertiesIntoMap(ctx, newCtx);
@@ -415,6 +424,25 @@ public final class Env
 		return newCtx;
 	}
 
+	/**
+	 * Creates a point in time copy of given context, which is not affected by later changes of <code>ctx</code> (and vice versa).
+	 * <p>
+	 * For contexts created by {@link #newTemporaryCtx()} this is cheap, because the copy is sharing the values with the original until one of them is changed.
+	 * Like {@link #copyCtx(Properties)}, the result can be used as parameter for {@link #switchContext(Properties)}.
+	 *
+	 * @param ctx
+	 * @return snapshot of given context
+	 */
+	public static final Properties snapshotCtx(final Properties ctx)
+	{
+		Check.assumeNotNull(ctx, "ctx not null");
+		if (ctx instanceof ArrayBackedContext)
+		{
+			return ((ArrayBackedContext)ctx).snapshot();
+		}
+		return copyCtx(ctx);
+	}
+
 	/**
 	 * Creates a special ctx that can be used to create system-level records.
 	 *
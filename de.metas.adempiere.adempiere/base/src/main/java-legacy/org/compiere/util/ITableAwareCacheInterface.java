@@ -1,5 +1,7 @@
 package org.compiere.util;
 
+import java.util.Collection;
+
 /**
  * An {@link CacheInterface} which is storing table records.
  * 
@@ -32,4 +34,23 @@ public interface ITableAwareCacheInterface extends CacheInterface
 	 * @return how many cache entries were invalidated
 	 */
 	int resetForRecordId(String tableName, Object key);
+
+	/**
+	 * Invalidate the cache for given tableName and record IDs.
+	 * 
+	 * Implementations shall override this method if they can reset the cache once for all given records.
+	 * 
+	 * @param tableName
+	 * @param recordIds record IDs; {@link CacheMgt#RECORD_ID_ALL} is also accepted
+	 * @return how many cache entries were invalidated
+	 */
+	default int resetForRecordIds(final String tableName, final Collection<Integer> recordIds)
+	{
+		int count = 0;
+		for (final Integer recordId : recordIds)
+		{
+			count += resetForRecordId(tableName, recordId);
+		}
+		return count;
+	}
 }
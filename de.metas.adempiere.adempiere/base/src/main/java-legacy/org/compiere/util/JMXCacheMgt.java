@@ -100,4 +100,75 @@ public class JMXCacheMgt implements JMXCacheMgtMBean, IJMXNameAware
 		return getCacheMgt().reset(tableName, recordId);
 	}
 
+	private CacheMgt.RemoteCacheInvalidationHandler getRemoteCacheInvalidationHandler()
+	{
+		return CacheMgt.RemoteCacheInvalidationHandler.instance;
+	}
+
+	@Override
+	public long getRemoteInvalidationsRequestedCount()
+	{
+		return getRemoteCacheInvalidationHandler().getInvalidationsRequestedCount();
+	}
+
+	@Override
+	public long getRemoteInvalidationsCoalescedCount()
+	{
+		return getRemoteCacheInvalidationHandler().getInvalidationsCoalescedCount();
+	}
+
+	@Override
+	public long getRemoteEventsSentCount()
+	{
+		return getRemoteCacheInvalidationHandler().getEventsSentCount();
+	}
+
+	@Override
+	public long getRemoteEventsReceivedCount()
+	{
+		return getRemoteCacheInvalidationHandler().getEventsReceivedCount();
+	}
+
+	@Override
+	public long getRemoteRecordsReceivedCount()
+	{
+		return getRemoteCacheInvalidationHandler().getRecordsReceivedCount();
+	}
+
+	@Override
+	public void resetRemoteStatistics()
+	{
+		getRemoteCacheInvalidationHandler().resetStatistics();
+	}
+
+	@Override
+	public int getRemoteBatchWindowMillis()
+	{
+		return getRemoteCacheInvalidationHandler().getBatchWindowMillis();
+	}
+
+	@Override
+	public void setRemoteBatchWindowMillis(final int batchWindowMillis)
+	{
+		getRemoteCacheInvalidationHandler().setBatchWindowMillis(batchWindowMillis);
+	}
+
+	@Override
+	public int getRemoteBatchMaxRecordIds()
+	{
+		return getRemoteCacheInvalidationHandler().getBatchMaxRecordIds();
+	}
+
+	@Override
+	public void setRemoteBatchMaxRecordIds(final int batchMaxRecordIds)
+	{
+		getRemoteCacheInvalidationHandler().setBatchMaxRecordIds(batchMaxRecordIds);
+	}
+
+	@Override
+	public void flushRemoteInvalidations()
+	{
+		getRemoteCacheInvalidationHandler().flush();
+	}
+
 }
@@ -25,4 +25,26 @@ public interface JMXCacheMgtMBean
 	int resetForTable(String tableName);
 
 	int resetForRecordId(String tableName, int recordId);
+
+	long getRemoteInvalidationsRequestedCount();
+
+	long getRemoteInvalidationsCoalescedCount();
+
+	long getRemoteEventsSentCount();
+
+	long getRemoteEventsReceivedCount();
+
+	long getRemoteRecordsReceivedCount();
+
+	void resetRemoteStatistics();
+
+	int getRemoteBatchWindowMillis();
+
+	void setRemoteBatchWindowMillis(int batchWindowMillis);
+
+	int getRemoteBatchMaxRecordIds();
+
+	void setRemoteBatchMaxRecordIds(int batchMaxRecordIds);
+
+	void flushRemoteInvalidations();
 }
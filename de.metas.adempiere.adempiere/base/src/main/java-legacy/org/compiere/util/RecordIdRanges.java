@@ -0,0 +1,148 @@
+package org.compiere.util;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.adempiere.exceptions.AdempiereException;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Encodes/decodes a set of record IDs to/from a compact string of sorted ranges (e.g. <code>1-5,7,10-12</code>).
+ * <p>
+ * Used by {@link CacheMgt} to send many record IDs of one table in one cache invalidation event.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class RecordIdRanges
+{
+	private static final char SEPARATOR_Ranges = ',';
+	private static final char SEPARATOR_FromTo = '-';
+
+	private RecordIdRanges()
+	{
+		super();
+	}
+
+	/**
+	 * @param recordIds record IDs; negative IDs are ignored
+	 * @return encoded string; empty if there were no IDs
+	 */
+	public static String toString(final Collection<Integer> recordIds)
+	{
+		final SortedSet<Integer> recordIdsSorted = recordIds instanceof SortedSet ? (SortedSet<Integer>)recordIds : new TreeSet<>(recordIds);
+
+		final StringBuilder sb = new StringBuilder();
+		int rangeFrom = -1;
+		int rangeTo = -1;
+		for (final Integer recordId : recordIdsSorted)
+		{
+			if (recordId == null || recordId < 0)
+			{
+				continue;
+			}
+
+			if (rangeFrom >= 0 && recordId == rangeTo + 1)
+			{
+				rangeTo = recordId;
+				continue;
+			}
+
+			appendRange(sb, rangeFrom, rangeTo);
+			rangeFrom = recordId;
+			rangeTo = recordId;
+		}
+		appendRange(sb, rangeFrom, rangeTo);
+
+		return sb.toString();
+	}
+
+	private static void appendRange(final StringBuilder sb, final int rangeFrom, final int rangeTo)
+	{
+		if (rangeFrom < 0)
+		{
+			return;
+		}
+
+		if (sb.length() > 0)
+		{
+			sb.append(SEPARATOR_Ranges);
+		}
+		sb.append(rangeFrom);
+		if (rangeTo > rangeFrom)
+		{
+			sb.append(SEPARATOR_FromTo).append(rangeTo);
+		}
+	}
+
+	/**
+	 * @param recordIdsStr string produced by {@link #toString(Collection)}
+	 * @return record IDs; never returns <code>null</code>
+	 */
+	public static Set<Integer> parse(final String recordIdsStr)
+	{
+		if (recordIdsStr == null || recordIdsStr.trim().isEmpty())
+		{
+			return ImmutableSet.of();
+		}
+
+		final Set<Integer> recordIds = new TreeSet<>();
+		for (final String rangeStr : recordIdsStr.split(String.valueOf(SEPARATOR_Ranges)))
+		{
+			final String rangeStrNorm = rangeStr.trim();
+			if (rangeStrNorm.isEmpty())
+			{
+				continue;
+			}
+
+			try
+			{
+				final int idx = rangeStrNorm.indexOf(SEPARATOR_FromTo);
+				if (idx > 0)
+				{
+					final int rangeFrom = Integer.parseInt(rangeStrNorm.substring(0, idx).trim());
+					final int rangeTo = Integer.parseInt(rangeStrNorm.substring(idx + 1).trim());
+					for (int recordId = rangeFrom; recordId <= rangeTo; recordId++)
+					{
+						recordIds.add(recordId);
+					}
+				}
+				else
+				{
+					recordIds.add(Integer.parseInt(rangeStrNorm));
+				}
+			}
+			catch (final NumberFormatException e)
+			{
+				throw new AdempiereException("Invalid record IDs range '" + rangeStrNorm + "' in " + recordIdsStr, e);
+			}
+		}
+
+		return ImmutableSet.copyOf(recordIds);
+	}
+}
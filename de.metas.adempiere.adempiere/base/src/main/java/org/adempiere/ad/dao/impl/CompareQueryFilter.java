@@ -141,6 +141,12 @@ public class CompareQueryFilter<T> implements IQueryFilter<T>, ISqlQueryFilter
 		return operator;
 	}
 
+	/** @return the modifier which is applied to both operands before comparing them; never <code>null</code> */
+	public final IQueryFilterModifier getModifier()
+	{
+		return operand1Modifier;
+	}
+
 	@Override
 	public final boolean accept(final T model)
 	{
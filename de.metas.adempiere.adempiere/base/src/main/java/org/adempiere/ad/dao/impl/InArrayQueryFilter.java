@@ -128,6 +128,17 @@ public class InArrayQueryFilter<T> implements IQueryFilter<T>, ISqlQueryFilter
 				+ "]";
 	}
 
+	public String getColumnName()
+	{
+		return columnName;
+	}
+
+	/** @return the values to match or <code>null</code> if no values were given (see {@link #isDefaultReturnWhenEmpty()}) */
+	public List<Object> getValues()
+	{
+		return values;
+	}
+
 	public boolean isDefaultReturnWhenEmpty()
 	{
 		return defaultReturnWhenEmpty;
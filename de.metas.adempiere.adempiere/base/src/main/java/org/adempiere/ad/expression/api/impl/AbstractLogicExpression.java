@@ -8,6 +8,8 @@ import org.compiere.util.Evaluatee;
 
 public abstract class AbstractLogicExpression implements ILogicExpression
 {
+	private transient volatile CompiledLogicExpression _compiledExpression; // lazy
+
 	@Override
 	public final Boolean evaluate(final Evaluatee ctx, final OnVariableNotFound onVariableNotFound)
 	{
@@ -19,4 +21,15 @@ public abstract class AbstractLogicExpression implements ILogicExpression
 	{
 		return LogicExpressionEvaluator.instance.evaluateToResult(ctx, this, onVariableNotFound);
 	}
+
+	/* package */final CompiledLogicExpression getCompiledExpression()
+	{
+		CompiledLogicExpression compiledExpression = _compiledExpression;
+		if (compiledExpression == null)
+		{
+			// NOTE: in case of concurrent calls, the expression might be compiled more than once, which is fine
+			compiledExpression = _compiledExpression = CompiledLogicExpression.compile(this);
+		}
+		return compiledExpression;
+	}
 }
@@ -0,0 +1,545 @@
+package org.adempiere.ad.expression.api.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.expression.api.IExpressionEvaluator.OnVariableNotFound;
+import org.adempiere.ad.expression.api.ILogicExpression;
+import org.adempiere.ad.expression.api.impl.LogicExpressionEvaluator.BooleanEvaluator;
+import org.adempiere.ad.expression.exceptions.ExpressionEvaluationException;
+import org.compiere.util.CtxName;
+import org.compiere.util.Evaluatee;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import lombok.NonNull;
+
+/**
+ * An {@link ILogicExpression} which was compiled to a tree of evaluation nodes, ready to be evaluated many times.
+ * <p>
+ * Compared to walking the {@link LogicExpression}/{@link LogicTuple} tree on each evaluation:
+ * <ul>
+ * <li>logic operators and tuple operators are resolved once
+ * <li>constant operands are trimmed, unquoted and parsed to {@link BigDecimal} once
+ * <li>each distinct context variable gets a parameter slot, so it's resolved at most once per evaluation, without any map lookups
+ * <li>short-circuiting of AND/OR is preserved, i.e. the variables of a branch which is not needed are not resolved at all
+ * </ul>
+ * In case the evaluation does not need to report the used parameters, {@link #evaluateMemoized(Evaluatee)} can be used,
+ * which remembers the results by the values of the parameters which were actually read, so short-circuiting is preserved there too.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class CompiledLogicExpression
+{
+	public static CompiledLogicExpression compile(@NonNull final ILogicExpression expression)
+	{
+		return new Compiler().compile(expression);
+	}
+
+	/** Max number of memo entries to be remembered for one expression. When exceeded, the least recently used ones are evicted. */
+	private static final int MEMO_MaxSize = 100;
+
+	private final ILogicExpression expression;
+	private final CtxName[] parameters;
+	private final Node root;
+
+	/**
+	 * Evaluation memo.
+	 * <p>
+	 * The key is the list of parameter values read so far, in the order they were read; {@link LogicExpressionEvaluator#VALUE_NotFound} is stored as <code>null</code>.
+	 * The value is either the slot of the next parameter which has to be read ({@link Integer}) or the evaluation result ({@link Boolean}).
+	 * Since the evaluation is deterministic, the same values read in the same order always lead to the same next parameter, respectively to the same result.
+	 */
+	private final Cache<List<String>, Object> memo = CacheBuilder.newBuilder()
+			.maximumSize(MEMO_MaxSize)
+			.build();
+
+	private CompiledLogicExpression(final ILogicExpression expression, final List<CtxName> parameters, final Node root)
+	{
+		this.expression = expression;
+		this.parameters = parameters.toArray(new CtxName[parameters.size()]);
+		this.root = root;
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("expression", expression)
+				.add("parameters", Arrays.asList(parameters))
+				.toString();
+	}
+
+	public ILogicExpression getExpression()
+	{
+		return expression;
+	}
+
+	public EvaluationScope newEvaluationScope(final Evaluatee params, final OnVariableNotFound onVariableNotFound)
+	{
+		return new EvaluationScope(params, onVariableNotFound, parameters);
+	}
+
+	/**
+	 * @return evaluation result or <code>null</code> if the result could not be determined (e.g. some variables were not found)
+	 */
+	public Boolean evaluateOrNull(@NonNull final EvaluationScope scope)
+	{
+		return root.evaluateOrNull(scope);
+	}
+
+	public boolean isMemoizable(final OnVariableNotFound onVariableNotFound)
+	{
+		// NOTE: the memo maps a missing variable to "no result", so we can't use it if a missing variable shall fail the evaluation.
+		return onVariableNotFound == OnVariableNotFound.ReturnNoResult
+				&& parameters.length > 0;
+	}
+
+	/**
+	 * Evaluates this expression using {@link OnVariableNotFound#ReturnNoResult}, remembering the result by the values of the parameters which were actually read.
+	 * <p>
+	 * The parameters are read one by one, in the same order the evaluation would read them, so the parameters of a branch which is not needed are not resolved at all.
+	 *
+	 * @return evaluation result; if the result could not be determined, <code>false</code> is returned
+	 */
+	public boolean evaluateMemoized(final Evaluatee params)
+	{
+		final EvaluationScope scope = newEvaluationScope(params, OnVariableNotFound.ReturnNoResult);
+
+		//
+		// Follow the memoized evaluation path
+		final List<String> path = new ArrayList<>(parameters.length);
+		Object memoized = memo.getIfPresent(path);
+		while (memoized instanceof Integer)
+		{
+			final int slot = (Integer)memoized;
+			path.add(toMemoValue(scope.getValue(slot)));
+			memoized = memo.getIfPresent(path);
+		}
+		if (memoized instanceof Boolean)
+		{
+			return (Boolean)memoized;
+		}
+
+		//
+		// Not memoized (or evicted): evaluate, reusing the values which were read so far, and remember the evaluation path
+		final Boolean value = root.evaluateOrNull(scope);
+		final boolean valueFinal = value == null ? false : value;
+
+		final List<String> evaluationPath = new ArrayList<>(scope.resolvedCount);
+		for (int i = 0; i < scope.resolvedCount; i++)
+		{
+			final int slot = scope.resolvedSlots[i];
+			memo.put(new ArrayList<>(evaluationPath), slot);
+			evaluationPath.add(toMemoValue(scope.values[slot]));
+		}
+		memo.put(evaluationPath, valueFinal);
+
+		return valueFinal;
+	}
+
+	private static String toMemoValue(final String value)
+	{
+		return value == LogicExpressionEvaluator.VALUE_NotFound ? null : value;
+	}
+
+	/**
+	 * Evaluation state: the parameter values which were resolved so far.
+	 * Not thread safe; one instance is used for one evaluation.
+	 */
+	/* package */static final class EvaluationScope
+	{
+		private final Evaluatee params;
+		private final OnVariableNotFound onVariableNotFound;
+		private final CtxName[] parameters;
+
+		private final String[] values;
+		private final int[] resolvedSlots;
+		private int resolvedCount = 0;
+		private boolean anyValueRequested = false;
+
+		private EvaluationScope(final Evaluatee params, final OnVariableNotFound onVariableNotFound, final CtxName[] parameters)
+		{
+			// NOTE: null params is OK in case we really don't need them
+			this.params = params;
+			this.onVariableNotFound = onVariableNotFound;
+			this.parameters = parameters;
+
+			values = new String[parameters.length];
+			resolvedSlots = new int[parameters.length];
+		}
+
+		@Override
+		public String toString()
+		{
+			return MoreObjects.toStringHelper(this)
+					.add("onVariableNotFound", onVariableNotFound)
+					.add("params", params)
+					.toString();
+		}
+
+		/**
+		 * @return parameter value or {@link LogicExpressionEvaluator#VALUE_NotFound}
+		 */
+		private String getValue(final int slot)
+		{
+			anyValueRequested = true;
+
+			String value = values[slot];
+			if (value == null)
+			{
+				value = LogicExpressionEvaluator.resolveCtxName(parameters[slot], params, onVariableNotFound);
+				values[slot] = value;
+				resolvedSlots[resolvedCount] = slot;
+				resolvedCount++;
+			}
+			return value;
+		}
+
+		/**
+		 * @return parameters which were resolved during evaluation, in the order they were resolved;
+		 *         <code>null</code> if no parameter was needed
+		 */
+		@Nullable
+		public Map<CtxName, String> getUsedParameters()
+		{
+			if (!anyValueRequested)
+			{
+				return null;
+			}
+
+			final Map<CtxName, String> usedParameters = new LinkedHashMap<>(resolvedCount);
+			for (int i = 0; i < resolvedCount; i++)
+			{
+				final int slot = resolvedSlots[i];
+				usedParameters.put(parameters[slot], values[slot]);
+			}
+			return usedParameters;
+		}
+	}
+
+	@FunctionalInterface
+	private static interface Node
+	{
+		Boolean evaluateOrNull(EvaluationScope scope);
+	}
+
+	private static final Node NODE_TRUE = scope -> Boolean.TRUE;
+	private static final Node NODE_FALSE = scope -> Boolean.FALSE;
+
+	private static final class LogicNode implements Node
+	{
+		private final Node left;
+		private final BooleanEvaluator evaluator;
+		private final Node right;
+
+		private LogicNode(final Node left, final BooleanEvaluator evaluator, final Node right)
+		{
+			this.left = left;
+			this.evaluator = evaluator;
+			this.right = right;
+		}
+
+		@Override
+		public Boolean evaluateOrNull(final EvaluationScope scope)
+		{
+			return evaluator.evaluateOrNull(() -> left.evaluateOrNull(scope), () -> right.evaluateOrNull(scope));
+		}
+	}
+
+	private static final class TupleNode implements Node
+	{
+		private final Operand operand1;
+		private final TupleOperator operator;
+		private final Operand operand2;
+
+		private TupleNode(final Operand operand1, final TupleOperator operator, final Operand operand2)
+		{
+			this.operand1 = operand1;
+			this.operator = operator;
+			this.operand2 = operand2;
+		}
+
+		@Override
+		public Boolean evaluateOrNull(final EvaluationScope scope)
+		{
+			final String value1 = operand1.getValue(scope);
+			if (value1 == LogicExpressionEvaluator.VALUE_NotFound)
+			{
+				return null;
+			}
+			final String value2 = operand2.getValue(scope);
+			if (value2 == LogicExpressionEvaluator.VALUE_NotFound)
+			{
+				return null;
+			}
+			if (value1 == null || value2 == null)
+			{
+				return false;
+			}
+
+			//
+			// Try comparing BigDecimals
+			if (!value1.startsWith("'") && !value2.startsWith("'"))
+			{
+				final BigDecimal value1bd = operand1.toBigDecimalOrNull(value1);
+				if (value1bd != null)
+				{
+					final BigDecimal value2bd = operand2.toBigDecimalOrNull(value2);
+					if (value2bd != null)
+					{
+						return operator.test(value1bd.compareTo(value2bd));
+					}
+				}
+			}
+
+			//
+			// Compare as Strings
+			final String value1Str = operand1.toStringValue(value1);
+			final String value2Str = operand2.toStringValue(value2);
+			return operator.test(value1Str.compareTo(value2Str));
+		}
+	}
+
+	private static final class Operand
+	{
+		public static Operand ofParameterSlot(final int slot)
+		{
+			return new Operand(slot, null);
+		}
+
+		public static Operand ofConstant(final Object constant)
+		{
+			// we can trim whitespaces in this case; if user really wants to have spaces at the beginning/ending of the
+			// string, he/she shall quote it
+			final String constantValue = LogicExpressionEvaluator.stripQuotes(constant.toString().trim());
+			return new Operand(-1, constantValue);
+		}
+
+		private final int slot;
+
+		private final String constantValue;
+		private final String constantStringValue;
+		private final BigDecimal constantBigDecimalValue;
+
+		private Operand(final int slot, final String constantValue)
+		{
+			this.slot = slot;
+			this.constantValue = constantValue;
+			constantStringValue = constantValue == null ? null : LogicExpressionEvaluator.stripQuotes(constantValue);
+			constantBigDecimalValue = constantValue == null ? null : parseBigDecimalOrNull(constantValue);
+		}
+
+		private boolean isConstant()
+		{
+			return slot < 0;
+		}
+
+		public String getValue(final EvaluationScope scope)
+		{
+			return isConstant() ? constantValue : scope.getValue(slot);
+		}
+
+		public BigDecimal toBigDecimalOrNull(final String value)
+		{
+			return isConstant() ? constantBigDecimalValue : parseBigDecimalOrNull(value);
+		}
+
+		public String toStringValue(final String value)
+		{
+			return isConstant() ? constantStringValue : LogicExpressionEvaluator.stripQuotes(value);
+		}
+
+		private static BigDecimal parseBigDecimalOrNull(final String value)
+		{
+			// Quickly reject the values which are obviously not numbers (e.g. Y/N flags, document statuses),
+			// in order to avoid the cost of creating a NumberFormatException.
+			if (value.isEmpty())
+			{
+				return null;
+			}
+			final char firstChar = value.charAt(0);
+			if (!Character.isDigit(firstChar) && firstChar != '-' && firstChar != '+' && firstChar != '.')
+			{
+				return null;
+			}
+
+			try
+			{
+				return new BigDecimal(value);
+			}
+			catch (final NumberFormatException ex)
+			{
+				return null;
+			}
+		}
+	}
+
+	private static enum TupleOperator
+	{
+		Equals(LogicTuple.OPERATOR_Equals)
+		{
+			@Override
+			public boolean test(final int compareResult)
+			{
+				return compareResult == 0;
+			}
+		},
+		NotEquals(LogicTuple.OPERATOR_NotEquals)
+		{
+			@Override
+			public boolean test(final int compareResult)
+			{
+				return compareResult != 0;
+			}
+		},
+		LessThan(LogicTuple.OPERATOR_LessThan)
+		{
+			@Override
+			public boolean test(final int compareResult)
+			{
+				return compareResult < 0;
+			}
+		},
+		GreaterThan(LogicTuple.OPERATOR_GreaterThan)
+		{
+			@Override
+			public boolean test(final int compareResult)
+			{
+				return compareResult > 0;
+			}
+		};
+
+		public static TupleOperator ofOperator(final String operator)
+		{
+			for (final TupleOperator tupleOperator : values())
+			{
+				if (tupleOperator.operator.equals(operator))
+				{
+					return tupleOperator;
+				}
+			}
+
+			// shall not happen because expression was already compiled
+			throw new ExpressionEvaluationException("Unknown operator '" + operator + "'");
+		}
+
+		private final String operator;
+
+		private TupleOperator(final String operator)
+		{
+			this.operator = operator;
+		}
+
+		public abstract boolean test(int compareResult);
+	}
+
+	private static final class Compiler
+	{
+		/** parameter slots, indexed by parameter */
+		private final Map<CtxName, Integer> slots = new LinkedHashMap<>();
+
+		public CompiledLogicExpression compile(final ILogicExpression expression)
+		{
+			final Node root = toNode(expression);
+			return new CompiledLogicExpression(expression, ImmutableList.copyOf(slots.keySet()), root);
+		}
+
+		private Node toNode(final ILogicExpression expr)
+		{
+			if (expr == null)
+			{
+				throw new ExpressionEvaluationException("Cannot evaluate null expression");
+			}
+			else if (expr.isConstant())
+			{
+				return expr.constantValue() ? NODE_TRUE : NODE_FALSE;
+			}
+			else if (expr instanceof LogicTuple)
+			{
+				final LogicTuple tuple = (LogicTuple)expr;
+				return new TupleNode(
+						toOperand(tuple.getOperand1()),
+						TupleOperator.ofOperator(tuple.getOperator()),
+						toOperand(tuple.getOperand2()));
+			}
+			else if (expr instanceof LogicExpression)
+			{
+				final LogicExpression logicExpr = (LogicExpression)expr;
+
+				final ILogicExpression leftExpression = logicExpr.getLeft();
+				if (leftExpression == null)
+				{
+					throw new ExpressionEvaluationException("Invalid compiled expression: " + expr + " (left expression is missing)");
+				}
+				final Node left = toNode(leftExpression);
+
+				final ILogicExpression rightExpression = logicExpr.getRight();
+				if (rightExpression == null)
+				{
+					return left;
+				}
+
+				final String logicOperator = logicExpr.getOperator();
+				final BooleanEvaluator evaluator = LogicExpressionEvaluator.EVALUATORS_ByOperator.get(logicOperator);
+				if (evaluator == null)
+				{
+					// shall not happen because expression was already compiled and validated
+					throw new ExpressionEvaluationException("Invalid operator: " + logicOperator);
+				}
+
+				final Node right = toNode(rightExpression);
+				return new LogicNode(left, evaluator, right);
+			}
+			else
+			{
+				throw new ExpressionEvaluationException("Unsupported ILogicExpression type: " + expr + " (class: " + expr.getClass() + ")");
+			}
+		}
+
+		private Operand toOperand(final Object operand)
+		{
+			if (operand instanceof CtxName)
+			{
+				final int slot = slots.computeIfAbsent((CtxName)operand, ctxName -> slots.size());
+				return Operand.ofParameterSlot(slot);
+			}
+			else
+			{
+				return Operand.ofConstant(operand);
+			}
+		}
+	}
+}
@@ -33,6 +33,10 @@ import com.google.common.collect.ImmutableSet;
 	private final Set<CtxName> parametersAsCtxName;
 
 	// Precomputed values
+	/** chunks to be evaluated: {@link CtxName}s and constant {@link String}s */
+	private final Object[] evaluationChunks;
+	/** sum of the lengths of all constant chunks */
+	private final int constantsLength;
 	private String _expressionStr;
 	private String _formatedExpressionString;
 
@@ -52,6 +56,26 @@ import com.google.common.collect.ImmutableSet;
 			}
 		}
 		parametersAsCtxName = ImmutableSet.copyOf(ctxNameParams);
+
+		//
+		// Precompute the evaluation chunks, so we don't have to convert the constant chunks to string on each evaluation
+		evaluationChunks = new Object[this.expressionChunks.size()];
+		int constantsLength = 0;
+		for (int i = 0; i < evaluationChunks.length; i++)
+		{
+			final Object chunk = this.expressionChunks.get(i);
+			if (chunk instanceof CtxName)
+			{
+				evaluationChunks[i] = chunk;
+			}
+			else
+			{
+				final String chunkStr = chunk.toString();
+				evaluationChunks[i] = chunkStr;
+				constantsLength += chunkStr.length();
+			}
+		}
+		this.constantsLength = constantsLength;
 	}
 
 	@Override
@@ -140,11 +164,12 @@ import com.google.common.collect.ImmutableSet;
 	@Override
 	public String evaluate(final Evaluatee ctx, final OnVariableNotFound onVariableNotFound)
 	{
-		final StringBuilder result = new StringBuilder();
+		// NOTE: reserve some room for the parameter values too, to avoid growing the buffer
+		final StringBuilder result = new StringBuilder(constantsLength + 16 * parametersAsCtxName.size());
 
 		try
 		{
-			for (final Object chunk : expressionChunks)
+			for (final Object chunk : evaluationChunks)
 			{
 				if (chunk instanceof CtxName)
 				{
@@ -159,8 +184,7 @@ import com.google.common.collect.ImmutableSet;
 				}
 				else
 				{
-					final String chunkStr = chunk.toString();
-					result.append(chunkStr);
+					result.append((String)chunk);
 				}
 			}
 
@@ -1,6 +1,5 @@
 package org.adempiere.ad.modelvalidator;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,6 +34,7 @@ import org.slf4j.Logger;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 
 import de.metas.logging.LogManager;
 import lombok.EqualsAndHashCode;
@@ -73,6 +73,12 @@ import lombok.NonNull;
 	 */
 	private final transient Map<PointcutKey, SortedSet<Pointcut>> mapPointcuts = new HashMap<>();
 
+	/**
+	 * Index PointcutKey(TableName,PointcutType) -> timing -> pointcut invokers (ordered same as in {@link #mapPointcuts}).<br>
+	 * Built once, after all pointcuts were loaded, so we don't have to iterate and check the timings of all pointcuts on each event.
+	 */
+	private final transient ImmutableMap<PointcutKey, ImmutableMap<Integer, PointcutInvoker[]>> pointcutInvokersIndex;
+
 	private int clientId = -1;
 
 	/**
@@ -87,6 +93,7 @@ import lombok.NonNull;
 
 		loadAnnotatedClassDefinition();
 		loadPointcuts();
+		pointcutInvokersIndex = buildPointcutInvokersIndex();
 	}
 
 	/**
@@ -388,6 +395,28 @@ import lombok.NonNull;
 		logger.debug("Loaded {}", pointcut);
 	}
 
+	private ImmutableMap<PointcutKey, ImmutableMap<Integer, PointcutInvoker[]>> buildPointcutInvokersIndex()
+	{
+		final ImmutableMap.Builder<PointcutKey, ImmutableMap<Integer, PointcutInvoker[]>> index = ImmutableMap.builder();
+		for (final Map.Entry<PointcutKey, SortedSet<Pointcut>> e : mapPointcuts.entrySet())
+		{
+			final Map<Integer, List<PointcutInvoker>> invokersByTiming = new HashMap<>();
+			for (final Pointcut pointcut : e.getValue())
+			{
+				final PointcutInvoker invoker = PointcutInvoker.of(annotatedObject, pointcut);
+				for (final int timing : pointcut.getTimings())
+				{
+					invokersByTiming.computeIfAbsent(timing, k -> new ArrayList<>()).add(invoker);
+				}
+			}
+
+			final ImmutableMap.Builder<Integer, PointcutInvoker[]> invokersArrayByTiming = ImmutableMap.builder();
+			invokersByTiming.forEach((timing, invokers) -> invokersArrayByTiming.put(timing, invokers.toArray(new PointcutInvoker[invokers.size()])));
+			index.put(e.getKey(), invokersArrayByTiming.build());
+		}
+		return index.build();
+	}
+
 	private void bindPointcuts(@NonNull final IModelValidationEngine engine)
 	{
 		if (!hasPointcuts())
@@ -452,27 +481,28 @@ import lombok.NonNull;
 	{
 		final String tableName = InterfaceWrapperHelper.getModelTableName(po);
 		final PointcutKey key = mkKey(tableName, type);
-		final SortedSet<Pointcut> list = mapPointcuts.get(key);
-		if (list == null || list.isEmpty())
+		final ImmutableMap<Integer, PointcutInvoker[]> invokersByTiming = pointcutInvokersIndex.get(key);
+		if (invokersByTiming == null)
 		{
 			return;
 		}
 
-		for (final IPointcut info : list)
+		// NOTE: the invokers are indexed by timing, so we don't have to check the timings anymore
+		final PointcutInvoker[] invokers = invokersByTiming.get(timing);
+		if (invokers == null)
 		{
-			execute(info, po, timing);
+			return;
 		}
-	}
 
-	private void execute(final IPointcut pointcut, final Object po, final int timing)
-	{
-		//
-		// Check timings
-		final Set<Integer> timings = pointcut.getTimings();
-		if (!timings.contains(timing))
+		for (final PointcutInvoker invoker : invokers)
 		{
-			return;
+			execute(invoker, po, timing);
 		}
+	}
+
+	private void execute(final PointcutInvoker invoker, final Object po, final int timing)
+	{
+		final IPointcut pointcut = invoker.getPointcut();
 
 		//
 		// Check if UserAction required (i.e. user manually changed this record from a window)
@@ -506,7 +536,7 @@ import lombok.NonNull;
 		// Execute the method now
 		if (!pointcut.isAfterCommit())
 		{
-			executeNow(po, pointcut, timing);
+			executeNow(po, invoker, timing);
 		}
 		//
 		// ... or schedule it to be executed after commit
@@ -524,7 +554,7 @@ import lombok.NonNull;
 							deactivate(); // make sure it won't be executed twice
 							InterfaceWrapperHelper.setTrxName(po, ITrx.TRXNAME_ThreadInherited); // make sure we use the RIGHT transaction!
 
-							executeNow(po, pointcut, timing);
+							executeNow(po, invoker, timing);
 						}
 
 						@Override
@@ -543,9 +573,10 @@ import lombok.NonNull;
 	@VisibleForTesting
 	private final void executeNow(
 			@NonNull final Object po,
-			@NonNull final IPointcut pointcut,
+			@NonNull final PointcutInvoker invoker,
 			final int timing)
 	{
+		final IPointcut pointcut = invoker.getPointcut();
 		if (AnnotatedModelInterceptorDisabler.get().isDisabled(pointcut))
 		{
 			logger.info("Not executing pointCut because it is disabled via sysconfig (name-prefix={}); pointcut={}",
@@ -556,7 +587,8 @@ import lombok.NonNull;
 		final Object model = InterfaceWrapperHelper.create(po, pointcut.getModelClass());
 		try
 		{
-			executeNow0(model, pointcut, timing);
+			logger.debug("Executing: {}", pointcut);
+			invoker.invoke(model, timing);
 		}
 		catch (final Exception e)
 		{
@@ -582,32 +614,6 @@ import lombok.NonNull;
 		return ae;
 	}
 
-	private void executeNow0(
-			@NonNull final Object model,
-			@NonNull final IPointcut pointcut,
-			final int timing) throws IllegalAccessException, InvocationTargetException
-	{
-		final Method method = pointcut.getMethod();
-
-		// Make sure the method is accessible
-		if (!method.isAccessible())
-		{
-			method.setAccessible(true);
-		}
-
-		logger.debug("Executing: {}", pointcut);
-
-		if (pointcut.isMethodRequiresTiming())
-		{
-			final Object timingParam = pointcut.convertToMethodTimingParameterType(timing);
-			method.invoke(annotatedObject, model, timingParam);
-		}
-		else
-		{
-			method.invoke(annotatedObject, model);
-		}
-	}
-
 	/**
 	 *
 	 * @param timing
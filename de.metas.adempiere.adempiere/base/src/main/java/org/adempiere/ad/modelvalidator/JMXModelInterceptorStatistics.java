@@ -0,0 +1,80 @@
+package org.adempiere.ad.modelvalidator;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.adempiere.util.jmx.IJMXNameAware;
+
+/**
+ * JMX bean for annotated model interceptors' execution statistics (implementation).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class JMXModelInterceptorStatistics implements JMXModelInterceptorStatisticsMBean, IJMXNameAware
+{
+	private static final String JMX_NAME = "org.adempiere.ad.modelvalidator:type=ModelInterceptorStatistics";
+
+	public JMXModelInterceptorStatistics()
+	{
+		super();
+	}
+
+	@Override
+	public String getJMXName()
+	{
+		return JMX_NAME;
+	}
+
+	@Override
+	public String[] getStatistics()
+	{
+		return getTopStatistics(Integer.MAX_VALUE);
+	}
+
+	@Override
+	public String[] getTopStatistics(final int count)
+	{
+		final List<PointcutStatistics> statistics = PointcutStatistics.getAll();
+		return statistics.stream()
+				.limit(count > 0 ? count : statistics.size())
+				.map(PointcutStatistics::toString)
+				.toArray(String[]::new);
+	}
+
+	@Override
+	public long getTotalInvocationsCount()
+	{
+		return PointcutStatistics.getAll()
+				.stream()
+				.mapToLong(PointcutStatistics::getInvocationsCount)
+				.sum();
+	}
+
+	@Override
+	public void resetStatistics()
+	{
+		PointcutStatistics.resetAll();
+	}
+}
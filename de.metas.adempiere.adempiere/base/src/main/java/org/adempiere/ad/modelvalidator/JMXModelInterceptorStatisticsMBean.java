@@ -0,0 +1,42 @@
+package org.adempiere.ad.modelvalidator;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * JMX bean for annotated model interceptors' execution statistics (interface).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public interface JMXModelInterceptorStatisticsMBean
+{
+	/** @return one line per interceptor method, most expensive first */
+	String[] getStatistics();
+
+	/** @return the first <code>count</code> entries of {@link #getStatistics()} */
+	String[] getTopStatistics(int count);
+
+	long getTotalInvocationsCount();
+
+	void resetStatistics();
+}
@@ -0,0 +1,137 @@
+package org.adempiere.ad.modelvalidator;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.adempiere.exceptions.AdempiereException;
+
+import lombok.NonNull;
+
+/**
+ * Invokes the method of a given {@link Pointcut} on a given annotated model interceptor instance.
+ * <p>
+ * The method is compiled once to a {@link MethodHandle} which is bound to the annotated object, so no reflection is involved when the pointcut is executed.
+ * Each invocation is timed and recorded to pointcut's {@link PointcutStatistics}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class PointcutInvoker
+{
+	public static PointcutInvoker of(@NonNull final Object annotatedObject, @NonNull final Pointcut pointcut)
+	{
+		return new PointcutInvoker(annotatedObject, pointcut);
+	}
+
+	private static final MethodType METHODTYPE_ModelOnly = MethodType.methodType(void.class, Object.class);
+	private static final MethodType METHODTYPE_ModelAndTiming = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Pointcut pointcut;
+	private final boolean methodRequiresTiming;
+	private final MethodHandle methodHandle;
+	private final PointcutStatistics statistics;
+
+	private PointcutInvoker(final Object annotatedObject, final Pointcut pointcut)
+	{
+		this.pointcut = pointcut;
+		this.methodRequiresTiming = pointcut.isMethodRequiresTiming();
+
+		final Method method = pointcut.getMethod();
+		try
+		{
+			// Make sure the method is accessible
+			if (!method.isAccessible())
+			{
+				method.setAccessible(true);
+			}
+
+			MethodHandle methodHandle = MethodHandles.lookup().unreflect(method);
+			if (!Modifier.isStatic(method.getModifiers()))
+			{
+				methodHandle = methodHandle.bindTo(annotatedObject);
+			}
+			this.methodHandle = methodHandle.asType(methodRequiresTiming ? METHODTYPE_ModelAndTiming : METHODTYPE_ModelOnly);
+		}
+		catch (final Exception e)
+		{
+			throw new AdempiereException("Cannot create the method handle for " + method, e);
+		}
+
+		this.statistics = PointcutStatistics.getOrCreate(pointcut);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PointcutInvoker[" + pointcut + "]";
+	}
+
+	public Pointcut getPointcut()
+	{
+		return pointcut;
+	}
+
+	/**
+	 * Invokes pointcut's method.
+	 *
+	 * @param model model, already converted to pointcut's model class
+	 * @param timing
+	 * @throws Exception whatever the pointcut's method has thrown
+	 */
+	public void invoke(final Object model, final int timing) throws Exception
+	{
+		final long startNanos = System.nanoTime();
+		boolean success = false;
+		try
+		{
+			if (methodRequiresTiming)
+			{
+				final Object timingParam = pointcut.convertToMethodTimingParameterType(timing);
+				methodHandle.invokeExact(model, timingParam);
+			}
+			else
+			{
+				methodHandle.invokeExact(model);
+			}
+			success = true;
+		}
+		catch (final Exception | Error e)
+		{
+			throw e;
+		}
+		catch (final Throwable e)
+		{
+			// neither an exception nor an error, i.e. a direct Throwable subclass
+			throw AdempiereException.wrapIfNeeded(e);
+		}
+		finally
+		{
+			statistics.record(System.nanoTime() - startNanos, success);
+		}
+	}
+}
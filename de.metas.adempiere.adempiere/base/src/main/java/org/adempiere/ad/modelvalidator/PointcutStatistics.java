@@ -0,0 +1,127 @@
+package org.adempiere.ad.modelvalidator;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution statistics of an annotated model interceptor method (i.e. a pointcut).
+ * <p>
+ * The statistics are collected per {@link IPointcut#getPointcutId()} and are exposed by {@link JMXModelInterceptorStatistics}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class PointcutStatistics
+{
+	private static final ConcurrentHashMap<String, PointcutStatistics> statisticsByPointcutId = new ConcurrentHashMap<>();
+
+	public static PointcutStatistics getOrCreate(final IPointcut pointcut)
+	{
+		return statisticsByPointcutId.computeIfAbsent(pointcut.getPointcutId(), PointcutStatistics::new);
+	}
+
+	/** @return all statistics, most expensive first */
+	public static List<PointcutStatistics> getAll()
+	{
+		final List<PointcutStatistics> statistics = new ArrayList<>(statisticsByPointcutId.values());
+		statistics.sort(Comparator.comparingLong(PointcutStatistics::getTotalNanos).reversed());
+		return statistics;
+	}
+
+	public static void resetAll()
+	{
+		statisticsByPointcutId.values().forEach(PointcutStatistics::reset);
+	}
+
+	private final String pointcutId;
+	private final LongAdder countInvocations = new LongAdder();
+	private final LongAdder countErrors = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	private PointcutStatistics(final String pointcutId)
+	{
+		this.pointcutId = pointcutId;
+	}
+
+	@Override
+	public String toString()
+	{
+		final long countInvocations = getInvocationsCount();
+		final long totalNanos = getTotalNanos();
+		final long avgMicros = countInvocations > 0 ? TimeUnit.NANOSECONDS.toMicros(totalNanos / countInvocations) : 0;
+
+		return pointcutId
+				+ ": invocations=" + countInvocations
+				+ ", errors=" + getErrorsCount()
+				+ ", totalMillis=" + TimeUnit.NANOSECONDS.toMillis(totalNanos)
+				+ ", avgMicros=" + avgMicros
+				+ ", maxMillis=" + TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+	}
+
+	/* package */ void record(final long durationNanos, final boolean success)
+	{
+		countInvocations.increment();
+		if (!success)
+		{
+			countErrors.increment();
+		}
+		totalNanos.add(durationNanos);
+		maxNanos.accumulateAndGet(durationNanos, Math::max);
+	}
+
+	public String getPointcutId()
+	{
+		return pointcutId;
+	}
+
+	public long getInvocationsCount()
+	{
+		return countInvocations.sum();
+	}
+
+	public long getErrorsCount()
+	{
+		return countErrors.sum();
+	}
+
+	public long getTotalNanos()
+	{
+		return totalNanos.sum();
+	}
+
+	private void reset()
+	{
+		countInvocations.reset();
+		countErrors.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+	}
+}
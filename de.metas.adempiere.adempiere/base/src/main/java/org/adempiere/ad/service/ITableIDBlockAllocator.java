@@ -0,0 +1,68 @@
+package org.adempiere.ad.service;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import org.adempiere.util.ISingletonService;
+
+/**
+ * Hands out table IDs from node-local blocks which are reserved in <code>AD_Sequence</code> in one go, instead of locking the <code>AD_Sequence</code> row for each new record.
+ * <p>
+ * The block size is configured by {@link #SYSCONFIG_BlockSize} (default for all tables) and <code>SYSCONFIG_BlockSize + "." + TableName</code> (per table).
+ * A block size of <code>1</code> (the default) means that block allocation is disabled and each ID is fetched from database.
+ * <p>
+ * NOTE: IDs which were reserved but not served before the JVM shuts down are lost; and when multiple nodes are allocating, the IDs are not strictly ascending by creation time anymore.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public interface ITableIDBlockAllocator extends ISingletonService
+{
+	String SYSCONFIG_BlockSize = "org.compiere.model.MSequence.IDBlockSize";
+
+	/**
+	 * @param tableName
+	 * @return configured block size for given table; a value &lt;= 1 means that block allocation is disabled for that table
+	 */
+	int getBlockSize(String tableName);
+
+	/**
+	 * @param AD_Client_ID
+	 * @param tableName
+	 * @return true if the IDs for given table shall be fetched via {@link #getNextID(int, String)}
+	 */
+	boolean isBlockAllocationEnabled(int AD_Client_ID, String tableName);
+
+	/**
+	 * Gets the next ID from current block of given table. If the block is exhausted, a new one is reserved.
+	 *
+	 * @param AD_Client_ID
+	 * @param tableName
+	 * @return next ID or <code>-1</code> if no ID could be fetched
+	 */
+	int getNextID(int AD_Client_ID, String tableName);
+
+	/**
+	 * Discards all current blocks. Their remaining IDs are lost, new blocks will be reserved on demand.
+	 */
+	void reset();
+}
@@ -0,0 +1,107 @@
+package org.adempiere.ad.service;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.util.Check;
+
+/**
+ * A range of table IDs which was reserved in <code>AD_Sequence</code> in one go and which is handed out from memory.
+ * <p>
+ * The IDs of a block are <code>firstID, firstID + incrementNo, ... , firstID + (size - 1) * incrementNo</code>.
+ * <p>
+ * Thread safe; {@link #nextID()} is lock-free.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class TableIDBlock
+{
+	/** Returned by {@link #nextID()} when all IDs of this block were already served */
+	public static final int EXHAUSTED = -1;
+
+	private final int firstID;
+	private final int incrementNo;
+	private final int size;
+
+	private final AtomicInteger nextIndex = new AtomicInteger(0);
+
+	public TableIDBlock(final int firstID, final int incrementNo, final int size)
+	{
+		Check.assume(firstID > 0, "firstID > 0 but it was {}", firstID);
+		Check.assume(incrementNo > 0, "incrementNo > 0 but it was {}", incrementNo);
+		Check.assume(size > 0, "size > 0 but it was {}", size);
+
+		this.firstID = firstID;
+		this.incrementNo = incrementNo;
+		this.size = size;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TableIDBlock[firstID=" + firstID + ", incrementNo=" + incrementNo + ", size=" + size + ", served=" + getServedCount() + "]";
+	}
+
+	public int getFirstID()
+	{
+		return firstID;
+	}
+
+	public int getIncrementNo()
+	{
+		return incrementNo;
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @return next ID of this block or {@link #EXHAUSTED} if there are no more IDs available
+	 */
+	public int nextID()
+	{
+		final int index = nextIndex.getAndIncrement();
+		if (index >= size)
+		{
+			// NOTE: we don't decrement the index back; the block is exhausted anyways
+			return EXHAUSTED;
+		}
+
+		return firstID + index * incrementNo;
+	}
+
+	/** @return how many IDs were handed out from this block */
+	public int getServedCount()
+	{
+		return Math.min(nextIndex.get(), size);
+	}
+
+	public boolean isExhausted()
+	{
+		return nextIndex.get() >= size;
+	}
+}
@@ -0,0 +1,226 @@
+package org.adempiere.ad.service.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.ad.service.ITableIDBlockAllocator;
+import org.adempiere.ad.service.TableIDBlock;
+import org.adempiere.ad.service.jmx.JMXTableIDBlockAllocator;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Check;
+import org.adempiere.util.IMBeanAwareService;
+import org.adempiere.util.Services;
+import org.compiere.model.MSequence;
+import org.slf4j.Logger;
+
+import de.metas.logging.LogManager;
+
+public class TableIDBlockAllocator implements ITableIDBlockAllocator, IMBeanAwareService
+{
+	private static final Logger logger = LogManager.getLogger(TableIDBlockAllocator.class);
+
+	private static final int DEFAULT_BlockSize = 1;
+
+	/** TableName to current block */
+	private final ConcurrentHashMap<String, TableIDBlockHolder> tableName2holder = new ConcurrentHashMap<>();
+
+	private final AtomicLong blocksFetchedCount = new AtomicLong(0);
+	private final AtomicLong idsServedCount = new AtomicLong(0);
+	private final AtomicLong fetchFailuresCount = new AtomicLong(0);
+
+	private JMXTableIDBlockAllocator mbean;
+
+	@Override
+	public synchronized Object getMBean()
+	{
+		if (mbean == null)
+		{
+			mbean = new JMXTableIDBlockAllocator(this);
+		}
+		return mbean;
+	}
+
+	@Override
+	public int getBlockSize(final String tableName)
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final int defaultBlockSize = sysConfigBL.getIntValue(SYSCONFIG_BlockSize, DEFAULT_BlockSize);
+		return sysConfigBL.getIntValue(SYSCONFIG_BlockSize + "." + tableName, defaultBlockSize);
+	}
+
+	@Override
+	public boolean isBlockAllocationEnabled(final int AD_Client_ID, final String tableName)
+	{
+		// Dictionary IDs shall stay contiguous, because they end up in migration scripts
+		if (MSequence.isAdempiereSys(AD_Client_ID))
+		{
+			return false;
+		}
+		// IDs fetched from an external ID server cannot be reserved in blocks
+		if (MSequence.isUseExternalIDSystem(tableName, AD_Client_ID))
+		{
+			return false;
+		}
+
+		return getBlockSize(tableName) > 1;
+	}
+
+	@Override
+	public int getNextID(final int AD_Client_ID, final String tableName)
+	{
+		Check.assumeNotEmpty(tableName, "tableName not empty");
+
+		final TableIDBlockHolder holder = tableName2holder.computeIfAbsent(tableName, TableIDBlockHolder::new);
+		while (true)
+		{
+			//
+			// Fast path: serve the ID from current block
+			final TableIDBlock block = holder.getBlock();
+			if (block != null)
+			{
+				final int id = block.nextID();
+				if (id != TableIDBlock.EXHAUSTED)
+				{
+					holder.idsServedCount.incrementAndGet();
+					idsServedCount.incrementAndGet();
+					return id;
+				}
+			}
+
+			//
+			// Slow path: reserve a new block.
+			// Only one thread per table is doing this; the others are waiting and then they will take the IDs from the new block.
+			synchronized (holder)
+			{
+				if (holder.getBlock() != block)
+				{
+					// another thread already reserved a new block in meantime
+					continue;
+				}
+
+				final int blockSize = getBlockSize(tableName);
+				final TableIDBlock newBlock = retrieveIDBlock(AD_Client_ID, tableName, Math.max(blockSize, 1));
+				if (newBlock == null)
+				{
+					fetchFailuresCount.incrementAndGet();
+					return -1;
+				}
+
+				holder.setBlock(newBlock);
+				holder.blocksFetchedCount.incrementAndGet();
+				blocksFetchedCount.incrementAndGet();
+				logger.debug("Reserved new ID block for {}: {}", tableName, newBlock);
+			}
+		}
+	}
+
+	/**
+	 * Reserves a new block of IDs in <code>AD_Sequence</code>.
+	 *
+	 * @return reserved block or <code>null</code> if the IDs could not be reserved
+	 */
+	protected TableIDBlock retrieveIDBlock(final int AD_Client_ID, final String tableName, final int blockSize)
+	{
+		return MSequence.retrieveIDBlock(AD_Client_ID, tableName, blockSize);
+	}
+
+	@Override
+	public void reset()
+	{
+		tableName2holder.clear();
+	}
+
+	public void resetStatistics()
+	{
+		blocksFetchedCount.set(0);
+		idsServedCount.set(0);
+		fetchFailuresCount.set(0);
+		for (final TableIDBlockHolder holder : tableName2holder.values())
+		{
+			holder.blocksFetchedCount.set(0);
+			holder.idsServedCount.set(0);
+		}
+	}
+
+	public long getBlocksFetchedCount()
+	{
+		return blocksFetchedCount.get();
+	}
+
+	public long getIDsServedCount()
+	{
+		return idsServedCount.get();
+	}
+
+	public long getFetchFailuresCount()
+	{
+		return fetchFailuresCount.get();
+	}
+
+	public List<String> getTableInfos()
+	{
+		final List<String> infos = new ArrayList<>(tableName2holder.size());
+		for (final TableIDBlockHolder holder : tableName2holder.values())
+		{
+			infos.add(holder.toString());
+		}
+		return infos;
+	}
+
+	private static final class TableIDBlockHolder
+	{
+		private final String tableName;
+		private volatile TableIDBlock block;
+
+		private final AtomicLong blocksFetchedCount = new AtomicLong(0);
+		private final AtomicLong idsServedCount = new AtomicLong(0);
+
+		public TableIDBlockHolder(final String tableName)
+		{
+			this.tableName = tableName;
+		}
+
+		@Override
+		public String toString()
+		{
+			return tableName
+					+ ": blocksFetched=" + blocksFetchedCount.get()
+					+ ", idsServed=" + idsServedCount.get()
+					+ ", currentBlock=" + block;
+		}
+
+		public TableIDBlock getBlock()
+		{
+			return block;
+		}
+
+		public void setBlock(final TableIDBlock block)
+		{
+			this.block = block;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package org.adempiere.ad.service.jmx;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.adempiere.ad.service.impl.TableIDBlockAllocator;
+import org.adempiere.util.Check;
+
+public class JMXTableIDBlockAllocator implements JMXTableIDBlockAllocatorMBean
+{
+	private final TableIDBlockAllocator allocator;
+
+	public JMXTableIDBlockAllocator(final TableIDBlockAllocator allocator)
+	{
+		super();
+
+		Check.assumeNotNull(allocator, "allocator not null");
+		this.allocator = allocator;
+	}
+
+	@Override
+	public long getBlocksFetchedCount()
+	{
+		return allocator.getBlocksFetchedCount();
+	}
+
+	@Override
+	public long getIDsServedCount()
+	{
+		return allocator.getIDsServedCount();
+	}
+
+	@Override
+	public long getFetchFailuresCount()
+	{
+		return allocator.getFetchFailuresCount();
+	}
+
+	@Override
+	public String[] getTableInfos()
+	{
+		final List<String> infos = allocator.getTableInfos();
+		return infos.toArray(new String[infos.size()]);
+	}
+
+	@Override
+	public void reset()
+	{
+		allocator.reset();
+	}
+
+	@Override
+	public void resetStatistics()
+	{
+		allocator.resetStatistics();
+	}
+}
@@ -0,0 +1,46 @@
+package org.adempiere.ad.service.jmx;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * MBean interface for {@link org.adempiere.ad.service.impl.TableIDBlockAllocator}.
+ */
+public interface JMXTableIDBlockAllocatorMBean
+{
+	/** @return how many ID blocks were reserved in <code>AD_Sequence</code> */
+	long getBlocksFetchedCount();
+
+	/** @return how many IDs were served from memory */
+	long getIDsServedCount();
+
+	/** @return how many times reserving a block failed */
+	long getFetchFailuresCount();
+
+	/** @return per table statistics and current block */
+	String[] getTableInfos();
+
+	/** Discards current blocks; remaining IDs are lost */
+	void reset();
+
+	void resetStatistics();
+}
@@ -184,6 +184,7 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 		// Global instance
 		instance.clear();
 		instance.setCopyOnSave(true);
+		instance.setIndexesEnabled(true);
 		instance.unregisterAllInterceptors();
 	}
 
@@ -209,6 +210,12 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 	 */
 	private final POJOLookupMapInstancesTracker instancesTracker = new POJOLookupMapInstancesTracker();
 
+	/**
+	 * Secondary indexes which are used to narrow down the records to be scanned by {@link #getRecords(String, Class, IQueryFilter, Comparator, String)}.
+	 */
+	private final POJOLookupMapIndexes indexes = new POJOLookupMapIndexes();
+	private boolean indexesEnabled = true;
+
 	private POJOLookupMap(final String name)
 	{
 		super();
@@ -237,6 +244,59 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 	public void setCopyOnSave(boolean copyOnSave)
 	{
 		this.copyOnSave = copyOnSave;
+
+		// while not copying, the stored records might be changed without being saved, so our indexes could become stale
+		indexes.clear();
+	}
+
+	/**
+	 * Enables/disables the secondary indexes. Indexes are also not used while {@link #isCopyOnSave()} is false, because in that case the stored records can be changed without saving them.
+	 */
+	public void setIndexesEnabled(final boolean indexesEnabled)
+	{
+		this.indexesEnabled = indexesEnabled;
+		if (!indexesEnabled)
+		{
+			indexes.clear();
+		}
+	}
+
+	public boolean isIndexesEnabled()
+	{
+		return indexesEnabled;
+	}
+
+	private boolean isUseIndexes()
+	{
+		return indexesEnabled && copyOnSave;
+	}
+
+	/** @return how many queries were answered by using an index */
+	public long getIndexHitsCount()
+	{
+		return indexes.getIndexHitsCount();
+	}
+
+	/** @return how many queries had to scan the whole table */
+	public long getIndexMissesCount()
+	{
+		return indexes.getIndexMissesCount();
+	}
+
+	public String getIndexStatisticsInfo()
+	{
+		return indexes.toString();
+	}
+
+	public void resetIndexStatistics()
+	{
+		indexes.resetStatistics();
+	}
+
+	/** To be called when {@link #cachedObjects} was replaced as a whole */
+	/* package */ void resetIndexes()
+	{
+		indexes.clear();
 	}
 
 	private <T> T copy(final T model)
@@ -458,7 +518,9 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 			throw new AdempiereException("Model's ID (" + modelCopyId + ") does not match expected ID=" + id);
 		}
 
+		final String tableName = InterfaceWrapperHelper.getModelTableName(model);
 		final Object modelOld = tableRecords.put(id, modelCopy);
+		indexes.onRecordSaved(tableName, id, modelCopy);
 
 		boolean fireModelChangedSucceed = false;
 		try
@@ -472,6 +534,14 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 			{
 				// put back the old model
 				tableRecords.put(id, modelOld);
+				if (modelOld != null)
+				{
+					indexes.onRecordSaved(tableName, id, modelOld);
+				}
+				else
+				{
+					indexes.onRecordDeleted(tableName, id);
+				}
 			}
 		}
 
@@ -480,7 +550,6 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 		// Note: doesn't matter if the record is new or not, because prior to its creation, there might have been a cached "null" value and we want to get rid of that null, as we now created an actual
 		// record.
 		{
-			final String tableName = InterfaceWrapperHelper.getModelTableName(model);
 			CacheMgt.get().reset(tableName, id);
 		}
 	}
@@ -520,12 +589,14 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 			return Collections.emptyList();
 		}
 
-		final List<T> result = filter == null ? new ArrayList<>() : new ArrayList<>(recordsMap.size());
-		for (Object o : recordsMap.values())
+		final Collection<Object> recordsToScan = getRecordsToScan(tableName, recordsMap, filter);
+		final boolean copyOnlyAcceptedRecords = isUseIndexes() && POJOLookupMapIndexes.isReadOnlyFilter(filter);
+
+		final List<T> result = new ArrayList<>(recordsToScan.size());
+		for (final Object o : recordsToScan)
 		{
-			final T record = copy(POJOWrapper.create(o, clazz));
-			if (filter == null // accept everything if filter is null
-					|| filter.accept(record))
+			final T record = copyIfAccepted(o, clazz, filter, copyOnlyAcceptedRecords);
+			if (record != null)
 			{
 				POJOWrapper.setTrxName(record, trxName);
 				result.add(record);
@@ -542,6 +613,46 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 		return result;
 	}
 
+	/**
+	 * @return the stored records which might be accepted by given filter; that's all the table's records unless an index can be used
+	 */
+	private Collection<Object> getRecordsToScan(final String tableName, final Map<Integer, Object> recordsMap, final IQueryFilter<?> filter)
+	{
+		if (!isUseIndexes())
+		{
+			return recordsMap.values();
+		}
+
+		final List<Object> candidates = indexes.getCandidatesOrNull(tableName, recordsMap, filter);
+		return candidates != null ? candidates : recordsMap.values();
+	}
+
+	/**
+	 * @param copyOnlyAcceptedRecords if true, the filter is evaluated on the stored record and only accepted records are copied (copy-on-read only for what we return).
+	 *            To be used only with filters which don't change the record, see {@link POJOLookupMapIndexes#isReadOnlyFilter(IQueryFilter)}.
+	 * @return copy of the given stored record, or <code>null</code> if it was not accepted by the filter
+	 */
+	private <T> T copyIfAccepted(final Object storedRecord, final Class<T> clazz, final IQueryFilter<T> filter, final boolean copyOnlyAcceptedRecords)
+	{
+		if (copyOnlyAcceptedRecords)
+		{
+			final T recordView = POJOWrapper.create(storedRecord, clazz);
+			if (filter != null && !filter.accept(recordView))
+			{
+				return null;
+			}
+			return copy(recordView);
+		}
+
+		final T record = copy(POJOWrapper.create(storedRecord, clazz));
+		if (filter == null // accept everything if filter is null
+				|| filter.accept(record))
+		{
+			return record;
+		}
+		return null;
+	}
+
 	public List<Object> getRawRecords(final String tableName)
 	{
 		final Map<Integer, Object> recordsMap = cachedObjects.get(tableName);
@@ -624,10 +735,10 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 			return false;
 		}
 
-		for (final Object o : recordsMap.values())
+		final boolean copyOnlyAcceptedRecords = isUseIndexes() && POJOLookupMapIndexes.isReadOnlyFilter(filter);
+		for (final Object o : getRecordsToScan(tableName, recordsMap, filter))
 		{
-			final T record = copy(POJOWrapper.create(o, clazz));
-			if (filter.accept(record))
+			if (copyIfAccepted(o, clazz, filter, copyOnlyAcceptedRecords) != null)
 			{
 				return true;
 			}
@@ -702,6 +813,7 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 	{
 		nextId = DEFAULT_FirstId;
 		cachedObjects.clear();
+		indexes.clear();
 	}
 
 	@Override
@@ -755,6 +867,7 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 
 				final Object removedObject = tableCachedObjects.remove(id);
 				deleted.setValue(removedObject != null);
+				indexes.onRecordDeleted(tableName, id);
 
 				boolean fireModelChangedSucceed = false;
 				try
@@ -767,6 +880,10 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 					if (!fireModelChangedSucceed)
 					{
 						tableCachedObjects.put(id, removedObject);
+						if (removedObject != null)
+						{
+							indexes.onRecordSaved(tableName, id, removedObject);
+						}
 					}
 				}
 
@@ -0,0 +1,444 @@
+package org.adempiere.ad.wrapper;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.ad.dao.ICompositeQueryFilter;
+import org.adempiere.ad.dao.IQueryFilter;
+import org.adempiere.ad.dao.impl.ActiveRecordQueryFilter;
+import org.adempiere.ad.dao.impl.CompareQueryFilter;
+import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
+import org.adempiere.ad.dao.impl.ContextClientQueryFilter;
+import org.adempiere.ad.dao.impl.InArrayQueryFilter;
+import org.adempiere.ad.dao.impl.NullQueryFilterModifier;
+
+/**
+ * Secondary hash indexes of a {@link POJOLookupMap}, plus the logic which is using them to narrow down the records that a given filter has to be evaluated on.
+ * <p>
+ * Indexes are created on demand, i.e. the first time a query has an equals or "in array" condition on a column.
+ * So foreign key columns get one as soon as they are used to navigate from parent to children, which is the typical case.
+ * Afterwards, the index is maintained on each save/delete.
+ * <p>
+ * The indexes are only used to pre-select candidates. The query's filter is still evaluated on each candidate, so a candidate too many is never a problem.
+ * What we have to make sure is that no record which would be accepted by the filter is missing from the candidates:
+ * <ul>
+ * <li>only {@link Integer} and {@link String} lookup values are supported, because for them {@link Object#equals(Object)} is consistent with the way the filters compare values
+ * <li>records having a value of another type are always returned as candidates
+ * </ul>
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class POJOLookupMapIndexes
+{
+	/** Index key for records having <code>null</code> in the indexed column */
+	private static final Object KEY_Null = new Object();
+	/** Index key for records whose value is neither {@link Integer} nor {@link String}; those are returned for any lookup */
+	private static final Object KEY_Unindexable = new Object();
+
+	private final Map<String, TableIndex> tableIndexes = new HashMap<>();
+
+	private final AtomicLong countIndexHits = new AtomicLong();
+	private final AtomicLong countIndexMisses = new AtomicLong();
+	private final AtomicLong countCandidates = new AtomicLong();
+	private final AtomicLong countIndexesCreated = new AtomicLong();
+
+	@Override
+	public String toString()
+	{
+		return "POJOLookupMapIndexes["
+				+ "indexHits=" + countIndexHits.get()
+				+ ", indexMisses=" + countIndexMisses.get()
+				+ ", candidates=" + countCandidates.get()
+				+ ", indexesCreated=" + countIndexesCreated.get()
+				+ ", indexedColumns=" + getIndexedColumnNames()
+				+ "]";
+	}
+
+	/** @return how many queries were answered by using an index */
+	public long getIndexHitsCount()
+	{
+		return countIndexHits.get();
+	}
+
+	/** @return how many queries had to scan the whole table */
+	public long getIndexMissesCount()
+	{
+		return countIndexMisses.get();
+	}
+
+	/** @return how many candidate records were returned by index lookups in total */
+	public long getCandidatesCount()
+	{
+		return countCandidates.get();
+	}
+
+	public Map<String, Set<String>> getIndexedColumnNames()
+	{
+		final Map<String, Set<String>> result = new HashMap<>();
+		for (final Map.Entry<String, TableIndex> e : tableIndexes.entrySet())
+		{
+			result.put(e.getKey(), new HashSet<>(e.getValue().columnIndexes.keySet()));
+		}
+		return result;
+	}
+
+	public void resetStatistics()
+	{
+		countIndexHits.set(0);
+		countIndexMisses.set(0);
+		countCandidates.set(0);
+		countIndexesCreated.set(0);
+	}
+
+	/**
+	 * Drops all indexes. To be called whenever the underlying records were replaced as a whole.
+	 */
+	public void clear()
+	{
+		tableIndexes.clear();
+	}
+
+	/**
+	 * To be called after given record was stored in the table's records map.
+	 */
+	public void onRecordSaved(final String tableName, final int id, final Object record)
+	{
+		final TableIndex tableIndex = tableIndexes.get(tableName);
+		if (tableIndex == null)
+		{
+			return;
+		}
+		tableIndex.put(id, record);
+	}
+
+	/**
+	 * To be called after given record was removed from the table's records map.
+	 */
+	public void onRecordDeleted(final String tableName, final int id)
+	{
+		final TableIndex tableIndex = tableIndexes.get(tableName);
+		if (tableIndex == null)
+		{
+			return;
+		}
+		tableIndex.remove(id);
+	}
+
+	/**
+	 * @param tableRecords the table's records map (ID to record), in the order in which the records shall be returned
+	 * @return the raw records which might be accepted by given filter, in the same order as they are in <code>tableRecords</code>;
+	 *         or <code>null</code> if the filter can't be answered by an index and all records have to be scanned
+	 */
+	public List<Object> getCandidatesOrNull(final String tableName, final Map<Integer, Object> tableRecords, final IQueryFilter<?> filter)
+	{
+		if (filter == null)
+		{
+			countIndexMisses.incrementAndGet();
+			return null;
+		}
+
+		final TableIndex tableIndex = tableIndexes.computeIfAbsent(tableName, k -> new TableIndex(tableRecords));
+		final Set<Integer> candidateIds = tableIndex.findCandidateIds(filter);
+		if (candidateIds == null)
+		{
+			countIndexMisses.incrementAndGet();
+			return null;
+		}
+
+		countIndexHits.incrementAndGet();
+		countCandidates.addAndGet(candidateIds.size());
+		if (candidateIds.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		final List<Integer> candidateIdsSorted = new ArrayList<>(candidateIds);
+		candidateIdsSorted.sort(Comparator.comparing(tableIndex::getOrdinal));
+
+		final List<Object> candidates = new ArrayList<>(candidateIdsSorted.size());
+		for (final Integer id : candidateIdsSorted)
+		{
+			final Object record = tableRecords.get(id);
+			if (record != null)
+			{
+				candidates.add(record);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * @return true if given filter is only reading plain column values from the model, so it's safe to evaluate it directly on the stored record, without copying it first
+	 */
+	public static boolean isReadOnlyFilter(final IQueryFilter<?> filter)
+	{
+		if (filter == null)
+		{
+			return true;
+		}
+		else if (filter instanceof CompareQueryFilter)
+		{
+			return NullQueryFilterModifier.isNull(((CompareQueryFilter<?>)filter).getModifier());
+		}
+		else if (filter instanceof InArrayQueryFilter
+				|| filter instanceof ActiveRecordQueryFilter
+				|| filter instanceof ContextClientQueryFilter)
+		{
+			return true;
+		}
+		else if (filter instanceof ICompositeQueryFilter)
+		{
+			for (final IQueryFilter<?> childFilter : ((ICompositeQueryFilter<?>)filter).getFilters())
+			{
+				if (!isReadOnlyFilter(childFilter))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		else
+		{
+			return false;
+		}
+	}
+
+	private static boolean isIndexableValue(final Object value)
+	{
+		return value instanceof Integer || value instanceof String;
+	}
+
+	private static Object toIndexKey(final Object value)
+	{
+		if (value == null)
+		{
+			return KEY_Null;
+		}
+		return isIndexableValue(value) ? value : KEY_Unindexable;
+	}
+
+	private final class TableIndex
+	{
+		private final Map<Integer, Object> tableRecords;
+		private final Map<String, ColumnIndex> columnIndexes = new HashMap<>();
+
+		/** Position of each record in the table records map, used to return the candidates in the right order */
+		private final Map<Integer, Integer> ordinalById = new HashMap<>();
+		private int nextOrdinal = 0;
+
+		private TableIndex(final Map<Integer, Object> tableRecords)
+		{
+			this.tableRecords = tableRecords;
+			for (final Integer id : tableRecords.keySet())
+			{
+				ordinalById.put(id, nextOrdinal++);
+			}
+		}
+
+		private Integer getOrdinal(final Integer id)
+		{
+			final Integer ordinal = ordinalById.get(id);
+			return ordinal != null ? ordinal : Integer.MAX_VALUE;
+		}
+
+		private void put(final int id, final Object record)
+		{
+			if (!ordinalById.containsKey(id))
+			{
+				ordinalById.put(id, nextOrdinal++);
+			}
+			for (final ColumnIndex columnIndex : columnIndexes.values())
+			{
+				columnIndex.put(id, record);
+			}
+		}
+
+		private void remove(final int id)
+		{
+			ordinalById.remove(id);
+			for (final ColumnIndex columnIndex : columnIndexes.values())
+			{
+				columnIndex.remove(id);
+			}
+		}
+
+		private ColumnIndex getOrCreateColumnIndex(final String columnName)
+		{
+			ColumnIndex columnIndex = columnIndexes.get(columnName);
+			if (columnIndex == null)
+			{
+				columnIndex = new ColumnIndex(columnName);
+				for (final Map.Entry<Integer, Object> e : tableRecords.entrySet())
+				{
+					if (e.getValue() != null)
+					{
+						columnIndex.put(e.getKey(), e.getValue());
+					}
+				}
+				columnIndexes.put(columnName, columnIndex);
+				countIndexesCreated.incrementAndGet();
+			}
+			return columnIndex;
+		}
+
+		/** @return candidate IDs or <code>null</code> if given filter can't be answered by an index */
+		private Set<Integer> findCandidateIds(final IQueryFilter<?> filter)
+		{
+			if (filter instanceof CompareQueryFilter)
+			{
+				final CompareQueryFilter<?> compareFilter = (CompareQueryFilter<?>)filter;
+				if (compareFilter.getOperator() != Operator.EQUAL
+						|| !NullQueryFilterModifier.isNull(compareFilter.getModifier())
+						|| !isIndexableValue(compareFilter.getValue()))
+				{
+					return null;
+				}
+				return getOrCreateColumnIndex(compareFilter.getColumnName()).getIds(compareFilter.getValue());
+			}
+			else if (filter instanceof InArrayQueryFilter)
+			{
+				final InArrayQueryFilter<?> inArrayFilter = (InArrayQueryFilter<?>)filter;
+				final List<Object> values = inArrayFilter.getValues();
+				if (values == null || !values.stream().allMatch(POJOLookupMapIndexes::isIndexableValue))
+				{
+					return null;
+				}
+
+				final ColumnIndex columnIndex = getOrCreateColumnIndex(inArrayFilter.getColumnName());
+				final Set<Integer> ids = new HashSet<>();
+				for (final Object value : values)
+				{
+					ids.addAll(columnIndex.getIds(value));
+				}
+				return ids;
+			}
+			else if (filter instanceof ICompositeQueryFilter)
+			{
+				final ICompositeQueryFilter<?> compositeFilter = (ICompositeQueryFilter<?>)filter;
+				final List<? extends IQueryFilter<?>> childFilters = compositeFilter.getFilters();
+				if (childFilters.isEmpty())
+				{
+					return null;
+				}
+
+				if (compositeFilter.isJoinAnd())
+				{
+					// use the most selective index; the other conditions are checked by the filter anyways
+					Set<Integer> best = null;
+					for (final IQueryFilter<?> childFilter : childFilters)
+					{
+						final Set<Integer> ids = findCandidateIds(childFilter);
+						if (ids != null && (best == null || ids.size() < best.size()))
+						{
+							best = ids;
+						}
+					}
+					return best;
+				}
+				else
+				{
+					// OR: each child has to be answerable by an index
+					final Set<Integer> union = new HashSet<>();
+					for (final IQueryFilter<?> childFilter : childFilters)
+					{
+						final Set<Integer> ids = findCandidateIds(childFilter);
+						if (ids == null)
+						{
+							return null;
+						}
+						union.addAll(ids);
+					}
+					return union;
+				}
+			}
+			else
+			{
+				return null;
+			}
+		}
+	}
+
+	private static final class ColumnIndex
+	{
+		private final String columnName;
+		private final Map<Object, Set<Integer>> idsByKey = new HashMap<>();
+		private final Map<Integer, Object> keyById = new HashMap<>();
+
+		private ColumnIndex(final String columnName)
+		{
+			this.columnName = columnName;
+		}
+
+		private void put(final int id, final Object record)
+		{
+			remove(id);
+
+			final Object key = toIndexKey(POJOWrapper.getRawValue(record, columnName));
+			idsByKey.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+			keyById.put(id, key);
+		}
+
+		private void remove(final int id)
+		{
+			final Object keyOld = keyById.remove(id);
+			if (keyOld == null)
+			{
+				return;
+			}
+
+			final Set<Integer> ids = idsByKey.get(keyOld);
+			if (ids != null)
+			{
+				ids.remove(id);
+				if (ids.isEmpty())
+				{
+					idsByKey.remove(keyOld);
+				}
+			}
+		}
+
+		private Set<Integer> getIds(final Object value)
+		{
+			final Set<Integer> ids = idsByKey.getOrDefault(value, Collections.emptySet());
+			final Set<Integer> idsUnindexable = idsByKey.getOrDefault(KEY_Unindexable, Collections.emptySet());
+			if (idsUnindexable.isEmpty())
+			{
+				return ids;
+			}
+
+			final Set<Integer> result = new HashSet<>(ids);
+			result.addAll(idsUnindexable);
+			return result;
+		}
+	}
+}
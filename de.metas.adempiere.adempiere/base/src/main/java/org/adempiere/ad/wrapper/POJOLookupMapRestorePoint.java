@@ -73,5 +73,6 @@ public class POJOLookupMapRestorePoint
 	{
 		this.db.cachedObjects = copyCachedObjects(this.cachedObjects);
 		this.db.selectionId2selection = copySelection(this.selectionId2selection);
+		this.db.resetIndexes();
 	}
 }
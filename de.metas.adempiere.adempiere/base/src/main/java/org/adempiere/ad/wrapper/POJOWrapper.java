@@ -1177,6 +1177,14 @@ public class POJOWrapper implements InvocationHandler, IInterfaceWrapper
 		return copyValues();
 	}
 
+	/**
+	 * @return the current value of given column, read directly from the inner values map (no copying, no column name validation); used to maintain the {@link POJOLookupMap}'s indexes
+	 */
+	/* package */ static Object getRawValue(final Object model, final String columnName)
+	{
+		return getWrapper(model).getInnerValues().get(columnName);
+	}
+
 	/**
 	 *
 	 * @return inner {@link #valuesRO} map (readonly!) which contains column values, dynamic attributes and cached models.
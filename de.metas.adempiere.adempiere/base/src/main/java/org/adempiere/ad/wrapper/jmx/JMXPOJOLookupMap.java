@@ -61,6 +61,18 @@ public class JMXPOJOLookupMap implements JMXPOJOLookupMapMBean
 		database.dumpStatus();
 	}
 
+	@Override
+	public String getIndexStatistics()
+	{
+		return getDatabase().getIndexStatisticsInfo();
+	}
+
+	@Override
+	public void resetIndexStatistics()
+	{
+		getDatabase().resetIndexStatistics();
+	}
+
 	public String getJMXName()
 	{
 		return jmxName;
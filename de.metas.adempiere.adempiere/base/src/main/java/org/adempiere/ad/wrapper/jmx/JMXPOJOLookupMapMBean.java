@@ -28,4 +28,8 @@ public interface JMXPOJOLookupMapMBean
 
 	void dump();
 
+	String getIndexStatistics();
+
+	void resetIndexStatistics();
+
 }
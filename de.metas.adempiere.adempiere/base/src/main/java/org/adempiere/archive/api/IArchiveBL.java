@@ -22,8 +22,10 @@ package org.adempiere.archive.api;
  * #L%
  */
 
+import java.io.File;
 import java.io.InputStream;
 
+import org.adempiere.archive.spi.IArchiveStorage;
 import org.adempiere.util.ISingletonService;
 import org.compiere.model.I_AD_Archive;
 import org.compiere.model.PrintInfo;
@@ -112,7 +114,17 @@ public interface IArchiveBL extends ISingletonService
 
 	byte[] getBinaryData(I_AD_Archive archive);
 
+	/**
+	 * @return input stream or null; the caller is responsible for closing it
+	 * @see IArchiveStorage#getBinaryDataAsStream(I_AD_Archive)
+	 */
 	InputStream getBinaryDataAsStream(I_AD_Archive archive);
 
+	/**
+	 * @return the plain file in which the archive's data is stored or <code>null</code>
+	 * @see IArchiveStorage#getBinaryDataFile(I_AD_Archive)
+	 */
+	File getBinaryDataFile(I_AD_Archive archive);
+
 	void setBinaryData(I_AD_Archive archive, byte[] data);
 }
@@ -39,6 +39,8 @@ public interface IArchiveStorageFactory extends ISingletonService
 {
 	String STORAGETYPE_Database = "DB";
 	String STORAGETYPE_Filesystem = "FS";
+	/** Content addressed, deduplicating storage; see {@link org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage} */
+	String STORAGETYPE_ContentAddressed = "CAS";
 
 	/**
 	 * AccessMode - from where the archive is accessed (client side, server side)
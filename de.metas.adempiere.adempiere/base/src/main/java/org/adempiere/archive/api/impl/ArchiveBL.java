@@ -22,6 +22,7 @@ package org.adempiere.archive.api.impl;
  * #L%
  */
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.Properties;
 
@@ -369,4 +370,10 @@ public class ArchiveBL implements IArchiveBL
 	{
 		return Services.get(IArchiveStorageFactory.class).getArchiveStorage(archive).getBinaryDataAsStream(archive);
 	}
+
+	@Override
+	public File getBinaryDataFile(final I_AD_Archive archive)
+	{
+		return Services.get(IArchiveStorageFactory.class).getArchiveStorage(archive).getBinaryDataFile(archive);
+	}
 }
@@ -29,11 +29,13 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.adempiere.archive.api.IArchiveStorageFactory;
 import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
 import org.adempiere.archive.spi.impl.DBArchiveStorage;
 import org.adempiere.archive.spi.impl.FilesystemArchiveStorage;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.IClientDAO;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
 import org.adempiere.util.proxy.Cached;
@@ -54,6 +56,8 @@ public class ArchiveStorageFactory implements IArchiveStorageFactory
 		// Register defaults
 		registerArchiveStorage(STORAGETYPE_Database, AccessMode.ALL, DBArchiveStorage.class);
 		registerArchiveStorage(STORAGETYPE_Filesystem, AccessMode.SERVER, FilesystemArchiveStorage.class);
+		// NOTE: for filesystem and content addressed archives, the CLIENT access mode storage is registered by de.metas.document.archive's Archive_Main_Validator
+		registerArchiveStorage(STORAGETYPE_ContentAddressed, AccessMode.SERVER, ContentAddressedArchiveStorage.class);
 	}
 
 	private static final ArrayKey createStorageClassesKey(final String storageType, final AccessMode accessMode)
@@ -95,8 +99,15 @@ public class ArchiveStorageFactory implements IArchiveStorageFactory
 		return storageClass;
 	}
 
-	private String getStorageType(final Properties ctx, final int adClientId)
+	private String getStorageType(final Properties ctx, final int adClientId, final AccessMode accessMode)
 	{
+		// NOTE: the content addressed storage is available only on server side
+		if (accessMode == AccessMode.SERVER
+				&& Services.get(ISysConfigBL.class).getBooleanValue(ContentAddressedArchiveStorage.SYSCONFIG_Enabled, false, adClientId))
+		{
+			return STORAGETYPE_ContentAddressed;
+		}
+
 		final I_AD_Client client = Services.get(IClientDAO.class).retriveClient(ctx, adClientId);
 		if (client.isStoreArchiveOnFileSystem())
 		{
@@ -110,7 +121,11 @@ public class ArchiveStorageFactory implements IArchiveStorageFactory
 
 	private String getStorageType(final I_AD_Archive archive)
 	{
-		if (archive.isFileSystem())
+		if (ContentAddressedArchiveStorage.isContentAddressed(archive))
+		{
+			return STORAGETYPE_ContentAddressed;
+		}
+		else if (archive.isFileSystem())
 		{
 			return STORAGETYPE_Filesystem;
 		}
@@ -136,8 +151,8 @@ public class ArchiveStorageFactory implements IArchiveStorageFactory
 	public IArchiveStorage getArchiveStorage(Properties ctx)
 	{
 		final int adClientId = Env.getAD_Client_ID(ctx);
-		final String storageType = getStorageType(ctx, adClientId);
 		final AccessMode accessMode = getAccessMode(ctx);
+		final String storageType = getStorageType(ctx, adClientId, accessMode);
 
 		final IArchiveStorage storage = getArchiveStorage(ctx, adClientId, storageType, accessMode);
 		return storage;
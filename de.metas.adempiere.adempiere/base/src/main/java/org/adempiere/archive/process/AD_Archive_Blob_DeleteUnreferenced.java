@@ -0,0 +1,62 @@
+package org.adempiere.archive.process;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import org.adempiere.archive.api.IArchiveStorageFactory;
+import org.adempiere.archive.api.IArchiveStorageFactory.AccessMode;
+import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.Services;
+
+import de.metas.process.JavaProcess;
+import de.metas.process.Param;
+import de.metas.process.RunOutOfTrx;
+
+/**
+ * Deletes the current client's content addressed archive blobs which are no longer referenced by any archive.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ * @see ContentAddressedArchiveStorage#deleteUnreferencedBlobs(long)
+ */
+public class AD_Archive_Blob_DeleteUnreferenced extends JavaProcess
+{
+	@Param(parameterName = "GracePeriodHours")
+	private int p_GracePeriodHours;
+	private static final int DEFAULT_GracePeriodHours = 24;
+
+	@Override
+	@RunOutOfTrx
+	protected String doIt() throws Exception
+	{
+		final IArchiveStorage storage = Services.get(IArchiveStorageFactory.class).getArchiveStorage(getCtx(), IArchiveStorageFactory.STORAGETYPE_ContentAddressed, AccessMode.SERVER);
+		if (!(storage instanceof ContentAddressedArchiveStorage))
+		{
+			throw new AdempiereException("Not a content addressed storage: " + storage);
+		}
+
+		final int gracePeriodHours = p_GracePeriodHours > 0 ? p_GracePeriodHours : DEFAULT_GracePeriodHours;
+		final int countDeleted = ((ContentAddressedArchiveStorage)storage).deleteUnreferencedBlobs(gracePeriodHours * 60L * 60L * 1000L);
+		return "@Deleted@ #" + countDeleted;
+	}
+}
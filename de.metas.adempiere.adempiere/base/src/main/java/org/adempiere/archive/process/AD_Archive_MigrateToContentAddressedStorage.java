@@ -0,0 +1,149 @@
+package org.adempiere.archive.process;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
+import org.adempiere.ad.dao.impl.TypedSqlQueryFilter;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.archive.api.IArchiveBL;
+import org.adempiere.archive.api.IArchiveStorageFactory;
+import org.adempiere.archive.api.IArchiveStorageFactory.AccessMode;
+import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.I_AD_Archive;
+import org.compiere.util.TrxRunnableAdapter;
+
+import de.metas.process.JavaProcess;
+import de.metas.process.Param;
+import de.metas.process.RunOutOfTrx;
+
+/**
+ * Moves the current client's database and filesystem archives to the content addressed storage (see {@link org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage}).
+ * <p>
+ * The archives are migrated in batches, each batch in its own transaction. If a batch fails, it's logged and the process continues with the next batch.
+ * The blobs which were already stored for a failed batch are not referenced and will be deleted by {@link AD_Archive_Blob_DeleteUnreferenced}.
+ * <p>
+ * NOTE: the files of migrated filesystem archives are not deleted.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class AD_Archive_MigrateToContentAddressedStorage extends JavaProcess
+{
+	// services
+	private final transient IQueryBL queryBL = Services.get(IQueryBL.class);
+	private final transient ITrxManager trxManager = Services.get(ITrxManager.class);
+	private final transient IArchiveBL archiveBL = Services.get(IArchiveBL.class);
+
+	@Param(parameterName = "BatchSize")
+	private int p_BatchSize;
+	private static final int DEFAULT_BatchSize = 100;
+
+	private int countMigrated = 0;
+	private int countFailed = 0;
+
+	@Override
+	@RunOutOfTrx
+	protected String doIt() throws Exception
+	{
+		final int batchSize = p_BatchSize > 0 ? p_BatchSize : DEFAULT_BatchSize;
+		final IArchiveStorage storage = Services.get(IArchiveStorageFactory.class).getArchiveStorage(getCtx(), IArchiveStorageFactory.STORAGETYPE_ContentAddressed, AccessMode.SERVER);
+
+		int lastArchiveId = 0;
+		while (true)
+		{
+			final List<Integer> archiveIds = retrieveArchiveIdsToMigrate(lastArchiveId, batchSize);
+			if (archiveIds.isEmpty())
+			{
+				break;
+			}
+			lastArchiveId = archiveIds.get(archiveIds.size() - 1);
+
+			migrateBatch(archiveIds, storage);
+		}
+
+		return "@Updated@ #" + countMigrated + (countFailed > 0 ? ", @Error@ #" + countFailed : "");
+	}
+
+	private List<Integer> retrieveArchiveIdsToMigrate(final int lastArchiveId, final int batchSize)
+	{
+		return queryBL.createQueryBuilder(I_AD_Archive.class, getCtx(), ITrx.TRXNAME_None)
+				.addEqualsFilter(I_AD_Archive.COLUMNNAME_AD_Client_ID, getAD_Client_ID())
+				.addCompareFilter(I_AD_Archive.COLUMN_AD_Archive_ID, Operator.GREATER, lastArchiveId)
+				.addNotEqualsFilter(I_AD_Archive.COLUMNNAME_BinaryData, null)
+				.filter(TypedSqlQueryFilter.of("AD_Archive_Blob_GetKey(BinaryData) IS NULL")) // not already migrated
+				.orderBy()
+				.addColumnAscending(I_AD_Archive.COLUMNNAME_AD_Archive_ID)
+				.endOrderBy()
+				.setLimit(batchSize)
+				.create()
+				.listIds();
+	}
+
+	private void migrateBatch(final List<Integer> archiveIds, final IArchiveStorage storage)
+	{
+		trxManager.run(new TrxRunnableAdapter()
+		{
+			private int countMigratedInBatch = 0;
+
+			@Override
+			public void run(final String localTrxName) throws Exception
+			{
+				for (final int archiveId : archiveIds)
+				{
+					final I_AD_Archive archive = InterfaceWrapperHelper.create(getCtx(), archiveId, I_AD_Archive.class, ITrx.TRXNAME_ThreadInherited);
+					final byte[] data = archiveBL.getBinaryData(archive);
+					if (data == null || data.length == 0)
+					{
+						continue;
+					}
+
+					storage.setBinaryData(archive, data);
+					InterfaceWrapperHelper.save(archive);
+					countMigratedInBatch++;
+				}
+			}
+
+			@Override
+			public void doFinally()
+			{
+				countMigrated += countMigratedInBatch;
+			}
+
+			@Override
+			public boolean doCatch(final Throwable ex) throws Throwable
+			{
+				log.warn("Failed migrating archives {}", archiveIds, ex);
+				addLog("@Error@ AD_Archive_IDs {0}: {1}", archiveIds, ex.getLocalizedMessage());
+				countMigratedInBatch = 0;
+				countFailed += archiveIds.size();
+				return ROLLBACK;
+			}
+		});
+	}
+}
@@ -0,0 +1,80 @@
+package org.adempiere.archive.spi;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Store of immutable blobs, identified by a key which is derived from their content (see {@link org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage}).
+ * <p>
+ * Since the key is derived from the content, writing a blob which already exists has no effect besides marking it as recently used.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public interface IArchiveBlobStore
+{
+	@FunctionalInterface
+	interface BlobWriter
+	{
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Marks the blob as recently used, so that it's not deleted by {@link #delete(String)} callers which are honoring a grace period (see {@link #getLastModified(String)}).
+	 *
+	 * @return <code>true</code> if the blob exists
+	 */
+	boolean touch(String blobKey);
+
+	/**
+	 * Stores the blob. The blob shall become visible to readers only after it was completely written.
+	 *
+	 * @param writer writes the (already encoded) blob content
+	 */
+	void put(String blobKey, BlobWriter writer);
+
+	/**
+	 * @return stream of the stored blob content; the caller is responsible for closing it
+	 * @throws org.adempiere.exceptions.AdempiereException if the blob does not exist
+	 */
+	InputStream get(String blobKey);
+
+	/**
+	 * @return local file of the stored blob or <code>null</code> if this store is not keeping the blobs in local files
+	 */
+	File getFile(String blobKey);
+
+	/**
+	 * @return milliseconds since epoch when the blob was stored or touched the last time, or <code>0</code> if it does not exist
+	 */
+	long getLastModified(String blobKey);
+
+	/**
+	 * @return <code>true</code> if the blob existed and was deleted
+	 */
+	boolean delete(String blobKey);
+}
@@ -23,6 +23,7 @@ package org.adempiere.archive.spi;
  */
 
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.Properties;
 
@@ -51,12 +52,24 @@ public interface IArchiveStorage
 	byte[] getBinaryData(I_AD_Archive archive);
 
 	/**
-	 * Get Data as Input Stream
+	 * Get Data as Input Stream.
+	 * <p>
+	 * Implementations shall stream the data instead of loading it into memory, so prefer this method over {@link #getBinaryData(I_AD_Archive)} when processing big or many archives.
 	 * 
 	 * @param archive
-	 * @return input stream or null
+	 * @return input stream or null; the caller is responsible for closing it
 	 */
 	InputStream getBinaryDataAsStream(I_AD_Archive archive);
 
+	/**
+	 * Gets the file in which the archive's data is stored as it is (i.e. not compressed), if any.
+	 * <p>
+	 * Callers can use it to read the data without copying it. The file shall not be modified.
+	 * 
+	 * @param archive
+	 * @return file or <code>null</code> if this storage is not keeping the archive data in a plain file
+	 */
+	File getBinaryDataFile(I_AD_Archive archive);
+
 	void setBinaryData(I_AD_Archive archive, byte[] data);
 }
@@ -24,6 +24,7 @@ package org.adempiere.archive.spi.impl;
 
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.util.Properties;
 
@@ -65,6 +66,15 @@ public abstract class AbstractArchiveStorage implements IArchiveStorage
 		return new ByteArrayInputStream(inflatedData);
 	}
 
+	/**
+	 * @return <code>null</code>; storages which are keeping the data in plain files shall override it.
+	 */
+	@Override
+	public File getBinaryDataFile(final I_AD_Archive archive)
+	{
+		return null;
+	}
+
 	protected IArchiveStorageFactory getArchiveStorageFactory()
 	{
 		return Services.get(IArchiveStorageFactory.class);
@@ -0,0 +1,142 @@
+package org.adempiere.archive.spi.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.Check;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+
+/**
+ * Compresses archive blobs to GZIP format.
+ * <p>
+ * Data bigger than the chunk size is split into chunks which are compressed in parallel. Each chunk becomes a separate GZIP member; the members are written in order, so the result is a valid multi-member GZIP stream which can be read with {@link java.util.zip.GZIPInputStream}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */ final class ArchiveBlobCompressor
+{
+	private static final ThreadPoolExecutor executor = createExecutor();
+
+	private final int level;
+	private final int chunkSize;
+
+	/* package */ ArchiveBlobCompressor(final int level, final int chunkSize)
+	{
+		super();
+		Check.assume(level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION, "Compression level {} shall be between {} and {}", level, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION);
+		Check.assume(chunkSize > 0, "chunkSize > 0");
+		this.level = level;
+		this.chunkSize = chunkSize;
+	}
+
+	private static ThreadPoolExecutor createExecutor()
+	{
+		final int threadsCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				threadsCount, // corePoolSize
+				threadsCount, // maximumPoolSize
+				60, TimeUnit.SECONDS, // keepAliveTime
+				new ArrayBlockingQueue<>(threadsCount * 4),
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(ArchiveBlobCompressor.class.getSimpleName())
+						.setDaemon(true)
+						.build(),
+				new ThreadPoolExecutor.CallerRunsPolicy() // compress on caller thread when the queue is full
+		);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ArchiveBlobCompressor [level=" + level + ", chunkSize=" + chunkSize + "]";
+	}
+
+	public void compress(final byte[] data, final OutputStream out) throws IOException
+	{
+		if (data.length <= chunkSize)
+		{
+			out.write(compressChunk(data, 0, data.length));
+			return;
+		}
+
+		final List<Future<byte[]>> chunks = new ArrayList<>();
+		try
+		{
+			for (int offset = 0; offset < data.length; offset += chunkSize)
+			{
+				final int chunkOffset = offset;
+				final int chunkLength = Math.min(chunkSize, data.length - offset);
+				chunks.add(executor.submit(() -> compressChunk(data, chunkOffset, chunkLength)));
+			}
+
+			for (final Future<byte[]> chunk : chunks)
+			{
+				out.write(chunk.get());
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new AdempiereException("Interrupted while compressing", e);
+		}
+		catch (final ExecutionException e)
+		{
+			throw AdempiereException.wrapIfNeeded(e.getCause());
+		}
+		finally
+		{
+			chunks.forEach(chunk -> chunk.cancel(false));
+		}
+	}
+
+	private byte[] compressChunk(final byte[] data, final int offset, final int length) throws IOException
+	{
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+		try (final GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024)
+		{
+			{
+				def.setLevel(level);
+			}
+		})
+		{
+			gzip.write(data, offset, length);
+		}
+		return out.toByteArray();
+	}
+}
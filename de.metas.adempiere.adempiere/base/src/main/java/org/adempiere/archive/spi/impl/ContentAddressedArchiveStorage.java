@@ -0,0 +1,406 @@
+package org.adempiere.archive.spi.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.archive.spi.IArchiveBlobStore;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.exceptions.DBException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.IClientDAO;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Check;
+import org.adempiere.util.Services;
+import org.compiere.Adempiere;
+import org.compiere.model.I_AD_Archive;
+import org.compiere.model.I_AD_Client;
+import org.compiere.util.DB;
+import org.slf4j.Logger;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import de.metas.logging.LogManager;
+
+/**
+ * Content addressed archive storage.
+ * <p>
+ * The archive data is stored as a blob in an {@link IArchiveBlobStore}, identified by the SHA-256 hash of the data, so identical documents (e.g. reprints, dunning copies) are stored only once.
+ * <code>AD_Archive.BinaryData</code> contains only the blob reference (see {@link #isContentAddressed(I_AD_Archive)}).
+ * <p>
+ * How many archives are referencing a blob is counted in <code>AD_Archive_Blob</code> by a database trigger on <code>AD_Archive</code>.
+ * Blobs which are no longer referenced are deleted by {@link #deleteUnreferencedBlobs(long)}, together with their <code>AD_Archive_Blob</code> record.
+ * {@link #setBinaryData(I_AD_Archive, byte[])} is locking that record in archive's transaction, so a blob can't be deleted while a new reference to it is about to be saved.
+ * <p>
+ * Blobs are compressed with the configured level (see {@link #SYSCONFIG_CompressionLevel}); big blobs are compressed in parallel chunks.
+ * If the level is {@link Deflater#NO_COMPRESSION}, the blobs are stored as they are, so they can be read directly from file (see {@link #getBinaryDataFile(I_AD_Archive)}).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ContentAddressedArchiveStorage extends AbstractArchiveStorage
+{
+	private static final Logger logger = LogManager.getLogger(ContentAddressedArchiveStorage.class);
+
+	/** If enabled (on client level), new archives are stored in this storage; see {@link org.adempiere.archive.api.impl.ArchiveStorageFactory} */
+	public static final String SYSCONFIG_Enabled = "org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage.Enabled";
+	/** Blob store root directory; if not set, the "cas" subfolder of client's archive path is used */
+	private static final String SYSCONFIG_RootPath = "org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage.RootPath";
+	/** Compression level, from 0 (no compression) to 9 (best compression) */
+	/* package */ static final String SYSCONFIG_CompressionLevel = "org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage.CompressionLevel";
+	private static final int DEFAULT_CompressionLevel = Deflater.BEST_SPEED;
+	/** Blobs bigger than this are compressed in parallel chunks of this size */
+	/* package */ static final String SYSCONFIG_CompressionChunkSizeKB = "org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage.CompressionChunkSizeKB";
+	private static final int DEFAULT_CompressionChunkSizeKB = 1024;
+
+	/** Prefix of the blob reference in AD_Archive.BinaryData; keep in sync with the AD_Archive_Blob_GetKey database function */
+	private static final String BLOB_REFERENCE_PREFIX = "CAS1:";
+	private static final byte[] BLOB_REFERENCE_PREFIX_BYTES = BLOB_REFERENCE_PREFIX.getBytes(StandardCharsets.UTF_8);
+	private static final String BLOB_KEY_SUFFIX_GZIP = ".gz";
+
+	private int adClientId;
+	private IArchiveBlobStore blobStore;
+	private ArchiveBlobCompressor compressor; // null if no compression
+
+	public ContentAddressedArchiveStorage()
+	{
+		super();
+	}
+
+	@Override
+	public void init(final Properties ctx, final int adClientId)
+	{
+		this.adClientId = adClientId;
+		this.blobStore = createBlobStore(ctx, adClientId);
+
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final int compressionLevel = sysConfigBL.getIntValue(SYSCONFIG_CompressionLevel, DEFAULT_CompressionLevel, adClientId);
+		if (compressionLevel == Deflater.NO_COMPRESSION)
+		{
+			this.compressor = null;
+		}
+		else
+		{
+			final int chunkSizeKB = sysConfigBL.getIntValue(SYSCONFIG_CompressionChunkSizeKB, DEFAULT_CompressionChunkSizeKB, adClientId);
+			this.compressor = new ArchiveBlobCompressor(compressionLevel, chunkSizeKB * 1024);
+		}
+
+		logger.info("Initialized: {}", this);
+	}
+
+	/**
+	 * Creates the blob store of given client. Extending classes can override it to keep the blobs in another kind of store.
+	 */
+	protected IArchiveBlobStore createBlobStore(final Properties ctx, final int adClientId)
+	{
+		String rootPath = Services.get(ISysConfigBL.class).getValue(SYSCONFIG_RootPath, null, adClientId);
+		if (Check.isEmpty(rootPath, true))
+		{
+			final I_AD_Client client = Services.get(IClientDAO.class).retriveClient(ctx, adClientId);
+			rootPath = FilesystemArchiveStorage.getArchivePath(client) + "cas";
+		}
+
+		// NOTE: blobs are reference counted per client, so each client has its own folder
+		return new FilesystemArchiveBlobStore(new File(rootPath, String.valueOf(adClientId)));
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ContentAddressedArchiveStorage [AD_Client_ID=" + adClientId + ", blobStore=" + blobStore + ", compressor=" + compressor + "]";
+	}
+
+	/**
+	 * @return true if given archive's data is stored in a content addressed storage
+	 */
+	public static boolean isContentAddressed(final I_AD_Archive archive)
+	{
+		return getBlobKey(archive) != null;
+	}
+
+	private static String getBlobKey(final I_AD_Archive archive)
+	{
+		final byte[] data = archive.getBinaryData();
+		if (data == null || data.length <= BLOB_REFERENCE_PREFIX_BYTES.length)
+		{
+			return null;
+		}
+
+		// NOTE: compare the bytes because the data might be a (big) database archive
+		for (int i = 0; i < BLOB_REFERENCE_PREFIX_BYTES.length; i++)
+		{
+			if (data[i] != BLOB_REFERENCE_PREFIX_BYTES[i])
+			{
+				return null;
+			}
+		}
+
+		return new String(data, BLOB_REFERENCE_PREFIX_BYTES.length, data.length - BLOB_REFERENCE_PREFIX_BYTES.length, StandardCharsets.UTF_8);
+	}
+
+	private static String getBlobKeyNotNull(final I_AD_Archive archive)
+	{
+		final String blobKey = getBlobKey(archive);
+		if (blobKey == null)
+		{
+			throw new AdempiereException("Archive's data is not stored in a content addressed storage: " + archive);
+		}
+		return blobKey;
+	}
+
+	private static boolean isCompressed(final String blobKey)
+	{
+		return blobKey.endsWith(BLOB_KEY_SUFFIX_GZIP);
+	}
+
+	@Override
+	public I_AD_Archive newArchive(final Properties ctx, final String trxName)
+	{
+		final I_AD_Archive archive = super.newArchive(ctx, trxName);
+		archive.setIsFileSystem(true);
+		return archive;
+	}
+
+	@Override
+	public byte[] getBinaryData(final I_AD_Archive archive)
+	{
+		try (final InputStream in = getBinaryDataAsStream(archive))
+		{
+			return ByteStreams.toByteArray(in);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed reading the data of " + archive, e);
+		}
+	}
+
+	@Override
+	public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
+	{
+		final String blobKey = getBlobKeyNotNull(archive);
+		final InputStream in = blobStore.get(blobKey);
+		if (!isCompressed(blobKey))
+		{
+			return in;
+		}
+
+		try
+		{
+			return new GZIPInputStream(in, 64 * 1024);
+		}
+		catch (final IOException e)
+		{
+			closeQuietly(in);
+			throw new AdempiereException("Failed reading the data of " + archive, e);
+		}
+	}
+
+	/**
+	 * @return the blob's file if it's not compressed, <code>null</code> otherwise
+	 */
+	@Override
+	public File getBinaryDataFile(final I_AD_Archive archive)
+	{
+		final String blobKey = getBlobKeyNotNull(archive);
+		if (isCompressed(blobKey))
+		{
+			return null;
+		}
+		return blobStore.getFile(blobKey);
+	}
+
+	@Override
+	public void setBinaryData(final I_AD_Archive archive, final byte[] inflatedData)
+	{
+		if (inflatedData == null || inflatedData.length == 0)
+		{
+			throw new IllegalArgumentException("InflatedData is NULL");
+		}
+
+		final String blobKey = createBlobKey(inflatedData);
+		lockBlob(blobKey, InterfaceWrapperHelper.getTrxName(archive));
+
+		// NOTE: touching an existing blob also marks it as recently used, see the grace period of deleteUnreferencedBlobs
+		if (blobStore.touch(blobKey))
+		{
+			logger.debug("Reusing existing blob {} for {}", blobKey, archive);
+		}
+		else
+		{
+			final ArchiveBlobCompressor compressor = this.compressor;
+			blobStore.put(blobKey, out -> {
+				if (compressor == null)
+				{
+					out.write(inflatedData);
+				}
+				else
+				{
+					compressor.compress(inflatedData, out);
+				}
+			});
+			logger.debug("Stored blob {} for {}", blobKey, archive);
+		}
+
+		archive.setBinaryData((BLOB_REFERENCE_PREFIX + blobKey).getBytes(StandardCharsets.UTF_8));
+		archive.setIsFileSystem(true);
+	}
+
+	private String createBlobKey(final byte[] inflatedData)
+	{
+		final String hash = Hashing.sha256().hashBytes(inflatedData).toString();
+		return compressor == null ? hash : hash + BLOB_KEY_SUFFIX_GZIP;
+	}
+
+	/**
+	 * Creates the blob's <code>AD_Archive_Blob</code> record out of transaction (if needed) and locks it in given transaction.
+	 * <p>
+	 * Because the record is committed right away, a blob whose archive is rolled back is still known and will be deleted by {@link #deleteUnreferencedBlobs(long)}.
+	 * <p>
+	 * The lock is held until given transaction ends, so {@link #deleteUnreferencedBlobs(long)} is either waiting for it and then finds the blob referenced,
+	 * or it already deleted the blob and we are storing it again.
+	 * If there is no transaction, the record is not locked beyond this call and only the grace period is protecting the blob.
+	 */
+	private void lockBlob(final String blobKey, final String trxName)
+	{
+		if (Adempiere.isUnitTestMode())
+		{
+			return; // no database, no AD_Archive_Blob records
+		}
+
+		final Object[] sqlParams = new Object[] { adClientId, blobKey };
+		while (true)
+		{
+			DB.executeFunctionCallEx(ITrx.TRXNAME_None, "select AD_Archive_Blob_Register(?,?)", sqlParams);
+			if (DB.getSQLValueEx(trxName, "select AD_Archive_Blob_Lock(?,?)", sqlParams) > 0)
+			{
+				return;
+			}
+
+			// the record was deleted by deleteUnreferencedBlobs in meantime => register it again
+			logger.debug("Blob {} was deleted while locking it. Retrying.", blobKey);
+		}
+	}
+
+	/**
+	 * Deletes the blobs of this storage's client which are no longer referenced by any archive.
+	 * <p>
+	 * Blobs which were stored or reused within the grace period are skipped, because the archives referencing them might not be committed yet.
+	 * Each blob is deleted in the same transaction as its <code>AD_Archive_Blob</code> record, see {@link #lockBlob(String, String)}.
+	 *
+	 * @param gracePeriodMillis
+	 * @return how many blobs were deleted
+	 */
+	public int deleteUnreferencedBlobs(final long gracePeriodMillis)
+	{
+		Check.assume(gracePeriodMillis >= 0, "gracePeriodMillis >= 0");
+
+		int countDeleted = 0;
+		for (final String blobKey : retrieveUnreferencedBlobKeys())
+		{
+			final long lastModifiedThreshold = System.currentTimeMillis() - gracePeriodMillis;
+			if (blobStore.getLastModified(blobKey) > lastModifiedThreshold)
+			{
+				continue; // recently used
+			}
+
+			if (deleteUnreferencedBlob(blobKey))
+			{
+				countDeleted++;
+			}
+		}
+
+		logger.info("Deleted {} unreferenced blobs from {}", countDeleted, blobStore);
+		return countDeleted;
+	}
+
+	private boolean deleteUnreferencedBlob(final String blobKey)
+	{
+		return Services.get(ITrxManager.class).call(() -> {
+			// NOTE: if the record is locked by setBinaryData, we wait until that transaction ends
+			final int countReferenceDeleted = DB.executeUpdateEx("DELETE FROM AD_Archive_Blob WHERE AD_Client_ID=? AND BlobKey=? AND RefCount<=0",
+					new Object[] { adClientId, blobKey },
+					ITrx.TRXNAME_ThreadInherited);
+			if (countReferenceDeleted <= 0)
+			{
+				return false; // referenced again in meantime
+			}
+
+			return blobStore.delete(blobKey);
+		});
+	}
+
+	private List<String> retrieveUnreferencedBlobKeys()
+	{
+		final String sql = "SELECT BlobKey FROM AD_Archive_Blob WHERE AD_Client_ID=? AND RefCount<=0";
+		final Object[] sqlParams = new Object[] { adClientId };
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+
+			final List<String> blobKeys = new ArrayList<>();
+			while (rs.next())
+			{
+				blobKeys.add(rs.getString(1));
+			}
+			return blobKeys;
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql, sqlParams);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	private static void closeQuietly(final InputStream in)
+	{
+		try
+		{
+			in.close();
+		}
+		catch (final IOException e)
+		{
+			logger.warn("Failed closing {}. Ignored.", in, e);
+		}
+	}
+}
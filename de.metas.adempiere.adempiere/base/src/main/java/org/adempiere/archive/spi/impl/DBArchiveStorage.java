@@ -25,6 +25,8 @@ package org.adempiere.archive.spi.impl;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Properties;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
@@ -34,6 +36,9 @@ import java.util.zip.ZipOutputStream;
 import org.adempiere.exceptions.AdempiereException;
 import org.compiere.model.I_AD_Archive;
 import org.slf4j.Logger;
+
+import com.google.common.io.ByteStreams;
+
 import de.metas.logging.LogManager;
 
 /**
@@ -62,49 +67,57 @@ public class DBArchiveStorage extends AbstractArchiveStorage
 	@Override
 	public byte[] getBinaryData(final I_AD_Archive archive)
 	{
-		byte[] deflatedData = archive.getBinaryData();
-		// m_deflated = null;
-		// m_inflated = null;
+		try (final InputStream in = getBinaryDataAsStream(archive))
+		{
+			if (in == null)
+			{
+				return null;
+			}
+
+			final byte[] inflatedData = ByteStreams.toByteArray(in);
+			logger.debug("Size={}", inflatedData.length);
+			return inflatedData;
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException(e);
+		}
+	} // getBinaryData
+
+	/**
+	 * @return stream which is inflating the data while it's read, or <code>null</code> if there is no data
+	 */
+	@Override
+	public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
+	{
+		final byte[] deflatedData = archive.getBinaryData();
 		if (deflatedData == null)
+		{
 			return null;
+		}
 		//
-		logger.debug("ZipSize=" + deflatedData.length);
-		// m_deflated = new Integer(deflatedData.length);
+		logger.debug("ZipSize={}", deflatedData.length);
 		if (deflatedData.length == 0)
+		{
 			return null;
+		}
 
-		byte[] inflatedData = null;
 		try
 		{
-			ByteArrayInputStream in = new ByteArrayInputStream(deflatedData);
-			ZipInputStream zip = new ZipInputStream(in);
-			ZipEntry entry = zip.getNextEntry();
-			if (entry != null) // just one entry
+			final ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(deflatedData));
+			final ZipEntry entry = zip.getNextEntry();
+			if (entry == null) // no entry
 			{
-				ByteArrayOutputStream out = new ByteArrayOutputStream();
-				byte[] buffer = new byte[2048];
-				int length = zip.read(buffer);
-				while (length != -1)
-				{
-					out.write(buffer, 0, length);
-					length = zip.read(buffer);
-				}
-				//
-				inflatedData = out.toByteArray();
-				logger.debug("Size=" + inflatedData.length + " - zip=" + entry.getCompressedSize()
-						+ "(" + entry.getSize() + ") "
-						+ (entry.getCompressedSize() * 100 / entry.getSize()) + "%");
-				// m_inflated = new Integer(inflatedData.length);
+				zip.close();
+				return null;
 			}
+			return zip;
 		}
-		catch (Exception e)
+		catch (final IOException e)
 		{
-			// logger.error("", e);
-			inflatedData = null;
 			throw new AdempiereException(e);
 		}
-		return inflatedData;
-	} // getBinaryData
+	}
 
 	@Override
 	public void setBinaryData(I_AD_Archive archive, byte[] inflatedData)
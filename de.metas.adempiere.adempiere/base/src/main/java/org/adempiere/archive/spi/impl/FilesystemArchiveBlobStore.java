@@ -0,0 +1,189 @@
+package org.adempiere.archive.spi.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.adempiere.archive.spi.IArchiveBlobStore;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.Check;
+import org.slf4j.Logger;
+
+import de.metas.logging.LogManager;
+
+/**
+ * {@link IArchiveBlobStore} which keeps each blob in a file of a local (or mounted) directory.
+ * <p>
+ * The blobs are sharded by the first characters of their keys (e.g. <code>root/ab/cd/abcd...</code>), so that no directory gets too many entries.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class FilesystemArchiveBlobStore implements IArchiveBlobStore
+{
+	private static final Logger logger = LogManager.getLogger(FilesystemArchiveBlobStore.class);
+
+	private static final int SHARD_LENGTH = 2;
+	private static final int SHARD_LEVELS = 2;
+
+	private final File rootDir;
+
+	public FilesystemArchiveBlobStore(final File rootDir)
+	{
+		super();
+		Check.assumeNotNull(rootDir, "Parameter rootDir is not null");
+		this.rootDir = rootDir;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "FilesystemArchiveBlobStore [rootDir=" + rootDir + "]";
+	}
+
+	private File getBlobFile(final String blobKey)
+	{
+		Check.assumeNotEmpty(blobKey, "blobKey not empty");
+		Check.assume(blobKey.length() > SHARD_LENGTH * SHARD_LEVELS, "Blob key {} is long enough to be sharded", blobKey);
+		Check.assume(blobKey.matches("[0-9a-zA-Z.]+"), "Blob key {} contains only letters, digits and dots", blobKey);
+
+		File dir = rootDir;
+		for (int level = 0; level < SHARD_LEVELS; level++)
+		{
+			dir = new File(dir, blobKey.substring(level * SHARD_LENGTH, (level + 1) * SHARD_LENGTH));
+		}
+		return new File(dir, blobKey);
+	}
+
+	@Override
+	public boolean touch(final String blobKey)
+	{
+		// NOTE: setLastModified returns false if the file does not exist
+		return getBlobFile(blobKey).setLastModified(System.currentTimeMillis());
+	}
+
+	@Override
+	public void put(final String blobKey, final BlobWriter writer)
+	{
+		final File file = getBlobFile(blobKey);
+		final File dir = file.getParentFile();
+		if (!dir.exists() && !dir.mkdirs() && !dir.isDirectory())
+		{
+			throw new AdempiereException("Unable to create folder: " + dir);
+		}
+
+		File tempFile = null;
+		try
+		{
+			// write to a temporary file first, so that readers never see a partially written blob
+			tempFile = File.createTempFile(blobKey, ".tmp", dir);
+			try (final OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))
+			{
+				writer.writeTo(out);
+			}
+
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			tempFile = null;
+			logger.debug("Stored {}", file);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed storing blob " + blobKey + " in " + this, e);
+		}
+		finally
+		{
+			deleteFile(tempFile);
+		}
+	}
+
+	@Override
+	public InputStream get(final String blobKey)
+	{
+		final File file = getBlobFile(blobKey);
+		try
+		{
+			return new BufferedInputStream(new FileInputStream(file));
+		}
+		catch (final FileNotFoundException e)
+		{
+			throw new AdempiereException("Blob not found: " + file.getAbsolutePath(), e);
+		}
+	}
+
+	@Override
+	public File getFile(final String blobKey)
+	{
+		final File file = getBlobFile(blobKey);
+		if (!file.exists())
+		{
+			throw new AdempiereException("Blob not found: " + file.getAbsolutePath());
+		}
+		return file;
+	}
+
+	@Override
+	public long getLastModified(final String blobKey)
+	{
+		return getBlobFile(blobKey).lastModified();
+	}
+
+	@Override
+	public boolean delete(final String blobKey)
+	{
+		final File file = getBlobFile(blobKey);
+		try
+		{
+			return Files.deleteIfExists(file.toPath());
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed deleting " + file.getAbsolutePath(), e);
+		}
+	}
+
+	private static void deleteFile(final File file)
+	{
+		if (file == null)
+		{
+			return;
+		}
+
+		try
+		{
+			Files.deleteIfExists(file.toPath());
+		}
+		catch (final IOException e)
+		{
+			logger.warn("Failed deleting {}. Ignored.", file, e);
+		}
+	}
+}
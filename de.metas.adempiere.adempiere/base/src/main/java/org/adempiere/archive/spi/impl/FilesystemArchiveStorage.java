@@ -23,10 +23,13 @@ package org.adempiere.archive.spi.impl;
  */
 
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Properties;
 import org.slf4j.Logger;
 import de.metas.logging.LogManager;
@@ -87,7 +90,7 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 		}
 	}
 
-	private static final String getArchivePath(final I_AD_Client config)
+	/* package */ static final String getArchivePath(final I_AD_Client config)
 	{
 		String archivePathRoot;
 		if (File.separatorChar == '\\')
@@ -138,9 +141,44 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 	 */
 	@Override
 	public byte[] getBinaryData(final I_AD_Archive archive)
+	{
+		final File file = getBinaryDataFile(archive);
+		if (file == null)
+		{
+			return null;
+		}
+
+		final byte[] dataEntry = Util.readBytes(file);
+		return dataEntry;
+	}
+
+	/**
+	 * @return stream reading directly from the archive file
+	 */
+	@Override
+	public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
+	{
+		final File file = getBinaryDataFile(archive);
+		if (file == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return new BufferedInputStream(new FileInputStream(file));
+		}
+		catch (final IOException ioe)
+		{
+			throw new AdempiereException(ioe.getLocalizedMessage(), ioe);
+		}
+	}
+
+	@Override
+	public File getBinaryDataFile(final I_AD_Archive archive)
 	{
 		checkContext();
-		
+
 		byte[] data = archive.getBinaryData();
 		// m_deflated = null;
 		// m_inflated = null;
@@ -175,8 +213,7 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 				throw new AdempiereException("File not found: " + file.getAbsolutePath());
 			}
 
-			final byte[] dataEntry = Util.readBytes(file);
-			return dataEntry;
+			return file;
 		}
 		catch (IOException ioe)
 		{
@@ -184,7 +221,6 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 			// logger.error(ioe.getLocalizedMessage(), ioe);
 			throw new AdempiereException(ioe.getLocalizedMessage(), ioe);
 		}
-		// return null;
 	}
 
 	/**
@@ -0,0 +1,796 @@
+package org.adempiere.context;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ObjectStreamException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.compiere.util.Env;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.NonNull;
+
+/**
+ * {@link Properties} implementation which is used for our contexts (see {@link Env#newTemporaryCtx()}, {@link Env#deriveCtx(Properties)}).
+ * <p>
+ * Compared to {@link Properties}, which is a synchronized {@link java.util.Hashtable}:
+ * <ul>
+ * <li>well known keys (like {@link Env#CTXNAME_AD_Client_ID}, {@link Env#CTXNAME_Date} etc) are kept in a fixed array slot
+ * <li>all the other keys (e.g. <code>WindowNo|TabNo|ColumnName</code>) are kept in a {@link ConcurrentHashMap}
+ * <li>reads are not synchronized; the slots array is never changed in place but replaced on write (copy-on-write)
+ * <li>{@link #snapshot()} is cheap: the snapshot shares the storage with this context until one of them is changed
+ * <li>like {@link Properties#Properties(Properties)}, a context can have a parent context which is used for the values which are not set in this context
+ * </ul>
+ * <p>
+ * NOTE: {@link #keySet()}, {@link #values()} and {@link #entrySet()} are live views of this context's own values (without the parent's ones);
+ * like for {@link ConcurrentHashMap}, their iterators are reflecting the state of the context at the time the iterator was created.
+ * <p>
+ * Can be disabled by setting the system property {@value #SYSTEM_PROPERTY_Enabled} to <code>false</code>, in which case {@link Env} falls back to plain {@link Properties}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class ArrayBackedContext extends Properties
+{
+	private static final long serialVersionUID = 1L;
+
+	public static final String SYSTEM_PROPERTY_Enabled = "org.adempiere.context.ArrayBackedContext.Enabled";
+	private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(SYSTEM_PROPERTY_Enabled));
+
+	private static final String[] WELLKNOWN_KEYS = new String[] {
+			Env.CTXNAME_AD_Client_ID,
+			Env.CTXNAME_AD_Client_Name,
+			Env.CTXNAME_AD_Org_ID,
+			Env.CTXNAME_AD_Org_Name,
+			Env.CTXNAME_AD_Role_ID,
+			Env.CTXNAME_AD_Role_Name,
+			Env.CTXNAME_AD_Role_UserLevel,
+			Env.CTXNAME_User_Org,
+			Env.CTXNAME_AD_User_ID,
+			Env.CTXNAME_AD_User_Name,
+			Env.CTXNAME_SalesRep_ID,
+			Env.CTXNAME_Date,
+			Env.CTXNAME_IsAllowLoginDateOverride,
+			Env.CTXNAME_AD_Session_ID,
+			Env.CTXNAME_AD_PInstance_ID,
+			Env.CTXNAME_M_Warehouse_ID,
+			Env.CTXNAME_AD_Language,
+			Env.CTXNAME_AutoNew,
+			Env.CTXNAME_AutoCommit,
+			Env.CTXNAME_IsSOTrx,
+			Env.CTXNAME_Printer,
+			Env.CTXNAME_ShowAcct,
+	};
+	private static final ImmutableMap<String, Integer> WELLKNOWN_KEY_2_INDEX;
+	static
+	{
+		final ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+		for (int i = 0; i < WELLKNOWN_KEYS.length; i++)
+		{
+			builder.put(WELLKNOWN_KEYS[i], i);
+		}
+		WELLKNOWN_KEY_2_INDEX = builder.build();
+	}
+
+	/** @return false if the array backed contexts were disabled by {@value #SYSTEM_PROPERTY_Enabled} */
+	public static boolean isEnabled()
+	{
+		return ENABLED;
+	}
+
+	/** @return new empty context */
+	public static ArrayBackedContext newInstance()
+	{
+		return new ArrayBackedContext(null, new Object[WELLKNOWN_KEYS.length], null, false);
+	}
+
+	/** @return new empty context which falls back to given <code>parent</code> for the values which are not set */
+	public static ArrayBackedContext newChild(@NonNull final Properties parent)
+	{
+		return new ArrayBackedContext(parent, new Object[WELLKNOWN_KEYS.length], null, false);
+	}
+
+	private static int getWellKnownKeyIndex(final Object key)
+	{
+		final Integer index = WELLKNOWN_KEY_2_INDEX.get(key);
+		return index == null ? -1 : index;
+	}
+
+	private final Properties parent;
+
+	/** Values of well known keys; never changed in place but replaced */
+	private volatile Object[] slots;
+
+	/** Values of all other keys; lazily created and shared with snapshots until changed */
+	private volatile ConcurrentHashMap<Object, Object> others;
+	private volatile boolean othersShared;
+
+	private ArrayBackedContext(final Properties parent, final Object[] slots, final ConcurrentHashMap<Object, Object> others, final boolean othersShared)
+	{
+		// NOTE: we are handling the parent ourselves, but we also set it as defaults,
+		// so that Properties' own code (e.g. a plain Properties which has this context as defaults) is also seeing the parent's values
+		super(parent);
+		this.parent = parent;
+		this.slots = slots;
+		this.others = others;
+		this.othersShared = othersShared;
+	}
+
+	/**
+	 * Creates a point in time copy of this context.
+	 * <p>
+	 * If this context has no parent, the snapshot is sharing the storage with this context until one of them is changed, so taking a snapshot is cheap.
+	 * If this context has a parent, the parent's values are copied into the snapshot, so the snapshot does not depend on the parent anymore.
+	 *
+	 * @return snapshot which has no parent
+	 */
+	public ArrayBackedContext snapshot()
+	{
+		if (parent != null)
+		{
+			final ArrayBackedContext snapshot = newInstance();
+			for (final String key : parent.stringPropertyNames())
+			{
+				snapshot.put(key, parent.getProperty(key));
+			}
+			forEachOwn(snapshot::put);
+			return snapshot;
+		}
+
+		synchronized (this)
+		{
+			othersShared = true;
+			return new ArrayBackedContext(null, slots, others, true);
+		}
+	}
+
+	/** @return parent context or <code>null</code> */
+	public Properties getParent()
+	{
+		return parent;
+	}
+
+	private Object getOwn(final Object key)
+	{
+		final int index = getWellKnownKeyIndex(key);
+		if (index >= 0)
+		{
+			return slots[index];
+		}
+
+		final Map<Object, Object> others = this.others;
+		return others == null ? null : others.get(key);
+	}
+
+	private synchronized Object putOwn(final Object key, final Object value)
+	{
+		final int index = getWellKnownKeyIndex(key);
+		if (index >= 0)
+		{
+			final Object[] slotsNew = slots.clone();
+			final Object valueOld = slotsNew[index];
+			slotsNew[index] = value;
+			slots = slotsNew;
+			return valueOld;
+		}
+
+		return getOthersForWriting().put(key, value);
+	}
+
+	private synchronized Object removeOwn(final Object key)
+	{
+		final int index = getWellKnownKeyIndex(key);
+		if (index >= 0)
+		{
+			final Object valueOld = slots[index];
+			if (valueOld != null)
+			{
+				final Object[] slotsNew = slots.clone();
+				slotsNew[index] = null;
+				slots = slotsNew;
+			}
+			return valueOld;
+		}
+
+		if (others == null)
+		{
+			return null;
+		}
+		return getOthersForWriting().remove(key);
+	}
+
+	/** Shall be called while holding this context's monitor */
+	private ConcurrentHashMap<Object, Object> getOthersForWriting()
+	{
+		if (others == null)
+		{
+			others = new ConcurrentHashMap<>();
+			othersShared = false;
+		}
+		else if (othersShared)
+		{
+			others = new ConcurrentHashMap<>(others);
+			othersShared = false;
+		}
+		return others;
+	}
+
+	private void forEachOwn(final BiConsumer<Object, Object> action)
+	{
+		final Object[] slots = this.slots;
+		for (int i = 0; i < slots.length; i++)
+		{
+			final Object value = slots[i];
+			if (value != null)
+			{
+				action.accept(WELLKNOWN_KEYS[i], value);
+			}
+		}
+
+		final Map<Object, Object> others = this.others;
+		if (others != null)
+		{
+			others.forEach(action);
+		}
+	}
+
+	private Map<Object, Object> toMap()
+	{
+		final Map<Object, Object> map = new LinkedHashMap<>();
+		forEachOwn(map::put);
+		return map;
+	}
+
+	//
+	// Properties & Hashtable
+	//
+
+	@Override
+	public Object get(final Object key)
+	{
+		return getOwn(key);
+	}
+
+	@Override
+	public String getProperty(final String key)
+	{
+		final Object value = getOwn(key);
+		if (value instanceof String)
+		{
+			return (String)value;
+		}
+		return parent == null ? null : parent.getProperty(key);
+	}
+
+	@Override
+	public String getProperty(final String key, final String defaultValue)
+	{
+		final String value = getProperty(key);
+		return value == null ? defaultValue : value;
+	}
+
+	@Override
+	public Object getOrDefault(final Object key, final Object defaultValue)
+	{
+		final Object value = getOwn(key);
+		return value == null ? defaultValue : value;
+	}
+
+	@Override
+	public Object put(final Object key, final Object value)
+	{
+		Objects.requireNonNull(key, "key");
+		Objects.requireNonNull(value, "value");
+		return putOwn(key, value);
+	}
+
+	@Override
+	public Object setProperty(final String key, final String value)
+	{
+		return put(key, value);
+	}
+
+	@Override
+	public synchronized Object putIfAbsent(final Object key, final Object value)
+	{
+		final Object valueOld = getOwn(key);
+		if (valueOld != null)
+		{
+			return valueOld;
+		}
+		return put(key, value);
+	}
+
+	@Override
+	public void putAll(final Map<? extends Object, ? extends Object> map)
+	{
+		map.forEach(this::put);
+	}
+
+	@Override
+	public Object remove(final Object key)
+	{
+		if (key == null)
+		{
+			throw new NullPointerException("key");
+		}
+		return removeOwn(key);
+	}
+
+	@Override
+	public synchronized boolean remove(final Object key, final Object value)
+	{
+		final Object valueOld = getOwn(key);
+		if (valueOld == null || !valueOld.equals(value))
+		{
+			return false;
+		}
+		removeOwn(key);
+		return true;
+	}
+
+	@Override
+	public synchronized boolean replace(final Object key, final Object oldValue, final Object newValue)
+	{
+		final Object valueCurrent = getOwn(key);
+		if (valueCurrent == null || !valueCurrent.equals(oldValue))
+		{
+			return false;
+		}
+		put(key, newValue);
+		return true;
+	}
+
+	@Override
+	public synchronized Object replace(final Object key, final Object value)
+	{
+		final Object valueCurrent = getOwn(key);
+		if (valueCurrent == null)
+		{
+			return null;
+		}
+		return put(key, value);
+	}
+
+	@Override
+	public synchronized Object computeIfAbsent(final Object key, final Function<? super Object, ? extends Object> mappingFunction)
+	{
+		final Object value = getOwn(key);
+		if (value != null)
+		{
+			return value;
+		}
+
+		final Object valueNew = mappingFunction.apply(key);
+		if (valueNew != null)
+		{
+			put(key, valueNew);
+		}
+		return valueNew;
+	}
+
+	@Override
+	public synchronized Object computeIfPresent(final Object key, final BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction)
+	{
+		final Object valueOld = getOwn(key);
+		if (valueOld == null)
+		{
+			return null;
+		}
+
+		return putOrRemove(key, remappingFunction.apply(key, valueOld));
+	}
+
+	@Override
+	public synchronized Object compute(final Object key, final BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction)
+	{
+		final Object valueOld = getOwn(key);
+		return putOrRemove(key, remappingFunction.apply(key, valueOld));
+	}
+
+	@Override
+	public synchronized Object merge(final Object key, final Object value, final BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction)
+	{
+		Objects.requireNonNull(value, "value");
+		Objects.requireNonNull(remappingFunction, "remappingFunction");
+
+		final Object valueOld = getOwn(key);
+		final Object valueNew = valueOld == null ? value : remappingFunction.apply(valueOld, value);
+		return putOrRemove(key, valueNew);
+	}
+
+	@Override
+	public synchronized void replaceAll(final BiFunction<? super Object, ? super Object, ? extends Object> function)
+	{
+		Objects.requireNonNull(function, "function");
+		toMap().forEach((key, value) -> put(key, function.apply(key, value)));
+	}
+
+	/** Shall be called while holding this context's monitor */
+	private Object putOrRemove(final Object key, final Object valueNew)
+	{
+		if (valueNew == null)
+		{
+			remove(key);
+		}
+		else
+		{
+			put(key, valueNew);
+		}
+		return valueNew;
+	}
+
+	@Override
+	public boolean containsKey(final Object key)
+	{
+		return getOwn(key) != null;
+	}
+
+	@Override
+	public boolean contains(final Object value)
+	{
+		return toMap().containsValue(value);
+	}
+
+	@Override
+	public boolean containsValue(final Object value)
+	{
+		return contains(value);
+	}
+
+	@Override
+	public int size()
+	{
+		int size = 0;
+		for (final Object value : slots)
+		{
+			if (value != null)
+			{
+				size++;
+			}
+		}
+
+		final Map<Object, Object> others = this.others;
+		return others == null ? size : size + others.size();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	@Override
+	public synchronized void clear()
+	{
+		slots = new Object[WELLKNOWN_KEYS.length];
+		others = null;
+		othersShared = false;
+	}
+
+	@Override
+	public void forEach(final BiConsumer<? super Object, ? super Object> action)
+	{
+		forEachOwn(action::accept);
+	}
+
+	@Override
+	public Enumeration<Object> keys()
+	{
+		return Collections.enumeration(keySet());
+	}
+
+	@Override
+	public Enumeration<Object> elements()
+	{
+		return Collections.enumeration(values());
+	}
+
+	@Override
+	public Set<Object> keySet()
+	{
+		return new AbstractSet<Object>()
+		{
+			@Override
+			public Iterator<Object> iterator()
+			{
+				return new OwnEntriesIterator<>(Map.Entry::getKey);
+			}
+
+			@Override
+			public int size()
+			{
+				return ArrayBackedContext.this.size();
+			}
+
+			@Override
+			public boolean contains(final Object key)
+			{
+				return containsKey(key);
+			}
+
+			@Override
+			public boolean remove(final Object key)
+			{
+				return key != null && ArrayBackedContext.this.remove(key) != null;
+			}
+
+			@Override
+			public void clear()
+			{
+				ArrayBackedContext.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Collection<Object> values()
+	{
+		return new AbstractCollection<Object>()
+		{
+			@Override
+			public Iterator<Object> iterator()
+			{
+				return new OwnEntriesIterator<>(Map.Entry::getValue);
+			}
+
+			@Override
+			public int size()
+			{
+				return ArrayBackedContext.this.size();
+			}
+
+			@Override
+			public boolean contains(final Object value)
+			{
+				return containsValue(value);
+			}
+
+			@Override
+			public void clear()
+			{
+				ArrayBackedContext.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<Object, Object>> entrySet()
+	{
+		return new AbstractSet<Map.Entry<Object, Object>>()
+		{
+			@Override
+			public Iterator<Map.Entry<Object, Object>> iterator()
+			{
+				return new OwnEntriesIterator<>(OwnEntry::new);
+			}
+
+			@Override
+			public int size()
+			{
+				return ArrayBackedContext.this.size();
+			}
+
+			@Override
+			public boolean contains(final Object obj)
+			{
+				if (!(obj instanceof Map.Entry))
+				{
+					return false;
+				}
+				final Map.Entry<?, ?> entry = (Map.Entry<?, ?>)obj;
+				final Object value = entry.getKey() == null ? null : getOwn(entry.getKey());
+				return value != null && value.equals(entry.getValue());
+			}
+
+			@Override
+			public boolean remove(final Object obj)
+			{
+				if (!(obj instanceof Map.Entry))
+				{
+					return false;
+				}
+				final Map.Entry<?, ?> entry = (Map.Entry<?, ?>)obj;
+				return entry.getKey() != null && ArrayBackedContext.this.remove(entry.getKey(), entry.getValue());
+			}
+
+			@Override
+			public void clear()
+			{
+				ArrayBackedContext.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * Iterates the own entries as they were when the iterator was created (like the weakly consistent iterators of {@link ConcurrentHashMap}).
+	 * {@link #remove()} removes the current key from the context.
+	 */
+	private final class OwnEntriesIterator<T> implements Iterator<T>
+	{
+		private final Iterator<Map.Entry<Object, Object>> entries = toMap().entrySet().iterator();
+		private final Function<Map.Entry<Object, Object>, T> mapper;
+		private Object currentKey;
+
+		private OwnEntriesIterator(final Function<Map.Entry<Object, Object>, T> mapper)
+		{
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return entries.hasNext();
+		}
+
+		@Override
+		public T next()
+		{
+			final Map.Entry<Object, Object> entry = entries.next();
+			currentKey = entry.getKey();
+			return mapper.apply(entry);
+		}
+
+		@Override
+		public void remove()
+		{
+			if (currentKey == null)
+			{
+				throw new IllegalStateException();
+			}
+			ArrayBackedContext.this.remove(currentKey);
+			currentKey = null;
+		}
+	}
+
+	/** Entry whose {@link #setValue(Object)} writes through to the context */
+	private final class OwnEntry extends AbstractMap.SimpleEntry<Object, Object>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private OwnEntry(final Map.Entry<Object, Object> entry)
+		{
+			super(entry);
+		}
+
+		@Override
+		public Object setValue(final Object value)
+		{
+			put(getKey(), value);
+			return super.setValue(value);
+		}
+	}
+
+	@Override
+	public Set<String> stringPropertyNames()
+	{
+		final Set<String> names = new LinkedHashSet<>();
+		if (parent != null)
+		{
+			names.addAll(parent.stringPropertyNames());
+		}
+		forEachOwn((key, value) -> {
+			if (key instanceof String && value instanceof String)
+			{
+				names.add((String)key);
+			}
+		});
+		return Collections.unmodifiableSet(names);
+	}
+
+	@Override
+	public Enumeration<?> propertyNames()
+	{
+		final Set<Object> names = new LinkedHashSet<>();
+		if (parent != null)
+		{
+			names.addAll(Collections.list(parent.propertyNames()));
+		}
+		forEachOwn((key, value) -> names.add(key));
+		return Collections.enumeration(names);
+	}
+
+	@Override
+	public void list(final PrintStream out)
+	{
+		out.println("-- listing properties --");
+		for (final String key : stringPropertyNames())
+		{
+			out.println(key + "=" + getProperty(key));
+		}
+	}
+
+	@Override
+	public void list(final PrintWriter out)
+	{
+		out.println("-- listing properties --");
+		for (final String key : stringPropertyNames())
+		{
+			out.println(key + "=" + getProperty(key));
+		}
+	}
+
+	/** @return {@link #snapshot()} */
+	@Override
+	public Object clone()
+	{
+		return snapshot();
+	}
+
+	@Override
+	public String toString()
+	{
+		return toMap().toString();
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		if (!(obj instanceof Map))
+		{
+			return false;
+		}
+		final Map<?, ?> otherMap = obj instanceof ArrayBackedContext ? ((ArrayBackedContext)obj).toMap() : (Map<?, ?>)obj;
+		return toMap().equals(otherMap);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return toMap().hashCode();
+	}
+
+	/** Serialize as plain {@link Properties}, including the parent's values */
+	private Object writeReplace() throws ObjectStreamException
+	{
+		final Properties props = new Properties();
+		for (final String key : stringPropertyNames())
+		{
+			props.setProperty(key, getProperty(key));
+		}
+		return props;
+	}
+}
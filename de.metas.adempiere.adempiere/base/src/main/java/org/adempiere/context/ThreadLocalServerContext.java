@@ -29,6 +29,7 @@ import org.adempiere.util.AbstractPropertiesProxy;
 import org.adempiere.util.Check;
 import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.lang.NullAutoCloseable;
+import org.compiere.util.Env;
 
 /* package */final class ThreadLocalServerContext extends AbstractPropertiesProxy
 {
@@ -42,7 +43,7 @@ import org.adempiere.util.lang.NullAutoCloseable;
 		@Override
 		protected Properties initialValue()
 		{
-			final Properties ctx = new Properties();
+			final Properties ctx = Env.newTemporaryCtx();
 			listener.onContextCreated(ctx);
 			return ctx;
 		}
@@ -51,7 +52,7 @@ import org.adempiere.util.lang.NullAutoCloseable;
 		@Override
 		protected Properties childValue(final Properties ctx)
 		{
-			final Properties childCtx = new Properties(ctx);
+			final Properties childCtx = Env.deriveCtx(ctx);
 			listener.onChildContextCreated(ctx, childCtx);
 			return childCtx;
 		}
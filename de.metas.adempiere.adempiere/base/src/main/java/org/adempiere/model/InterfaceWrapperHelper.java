@@ -22,6 +22,7 @@ package org.adempiere.model;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +61,7 @@ import org.compiere.model.GridField;
 import org.compiere.model.GridTab;
 import org.compiere.model.PO;
 import org.compiere.model.POInfo;
+import org.compiere.model.POSaveBatch;
 import org.compiere.util.Env;
 import org.compiere.util.Evaluatee;
 import org.slf4j.Logger;
@@ -572,6 +574,46 @@ public class InterfaceWrapperHelper
 		}
 	}
 
+	/**
+	 * Saves given models.
+	 * <p>
+	 * The models are saved in given order. The {@link PO} based models are saved using one JDBC batch statement for each run of consecutive models of the same table (see {@link POSaveBatch}).
+	 * All the other models are saved one by one, like {@link #save(Object)} does, after the PO based models before them were saved.
+	 *
+	 * @param models
+	 */
+	public static void saveAll(final Collection<?> models)
+	{
+		if (models == null || models.isEmpty())
+		{
+			return;
+		}
+
+		final List<PO> pos = new ArrayList<>(models.size());
+		final List<POSaveBatch.BatchStatistics> statistics = new ArrayList<>();
+		for (final Object model : models)
+		{
+			final Object modelToSave = model instanceof IModelWrapper ? ((IModelWrapper)model).getModel() : model;
+			if (modelToSave != null
+					&& !GridTabWrapper.isHandled(modelToSave)
+					&& POWrapper.isHandled(modelToSave))
+			{
+				pos.add(POWrapper.getStrictPO(modelToSave));
+			}
+			else
+			{
+				// save the POs before this model first, to keep the given order
+				statistics.addAll(POSaveBatch.saveAll(pos));
+				pos.clear();
+
+				save(model);
+			}
+		}
+
+		statistics.addAll(POSaveBatch.saveAll(pos));
+		logger.debug("Saved {} models; batches: {}", models.size(), statistics);
+	}
+
 	/**
 	 * Get context from model.
 	 *
@@ -0,0 +1,171 @@
+package org.adempiere.sql.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.adempiere.sql.impl.StatementsStatistics.StatementStatistics;
+import org.adempiere.util.jmx.IJMXNameAware;
+
+/**
+ * JMX bean for SQL statements statistics (implementation).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class JMXStatementsStatistics implements JMXStatementsStatisticsMBean, IJMXNameAware
+{
+	private static final String JMX_NAME = "org.adempiere.sql:type=StatementsStatistics";
+
+	/* package */ JMXStatementsStatistics()
+	{
+		super();
+	}
+
+	@Override
+	public String getJMXName()
+	{
+		return JMX_NAME;
+	}
+
+	private StatementsStatistics getStatementsStatistics()
+	{
+		return StatementsStatistics.instance;
+	}
+
+	@Override
+	public boolean isEnabled()
+	{
+		return getStatementsStatistics().isEnabled();
+	}
+
+	@Override
+	public void setEnabled(final boolean enabled)
+	{
+		getStatementsStatistics().setEnabled(enabled);
+	}
+
+	@Override
+	public String getValidFrom()
+	{
+		return String.valueOf(getStatementsStatistics().getValidFrom());
+	}
+
+	@Override
+	public void resetStatistics()
+	{
+		getStatementsStatistics().reset();
+	}
+
+	@Override
+	public String getPoolStatus()
+	{
+		return getStatementsStatistics().getPoolStatus();
+	}
+
+	@Override
+	public String getPoolWaitStatistics()
+	{
+		return getStatementsStatistics().getPoolWaitStatistics();
+	}
+
+	@Override
+	public String[] getTopStatisticsBySql(final int count)
+	{
+		return toStringArray(getStatementsStatistics().getStatisticsBySql(), count);
+	}
+
+	@Override
+	public String[] getTopStatisticsBySubsystem(final int count)
+	{
+		return toStringArray(getStatementsStatistics().getStatisticsBySubsystem(), count);
+	}
+
+	private static String[] toStringArray(final List<StatementStatistics> statistics, final int count)
+	{
+		return statistics.stream()
+				.limit(count > 0 ? count : statistics.size())
+				.map(StatementStatistics::toString)
+				.toArray(String[]::new);
+	}
+
+	@Override
+	public String dump(final int topCount)
+	{
+		return getStatementsStatistics().dump(topCount);
+	}
+
+	@Override
+	public int getSameSqlPerTrxThreshold()
+	{
+		return getStatementsStatistics().getSameSqlPerTrxThreshold();
+	}
+
+	@Override
+	public void setSameSqlPerTrxThreshold(final int sameSqlPerTrxThreshold)
+	{
+		getStatementsStatistics().setSameSqlPerTrxThreshold(sameSqlPerTrxThreshold);
+	}
+
+	@Override
+	public int getStatementsPerTrxThreshold()
+	{
+		return getStatementsStatistics().getStatementsPerTrxThreshold();
+	}
+
+	@Override
+	public void setStatementsPerTrxThreshold(final int statementsPerTrxThreshold)
+	{
+		getStatementsStatistics().setStatementsPerTrxThreshold(statementsPerTrxThreshold);
+	}
+
+	@Override
+	public long getSameSqlWarningsCount()
+	{
+		return getStatementsStatistics().getSameSqlWarningsCount();
+	}
+
+	@Override
+	public long getStatementsBudgetWarningsCount()
+	{
+		return getStatementsStatistics().getStatementsBudgetWarningsCount();
+	}
+
+	@Override
+	public void startPeriodicDump(final int intervalSeconds)
+	{
+		getStatementsStatistics().startPeriodicDump(intervalSeconds);
+	}
+
+	@Override
+	public void stopPeriodicDump()
+	{
+		getStatementsStatistics().stopPeriodicDump();
+	}
+
+	@Override
+	public boolean isPeriodicDumpStarted()
+	{
+		return getStatementsStatistics().isPeriodicDumpStarted();
+	}
+}
@@ -0,0 +1,73 @@
+package org.adempiere.sql.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * JMX bean for SQL statements statistics (interface).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public interface JMXStatementsStatisticsMBean
+{
+	boolean isEnabled();
+
+	void setEnabled(boolean enabled);
+
+	String getValidFrom();
+
+	void resetStatistics();
+
+	/** @return connection pool status */
+	String getPoolStatus();
+
+	/** @return connection pool wait time statistics */
+	String getPoolWaitStatistics();
+
+	/** @return the first <code>count</code> statistics by normalized SQL, most expensive first */
+	String[] getTopStatisticsBySql(int count);
+
+	/** @return the first <code>count</code> statistics by calling subsystem, most expensive first */
+	String[] getTopStatisticsBySubsystem(int count);
+
+	String dump(int topCount);
+
+	int getSameSqlPerTrxThreshold();
+
+	void setSameSqlPerTrxThreshold(int sameSqlPerTrxThreshold);
+
+	int getStatementsPerTrxThreshold();
+
+	void setStatementsPerTrxThreshold(int statementsPerTrxThreshold);
+
+	long getSameSqlWarningsCount();
+
+	long getStatementsBudgetWarningsCount();
+
+	/** Starts logging {@link #dump(int)} each <code>intervalSeconds</code> */
+	void startPeriodicDump(int intervalSeconds);
+
+	void stopPeriodicDump();
+
+	boolean isPeriodicDumpStarted();
+}
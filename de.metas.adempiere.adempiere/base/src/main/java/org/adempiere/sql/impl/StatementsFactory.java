@@ -57,11 +57,19 @@ public final class StatementsFactory implements IStatementsFactory
 		this.sqlQueriesTracingEnabled = false;
 	}
 
+	/**
+	 * @return true if the created statements shall be wrapped, either for SQL queries tracing or for {@link StatementsStatistics}
+	 */
+	private boolean isTracingEnabled()
+	{
+		return sqlQueriesTracingEnabled || StatementsStatistics.instance.isEnabled();
+	}
+
 	@Override
 	public CStatement newCStatement(final int resultSetType, final int resultSetConcurrency, final String trxName)
 	{
 		final CStatementProxy stmt = new CStatementProxy(resultSetType, resultSetConcurrency, trxName);
-		if (sqlQueriesTracingEnabled)
+		if (isTracingEnabled())
 		{
 			return new TracingStatement<>(stmt);
 		}
@@ -72,7 +80,7 @@ public final class StatementsFactory implements IStatementsFactory
 	public CPreparedStatement newCPreparedStatement(final int resultSetType, final int resultSetConcurrency, final String sql, final String trxName)
 	{
 		final CPreparedStatementProxy pstmt = new CPreparedStatementProxy(resultSetType, resultSetConcurrency, sql, trxName);
-		if (sqlQueriesTracingEnabled)
+		if (isTracingEnabled())
 		{
 			return new TracingPreparedStatement<>(pstmt);
 		}
@@ -89,7 +97,7 @@ public final class StatementsFactory implements IStatementsFactory
 	public CStatement newCStatement(final CStatementVO info)
 	{
 		final CStatementProxy stmt = new CStatementProxy(info);
-		if (sqlQueriesTracingEnabled)
+		if (isTracingEnabled())
 		{
 			return new TracingStatement<>(stmt);
 		}
@@ -100,7 +108,7 @@ public final class StatementsFactory implements IStatementsFactory
 	public CPreparedStatement newCPreparedStatement(final CStatementVO info)
 	{
 		final CPreparedStatementProxy pstmt = new CPreparedStatementProxy(info);
-		if (sqlQueriesTracingEnabled)
+		if (isTracingEnabled())
 		{
 			return new TracingPreparedStatement<>(pstmt);
 		}
@@ -0,0 +1,720 @@
+package org.adempiere.sql.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.util.Check;
+import org.adempiere.util.Services;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.jmx.JMXRegistry;
+import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.db.AdempiereDatabase;
+import org.compiere.util.DB;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import de.metas.logging.LogManager;
+
+/**
+ * Low overhead SQL statement statistics.
+ * <p>
+ * When enabled, the statements created by {@link StatementsFactory} are timed and the following is collected:
+ * <ul>
+ * <li>connection pool wait time (see {@link #recordPoolWait(long)})
+ * <li>execute time, fetch time and fetched rows, aggregated per normalized SQL (i.e. literals replaced by <code>?</code>) and per calling subsystem
+ * <li>per transaction statement counts; a warning is logged when the same SQL is executed too many times in one transaction (which usually is an N+1 pattern) or when a transaction is
+ * executing too many statements
+ * </ul>
+ * The calling subsystem is the transaction name's prefix (see {@link ITrxManager#createTrxName(String)}) or the one set by {@link #temporarySetSubsystem(String)}.
+ * <p>
+ * The statistics are exposed by {@link JMXStatementsStatistics} and can be periodically dumped to log (see {@link #startPeriodicDump(int)}).
+ * They can be enabled by setting the system property {@value #SYSTEMPROPERTY_Enabled} or by JMX.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class StatementsStatistics
+{
+	private static final Logger logger = LogManager.getLogger(StatementsStatistics.class);
+
+	public static final transient StatementsStatistics instance = new StatementsStatistics();
+
+	private static final String SYSTEMPROPERTY_Enabled = "org.adempiere.sql.StatementsStatistics.Enabled";
+	private static final String SYSTEMPROPERTY_DumpIntervalSeconds = "org.adempiere.sql.StatementsStatistics.DumpIntervalSeconds";
+
+	@VisibleForTesting
+	static final String SUBSYSTEM_NoTrx = "NoTrx";
+	private static final String TRXPROPERTY_StatementsBudget = StatementsStatistics.class.getName() + ".StatementsBudget";
+
+	/** Max distinct normalized SQLs to keep statistics for. The others are aggregated to {@link #SQL_Other}. */
+	private static final int MAX_DistinctSqls = 5000;
+	private static final String SQL_Other = "<other>";
+
+	private static final Pattern PATTERN_StringLiteral = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern PATTERN_NumberLiteral = Pattern.compile("(?<![\\w$])-?\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern PATTERN_ParametersList = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+	private static final Pattern PATTERN_Whitespaces = Pattern.compile("\\s+");
+
+	private volatile boolean enabled = false;
+	private volatile int sameSqlPerTrxThreshold = 100;
+	private volatile int statementsPerTrxThreshold = 2000;
+
+	private final LatencyStatistics poolWait = new LatencyStatistics("PoolWait");
+	private final ConcurrentHashMap<String, StatementStatistics> statisticsBySql = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, StatementStatistics> statisticsBySubsystem = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, String> normalizedSqlsCache = new ConcurrentHashMap<>();
+	private final LongAdder countSameSqlWarnings = new LongAdder();
+	private final LongAdder countStatementsBudgetWarnings = new LongAdder();
+	private final ThreadLocal<String> subsystemOverride = new ThreadLocal<>();
+	private volatile Date validFrom = new Date();
+
+	private ScheduledExecutorService dumpExecutor = null;
+
+	private StatementsStatistics()
+	{
+		super();
+
+		JMXRegistry.get().registerJMX(new JMXStatementsStatistics(), OnJMXAlreadyExistsPolicy.Replace);
+
+		if (Boolean.getBoolean(SYSTEMPROPERTY_Enabled))
+		{
+			setEnabled(true);
+		}
+
+		final int dumpIntervalSeconds = Integer.getInteger(SYSTEMPROPERTY_DumpIntervalSeconds, 0);
+		if (dumpIntervalSeconds > 0)
+		{
+			startPeriodicDump(dumpIntervalSeconds);
+		}
+	}
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	public void setEnabled(final boolean enabled)
+	{
+		if (this.enabled == enabled)
+		{
+			return;
+		}
+
+		if (enabled)
+		{
+			reset();
+		}
+		this.enabled = enabled;
+		logger.info("Statements statistics {}", enabled ? "enabled" : "disabled");
+	}
+
+	public void reset()
+	{
+		poolWait.reset();
+		statisticsBySql.clear();
+		statisticsBySubsystem.clear();
+		normalizedSqlsCache.clear();
+		countSameSqlWarnings.reset();
+		countStatementsBudgetWarnings.reset();
+		validFrom = new Date();
+	}
+
+	public Date getValidFrom()
+	{
+		return validFrom;
+	}
+
+	public int getSameSqlPerTrxThreshold()
+	{
+		return sameSqlPerTrxThreshold;
+	}
+
+	public void setSameSqlPerTrxThreshold(final int sameSqlPerTrxThreshold)
+	{
+		this.sameSqlPerTrxThreshold = sameSqlPerTrxThreshold;
+	}
+
+	public int getStatementsPerTrxThreshold()
+	{
+		return statementsPerTrxThreshold;
+	}
+
+	public void setStatementsPerTrxThreshold(final int statementsPerTrxThreshold)
+	{
+		this.statementsPerTrxThreshold = statementsPerTrxThreshold;
+	}
+
+	public long getSameSqlWarningsCount()
+	{
+		return countSameSqlWarnings.sum();
+	}
+
+	public long getStatementsBudgetWarningsCount()
+	{
+		return countStatementsBudgetWarnings.sum();
+	}
+
+	/**
+	 * Sets the calling subsystem for all statements which are executed in current thread, until the returned closeable is closed.
+	 */
+	public IAutoCloseable temporarySetSubsystem(final String subsystem)
+	{
+		Check.assumeNotEmpty(subsystem, "subsystem is not empty");
+
+		final String subsystemOld = subsystemOverride.get();
+		subsystemOverride.set(subsystem);
+		return () -> {
+			if (subsystemOld == null)
+			{
+				subsystemOverride.remove();
+			}
+			else
+			{
+				subsystemOverride.set(subsystemOld);
+			}
+		};
+	}
+
+	/**
+	 * Records the time spent waiting for a pooled connection.
+	 */
+	public void recordPoolWait(final long durationNanos)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		poolWait.record(durationNanos);
+	}
+
+	/**
+	 * Records the execution of given SQL.
+	 *
+	 * @param executeResult the value returned by the statement's execute method; if it's a {@link ResultSet}, a wrapper which is also recording the fetch time will be returned
+	 * @return executeResult or the fetch time recording wrapper of it
+	 */
+	public <T> T recordExecute(final String sql, final String trxName, final long durationNanos, final T executeResult)
+	{
+		if (!enabled || sql == null)
+		{
+			return executeResult;
+		}
+
+		final String normalizedSql = normalizeSqlCached(sql);
+		final ITrx trx = getTrxOrNull(trxName);
+		final String subsystem = getSubsystem(trx);
+
+		final StatementStatistics sqlStatistics = getStatisticsBySql(normalizedSql);
+		final StatementStatistics subsystemStatistics = statisticsBySubsystem.computeIfAbsent(subsystem, StatementStatistics::new);
+		sqlStatistics.recordExecute(durationNanos);
+		subsystemStatistics.recordExecute(durationNanos);
+
+		if (trx != null)
+		{
+			checkStatementsBudget(trx, normalizedSql);
+		}
+
+		if (executeResult instanceof ResultSet)
+		{
+			@SuppressWarnings("unchecked")
+			final T resultSetWrapper = (T)FetchRecordingResultSet.wrap((ResultSet)executeResult, sqlStatistics, subsystemStatistics);
+			return resultSetWrapper;
+		}
+		return executeResult;
+	}
+
+	private static ITrx getTrxOrNull(final String trxName)
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		if (trxManager.isNull(trxName))
+		{
+			return null;
+		}
+
+		final ITrx trx = trxManager.get(trxName, false); // createNew=false
+		return trxManager.isNull(trx) ? null : trx;
+	}
+
+	private String getSubsystem(final ITrx trx)
+	{
+		final String subsystem = subsystemOverride.get();
+		if (subsystem != null)
+		{
+			return subsystem;
+		}
+		if (trx == null)
+		{
+			return SUBSYSTEM_NoTrx;
+		}
+
+		final String trxName = trx.getTrxName();
+		final int idx = trxName.indexOf('_');
+		return idx > 0 ? trxName.substring(0, idx) : trxName;
+	}
+
+	private StatementStatistics getStatisticsBySql(final String normalizedSql)
+	{
+		final StatementStatistics statistics = statisticsBySql.get(normalizedSql);
+		if (statistics != null)
+		{
+			return statistics;
+		}
+
+		final String sqlToUse = statisticsBySql.size() < MAX_DistinctSqls ? normalizedSql : SQL_Other;
+		return statisticsBySql.computeIfAbsent(sqlToUse, StatementStatistics::new);
+	}
+
+	private String normalizeSqlCached(final String sql)
+	{
+		final String normalizedSql = normalizedSqlsCache.get(sql);
+		if (normalizedSql != null)
+		{
+			return normalizedSql;
+		}
+
+		if (normalizedSqlsCache.size() >= MAX_DistinctSqls)
+		{
+			// most probably SQLs with inlined values; just start over
+			normalizedSqlsCache.clear();
+		}
+		return normalizedSqlsCache.computeIfAbsent(sql, StatementsStatistics::normalizeSql);
+	}
+
+	/**
+	 * @return given SQL with all string and number literals replaced by <code>?</code>, parameter lists collapsed to <code>(?...)</code> and whitespaces collapsed
+	 */
+	@VisibleForTesting
+	static String normalizeSql(final String sql)
+	{
+		String normalizedSql = PATTERN_StringLiteral.matcher(sql).replaceAll("?");
+		normalizedSql = PATTERN_NumberLiteral.matcher(normalizedSql).replaceAll("?");
+		normalizedSql = PATTERN_ParametersList.matcher(normalizedSql).replaceAll("(?...)");
+		normalizedSql = PATTERN_Whitespaces.matcher(normalizedSql).replaceAll(" ");
+		return normalizedSql.trim();
+	}
+
+	private void checkStatementsBudget(final ITrx trx, final String normalizedSql)
+	{
+		final TrxStatementsBudget budget = trx.getProperty(TRXPROPERTY_StatementsBudget, () -> new TrxStatementsBudget());
+		final int countSameSql = budget.incrementAndGet(normalizedSql);
+		final int countStatements = budget.getCountStatements();
+
+		if (countSameSql == sameSqlPerTrxThreshold)
+		{
+			countSameSqlWarnings.increment();
+			logger.warn("Possible N+1 pattern: same SQL was executed {} times in {}: {}", countSameSql, trx.getTrxName(), normalizedSql, new Exception("StackTrace"));
+		}
+		if (countStatements == statementsPerTrxThreshold)
+		{
+			countStatementsBudgetWarnings.increment();
+			logger.warn("Statements budget exceeded: {} statements were executed in {}. Last SQL: {}", countStatements, trx.getTrxName(), normalizedSql, new Exception("StackTrace"));
+		}
+	}
+
+	/** @return all statistics by normalized SQL, most expensive first */
+	public List<StatementStatistics> getStatisticsBySql()
+	{
+		return sortByTotalTime(statisticsBySql.values());
+	}
+
+	/** @return all statistics by calling subsystem, most expensive first */
+	public List<StatementStatistics> getStatisticsBySubsystem()
+	{
+		return sortByTotalTime(statisticsBySubsystem.values());
+	}
+
+	private static List<StatementStatistics> sortByTotalTime(final Collection<StatementStatistics> statistics)
+	{
+		final List<StatementStatistics> result = new ArrayList<>(statistics);
+		result.sort(Comparator.comparingLong(StatementStatistics::getTotalNanos).reversed());
+		return result;
+	}
+
+	public String getPoolWaitStatistics()
+	{
+		return poolWait.toString();
+	}
+
+	public String getPoolStatus()
+	{
+		try
+		{
+			final AdempiereDatabase database = DB.getDatabase();
+			return database == null ? "No database" : database.getStatus();
+		}
+		catch (final Exception e)
+		{
+			return "Failed fetching pool status: " + e.getLocalizedMessage();
+		}
+	}
+
+	/**
+	 * @return human readable statistics summary, containing the pool status and the <code>topCount</code> most expensive SQLs and subsystems
+	 */
+	public String dump(final int topCount)
+	{
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Statements statistics since ").append(validFrom);
+		sb.append("\nPool: ").append(getPoolStatus());
+		sb.append("\n").append(getPoolWaitStatistics());
+		sb.append("\nWarnings: sameSqlPerTrx=").append(getSameSqlWarningsCount()).append(", statementsPerTrx=").append(getStatementsBudgetWarningsCount());
+
+		sb.append("\nTop subsystems:");
+		getStatisticsBySubsystem().stream().limit(topCount).forEach(statistics -> sb.append("\n  ").append(statistics));
+
+		sb.append("\nTop SQLs:");
+		getStatisticsBySql().stream().limit(topCount).forEach(statistics -> sb.append("\n  ").append(statistics));
+
+		return sb.toString();
+	}
+
+	/**
+	 * Starts logging {@link #dump(int)} each <code>intervalSeconds</code>. If the periodic dump was already started, it will be restarted.
+	 */
+	public synchronized void startPeriodicDump(final int intervalSeconds)
+	{
+		Check.assume(intervalSeconds > 0, "intervalSeconds > 0");
+
+		stopPeriodicDump();
+
+		dumpExecutor = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(StatementsStatistics.class.getName() + "-Dump")
+				.setDaemon(true)
+				.build());
+		dumpExecutor.scheduleAtFixedRate(() -> {
+			if (enabled)
+			{
+				logger.info(dump(20));
+			}
+		}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	public synchronized void stopPeriodicDump()
+	{
+		if (dumpExecutor != null)
+		{
+			dumpExecutor.shutdownNow();
+			dumpExecutor = null;
+		}
+	}
+
+	public synchronized boolean isPeriodicDumpStarted()
+	{
+		return dumpExecutor != null;
+	}
+
+	/**
+	 * Latency counters and histogram.
+	 */
+	private static final class LatencyStatistics
+	{
+		private static final long[] HISTOGRAM_BucketsMillis = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+		private final String name;
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final LongAdder[] histogram = new LongAdder[HISTOGRAM_BucketsMillis.length + 1];
+
+		public LatencyStatistics(final String name)
+		{
+			this.name = name;
+			for (int i = 0; i < histogram.length; i++)
+			{
+				histogram[i] = new LongAdder();
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			final long count = getCount();
+			final long totalNanos = getTotalNanos();
+			final StringBuilder sb = new StringBuilder();
+			sb.append(name)
+					.append(": count=").append(count)
+					.append(", totalMillis=").append(TimeUnit.NANOSECONDS.toMillis(totalNanos))
+					.append(", avgMicros=").append(count > 0 ? TimeUnit.NANOSECONDS.toMicros(totalNanos / count) : 0)
+					.append(", maxMillis=").append(TimeUnit.NANOSECONDS.toMillis(maxNanos.get()))
+					.append(", histogram=[");
+			for (int i = 0; i < histogram.length; i++)
+			{
+				if (i > 0)
+				{
+					sb.append(" ");
+				}
+				if (i < HISTOGRAM_BucketsMillis.length)
+				{
+					sb.append("<").append(HISTOGRAM_BucketsMillis[i]);
+				}
+				else
+				{
+					sb.append(">=").append(HISTOGRAM_BucketsMillis[HISTOGRAM_BucketsMillis.length - 1]);
+				}
+				sb.append("ms:").append(histogram[i].sum());
+			}
+			sb.append("]");
+			return sb.toString();
+		}
+
+		public void record(final long durationNanos)
+		{
+			count.increment();
+			totalNanos.add(durationNanos);
+			maxNanos.accumulateAndGet(durationNanos, Math::max);
+
+			final long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+			int bucket = 0;
+			while (bucket < HISTOGRAM_BucketsMillis.length && durationMillis >= HISTOGRAM_BucketsMillis[bucket])
+			{
+				bucket++;
+			}
+			histogram[bucket].increment();
+		}
+
+		public long getCount()
+		{
+			return count.sum();
+		}
+
+		public long getTotalNanos()
+		{
+			return totalNanos.sum();
+		}
+
+		public void reset()
+		{
+			count.reset();
+			totalNanos.reset();
+			maxNanos.set(0);
+			for (final LongAdder bucket : histogram)
+			{
+				bucket.reset();
+			}
+		}
+	}
+
+	/**
+	 * Execute and fetch statistics of a normalized SQL or of a subsystem.
+	 */
+	public static final class StatementStatistics
+	{
+		private final String key;
+		private final LatencyStatistics execute = new LatencyStatistics("execute");
+		private final LatencyStatistics fetch = new LatencyStatistics("fetch");
+		private final LongAdder rowsFetched = new LongAdder();
+
+		private StatementStatistics(final String key)
+		{
+			this.key = key;
+		}
+
+		@Override
+		public String toString()
+		{
+			return key
+					+ "\n    " + execute
+					+ "\n    " + fetch + ", rows=" + getRowsFetched();
+		}
+
+		private void recordExecute(final long durationNanos)
+		{
+			execute.record(durationNanos);
+		}
+
+		private void recordFetch(final long durationNanos, final long rows)
+		{
+			fetch.record(durationNanos);
+			rowsFetched.add(rows);
+		}
+
+		/** @return normalized SQL or subsystem */
+		public String getKey()
+		{
+			return key;
+		}
+
+		public long getExecuteCount()
+		{
+			return execute.getCount();
+		}
+
+		public long getExecuteNanos()
+		{
+			return execute.getTotalNanos();
+		}
+
+		public long getFetchCount()
+		{
+			return fetch.getCount();
+		}
+
+		public long getFetchNanos()
+		{
+			return fetch.getTotalNanos();
+		}
+
+		public long getRowsFetched()
+		{
+			return rowsFetched.sum();
+		}
+
+		public long getTotalNanos()
+		{
+			return getExecuteNanos() + getFetchNanos();
+		}
+	}
+
+	/**
+	 * Statement counters of one transaction. Stored as transaction property, so it's gone together with the transaction.
+	 */
+	private static final class TrxStatementsBudget
+	{
+		private final Map<String, int[]> countBySql = new HashMap<>();
+		private int countStatements = 0;
+
+		public synchronized int incrementAndGet(final String normalizedSql)
+		{
+			countStatements++;
+			final int[] count = countBySql.computeIfAbsent(normalizedSql, k -> new int[1]);
+			count[0]++;
+			return count[0];
+		}
+
+		public synchronized int getCountStatements()
+		{
+			return countStatements;
+		}
+	}
+
+	/**
+	 * {@link ResultSet} wrapper which records the time spent in {@link ResultSet#next()} and the fetched rows, when the result set is closed.
+	 */
+	private static final class FetchRecordingResultSet implements InvocationHandler
+	{
+		public static ResultSet wrap(final ResultSet resultSet, final StatementStatistics... statistics)
+		{
+			return (ResultSet)Proxy.newProxyInstance(
+					ResultSet.class.getClassLoader(),
+					new Class<?>[] { ResultSet.class },
+					new FetchRecordingResultSet(resultSet, statistics));
+		}
+
+		private final ResultSet delegate;
+		private final StatementStatistics[] statistics;
+		private long fetchNanos = 0;
+		private long rows = 0;
+		private boolean recorded = false;
+
+		private FetchRecordingResultSet(final ResultSet delegate, final StatementStatistics[] statistics)
+		{
+			this.delegate = delegate;
+			this.statistics = statistics;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+		{
+			final String methodName = method.getName();
+			if ("next".equals(methodName))
+			{
+				final long startNanos = System.nanoTime();
+				final boolean hasNext = (Boolean)invokeDelegate(method, args);
+				fetchNanos += System.nanoTime() - startNanos;
+				if (hasNext)
+				{
+					rows++;
+				}
+				return hasNext;
+			}
+			else if ("close".equals(methodName))
+			{
+				try
+				{
+					return invokeDelegate(method, args);
+				}
+				finally
+				{
+					record();
+				}
+			}
+			else if ("toString".equals(methodName) && (args == null || args.length == 0))
+			{
+				return delegate.toString();
+			}
+			else
+			{
+				return invokeDelegate(method, args);
+			}
+		}
+
+		private Object invokeDelegate(final Method method, final Object[] args) throws Throwable
+		{
+			try
+			{
+				return method.invoke(delegate, args);
+			}
+			catch (final InvocationTargetException e)
+			{
+				throw e.getCause();
+			}
+		}
+
+		private void record()
+		{
+			if (recorded)
+			{
+				return;
+			}
+			recorded = true;
+
+			for (final StatementStatistics statistics : this.statistics)
+			{
+				statistics.recordFetch(fetchNanos, rows);
+			}
+		}
+	}
+}
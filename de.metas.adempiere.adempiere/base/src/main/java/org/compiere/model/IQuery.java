@@ -71,6 +71,18 @@ public interface IQuery<T>
 	 */
 	boolean DEFAULT_OPTION_GuaranteedIteratorRequired = true;
 
+	/**
+	 * Integer value which tells how many rows shall be fetched from database at a time when streaming using a cursor.
+	 * 
+	 * @see #streamUsingCursor(Class)
+	 */
+	String OPTION_CursorFetchSize = "CursorFetchSize";
+
+	/**
+	 * Default value for {@link #OPTION_CursorFetchSize}.
+	 */
+	int DEFAULT_OPTION_CursorFetchSize = 1000;
+
 	int NO_LIMIT = -1;
 
 	Properties getCtx();
@@ -512,4 +524,21 @@ public interface IQuery<T>
 	{
 		return list(clazz).stream();
 	}
+
+	/**
+	 * Return a stream of all records that match the query criteria, without loading them all in memory.
+	 * <p>
+	 * The records are fetched through a forward-only database cursor, {@link #OPTION_CursorFetchSize} rows at a time, and the models are created while the stream is consumed.
+	 * Because the cursor lives in the current transaction, the query shall have a running transaction. Out of transaction, the database driver loads the whole result in memory.
+	 * <p>
+	 * The stream shall be closed if it's not consumed until the end.
+	 * 
+	 * @param clazz all resulting models will be converted to this interface
+	 * @return Stream
+	 * @throws DBException
+	 */
+	default <ET extends T> Stream<ET> streamUsingCursor(final Class<ET> clazz) throws DBException
+	{
+		return stream(clazz);
+	}
 }
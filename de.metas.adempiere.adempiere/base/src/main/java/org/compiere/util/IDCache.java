@@ -1,5 +1,6 @@
 package org.compiere.util;
 
+import java.util.Collection;
 import java.util.Objects;
 
 /*
@@ -88,4 +89,30 @@ public class IDCache<V> extends CCache<Object, V>
 			return valueOld == null ? 0 : 1;
 		}
 	}
+
+	@Override
+	public int resetForRecordIds(final String tableName, final Collection<Integer> recordIds)
+	{
+		final String cacheTableName = getTableName();
+		if (!cacheTableName.equals(tableName))
+		{
+			return 0;
+		}
+
+		if (recordIds.contains(CacheMgt.RECORD_ID_ALL))
+		{
+			return reset();
+		}
+
+		int count = 0;
+		for (final Integer recordId : recordIds)
+		{
+			final V valueOld = remove(recordId);
+			if (valueOld != null)
+			{
+				count++;
+			}
+		}
+		return count;
+	}
 }
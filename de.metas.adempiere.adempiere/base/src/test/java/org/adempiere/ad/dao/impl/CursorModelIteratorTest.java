@@ -0,0 +1,211 @@
+package org.adempiere.ad.dao.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.adempiere.exceptions.DBException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+
+/**
+ * Tests {@link CursorModelIterator}, which is used by {@link TypedSqlQuery#streamUsingCursor(Class)}.
+ */
+public class CursorModelIteratorTest
+{
+	private static final String SQL = "SELECT * FROM Test";
+
+	@Mocked
+	private Connection connection;
+	@Mocked
+	private PreparedStatement pstmt;
+	@Mocked
+	private ResultSet resultSet;
+
+	/** Models which were created until now */
+	private final List<String> loadedModels = new ArrayList<>();
+
+	@Before
+	public void init()
+	{
+		loadedModels.clear();
+	}
+
+	private void expectConnection(final boolean autoCommit) throws SQLException
+	{
+		// @formatter:off
+		new Expectations()
+		{{
+			pstmt.getConnection(); result = connection;
+			connection.getAutoCommit(); result = autoCommit;
+		}};
+		// @formatter:on
+	}
+
+	private Stream<String> stream(final int fetchSize, final int rowsCount)
+	{
+		return CursorModelIterator.stream(pstmt, fetchSize,
+				ps -> resultSet,
+				rs -> {
+					if (loadedModels.size() >= rowsCount)
+					{
+						return null;
+					}
+					final String model = "model" + (loadedModels.size() + 1);
+					loadedModels.add(model);
+					return model;
+				},
+				SQL, ImmutableList.of());
+	}
+
+	private void verifyClosed(final int expectedTimes) throws SQLException
+	{
+		// @formatter:off
+		new Verifications()
+		{{
+			resultSet.close(); times = expectedTimes;
+			pstmt.close(); times = expectedTimes;
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void test_FetchSizeIsSet_ModelsAreLoadedLazily_ClosedWhenConsumed() throws SQLException
+	{
+		expectConnection(false);
+
+		final Stream<String> stream = stream(50, 3);
+		Assert.assertEquals("no model shall be loaded before consuming", ImmutableList.of(), loadedModels);
+
+		final Iterator<String> iterator = stream.iterator();
+		Assert.assertEquals("model1", iterator.next());
+		Assert.assertEquals(ImmutableList.of("model1"), loadedModels);
+		verifyClosed(0);
+
+		Assert.assertEquals("model2", iterator.next());
+		Assert.assertEquals("model3", iterator.next());
+		Assert.assertFalse(iterator.hasNext());
+		verifyClosed(1);
+
+		// @formatter:off
+		new Verifications()
+		{{
+			pstmt.setFetchSize(50); times = 1;
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void test_ClosedWhenStreamIsClosed() throws SQLException
+	{
+		expectConnection(false);
+
+		try (final Stream<String> stream = stream(10, 100))
+		{
+			Assert.assertEquals(ImmutableList.of("model1", "model2"), stream.limit(2).collect(Collectors.toList()));
+		}
+
+		Assert.assertEquals(2, loadedModels.size());
+		verifyClosed(1);
+	}
+
+	@Test
+	public void test_AutoCommitConnection_ModelsAreStillStreamed() throws SQLException
+	{
+		expectConnection(true);
+
+		try (final Stream<String> stream = stream(10, 2))
+		{
+			Assert.assertEquals(ImmutableList.of("model1", "model2"), stream.collect(Collectors.toList()));
+		}
+
+		verifyClosed(1);
+	}
+
+	@Test
+	public void test_ExecuteQueryFails_StatementIsClosed() throws SQLException
+	{
+		expectConnection(false);
+
+		try
+		{
+			CursorModelIterator.stream(pstmt, 10,
+					ps -> {
+						throw new SQLException("test");
+					},
+					rs -> "model",
+					SQL, ImmutableList.of());
+			Assert.fail("Exception expected");
+		}
+		catch (final DBException e)
+		{
+			Assert.assertEquals(SQL, e.getSQL());
+		}
+
+		// @formatter:off
+		new Verifications()
+		{{
+			pstmt.close(); times = 1;
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void test_LoadingFails_ResultSetIsClosed() throws SQLException
+	{
+		expectConnection(false);
+
+		final Stream<String> stream = CursorModelIterator.stream(pstmt, 10,
+				ps -> resultSet,
+				rs -> {
+					throw new SQLException("test");
+				},
+				SQL, ImmutableList.of());
+		try
+		{
+			stream.findFirst();
+			Assert.fail("Exception expected");
+		}
+		catch (final DBException e)
+		{
+			Assert.assertEquals(SQL, e.getSQL());
+		}
+
+		verifyClosed(1);
+	}
+}
@@ -0,0 +1,135 @@
+package org.adempiere.ad.expression.api.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.adempiere.ad.expression.api.IExpressionEvaluator.OnVariableNotFound;
+import org.adempiere.ad.expression.api.ILogicExpression;
+import org.adempiere.ad.expression.api.LogicExpressionResult;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.CtxName;
+import org.compiere.util.CtxNames;
+import org.compiere.util.Evaluatee;
+import org.compiere.util.Evaluatees;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class CompiledLogicExpressionTest
+{
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+	}
+
+	private static ILogicExpression compile(final String expressionStr)
+	{
+		return LogicExpressionCompiler.instance.compile(expressionStr);
+	}
+
+	private static Evaluatee params(final String name1, final Object value1, final String name2, final Object value2)
+	{
+		return Evaluatees.mapBuilder()
+				.put(name1, value1)
+				.put(name2, value2)
+				.build();
+	}
+
+	@Test
+	public void test_usedParameters_respectShortCircuit()
+	{
+		final ILogicExpression expr = compile("@IsSOTrx@=Y & @DocStatus@=CO");
+
+		final LogicExpressionResult result = expr.evaluateToResult(params("IsSOTrx", "N", "DocStatus", "CO"), OnVariableNotFound.Fail);
+		assertFalse(result.booleanValue());
+
+		final Map<CtxName, String> expectedUsedParameters = ImmutableMap.of(CtxNames.parse("IsSOTrx"), "N");
+		assertEquals(expectedUsedParameters, result.getUsedParameters());
+	}
+
+	@Test
+	public void test_sameParameterResolvedOnce()
+	{
+		final ILogicExpression expr = compile("@DocStatus@!CO & @DocStatus@!CL");
+
+		final LogicExpressionResult result = expr.evaluateToResult(params("DocStatus", "DR", "Dummy", "X"), OnVariableNotFound.Fail);
+		assertTrue(result.booleanValue());
+		assertEquals(1, result.getUsedParameters().size());
+	}
+
+	@Test
+	public void test_numbersAreComparedAsNumbers()
+	{
+		final ILogicExpression expr = compile("@Qty@>10");
+
+		assertFalse(expr.evaluate(params("Qty", "9", "Dummy", "X"), OnVariableNotFound.Fail));
+		assertTrue(expr.evaluate(params("Qty", "10.5", "Dummy", "X"), OnVariableNotFound.Fail));
+		assertFalse(expr.evaluate(params("Qty", "'9'", "Dummy", "X"), OnVariableNotFound.Fail)); // quoted => compared as strings
+	}
+
+	@Test
+	public void test_memoizedEvaluation_followsParameterValues()
+	{
+		final ILogicExpression expr = compile("@IsSOTrx@=Y & @DocStatus@!CO");
+
+		for (int i = 0; i < 3; i++)
+		{
+			assertTrue(expr.evaluate(params("IsSOTrx", "Y", "DocStatus", "DR"), OnVariableNotFound.ReturnNoResult));
+			assertFalse(expr.evaluate(params("IsSOTrx", "Y", "DocStatus", "CO"), OnVariableNotFound.ReturnNoResult));
+			assertFalse(expr.evaluate(params("IsSOTrx", "N", "DocStatus", "DR"), OnVariableNotFound.ReturnNoResult));
+			assertFalse(expr.evaluate(params("IsSOTrx", "Y", "Dummy", "X"), OnVariableNotFound.ReturnNoResult)); // DocStatus not found
+		}
+	}
+
+	@Test
+	public void test_memoizedEvaluation_respectShortCircuit()
+	{
+		final ILogicExpression expr = compile("@IsSOTrx@=Y & @DocStatus@=CO");
+
+		final Evaluatee params = params("IsSOTrx", "N", "DocStatus", "CO");
+		final List<String> requestedVariableNames = new ArrayList<>();
+		final Evaluatee recordingParams = variableName -> {
+			requestedVariableNames.add(variableName);
+			return params.get_ValueAsString(variableName);
+		};
+
+		for (int i = 0; i < 3; i++)
+		{
+			assertFalse(expr.evaluate(recordingParams, OnVariableNotFound.ReturnNoResult));
+		}
+		assertTrue("IsSOTrx requested", requestedVariableNames.contains("IsSOTrx"));
+		assertFalse("DocStatus not requested", requestedVariableNames.contains("DocStatus"));
+
+		assertTrue(expr.evaluate(params("IsSOTrx", "Y", "DocStatus", "CO"), OnVariableNotFound.ReturnNoResult));
+		assertFalse(expr.evaluate(params("IsSOTrx", "Y", "DocStatus", "DR"), OnVariableNotFound.ReturnNoResult));
+	}
+}
@@ -0,0 +1,170 @@
+package org.adempiere.ad.modelvalidator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.ModelValidator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class PointcutInvokerTest
+{
+	private MockedInterceptor interceptor;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		interceptor = new MockedInterceptor();
+	}
+
+	private static Pointcut createPointcut(final String methodName, final Class<?>... parameterTypes) throws NoSuchMethodException
+	{
+		final Pointcut pointcut = new Pointcut(
+				PointcutType.ModelChange,
+				MockedInterceptor.class.getDeclaredMethod(methodName, parameterTypes),
+				new int[] { ModelValidator.TYPE_BEFORE_NEW },
+				false);
+		if (parameterTypes.length > 1)
+		{
+			pointcut.setMethodTimingParameterType(parameterTypes[1]);
+		}
+		return pointcut;
+	}
+
+	@Test
+	public void test_ModelOnly() throws Exception
+	{
+		final Pointcut pointcut = createPointcut("onModel", Object.class);
+		final PointcutInvoker invoker = PointcutInvoker.of(interceptor, pointcut);
+
+		invoker.invoke("model1", ModelValidator.TYPE_BEFORE_NEW);
+		invoker.invoke("model2", ModelValidator.TYPE_BEFORE_NEW);
+
+		assertThat(interceptor.calls).containsExactly("onModel model1", "onModel model2");
+	}
+
+	@Test
+	public void test_ModelAndTiming() throws Exception
+	{
+		final Pointcut pointcut = createPointcut("onModelAndTiming", Object.class, ModelChangeType.class);
+		final PointcutInvoker invoker = PointcutInvoker.of(interceptor, pointcut);
+
+		invoker.invoke("model1", ModelValidator.TYPE_BEFORE_NEW);
+
+		assertThat(interceptor.calls).containsExactly("onModelAndTiming model1 " + ModelChangeType.BEFORE_NEW);
+	}
+
+	@Test
+	public void test_ModelAndIntTiming() throws Exception
+	{
+		final Pointcut pointcut = createPointcut("onModelAndIntTiming", Object.class, int.class);
+		final PointcutInvoker invoker = PointcutInvoker.of(interceptor, pointcut);
+
+		invoker.invoke("model1", ModelValidator.TYPE_BEFORE_NEW);
+
+		assertThat(interceptor.calls).containsExactly("onModelAndIntTiming model1 " + ModelValidator.TYPE_BEFORE_NEW);
+	}
+
+	@Test
+	public void test_RuntimeExceptionIsNotWrapped() throws Exception
+	{
+		final Pointcut pointcut = createPointcut("onModelFailing", Object.class);
+		final PointcutInvoker invoker = PointcutInvoker.of(interceptor, pointcut);
+		final long errorsCountBefore = PointcutStatistics.getOrCreate(pointcut).getErrorsCount();
+
+		try
+		{
+			invoker.invoke("model1", ModelValidator.TYPE_BEFORE_NEW);
+			Assert.fail("Exception was expected");
+		}
+		catch (final IllegalStateException e)
+		{
+			assertThat(e).isSameAs(interceptor.exceptionToThrow);
+		}
+
+		assertThat(PointcutStatistics.getOrCreate(pointcut).getErrorsCount()).isEqualTo(errorsCountBefore + 1);
+	}
+
+	@Test
+	public void test_CheckedExceptionIsNotWrapped() throws Exception
+	{
+		final Pointcut pointcut = createPointcut("onModelFailingChecked", Object.class);
+		final PointcutInvoker invoker = PointcutInvoker.of(interceptor, pointcut);
+
+		try
+		{
+			invoker.invoke("model1", ModelValidator.TYPE_BEFORE_NEW);
+			Assert.fail("Exception was expected");
+		}
+		catch (final IOException e)
+		{
+			assertThat(e).isSameAs(interceptor.checkedExceptionToThrow);
+		}
+	}
+
+	private static final class MockedInterceptor
+	{
+		private final List<String> calls = new ArrayList<>();
+		private final IllegalStateException exceptionToThrow = new IllegalStateException("failing pointcut");
+		private final IOException checkedExceptionToThrow = new IOException("failing pointcut");
+
+		@SuppressWarnings("unused")
+		private void onModel(final Object model)
+		{
+			calls.add("onModel " + model);
+		}
+
+		@SuppressWarnings("unused")
+		private void onModelAndTiming(final Object model, final ModelChangeType timing)
+		{
+			calls.add("onModelAndTiming " + model + " " + timing);
+		}
+
+		@SuppressWarnings("unused")
+		private void onModelAndIntTiming(final Object model, final int timing)
+		{
+			calls.add("onModelAndIntTiming " + model + " " + timing);
+		}
+
+		@SuppressWarnings("unused")
+		private void onModelFailing(final Object model)
+		{
+			throw exceptionToThrow;
+		}
+
+		@SuppressWarnings("unused")
+		private void onModelFailingChecked(final Object model) throws IOException
+		{
+			throw checkedExceptionToThrow;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package org.adempiere.ad.service.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.adempiere.ad.service.TableIDBlock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableIDBlockAllocatorTest
+{
+	private static final String TABLENAME = "MyTable";
+
+	private MockedTableIDBlockAllocator allocator;
+
+	@Before
+	public void init()
+	{
+		allocator = new MockedTableIDBlockAllocator(10);
+	}
+
+	@Test
+	public void test_TableIDBlock()
+	{
+		final TableIDBlock block = new TableIDBlock(1000, 2, 3);
+		Assert.assertEquals(1000, block.nextID());
+		Assert.assertEquals(1002, block.nextID());
+		Assert.assertEquals(1004, block.nextID());
+		Assert.assertTrue(block.isExhausted());
+		Assert.assertEquals(TableIDBlock.EXHAUSTED, block.nextID());
+		Assert.assertEquals(3, block.getServedCount());
+	}
+
+	@Test
+	public void test_getNextID_ReservesNewBlockWhenExhausted()
+	{
+		for (int i = 0; i < 25; i++)
+		{
+			Assert.assertEquals(1000 + i, allocator.getNextID(1000000, TABLENAME));
+		}
+
+		Assert.assertEquals(3, allocator.getBlocksFetchedCount());
+		Assert.assertEquals(25, allocator.getIDsServedCount());
+	}
+
+	@Test
+	public void test_getNextID_FetchFailure()
+	{
+		allocator.failFetch = true;
+		Assert.assertEquals(-1, allocator.getNextID(1000000, TABLENAME));
+		Assert.assertEquals(1, allocator.getFetchFailuresCount());
+	}
+
+	@Test
+	public void test_getNextID_Concurrent() throws Exception
+	{
+		final int threadsCount = 8;
+		final int idsPerThread = 1000;
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+		try
+		{
+			final List<Future<List<Integer>>> futures = new ArrayList<>();
+			for (int t = 0; t < threadsCount; t++)
+			{
+				futures.add(executor.submit(new Callable<List<Integer>>()
+				{
+					@Override
+					public List<Integer> call()
+					{
+						final List<Integer> ids = new ArrayList<>(idsPerThread);
+						for (int i = 0; i < idsPerThread; i++)
+						{
+							ids.add(allocator.getNextID(1000000, TABLENAME));
+						}
+						return ids;
+					}
+				}));
+			}
+
+			final Set<Integer> allIds = Collections.synchronizedSet(new HashSet<Integer>());
+			for (final Future<List<Integer>> future : futures)
+			{
+				allIds.addAll(future.get());
+			}
+
+			Assert.assertEquals("All IDs shall be unique", threadsCount * idsPerThread, allIds.size());
+			Assert.assertEquals(threadsCount * idsPerThread / 10, allocator.getBlocksFetchedCount());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Allocator which reserves the blocks in memory instead of <code>AD_Sequence</code>.
+	 */
+	private static class MockedTableIDBlockAllocator extends TableIDBlockAllocator
+	{
+		private final int blockSize;
+		private int nextFirstID = 1000;
+		private boolean failFetch = false;
+
+		public MockedTableIDBlockAllocator(final int blockSize)
+		{
+			super();
+			this.blockSize = blockSize;
+		}
+
+		@Override
+		public int getBlockSize(final String tableName)
+		{
+			return blockSize;
+		}
+
+		@Override
+		protected synchronized TableIDBlock retrieveIDBlock(final int AD_Client_ID, final String tableName, final int blockSize)
+		{
+			if (failFetch)
+			{
+				return null;
+			}
+
+			final TableIDBlock block = new TableIDBlock(nextFirstID, 1, blockSize);
+			nextFirstID += blockSize;
+			return block;
+		}
+	}
+}
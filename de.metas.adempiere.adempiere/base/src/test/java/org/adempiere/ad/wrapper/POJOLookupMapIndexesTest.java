@@ -0,0 +1,158 @@
+package org.adempiere.ad.wrapper;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.adempiere.ad.dao.IQueryFilter;
+import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
+import org.adempiere.ad.dao.impl.CompositeQueryFilter;
+import org.adempiere.ad.dao.impl.EqualsQueryFilter;
+import org.adempiere.ad.dao.impl.InArrayQueryFilter;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.Env;
+import org.junit.Before;
+import org.junit.Test;
+
+public class POJOLookupMapIndexesTest
+{
+	public static interface IIndexedTable
+	{
+		// @formatter:off
+		String Table_Name = "IndexedTable";
+		String COLUMNNAME_IndexedTable_ID = "IndexedTable_ID";
+		int getIndexedTable_ID();
+
+		String COLUMNNAME_Parent_ID = "Parent_ID";
+		int getParent_ID();
+		void setParent_ID(int parentId);
+
+		String COLUMNNAME_Name = "Name";
+		String getName();
+		void setName(String name);
+		// @formatter:on
+	}
+
+	private POJOLookupMap db;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		db = POJOLookupMap.get();
+	}
+
+	private IIndexedTable newRecord(final int parentId, final String name)
+	{
+		final IIndexedTable record = POJOWrapper.create(Env.getCtx(), IIndexedTable.class);
+		record.setParent_ID(parentId);
+		record.setName(name);
+		InterfaceWrapperHelper.save(record);
+		return record;
+	}
+
+	private List<String> queryNames(final IQueryFilter<IIndexedTable> filter)
+	{
+		return db.getRecords(IIndexedTable.class, filter)
+				.stream()
+				.map(IIndexedTable::getName)
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void test_EqualsFilter_UsesIndex_And_PreservesOrder()
+	{
+		newRecord(1, "a1");
+		newRecord(2, "b1");
+		newRecord(1, "a2");
+		newRecord(1, "a3");
+
+		final long hitsBefore = db.getIndexHitsCount();
+		assertThat(queryNames(EqualsQueryFilter.of(IIndexedTable.COLUMNNAME_Parent_ID, 1))).containsExactly("a1", "a2", "a3");
+		assertThat(queryNames(EqualsQueryFilter.of(IIndexedTable.COLUMNNAME_Parent_ID, 2))).containsExactly("b1");
+		assertThat(queryNames(EqualsQueryFilter.of(IIndexedTable.COLUMNNAME_Parent_ID, 3))).isEmpty();
+		assertThat(db.getIndexHitsCount() - hitsBefore).isEqualTo(3);
+	}
+
+	@Test
+	public void test_IndexIsMaintainedOnSaveAndDelete()
+	{
+		final IIndexedTable a1 = newRecord(1, "a1");
+		final IIndexedTable a2 = newRecord(1, "a2");
+
+		// create the index
+		assertThat(queryNames(EqualsQueryFilter.of(IIndexedTable.COLUMNNAME_Parent_ID, 1))).containsExactly("a1", "a2");
+
+		a1.setParent_ID(2);
+		InterfaceWrapperHelper.save(a1);
+		InterfaceWrapperHelper.delete(a2);
+		newRecord(1, "a3");
+
+		assertThat(queryNames(EqualsQueryFilter.of(IIndexedTable.COLUMNNAME_Parent_ID, 1))).containsExactly("a3");
+		assertThat(queryNames(EqualsQueryFilter.of(IIndexedTable.COLUMNNAME_Parent_ID, 2))).containsExactly("a1");
+	}
+
+	@Test
+	public void test_SameResultsWithAndWithoutIndexes()
+	{
+		for (int i = 0; i < 50; i++)
+		{
+			newRecord(i % 5, "r" + i);
+		}
+
+		final CompositeQueryFilter<IIndexedTable> andFilter = new CompositeQueryFilter<>(IIndexedTable.class);
+		andFilter.addInArrayFilter(IIndexedTable.COLUMNNAME_Parent_ID, 1, 3)
+				.addCompareFilter(IIndexedTable.COLUMNNAME_Name, Operator.GREATER, "r2");
+
+		final CompositeQueryFilter<IIndexedTable> orFilter = new CompositeQueryFilter<>(IIndexedTable.class);
+		orFilter.setJoinOr()
+				.addEqualsFilter(IIndexedTable.COLUMNNAME_Parent_ID, 4)
+				.addEqualsFilter(IIndexedTable.COLUMNNAME_Name, "r7");
+
+		final InArrayQueryFilter<IIndexedTable> inArrayFilter = new InArrayQueryFilter<>(IIndexedTable.COLUMNNAME_Name, "r1", "r49", "missing");
+
+		final List<String> andIndexed = queryNames(andFilter);
+		final List<String> orIndexed = queryNames(orFilter);
+		final List<String> inArrayIndexed = queryNames(inArrayFilter);
+
+		db.setIndexesEnabled(false);
+		assertThat(andIndexed).isNotEmpty().isEqualTo(queryNames(andFilter));
+		assertThat(orIndexed).isNotEmpty().isEqualTo(queryNames(orFilter));
+		assertThat(inArrayIndexed).containsExactly("r1", "r49").isEqualTo(queryNames(inArrayFilter));
+	}
+
+	@Test
+	public void test_ReturnedRecordsAreCopies()
+	{
+		newRecord(1, "a1");
+
+		final IIndexedTable record = db.getRecords(IIndexedTable.class, EqualsQueryFilter.of(IIndexedTable.COLUMNNAME_Parent_ID, 1)).get(0);
+		record.setName("changed-but-not-saved");
+
+		assertThat(queryNames(EqualsQueryFilter.of(IIndexedTable.COLUMNNAME_Parent_ID, 1))).containsExactly("a1");
+	}
+}
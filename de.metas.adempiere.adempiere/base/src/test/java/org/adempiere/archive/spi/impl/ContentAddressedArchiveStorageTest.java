@@ -0,0 +1,180 @@
+package org.adempiere.archive.spi.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.I_AD_Archive;
+import org.compiere.model.I_AD_Client;
+import org.compiere.util.Env;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+
+public class ContentAddressedArchiveStorageTest
+{
+	@BeforeClass
+	public static void staticInit()
+	{
+		AdempiereTestHelper.get().staticInit();
+	}
+
+	@Rule
+	public TemporaryFolder storageFolder = new TemporaryFolder();
+	private int adClientId;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		final Properties ctx = Env.getCtx();
+		final I_AD_Client client = InterfaceWrapperHelper.create(ctx, I_AD_Client.class, ITrx.TRXNAME_None);
+		client.setWindowsArchivePath(storageFolder.getRoot().getAbsolutePath());
+		client.setUnixArchivePath(client.getWindowsArchivePath());
+		InterfaceWrapperHelper.save(client);
+
+		adClientId = client.getAD_Client_ID();
+		Env.setContext(ctx, "#AD_Client_ID", adClientId);
+	}
+
+	private ContentAddressedArchiveStorage createStorage(final int compressionLevel, final int chunkSizeKB)
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		sysConfigBL.setValue(ContentAddressedArchiveStorage.SYSCONFIG_CompressionLevel, compressionLevel, 0);
+		sysConfigBL.setValue(ContentAddressedArchiveStorage.SYSCONFIG_CompressionChunkSizeKB, chunkSizeKB, 0);
+
+		final ContentAddressedArchiveStorage storage = new ContentAddressedArchiveStorage();
+		storage.init(Env.getCtx(), adClientId);
+		return storage;
+	}
+
+	private I_AD_Archive createArchive(final ContentAddressedArchiveStorage storage, final byte[] data)
+	{
+		final I_AD_Archive archive = storage.newArchive(Env.getCtx(), ITrx.TRXNAME_None);
+		storage.setBinaryData(archive, data);
+		InterfaceWrapperHelper.save(archive);
+		return archive;
+	}
+
+	@Test
+	public void test_set_getBinaryData() throws Exception
+	{
+		final ContentAddressedArchiveStorage storage = createStorage(Deflater.BEST_SPEED, 1024);
+		final byte[] data = createTestDataBytes(4096);
+		final I_AD_Archive archive = createArchive(storage, data);
+
+		Assert.assertTrue("Shall be content addressed", ContentAddressedArchiveStorage.isContentAddressed(archive));
+		Assert.assertEquals("Invalid IsFileSystem flag", true, archive.isFileSystem());
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive));
+		try (final InputStream in = storage.getBinaryDataAsStream(archive))
+		{
+			Assert.assertArrayEquals("Invalid data", data, ByteStreams.toByteArray(in));
+		}
+		Assert.assertNull("Compressed blob shall not be provided as file", storage.getBinaryDataFile(archive));
+	}
+
+	@Test
+	public void test_SameDataIsStoredOnce() throws Exception
+	{
+		final ContentAddressedArchiveStorage storage = createStorage(Deflater.BEST_SPEED, 1024);
+		final byte[] data = createTestDataBytes(4096);
+		final I_AD_Archive archive1 = createArchive(storage, data);
+		final I_AD_Archive archive2 = createArchive(storage, data.clone());
+		final I_AD_Archive archive3 = createArchive(storage, createTestDataBytes(4096));
+
+		Assert.assertArrayEquals("Same data shall reference the same blob", archive1.getBinaryData(), archive2.getBinaryData());
+		Assert.assertFalse("Other data shall reference another blob", new String(archive1.getBinaryData()).equals(new String(archive3.getBinaryData())));
+		Assert.assertEquals("Stored blobs", 2, listStoredFiles().size());
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive2));
+	}
+
+	@Test
+	public void test_BigDataIsCompressedInChunks() throws Exception
+	{
+		final ContentAddressedArchiveStorage storage = createStorage(Deflater.BEST_COMPRESSION, 1);
+		final byte[] data = new byte[10 * 1024 + 123];
+		for (int i = 0; i < data.length; i++)
+		{
+			data[i] = (byte)(i % 7); // compressible
+		}
+		final I_AD_Archive archive = createArchive(storage, data);
+
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive));
+
+		final List<File> files = listStoredFiles();
+		Assert.assertEquals("Stored blobs", 1, files.size());
+		Assert.assertTrue("Blob shall be compressed: " + files.get(0), files.get(0).length() < data.length);
+	}
+
+	@Test
+	public void test_NoCompression_getBinaryDataFile() throws Exception
+	{
+		final ContentAddressedArchiveStorage storage = createStorage(Deflater.NO_COMPRESSION, 1024);
+		final byte[] data = createTestDataBytes(4096);
+		final I_AD_Archive archive = createArchive(storage, data);
+
+		final File file = storage.getBinaryDataFile(archive);
+		Assert.assertTrue("File shall be in storage folder: " + file, file.getAbsolutePath().startsWith(storageFolder.getRoot().getAbsolutePath()));
+		Assert.assertArrayEquals("Invalid file content", data, Files.readAllBytes(file.toPath()));
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive));
+	}
+
+	private List<File> listStoredFiles() throws Exception
+	{
+		try (final Stream<Path> paths = Files.walk(storageFolder.getRoot().toPath()))
+		{
+			return paths.filter(Files::isRegularFile)
+					.map(Path::toFile)
+					.collect(Collectors.toList());
+		}
+	}
+
+	private final Random random = new Random();
+
+	private byte[] createTestDataBytes(final int size)
+	{
+		final byte[] data = new byte[size];
+		random.nextBytes(data);
+		return data;
+	}
+}
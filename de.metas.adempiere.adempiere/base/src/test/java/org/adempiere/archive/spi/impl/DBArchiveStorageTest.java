@@ -23,6 +23,7 @@ package org.adempiere.archive.spi.impl;
  */
 
 
+import java.io.InputStream;
 import java.util.Random;
 
 import org.adempiere.ad.trx.api.ITrx;
@@ -35,6 +36,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.io.ByteStreams;
+
 public class DBArchiveStorageTest
 {
 	@BeforeClass
@@ -67,6 +70,30 @@ public class DBArchiveStorageTest
 		Assert.assertArrayEquals("Invalid data", data, dataActual);
 	}
 
+	@Test
+	public void test_getBinaryDataAsStream() throws Exception
+	{
+		final I_AD_Archive archive = InterfaceWrapperHelper.create(Env.getCtx(), I_AD_Archive.class, ITrx.TRXNAME_None);
+		final byte[] data = createTestDataBytes();
+		storage.setBinaryData(archive, data);
+		InterfaceWrapperHelper.save(archive);
+
+		try (final InputStream in = storage.getBinaryDataAsStream(archive))
+		{
+			Assert.assertArrayEquals("Invalid data", data, ByteStreams.toByteArray(in));
+		}
+
+		Assert.assertNull("DB storage has no plain file", storage.getBinaryDataFile(archive));
+	}
+
+	@Test
+	public void test_getBinaryDataAsStream_NoData()
+	{
+		final I_AD_Archive archive = InterfaceWrapperHelper.create(Env.getCtx(), I_AD_Archive.class, ITrx.TRXNAME_None);
+		Assert.assertNull(storage.getBinaryDataAsStream(archive));
+		Assert.assertNull(storage.getBinaryData(archive));
+	}
+
 	private final Random random = new Random();
 
 	private byte[] createTestDataBytes()
@@ -23,6 +23,9 @@ package org.adempiere.archive.spi.impl;
  */
 
 
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Properties;
 import java.util.Random;
 
@@ -40,6 +43,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.google.common.io.ByteStreams;
+
 public class FilesystemArchiveStorageTest
 {
 	@BeforeClass
@@ -90,6 +95,26 @@ public class FilesystemArchiveStorageTest
 		Assert.assertArrayEquals("Invalid data", data, dataActual);
 	}
 
+	@Test
+	public void test_getBinaryDataAsStream_and_File() throws Exception
+	{
+		Ini.setClient(false);
+
+		final I_AD_Archive archive = InterfaceWrapperHelper.create(Env.getCtx(), I_AD_Archive.class, ITrx.TRXNAME_None);
+		final byte[] data = createTestDataBytes();
+		storage.setBinaryData(archive, data);
+		InterfaceWrapperHelper.save(archive);
+
+		try (final InputStream in = storage.getBinaryDataAsStream(archive))
+		{
+			Assert.assertArrayEquals("Invalid data", data, ByteStreams.toByteArray(in));
+		}
+
+		final File file = storage.getBinaryDataFile(archive);
+		Assert.assertTrue("File shall be in storage folder: " + file, file.getAbsolutePath().startsWith(storageFolder.getRoot().getAbsolutePath()));
+		Assert.assertArrayEquals("Invalid file content", data, Files.readAllBytes(file.toPath()));
+	}
+
 	private final Random random = new Random();
 
 	private byte[] createTestDataBytes()
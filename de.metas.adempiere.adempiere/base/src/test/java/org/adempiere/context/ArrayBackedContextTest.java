@@ -0,0 +1,271 @@
+package org.adempiere.context;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.compiere.util.Env;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class ArrayBackedContextTest
+{
+	@Test
+	public void test_PutGetRemove()
+	{
+		final ArrayBackedContext ctx = ArrayBackedContext.newInstance();
+		ctx.setProperty(Env.CTXNAME_AD_Client_ID, "1000000");
+		ctx.setProperty("1|2|C_BPartner_ID", "123");
+
+		Assert.assertEquals("1000000", ctx.getProperty(Env.CTXNAME_AD_Client_ID));
+		Assert.assertEquals("1000000", ctx.get(Env.CTXNAME_AD_Client_ID));
+		Assert.assertEquals("123", ctx.getProperty("1|2|C_BPartner_ID"));
+		Assert.assertEquals(2, ctx.size());
+		Assert.assertEquals(ImmutableSet.of(Env.CTXNAME_AD_Client_ID, "1|2|C_BPartner_ID"), ctx.keySet());
+
+		Assert.assertEquals("1000000", ctx.remove(Env.CTXNAME_AD_Client_ID));
+		Assert.assertNull(ctx.getProperty(Env.CTXNAME_AD_Client_ID));
+		Assert.assertEquals(1, ctx.size());
+
+		ctx.clear();
+		Assert.assertTrue(ctx.isEmpty());
+	}
+
+	@Test
+	public void test_ComputeAndMerge()
+	{
+		final ArrayBackedContext ctx = ArrayBackedContext.newInstance();
+		ctx.setProperty(Env.CTXNAME_AD_Client_ID, "1");
+		ctx.setProperty("Key1", "Value1");
+
+		Assert.assertEquals("2", ctx.computeIfPresent(Env.CTXNAME_AD_Client_ID, (key, value) -> "2"));
+		Assert.assertNull(ctx.computeIfPresent("Missing", (key, value) -> "X"));
+		Assert.assertFalse(ctx.containsKey("Missing"));
+
+		Assert.assertEquals("Value1+", ctx.compute("Key1", (key, value) -> value + "+"));
+		Assert.assertEquals("New", ctx.compute("Key2", (key, value) -> value == null ? "New" : "Old"));
+		Assert.assertNull(ctx.compute("Key2", (key, value) -> null));
+		Assert.assertFalse(ctx.containsKey("Key2"));
+
+		Assert.assertEquals("A", ctx.merge("Key3", "A", (valueOld, value) -> valueOld + "" + value));
+		Assert.assertEquals("AB", ctx.merge("Key3", "B", (valueOld, value) -> valueOld + "" + value));
+		Assert.assertNull(ctx.merge("Key3", "C", (valueOld, value) -> null));
+		Assert.assertFalse(ctx.containsKey("Key3"));
+
+		ctx.replaceAll((key, value) -> value + "!");
+		Assert.assertEquals("2!", ctx.getProperty(Env.CTXNAME_AD_Client_ID));
+		Assert.assertEquals("Value1+!", ctx.getProperty("Key1"));
+		Assert.assertEquals(2, ctx.size());
+	}
+
+	@Test
+	public void test_Compute_DoesNotChangeSnapshot()
+	{
+		final ArrayBackedContext ctx = ArrayBackedContext.newInstance();
+		ctx.setProperty("Key1", "Value1");
+		final ArrayBackedContext snapshot = ctx.snapshot();
+
+		ctx.compute("Key1", (key, value) -> "Value2");
+		ctx.merge("Key2", "Value2", (valueOld, value) -> value);
+
+		Assert.assertEquals("Value1", snapshot.getProperty("Key1"));
+		Assert.assertNull(snapshot.getProperty("Key2"));
+	}
+
+	@Test
+	public void test_Views_AreLive()
+	{
+		final ArrayBackedContext ctx = ArrayBackedContext.newInstance();
+		ctx.setProperty(Env.CTXNAME_AD_Client_ID, "1");
+		ctx.setProperty("Key1", "Value1");
+
+		final Set<Object> keySet = ctx.keySet();
+		final Collection<Object> values = ctx.values();
+		final Set<Map.Entry<Object, Object>> entrySet = ctx.entrySet();
+
+		// changes of the context are seen by the views
+		ctx.setProperty("Key2", "Value2");
+		Assert.assertEquals(ImmutableSet.of(Env.CTXNAME_AD_Client_ID, "Key1", "Key2"), keySet);
+		Assert.assertTrue(values.contains("Value2"));
+		Assert.assertEquals(3, entrySet.size());
+		Assert.assertTrue(entrySet.contains(new AbstractMap.SimpleEntry<>("Key2", "Value2")));
+
+		// changes of the views are written through to the context
+		Assert.assertTrue(keySet.remove("Key2"));
+		Assert.assertFalse(ctx.containsKey("Key2"));
+
+		for (final Map.Entry<Object, Object> entry : entrySet)
+		{
+			if ("Key1".equals(entry.getKey()))
+			{
+				entry.setValue("Value1-changed");
+			}
+		}
+		Assert.assertEquals("Value1-changed", ctx.getProperty("Key1"));
+
+		for (final Iterator<Object> it = keySet.iterator(); it.hasNext();)
+		{
+			if (Env.CTXNAME_AD_Client_ID.equals(it.next()))
+			{
+				it.remove();
+			}
+		}
+		Assert.assertNull(ctx.getProperty(Env.CTXNAME_AD_Client_ID));
+		Assert.assertEquals(1, ctx.size());
+
+		values.clear();
+		Assert.assertTrue(ctx.isEmpty());
+	}
+
+	@Test
+	public void test_Views_Iterator_IsNotFailingOnConcurrentChanges()
+	{
+		final ArrayBackedContext ctx = ArrayBackedContext.newInstance();
+		ctx.setProperty("Key1", "Value1");
+		ctx.setProperty("Key2", "Value2");
+
+		final Iterator<Object> it = ctx.keySet().iterator();
+		ctx.setProperty("Key3", "Value3");
+		ctx.remove("Key1");
+
+		// the iterator is reflecting the context as it was when the iterator was created
+		final Set<Object> iteratedKeys = new HashSet<>();
+		it.forEachRemaining(iteratedKeys::add);
+		Assert.assertEquals(ImmutableSet.of("Key1", "Key2"), iteratedKeys);
+	}
+
+	@Test
+	public void test_ParentFallback()
+	{
+		final ArrayBackedContext parent = ArrayBackedContext.newInstance();
+		parent.setProperty(Env.CTXNAME_AD_Org_ID, "1");
+		parent.setProperty("Key1", "Value1");
+
+		final ArrayBackedContext child = ArrayBackedContext.newChild(parent);
+		child.setProperty("Key2", "Value2");
+
+		// like java.util.Properties: getProperty falls back to parent, get does not
+		Assert.assertEquals("1", child.getProperty(Env.CTXNAME_AD_Org_ID));
+		Assert.assertNull(child.get(Env.CTXNAME_AD_Org_ID));
+		Assert.assertEquals(ImmutableSet.of(Env.CTXNAME_AD_Org_ID, "Key1", "Key2"), child.stringPropertyNames());
+
+		// values set in parent later are still visible
+		parent.setProperty("Key3", "Value3");
+		Assert.assertEquals("Value3", child.getProperty("Key3"));
+
+		// changing the child does not change the parent
+		child.setProperty(Env.CTXNAME_AD_Org_ID, "2");
+		Assert.assertEquals("2", child.getProperty(Env.CTXNAME_AD_Org_ID));
+		Assert.assertEquals("1", parent.getProperty(Env.CTXNAME_AD_Org_ID));
+
+		// a plain Properties which is using our context as defaults is also seeing the parent's values
+		final Properties plainChild = new Properties(child);
+		Assert.assertEquals("Value1", plainChild.getProperty("Key1"));
+		Assert.assertTrue(plainChild.stringPropertyNames().contains("Key1"));
+	}
+
+	@Test
+	public void test_Snapshot_IsIsolated()
+	{
+		final ArrayBackedContext ctx = ArrayBackedContext.newInstance();
+		ctx.setProperty(Env.CTXNAME_AD_Client_ID, "1");
+		ctx.setProperty("Key1", "Value1");
+
+		final ArrayBackedContext snapshot = ctx.snapshot();
+		Assert.assertEquals(ctx, snapshot);
+
+		ctx.setProperty(Env.CTXNAME_AD_Client_ID, "2");
+		ctx.setProperty("Key1", "Value1-changed");
+		snapshot.setProperty("Key2", "Value2");
+
+		Assert.assertEquals("1", snapshot.getProperty(Env.CTXNAME_AD_Client_ID));
+		Assert.assertEquals("Value1", snapshot.getProperty("Key1"));
+		Assert.assertEquals("Value1-changed", ctx.getProperty("Key1"));
+		Assert.assertNull(ctx.getProperty("Key2"));
+	}
+
+	@Test
+	public void test_Snapshot_OfChild_IsFlattened()
+	{
+		final ArrayBackedContext parent = ArrayBackedContext.newInstance();
+		parent.setProperty("Key1", "Value1");
+		final ArrayBackedContext child = ArrayBackedContext.newChild(parent);
+		child.setProperty("Key2", "Value2");
+
+		final ArrayBackedContext snapshot = child.snapshot();
+		parent.setProperty("Key1", "Value1-changed");
+
+		Assert.assertNull(snapshot.getParent());
+		Assert.assertEquals("Value1", snapshot.getProperty("Key1"));
+		Assert.assertEquals("Value2", snapshot.getProperty("Key2"));
+	}
+
+	@Test
+	public void test_EnvRemoveContext_HidesParentValue()
+	{
+		final Properties parent = Env.newTemporaryCtx();
+		Env.setContext(parent, 1, "C_BPartner_ID", 10);
+		final Properties child = Env.deriveCtx(parent);
+		Assert.assertEquals(10, Env.getContextAsInt(child, 1, "C_BPartner_ID"));
+
+		Env.setContext(child, 1, "C_BPartner_ID", (String)null);
+		Assert.assertEquals(0, Env.getContextAsInt(child, 1, "C_BPartner_ID"));
+		Assert.assertEquals(10, Env.getContextAsInt(parent, 1, "C_BPartner_ID"));
+	}
+
+	@Test
+	public void test_Serialization_IncludesParentValues() throws Exception
+	{
+		final ArrayBackedContext parent = ArrayBackedContext.newInstance();
+		parent.setProperty(Env.CTXNAME_AD_Client_ID, "1");
+		final ArrayBackedContext child = ArrayBackedContext.newChild(parent);
+		child.setProperty("Key1", "Value1");
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream(out))
+		{
+			oos.writeObject(child);
+		}
+
+		final Properties deserialized;
+		try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())))
+		{
+			deserialized = (Properties)ois.readObject();
+		}
+
+		Assert.assertEquals("1", deserialized.getProperty(Env.CTXNAME_AD_Client_ID));
+		Assert.assertEquals("Value1", deserialized.getProperty("Key1"));
+	}
+}
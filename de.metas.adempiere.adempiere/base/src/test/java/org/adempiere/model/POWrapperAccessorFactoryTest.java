@@ -0,0 +1,319 @@
+package org.adempiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.I_C_Tax;
+import org.compiere.model.PO;
+import org.compiere.model.POInfo;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+
+/**
+ * Makes sure the accessors generated by {@link POWrapperAccessorFactory} behave exactly like the {@link Proxy} based {@link POWrapper}.
+ * <p>
+ * Each test wraps the same mocked {@link PO} both ways and compares the results.
+ */
+public class POWrapperAccessorFactoryTest
+{
+	public interface I_AccessorTest
+	{
+		String getName();
+
+		void setName(String name);
+
+		BigDecimal getQty();
+
+		void setQty(BigDecimal qty);
+
+		int getC_Tax_ID();
+
+		void setC_Tax_ID(int taxId);
+
+		I_C_Tax getC_Tax();
+
+		void setC_Tax(I_C_Tax tax);
+
+		boolean isActive();
+
+		void setIsActive(boolean active);
+
+		String getNotExistingName();
+
+		void setNotExistingName(String name);
+
+		int getNotExistingInt();
+
+		BigDecimal getNotExistingQty();
+
+		boolean isNotExisting();
+	}
+
+	/** Interface which can't be implemented by a generated class because it's not public */
+	interface I_NotPublic
+	{
+		String getName();
+	}
+
+	public interface I_ValueAsObject
+	{
+		Object getName();
+	}
+
+	public interface I_ValueAsString
+	{
+		String getName();
+	}
+
+	/** Interface which can't be implemented by a generated class because it inherits <code>getName()</code> with different return types */
+	public interface I_CovariantReturnTypes extends I_ValueAsObject, I_ValueAsString
+	{
+	}
+
+	private static final List<String> COLUMNNAMES = ImmutableList.of("AccessorTest_ID", "Name", "Qty", "C_Tax_ID", "IsActive");
+
+	@Mocked
+	private PO po;
+	@Mocked
+	private POInfo poInfo;
+	@Mocked
+	private I_C_Tax tax;
+
+	/** Values of our mocked PO */
+	private final Map<String, Object> values = new HashMap<>();
+
+	private I_AccessorTest generated;
+	private I_AccessorTest reflective;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		values.clear();
+
+		final Delegate<Integer> getColumnIndex = new Delegate<Integer>()
+		{
+			@SuppressWarnings("unused")
+			int delegate(final String columnName)
+			{
+				return COLUMNNAMES.indexOf(columnName);
+			}
+		};
+		final Delegate<Boolean> setValue = new Delegate<Boolean>()
+		{
+			@SuppressWarnings("unused")
+			boolean delegate(final String columnName, final Object value)
+			{
+				if (!COLUMNNAMES.contains(columnName))
+				{
+					return false; // same as PO does
+				}
+				values.put(columnName, value);
+				return true;
+			}
+		};
+
+		// @formatter:off
+		new Expectations()
+		{{
+			po.getPOInfo(); minTimes = 0; result = poInfo;
+			po.get_TableName(); minTimes = 0; result = "AccessorTest";
+			po.get_ColumnIndex(anyString); minTimes = 0; result = getColumnIndex;
+			poInfo.getColumnIndex(anyString); minTimes = 0; result = getColumnIndex;
+			poInfo.isColumnUpdateable(anyString); minTimes = 0; result = true;
+			po.get_Value(anyInt); minTimes = 0; result = new Delegate<Object>()
+			{
+				@SuppressWarnings("unused")
+				Object delegate(final int columnIndex)
+				{
+					return values.get(COLUMNNAMES.get(columnIndex));
+				}
+			};
+			po.set_ValueOfColumnReturningBoolean(anyString, any); minTimes = 0; result = setValue;
+			po.set_ValueNoCheck(anyString, any); minTimes = 0; result = setValue;
+		}};
+		// @formatter:on
+
+		generated = POWrapper.wrap(I_AccessorTest.class, po, POWrapperAccessorFactory.instance);
+		reflective = POWrapper.wrap(I_AccessorTest.class, po, null);
+	}
+
+	private void assertSameResult(final Object expected, final Function<I_AccessorTest, Object> getter)
+	{
+		Assert.assertEquals("reflective", expected, getter.apply(reflective));
+		Assert.assertEquals("generated", expected, getter.apply(generated));
+	}
+
+	private void assertSameException(final Class<? extends Exception> expectedExceptionClass, final Consumer<I_AccessorTest> call)
+	{
+		for (final I_AccessorTest model : ImmutableList.of(reflective, generated))
+		{
+			try
+			{
+				call.accept(model);
+				Assert.fail("Exception expected for " + model.getClass());
+			}
+			catch (final Exception e)
+			{
+				Assert.assertEquals("Exception for " + model.getClass(), expectedExceptionClass, e.getClass());
+			}
+		}
+	}
+
+	@Test
+	public void test_GeneratedAccessorIsUsed()
+	{
+		Assert.assertTrue(generated instanceof POWrapperAccessor);
+		Assert.assertTrue(Proxy.isProxyClass(reflective.getClass()));
+
+		Assert.assertSame(po, POWrapper.getStrictPO(generated));
+		Assert.assertSame(po, POWrapper.getStrictPO(reflective));
+	}
+
+	@Test
+	public void test_GettersAndSetters()
+	{
+		generated.setName("name1");
+		assertSameResult("name1", I_AccessorTest::getName);
+
+		reflective.setName("name2");
+		assertSameResult("name2", I_AccessorTest::getName);
+
+		generated.setQty(new BigDecimal("10"));
+		assertSameResult(new BigDecimal("10"), I_AccessorTest::getQty);
+
+		reflective.setC_Tax_ID(5);
+		assertSameResult(5, I_AccessorTest::getC_Tax_ID);
+
+		generated.setIsActive(true);
+		assertSameResult(true, I_AccessorTest::isActive);
+		Assert.assertEquals(true, values.get("IsActive"));
+	}
+
+	@Test
+	public void test_BooleanGetter_ConvertsStringValues()
+	{
+		values.put("IsActive", "Y");
+		assertSameResult(true, I_AccessorTest::isActive);
+
+		values.put("IsActive", "N");
+		assertSameResult(false, I_AccessorTest::isActive);
+	}
+
+	@Test
+	public void test_DefaultValues()
+	{
+		assertSameResult(null, I_AccessorTest::getName);
+		assertSameResult(BigDecimal.ZERO, I_AccessorTest::getQty);
+		assertSameResult(0, I_AccessorTest::getC_Tax_ID);
+		assertSameResult(false, I_AccessorTest::isActive);
+	}
+
+	@Test
+	public void test_ZeroIdIsSetAsNull()
+	{
+		for (final I_AccessorTest model : ImmutableList.of(reflective, generated))
+		{
+			values.put("C_Tax_ID", 10);
+
+			model.setC_Tax_ID(0);
+			Assert.assertTrue(values.containsKey("C_Tax_ID"));
+			Assert.assertNull(values.get("C_Tax_ID"));
+		}
+
+		assertSameResult(0, I_AccessorTest::getC_Tax_ID);
+	}
+
+	@Test
+	public void test_NotExistingColumns()
+	{
+		assertSameResult(null, I_AccessorTest::getNotExistingName);
+		assertSameResult(0, I_AccessorTest::getNotExistingInt);
+		assertSameResult(BigDecimal.ZERO, I_AccessorTest::getNotExistingQty);
+
+		generated.setNotExistingName("name");
+		reflective.setNotExistingName("name");
+		assertSameResult(null, I_AccessorTest::getNotExistingName);
+
+		assertSameException(IllegalArgumentException.class, I_AccessorTest::isNotExisting);
+	}
+
+	@Test
+	public void test_ModelReferences()
+	{
+		// @formatter:off
+		new Expectations()
+		{{
+			po.get_ValueAsPO("C_Tax_ID", I_C_Tax.class); result = tax; times = 2;
+		}};
+		// @formatter:on
+
+		assertSameResult(tax, I_AccessorTest::getC_Tax);
+
+		reflective.setC_Tax(tax);
+		generated.setC_Tax(tax);
+
+		// @formatter:off
+		new Verifications()
+		{{
+			po.set_ValueFromPO("C_Tax_ID", I_C_Tax.class, tax); times = 2;
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void test_FallbackToProxy_NotPublicInterface()
+	{
+		final I_NotPublic model = POWrapper.wrap(I_NotPublic.class, po, POWrapperAccessorFactory.instance);
+		Assert.assertTrue(Proxy.isProxyClass(model.getClass()));
+
+		values.put("Name", "name1");
+		Assert.assertEquals("name1", model.getName());
+	}
+
+	@Test
+	public void test_FallbackToProxy_CovariantReturnTypes()
+	{
+		final I_CovariantReturnTypes model = POWrapper.wrap(I_CovariantReturnTypes.class, po, POWrapperAccessorFactory.instance);
+		Assert.assertTrue(Proxy.isProxyClass(model.getClass()));
+
+		values.put("Name", "name1");
+		Assert.assertEquals("name1", model.getName());
+	}
+}
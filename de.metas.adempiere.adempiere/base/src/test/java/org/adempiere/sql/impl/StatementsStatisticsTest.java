@@ -0,0 +1,170 @@
+package org.adempiere.context;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.sql.impl.StatementsStatistics.StatementStatistics;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.Services;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import mockit.Expectations;
+import mockit.Mocked;
+
+public class StatementsStatisticsTest
+{
+	private StatementsStatistics statistics;
+	private int sameSqlPerTrxThresholdOld;
+
+	@Mocked
+	private ResultSet resultSet;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		statistics = StatementsStatistics.instance;
+		statistics.setEnabled(true);
+		statistics.reset();
+		sameSqlPerTrxThresholdOld = statistics.getSameSqlPerTrxThreshold();
+	}
+
+	@After
+	public void restore()
+	{
+		statistics.setEnabled(false);
+		statistics.setSameSqlPerTrxThreshold(sameSqlPerTrxThresholdOld);
+	}
+
+	private StatementStatistics getStatisticsBySql(final String normalizedSql)
+	{
+		return statistics.getStatisticsBySql()
+				.stream()
+				.filter(s -> normalizedSql.equals(s.getKey()))
+				.findFirst()
+				.orElse(null);
+	}
+
+	private StatementStatistics getStatisticsBySubsystem(final String subsystem)
+	{
+		return statistics.getStatisticsBySubsystem()
+				.stream()
+				.filter(s -> subsystem.equals(s.getKey()))
+				.findFirst()
+				.orElse(null);
+	}
+
+	@Test
+	public void test_normalizeSql()
+	{
+		Assert.assertEquals("SELECT * FROM C_BPartner WHERE C_BPartner_ID=? AND Value=? AND IsActive=?",
+				StatementsStatistics.normalizeSql("SELECT * FROM C_BPartner WHERE C_BPartner_ID=123 AND Value='It''s' AND IsActive='Y'"));
+		Assert.assertEquals("SELECT * FROM M_Product p1 WHERE p1.M_Product_ID IN (?...) AND p1.Weight>?",
+				StatementsStatistics.normalizeSql("SELECT *\n  FROM M_Product p1\n WHERE p1.M_Product_ID IN (1, 2,3) AND p1.Weight>-1.5"));
+		Assert.assertEquals("SELECT * FROM M_Product WHERE M_Product_ID IN (?...)",
+				StatementsStatistics.normalizeSql("SELECT * FROM M_Product WHERE M_Product_ID IN (?,?,?)"));
+	}
+
+	@Test
+	public void test_recordExecute_AggregatesByNormalizedSqlAndSubsystem()
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName("MySubsystem", true);
+
+		statistics.recordExecute("SELECT * FROM C_BPartner WHERE C_BPartner_ID=1", trxName, TimeUnit.MILLISECONDS.toNanos(2), 1);
+		statistics.recordExecute("SELECT * FROM C_BPartner WHERE C_BPartner_ID=2", ITrx.TRXNAME_None, TimeUnit.MILLISECONDS.toNanos(3), 1);
+
+		final StatementStatistics sqlStatistics = getStatisticsBySql("SELECT * FROM C_BPartner WHERE C_BPartner_ID=?");
+		Assert.assertEquals(2, sqlStatistics.getExecuteCount());
+		Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), sqlStatistics.getExecuteNanos());
+
+		Assert.assertEquals(1, getStatisticsBySubsystem("MySubsystem").getExecuteCount());
+		Assert.assertEquals(1, getStatisticsBySubsystem(StatementsStatistics.SUBSYSTEM_NoTrx).getExecuteCount());
+
+		try (final IAutoCloseable c = statistics.temporarySetSubsystem("Accounting"))
+		{
+			statistics.recordExecute("SELECT 1", trxName, 1, 1);
+		}
+		Assert.assertEquals(1, getStatisticsBySubsystem("Accounting").getExecuteCount());
+	}
+
+	@Test
+	public void test_recordExecute_RecordsFetchOnResultSetClose() throws Exception
+	{
+		// @formatter:off
+		new Expectations()
+		{{
+			resultSet.next(); returns(true, true, false);
+		}};
+		// @formatter:on
+
+		final ResultSet rs = statistics.recordExecute("SELECT * FROM M_Product", ITrx.TRXNAME_None, 1, resultSet);
+		Assert.assertNotSame(resultSet, rs);
+		while (rs.next())
+		{
+			// nothing
+		}
+
+		final StatementStatistics sqlStatistics = getStatisticsBySql("SELECT * FROM M_Product");
+		Assert.assertEquals(0, sqlStatistics.getFetchCount());
+
+		rs.close();
+		rs.close(); // shall be recorded only once
+		Assert.assertEquals(1, sqlStatistics.getFetchCount());
+		Assert.assertEquals(2, sqlStatistics.getRowsFetched());
+	}
+
+	@Test
+	public void test_SameSqlExecutedTooManyTimesInTrx_IsFlagged()
+	{
+		statistics.setSameSqlPerTrxThreshold(3);
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName("Test", true);
+		final String otherTrxName = trxManager.createTrxName("Test", true);
+
+		statistics.recordExecute("SELECT * FROM M_HU WHERE M_HU_ID=1", trxName, 1, 1);
+		statistics.recordExecute("SELECT * FROM M_HU WHERE M_HU_ID=2", trxName, 1, 1);
+		statistics.recordExecute("SELECT * FROM M_HU WHERE M_HU_ID=3", otherTrxName, 1, 1);
+		Assert.assertEquals(0, statistics.getSameSqlWarningsCount());
+
+		statistics.recordExecute("SELECT * FROM M_HU WHERE M_HU_ID=4", trxName, 1, 1);
+		statistics.recordExecute("SELECT * FROM M_HU WHERE M_HU_ID=5", trxName, 1, 1);
+		Assert.assertEquals("flagged only once per trx and SQL", 1, statistics.getSameSqlWarningsCount());
+
+		// statements outside of transactions are not counted
+		for (int i = 0; i < 5; i++)
+		{
+			statistics.recordExecute("SELECT * FROM M_HU WHERE M_HU_ID=" + i, ITrx.TRXNAME_None, 1, 1);
+		}
+		Assert.assertEquals(1, statistics.getSameSqlWarningsCount());
+	}
+}
@@ -0,0 +1,377 @@
+package org.compiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.adempiere.exceptions.DBException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests the ordering and the failure handling of {@link POSaveBatch}, using mocked models and a mocked JDBC executor.
+ */
+public class POSaveBatchTest
+{
+	/** Everything which happens: model hooks and executed batches */
+	private final List<String> events = new ArrayList<>();
+
+	private POSaveBatch batch;
+
+	@Before
+	public void init()
+	{
+		events.clear();
+		batch = newBatch(500);
+	}
+
+	private POSaveBatch newBatch(final int maxStatementsPerBatch)
+	{
+		return new POSaveBatch("TestTrx", maxStatementsPerBatch, this::executeBatch);
+	}
+
+	private int[] executeBatch(final String trxName, final List<String> sqls) throws SQLException
+	{
+		events.add("execute " + sqls);
+		if (sqls.stream().anyMatch(sql -> sql.contains("FAIL")))
+		{
+			throw new SQLException("Failed executing " + sqls);
+		}
+
+		final int[] updateCounts = new int[sqls.size()];
+		Arrays.fill(updateCounts, 1);
+		return updateCounts;
+	}
+
+	private MockedModel model(final String name, final String tableName)
+	{
+		return new MockedModel(name, tableName);
+	}
+
+	@Test
+	public void test_RecordsAreWrittenInOriginalOrder()
+	{
+		final MockedModel parentHU = model("parentHU", "M_HU");
+		final MockedModel item = model("item", "M_HU_Item");
+		final MockedModel childHU1 = model("childHU1", "M_HU");
+		final MockedModel childHU2 = model("childHU2", "M_HU");
+
+		batch.save(ImmutableList.of(parentHU, item, childHU1, childHU2));
+
+		Assert.assertEquals(ImmutableList.of(
+				"before parentHU",
+				"execute [INSERT parentHU]",
+				"after parentHU",
+				"before item",
+				"execute [INSERT item]",
+				"after item",
+				"before childHU1",
+				"before childHU2",
+				"execute [INSERT childHU1, INSERT childHU2]",
+				"after childHU1",
+				"after childHU2"),
+				events);
+		Assert.assertEquals("batches", 3, batch.getStatistics().size());
+	}
+
+	@Test
+	public void test_InsertsAndUpdatesAreNotMixed()
+	{
+		final MockedModel hu1 = model("hu1", "M_HU");
+		final MockedModel hu2 = model("hu2", "M_HU").setNew(false);
+
+		batch.save(ImmutableList.of(hu1, hu2));
+
+		Assert.assertEquals(ImmutableList.of(
+				"before hu1",
+				"execute [INSERT hu1]",
+				"after hu1",
+				"before hu2",
+				"execute [UPDATE hu2]",
+				"after hu2"),
+				events);
+	}
+
+	@Test
+	public void test_MaxStatementsPerBatch()
+	{
+		batch = newBatch(2);
+
+		batch.save(ImmutableList.of(model("a", "T"), model("b", "T"), model("c", "T")));
+
+		Assert.assertEquals(ImmutableList.of(
+				"before a",
+				"before b",
+				"execute [INSERT a, INSERT b]",
+				"after a",
+				"after b",
+				"before c",
+				"execute [INSERT c]",
+				"after c"),
+				events);
+	}
+
+	@Test
+	public void test_ExecutePendingBeforeSave()
+	{
+		final MockedModel a = model("a", "T");
+		final MockedModel b = model("b", "T").setExecutePendingBeforeSave(true);
+		final MockedModel c = model("c", "T");
+
+		batch.save(ImmutableList.of(a, b, c));
+
+		Assert.assertEquals(ImmutableList.of(
+				"before a",
+				"execute [INSERT a]", // b's before save hook finds a in database
+				"before b",
+				"before c",
+				"execute [INSERT b, INSERT c]",
+				"after a",
+				"after b",
+				"after c"),
+				events);
+	}
+
+	@Test
+	public void test_FailingBatch()
+	{
+		final MockedModel a = model("a", "A");
+		final MockedModel b = model("FAIL", "B");
+		final MockedModel c = model("c", "B");
+
+		try
+		{
+			batch.save(ImmutableList.of(a, b, c));
+			Assert.fail("Exception expected");
+		}
+		catch (final DBException e)
+		{
+			Assert.assertEquals("INSERT FAIL", e.getSQL());
+		}
+
+		Assert.assertEquals(ImmutableList.of(
+				"before a",
+				"execute [INSERT a]",
+				"after a",
+				"before FAIL",
+				"before c",
+				"execute [INSERT FAIL, INSERT c]"),
+				events.subList(0, 6));
+		Assert.assertEquals(ImmutableSet.of("unbind FAIL", "unbind c"), ImmutableSet.copyOf(events.subList(6, events.size())));
+		Assert.assertFalse(batch.isPending(b));
+		Assert.assertFalse(batch.isPending(c));
+		Assert.assertEquals(1, a.getSavedCount());
+		Assert.assertEquals(0, b.getSavedCount());
+		Assert.assertEquals(0, c.getSavedCount());
+	}
+
+	@Test
+	public void test_AfterSaveHook_ResavesPendingModel()
+	{
+		final MockedModel a = model("a", "T");
+		final MockedModel b = model("b", "T");
+		a.setAfterSaveHook(model -> b.save(null));
+
+		batch.save(ImmutableList.of(a, b));
+
+		Assert.assertEquals(ImmutableList.of(
+				"before a",
+				"before b",
+				"execute [INSERT a, INSERT b]",
+				"after a",
+				"after b", // b's batched saving is finished before b is saved again
+				"before b",
+				"execute directly UPDATE b",
+				"after b"),
+				events);
+		Assert.assertEquals(2, b.getSavedCount());
+		Assert.assertFalse(batch.isPending(b));
+	}
+
+	@Test
+	public void test_BeforeSaveHook_ResavesNotYetExecutedModel()
+	{
+		final MockedModel a = model("a", "T");
+		final MockedModel b = model("b", "T");
+		b.setBeforeSaveHook(model -> a.save(null));
+
+		batch.save(ImmutableList.of(a, b));
+
+		Assert.assertEquals(ImmutableList.of(
+				"before a",
+				"before b",
+				"execute [INSERT a]",
+				"after a",
+				"before a",
+				"execute directly UPDATE a",
+				"after a",
+				"execute [INSERT b]",
+				"after b"),
+				events);
+		Assert.assertEquals(2, a.getSavedCount());
+		Assert.assertEquals(1, b.getSavedCount());
+	}
+
+	/**
+	 * Behaves like a {@link PO}: the statement is collected by the batch it's bound to, or executed directly.
+	 */
+	private class MockedModel implements POSaveBatch.BatchedModel
+	{
+		private final String name;
+		private final String tableName;
+		private boolean newRecord = true;
+		private boolean executePendingBeforeSave = false;
+		private Consumer<MockedModel> beforeSaveHook;
+		private Consumer<MockedModel> afterSaveHook;
+
+		private POSaveBatch boundBatch;
+		private int savedCount = 0;
+
+		public MockedModel(final String name, final String tableName)
+		{
+			super();
+			this.name = name;
+			this.tableName = tableName;
+		}
+
+		@Override
+		public String toString()
+		{
+			return name;
+		}
+
+		public MockedModel setNew(final boolean newRecord)
+		{
+			this.newRecord = newRecord;
+			return this;
+		}
+
+		public MockedModel setExecutePendingBeforeSave(final boolean executePendingBeforeSave)
+		{
+			this.executePendingBeforeSave = executePendingBeforeSave;
+			return this;
+		}
+
+		public void setBeforeSaveHook(final Consumer<MockedModel> beforeSaveHook)
+		{
+			this.beforeSaveHook = beforeSaveHook;
+		}
+
+		public void setAfterSaveHook(final Consumer<MockedModel> afterSaveHook)
+		{
+			this.afterSaveHook = afterSaveHook;
+		}
+
+		public int getSavedCount()
+		{
+			return savedCount;
+		}
+
+		@Override
+		public Object getModel()
+		{
+			return this;
+		}
+
+		@Override
+		public String getTableName()
+		{
+			return tableName;
+		}
+
+		@Override
+		public boolean isNew()
+		{
+			return newRecord;
+		}
+
+		@Override
+		public boolean isExecutePendingBeforeSave()
+		{
+			return executePendingBeforeSave;
+		}
+
+		@Override
+		public void save(final POSaveBatch batch)
+		{
+			// same as PO.saveEx
+			if (boundBatch != null && boundBatch.isPending(this))
+			{
+				boundBatch.finishPendingSave(this);
+			}
+
+			events.add("before " + name);
+			if (beforeSaveHook != null)
+			{
+				final Consumer<MockedModel> hook = beforeSaveHook;
+				beforeSaveHook = null;
+				hook.accept(this);
+			}
+
+			final String sql = (newRecord ? "INSERT " : "UPDATE ") + name;
+			if (batch != null)
+			{
+				boundBatch = batch;
+				batch.addStatement(this, newRecord, sql);
+			}
+			else
+			{
+				events.add("execute directly " + sql);
+				finishSave(newRecord, 1, sql);
+			}
+		}
+
+		@Override
+		public void finishSave(final boolean newRecord, final int updateCount, final String sql)
+		{
+			Assert.assertEquals("updateCount", 1, updateCount);
+
+			boundBatch = null;
+			this.newRecord = false;
+			savedCount++;
+			events.add("after " + name);
+
+			if (afterSaveHook != null)
+			{
+				final Consumer<MockedModel> hook = afterSaveHook;
+				afterSaveHook = null;
+				hook.accept(this);
+			}
+		}
+
+		@Override
+		public void unbind()
+		{
+			boundBatch = null;
+			events.add("unbind " + name);
+		}
+	}
+}
@@ -1,11 +1,15 @@
 package org.compiere.util;
 
+import java.util.Collection;
+
 import org.adempiere.test.AdempiereTestHelper;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+
 /*
  * #%L
  * de.metas.adempiere.adempiere.base
@@ -66,6 +70,20 @@ public class CacheMgtTest
 		cache.assertResetForRecordIdWasCalled();
 	}
 
+	@Test
+	public void resetByTableNameAndRecordIds_CCache_resetOnce()
+	{
+		final CCache_resetForRecordId_Mocked<Object, Object> cache = new CCache_resetForRecordId_Mocked<>("Table1", 1);
+		CacheMgt.get().register(cache);
+		cache.put(1, "value1");
+		cache.put(2, "value2");
+
+		final int itemsRemoved = CacheMgt.get().reset("Table1", ImmutableList.of(1, 2, 3));
+
+		Assert.assertEquals("itemsRemoved", 2, itemsRemoved);
+		Assert.assertEquals("resetCount", 1, cache.resetCount);
+	}
+
 	private static class AssertTableName implements ITableAwareCacheInterface
 	{
 		private final String tableName;
@@ -124,6 +142,7 @@ public class CacheMgtTest
 	{
 
 		private boolean resetForRecordIdWasCalled;
+		private int resetCount = 0;
 
 		public CCache_resetForRecordId_Mocked(final String name, final int initialCapacity)
 		{
@@ -131,15 +150,22 @@ public class CacheMgtTest
 		}
 
 		@Override
-		public int resetForRecordId(final String tableName, final Object key)
+		public int resetForRecordIds(final String tableName, final Collection<Integer> recordIds)
 		{
-			final int count = super.resetForRecordId(tableName, key);
+			final int count = super.resetForRecordIds(tableName, recordIds);
 
 			resetForRecordIdWasCalled = true;
 
 			return count;
 		}
 
+		@Override
+		public int reset()
+		{
+			resetCount++;
+			return super.reset();
+		}
+
 		public void assertResetForRecordIdWasCalled()
 		{
 			Assert.assertTrue("resetForRecordIdWasCalled", resetForRecordIdWasCalled);
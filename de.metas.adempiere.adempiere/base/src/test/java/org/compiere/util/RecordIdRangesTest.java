@@ -0,0 +1,67 @@
+package org.compiere.util;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class RecordIdRangesTest
+{
+	@Test
+	public void toString_ranges()
+	{
+		Assert.assertEquals("1-3,5,7-8", RecordIdRanges.toString(Arrays.asList(8, 2, 1, 3, 5, 7, 2)));
+	}
+
+	@Test
+	public void toString_empty()
+	{
+		Assert.assertEquals("", RecordIdRanges.toString(ImmutableSet.of()));
+		Assert.assertEquals("", RecordIdRanges.toString(ImmutableSet.of(CacheMgt.RECORD_ID_ALL)));
+	}
+
+	@Test
+	public void toString_includesZero()
+	{
+		Assert.assertEquals("0-1", RecordIdRanges.toString(ImmutableSet.of(0, 1)));
+	}
+
+	@Test
+	public void parse()
+	{
+		Assert.assertEquals(ImmutableSet.of(1, 2, 3, 5, 7, 8), RecordIdRanges.parse("1-3,5,7-8"));
+		Assert.assertEquals(ImmutableSet.of(), RecordIdRanges.parse(""));
+		Assert.assertEquals(ImmutableSet.of(), RecordIdRanges.parse(null));
+	}
+
+	@Test
+	public void toStringAndParse()
+	{
+		final ImmutableSet<Integer> recordIds = ImmutableSet.of(1000001, 1000002, 1000003, 1000010, 1000012, 1000013);
+		Assert.assertEquals(recordIds, RecordIdRanges.parse(RecordIdRanges.toString(recordIds)));
+	}
+}
@@ -30,6 +30,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyVetoException;
 import java.beans.VetoableChangeListener;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Properties;
 import java.util.Set;
 
@@ -327,6 +328,13 @@ public class UOMConversionCheckFormPanel implements FormPanel, VetoableChangeLis
 			return 1;
 		}
 
+		@Override
+		public int resetForRecordIds(final String tableName, final Collection<Integer> recordIds)
+		{
+			doConvert("cache reset on " + tableName + ", keys=" + recordIds);
+			return 1;
+		}
+
 		@Override
 		public int size()
 		{
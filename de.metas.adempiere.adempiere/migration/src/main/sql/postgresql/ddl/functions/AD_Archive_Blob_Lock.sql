@@ -0,0 +1,34 @@
+create or replace function AD_Archive_Blob_Register(p_AD_Client_ID numeric, p_BlobKey varchar)
+returns void
+AS
+$BODY$
+begin
+	insert into AD_Archive_Blob (AD_Client_ID, BlobKey, RefCount)
+	select p_AD_Client_ID, p_BlobKey, 0
+	where not exists (select 1 from AD_Archive_Blob where AD_Client_ID=p_AD_Client_ID and BlobKey=p_BlobKey);
+exception when unique_violation then
+	-- inserted by a concurrent transaction => nothing to do
+end;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+
+COMMENT ON FUNCTION AD_Archive_Blob_Register(numeric, varchar) IS 'Creates the given AD_Archive_Blob record with RefCount=0 if it does not exist. Called by org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage out of transaction before storing a blob, so the blob is deleted by AD_Archive_Blob_DeleteUnreferenced even if the archive referencing it is never committed.';
+
+
+drop function if exists AD_Archive_Blob_Lock(p_AD_Client_ID numeric, p_BlobKey varchar);
+create or replace function AD_Archive_Blob_Lock(p_AD_Client_ID numeric, p_BlobKey varchar)
+returns integer
+AS
+$BODY$
+begin
+	perform 1 from AD_Archive_Blob where AD_Client_ID=p_AD_Client_ID and BlobKey=p_BlobKey for update;
+	if found then
+		return 1;
+	else
+		return 0;
+	end if;
+end;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+
+COMMENT ON FUNCTION AD_Archive_Blob_Lock(numeric, varchar) IS 'Locks the given AD_Archive_Blob record until the end of the current transaction. Returns 0 if the record does not exist (anymore), see AD_Archive_Blob_Register. Called by org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage before referencing a blob, so the blob is not deleted in meantime.';
@@ -0,0 +1,63 @@
+drop function if exists AD_Archive_Blob_GetKey(p_BinaryData bytea);
+create or replace function AD_Archive_Blob_GetKey(p_BinaryData bytea)
+returns varchar
+AS
+$BODY$
+	select case
+		when substring($1 from 1 for 5) = 'CAS1:'::bytea then convert_from(substring($1 from 6), 'UTF8')
+		else null
+	end;
+$BODY$
+LANGUAGE sql IMMUTABLE;
+
+COMMENT ON FUNCTION AD_Archive_Blob_GetKey(bytea) IS 'Returns the blob key if the given AD_Archive.BinaryData references a blob of the content addressed archive storage (see org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage), null otherwise.';
+
+
+create or replace function AD_Archive_Blob_RefCount_tgfn()
+returns trigger
+AS
+$BODY$
+declare
+	v_OldBlobKey varchar;
+	v_NewBlobKey varchar;
+begin
+	if TG_OP in ('UPDATE', 'DELETE') then
+		v_OldBlobKey := AD_Archive_Blob_GetKey(OLD.BinaryData);
+	end if;
+	if TG_OP in ('INSERT', 'UPDATE') then
+		v_NewBlobKey := AD_Archive_Blob_GetKey(NEW.BinaryData);
+	end if;
+
+	if TG_OP = 'UPDATE' and v_OldBlobKey is not distinct from v_NewBlobKey and OLD.AD_Client_ID = NEW.AD_Client_ID then
+		return null;
+	end if;
+
+	if v_OldBlobKey is not null then
+		update AD_Archive_Blob set RefCount=RefCount-1, Updated=now()
+		where AD_Client_ID=OLD.AD_Client_ID and BlobKey=v_OldBlobKey;
+	end if;
+
+	if v_NewBlobKey is not null then
+		loop
+			update AD_Archive_Blob set RefCount=RefCount+1, Updated=now()
+			where AD_Client_ID=NEW.AD_Client_ID and BlobKey=v_NewBlobKey;
+			exit when found;
+
+			begin
+				insert into AD_Archive_Blob (AD_Client_ID, BlobKey, RefCount) values (NEW.AD_Client_ID, v_NewBlobKey, 1);
+				exit;
+			exception when unique_violation then
+				-- inserted by a concurrent transaction => try the update again
+			end;
+		end loop;
+	end if;
+
+	return null;
+end;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+
+COMMENT ON FUNCTION AD_Archive_Blob_RefCount_tgfn() IS 'Maintains AD_Archive_Blob.RefCount when AD_Archive records referencing content addressed blobs are inserted, updated or deleted.';
+
+drop trigger if exists AD_Archive_Blob_RefCount_tg on AD_Archive;
+create trigger AD_Archive_Blob_RefCount_tg after insert or update of BinaryData, AD_Client_ID or delete on AD_Archive for each row execute procedure AD_Archive_Blob_RefCount_tgfn();
@@ -0,0 +1,115 @@
+-- 18.10.2017
+-- AD_Archive_Blob: reference counts of the blobs stored by org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage
+-- The blobs themselves are stored outside of the database; a blob whose RefCount dropped to zero can be deleted by the AD_Archive_Blob_DeleteUnreferenced process.
+CREATE TABLE AD_Archive_Blob (AD_Client_ID NUMERIC(10) NOT NULL, BlobKey VARCHAR(80) NOT NULL, RefCount NUMERIC(10) NOT NULL, Created TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(), Updated TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(), CONSTRAINT AD_Archive_Blob_Key PRIMARY KEY (AD_Client_ID, BlobKey))
+;
+
+drop index if exists AD_Archive_Blob_Unreferenced;
+create index AD_Archive_Blob_Unreferenced on AD_Archive_Blob(AD_Client_ID) where RefCount<=0;
+COMMENT ON INDEX AD_Archive_Blob_Unreferenced IS 'Index used when looking up the blobs which can be deleted';
+
+-- 18.10.2017
+-- functions and trigger to maintain AD_Archive_Blob.RefCount
+
+drop function if exists AD_Archive_Blob_GetKey(p_BinaryData bytea);
+create or replace function AD_Archive_Blob_GetKey(p_BinaryData bytea)
+returns varchar
+AS
+$BODY$
+	select case
+		when substring($1 from 1 for 5) = 'CAS1:'::bytea then convert_from(substring($1 from 6), 'UTF8')
+		else null
+	end;
+$BODY$
+LANGUAGE sql IMMUTABLE;
+
+COMMENT ON FUNCTION AD_Archive_Blob_GetKey(bytea) IS 'Returns the blob key if the given AD_Archive.BinaryData references a blob of the content addressed archive storage (see org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage), null otherwise.';
+
+
+create or replace function AD_Archive_Blob_RefCount_tgfn()
+returns trigger
+AS
+$BODY$
+declare
+	v_OldBlobKey varchar;
+	v_NewBlobKey varchar;
+begin
+	if TG_OP in ('UPDATE', 'DELETE') then
+		v_OldBlobKey := AD_Archive_Blob_GetKey(OLD.BinaryData);
+	end if;
+	if TG_OP in ('INSERT', 'UPDATE') then
+		v_NewBlobKey := AD_Archive_Blob_GetKey(NEW.BinaryData);
+	end if;
+
+	if TG_OP = 'UPDATE' and v_OldBlobKey is not distinct from v_NewBlobKey and OLD.AD_Client_ID = NEW.AD_Client_ID then
+		return null;
+	end if;
+
+	if v_OldBlobKey is not null then
+		update AD_Archive_Blob set RefCount=RefCount-1, Updated=now()
+		where AD_Client_ID=OLD.AD_Client_ID and BlobKey=v_OldBlobKey;
+	end if;
+
+	if v_NewBlobKey is not null then
+		loop
+			update AD_Archive_Blob set RefCount=RefCount+1, Updated=now()
+			where AD_Client_ID=NEW.AD_Client_ID and BlobKey=v_NewBlobKey;
+			exit when found;
+
+			begin
+				insert into AD_Archive_Blob (AD_Client_ID, BlobKey, RefCount) values (NEW.AD_Client_ID, v_NewBlobKey, 1);
+				exit;
+			exception when unique_violation then
+				-- inserted by a concurrent transaction => try the update again
+			end;
+		end loop;
+	end if;
+
+	return null;
+end;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+
+COMMENT ON FUNCTION AD_Archive_Blob_RefCount_tgfn() IS 'Maintains AD_Archive_Blob.RefCount when AD_Archive records referencing content addressed blobs are inserted, updated or deleted.';
+
+drop trigger if exists AD_Archive_Blob_RefCount_tg on AD_Archive;
+create trigger AD_Archive_Blob_RefCount_tg after insert or update of BinaryData, AD_Client_ID or delete on AD_Archive for each row execute procedure AD_Archive_Blob_RefCount_tgfn();
+
+
+-- 18.10.2017
+-- AD_Archive_Blob_Register and AD_Archive_Blob_Lock: called before a blob is stored or reused, so it is not deleted while a reference to it is being saved and it is cleaned up if that reference is rolled back
+
+create or replace function AD_Archive_Blob_Register(p_AD_Client_ID numeric, p_BlobKey varchar)
+returns void
+AS
+$BODY$
+begin
+	insert into AD_Archive_Blob (AD_Client_ID, BlobKey, RefCount)
+	select p_AD_Client_ID, p_BlobKey, 0
+	where not exists (select 1 from AD_Archive_Blob where AD_Client_ID=p_AD_Client_ID and BlobKey=p_BlobKey);
+exception when unique_violation then
+	-- inserted by a concurrent transaction => nothing to do
+end;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+
+COMMENT ON FUNCTION AD_Archive_Blob_Register(numeric, varchar) IS 'Creates the given AD_Archive_Blob record with RefCount=0 if it does not exist. Called by org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage out of transaction before storing a blob, so the blob is deleted by AD_Archive_Blob_DeleteUnreferenced even if the archive referencing it is never committed.';
+
+
+drop function if exists AD_Archive_Blob_Lock(p_AD_Client_ID numeric, p_BlobKey varchar);
+create or replace function AD_Archive_Blob_Lock(p_AD_Client_ID numeric, p_BlobKey varchar)
+returns integer
+AS
+$BODY$
+begin
+	perform 1 from AD_Archive_Blob where AD_Client_ID=p_AD_Client_ID and BlobKey=p_BlobKey for update;
+	if found then
+		return 1;
+	else
+		return 0;
+	end if;
+end;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+
+COMMENT ON FUNCTION AD_Archive_Blob_Lock(numeric, varchar) IS 'Locks the given AD_Archive_Blob record until the end of the current transaction. Returns 0 if the record does not exist (anymore), see AD_Archive_Blob_Register. Called by org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage before referencing a blob, so the blob is not deleted in meantime.';
@@ -16,25 +16,27 @@
  *****************************************************************************/
 package org.compiere.server;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.Timestamp;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
 import org.adempiere.acct.api.IDocFactory;
 import org.adempiere.acct.api.IDocMetaInfo;
 import org.adempiere.acct.api.IPostingService;
 import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Services;
-import org.compiere.acct.Doc;
 import org.compiere.model.I_AD_Client;
 import org.compiere.model.MAcctProcessor;
 import org.compiere.model.MAcctProcessorLog;
 import org.compiere.model.MAcctSchema;
 import org.compiere.model.MCost;
-import org.compiere.util.DB;
 import org.compiere.util.TimeUtil;
 
+import com.google.common.collect.ImmutableList;
+
+import de.metas.acct.posting.DocumentsPostingEngine;
+import de.metas.acct.posting.DocumentsPostingEngine.TableResult;
+
 /**
  * Accounting Processor
  *
@@ -62,6 +64,10 @@ public class AcctProcessor extends AdempiereServer
 	/** Client onfo */
 	private I_AD_Client m_client = null;
 
+	/** How many documents are posted in parallel; by default they are posted one by one, as before */
+	private static final String SYSCONFIG_PostingThreads = "de.metas.acct.AcctProcessor.PostingThreads";
+	private static final int DEFAULT_PostingThreads = 1;
+
 	/**
 	 * Work
 	 */
@@ -98,94 +104,26 @@ public class AcctProcessor extends AdempiereServer
 	 */
 	private void postSession()
 	{
-		// services
-		final IDocFactory docFactory = Services.get(IDocFactory.class);
-
-		final MAcctSchema[] acctSchemas = getAcctSchemas();
-		final int adClientId = getAD_Client_ID();
-
-		for (final IDocMetaInfo docMetaInfo : docFactory.getDocMetaInfoList())
+		final List<IDocMetaInfo> docMetaInfos = Services.get(IDocFactory.class).getDocMetaInfoList()
+				.stream()
+				.filter(this::isEligible) // Skip document types which are not eligible
+				.collect(ImmutableList.toImmutableList());
+
+		final List<TableResult> results = DocumentsPostingEngine.builder()
+				.ctx(getCtx())
+				.adClientId(getAD_Client_ID())
+				.acctSchemas(getAcctSchemas())
+				.docMetaInfos(docMetaInfos)
+				.threadsCount(Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_PostingThreads, DEFAULT_PostingThreads, getAD_Client_ID()))
+				.interruptedChecker(this::isInterrupted)
+				.build()
+				.post();
+
+		for (final TableResult result : results)
 		{
-			//
-			// Skip document types which are not eligible
-			if (!isEligible(docMetaInfo))
-			{
-				continue;
-			}
-
-			// SELECT * FROM table
-			final String tableName = docMetaInfo.getTableName();
-			final StringBuilder sql = new StringBuilder("SELECT * FROM ").append(tableName)
-					.append(" WHERE AD_Client_ID=?")
-					.append(" AND Processed='Y' AND Posted='N' AND IsActive='Y'")
-					.append(" ORDER BY Created");
-			//
-			final AtomicInteger count = new AtomicInteger(0);
-			final AtomicInteger countError = new AtomicInteger(0);
-			PreparedStatement pstmt = null;
-			ResultSet rs = null;
-			try
-			{
-				pstmt = DB.prepareStatement(sql.toString(), ITrx.TRXNAME_None);
-				pstmt.setInt(1, adClientId);
-
-				rs = pstmt.executeQuery();
-				while (!isInterrupted() && rs.next())
-				{
-					count.incrementAndGet();
-					
-					boolean postOk = false; // was the posting ok?
-					try
-					{
-						final Doc doc = docFactory.get(getCtx(), docMetaInfo, acctSchemas, rs, ITrx.TRXNAME_None);
-						if (doc == null)
-						{
-							log.error(getName() + ": No Doc for " + tableName);
-							postOk = false;
-						}
-						else
-						{
-							final String error = doc.post(false, false);   // post no force/repost
-							postOk = (error == null);
-						}
-					}
-					catch (Exception e)
-					{
-						postOk = false;
-						log.error(getName() + ": " + tableName + ": " + e.getLocalizedMessage(), e);
-					}
-					finally
-					{
-						if (!postOk)
-						{
-							countError.incrementAndGet();
-						}
-					}
-				}
-			}
-			catch (Exception e)
-			{
-				log.error(sql.toString(), e);
-			}
-			finally
-			{
-				DB.close(rs, pstmt);
-			}
-
-			//
-			if (count.get() > 0)
-			{
-				m_summary.append(tableName).append("=").append(count);
-				if (countError.get() > 0)
-					m_summary.append("(Errors=").append(countError).append(")");
-				m_summary.append(" - ");
-				log.trace(getName() + ": " + m_summary.toString());
-			}
-			else
-			{
-				log.trace(getName() + ": " + tableName + " - no work");
-			}
+			m_summary.append(result).append(" - ");
 		}
+		log.trace(getName() + ": " + (results.isEmpty() ? "no work" : m_summary.toString()));
 	}	// postSession
 
 	/** @return true if is eligible to be accounted */
@@ -76,6 +76,13 @@ public class WorkPackageQueue implements IWorkPackageQueue
 {
 	private final static String SYSCONFIG_POLLINTERVAL = "de.metas.async.PollIntervallMillis";
 
+	/**
+	 * If true, work packages are claimed using <code>FOR UPDATE SKIP LOCKED</code>, without serializing the polling threads,
+	 * and the pollers are woken up as soon as new work packages are ready for processing (see {@link WorkPackageReadySignal}).
+	 * In that case, {@link #SYSCONFIG_POLLINTERVAL} is only a fallback.
+	 */
+	private final static String SYSCONFIG_CLAIM_USING_SKIP_LOCKED = "de.metas.async.ClaimUsingSkipLocked";
+
 	private static final transient Logger logger = LogManager.getLogger(WorkPackageQueue.class);
 
 	private final transient IQueueDAO dao;
@@ -191,6 +198,12 @@ public class WorkPackageQueue implements IWorkPackageQueue
 	@Override
 	public I_C_Queue_WorkPackage pollAndLock(final long timeoutMillis)
 	{
+		if (isClaimUsingSkipLocked())
+		{
+			// no need to serialize our threads: concurrent claims are sorted out by the database
+			return pollAndClaim(timeoutMillis);
+		}
+
 		mainLock.lock();
 		try
 		{
@@ -209,7 +222,7 @@ public class WorkPackageQueue implements IWorkPackageQueue
 		final IQuery<I_C_Queue_WorkPackage> query = createQuery(workPackageCtx);
 
 		final long startTS = SystemTime.millis();
-		I_C_Queue_WorkPackage workPackage = retrieveAndLock(query);
+		I_C_Queue_WorkPackage workPackage = retrieveAndLock(query, false);
 		if (timeoutMillis == TIMEOUT_OneTimeOnly && workPackage == null)
 		{
 			// We are running in one time only mode (synchronous mode) and we did not get the package from the first time
@@ -235,9 +248,7 @@ public class WorkPackageQueue implements IWorkPackageQueue
 			// No workpackages were found. Sleep 1sec and then try again
 			try
 			{
-				// note: we always get the new service, because things might have changed since this method started
-				final int pollIntervalMs = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_POLLINTERVAL, 1000);
-				Thread.sleep(pollIntervalMs);
+				Thread.sleep(getPollIntervalMillis());
 			}
 			catch (final InterruptedException e)
 			{
@@ -247,7 +258,7 @@ public class WorkPackageQueue implements IWorkPackageQueue
 
 			// Try fetching the workpackage again
 			logger.trace("Retry retrieving next workpackage");
-			workPackage = retrieveAndLock(query);
+			workPackage = retrieveAndLock(query, false);
 		}
 
 		Check.assumeNotNull(workPackage, "workPackage not null");
@@ -267,6 +278,77 @@ public class WorkPackageQueue implements IWorkPackageQueue
 		return workPackage;
 	}
 
+	/**
+	 * Like {@link #pollAndLock0(long)} but instead of sleeping between polls, it's waiting for {@link WorkPackageReadySignal}.
+	 */
+	private I_C_Queue_WorkPackage pollAndClaim(final long timeoutMillis)
+	{
+		final WorkPackageReadySignal readySignal = WorkPackageReadySignal.instance;
+		readySignal.startListeningIfNeeded();
+
+		final Properties workPackageCtx = Env.newTemporaryCtx();
+
+		final IQuery<I_C_Queue_WorkPackage> query = createQuery(workPackageCtx);
+
+		final long startTS = SystemTime.millis();
+		while (true)
+		{
+			// NOTE: get the version before querying, so we don't miss a signal which is raised meanwhile
+			final long signalVersion = readySignal.getVersion();
+
+			final I_C_Queue_WorkPackage workPackage = retrieveAndLock(query, true);
+			if (workPackage != null)
+			{
+				setupWorkpackageContext(workPackageCtx, workPackage);
+				return workPackage;
+			}
+
+			if (timeoutMillis == TIMEOUT_OneTimeOnly)
+			{
+				return null;
+			}
+
+			// Even if nobody signals us, query again after the poll interval,
+			// because work packages can also become available when their skip timeout expires.
+			long waitMillis = getPollIntervalMillis();
+			if (timeoutMillis != TIMEOUT_Infinite)
+			{
+				Check.assume(timeoutMillis > 0, "timeoutMillis > 0");
+
+				final long remainingMillis = timeoutMillis - (SystemTime.millis() - startTS);
+				if (remainingMillis <= 0)
+				{
+					logger.debug("Poll waiting time exceeded. Returning null");
+					return null;
+				}
+				waitMillis = Math.min(waitMillis, remainingMillis);
+			}
+
+			try
+			{
+				readySignal.await(signalVersion, waitMillis);
+			}
+			catch (final InterruptedException e)
+			{
+				logger.debug("Got interrupted signal. Returning null", e);
+				return null;
+			}
+
+			logger.trace("Retry claiming next workpackage");
+		}
+	}
+
+	private static int getPollIntervalMillis()
+	{
+		// note: we always get the new service, because things might have changed since the polling started
+		return Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_POLLINTERVAL, 1000);
+	}
+
+	private static boolean isClaimUsingSkipLocked()
+	{
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_CLAIM_USING_SKIP_LOCKED, false);
+	}
+
 	/**
 	 * Update context from work package (AD_Client_ID, AD_Org_ID, AD_User_ID, AD_Role_ID etc).
 	 *
@@ -321,9 +403,12 @@ public class WorkPackageQueue implements IWorkPackageQueue
 		Env.setContext(workPackageCtx, Env.CTXNAME_AD_Session_ID, Env.CTXVALUE_AD_SESSION_ID_NONE);
 	}
 
-	private I_C_Queue_WorkPackage retrieveAndLock(final IQuery<I_C_Queue_WorkPackage> query)
+	private I_C_Queue_WorkPackage retrieveAndLock(final IQuery<I_C_Queue_WorkPackage> query, final boolean skipLocked)
 	{
-		I_C_Queue_WorkPackage workPackage = Services.get(ILockManager.class).retrieveAndLock(query, I_C_Queue_WorkPackage.class);
+		final ILockManager lockManager = Services.get(ILockManager.class);
+		I_C_Queue_WorkPackage workPackage = skipLocked
+				? lockManager.retrieveAndLockSkipLocked(query, I_C_Queue_WorkPackage.class)
+				: lockManager.retrieveAndLock(query, I_C_Queue_WorkPackage.class);
 		if (workPackage != null && !isValid(workPackage))
 		{
 			final I_C_Queue_WorkPackage workpackageToUnlock = workPackage;
@@ -363,7 +448,7 @@ public class WorkPackageQueue implements IWorkPackageQueue
 	@Override
 	public Properties getCtx()
 	{
-		return new Properties(ctx);
+		return Env.deriveCtx(ctx);
 	}
 
 	@Override
@@ -734,6 +819,9 @@ public class WorkPackageQueue implements IWorkPackageQueue
 			mainLock.unlock();
 		}
 
+		// Wake up the processors which are waiting for new work packages
+		WorkPackageReadySignal.instance.signal(isClaimUsingSkipLocked());
+
 	}
 
 	private IQuery<I_C_Queue_WorkPackage> createQuery(final Properties workPackageCtx)
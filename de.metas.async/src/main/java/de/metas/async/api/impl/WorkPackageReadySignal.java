@@ -0,0 +1,242 @@
+package de.metas.async.api.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.compiere.db.CConnection;
+import org.compiere.util.DB;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+
+import de.metas.logging.LogManager;
+
+/**
+ * Signals waiting queue processors that work packages became ready for processing.
+ * <p>
+ * Signals raised in this JVM are delivered directly. Signals raised on other nodes are delivered using PostgreSQL's <code>NOTIFY</code>/<code>LISTEN</code> on {@link #PG_CHANNEL}.
+ * If the LISTEN connection can't be established, waiters will just wake up after their timeout, like they did when polling.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+final class WorkPackageReadySignal
+{
+	public static final WorkPackageReadySignal instance = new WorkPackageReadySignal();
+
+	private static final transient Logger logger = LogManager.getLogger(WorkPackageReadySignal.class);
+
+	static final String PG_CHANNEL = "c_queue_workpackage_ready";
+
+	/** How often the LISTEN connection is checked for notifications which were already received; that's not a database round trip */
+	private static final long LISTEN_CHECK_INTERVAL_MILLIS = 100;
+	/** How often the LISTEN connection is validated by a database round trip */
+	private static final long LISTEN_VALIDATE_INTERVAL_MILLIS = 60 * 1000;
+	private static final int LISTEN_VALIDATE_TIMEOUT_SECONDS = 10;
+	/** How long to wait before re-establishing a broken LISTEN connection */
+	private static final long LISTEN_RECONNECT_DELAY_MILLIS = 10 * 1000;
+
+	private final Object monitor = new Object();
+	/** Incremented on each signal; guarded by {@link #monitor} */
+	private long version = 0;
+
+	private volatile Thread listenerThread;
+
+	private WorkPackageReadySignal()
+	{
+	}
+
+	/**
+	 * @return current version; pass it to {@link #await(long, long)} to make sure no signal is lost between checking the queue and starting to wait.
+	 */
+	public long getVersion()
+	{
+		synchronized (monitor)
+		{
+			return version;
+		}
+	}
+
+	/**
+	 * Waits until a signal was raised after given <code>sinceVersion</code> or until the timeout expired.
+	 *
+	 * @return true if signaled, false if timed out
+	 */
+	public boolean await(final long sinceVersion, final long timeoutMillis) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (monitor)
+		{
+			while (version == sinceVersion)
+			{
+				final long remainingMillis = deadline - System.currentTimeMillis();
+				if (remainingMillis <= 0)
+				{
+					return false;
+				}
+				monitor.wait(remainingMillis);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Wakes up the waiters from this JVM and, if <code>notifyOtherNodes</code>, also the ones from other nodes.
+	 */
+	public void signal(final boolean notifyOtherNodes)
+	{
+		signalLocal();
+
+		if (notifyOtherNodes)
+		{
+			try
+			{
+				// NOTE: running out of transaction because the work package is already committed at this point
+				DB.executeUpdateEx("NOTIFY " + PG_CHANNEL, ITrx.TRXNAME_None);
+			}
+			catch (final Exception e)
+			{
+				logger.warn("Failed notifying other nodes on channel {}. Ignored.", PG_CHANNEL, e);
+			}
+		}
+	}
+
+	private void signalLocal()
+	{
+		synchronized (monitor)
+		{
+			version++;
+			monitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Starts listening for signals from other nodes, if not already started.
+	 */
+	public void startListeningIfNeeded()
+	{
+		if (listenerThread != null)
+		{
+			return;
+		}
+
+		synchronized (this)
+		{
+			if (listenerThread != null)
+			{
+				return;
+			}
+
+			final Thread thread = new Thread(this::listenLoop, "WorkPackageReadySignal-Listener");
+			thread.setDaemon(true);
+			thread.start();
+			listenerThread = thread;
+		}
+	}
+
+	private void listenLoop()
+	{
+		while (!Thread.currentThread().isInterrupted())
+		{
+			try
+			{
+				listenUntilFailure();
+			}
+			catch (final InterruptedException e)
+			{
+				return;
+			}
+			catch (final Exception e)
+			{
+				logger.warn("Listening on channel {} failed. Retrying in {}ms", PG_CHANNEL, LISTEN_RECONNECT_DELAY_MILLIS, e);
+			}
+
+			try
+			{
+				Thread.sleep(LISTEN_RECONNECT_DELAY_MILLIS);
+			}
+			catch (final InterruptedException e)
+			{
+				return;
+			}
+		}
+	}
+
+	private void listenUntilFailure() throws SQLException, InterruptedException
+	{
+		Connection conn = null;
+		Statement stmt = null;
+		try
+		{
+			conn = createListenConnection();
+			final PGConnection pgConn = conn.unwrap(PGConnection.class);
+
+			stmt = conn.createStatement();
+			stmt.execute("LISTEN " + PG_CHANNEL);
+			logger.info("Listening on channel {}", PG_CHANNEL);
+
+			long nextValidationMillis = System.currentTimeMillis() + LISTEN_VALIDATE_INTERVAL_MILLIS;
+			while (!Thread.currentThread().isInterrupted())
+			{
+				// NOTE: the connection is idle (auto-commit, no running statement), so the driver just reads the notifications
+				// which were already received on the socket, without a database round trip.
+				final PGNotification[] notifications = pgConn.getNotifications();
+				if (notifications != null && notifications.length > 0)
+				{
+					signalLocal();
+				}
+
+				// Make sure we find out when the connection is broken, because in that case we won't get any notification
+				if (System.currentTimeMillis() >= nextValidationMillis)
+				{
+					if (!conn.isValid(LISTEN_VALIDATE_TIMEOUT_SECONDS))
+					{
+						throw new SQLException("LISTEN connection is no longer valid");
+					}
+					nextValidationMillis = System.currentTimeMillis() + LISTEN_VALIDATE_INTERVAL_MILLIS;
+				}
+
+				Thread.sleep(LISTEN_CHECK_INTERVAL_MILLIS);
+			}
+		}
+		finally
+		{
+			DB.close(stmt);
+			DB.close(conn);
+		}
+	}
+
+	/**
+	 * @return a new connection, which is not taken from the connection pool, because we are keeping it open as long as we are listening
+	 */
+	private static Connection createListenConnection() throws SQLException
+	{
+		final CConnection cConnection = CConnection.get();
+		return cConnection.getDatabase().getDriverConnection(cConnection.getConnectionURL(), cConnection.getDbUid(), cConnection.getDbPwd());
+	}
+}
@@ -94,6 +94,16 @@ public interface ILockManager extends ISingletonService
 	 */
 	<T> T retrieveAndLock(IQuery<T> query, Class<T> clazz);
 
+	/**
+	 * Same as {@link #retrieveAndLock(IQuery, Class)}, but the lock database is allowed to select and lock the next record in one go,
+	 * skipping the records which are currently being claimed by other (concurrent) clients instead of waiting for them or retrying.
+	 *
+	 * It's meant for queue-like tables which are polled by many threads/nodes concurrently.
+	 *
+	 * @return retrieved record (already locked) or <code>null</code>
+	 */
+	<T> T retrieveAndLockSkipLocked(IQuery<T> query, Class<T> clazz);
+
 	/**
 	 * Builds a SQL where clause to be used in other queries to filter the results.
 	 *
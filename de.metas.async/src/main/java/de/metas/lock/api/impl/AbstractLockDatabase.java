@@ -312,6 +312,15 @@ public abstract class AbstractLockDatabase implements ILockDatabase
 		return null;
 	}
 
+	/**
+	 * Falls back to {@link #retrieveAndLock(IQuery, Class)}. Implementations which can do better shall override it.
+	 */
+	@Override
+	public <T> T retrieveAndLockSkipLocked(final IQuery<T> query, final Class<T> clazz)
+	{
+		return retrieveAndLock(query, clazz);
+	}
+
 	@Override
 	public final String getLockedWhereClause(final Class<?> modelClass, final String joinColumnNameFQ, final LockOwner lockOwner)
 	{
@@ -34,11 +34,11 @@ import de.metas.lock.api.ILockManager;
 import de.metas.lock.api.IUnlockCommand;
 import de.metas.lock.api.LockOwner;
 import de.metas.lock.spi.ILockDatabase;
-import de.metas.lock.spi.impl.SqlLockDatabase;
+import de.metas.lock.spi.impl.HybridLockDatabase;
 
 public class LockManager implements ILockManager
 {
-	private final ILockDatabase lockDatabase = new SqlLockDatabase();
+	private final ILockDatabase lockDatabase = new HybridLockDatabase();
 
 	public ILockDatabase getLockDatabase()
 	{
@@ -128,6 +128,12 @@ public class LockManager implements ILockManager
 		return getLockDatabase().retrieveAndLock(query, clazz);
 	}
 
+	@Override
+	public final <T> T retrieveAndLockSkipLocked(final IQuery<T> query, final Class<T> clazz)
+	{
+		return getLockDatabase().retrieveAndLockSkipLocked(query, clazz);
+	}
+
 	@Override
 	public final String getNotLockedWhereClause(final String tableName, final String joinColumnNameFQ)
 	{
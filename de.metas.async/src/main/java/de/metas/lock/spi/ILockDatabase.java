@@ -53,6 +53,9 @@ public interface ILockDatabase
 
 	<T> T retrieveAndLock(IQuery<T> query, Class<T> clazz);
 
+	/** See {@link ILockManager#retrieveAndLockSkipLocked(IQuery, Class)}. */
+	<T> T retrieveAndLockSkipLocked(IQuery<T> query, Class<T> clazz);
+
 	<T> IQueryFilter<T> getLockedByFilter(Class<T> modelClass, LockOwner lockOwner);
 	
 	<T> IQueryFilter<T> getNotLockedFilter(Class<T> modelClass);
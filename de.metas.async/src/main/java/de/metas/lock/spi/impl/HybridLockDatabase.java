@@ -0,0 +1,604 @@
+package de.metas.lock.spi.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.dao.IQueryBuilder;
+import org.adempiere.ad.dao.IQueryFilter;
+import org.adempiere.ad.dao.ISqlQueryFilter;
+import org.adempiere.ad.dao.impl.TypedSqlQuery;
+import org.adempiere.ad.table.api.IADTableDAO;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.model.PlainContextAware;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Check;
+import org.adempiere.util.Services;
+import org.adempiere.util.lang.ITableRecordReference;
+import org.compiere.model.IQuery;
+import org.compiere.util.Env;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.lock.api.ILock;
+import de.metas.lock.api.ILockCommand;
+import de.metas.lock.api.IUnlockCommand;
+import de.metas.lock.api.LockOwner;
+import de.metas.lock.api.impl.AbstractLockDatabase;
+import de.metas.lock.exceptions.LockFailedException;
+import de.metas.lock.model.I_T_Lock;
+import de.metas.lock.spi.impl.NodeLocalLockTable.OwnerLocksInfo;
+
+/**
+ * {@link SqlLockDatabase} based lock database which keeps the locks of some configured tables in a {@link NodeLocalLockTable} instead of {@link I_T_Lock}.
+ * <p>
+ * The node-local tables are configured by {@value #SYSCONFIG_NodeLocalTableNames} (comma separated table names). By default no table is configured, so everything is delegated to {@link SqlLockDatabase}.
+ * <p>
+ * Only configure tables whose locks are owned by the current JVM exclusively (e.g. the records which are locked while being processed by this node's workers),
+ * because locks of node-local tables are:
+ * <ul>
+ * <li>not visible to other cluster nodes and neither to SQL code which is checking <code>T_Lock</code> directly
+ * <li>lost when the JVM is restarted (i.e. they behave like auto-cleanup locks)
+ * </ul>
+ * In exchange, locking and unlocking those records does not need any SQL statement and the not-locked filters are simple <code>NOT IN</code> clauses instead of <code>NOT EXISTS</code> subqueries.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class HybridLockDatabase extends AbstractLockDatabase
+{
+	@VisibleForTesting
+	static final String SYSCONFIG_NodeLocalTableNames = "de.metas.lock.spi.impl.HybridLockDatabase.NodeLocalTableNames";
+
+	private final SqlLockDatabase sqlLockDatabase = new SqlLockDatabase();
+	private final NodeLocalLockTable localLocks = new NodeLocalLockTable();
+	private final Supplier<Set<Integer>> nodeLocalTableIdsSupplier;
+
+	private final LockDatabaseStatistics statistics = new LockDatabaseStatistics();
+
+	public HybridLockDatabase()
+	{
+		nodeLocalTableIdsSupplier = new NodeLocalTableIdsFromSysConfig();
+	}
+
+	@VisibleForTesting
+	HybridLockDatabase(final Set<Integer> nodeLocalTableIds)
+	{
+		final Set<Integer> nodeLocalTableIdsCopy = ImmutableSet.copyOf(nodeLocalTableIds);
+		nodeLocalTableIdsSupplier = () -> nodeLocalTableIdsCopy;
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[localLocks=" + localLocks + ", statistics=" + statistics + "]";
+	}
+
+	/** @return throughput statistics of lock/unlock operations, for both node-local and persisted locks */
+	public LockDatabaseStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	private boolean isNodeLocalTable(final int adTableId)
+	{
+		return nodeLocalTableIdsSupplier.get().contains(adTableId);
+	}
+
+	private boolean isNodeLocalTable(final String tableName)
+	{
+		final Set<Integer> nodeLocalTableIds = nodeLocalTableIdsSupplier.get();
+		if (nodeLocalTableIds.isEmpty())
+		{
+			return false;
+		}
+		return nodeLocalTableIds.contains(Services.get(IADTableDAO.class).retrieveTableId(tableName));
+	}
+
+	@Override
+	public boolean isLocked(final int adTableId, final int recordId, final LockOwner lockOwner)
+	{
+		if (isNodeLocalTable(adTableId))
+		{
+			return localLocks.isLocked(adTableId, recordId, lockOwner);
+		}
+		return sqlLockDatabase.isLocked(adTableId, recordId, lockOwner);
+	}
+
+	@Override
+	protected int lockBySelection(final ILockCommand lockCommand)
+	{
+		final int adTableId = lockCommand.getSelectionToLock_AD_Table_ID();
+		if (!isNodeLocalTable(adTableId))
+		{
+			return measure(Operation.PersistentLock, () -> sqlLockDatabase.lockBySelection(lockCommand));
+		}
+
+		final List<Integer> recordIds = createQueryBuilder(adTableId)
+				.setOnlySelection(lockCommand.getSelectionToLock_AD_PInstance_ID())
+				.create()
+				.listIds();
+		return lockLocally(lockCommand, adTableId, recordIds);
+	}
+
+	@Override
+	protected int lockByFilters(final ILockCommand lockCommand)
+	{
+		final int adTableId = lockCommand.getSelectionToLock_AD_Table_ID();
+		if (!isNodeLocalTable(adTableId))
+		{
+			return measure(Operation.PersistentLock, () -> sqlLockDatabase.lockByFilters(lockCommand));
+		}
+
+		@SuppressWarnings("unchecked")
+		final IQueryFilter<Object> filters = (IQueryFilter<Object>)lockCommand.getSelectionToLock_Filters();
+		final List<Integer> recordIds = createQueryBuilder(adTableId)
+				.filter(filters)
+				.create()
+				.listIds();
+		final int countLocked = lockLocally(lockCommand, adTableId, recordIds);
+
+		if (countLocked <= 0 && lockCommand.isFailIfNothingLocked())
+		{
+			throw new LockFailedException("Nothing locked for selection")
+					.setLockCommand(lockCommand);
+		}
+		return countLocked;
+	}
+
+	private static IQueryBuilder<Object> createQueryBuilder(final int adTableId)
+	{
+		final String tableName = Services.get(IADTableDAO.class).retrieveTableName(adTableId);
+		final Properties ctx = Env.getCtx();
+		return Services.get(IQueryBL.class).createQueryBuilder(tableName, PlainContextAware.newOutOfTrx(ctx));
+	}
+
+	private int lockLocally(final ILockCommand lockCommand, final int adTableId, final Collection<Integer> recordIds)
+	{
+		final LockOwner lockOwner = lockCommand.getOwner();
+		assertValidLockOwner(lockOwner);
+
+		int countLocked = 0;
+		for (final int recordId : recordIds)
+		{
+			if (lockRecordLocally(lockCommand, adTableId, recordId))
+			{
+				countLocked++;
+			}
+		}
+		return countLocked;
+	}
+
+	@Override
+	protected boolean lockRecord(final ILockCommand lockCommand, final ITableRecordReference record)
+	{
+		Check.assumeNotNull(record, "record not null");
+
+		final int adTableId = record.getAD_Table_ID();
+		if (!isNodeLocalTable(adTableId))
+		{
+			return measure(Operation.PersistentLock, () -> sqlLockDatabase.lockRecord(lockCommand, record));
+		}
+
+		final int recordId = record.getRecord_ID();
+		if (recordId < 0)
+		{
+			return false;
+		}
+
+		assertValidLockOwner(lockCommand.getOwner());
+		return lockRecordLocally(lockCommand, adTableId, recordId);
+	}
+
+	private boolean lockRecordLocally(final ILockCommand lockCommand, final int adTableId, final int recordId)
+	{
+		final boolean locked = measure(Operation.LocalLock, () -> localLocks.lock(
+				adTableId,
+				recordId,
+				lockCommand.getOwner(),
+				lockCommand.isAutoCleanup(),
+				isAllowMultipleOwners(lockCommand.getAllowAdditionalLocks())));
+
+		// same behavior as SqlLockDatabase when hitting the unique constraint
+		if (!locked && lockCommand.isFailIfAlreadyLocked())
+		{
+			throw new LockFailedException("Record was already locked: AD_Table_ID=" + adTableId + ", Record_ID=" + recordId)
+					.setLockCommand(lockCommand);
+		}
+		return locked;
+	}
+
+	@Override
+	protected boolean changeLockRecord(final ILockCommand lockCommand, final ITableRecordReference record)
+	{
+		final int adTableId = record.getAD_Table_ID();
+		if (!isNodeLocalTable(adTableId))
+		{
+			return measure(Operation.PersistentLock, () -> sqlLockDatabase.changeLockRecord(lockCommand, record));
+		}
+
+		final LockOwner ownerNew = lockCommand.getOwner();
+		assertValidLockOwner(ownerNew);
+		final LockOwner ownerCurrent = lockCommand.getParentLock().getOwner();
+
+		return measure(Operation.LocalLock, () -> localLocks.changeLock(
+				adTableId,
+				record.getRecord_ID(),
+				ownerCurrent,
+				ownerNew,
+				lockCommand.isAutoCleanup(),
+				isAllowMultipleOwners(lockCommand.getAllowAdditionalLocks())));
+	}
+
+	@Override
+	protected int unlockBySelection(final IUnlockCommand unlockCommand)
+	{
+		final int adTableId = unlockCommand.getSelectionToUnlock_AD_Table_ID();
+		if (!isNodeLocalTable(adTableId))
+		{
+			return measure(Operation.PersistentUnlock, () -> sqlLockDatabase.unlockBySelection(unlockCommand));
+		}
+
+		final List<Integer> recordIds = createQueryBuilder(adTableId)
+				.setOnlySelection(unlockCommand.getSelectionToUnlock_AD_PInstance_ID())
+				.create()
+				.listIds();
+
+		final LockOwner lockOwner = unlockCommand.getOwner();
+		int countUnlocked = 0;
+		for (final int recordId : recordIds)
+		{
+			if (measure(Operation.LocalUnlock, () -> localLocks.unlock(adTableId, recordId, lockOwner)))
+			{
+				countUnlocked++;
+			}
+		}
+		return countUnlocked;
+	}
+
+	@Override
+	protected int unlockByOwner(final IUnlockCommand unlockCommand)
+	{
+		final LockOwner lockOwner = unlockCommand.getOwner();
+		assertValidLockOwner(lockOwner);
+
+		final int countUnlockedLocally = measure(Operation.LocalUnlock, () -> localLocks.unlockByOwner(lockOwner));
+		final int countUnlockedPersistent = measure(Operation.PersistentUnlock, () -> sqlLockDatabase.unlockByOwner(unlockCommand));
+		return countUnlockedLocally + countUnlockedPersistent;
+	}
+
+	@Override
+	protected boolean unlockRecord(final IUnlockCommand unlockCommand, final ITableRecordReference record)
+	{
+		final int adTableId = record.getAD_Table_ID();
+		if (!isNodeLocalTable(adTableId))
+		{
+			return measure(Operation.PersistentUnlock, () -> sqlLockDatabase.unlockRecord(unlockCommand, record));
+		}
+
+		return measure(Operation.LocalUnlock, () -> localLocks.unlock(adTableId, record.getRecord_ID(), unlockCommand.getOwner()));
+	}
+
+	@Override
+	protected <T> IQuery<T> retrieveNotLockedQuery(final IQuery<T> query)
+	{
+		final String tableName = query.getTableName();
+		if (!isNodeLocalTable(tableName))
+		{
+			return sqlLockDatabase.retrieveNotLockedQuery(query);
+		}
+
+		final TypedSqlQuery<T> sqlQuery = TypedSqlQuery.cast(query);
+		final String keyColumnNameFQ = tableName + "." + sqlQuery.getKeyColumnName();
+		return sqlQuery.addWhereClause(true, getNotLockedWhereClause(tableName, keyColumnNameFQ));
+	}
+
+	@Override
+	public <T> T retrieveAndLockSkipLocked(final IQuery<T> query, final Class<T> clazz)
+	{
+		if (!isNodeLocalTable(query.getTableName()))
+		{
+			return sqlLockDatabase.retrieveAndLockSkipLocked(query, clazz);
+		}
+
+		// there is no T_Lock record to insert, so there is nothing to gain from FOR UPDATE SKIP LOCKED
+		return retrieveAndLock(query, clazz);
+	}
+
+	@Override
+	public <T> IQueryFilter<T> getLockedByFilter(final Class<T> modelClass, final LockOwner lockOwner)
+	{
+		final int adTableId = InterfaceWrapperHelper.getTableId(modelClass);
+		if (!isNodeLocalTable(adTableId))
+		{
+			return sqlLockDatabase.getLockedByFilter(modelClass, lockOwner);
+		}
+
+		final String joinColumnNameFQ = createJoinColumnNameFQ(modelClass);
+		return new NodeLocalLockedQueryFilter<>(adTableId, joinColumnNameFQ, lockOwner, true);
+	}
+
+	@Override
+	public <T> IQueryFilter<T> getNotLockedFilter(final Class<T> modelClass)
+	{
+		final int adTableId = InterfaceWrapperHelper.getTableId(modelClass);
+		if (!isNodeLocalTable(adTableId))
+		{
+			return sqlLockDatabase.getNotLockedFilter(modelClass);
+		}
+
+		final String joinColumnNameFQ = createJoinColumnNameFQ(modelClass);
+		return new NodeLocalLockedQueryFilter<>(adTableId, joinColumnNameFQ, LockOwner.ANY, false);
+	}
+
+	private static String createJoinColumnNameFQ(final Class<?> modelClass)
+	{
+		final String tableName = InterfaceWrapperHelper.getTableName(modelClass);
+		final String keyColumnName = InterfaceWrapperHelper.getKeyColumnName(tableName);
+		return tableName + "." + keyColumnName;
+	}
+
+	@Override
+	public String getNotLockedWhereClause(final String tableName, final String joinColumnNameFQ)
+	{
+		if (!isNodeLocalTable(tableName))
+		{
+			return sqlLockDatabase.getNotLockedWhereClause(tableName, joinColumnNameFQ);
+		}
+
+		final int adTableId = Services.get(IADTableDAO.class).retrieveTableId(tableName);
+		return createLocalWhereClause(adTableId, joinColumnNameFQ, LockOwner.ANY, false);
+	}
+
+	@Override
+	protected String getLockedWhereClauseAllowNullLock(final Class<?> modelClass, final String joinColumnNameFQ, final LockOwner lockOwner)
+	{
+		final int adTableId = InterfaceWrapperHelper.getTableId(modelClass);
+		if (!isNodeLocalTable(adTableId))
+		{
+			return sqlLockDatabase.getLockedWhereClauseAllowNullLock(modelClass, joinColumnNameFQ, lockOwner);
+		}
+
+		return createLocalWhereClause(adTableId, joinColumnNameFQ, lockOwner, true);
+	}
+
+	/**
+	 * @return <code>joinColumnNameFQ [NOT] IN (...)</code> for the records which are currently locked in our node-local table
+	 */
+	private String createLocalWhereClause(final int adTableId, final String joinColumnNameFQ, final LockOwner lockOwner, final boolean locked)
+	{
+		Check.assumeNotEmpty(joinColumnNameFQ, "joinColumnNameFQ not empty");
+
+		final Set<Integer> lockedRecordIds = localLocks.getLockedRecordIds(adTableId, lockOwner);
+		if (lockedRecordIds.isEmpty())
+		{
+			return locked ? "1=2" : "1=1";
+		}
+
+		// NOTE: we are rendering the IDs inline because the where clause is also used by callers which can't handle SQL parameters
+		return joinColumnNameFQ + (locked ? " IN (" : " NOT IN (") + Joiner.on(",").join(lockedRecordIds) + ")";
+	}
+
+	@Override
+	public ILock retrieveLockForOwner(final LockOwner lockOwner)
+	{
+		Check.assumeNotNull(lockOwner, "Lock owner shall not be null");
+
+		final OwnerLocksInfo localLocksInfo = localLocks.getOwnerLocksInfo(lockOwner);
+		if (localLocksInfo == null)
+		{
+			final ILock persistentLock = sqlLockDatabase.retrieveLockForOwner(lockOwner);
+			return newLock(lockOwner, persistentLock.isAutoCleanup(), persistentLock.getCountLocked());
+		}
+
+		int countLocked = localLocksInfo.getCountLocked();
+		try
+		{
+			// the same owner might have also locked records of tables which are not node-local
+			countLocked += sqlLockDatabase.retrieveLockForOwner(lockOwner).getCountLocked();
+		}
+		catch (final LockFailedException e)
+		{
+			logger.debug("No persisted locks found for {}", lockOwner, e);
+		}
+
+		return newLock(lockOwner, localLocksInfo.isAutoCleanup(), countLocked);
+	}
+
+	@Override
+	public int removeAutoCleanupLocks()
+	{
+		final int countLocalLocksReleased = localLocks.removeAutoCleanupLocks();
+		if (countLocalLocksReleased > 0)
+		{
+			logger.info("Released {} node-local locks which were flagged with IsAutoCleanup=true", countLocalLocksReleased);
+		}
+
+		return countLocalLocksReleased + sqlLockDatabase.removeAutoCleanupLocks();
+	}
+
+	private <R> R measure(final Operation operation, final Supplier<R> action)
+	{
+		final long startNanos = System.nanoTime();
+		try
+		{
+			return action.get();
+		}
+		finally
+		{
+			statistics.record(operation, System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * SQL filter which is rendering the records locked in our node-local table at the time the SQL is built.
+	 */
+	private final class NodeLocalLockedQueryFilter<T> implements IQueryFilter<T>, ISqlQueryFilter
+	{
+		private final int adTableId;
+		private final String joinColumnNameFQ;
+		private final LockOwner lockOwner;
+		private final boolean locked;
+
+		private NodeLocalLockedQueryFilter(final int adTableId, final String joinColumnNameFQ, final LockOwner lockOwner, final boolean locked)
+		{
+			this.adTableId = adTableId;
+			this.joinColumnNameFQ = joinColumnNameFQ;
+			this.lockOwner = lockOwner;
+			this.locked = locked;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "NodeLocalLockedQueryFilter[AD_Table_ID=" + adTableId + ", lockOwner=" + lockOwner + ", locked=" + locked + "]";
+		}
+
+		@Override
+		public String getSql()
+		{
+			return createLocalWhereClause(adTableId, joinColumnNameFQ, lockOwner, locked);
+		}
+
+		@Override
+		public List<Object> getSqlParams(final Properties ctx)
+		{
+			return ImmutableList.of();
+		}
+
+		@Override
+		public boolean accept(final T model)
+		{
+			final int recordId = InterfaceWrapperHelper.getId(model);
+			return localLocks.isLocked(adTableId, recordId, lockOwner) == locked;
+		}
+	}
+
+	/**
+	 * Parses {@value HybridLockDatabase#SYSCONFIG_NodeLocalTableNames} and caches the result until the sysconfig value changes.
+	 */
+	private static final class NodeLocalTableIdsFromSysConfig implements Supplier<Set<Integer>>
+	{
+		private volatile String tableNamesString = "";
+		private volatile Set<Integer> tableIds = ImmutableSet.of();
+
+		@Override
+		public Set<Integer> get()
+		{
+			final String tableNamesStringNew = Services.get(ISysConfigBL.class).getValue(SYSCONFIG_NodeLocalTableNames, "");
+			if (tableNamesStringNew.equals(tableNamesString))
+			{
+				return tableIds;
+			}
+
+			final IADTableDAO adTableDAO = Services.get(IADTableDAO.class);
+			final ImmutableSet.Builder<Integer> tableIdsNew = ImmutableSet.builder();
+			for (final String tableName : Splitter.on(",").trimResults().omitEmptyStrings().split(tableNamesStringNew))
+			{
+				final int adTableId = adTableDAO.retrieveTableId(tableName);
+				Check.assume(adTableId > 0, "Table {} exists (configured in {})", tableName, SYSCONFIG_NodeLocalTableNames);
+				tableIdsNew.add(adTableId);
+			}
+
+			final Set<Integer> tableIdsBuilt = tableIdsNew.build();
+			tableIds = tableIdsBuilt;
+			tableNamesString = tableNamesStringNew;
+			return tableIdsBuilt;
+		}
+	}
+
+	public static enum Operation
+	{
+		LocalLock, LocalUnlock, PersistentLock, PersistentUnlock
+	}
+
+	/**
+	 * Lock/unlock throughput counters, per {@link Operation}.
+	 */
+	public static final class LockDatabaseStatistics
+	{
+		private final Map<Operation, LongAdder> counts = new EnumMap<>(Operation.class);
+		private final Map<Operation, LongAdder> totalNanos = new EnumMap<>(Operation.class);
+
+		private LockDatabaseStatistics()
+		{
+			for (final Operation operation : Operation.values())
+			{
+				counts.put(operation, new LongAdder());
+				totalNanos.put(operation, new LongAdder());
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			final StringBuilder sb = new StringBuilder();
+			for (final Operation operation : Operation.values())
+			{
+				final long count = getCount(operation);
+				final long avgMicros = count > 0 ? TimeUnit.NANOSECONDS.toMicros(getTotalNanos(operation) / count) : 0;
+				if (sb.length() > 0)
+				{
+					sb.append(", ");
+				}
+				sb.append(operation).append("=").append(count).append(" (avgMicros=").append(avgMicros).append(")");
+			}
+			return sb.toString();
+		}
+
+		private void record(final Operation operation, final long durationNanos)
+		{
+			counts.get(operation).increment();
+			totalNanos.get(operation).add(durationNanos);
+		}
+
+		public long getCount(final Operation operation)
+		{
+			return counts.get(operation).sum();
+		}
+
+		public long getTotalNanos(final Operation operation)
+		{
+			return totalNanos.get(operation).sum();
+		}
+
+		public void reset()
+		{
+			counts.values().forEach(LongAdder::reset);
+			totalNanos.values().forEach(LongAdder::reset);
+		}
+	}
+}
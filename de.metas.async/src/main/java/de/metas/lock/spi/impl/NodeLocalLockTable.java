@@ -0,0 +1,435 @@
+package de.metas.lock.spi.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+
+import org.adempiere.util.Check;
+import org.compiere.util.Util.ArrayKey;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Striped;
+
+import de.metas.lock.api.LockOwner;
+import de.metas.lock.exceptions.LockFailedException;
+
+/**
+ * Thread safe, in-memory lock table which is used by {@link HybridLockDatabase} for the locks which don't have to be persisted in <code>T_Lock</code>.
+ * <p>
+ * Instead of one global lock (like {@link PlainLockDatabase} does), the records are guarded by a fixed number of lock stripes,
+ * so threads which are locking different records are not blocking each other.
+ * <p>
+ * The locking rules are the same as for <code>T_Lock</code>: a record can be locked by more than one owner only if all involved locks allow multiple owners.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class NodeLocalLockTable
+{
+	private static final int DEFAULT_StripesCount = 64;
+
+	private final Striped<Lock> stripes;
+	private final ConcurrentHashMap<ArrayKey, RecordLocks> locks = new ConcurrentHashMap<>();
+
+	/** Locked Record_IDs indexed by AD_Table_ID; updated while holding the record's stripe */
+	private final ConcurrentHashMap<Integer, Set<Integer>> lockedRecordIdsByTableId = new ConcurrentHashMap<>();
+
+	/** Locked record keys indexed by lock owner; updated while holding the record's stripe */
+	private final ConcurrentHashMap<LockOwner, Set<ArrayKey>> lockedKeysByOwner = new ConcurrentHashMap<>();
+
+	public NodeLocalLockTable()
+	{
+		this(DEFAULT_StripesCount);
+	}
+
+	public NodeLocalLockTable(final int stripesCount)
+	{
+		Check.assume(stripesCount > 0, "stripesCount > 0 but it was {}", stripesCount);
+		stripes = Striped.lock(stripesCount);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "NodeLocalLockTable[locksCount=" + getLocksCount() + "]";
+	}
+
+	private static ArrayKey createKey(final int adTableId, final int recordId)
+	{
+		return new ArrayKey(adTableId, recordId);
+	}
+
+	private static int extractTableId(final ArrayKey key)
+	{
+		return (Integer)key.getArray()[0];
+	}
+
+	private static int extractRecordId(final ArrayKey key)
+	{
+		return (Integer)key.getArray()[1];
+	}
+
+	/**
+	 * @return <ul>
+	 *         <li><code>true</code> if the lock was acquired
+	 *         <li><code>false</code> if the record is already locked by given owner or, without allowing multiple owners, by somebody else
+	 *         </ul>
+	 */
+	public boolean lock(final int adTableId, final int recordId, final LockOwner lockOwner, final boolean autoCleanup, final boolean allowMultipleOwners)
+	{
+		Check.assumeNotNull(lockOwner, "lockOwner not null");
+
+		final ArrayKey key = createKey(adTableId, recordId);
+		final Lock stripe = stripes.get(key);
+		stripe.lock();
+		try
+		{
+			final RecordLocks recordLocks = locks.get(key);
+			if (recordLocks == null)
+			{
+				final RecordLocks recordLocksNew = new RecordLocks();
+				recordLocksNew.put(lockOwner, new LockInfo(autoCleanup, allowMultipleOwners));
+				locks.put(key, recordLocksNew);
+				lockedRecordIdsByTableId.computeIfAbsent(adTableId, k -> ConcurrentHashMap.newKeySet()).add(recordId);
+				addToOwnerIndex(lockOwner, key);
+				return true;
+			}
+
+			if (recordLocks.hasOwner(lockOwner))
+			{
+				return false;
+			}
+			if (!allowMultipleOwners || !recordLocks.isAllowMultipleOwners())
+			{
+				return false;
+			}
+
+			recordLocks.put(lockOwner, new LockInfo(autoCleanup, allowMultipleOwners));
+			addToOwnerIndex(lockOwner, key);
+			return true;
+		}
+		finally
+		{
+			stripe.unlock();
+		}
+	}
+
+	/**
+	 * Moves the lock of given record from <code>lockOwner</code> to <code>newLockOwner</code>.
+	 *
+	 * @return true if the lock was changed
+	 */
+	public boolean changeLock(final int adTableId, final int recordId, final LockOwner lockOwner, final LockOwner newLockOwner, final boolean autoCleanup, final boolean allowMultipleOwners)
+	{
+		Check.assumeNotNull(lockOwner, "lockOwner not null");
+		Check.assumeNotNull(newLockOwner, "newLockOwner not null");
+
+		final ArrayKey key = createKey(adTableId, recordId);
+		final Lock stripe = stripes.get(key);
+		stripe.lock();
+		try
+		{
+			final RecordLocks recordLocks = locks.get(key);
+			if (recordLocks == null || !recordLocks.hasOwner(lockOwner))
+			{
+				return false;
+			}
+
+			recordLocks.remove(lockOwner);
+			removeFromOwnerIndex(lockOwner, key);
+			recordLocks.put(newLockOwner, new LockInfo(autoCleanup, allowMultipleOwners));
+			addToOwnerIndex(newLockOwner, key);
+			return true;
+		}
+		finally
+		{
+			stripe.unlock();
+		}
+	}
+
+	/**
+	 * @param lockOwner owner whose lock shall be removed; {@link LockOwner#ANY} removes all locks of the record
+	 * @return true if at least one lock was removed
+	 */
+	public boolean unlock(final int adTableId, final int recordId, final LockOwner lockOwner)
+	{
+		Check.assumeNotNull(lockOwner, "lockOwner not null");
+
+		final ArrayKey key = createKey(adTableId, recordId);
+		return removeLocks(key, entry -> lockOwner.isAnyOwner() || lockOwner.equals(entry.getKey())) > 0;
+	}
+
+	/** @return how many records were unlocked */
+	public int unlockByOwner(final LockOwner lockOwner)
+	{
+		Check.assumeNotNull(lockOwner, "lockOwner not null");
+
+		int countRemoved = 0;
+		for (final ArrayKey key : getLockedKeys(lockOwner))
+		{
+			countRemoved += removeLocks(key, entry -> lockOwner.equals(entry.getKey()));
+		}
+		return countRemoved;
+	}
+
+	/** @return how many locks were removed */
+	public int removeAutoCleanupLocks()
+	{
+		return removeLocksForAllRecords(entry -> entry.getValue().isAutoCleanup());
+	}
+
+	private int removeLocksForAllRecords(final Predicate<Map.Entry<LockOwner, LockInfo>> filter)
+	{
+		int countRemoved = 0;
+		for (final ArrayKey key : new ArrayList<>(locks.keySet()))
+		{
+			countRemoved += removeLocks(key, filter);
+		}
+		return countRemoved;
+	}
+
+	private int removeLocks(final ArrayKey key, final Predicate<Map.Entry<LockOwner, LockInfo>> filter)
+	{
+		final Lock stripe = stripes.get(key);
+		stripe.lock();
+		try
+		{
+			final RecordLocks recordLocks = locks.get(key);
+			if (recordLocks == null)
+			{
+				return 0;
+			}
+
+			int countRemoved = 0;
+			for (final Iterator<Map.Entry<LockOwner, LockInfo>> it = recordLocks.entrySet().iterator(); it.hasNext();)
+			{
+				final Map.Entry<LockOwner, LockInfo> entry = it.next();
+				if (filter.test(entry))
+				{
+					it.remove();
+					removeFromOwnerIndex(entry.getKey(), key);
+					countRemoved++;
+				}
+			}
+
+			if (recordLocks.isEmpty())
+			{
+				locks.remove(key);
+
+				final int adTableId = extractTableId(key);
+				final Set<Integer> lockedRecordIds = lockedRecordIdsByTableId.get(adTableId);
+				if (lockedRecordIds != null)
+				{
+					lockedRecordIds.remove(extractRecordId(key));
+				}
+			}
+
+			return countRemoved;
+		}
+		finally
+		{
+			stripe.unlock();
+		}
+	}
+
+	/**
+	 * @param lockOwner <code>null</code> or {@link LockOwner#ANY} to check if the record is locked by anybody
+	 */
+	public boolean isLocked(final int adTableId, final int recordId, final LockOwner lockOwner)
+	{
+		final ArrayKey key = createKey(adTableId, recordId);
+		final Lock stripe = stripes.get(key);
+		stripe.lock();
+		try
+		{
+			final RecordLocks recordLocks = locks.get(key);
+			if (recordLocks == null || recordLocks.isEmpty())
+			{
+				return false;
+			}
+			if (lockOwner == null || lockOwner.isAnyOwner())
+			{
+				return true;
+			}
+			return recordLocks.hasOwner(lockOwner);
+		}
+		finally
+		{
+			stripe.unlock();
+		}
+	}
+
+	/** @return snapshot of the locked Record_IDs of given table, by any owner */
+	public Set<Integer> getLockedRecordIds(final int adTableId)
+	{
+		final Set<Integer> lockedRecordIds = lockedRecordIdsByTableId.get(adTableId);
+		if (lockedRecordIds == null || lockedRecordIds.isEmpty())
+		{
+			return ImmutableSet.of();
+		}
+		return ImmutableSet.copyOf(lockedRecordIds);
+	}
+
+	/** @return snapshot of the locked Record_IDs of given table, filtered by given owner */
+	public Set<Integer> getLockedRecordIds(final int adTableId, final LockOwner lockOwner)
+	{
+		if (lockOwner == null || lockOwner.isAnyOwner())
+		{
+			return getLockedRecordIds(adTableId);
+		}
+
+		final ImmutableSet.Builder<Integer> result = ImmutableSet.builder();
+		for (final int recordId : getLockedRecordIds(adTableId))
+		{
+			if (isLocked(adTableId, recordId, lockOwner))
+			{
+				result.add(recordId);
+			}
+		}
+		return result.build();
+	}
+
+	/**
+	 * @return how many records are locked by given owner and whether those locks are auto-cleanup; <code>null</code> if nothing is locked by given owner
+	 */
+	public OwnerLocksInfo getOwnerLocksInfo(final LockOwner lockOwner)
+	{
+		Check.assumeNotNull(lockOwner, "lockOwner not null");
+
+		int countLocked = 0;
+		boolean autoCleanup = false;
+		for (final ArrayKey key : getLockedKeys(lockOwner))
+		{
+			final Lock stripe = stripes.get(key);
+			stripe.lock();
+			try
+			{
+				final RecordLocks recordLocks = locks.get(key);
+				final LockInfo lockInfo = recordLocks == null ? null : recordLocks.get(lockOwner);
+				if (lockInfo == null)
+				{
+					continue;
+				}
+
+				if (countLocked > 0 && autoCleanup != lockInfo.isAutoCleanup())
+				{
+					throw new LockFailedException("More then one lock found for owner " + lockOwner);
+				}
+				autoCleanup = lockInfo.isAutoCleanup();
+				countLocked++;
+			}
+			finally
+			{
+				stripe.unlock();
+			}
+		}
+
+		return countLocked > 0 ? new OwnerLocksInfo(countLocked, autoCleanup) : null;
+	}
+
+	/** @return snapshot of the record keys locked by given owner */
+	private List<ArrayKey> getLockedKeys(final LockOwner lockOwner)
+	{
+		final Set<ArrayKey> keys = lockedKeysByOwner.get(lockOwner);
+		if (keys == null || keys.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+		return new ArrayList<>(keys);
+	}
+
+	/** Shall be called while holding the stripe of given key */
+	private void addToOwnerIndex(final LockOwner lockOwner, final ArrayKey key)
+	{
+		// NOTE: add inside compute, so we are not racing with removeFromOwnerIndex dropping the (empty) set of the same owner
+		lockedKeysByOwner.compute(lockOwner, (k, keys) -> {
+			final Set<ArrayKey> keysNew = keys != null ? keys : ConcurrentHashMap.newKeySet();
+			keysNew.add(key);
+			return keysNew;
+		});
+	}
+
+	/** Shall be called while holding the stripe of given key */
+	private void removeFromOwnerIndex(final LockOwner lockOwner, final ArrayKey key)
+	{
+		lockedKeysByOwner.computeIfPresent(lockOwner, (k, keys) -> {
+			keys.remove(key);
+			return keys.isEmpty() ? null : keys;
+		});
+	}
+
+	public int getLocksCount()
+	{
+		return locks.size();
+	}
+
+	/** Removes all locks. To be used in tests only. */
+	public void clear()
+	{
+		for (final ArrayKey key : new ArrayList<>(locks.keySet()))
+		{
+			removeLocks(key, entry -> true);
+		}
+	}
+
+	/**
+	 * Locks of one record, indexed by owner. Not thread safe; always accessed while holding the record's stripe.
+	 */
+	private static final class RecordLocks extends HashMap<LockOwner, LockInfo>
+	{
+		private static final long serialVersionUID = 1L;
+
+		public boolean hasOwner(final LockOwner lockOwner)
+		{
+			return containsKey(lockOwner);
+		}
+
+		public boolean isAllowMultipleOwners()
+		{
+			return values().stream().allMatch(LockInfo::isAllowMultipleOwners);
+		}
+	}
+
+	@lombok.Value
+	private static final class LockInfo
+	{
+		private final boolean autoCleanup;
+		private final boolean allowMultipleOwners;
+	}
+
+	@lombok.Value
+	public static final class OwnerLocksInfo
+	{
+		private final int countLocked;
+		private final boolean autoCleanup;
+	}
+}
@@ -46,6 +46,8 @@ import org.compiere.model.IQuery;
 import org.compiere.util.DB;
 import org.compiere.util.DisplayType;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import de.metas.lock.api.ILock;
 import de.metas.lock.api.ILockCommand;
 import de.metas.lock.api.IUnlockCommand;
@@ -498,6 +500,166 @@ public class SqlLockDatabase extends AbstractLockDatabase
 		return finalQuery;
 	}
 
+	/**
+	 * Selects the next not locked record using <code>FOR UPDATE SKIP LOCKED</code> and inserts its {@link I_T_Lock} record, all in one SQL statement.
+	 *
+	 * So concurrent clients are not blocking each other and they don't have to retry when they selected the same candidate as another client.
+	 * In case it still happens (i.e. the other client's lock was committed after our snapshot was taken), the insert is skipped and we try again.
+	 */
+	@Override
+	public <T> T retrieveAndLockSkipLocked(final IQuery<T> query, final Class<T> clazz)
+	{
+		final TypedSqlQuery<T> sqlQuery = TypedSqlQuery.cast(retrieveNotLockedQuery(query));
+		if (sqlQuery.hasLimitOrOffset())
+		{
+			// we need to append our own LIMIT
+			return retrieveAndLock(query, clazz);
+		}
+
+		final String tableName = sqlQuery.getTableName();
+		final String keyColumnName = sqlQuery.getKeyColumnName();
+		final int adTableId = Services.get(IADTableDAO.class).retrieveTableId(tableName);
+		Check.assume(adTableId > 0, "Table {} exists", tableName);
+
+		final StringBuilder sqlSelectClause = new StringBuilder("SELECT ").append(tableName).append(".").append(keyColumnName)
+				.append(" FROM ").append(sqlQuery.getSqlFrom());
+
+		final List<Object> sqlParams = new ArrayList<>(sqlQuery.getParametersEffective());
+		final String sql = buildClaimSQL(sqlQuery.buildSQL(sqlSelectClause, true), keyColumnName, adTableId, sqlParams);
+
+		final int recordId = claimRecordId(sql, sqlParams);
+		if (recordId == CLAIM_NothingAvailable)
+		{
+			return null;
+		}
+		else if (recordId == CLAIM_LockedByOthers)
+		{
+			logger.info("Unable to select and lock a record in {} after {} retries.", tableName, CLAIM_MaxRetries);
+			return null;
+		}
+
+		final T model = InterfaceWrapperHelper.create(sqlQuery.getCtx(), recordId, clazz, sqlQuery.getTrxName());
+		if (model == null)
+		{
+			// shall not happen, but be on the safe side and don't leave the lock behind
+			unlockRecordNoFail(adTableId, recordId);
+			return null;
+		}
+
+		// Successfully acquired our lock :-)
+		return model;
+	}
+
+	/**
+	 * Builds the SQL which picks the first not locked record of given query, skipping the rows which are currently claimed by others, and locks it by inserting a T_Lock record.
+	 * <p>
+	 * The SQL returns one row if there was a candidate. Its Record_ID is <code>null</code> if the candidate was locked by someone else meanwhile.
+	 *
+	 * @param candidatesSql SQL which selects the key column of the candidate records
+	 * @param sqlParams the parameters of <code>candidatesSql</code>; the parameters of the returned SQL are appended to it
+	 */
+	@VisibleForTesting
+	/* package */ static String buildClaimSQL(final String candidatesSql, final String keyColumnName, final int adTableId, final List<Object> sqlParams)
+	{
+		return "WITH claimed AS ("
+				+ "\n" + candidatesSql
+				+ "\n LIMIT 1 FOR UPDATE SKIP LOCKED"
+				+ "\n)"
+				+ "\n, inserted AS ("
+				+ "\n INSERT INTO " + I_T_Lock.Table_Name + " ("
+				+ I_T_Lock.COLUMNNAME_AD_Table_ID
+				+ ", " + I_T_Lock.COLUMNNAME_Record_ID
+				+ ", " + I_T_Lock.COLUMNNAME_Owner
+				+ ", " + I_T_Lock.COLUMNNAME_IsAutoCleanup
+				+ ", " + I_T_Lock.COLUMNNAME_IsAllowMultipleOwners
+				+ ")"
+				+ " SELECT "
+				+ toSqlParam(adTableId, sqlParams)
+				+ ", claimed." + keyColumnName
+				+ ", " + toSqlParam(LockOwner.NONE.getOwnerName(), sqlParams)
+				+ ", " + toSqlParam(true, sqlParams) // IsAutoCleanup
+				+ ", " + toSqlParam(false, sqlParams) // IsAllowMultipleOwners
+				+ " FROM claimed"
+				+ " ON CONFLICT DO NOTHING"
+				+ " RETURNING " + I_T_Lock.COLUMNNAME_Record_ID
+				+ "\n)"
+				+ "\nSELECT inserted." + I_T_Lock.COLUMNNAME_Record_ID
+				+ " FROM claimed LEFT OUTER JOIN inserted ON (inserted." + I_T_Lock.COLUMNNAME_Record_ID + "=claimed." + keyColumnName + ")";
+	}
+
+	/**
+	 * Executes the given claim SQL until a record was claimed, there are no candidates or {@link #CLAIM_MaxRetries} were exceeded.
+	 *
+	 * @return claimed Record_ID, {@link #CLAIM_NothingAvailable} or {@link #CLAIM_LockedByOthers} if the retries were exceeded
+	 */
+	@VisibleForTesting
+	/* package */ int claimRecordId(final String sql, final List<Object> sqlParams)
+	{
+		for (int retryCounter = 0; retryCounter < CLAIM_MaxRetries; retryCounter++)
+		{
+			final int recordId = executeClaimSQL(sql, sqlParams);
+			if (recordId != CLAIM_LockedByOthers)
+			{
+				return recordId;
+			}
+		}
+		return CLAIM_LockedByOthers;
+	}
+
+	@VisibleForTesting
+	/* package */ static final int CLAIM_NothingAvailable = -1;
+	@VisibleForTesting
+	/* package */ static final int CLAIM_LockedByOthers = 0;
+	@VisibleForTesting
+	/* package */ static final int CLAIM_MaxRetries = 50;
+
+	/**
+	 * @return claimed Record_ID, {@link #CLAIM_NothingAvailable} or {@link #CLAIM_LockedByOthers}
+	 */
+	private int executeClaimSQL(final String sql, final List<Object> sqlParams)
+	{
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			// NOTE: running out of transaction, so the row lock is released and the T_Lock record is committed right away
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+			if (!rs.next())
+			{
+				return CLAIM_NothingAvailable;
+			}
+
+			final int recordId = rs.getInt(1);
+			return recordId > 0 ? recordId : CLAIM_LockedByOthers;
+		}
+		catch (final SQLException e)
+		{
+			throw new LockFailedException("Failed claiming next record", e)
+					.setSql(sql, sqlParams.toArray());
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	private void unlockRecordNoFail(final int adTableId, final int recordId)
+	{
+		final String sql = SQL_DeleteLock
+				+ " AND " + I_T_Lock.COLUMNNAME_AD_Table_ID + "=?"
+				+ " AND " + I_T_Lock.COLUMNNAME_Record_ID + "=?";
+		try
+		{
+			DB.executeUpdateEx(sql, new Object[] { adTableId, recordId }, ITrx.TRXNAME_None);
+		}
+		catch (final Exception e)
+		{
+			logger.warn("Failed unlocking AD_Table_ID={}, Record_ID={}", adTableId, recordId, e);
+		}
+	}
+
 	@Override
 	public final String getNotLockedWhereClause(final String tableName, final String joinColumnNameFQ)
 	{
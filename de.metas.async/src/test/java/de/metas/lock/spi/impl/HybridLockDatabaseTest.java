@@ -0,0 +1,287 @@
+package de.metas.lock.spi.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.lock.api.ILockManager;
+import de.metas.lock.api.LockOwner;
+import de.metas.lock.api.impl.LockManager;
+import de.metas.lock.exceptions.LockFailedException;
+import de.metas.lock.spi.ILockDatabase;
+import de.metas.lock.spi.impl.HybridLockDatabase.Operation;
+
+/**
+ * Tests {@link HybridLockDatabase} with node-local tables only, so that no database is needed.
+ * <p>
+ * Also contains a small contention harness which runs the same concurrent lock/unlock workload against {@link PlainLockDatabase} and {@link HybridLockDatabase}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class HybridLockDatabaseTest
+{
+	private static final int AD_Table_ID = 540001;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+	}
+
+	private static ILockManager createLockManager(final ILockDatabase lockDatabase)
+	{
+		return new LockManager()
+		{
+			@Override
+			public ILockDatabase getLockDatabase()
+			{
+				return lockDatabase;
+			}
+		};
+	}
+
+	@Test
+	public void test_LockUnlock_NodeLocalTable()
+	{
+		final HybridLockDatabase lockDatabase = new HybridLockDatabase(ImmutableSet.of(AD_Table_ID));
+		final ILockManager lockManager = createLockManager(lockDatabase);
+
+		final LockOwner owner1 = LockOwner.newOwner("owner1");
+		final LockOwner owner2 = LockOwner.newOwner("owner2");
+
+		final int countLocked = lockManager.lock()
+				.setOwner(owner1)
+				.setFailIfAlreadyLocked(false)
+				.setRecordByTableRecordId(AD_Table_ID, 1)
+				.acquire()
+				.getCountLocked();
+		Assert.assertEquals(1, countLocked);
+		Assert.assertTrue(lockDatabase.isLocked(AD_Table_ID, 1, owner1));
+		Assert.assertTrue(lockDatabase.isLocked(AD_Table_ID, 1, LockOwner.ANY));
+		Assert.assertFalse(lockDatabase.isLocked(AD_Table_ID, 1, owner2));
+		Assert.assertFalse(lockDatabase.isLocked(AD_Table_ID, 2, LockOwner.ANY));
+
+		// another owner shall not get the lock
+		final int countLocked2 = lockManager.lock()
+				.setOwner(owner2)
+				.setFailIfAlreadyLocked(false)
+				.setRecordByTableRecordId(AD_Table_ID, 1)
+				.acquire()
+				.getCountLocked();
+		Assert.assertEquals(0, countLocked2);
+
+		final int countUnlocked = lockManager.unlock()
+				.setOwner(owner1)
+				.setRecordByTableRecordId(AD_Table_ID, 1)
+				.release();
+		Assert.assertEquals(1, countUnlocked);
+		Assert.assertFalse(lockDatabase.isLocked(AD_Table_ID, 1, LockOwner.ANY));
+
+		Assert.assertEquals(2, lockDatabase.getStatistics().getCount(Operation.LocalLock));
+		Assert.assertEquals(1, lockDatabase.getStatistics().getCount(Operation.LocalUnlock));
+		Assert.assertEquals(0, lockDatabase.getStatistics().getCount(Operation.PersistentLock));
+	}
+
+	@Test
+	public void test_NodeLocalLockTable_removeAutoCleanupLocks()
+	{
+		final NodeLocalLockTable localLocks = new NodeLocalLockTable();
+		Assert.assertTrue(localLocks.lock(AD_Table_ID, 1, LockOwner.newOwner("autoCleanup"), true, false));
+		Assert.assertTrue(localLocks.lock(AD_Table_ID, 2, LockOwner.newOwner("noAutoCleanup"), false, false));
+		Assert.assertEquals(ImmutableSet.of(1, 2), localLocks.getLockedRecordIds(AD_Table_ID));
+
+		Assert.assertEquals(1, localLocks.removeAutoCleanupLocks());
+
+		Assert.assertFalse(localLocks.isLocked(AD_Table_ID, 1, LockOwner.ANY));
+		Assert.assertTrue(localLocks.isLocked(AD_Table_ID, 2, LockOwner.ANY));
+		Assert.assertEquals(ImmutableSet.of(2), localLocks.getLockedRecordIds(AD_Table_ID));
+	}
+
+	@Test
+	public void test_NodeLocalLockTable_allowMultipleOwners()
+	{
+		final NodeLocalLockTable localLocks = new NodeLocalLockTable();
+		final LockOwner owner1 = LockOwner.newOwner("owner1");
+		final LockOwner owner2 = LockOwner.newOwner("owner2");
+
+		Assert.assertTrue(localLocks.lock(AD_Table_ID, 1, owner1, true, true));
+		Assert.assertTrue(localLocks.lock(AD_Table_ID, 1, owner2, true, true));
+		Assert.assertFalse(localLocks.lock(AD_Table_ID, 1, LockOwner.newOwner("owner3"), true, false));
+
+		Assert.assertEquals(1, localLocks.unlockByOwner(owner1));
+		Assert.assertTrue(localLocks.isLocked(AD_Table_ID, 1, owner2));
+		Assert.assertFalse(localLocks.isLocked(AD_Table_ID, 1, owner1));
+	}
+
+	@Test
+	public void test_Contention_PlainVsHybrid() throws Exception
+	{
+		final long plainOpsPerSec = runContention(new PlainLockDatabase());
+		final long hybridOpsPerSec = runContention(new HybridLockDatabase(ImmutableSet.of(AD_Table_ID)));
+
+		// NOTE: we are not comparing the throughput of the two implementations, because that would make the test flaky on loaded build machines
+		Assert.assertTrue("PlainLockDatabase shall make progress: " + plainOpsPerSec + " ops/sec", plainOpsPerSec > 0);
+		Assert.assertTrue("HybridLockDatabase shall make progress: " + hybridOpsPerSec + " ops/sec", hybridOpsPerSec > 0);
+	}
+
+	@Test
+	public void test_NodeLocalLockTable_getOwnerLocksInfo()
+	{
+		final NodeLocalLockTable localLocks = new NodeLocalLockTable();
+		final LockOwner owner1 = LockOwner.newOwner("owner1");
+		final LockOwner owner2 = LockOwner.newOwner("owner2");
+		final LockOwner owner3 = LockOwner.newOwner("owner3");
+
+		Assert.assertTrue(localLocks.lock(AD_Table_ID, 1, owner1, true, false));
+		Assert.assertTrue(localLocks.lock(AD_Table_ID, 2, owner1, true, false));
+		Assert.assertTrue(localLocks.lock(AD_Table_ID, 3, owner2, false, false));
+
+		Assert.assertEquals(new NodeLocalLockTable.OwnerLocksInfo(2, true), localLocks.getOwnerLocksInfo(owner1));
+		Assert.assertEquals(new NodeLocalLockTable.OwnerLocksInfo(1, false), localLocks.getOwnerLocksInfo(owner2));
+		Assert.assertNull(localLocks.getOwnerLocksInfo(owner3));
+
+		// move one lock to owner3
+		Assert.assertTrue(localLocks.changeLock(AD_Table_ID, 2, owner1, owner3, false, false));
+		Assert.assertEquals(new NodeLocalLockTable.OwnerLocksInfo(1, true), localLocks.getOwnerLocksInfo(owner1));
+		Assert.assertEquals(new NodeLocalLockTable.OwnerLocksInfo(1, false), localLocks.getOwnerLocksInfo(owner3));
+
+		// unlock by record and by owner
+		Assert.assertTrue(localLocks.unlock(AD_Table_ID, 1, owner1));
+		Assert.assertNull(localLocks.getOwnerLocksInfo(owner1));
+		Assert.assertEquals(1, localLocks.unlockByOwner(owner3));
+		Assert.assertNull(localLocks.getOwnerLocksInfo(owner3));
+		Assert.assertFalse(localLocks.isLocked(AD_Table_ID, 2, LockOwner.ANY));
+
+		// auto cleanup removes the locks from the owner index too
+		Assert.assertTrue(localLocks.lock(AD_Table_ID, 4, owner2, true, false));
+		Assert.assertEquals(1, localLocks.removeAutoCleanupLocks());
+		Assert.assertEquals(new NodeLocalLockTable.OwnerLocksInfo(1, false), localLocks.getOwnerLocksInfo(owner2));
+		Assert.assertEquals(0, localLocks.unlockByOwner(owner1));
+	}
+
+	/**
+	 * Lets some threads randomly lock and unlock a small set of records and verifies that a record is never held by two owners at the same time.
+	 *
+	 * @return lock/unlock operations per second
+	 */
+	private static long runContention(final ILockDatabase lockDatabase) throws Exception
+	{
+		final int threadsCount = 8;
+		final int recordsCount = 16;
+		final int iterationsPerThread = 2000;
+
+		final ILockManager lockManager = createLockManager(lockDatabase);
+		final AtomicReferenceArray<LockOwner> holders = new AtomicReferenceArray<>(recordsCount + 1);
+		final AtomicInteger countViolations = new AtomicInteger();
+		final AtomicInteger countOperations = new AtomicInteger();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+		final long startNanos = System.nanoTime();
+		try
+		{
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threadsCount; t++)
+			{
+				final int seed = t;
+				futures.add(executor.submit(() -> {
+					final Random random = new Random(seed);
+					final LockOwner owner = LockOwner.newOwner("thread" + seed);
+					for (int i = 0; i < iterationsPerThread; i++)
+					{
+						final int recordId = 1 + random.nextInt(recordsCount);
+						if (!tryLock(lockManager, owner, recordId))
+						{
+							countOperations.incrementAndGet();
+							continue;
+						}
+
+						if (!holders.compareAndSet(recordId, null, owner))
+						{
+							countViolations.incrementAndGet();
+						}
+						holders.compareAndSet(recordId, owner, null);
+
+						lockManager.unlock()
+								.setOwner(owner)
+								.setRecordByTableRecordId(AD_Table_ID, recordId)
+								.release();
+						countOperations.addAndGet(2);
+					}
+				}));
+			}
+
+			for (final Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		final long durationNanos = Math.max(1, System.nanoTime() - startNanos);
+
+		Assert.assertEquals("Records held by more than one owner at the same time", 0, countViolations.get());
+		for (int recordId = 1; recordId <= recordsCount; recordId++)
+		{
+			Assert.assertFalse("Record " + recordId + " shall not be locked anymore", lockDatabase.isLocked(AD_Table_ID, recordId, LockOwner.ANY));
+		}
+
+		return countOperations.get() * TimeUnit.SECONDS.toNanos(1) / durationNanos;
+	}
+
+	private static boolean tryLock(final ILockManager lockManager, final LockOwner owner, final int recordId)
+	{
+		try
+		{
+			return lockManager.lock()
+					.setOwner(owner)
+					.setFailIfAlreadyLocked(false)
+					.setRecordByTableRecordId(AD_Table_ID, recordId)
+					.acquire()
+					.getCountLocked() > 0;
+		}
+		catch (final LockFailedException e)
+		{
+			// PlainLockDatabase is failing when the record is already locked by another owner
+			return false;
+		}
+	}
+}
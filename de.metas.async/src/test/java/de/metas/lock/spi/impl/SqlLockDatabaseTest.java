@@ -0,0 +1,168 @@
+package de.metas.lock.spi.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.CPreparedStatement;
+import org.compiere.util.DB;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.metas.lock.api.LockOwner;
+
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+
+/**
+ * Tests the SQL and the retry logic of {@link SqlLockDatabase#retrieveAndLockSkipLocked(org.compiere.model.IQuery, Class)}, using a mocked database.
+ */
+public class SqlLockDatabaseTest
+{
+	private static final String SQL_Candidates = "SELECT C_Queue_WorkPackage.C_Queue_WorkPackage_ID FROM C_Queue_WorkPackage WHERE Processed=?";
+	private static final int AD_Table_ID = 540425;
+
+	@Mocked
+	private DB db;
+	@Mocked
+	private CPreparedStatement pstmt;
+	@Mocked
+	private ResultSet rs;
+
+	private SqlLockDatabase lockDatabase;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		lockDatabase = new SqlLockDatabase();
+	}
+
+	private String buildClaimSQL(final List<Object> sqlParams)
+	{
+		return SqlLockDatabase.buildClaimSQL(SQL_Candidates, "C_Queue_WorkPackage_ID", AD_Table_ID, sqlParams);
+	}
+
+	private void expectClaimedRecordIds(final boolean candidateFound, final Integer... recordIds) throws SQLException
+	{
+		// @formatter:off
+		new Expectations()
+		{{
+			DB.prepareStatement(anyString, anyString); result = pstmt;
+			pstmt.executeQuery(); result = rs;
+			rs.next(); result = candidateFound;
+			rs.getInt(1); minTimes = 0; returns(recordIds[0], Arrays.copyOfRange(recordIds, 1, recordIds.length));
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void test_buildClaimSQL()
+	{
+		final List<Object> sqlParams = new ArrayList<>(Arrays.asList("N"));
+		final String sql = buildClaimSQL(sqlParams);
+
+		Assert.assertTrue(sql, sql.contains(SQL_Candidates + "\n LIMIT 1 FOR UPDATE SKIP LOCKED"));
+		Assert.assertTrue(sql, sql.contains("ON CONFLICT DO NOTHING"));
+		Assert.assertTrue(sql, sql.contains("FROM claimed LEFT OUTER JOIN inserted ON (inserted.Record_ID=claimed.C_Queue_WorkPackage_ID)"));
+
+		Assert.assertEquals(Arrays.asList("N", AD_Table_ID, LockOwner.NONE.getOwnerName(), true, false), sqlParams);
+		Assert.assertEquals("one parameter per placeholder", sqlParams.size(), sql.length() - sql.replace("?", "").length());
+	}
+
+	@Test
+	public void test_claimRecordId_Claimed() throws SQLException
+	{
+		expectClaimedRecordIds(true, 123);
+
+		final List<Object> sqlParams = new ArrayList<>();
+		final String sql = buildClaimSQL(sqlParams);
+		Assert.assertEquals(123, lockDatabase.claimRecordId(sql, sqlParams));
+
+		// @formatter:off
+		new Verifications()
+		{{
+			// the lock shall be committed right away
+			DB.prepareStatement(sql, ITrx.TRXNAME_None); times = 1;
+			DB.setParameters(pstmt, sqlParams); times = 1;
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void test_claimRecordId_NothingAvailable() throws SQLException
+	{
+		expectClaimedRecordIds(false, 0);
+
+		final List<Object> sqlParams = new ArrayList<>();
+		Assert.assertEquals(SqlLockDatabase.CLAIM_NothingAvailable, lockDatabase.claimRecordId(buildClaimSQL(sqlParams), sqlParams));
+
+		// @formatter:off
+		new Verifications()
+		{{
+			pstmt.executeQuery(); times = 1;
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void test_claimRecordId_RetriesIfLockedByOthers() throws SQLException
+	{
+		// the first two candidates are locked by someone else in the meantime
+		expectClaimedRecordIds(true, 0, 0, 123);
+
+		final List<Object> sqlParams = new ArrayList<>();
+		Assert.assertEquals(123, lockDatabase.claimRecordId(buildClaimSQL(sqlParams), sqlParams));
+
+		// @formatter:off
+		new Verifications()
+		{{
+			pstmt.executeQuery(); times = 3;
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void test_claimRecordId_GivesUpAfterMaxRetries() throws SQLException
+	{
+		expectClaimedRecordIds(true, 0);
+
+		final List<Object> sqlParams = new ArrayList<>();
+		Assert.assertEquals(SqlLockDatabase.CLAIM_LockedByOthers, lockDatabase.claimRecordId(buildClaimSQL(sqlParams), sqlParams));
+
+		// @formatter:off
+		new Verifications()
+		{{
+			pstmt.executeQuery(); times = SqlLockDatabase.CLAIM_MaxRetries;
+		}};
+		// @formatter:on
+	}
+}
@@ -0,0 +1,99 @@
+package de.metas.aggregation.api.impl;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.expression.api.ConstantLogicExpression;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.compiere.model.I_C_BPartner;
+import org.compiere.util.DisplayType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.aggregation.api.IAggregationAttribute;
+import de.metas.aggregation.api.IAggregationItem;
+import de.metas.aggregation.api.IAggregationItem.Type;
+import de.metas.aggregation.api.IAggregationKey;
+import de.metas.benchmarks.BenchmarkEnvironment;
+
+/**
+ * Benchmarks building aggregation keys using {@link GenericAggregationKeyBuilder}.
+ * <p>
+ * NOTE: this class is in the same package as {@link GenericAggregationKeyBuilder} because the builder and the aggregation classes are package private.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregationKeyBuilderBenchmark
+{
+	private GenericAggregationKeyBuilder<I_C_BPartner> aggregationKeyBuilder;
+	private I_C_BPartner bpartner;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment.init();
+
+		final int aggregationId = 1;
+		int aggregationItemId = 1;
+		final List<IAggregationItem> aggregationItems = ImmutableList.<IAggregationItem> of(
+				new AggregationItem(aggregationItemId++, Type.ModelColumn, I_C_BPartner.COLUMNNAME_AD_Org_ID, DisplayType.TableDir, IAggregationAttribute.NULL, ConstantLogicExpression.TRUE),
+				new AggregationItem(aggregationItemId++, Type.ModelColumn, I_C_BPartner.COLUMNNAME_C_BP_Group_ID, DisplayType.TableDir, IAggregationAttribute.NULL, ConstantLogicExpression.TRUE),
+				new AggregationItem(aggregationItemId++, Type.ModelColumn, I_C_BPartner.COLUMNNAME_Value, DisplayType.String, IAggregationAttribute.NULL, ConstantLogicExpression.TRUE),
+				new AggregationItem(aggregationItemId++, Type.ModelColumn, I_C_BPartner.COLUMNNAME_IsCustomer, DisplayType.YesNo, IAggregationAttribute.NULL, ConstantLogicExpression.TRUE));
+		final Aggregation aggregation = new Aggregation(I_C_BPartner.Table_Name, aggregationItems, aggregationId);
+
+		aggregationKeyBuilder = new GenericAggregationKeyBuilder<>(I_C_BPartner.class, aggregation);
+
+		bpartner = InterfaceWrapperHelper.newInstance(I_C_BPartner.class, BenchmarkEnvironment.getContextProvider());
+		bpartner.setValue("BP1");
+		bpartner.setName("Business Partner 1");
+		bpartner.setC_BP_Group_ID(3);
+		bpartner.setIsCustomer(true);
+		InterfaceWrapperHelper.save(bpartner);
+	}
+
+	@Benchmark
+	public IAggregationKey buildAggregationKey()
+	{
+		return aggregationKeyBuilder.buildAggregationKey(bpartner);
+	}
+}
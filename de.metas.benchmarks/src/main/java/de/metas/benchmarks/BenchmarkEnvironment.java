@@ -0,0 +1,65 @@
+package de.metas.benchmarks;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Properties;
+
+import org.adempiere.model.IContextAware;
+import org.adempiere.model.PlainContextAware;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.Env;
+
+/**
+ * Sets up the in-memory environment in which our benchmarks are running.
+ * <p>
+ * It's the same environment which is used by unit tests, i.e. {@link AdempiereTestHelper}, so models are stored in <code>POJOLookupMap</code> and no database is needed.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class BenchmarkEnvironment
+{
+	private BenchmarkEnvironment()
+	{
+	}
+
+	/**
+	 * (Re)initializes the environment. To be called from a <code>@Setup(Level.Trial)</code> method.
+	 */
+	public static void init()
+	{
+		final AdempiereTestHelper testHelper = AdempiereTestHelper.get();
+		testHelper.init();
+		testHelper.setupContext_AD_Client_IfNotSet();
+	}
+
+	public static Properties getCtx()
+	{
+		return Env.getCtx();
+	}
+
+	public static IContextAware getContextProvider()
+	{
+		return new PlainContextAware(getCtx());
+	}
+}
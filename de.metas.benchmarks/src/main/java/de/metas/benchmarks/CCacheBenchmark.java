@@ -0,0 +1,131 @@
+package de.metas.benchmarks;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.compiere.util.CCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link CCache#getOrLoad(Object, java.util.concurrent.Callable)}, single threaded and under contention.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CCacheBenchmark
+{
+	@Param({ "1000" })
+	public int keysCount;
+
+	private CCache<Integer, String> cache;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment.init();
+
+		cache = new CCache<>("CCacheBenchmark", keysCount);
+		for (int key = 0; key < keysCount; key++)
+		{
+			final int keyToLoad = key;
+			cache.getOrLoad(key, () -> load(keyToLoad));
+		}
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		cache.reset();
+	}
+
+	private static String load(final int key)
+	{
+		return "value" + key;
+	}
+
+	private int randomKey()
+	{
+		return ThreadLocalRandom.current().nextInt(keysCount);
+	}
+
+	private String getOrLoad()
+	{
+		final int key = randomKey();
+		return cache.getOrLoad(key, () -> load(key));
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String getOrLoad_hit_singleThread()
+	{
+		return getOrLoad();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String getOrLoad_hit_4threads()
+	{
+		return getOrLoad();
+	}
+
+	/**
+	 * Readers which are calling getOrLoad while another thread keeps invalidating random keys, so some of the reads are also loading.
+	 */
+	@Benchmark
+	@Group("readWhileInvalidating")
+	@GroupThreads(3)
+	public String getOrLoad_whileInvalidating()
+	{
+		return getOrLoad();
+	}
+
+	@Benchmark
+	@Group("readWhileInvalidating")
+	@GroupThreads(1)
+	public String invalidate()
+	{
+		return cache.remove(randomKey());
+	}
+}
@@ -0,0 +1,133 @@
+package de.metas.benchmarks;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.expression.api.IExpressionEvaluator.OnVariableNotFound;
+import org.adempiere.ad.expression.api.IExpressionFactory;
+import org.adempiere.ad.expression.api.ILogicExpression;
+import org.adempiere.ad.expression.api.IStringExpression;
+import org.adempiere.ad.expression.api.LogicExpressionResult;
+import org.adempiere.util.Services;
+import org.compiere.util.Env;
+import org.compiere.util.Evaluatee;
+import org.compiere.util.Evaluatees;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks compiling and evaluating logic and string expressions (e.g. display logics, dynamic validation rules).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpressionBenchmark
+{
+	private static final String LOGIC_EXPRESSION = "@IsSOTrx@=Y & @DocStatus@!CO & @DocStatus@!CL | @C_BPartner_ID@>0 & @Processed@=N";
+	private static final String STRING_EXPRESSION = "C_BPartner_ID=@C_BPartner_ID@ AND AD_Org_ID IN (0, @AD_Org_ID@) AND IsSOTrx='@IsSOTrx@'";
+
+	private IExpressionFactory expressionFactory;
+	private ILogicExpression logicExpression;
+	private IStringExpression stringExpression;
+	private Evaluatee mapEvaluatee;
+	private Evaluatee ctxEvaluatee;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment.init();
+
+		expressionFactory = Services.get(IExpressionFactory.class);
+		logicExpression = expressionFactory.compile(LOGIC_EXPRESSION, ILogicExpression.class);
+		stringExpression = expressionFactory.compile(STRING_EXPRESSION, IStringExpression.class);
+
+		mapEvaluatee = Evaluatees.mapBuilder()
+				.put("IsSOTrx", "Y")
+				.put("DocStatus", "DR")
+				.put("C_BPartner_ID", 1234)
+				.put("Processed", "N")
+				.put("AD_Org_ID", 1000000)
+				.build();
+
+		final Properties ctx = BenchmarkEnvironment.getCtx();
+		Env.setContext(ctx, "IsSOTrx", "Y");
+		Env.setContext(ctx, "DocStatus", "DR");
+		Env.setContext(ctx, "C_BPartner_ID", 1234);
+		Env.setContext(ctx, "Processed", "N");
+		Env.setContext(ctx, "AD_Org_ID", 1000000);
+		ctxEvaluatee = Evaluatees.ofCtx(ctx);
+	}
+
+	@Benchmark
+	public ILogicExpression logic_compile()
+	{
+		return expressionFactory.compile(LOGIC_EXPRESSION, ILogicExpression.class);
+	}
+
+	@Benchmark
+	public Boolean logic_evaluate_map()
+	{
+		return logicExpression.evaluate(mapEvaluatee, OnVariableNotFound.ReturnNoResult);
+	}
+
+	/** Same as {@link #logic_evaluate_map()} but without using the memoized results, because the used parameters are collected too */
+	@Benchmark
+	public LogicExpressionResult logic_evaluateToResult_map()
+	{
+		return logicExpression.evaluateToResult(mapEvaluatee, OnVariableNotFound.ReturnNoResult);
+	}
+
+	@Benchmark
+	public Boolean logic_evaluate_ctx()
+	{
+		return logicExpression.evaluate(ctxEvaluatee, OnVariableNotFound.ReturnNoResult);
+	}
+
+	@Benchmark
+	public IStringExpression string_compile()
+	{
+		return expressionFactory.compile(STRING_EXPRESSION, IStringExpression.class);
+	}
+
+	@Benchmark
+	public String string_evaluate_map()
+	{
+		return stringExpression.evaluate(mapEvaluatee, OnVariableNotFound.ReturnNoResult);
+	}
+}
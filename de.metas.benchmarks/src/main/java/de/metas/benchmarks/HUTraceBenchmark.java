@@ -0,0 +1,133 @@
+package de.metas.benchmarks;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.metas.handlingunits.model.X_M_HU;
+import de.metas.handlingunits.trace.HUTraceEvent;
+import de.metas.handlingunits.trace.HUTraceEventQuery;
+import de.metas.handlingunits.trace.HUTraceEventQuery.RecursionMode;
+import de.metas.handlingunits.trace.HUTraceRepository;
+import de.metas.handlingunits.trace.HUTraceType;
+
+/**
+ * Benchmarks recursive {@link HUTraceRepository#query(HUTraceEventQuery)}s over synthetic trace graphs of increasing depth.
+ * <p>
+ * The graph consists of {@code depth} levels with {@link #VHUS_PER_LEVEL} VHUs each; every VHU was created from the VHU with the same index on the previous level.
+ * So a forward query from the first level and a backward query from the last level both have to follow {@code depth} hops.
+ * <p>
+ * Note that since there is no database, this measures the per-hop variant which is used in unit test mode; the <code>WITH RECURSIVE</code> variant needs a real database.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HUTraceBenchmark
+{
+	private static final int VHUS_PER_LEVEL = 5;
+
+	@Param({ "10", "50", "200" })
+	public int depth;
+
+	private HUTraceRepository huTraceRepository;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment.init();
+		huTraceRepository = new HUTraceRepository();
+
+		final Instant eventTime = Instant.now();
+		for (int level = 1; level <= depth; level++)
+		{
+			for (int index = 0; index < VHUS_PER_LEVEL; index++)
+			{
+				final int vhuId = getVhuId(level, index);
+				huTraceRepository.addEvent(HUTraceEvent.builder()
+						.orgId(10)
+						.type(HUTraceType.TRANSFORM_LOAD)
+						.eventTime(eventTime.plusSeconds(vhuId))
+						.vhuStatus(X_M_HU.HUSTATUS_Active)
+						.qty(BigDecimal.TEN)
+						.productId(23)
+						.topLevelHuId(vhuId)
+						.vhuId(vhuId)
+						.vhuSourceId(level > 1 ? getVhuId(level - 1, index) : 0)
+						.build());
+			}
+		}
+	}
+
+	private static int getVhuId(final int level, final int index)
+	{
+		return level * VHUS_PER_LEVEL + index;
+	}
+
+	@Benchmark
+	public List<HUTraceEvent> queryForward()
+	{
+		return huTraceRepository.query(HUTraceEventQuery.builder()
+				.vhuId(getVhuId(1, 0))
+				.recursionMode(RecursionMode.FORWARD)
+				.build());
+	}
+
+	@Benchmark
+	public List<HUTraceEvent> queryBackward()
+	{
+		return huTraceRepository.query(HUTraceEventQuery.builder()
+				.vhuId(getVhuId(depth, 0))
+				.recursionMode(RecursionMode.BACKWARD)
+				.build());
+	}
+
+	@Benchmark
+	public List<HUTraceEvent> queryBoth()
+	{
+		return huTraceRepository.query(HUTraceEventQuery.builder()
+				.vhuId(getVhuId(depth / 2 + 1, 0))
+				.recursionMode(RecursionMode.BOTH)
+				.build());
+	}
+}
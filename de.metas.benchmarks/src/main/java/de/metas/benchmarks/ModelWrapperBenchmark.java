@@ -0,0 +1,134 @@
+package de.metas.benchmarks;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.model.IContextAware;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.compiere.model.I_C_BPartner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks creating, wrapping and accessing models through {@link InterfaceWrapperHelper}.
+ * <p>
+ * Note: <code>PO</code> and <code>POWrapper</code> are not covered because they need <code>AD_Table</code>/<code>AD_Column</code> metadata from a database.
+ * The POJO backend is exercising the same {@link InterfaceWrapperHelper} dispatching.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelWrapperBenchmark
+{
+	private IContextAware contextProvider;
+	private I_C_BPartner bpartner;
+	private de.metas.interfaces.I_C_BPartner bpartnerExtended;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment.init();
+		contextProvider = BenchmarkEnvironment.getContextProvider();
+
+		bpartner = InterfaceWrapperHelper.newInstance(I_C_BPartner.class, contextProvider);
+		bpartner.setValue("BP1");
+		bpartner.setName("Business Partner 1");
+		bpartner.setIsCustomer(true);
+		InterfaceWrapperHelper.save(bpartner);
+
+		bpartnerExtended = InterfaceWrapperHelper.create(bpartner, de.metas.interfaces.I_C_BPartner.class);
+	}
+
+	@Benchmark
+	public I_C_BPartner newInstance()
+	{
+		return InterfaceWrapperHelper.newInstance(I_C_BPartner.class, contextProvider);
+	}
+
+	@Benchmark
+	public de.metas.interfaces.I_C_BPartner create_otherInterface()
+	{
+		return InterfaceWrapperHelper.create(bpartner, de.metas.interfaces.I_C_BPartner.class);
+	}
+
+	@Benchmark
+	public String getter()
+	{
+		return bpartner.getName();
+	}
+
+	@Benchmark
+	public String getter_extendedInterface()
+	{
+		return bpartnerExtended.getName();
+	}
+
+	@Benchmark
+	public boolean getter_boolean()
+	{
+		return bpartner.isCustomer();
+	}
+
+	@Benchmark
+	public Object getValue_byColumnName()
+	{
+		return InterfaceWrapperHelper.getValue(bpartner, I_C_BPartner.COLUMNNAME_Name).orElse(null);
+	}
+
+	@Benchmark
+	public I_C_BPartner setter()
+	{
+		bpartner.setName("Business Partner 1");
+		return bpartner;
+	}
+
+	@Benchmark
+	public I_C_BPartner setValue_byColumnName()
+	{
+		InterfaceWrapperHelper.setValue(bpartner, I_C_BPartner.COLUMNNAME_Name, "Business Partner 1");
+		return bpartner;
+	}
+
+	@Benchmark
+	public I_C_BPartner save()
+	{
+		bpartner.setName("Business Partner 1");
+		InterfaceWrapperHelper.save(bpartner);
+		return bpartner;
+	}
+}
@@ -0,0 +1,146 @@
+package de.metas.benchmarks;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.wrapper.POJOLookupMap;
+import org.adempiere.model.IContextAware;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+
+import de.metas.handlingunits.model.I_M_HU;
+import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
+import de.metas.logging.LogManager;
+
+/**
+ * Benchmarks the typical unit test lookups (children of an HU item, invoice candidates of a bill partner) against {@link POJOLookupMap},
+ * with and without its column indexes.
+ * <p>
+ * Compare the <code>indexed=true</code> and <code>indexed=false</code> results; the index hit/miss statistics are logged on tear down.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class POJOLookupMapBenchmark
+{
+	private static final transient Logger logger = LogManager.getLogger(POJOLookupMapBenchmark.class);
+
+	private static final int HU_CHILDREN_PER_PARENT = 10;
+	private static final int IC_PER_BPARTNER = 20;
+
+	@Param({ "1000", "10000" })
+	public int recordsCount;
+
+	@Param({ "true", "false" })
+	public boolean indexed;
+
+	private IQueryBL queryBL;
+	private Properties ctx;
+	private int parentHUItemIdInTheMiddle;
+	private int billBPartnerIdInTheMiddle;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment.init();
+		POJOLookupMap.get().setIndexesEnabled(indexed);
+		queryBL = Services.get(IQueryBL.class);
+		ctx = BenchmarkEnvironment.getCtx();
+
+		final IContextAware contextProvider = BenchmarkEnvironment.getContextProvider();
+		for (int i = 1; i <= recordsCount; i++)
+		{
+			final I_M_HU hu = InterfaceWrapperHelper.newInstance(I_M_HU.class, contextProvider);
+			hu.setM_HU_Item_Parent_ID(i / HU_CHILDREN_PER_PARENT + 1);
+			InterfaceWrapperHelper.save(hu);
+
+			final I_C_Invoice_Candidate ic = InterfaceWrapperHelper.newInstance(I_C_Invoice_Candidate.class, contextProvider);
+			ic.setBill_BPartner_ID(i / IC_PER_BPARTNER + 1);
+			ic.setM_Product_ID(i % 7 + 1);
+			ic.setProcessed(i % 3 == 0);
+			InterfaceWrapperHelper.save(ic);
+		}
+
+		parentHUItemIdInTheMiddle = recordsCount / 2 / HU_CHILDREN_PER_PARENT + 1;
+		billBPartnerIdInTheMiddle = recordsCount / 2 / IC_PER_BPARTNER + 1;
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		logger.info("indexed={}, recordsCount={}: {}", indexed, recordsCount, POJOLookupMap.get().getIndexStatisticsInfo());
+	}
+
+	@Benchmark
+	public List<I_M_HU> hu_listIncludedHUs()
+	{
+		return queryBL.createQueryBuilder(I_M_HU.class, ctx, ITrx.TRXNAME_None)
+				.addEqualsFilter(I_M_HU.COLUMNNAME_M_HU_Item_Parent_ID, parentHUItemIdInTheMiddle)
+				.addOnlyActiveRecordsFilter()
+				.create()
+				.list(I_M_HU.class);
+	}
+
+	@Benchmark
+	public List<I_C_Invoice_Candidate> ic_listNotProcessedByBillBPartner()
+	{
+		return queryBL.createQueryBuilder(I_C_Invoice_Candidate.class, ctx, ITrx.TRXNAME_None)
+				.addEqualsFilter(I_C_Invoice_Candidate.COLUMNNAME_Bill_BPartner_ID, billBPartnerIdInTheMiddle)
+				.addEqualsFilter(I_C_Invoice_Candidate.COLUMNNAME_Processed, false)
+				.create()
+				.list(I_C_Invoice_Candidate.class);
+	}
+
+	@Benchmark
+	public int ic_countByProducts()
+	{
+		return queryBL.createQueryBuilder(I_C_Invoice_Candidate.class, ctx, ITrx.TRXNAME_None)
+				.addInArrayFilter(I_C_Invoice_Candidate.COLUMNNAME_M_Product_ID, 1, 2)
+				.create()
+				.count();
+	}
+}
@@ -0,0 +1,99 @@
+package de.metas.benchmarks;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.pricing.api.IEditablePricingContext;
+import org.adempiere.pricing.api.IPricingResult;
+import org.adempiere.pricing.api.impl.ASIBuilder;
+import org.adempiere.pricing.api.impl.PricingTestHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks <code>IPricingBL.calculatePrice</code>, i.e. running a pricing context through the pricing rules chain which is set up by {@link PricingTestHelper}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark
+{
+	private PricingTestHelper helper;
+	private IEditablePricingContext pricingCtxWithoutASI;
+	private IEditablePricingContext pricingCtxWithASI;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment.init();
+		helper = new PricingTestHelper();
+
+		helper.newProductPriceBuilder()
+				.setPrice(2)
+				.build();
+		helper.newProductPriceBuilder()
+				.setASI(ASIBuilder.newInstance()
+						.setAttribute(helper.attr_Country, helper.attr_Country_CH)
+						.setAttribute(helper.attr_Label, helper.attr_Label_Bio)
+						.build())
+				.setPrice(3)
+				.build();
+
+		pricingCtxWithoutASI = helper.createPricingContext();
+		pricingCtxWithoutASI.setQty(BigDecimal.ONE);
+
+		pricingCtxWithASI = helper.createPricingContextWithASI(ASIBuilder.newInstance()
+				.setAttribute(helper.attr_Country, helper.attr_Country_CH)
+				.setAttribute(helper.attr_Label, helper.attr_Label_Bio)
+				.build());
+		pricingCtxWithASI.setQty(BigDecimal.ONE);
+	}
+
+	@Benchmark
+	public IPricingResult calculatePrice_withoutASI()
+	{
+		return helper.calculatePrice(pricingCtxWithoutASI.copy());
+	}
+
+	@Benchmark
+	public IPricingResult calculatePrice_withASI()
+	{
+		return helper.calculatePrice(pricingCtxWithASI.copy());
+	}
+}
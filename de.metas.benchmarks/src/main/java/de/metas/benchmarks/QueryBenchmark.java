@@ -0,0 +1,140 @@
+package de.metas.benchmarks;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.dao.ICompositeQueryFilter;
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.model.IContextAware;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.I_C_BPartner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks building query filters (i.e. the SQL where clause which <code>TypedSqlQuery</code> is using)
+ * and running <code>POJOQuery</code>s against <code>POJOLookupMap</code>.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark
+{
+	private static final int BPARTNER_GROUPS_COUNT = 10;
+
+	@Param({ "1000", "10000" })
+	public int recordsCount;
+
+	private IQueryBL queryBL;
+	private Properties ctx;
+	private int bpartnerIdInTheMiddle;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment.init();
+		queryBL = Services.get(IQueryBL.class);
+		ctx = BenchmarkEnvironment.getCtx();
+
+		final IContextAware contextProvider = BenchmarkEnvironment.getContextProvider();
+		for (int i = 1; i <= recordsCount; i++)
+		{
+			final I_C_BPartner bpartner = InterfaceWrapperHelper.newInstance(I_C_BPartner.class, contextProvider);
+			bpartner.setValue("BP" + i);
+			bpartner.setName("Business Partner " + i);
+			bpartner.setC_BP_Group_ID(i % BPARTNER_GROUPS_COUNT + 1);
+			bpartner.setIsCustomer(i % 2 == 0);
+			InterfaceWrapperHelper.save(bpartner);
+
+			if (i == recordsCount / 2)
+			{
+				bpartnerIdInTheMiddle = bpartner.getC_BPartner_ID();
+			}
+		}
+	}
+
+	@Benchmark
+	public void buildSqlWhereClause(final Blackhole blackhole)
+	{
+		final ICompositeQueryFilter<I_C_BPartner> filter = queryBL.createCompositeQueryFilter(I_C_BPartner.class)
+				.addOnlyActiveRecordsFilter()
+				.addEqualsFilter(I_C_BPartner.COLUMNNAME_IsCustomer, true)
+				.addInArrayFilter(I_C_BPartner.COLUMNNAME_C_BP_Group_ID, Arrays.asList(1, 2, 3))
+				.addCompareFilter(I_C_BPartner.COLUMNNAME_Value, Operator.GREATER_OR_EQUAL, "BP5");
+
+		blackhole.consume(filter.getSqlFiltersWhereClause());
+		blackhole.consume(filter.getSqlFiltersParams(ctx));
+	}
+
+	@Benchmark
+	public I_C_BPartner pojoQuery_firstOnlyById()
+	{
+		return queryBL.createQueryBuilder(I_C_BPartner.class, ctx, ITrx.TRXNAME_None)
+				.addEqualsFilter(I_C_BPartner.COLUMNNAME_C_BPartner_ID, bpartnerIdInTheMiddle)
+				.create()
+				.firstOnly(I_C_BPartner.class);
+	}
+
+	@Benchmark
+	public List<I_C_BPartner> pojoQuery_listByGroup()
+	{
+		return queryBL.createQueryBuilder(I_C_BPartner.class, ctx, ITrx.TRXNAME_None)
+				.addOnlyActiveRecordsFilter()
+				.addEqualsFilter(I_C_BPartner.COLUMNNAME_C_BP_Group_ID, 3)
+				.addEqualsFilter(I_C_BPartner.COLUMNNAME_IsCustomer, true)
+				.create()
+				.list(I_C_BPartner.class);
+	}
+
+	@Benchmark
+	public int pojoQuery_count()
+	{
+		return queryBL.createQueryBuilder(I_C_BPartner.class, ctx, ITrx.TRXNAME_None)
+				.addCompareFilter(I_C_BPartner.COLUMNNAME_C_BP_Group_ID, Operator.GREATER, BPARTNER_GROUPS_COUNT / 2)
+				.create()
+				.count();
+	}
+}
@@ -0,0 +1,183 @@
+package de.metas.benchmarks;
+
+/*
+ * #%L
+ * de.metas.benchmarks
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.save;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.util.time.SystemTime;
+import org.compiere.model.I_AD_Org;
+import org.compiere.model.I_C_UOM;
+import org.compiere.model.I_M_Product;
+import org.compiere.model.I_M_Warehouse;
+import org.compiere.util.TimeUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.metas.material.dispo.CandidateRepository;
+import de.metas.material.dispo.CandidateSpecification.Type;
+import de.metas.material.dispo.CandidatesQuery;
+import de.metas.material.dispo.CandidatesQuery.DateOperator;
+import de.metas.material.dispo.candidate.Candidate;
+import de.metas.material.event.MaterialDescriptor;
+
+/**
+ * Benchmarks how many stock events per second we can process, depending on the number of later stock candidates which the delta has to be propagated to.
+ * <p>
+ * Each invocation does what {@code StockCandidateService.addOrUpdateStock(Candidate)} does for one event:
+ * it looks up the preceding stock candidate, adds or updates the event's own stock candidate and then applies the delta to all later stock candidates
+ * via {@link CandidateRepository#applyDeltaToMatchingQuantities(CandidatesQuery, BigDecimal, int)}.
+ * The service itself is not called because it lives in the dispo-service module, which is packaged as a spring-boot application and can't be used as a dependency.
+ * <p>
+ * Note that since there is no database, this measures the in-memory {@code updateDirectly}; the partial index on <code>MD_Candidate</code> needs a real database.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StockCandidateBenchmark
+{
+	@Param({ "10", "100", "1000" })
+	public int laterStockCandidates;
+
+	private CandidateRepository candidateRepository;
+
+	private int orgId;
+	private int clientId;
+	private int productId;
+	private int warehouseId;
+
+	/** The date of the events we benchmark; all pre-existing stock candidates are later than this. */
+	private Date eventDate;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment.init();
+		candidateRepository = new CandidateRepository();
+
+		final I_AD_Org org = newInstance(I_AD_Org.class);
+		save(org);
+		orgId = org.getAD_Org_ID();
+		clientId = org.getAD_Client_ID();
+
+		final I_C_UOM uom = newInstance(I_C_UOM.class);
+		save(uom);
+
+		final I_M_Product product = newInstance(I_M_Product.class);
+		product.setC_UOM(uom);
+		save(product);
+		productId = product.getM_Product_ID();
+
+		final I_M_Warehouse warehouse = newInstance(I_M_Warehouse.class);
+		save(warehouse);
+		warehouseId = warehouse.getM_Warehouse_ID();
+
+		final Date now = SystemTime.asDate();
+		eventDate = TimeUtil.addMinutes(now, -1);
+		for (int i = 0; i < laterStockCandidates; i++)
+		{
+			candidateRepository.addOrUpdateOverwriteStoredSeqNo(createStockCandidate(TimeUtil.addMinutes(now, i), BigDecimal.TEN));
+		}
+	}
+
+	private Candidate createStockCandidate(final Date date, final BigDecimal qty)
+	{
+		final MaterialDescriptor materialDescr = MaterialDescriptor.builder()
+				.productId(productId)
+				.warehouseId(warehouseId)
+				.quantity(qty)
+				.date(date)
+				.build();
+
+		return Candidate.builder()
+				.type(Type.STOCK)
+				.clientId(clientId)
+				.orgId(orgId)
+				.materialDescr(materialDescr)
+				.build();
+	}
+
+	/**
+	 * Processes one stock event with a quantity delta of one, which has to be propagated to all {@link #laterStockCandidates}.
+	 */
+	@Benchmark
+	public Candidate addOrUpdateStock()
+	{
+		final Candidate eventCandidate = createStockCandidate(eventDate, BigDecimal.ONE);
+
+		final Candidate precedingStockOrNull = candidateRepository.retrieveLatestMatchOrNull(eventCandidate.mkSegmentBuilder()
+				.type(Type.STOCK)
+				.dateOperator(DateOperator.UNTIL)
+				.build());
+		final BigDecimal formerQty = precedingStockOrNull != null ? precedingStockOrNull.getQuantity() : BigDecimal.ZERO;
+
+		final Candidate persistedStockCandidate = candidateRepository.addOrUpdatePreserveExistingSeqNo(
+				createStockCandidate(eventDate, formerQty.add(eventCandidate.getQuantity())));
+
+		applyDeltaToLaterStockCandidates(eventCandidate.getQuantity(), persistedStockCandidate.getGroupId());
+		return persistedStockCandidate;
+	}
+
+	/**
+	 * Only the propagation of a delta to all {@link #laterStockCandidates}.
+	 */
+	@Benchmark
+	public int applyDeltaToLaterStockCandidates()
+	{
+		return applyDeltaToLaterStockCandidates(BigDecimal.ONE, 0);
+	}
+
+	private int applyDeltaToLaterStockCandidates(final BigDecimal delta, final int groupId)
+	{
+		final CandidatesQuery segment = CandidatesQuery.builder()
+				.type(Type.STOCK)
+				.materialDescr(MaterialDescriptor.builderForQuery()
+						.date(eventDate)
+						.productId(productId)
+						.warehouseId(warehouseId)
+						.build())
+				.dateOperator(DateOperator.AFTER)
+				.build();
+
+		return candidateRepository.applyDeltaToMatchingQuantities(segment, delta, groupId);
+	}
+}
@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
 import de.metas.logging.LogManager;
@@ -64,6 +65,7 @@ public class ProductPriceQuery
 	private Object _contextProvider;
 	private int _priceListVersionId;
 	private int _productId;
+	private ImmutableSet<Integer> _productIds;
 
 	private Boolean _attributePricing;
 	private I_M_AttributeSetInstance _attributePricing_asiToMatch;
@@ -84,6 +86,7 @@ public class ProductPriceQuery
 				.omitNullValues()
 				.add("priceListVersionId", _priceListVersionId)
 				.add("productId", _productId)
+				.add("productIds", _productIds)
 				//
 				.add("attributePricing", _attributePricing)
 				.add("asiToMatch", _attributePricing_asiToMatch)
@@ -182,8 +185,18 @@ public class ProductPriceQuery
 		final IQueryBuilder<I_M_ProductPrice> queryBuilder = Services.get(IQueryBL.class)
 				.createQueryBuilder(I_M_ProductPrice.class, getContextProvider())
 				.addOnlyActiveRecordsFilter()
-				.addEqualsFilter(I_M_ProductPrice.COLUMNNAME_M_PriceList_Version_ID, getM_PriceList_Version_ID())
-				.addEqualsFilter(I_M_ProductPrice.COLUMNNAME_M_Product_ID, getM_Product_ID());
+				.addEqualsFilter(I_M_ProductPrice.COLUMNNAME_M_PriceList_Version_ID, getM_PriceList_Version_ID());
+
+		//
+		// Product(s)
+		if (_productIds != null)
+		{
+			queryBuilder.addInArrayFilter(I_M_ProductPrice.COLUMNNAME_M_Product_ID, _productIds);
+		}
+		else
+		{
+			queryBuilder.addEqualsFilter(I_M_ProductPrice.COLUMNNAME_M_Product_ID, getM_Product_ID());
+		}
 
 		//
 		// Attribute pricing records
@@ -261,6 +274,20 @@ public class ProductPriceQuery
 	public ProductPriceQuery setM_Product_ID(final int productId)
 	{
 		_productId = productId;
+		_productIds = null;
+		return this;
+	}
+
+	/**
+	 * Matches the product prices of any of the given products, e.g. to load the prices of multiple products in one go.
+	 *
+	 * @param productIds not empty
+	 */
+	public ProductPriceQuery setM_Product_IDs(@NonNull final Collection<Integer> productIds)
+	{
+		Check.assumeNotEmpty(productIds, "productIds is not empty for {}", this);
+		_productId = -1;
+		_productIds = ImmutableSet.copyOf(productIds);
 		return this;
 	}
 
@@ -1,5 +1,6 @@
 package de.metas.pricing;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -16,6 +17,9 @@ import org.compiere.model.I_M_PricingSystem;
 import org.compiere.model.I_M_ProductPrice;
 import org.slf4j.Logger;
 
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multimaps;
+
 import de.metas.adempiere.model.I_M_Product;
 import de.metas.i18n.IMsgBL;
 import de.metas.logging.LogManager;
@@ -121,6 +125,30 @@ public class ProductPrices
 		return getFirstOrThrowExceptionIfMoreThanOne(allMainPrices);
 	}
 
+	/**
+	 * Retrieves the main product prices of all given products in one go.
+	 *
+	 * @return main product prices, indexed by M_Product_ID. Products without main price are missing. Note that for a product there might be more than one main price.
+	 */
+	public static ImmutableListMultimap<Integer, I_M_ProductPrice> retrieveAllMainPricesByProductId(
+			@NonNull final I_M_PriceList_Version plv,
+			@NonNull final Collection<Integer> productIds)
+	{
+		if (productIds.isEmpty())
+		{
+			return ImmutableListMultimap.of();
+		}
+
+		final List<I_M_ProductPrice> allMainPrices = newQuery(plv)
+				.setM_Product_IDs(productIds)
+				.noAttributePricing()
+				//
+				.addMatchersIfAbsent(MATCHERS_MainProductPrice) // IMORTANT: keep it last
+				.toQuery()
+				.list();
+		return Multimaps.index(allMainPrices, I_M_ProductPrice::getM_Product_ID);
+	}
+
 	private static List<I_M_ProductPrice> retrieveAllMainPrices(
 			@NonNull final I_M_PriceList_Version plv,
 			final int productId)
@@ -1,5 +1,6 @@
 package de.metas.pricing.attributebased.impl;
 
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -97,6 +98,25 @@ public class AttributePricing implements IPricingRule
 		setResultForProductPriceAttribute(pricingCtx, result, productPrice);
 	}
 
+	/**
+	 * @return the referenced object's M_AttributeSetInstance_ID and its explicit M_ProductPrice_ID (if any), because that's what this rule is looking at when picking the product price
+	 */
+	@Override
+	@OverridingMethodsMustInvokeSuper
+	public Object getReferencedObjectCacheKey(final IPricingContext pricingCtx)
+	{
+		final IAttributeSetInstanceAware asiAware = getAttributeSetInstanceAware(pricingCtx).orElse(null);
+		if (asiAware == null)
+		{
+			return null; // this rule does not apply
+		}
+
+		final IProductPriceAware productPriceAware = getProductPriceAttributeAware(pricingCtx).orElse(null);
+		final int explicitProductPriceId = productPriceAware != null && productPriceAware.isExplicitProductPriceAttribute() ? productPriceAware.getM_ProductPrice_ID() : -1;
+
+		return Arrays.asList(Math.max(asiAware.getM_AttributeSetInstance_ID(), 0), explicitProductPriceId);
+	}
+
 	/**
 	 * Updates the {@link IPricingResult} using the given <code>productPrice</code>.
 	 * 
@@ -24,6 +24,7 @@ package org.adempiere.pricing.api;
 
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Properties;
 
 import org.adempiere.pricing.spi.IPricingRule;
@@ -64,6 +65,17 @@ public interface IPricingBL extends ISingletonService
 	 */
 	IPricingResult calculatePrice(IPricingContext pricingCtx);
 
+	/**
+	 * Calculate pricing for many contexts at once (e.g. all lines of an order import or all invoice candidates to be updated).
+	 * 
+	 * Compared to calling {@link #calculatePrice(IPricingContext)} for each context, the pricing rules get the chance to prefetch their data for all contexts (see {@link IPricingRule#prefetch(List)})
+	 * and equal contexts are calculated only once.
+	 * 
+	 * @param pricingCtxs
+	 * @return pricing results, in the same order as the given contexts; each result is a separate instance, even if it was calculated for equal contexts
+	 */
+	List<IPricingResult> calculatePrices(List<IPricingContext> pricingCtxs);
+
 	/**
 	 * Creates an initial {@link IPricingResult}. Copies some of the given <code>pricingCtx</code>'s properties to the pricing result.
 	 * 
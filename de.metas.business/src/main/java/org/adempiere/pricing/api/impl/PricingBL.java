@@ -25,8 +25,12 @@ package org.adempiere.pricing.api.impl;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.model.InterfaceWrapperHelper;
@@ -37,6 +41,7 @@ import org.adempiere.pricing.api.IPricingBL;
 import org.adempiere.pricing.api.IPricingContext;
 import org.adempiere.pricing.api.IPricingDAO;
 import org.adempiere.pricing.api.IPricingResult;
+import org.adempiere.pricing.api.impl.PricingResultCache.PricingResultCacheKey;
 import org.adempiere.pricing.exceptions.PriceListVersionNotFoundException;
 import org.adempiere.pricing.model.I_C_PricingRule;
 import org.adempiere.pricing.spi.AggregatedPricingRule;
@@ -44,6 +49,7 @@ import org.adempiere.pricing.spi.IPricingRule;
 import org.adempiere.uom.api.IUOMConversionBL;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
+import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.proxy.Cached;
 import org.compiere.model.I_C_UOM;
 import org.compiere.model.I_M_PriceList;
@@ -54,6 +60,9 @@ import org.compiere.util.Env;
 import org.compiere.util.Util;
 import org.slf4j.Logger;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
 import de.metas.adempiere.model.I_C_InvoiceLine;
 import de.metas.adempiere.util.CacheCtx;
 import de.metas.logging.LogManager;
@@ -65,6 +74,9 @@ public class PricingBL implements IPricingBL
 
 	public static final PricingBL instance = new PricingBL();
 
+	/** One pricing results cache per JVM, shared by all {@link PricingBL} instances */
+	private static final Supplier<PricingResultCache> pricingResultCacheSupplier = Suppliers.memoize(PricingResultCache::new);
+
 	public PricingBL()
 	{
 	}
@@ -103,6 +115,110 @@ public class PricingBL implements IPricingBL
 		final Properties ctx = Env.getCtx();
 
 		final IPricingContext pricingCtxToUse = setupPricingContext(ctx, pricingCtx);
+		final AggregatedPricingRule aggregatedPricingRule = getAggregatedPricingRule(ctx);
+		final PricingResultCacheKey cacheKey = getPricingResultCache().createKeyOrNull(pricingCtxToUse, aggregatedPricingRule);
+
+		return calculatePriceUsingCache(pricingCtxToUse, cacheKey, aggregatedPricingRule);
+	}
+
+	@Override
+	public List<IPricingResult> calculatePrices(final List<IPricingContext> pricingCtxs)
+	{
+		if (pricingCtxs == null || pricingCtxs.isEmpty())
+		{
+			return new ArrayList<>();
+		}
+
+		final Properties ctx = Env.getCtx();
+		final PricingResultCache pricingResultCache = getPricingResultCache();
+		final AggregatedPricingRule aggregatedPricingRule = getAggregatedPricingRule(ctx);
+
+		//
+		// Setup the contexts and collect those which really need to be calculated (i.e. skip the duplicates)
+		final List<IPricingContext> pricingCtxsToUse = new ArrayList<>(pricingCtxs.size());
+		final List<PricingResultCacheKey> cacheKeys = new ArrayList<>(pricingCtxs.size());
+		final List<IPricingContext> pricingCtxsToCalculate = new ArrayList<>(pricingCtxs.size());
+		final Set<PricingResultCacheKey> seenCacheKeys = new HashSet<>();
+		for (final IPricingContext pricingCtx : pricingCtxs)
+		{
+			final IPricingContext pricingCtxToUse = setupPricingContext(ctx, pricingCtx);
+			final PricingResultCacheKey cacheKey = pricingResultCache.createKeyOrNull(pricingCtxToUse, aggregatedPricingRule);
+			pricingCtxsToUse.add(pricingCtxToUse);
+			cacheKeys.add(cacheKey);
+
+			if (cacheKey == null || seenCacheKeys.add(cacheKey))
+			{
+				pricingCtxsToCalculate.add(pricingCtxToUse);
+			}
+		}
+
+		//
+		// Calculate
+		final List<IPricingResult> results = new ArrayList<>(pricingCtxsToUse.size());
+		final Map<PricingResultCacheKey, PricingResult> resultsByCacheKey = new HashMap<>();
+		try (final IAutoCloseable prefetchScope = aggregatedPricingRule.prefetch(pricingCtxsToCalculate))
+		{
+			for (int i = 0; i < pricingCtxsToUse.size(); i++)
+			{
+				final IPricingContext pricingCtxToUse = pricingCtxsToUse.get(i);
+				final PricingResultCacheKey cacheKey = cacheKeys.get(i);
+
+				final PricingResult resultOfEqualContext = cacheKey == null ? null : resultsByCacheKey.get(cacheKey);
+				if (resultOfEqualContext != null)
+				{
+					final PricingResult result = resultOfEqualContext.copy();
+					result.setPriceDate(pricingCtxToUse.getPriceDate());
+					results.add(result);
+					continue;
+				}
+
+				final IPricingResult result = calculatePriceUsingCache(pricingCtxToUse, cacheKey, aggregatedPricingRule);
+				if (cacheKey != null && result instanceof PricingResult)
+				{
+					resultsByCacheKey.put(cacheKey, ((PricingResult)result).copy());
+				}
+				results.add(result);
+			}
+		}
+
+		return results;
+	}
+
+	/* package */static PricingResultCache getPricingResultCache()
+	{
+		return pricingResultCacheSupplier.get();
+	}
+
+	/**
+	 * Gets the result from {@link PricingResultCache} (if enabled and the context is cacheable) or calculates it.
+	 *
+	 * @param pricingCtxToUse pricing context, already set up
+	 * @param cacheKey <code>null</code> if the result shall not be cached
+	 */
+	private IPricingResult calculatePriceUsingCache(final IPricingContext pricingCtxToUse, final PricingResultCacheKey cacheKey, final AggregatedPricingRule aggregatedPricingRule)
+	{
+		final PricingResultCache pricingResultCache = getPricingResultCache();
+		if (cacheKey == null || !pricingResultCache.isEnabled())
+		{
+			return calculatePrice0(pricingCtxToUse, aggregatedPricingRule);
+		}
+
+		final PricingResult cachedResult = pricingResultCache.getCopyOrNull(cacheKey);
+		if (cachedResult != null)
+		{
+			cachedResult.setPriceDate(pricingCtxToUse.getPriceDate());
+			logger.debug("calculatePrice (cached result): {}", cachedResult);
+			return cachedResult;
+		}
+
+		final long cacheVersion = pricingResultCache.getVersion();
+		final IPricingResult result = calculatePrice0(pricingCtxToUse, aggregatedPricingRule);
+		pricingResultCache.putCopy(cacheKey, result, cacheVersion);
+		return result;
+	}
+
+	private IPricingResult calculatePrice0(final IPricingContext pricingCtxToUse, final AggregatedPricingRule aggregatedPricingRule)
+	{
 		final IPricingResult result = createInitialResult(pricingCtxToUse);
 
 		// task 08908 do not change anything if the price is manual
@@ -133,8 +249,6 @@ public class PricingBL implements IPricingBL
 			// return result;
 		}
 
-		final AggregatedPricingRule aggregatedPricingRule = getAggregatedPricingRule(ctx);
-
 		aggregatedPricingRule.calculate(pricingCtxToUse, result);
 
 		//
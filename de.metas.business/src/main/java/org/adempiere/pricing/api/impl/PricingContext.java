@@ -476,6 +476,12 @@ class PricingContext implements IEditablePricingContext
 		properties.put(propertyName, value);
 	}
 
+	/** @return true if any custom property was set; see {@link #setProperty(String, Object)} */
+	/* package */ boolean hasProperties()
+	{
+		return !properties.isEmpty();
+	}
+
 	@Override
 	public Properties getCtx()
 	{
@@ -73,6 +73,37 @@ class PricingResult implements IPricingResult
 
 	private final List<IPricingAttribute> pricingAttributes = new ArrayList<IPricingAttribute>();
 
+	/**
+	 * @return a copy of this result; the lists of applied rules and pricing attributes are copied too, so the copy can be changed independently.
+	 */
+	/* package */ PricingResult copy()
+	{
+		final PricingResult resultNew = new PricingResult();
+		resultNew.M_PricingSystem_ID = M_PricingSystem_ID;
+		resultNew.M_PriceList_ID = M_PriceList_ID;
+		resultNew.C_Currency_ID = C_Currency_ID;
+		resultNew.C_UOM_ID = C_UOM_ID;
+		resultNew.M_Product_ID = M_Product_ID;
+		resultNew.M_Product_Category_ID = M_Product_Category_ID;
+		resultNew.M_PriceList_Version_ID = M_PriceList_Version_ID;
+		resultNew.C_TaxCategory_ID = C_TaxCategory_ID;
+		resultNew.M_DiscountSchema_ID = M_DiscountSchema_ID;
+		resultNew.precision = precision;
+		resultNew.priceList = priceList;
+		resultNew.priceStd = priceStd;
+		resultNew.priceLimit = priceLimit;
+		resultNew.discount = discount;
+		resultNew.enforcePriceLimit = enforcePriceLimit;
+		resultNew.taxIncluded = taxIncluded;
+		resultNew.isUseDiscountSchema = isUseDiscountSchema;
+		resultNew.disallowDiscount = disallowDiscount;
+		resultNew.priceDateTS = priceDateTS == null ? null : new Timestamp(priceDateTS.getTime());
+		resultNew.calculated = calculated;
+		resultNew.rulesApplied.addAll(rulesApplied);
+		resultNew.pricingAttributes.addAll(pricingAttributes);
+		return resultNew;
+	}
+
 	@Override
 	public int getM_PricingSystem_ID()
 	{
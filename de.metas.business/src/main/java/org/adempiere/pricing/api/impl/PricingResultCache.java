@@ -0,0 +1,236 @@
+package org.adempiere.pricing.api.impl;
+
+/*
+ * #%L
+ * de.metas.business
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.model.I_M_ProductScalePrice;
+import org.adempiere.pricing.api.IPricingContext;
+import org.adempiere.pricing.api.IPricingResult;
+import org.adempiere.pricing.model.I_C_PricingRule;
+import org.adempiere.pricing.spi.IPricingRule;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Services;
+import org.compiere.Adempiere;
+import org.compiere.model.I_C_BP_Group;
+import org.compiere.model.I_C_BPartner;
+import org.compiere.model.I_C_UOM_Conversion;
+import org.compiere.model.I_M_AttributeInstance;
+import org.compiere.model.I_M_DiscountSchema;
+import org.compiere.model.I_M_DiscountSchemaBreak;
+import org.compiere.model.I_M_DiscountSchemaLine;
+import org.compiere.model.I_M_PriceList;
+import org.compiere.model.I_M_PriceList_Version;
+import org.compiere.model.I_M_PricingSystem;
+import org.compiere.model.I_M_Product;
+import org.compiere.model.I_M_ProductPrice;
+import org.compiere.util.CCache;
+import org.compiere.util.CacheMgt;
+import org.compiere.util.Env;
+import org.compiere.util.TimeUtil;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.Value;
+
+/**
+ * Caches {@link IPricingResult}s of {@link PricingBL}, keyed by the normalized pricing context.
+ * <p>
+ * Only pricing contexts which are fully described by their IDs, qty, date and by what the pricing rules are looking at in the referenced object (see {@link IPricingRule#getReferencedObjectCacheKey(IPricingContext)})
+ * are cached, i.e. contexts without custom properties and without BOM or table/record reference. That way e.g. order lines are cached by their ASI, but contract priced lines are not.
+ * For all the others, {@link #createKeyOrNull(IPricingContext, IPricingRule)} returns <code>null</code>.
+ * <p>
+ * The cache is reset each time one of the master data tables the standard pricing rules are based on gets changed. Each reset also increments a version, so that a result which was calculated
+ * while the master data changed won't be added to the cache.
+ * <p>
+ * Because the reset happens only when the changing transaction is committed, a lookup which runs in a transaction that already changed some of those master data
+ * is not cached, so it sees its own changes and its results are not shared with other transactions.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class PricingResultCache
+{
+	private static final String SYSCONFIG_Enabled = "de.metas.pricing.PricingResultCache.Enabled";
+	private static final String SYSCONFIG_MaxSize = "de.metas.pricing.PricingResultCache.MaxSize";
+	private static final int DEFAULT_MaxSize = 10000;
+
+	/** Tables on which the pricing results depend */
+	private static final List<String> TABLENAMES_ResetOn = ImmutableList.of(
+			I_M_ProductPrice.Table_Name,
+			I_M_ProductScalePrice.Table_Name,
+			I_M_PriceList.Table_Name,
+			I_M_PriceList_Version.Table_Name,
+			I_M_PricingSystem.Table_Name,
+			I_M_DiscountSchema.Table_Name,
+			I_M_DiscountSchemaLine.Table_Name,
+			I_M_DiscountSchemaBreak.Table_Name,
+			I_C_PricingRule.Table_Name,
+			I_C_BPartner.Table_Name,
+			I_C_BP_Group.Table_Name,
+			I_M_Product.Table_Name,
+			I_C_UOM_Conversion.Table_Name,
+			I_M_AttributeInstance.Table_Name);
+
+	private final CCache<PricingResultCacheKey, PricingResult> cache;
+	private final AtomicLong version = new AtomicLong(0);
+
+	public PricingResultCache()
+	{
+		final int maxSize = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_MaxSize, DEFAULT_MaxSize);
+		cache = CCache.newLRUCache(I_C_PricingRule.Table_Name + "#PricingResult", maxSize, 0);
+
+		final CacheMgt cacheMgt = CacheMgt.get();
+		for (final String tableName : TABLENAMES_ResetOn)
+		{
+			cacheMgt.addCacheResetListener(tableName, (tableNameToReset, key) -> reset());
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PricingResultCache[version=" + version.get() + ", " + cache + "]";
+	}
+
+	public boolean isEnabled()
+	{
+		// NOTE: disabled in unit tests by default, so that tests are calculating their prices from scratch unless they explicitly enable the cache
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_Enabled, !Adempiere.isUnitTestMode());
+	}
+
+	public int reset()
+	{
+		version.incrementAndGet();
+		return cache.reset();
+	}
+
+	public long getVersion()
+	{
+		return version.get();
+	}
+
+	/**
+	 * @param pricingCtx the pricing context, as it was set up by {@link PricingBL}
+	 * @param pricingRule the rule which will calculate the result; it tells which values of the referenced object are relevant
+	 * @return cache key or <code>null</code> if the result for given context shall not be cached
+	 */
+	public PricingResultCacheKey createKeyOrNull(final IPricingContext pricingCtx, final IPricingRule pricingRule)
+	{
+		if (!(pricingCtx instanceof PricingContext))
+		{
+			return null;
+		}
+		if (((PricingContext)pricingCtx).hasProperties()
+				|| Boolean.TRUE.equals(pricingCtx.isManualPrice())
+				|| pricingCtx.getAD_Table_ID() > 0
+				|| pricingCtx.getRecord_ID() > 0
+				|| pricingCtx.getPP_Product_BOM_ID() > 0
+				|| pricingCtx.getPP_Product_BOMLine_ID() > 0)
+		{
+			return null;
+		}
+		if (CacheMgt.get().hasPendingResetOnTrxCommit(pricingCtx.getTrxName(), TABLENAMES_ResetOn))
+		{
+			return null;
+		}
+
+		final Object referencedObjectKey = pricingRule.getReferencedObjectCacheKey(pricingCtx);
+		if (referencedObjectKey == IPricingRule.REFERENCEDOBJECT_CACHEKEY_NotCacheable)
+		{
+			return null;
+		}
+
+		final Properties ctx = pricingCtx.getCtx();
+		final BigDecimal qty = pricingCtx.getQty();
+		return new PricingResultCacheKey(
+				Env.getAD_Client_ID(ctx),
+				Env.getAD_Org_ID(ctx),
+				pricingCtx.getM_Product_ID(),
+				pricingCtx.getM_PricingSystem_ID(),
+				pricingCtx.getM_PriceList_ID(),
+				pricingCtx.getM_PriceList_Version_ID(),
+				TimeUtil.getDay(pricingCtx.getPriceDate()),
+				pricingCtx.getC_UOM_ID(),
+				pricingCtx.getC_Currency_ID(),
+				pricingCtx.getC_BPartner_ID(),
+				pricingCtx.getC_Country_ID(),
+				qty == null ? null : qty.stripTrailingZeros(),
+				pricingCtx.isSOTrx(),
+				pricingCtx.isDisallowDiscount(),
+				pricingCtx.isConvertPriceToContextUOM(),
+				referencedObjectKey);
+	}
+
+	/**
+	 * @return a copy of the cached result or <code>null</code>
+	 */
+	public PricingResult getCopyOrNull(final PricingResultCacheKey key)
+	{
+		final PricingResult result = cache.get(key);
+		return result == null ? null : result.copy();
+	}
+
+	/**
+	 * Adds a copy of given result to the cache, unless the cache was reset since <code>versionAtCalculationStart</code>.
+	 */
+	public void putCopy(final PricingResultCacheKey key, final IPricingResult result, final long versionAtCalculationStart)
+	{
+		if (!(result instanceof PricingResult))
+		{
+			return;
+		}
+		if (version.get() != versionAtCalculationStart)
+		{
+			return;
+		}
+
+		cache.put(key, ((PricingResult)result).copy());
+	}
+
+	@Value
+	/* package */static final class PricingResultCacheKey
+	{
+		private final int adClientId;
+		private final int adOrgId;
+		private final int productId;
+		private final int pricingSystemId;
+		private final int priceListId;
+		private final int priceListVersionId;
+		private final Timestamp priceDay;
+		private final int uomId;
+		private final int currencyId;
+		private final int bpartnerId;
+		private final int countryId;
+		private final BigDecimal qty;
+		private final boolean soTrx;
+		private final boolean disallowDiscount;
+		private final boolean convertPriceToContextUOM;
+		/** key of the referenced object's values which the pricing rules are looking at; <code>null</code> if none */
+		private final Object referencedObjectKey;
+	}
+}
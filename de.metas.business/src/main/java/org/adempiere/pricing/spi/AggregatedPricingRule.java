@@ -30,6 +30,8 @@ import java.util.List;
 
 import org.adempiere.pricing.api.IPricingContext;
 import org.adempiere.pricing.api.IPricingResult;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.adempiere.util.lang.NullAutoCloseable;
 import org.slf4j.Logger;
 
 import de.metas.logging.LogManager;
@@ -141,6 +143,61 @@ public final class AggregatedPricingRule implements IPricingRule
 		}
 	}
 
+	/**
+	 * Lets each child {@link IPricingRule} prefetch the data for given contexts.
+	 * 
+	 * @return scope which closes the prefetch scopes of all child rules (in reverse order)
+	 */
+	@Override
+	public IAutoCloseable prefetch(final List<IPricingContext> pricingCtxs)
+	{
+		if (pricingCtxs == null || pricingCtxs.isEmpty())
+		{
+			return NullAutoCloseable.instance;
+		}
+
+		final List<IAutoCloseable> prefetchScopes = new ArrayList<>(rules.size());
+		for (final IPricingRule rule : rules)
+		{
+			prefetchScopes.add(0, rule.prefetch(pricingCtxs));
+		}
+
+		return () -> prefetchScopes.forEach(IAutoCloseable::close);
+	}
+
+	/**
+	 * @return
+	 *         <ul>
+	 *         <li><code>null</code> if none of the child {@link IPricingRule}s is looking at the referenced object
+	 *         <li>{@link #REFERENCEDOBJECT_CACHEKEY_NotCacheable} if any child rule returned it
+	 *         <li>otherwise the list of the child rules' keys
+	 *         </ul>
+	 */
+	@Override
+	public Object getReferencedObjectCacheKey(final IPricingContext pricingCtx)
+	{
+		if (pricingCtx.getReferencedObject() == null)
+		{
+			return null;
+		}
+
+		final List<Object> keys = new ArrayList<>(rules.size());
+		boolean allKeysNull = true;
+		for (final IPricingRule rule : rules)
+		{
+			final Object key = rule.getReferencedObjectCacheKey(pricingCtx);
+			if (key == REFERENCEDOBJECT_CACHEKEY_NotCacheable)
+			{
+				return REFERENCEDOBJECT_CACHEKEY_NotCacheable;
+			}
+
+			keys.add(key);
+			allKeysNull = allKeysNull && key == null;
+		}
+
+		return allKeysNull ? null : keys;
+	}
+
 	@Override
 	public String toString()
 	{
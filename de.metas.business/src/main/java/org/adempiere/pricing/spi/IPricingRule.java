@@ -1,8 +1,12 @@
 package org.adempiere.pricing.spi;
 
+import java.util.List;
+
 import org.adempiere.pricing.api.IPricingContext;
 import org.adempiere.pricing.api.IPricingResult;
 import org.adempiere.pricing.model.I_C_PricingRule;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.adempiere.util.lang.NullAutoCloseable;
 
 /**
  * Pluggable Pricing Rule interface.<br>
@@ -14,6 +18,18 @@ import org.adempiere.pricing.model.I_C_PricingRule;
  */
 public interface IPricingRule
 {
+	/**
+	 * Returned by {@link #getReferencedObjectCacheKey(IPricingContext)} if the pricing result of the given context shall not be cached.
+	 */
+	Object REFERENCEDOBJECT_CACHEKEY_NotCacheable = new Object()
+	{
+		@Override
+		public String toString()
+		{
+			return "NotCacheable";
+		}
+	};
+
 	/**
 	 * 
 	 * @param pricingCtx
@@ -29,4 +45,37 @@ public interface IPricingRule
 	 * @param result
 	 */
 	void calculate(IPricingContext pricingCtx, IPricingResult result);
+
+	/**
+	 * Called by {@link org.adempiere.pricing.api.IPricingBL#calculatePrices(List)} before the given contexts are calculated one by one.
+	 * Rules can use it to load the data they need for all contexts at once, instead of doing one lookup per context.
+	 * 
+	 * The default implementation does nothing.
+	 * 
+	 * @param pricingCtxs pricing contexts which are about to be calculated
+	 * @return scope of the prefetched data; it's closed by the caller right after the given contexts were calculated
+	 */
+	default IAutoCloseable prefetch(final List<IPricingContext> pricingCtxs)
+	{
+		return NullAutoCloseable.instance;
+	}
+
+	/**
+	 * Tells the pricing result cache which values of the given context's referenced object this rule is looking at.
+	 * Two contexts which are equal in all other regards and for which all rules return equal keys shall have the same pricing result.
+	 * 
+	 * The default implementation does not know what this rule is looking at, so it returns {@link #REFERENCEDOBJECT_CACHEKEY_NotCacheable} if there is a referenced object.
+	 * 
+	 * @param pricingCtx
+	 * @return
+	 *         <ul>
+	 *         <li><code>null</code> if this rule does not look at the referenced object of the given context
+	 *         <li>{@link #REFERENCEDOBJECT_CACHEKEY_NotCacheable} if the result shall not be cached
+	 *         <li>otherwise the values (with proper <code>equals</code> and <code>hashCode</code>) this rule is looking at
+	 *         </ul>
+	 */
+	default Object getReferencedObjectCacheKey(final IPricingContext pricingCtx)
+	{
+		return pricingCtx.getReferencedObject() == null ? null : REFERENCEDOBJECT_CACHEKEY_NotCacheable;
+	}
 }
@@ -72,4 +72,13 @@ public abstract class AbstractPriceListBasedRule implements IPricingRule
 
 		return true;
 	}
+
+	/**
+	 * @return <code>null</code> because price list based rules are looking only at the pricing context's IDs, qty and date
+	 */
+	@Override
+	public Object getReferencedObjectCacheKey(final IPricingContext pricingCtx)
+	{
+		return null;
+	}
 }
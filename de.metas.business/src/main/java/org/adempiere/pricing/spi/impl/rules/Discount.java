@@ -171,4 +171,27 @@ public class Discount implements IPricingRule
 		result.setDiscount(m_discount);
 		// metas us1064 end
 	}
+
+	/**
+	 * @return the referenced object's M_AttributeSetInstance_ID, because the discount depends on its attribute values (08660)
+	 */
+	@Override
+	public Object getReferencedObjectCacheKey(final IPricingContext pricingCtx)
+	{
+		final Object referencedObject = pricingCtx.getReferencedObject();
+		if (referencedObject == null)
+		{
+			return null;
+		}
+
+		final IAttributeSetInstanceAware asiAware = Services
+				.get(IAttributeSetInstanceAwareFactoryService.class)
+				.createOrNull(referencedObject);
+		if (asiAware == null)
+		{
+			return null;
+		}
+
+		return Math.max(asiAware.getM_AttributeSetInstance_ID(), 0);
+	}
 }
@@ -1,12 +1,23 @@
 package org.adempiere.pricing.spi.impl.rules;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.adempiere.pricing.api.IPricingContext;
 import org.adempiere.pricing.api.IPricingResult;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.adempiere.util.lang.NullAutoCloseable;
 import org.compiere.model.I_M_PriceList;
 import org.compiere.model.I_M_PriceList_Version;
 import org.compiere.model.I_M_Product;
 import org.compiere.model.I_M_ProductPrice;
 
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+
 import de.metas.pricing.ProductPrices;
 
 /**
@@ -17,6 +28,9 @@ import de.metas.pricing.ProductPrices;
  */
 public class PriceListVersion extends AbstractPriceListBasedRule
 {
+	/** Main product prices which were loaded by {@link #prefetch(List)}, while the prefetched contexts are calculated */
+	private final ThreadLocal<PrefetchedMainProductPrices> prefetchedMainProductPrices = new ThreadLocal<>();
+
 	@Override
 	public boolean applies(final IPricingContext pricingCtx, final IPricingResult result)
 	{
@@ -53,7 +67,7 @@ public class PriceListVersion extends AbstractPriceListBasedRule
 		// we get rid of the hardcoded SQL. For the time beeing it's still here (commented), so we can see how it used to be.
 		// !!IMPORTANT!! with this change of implementation, we loose the bomPriceList calculation.
 		// Should bomPricing be needed in future, please consider adding a dedicated pricing rule
-		final I_M_ProductPrice productPrice = ProductPrices.retrieveMainProductPriceOrNull(plv, productId);
+		final I_M_ProductPrice productPrice = retrieveMainProductPriceOrNull(plv, productId);
 
 		//
 		//
@@ -87,4 +101,84 @@ public class PriceListVersion extends AbstractPriceListBasedRule
 			result.setPrice_UOM_ID(productPrice.getC_UOM_ID());
 		}
 	}
+
+	private I_M_ProductPrice retrieveMainProductPriceOrNull(final I_M_PriceList_Version plv, final int productId)
+	{
+		final PrefetchedMainProductPrices prefetched = prefetchedMainProductPrices.get();
+		final List<I_M_ProductPrice> mainPrices = prefetched == null ? null : prefetched.getOrNull(plv.getM_PriceList_Version_ID(), productId);
+
+		// NOTE: in case of duplicate main prices we are falling back to ProductPrices, which knows how to deal with them
+		if (mainPrices != null && mainPrices.size() <= 1)
+		{
+			return mainPrices.isEmpty() ? null : mainPrices.get(0);
+		}
+
+		return ProductPrices.retrieveMainProductPriceOrNull(plv, productId);
+	}
+
+	/**
+	 * Loads the main product prices of the given contexts with one query per price list version.
+	 */
+	@Override
+	public IAutoCloseable prefetch(final List<IPricingContext> pricingCtxs)
+	{
+		final Map<Integer, I_M_PriceList_Version> plvsById = new HashMap<>();
+		final SetMultimap<Integer, Integer> productIdsByPLVId = LinkedHashMultimap.create();
+		for (final IPricingContext pricingCtx : pricingCtxs)
+		{
+			final int productId = pricingCtx.getM_Product_ID();
+			if (productId <= 0 || pricingCtx.getM_PriceList_Version_ID() <= 0)
+			{
+				continue;
+			}
+
+			final I_M_PriceList_Version plv = pricingCtx.getM_PriceList_Version();
+			if (plv == null || !plv.isActive())
+			{
+				continue;
+			}
+
+			plvsById.putIfAbsent(plv.getM_PriceList_Version_ID(), plv);
+			productIdsByPLVId.put(plv.getM_PriceList_Version_ID(), productId);
+		}
+
+		if (productIdsByPLVId.isEmpty())
+		{
+			return NullAutoCloseable.instance;
+		}
+
+		final PrefetchedMainProductPrices prefetched = new PrefetchedMainProductPrices();
+		for (final Map.Entry<Integer, I_M_PriceList_Version> plvIdAndPLV : plvsById.entrySet())
+		{
+			final int plvId = plvIdAndPLV.getKey();
+			final Set<Integer> productIds = productIdsByPLVId.get(plvId);
+			prefetched.put(plvId, productIds, ProductPrices.retrieveAllMainPricesByProductId(plvIdAndPLV.getValue(), productIds));
+		}
+
+		final PrefetchedMainProductPrices previousPrefetched = prefetchedMainProductPrices.get();
+		prefetchedMainProductPrices.set(prefetched);
+		return () -> prefetchedMainProductPrices.set(previousPrefetched);
+	}
+
+	private static final class PrefetchedMainProductPrices
+	{
+		private final SetMultimap<Integer, Integer> productIdsByPLVId = LinkedHashMultimap.create();
+		private final Map<Integer, ImmutableListMultimap<Integer, I_M_ProductPrice>> mainPricesByPLVId = new HashMap<>();
+
+		public void put(final int plvId, final Set<Integer> productIds, final ImmutableListMultimap<Integer, I_M_ProductPrice> mainPricesByProductId)
+		{
+			productIdsByPLVId.putAll(plvId, productIds);
+			mainPricesByPLVId.put(plvId, mainPricesByProductId);
+		}
+
+		/** @return prefetched main prices or <code>null</code> if the given product was not prefetched for the given price list version */
+		public List<I_M_ProductPrice> getOrNull(final int plvId, final int productId)
+		{
+			if (!productIdsByPLVId.containsEntry(plvId, productId))
+			{
+				return null;
+			}
+			return mainPricesByPLVId.get(plvId).get(productId);
+		}
+	}
 }
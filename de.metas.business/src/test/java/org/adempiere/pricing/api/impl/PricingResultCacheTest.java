@@ -0,0 +1,271 @@
+package org.adempiere.pricing.api.impl;
+
+/*
+ * #%L
+ * de.metas.business
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.pricing.api.IEditablePricingContext;
+import org.adempiere.pricing.api.IPricingBL;
+import org.adempiere.pricing.api.IPricingContext;
+import org.adempiere.pricing.api.IPricingResult;
+import org.adempiere.pricing.api.impl.PricingResultCache.PricingResultCacheKey;
+import org.adempiere.pricing.spi.IPricingRule;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.test.AdempiereTestWatcher;
+import org.adempiere.util.Services;
+import org.compiere.model.I_C_BP_Group;
+import org.compiere.model.I_C_Order;
+import org.compiere.model.I_M_AttributeSetInstance;
+import org.compiere.model.I_M_ProductPrice;
+import org.compiere.util.CacheMgt;
+import org.compiere.util.Env;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.metas.adempiere.model.I_M_Product;
+
+/**
+ * Tests the {@link PricingResultCache} integration of {@link PricingBL}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class PricingResultCacheTest
+{
+	@Rule
+	public AdempiereTestWatcher testWatcher = new AdempiereTestWatcher();
+
+	private PricingTestHelper helper;
+	private IPricingBL pricingBL;
+	private I_M_ProductPrice productPrice;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		Services.get(ISysConfigBL.class).setValue("de.metas.pricing.PricingResultCache.Enabled", true, 0);
+		PricingBL.getPricingResultCache().reset();
+
+		helper = new PricingTestHelper();
+		pricingBL = Services.get(IPricingBL.class);
+		productPrice = helper.newProductPriceBuilder()
+				.setPrice(2)
+				.build();
+	}
+
+	private IEditablePricingContext createPricingContext(final int qty)
+	{
+		final IEditablePricingContext pricingCtx = helper.createPricingContext();
+		pricingCtx.setQty(BigDecimal.valueOf(qty));
+		return pricingCtx;
+	}
+
+	private IEditablePricingContext createPricingContextWithASI(final I_M_AttributeSetInstance asi)
+	{
+		final IEditablePricingContext pricingCtx = helper.createPricingContextWithASI(asi);
+		pricingCtx.setQty(BigDecimal.valueOf(10));
+		return pricingCtx;
+	}
+
+	private static void assertPriceStd(final int expectedPriceStd, final IPricingResult result)
+	{
+		Assert.assertThat("PriceStd\n" + result, result.getPriceStd(), Matchers.comparesEqualTo(BigDecimal.valueOf(expectedPriceStd)));
+	}
+
+	@Test
+	public void test_ResultIsCached_And_ResetWhenProductPriceChanges()
+	{
+		final IPricingResult result1 = pricingBL.calculatePrice(createPricingContext(10));
+		assertPriceStd(2, result1);
+
+		// the returned result is a copy, so changing it does not change the cached result
+		result1.setPriceStd(BigDecimal.valueOf(99));
+		assertPriceStd(2, pricingBL.calculatePrice(createPricingContext(10)));
+
+		// saving the product price resets the cache
+		productPrice.setPriceStd(BigDecimal.valueOf(5));
+		InterfaceWrapperHelper.save(productPrice);
+		assertPriceStd(5, pricingBL.calculatePrice(createPricingContext(10)));
+	}
+
+	private PricingResultCacheKey createKeyOrNull(final IPricingContext pricingCtx)
+	{
+		final IPricingRule aggregatedPricingRule = pricingBL.getAggregatedPricingRule(Env.getCtx());
+		return PricingBL.getPricingResultCache().createKeyOrNull(pricingCtx, aggregatedPricingRule);
+	}
+
+	@Test
+	public void test_ContextWithASIAwareReference_IsCachedByASI()
+	{
+		final PricingResultCacheKey keyWithoutReference = createKeyOrNull(createPricingContext(10));
+		Assert.assertNotNull(keyWithoutReference);
+
+		final PricingResultCacheKey keyWithoutASI = createKeyOrNull(createPricingContextWithASI(null));
+		Assert.assertNotNull(keyWithoutASI);
+		Assert.assertNotEquals(keyWithoutReference, keyWithoutASI);
+
+		final I_M_AttributeSetInstance asi = ASIBuilder.newInstance()
+				.setAttribute(helper.attr_Country, helper.attr_Country_CH)
+				.build();
+		final PricingResultCacheKey keyWithASI = createKeyOrNull(createPricingContextWithASI(asi));
+		Assert.assertNotNull(keyWithASI);
+		Assert.assertNotEquals(keyWithoutASI, keyWithASI);
+
+		// another referenced object with the same ASI
+		Assert.assertEquals(keyWithASI, createKeyOrNull(createPricingContextWithASI(asi)));
+	}
+
+	@Test
+	public void test_ContextWithReferencedObject_IsNotCached_IfARuleDoesNotTellWhatItIsLookingAt()
+	{
+		final PricingResultCache cache = PricingBL.getPricingResultCache();
+		final IPricingRule pricingRule = new IPricingRule()
+		{
+			@Override
+			public boolean applies(final IPricingContext pricingCtx, final IPricingResult result)
+			{
+				return false;
+			}
+
+			@Override
+			public void calculate(final IPricingContext pricingCtx, final IPricingResult result)
+			{
+			}
+		};
+
+		Assert.assertNotNull(cache.createKeyOrNull(createPricingContext(10), pricingRule));
+		Assert.assertNull(cache.createKeyOrNull(createPricingContextWithASI(null), pricingRule));
+	}
+
+	@Test
+	public void test_ContextWithProperties_IsNotCached()
+	{
+		final IEditablePricingContext pricingCtxWithProperty = createPricingContext(10);
+		pricingCtxWithProperty.setProperty("SomeProperty", "SomeValue");
+		Assert.assertNull(createKeyOrNull(pricingCtxWithProperty));
+	}
+
+	@Test
+	public void test_SameQtyWithDifferentScale_SameKey()
+	{
+		final IEditablePricingContext pricingCtx1 = createPricingContext(10);
+		final IEditablePricingContext pricingCtx2 = createPricingContext(10);
+		pricingCtx2.setQty(new BigDecimal("10.000"));
+
+		Assert.assertEquals(createKeyOrNull(pricingCtx1), createKeyOrNull(pricingCtx2));
+	}
+
+	@Test
+	public void test_ContextInTrxWithPendingPricingChanges_IsNotCached()
+	{
+		Services.get(ITrxManager.class).run(localTrxName -> {
+			final IEditablePricingContext pricingCtx = createPricingContext(10);
+			pricingCtx.setTrxName(ITrx.TRXNAME_ThreadInherited);
+
+			// nothing changed in this transaction yet
+			Assert.assertNotNull(createKeyOrNull(pricingCtx));
+
+			// a change of some other table does not matter
+			CacheMgt.get().resetOnTrxCommit(localTrxName, I_C_Order.Table_Name, 1);
+			Assert.assertNotNull(createKeyOrNull(pricingCtx));
+
+			// this transaction changed a product price which was not committed yet
+			CacheMgt.get().resetOnTrxCommit(localTrxName, I_M_ProductPrice.Table_Name, productPrice.getM_ProductPrice_ID());
+			Assert.assertNull(createKeyOrNull(pricingCtx));
+
+			// ...but it does not affect lookups out of transaction
+			pricingCtx.setTrxName(ITrx.TRXNAME_None);
+			Assert.assertNotNull(createKeyOrNull(pricingCtx));
+		});
+
+		// after commit, the pending changes are gone
+		final IEditablePricingContext pricingCtx = createPricingContext(10);
+		pricingCtx.setTrxName(ITrx.TRXNAME_ThreadInherited);
+		Assert.assertNotNull(createKeyOrNull(pricingCtx));
+	}
+
+	@Test
+	public void test_ResetWhenBPGroupChanges()
+	{
+		final PricingResultCache cache = PricingBL.getPricingResultCache();
+		final long versionBefore = cache.getVersion();
+
+		CacheMgt.get().resetLocal(I_C_BP_Group.Table_Name);
+
+		Assert.assertNotEquals(versionBefore, cache.getVersion());
+	}
+
+	@Test
+	public void test_calculatePrices()
+	{
+		final List<IPricingContext> pricingCtxs = Arrays.asList(
+				createPricingContext(10),
+				createPricingContext(20),
+				createPricingContext(10));
+
+		final List<IPricingResult> results = pricingBL.calculatePrices(pricingCtxs);
+
+		Assert.assertEquals(3, results.size());
+		for (final IPricingResult result : results)
+		{
+			Assert.assertTrue("calculated: " + result, result.isCalculated());
+			assertPriceStd(2, result);
+		}
+
+		// results of equal contexts are separate instances
+		Assert.assertNotSame(results.get(0), results.get(2));
+		results.get(0).getRulesApplied().clear();
+		Assert.assertFalse(results.get(2).getRulesApplied().isEmpty());
+	}
+
+	@Test
+	public void test_calculatePrices_MultipleProducts()
+	{
+		final I_M_Product product2 = helper.createProduct("Product2");
+		new ProductPriceBuilder(helper.defaultPriceListVerion, product2)
+				.setPrice(7)
+				.build();
+
+		final IEditablePricingContext pricingCtx2 = createPricingContext(10);
+		pricingCtx2.setM_Product_ID(product2.getM_Product_ID());
+
+		final List<IPricingResult> results = pricingBL.calculatePrices(Arrays.asList(
+				createPricingContext(10),
+				pricingCtx2,
+				createPricingContext(20)));
+
+		Assert.assertEquals(3, results.size());
+		assertPriceStd(2, results.get(0));
+		assertPriceStd(7, results.get(1));
+		assertPriceStd(2, results.get(2));
+	}
+}
@@ -85,4 +85,14 @@ public class ContractDiscount implements IPricingRule
 	{
 		result.setDiscount(Env.ONEHUNDRED);
 	}
+
+	/**
+	 * @return {@link #REFERENCEDOBJECT_CACHEKEY_NotCacheable} if there are flatrate conditions which might be free of charge
+	 */
+	@Override
+	public Object getReferencedObjectCacheKey(final IPricingContext pricingCtx)
+	{
+		final I_C_Flatrate_Conditions conditions = ContractPricingUtil.getC_Flatrate_Conditions(pricingCtx.getReferencedObject());
+		return conditions == null ? null : REFERENCEDOBJECT_CACHEKEY_NotCacheable;
+	}
 }
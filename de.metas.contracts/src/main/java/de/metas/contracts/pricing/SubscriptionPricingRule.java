@@ -81,6 +81,16 @@ public class SubscriptionPricingRule implements IPricingRule
 		copyDiscountIntoResultIfAllowedByPricingContext(subscriptionPricingResult, result, pricingCtx);
 	}
 
+	/**
+	 * @return {@link #REFERENCEDOBJECT_CACHEKEY_NotCacheable} if the referenced object has {@link I_C_Flatrate_Conditions}, because this rule's result depends on them
+	 */
+	@Override
+	public Object getReferencedObjectCacheKey(final IPricingContext pricingCtx)
+	{
+		final I_C_Flatrate_Conditions conditions = ContractPricingUtil.getC_Flatrate_Conditions(pricingCtx.getReferencedObject());
+		return conditions == null ? null : REFERENCEDOBJECT_CACHEKEY_NotCacheable;
+	}
+
 	private static I_M_PriceList retrievePriceListForConditionsAndCountry(
 			final int countryId, 
 			@NonNull final I_C_Flatrate_Conditions conditions)
@@ -12,6 +12,7 @@ import java.util.Set;
 
 import org.adempiere.model.IContextAware;
 import org.adempiere.util.lang.ITableRecordReference;
+import org.adempiere.util.lang.impl.TableRecordReference;
 
 import com.google.common.collect.ImmutableMap;
 
@@ -58,13 +59,17 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 	private final ArrayList<WorkQueue> queueItemsToDelete;
 
 	/**
-	 * Using a map because when querying "backward" references from a partitular table, we want to exclude IDs we already have.
+	 * The IDs of the records we already have, per table name.
+	 * Using primitive sets, because a partition can have millions of records.
 	 */
-	private final Map<String, Set<ITableRecordReference>> tableName2Record = new HashMap<>();
+	private final Map<String, RecordIdSet> tableName2RecordIds = new HashMap<>();
 
 	/**
 	 * Using this map, because after the iterate method, we need to know which different DLM_Partition_IDs we have.
 	 * With 100.000 ITableRecordReferences, we then don't want to load all their IDLMAwares once again, just to get the DLM_Partition_ID.
+	 * <p>
+	 * Note: records without a partition (i.e. the vast majority) are not stored in here, only the key <code>0</code> is registered for them.
+	 * They are already contained in {@link #tableName2RecordIds}.
 	 */
 	private final Map<Integer, Set<ITableRecordReference>> dlmPartitionId2Record = new HashMap<>();
 
@@ -111,14 +116,16 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 			final int dlmPartitionId,
 			final boolean neverAddToqueue)
 	{
-		dlmPartitionId2Record
-				.computeIfAbsent(dlmPartitionId, k -> new HashSet<>())
-				.add(tableRecordReference);
+		final Set<ITableRecordReference> recordsOfPartition = dlmPartitionId2Record.computeIfAbsent(dlmPartitionId > 0 ? dlmPartitionId : 0, k -> new HashSet<>());
+		if (dlmPartitionId > 0)
+		{
+			recordsOfPartition.add(tableRecordReference);
+		}
 
 		final String tableName = mkKey(tableRecordReference);
-		final boolean added = tableName2Record
-				.computeIfAbsent(tableName, k -> new HashSet<>())
-				.add(tableRecordReference);
+		final boolean added = tableName2RecordIds
+				.computeIfAbsent(tableName, k -> new RecordIdSet())
+				.add(tableRecordReference.getRecord_ID());
 
 		final AddResult preliminaryResult;
 		if (added)
@@ -143,7 +150,7 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 	public void clearAfterPartitionStored(final Partition partition)
 	{
 		dlmPartitionId2Record.clear();
-		tableName2Record.clear();
+		tableName2RecordIds.clear();
 		queueItemsToDelete.clear();
 
 		size = 0;
@@ -153,12 +160,12 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 	@Override
 	public boolean contains(final ITableRecordReference tableRecordReference)
 	{
-		final Set<ITableRecordReference> records = tableName2Record.get(mkKey(tableRecordReference));
-		if (records == null)
+		final RecordIdSet recordIds = tableName2RecordIds.get(mkKey(tableRecordReference));
+		if (recordIds == null)
 		{
 			return false;
 		}
-		return records.contains(tableRecordReference);
+		return recordIds.contains(tableRecordReference.getRecord_ID());
 	}
 
 	private String mkKey(final ITableRecordReference tableRecordReference)
@@ -176,9 +183,13 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 	public Map<String, Collection<ITableRecordReference>> getTableName2Record()
 	{
 		final Map<String, Collection<ITableRecordReference>> result = new HashMap<>();
-		tableName2Record.entrySet().forEach(e -> {
-			result.put(e.getKey(), e.getValue());
+		tableName2RecordIds.entrySet().forEach(e -> {
+			final String tableName = e.getKey();
+			final RecordIdSet recordIds = e.getValue();
 
+			final List<ITableRecordReference> records = new ArrayList<>(recordIds.size());
+			recordIds.forEach(recordId -> records.add(new TableRecordReference(tableName, recordId)));
+			result.put(tableName, records);
 		});
 		return result;
 	}
@@ -269,7 +280,7 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 		return "IterateResult [queueItemsToProcess.size()=" + queueItemsToProcess.size()
 				+ ", queueItemsToDelete.size()=" + queueItemsToDelete.size()
 				+ ", size=" + size
-				+ ", tableName2Record.size()=" + tableName2Record.size()
+				+ ", tableName2RecordIds.size()=" + tableName2RecordIds.size()
 				+ ", dlmPartitionId2Record.size()=" + dlmPartitionId2Record.size()
 				+ ", iterator=" + iterator
 				+ ", ctxAware=" + ctxAware
@@ -37,6 +37,10 @@ import de.metas.dlm.partitioner.IRecordCrawlerService;
 
 public interface IStorableIterateResult extends IIterateResult
 {
+	/**
+	 * @return the <code>DLM_Partition_ID</code>s of the records this instance currently has in-memory. Records without a partition are registered under the key <code>0</code>,
+	 *         but implementations might choose not to include those records themselves in the map's values.
+	 */
 	Map<Integer, Set<ITableRecordReference>> getDlmPartitionId2Record();
 
 	Map<String, Collection<ITableRecordReference>> getTableName2Record();
@@ -1,11 +1,16 @@
 package de.metas.dlm.partitioner.impl;
 
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
@@ -14,6 +19,7 @@ import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.model.IContextAware;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.model.PlainContextAware;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
 import org.adempiere.util.Loggables;
 import org.adempiere.util.Services;
@@ -24,6 +30,9 @@ import org.compiere.util.TrxRunnable;
 import org.slf4j.Logger;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 
 import ch.qos.logback.classic.Level;
 import de.metas.adempiere.service.IColumnBL;
@@ -65,17 +74,32 @@ import de.metas.logging.LogManager;
 
 public class RecordCrawlerService implements IRecordCrawlerService
 {
+	/** How many records to take from the queue and crawl together */
+	private static final String SYSCONFIG_BatchSize = "de.metas.dlm.partitioner.RecordCrawler.BatchSize";
+	private static final int DEFAULT_BatchSize = 500;
+
+	/** If the result has more records than this, it is stored and its in-memory records are released */
+	private static final String SYSCONFIG_StoreResultMaxSize = "de.metas.dlm.partitioner.RecordCrawler.StoreResultMaxSize";
+	private static final int DEFAULT_StoreResultMaxSize = 100000;
+
+	/** Maximum number of IDs per <code>IN (...)</code> query */
+	private static final int MAX_IN_LIST_SIZE = 1000;
+
 	private final transient Logger logger = LogManager.getLogger(getClass());
 
+	/**
+	 * Crawls the records frontier by frontier: takes up to {@value #DEFAULT_BatchSize} (configurable) records from the queue, groups them by table and
+	 * then loads their referenced and referencing records per table and config reference, using <code>IN (...)</code> queries.
+	 */
 	@Override
 	public IIterateResult crawl(
 			final PartitionConfig config,
 			final IContextAware ctxAware,
 			final IIterateResult result)
 	{
-
-		final IColumnBL columnBL = Services.get(IColumnBL.class);
-		final IADTableDAO adTableDAO = Services.get(IADTableDAO.class);
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final int batchSize = Math.max(sysConfigBL.getIntValue(SYSCONFIG_BatchSize, DEFAULT_BatchSize), 1);
+		final int storeResultMaxSize = sysConfigBL.getIntValue(SYSCONFIG_StoreResultMaxSize, DEFAULT_StoreResultMaxSize);
 
 		// store what we are setting out to do here. E.g. if we are called from a DLMException, we want the situation such as
 		// "partition is not complete because testMigrate failed, and there are e.g. 20 orderlines to backtrack from" to be stored here.
@@ -84,202 +108,289 @@ public class RecordCrawlerService implements IRecordCrawlerService
 
 		mainLoop: while (!result.isQueueEmpty())
 		{
-			final ITableRecordReference currentReference = result.nextFromQueue();
-			final IDLMAware currentRecord = currentReference.getModel(ctxAware, IDLMAware.class);
-			if (currentRecord == null)
+			// take the next frontier from the queue and group it by table name
+			final Map<String, Set<Integer>> tableName2RecordIds = new LinkedHashMap<>();
+			int frontierSize = 0;
+			while (frontierSize < batchSize && !result.isQueueEmpty())
 			{
-				continue;
+				final ITableRecordReference reference = result.nextFromQueue();
+				if (tableName2RecordIds.computeIfAbsent(reference.getTableName(), k -> new LinkedHashSet<>()).add(reference.getRecord_ID()))
+				{
+					frontierSize++;
+				}
 			}
 
-			if (shallStoreResult(result))
+			for (final Map.Entry<String, Set<Integer>> e : tableName2RecordIds.entrySet())
+			{
+				final boolean stop = crawlBatch(config, ctxAware, result, e.getKey(), e.getValue());
+				if (stop)
+				{
+					break mainLoop;
+				}
+			}
+
+			if (result.size() > storeResultMaxSize)
 			{
 				storeIterateResult(config, result, ctxAware);
 			}
+		}
 
-			final String currentTableName = currentReference.getTableName();
-			final int currentRecordId = InterfaceWrapperHelper.getId(currentRecord);
+		logger.info("Found {} records via config.name={}", result.size(), config.getName());
+		storeIterateResult(config, result, ctxAware);
+		return result;
+	}
 
-			// there might or migth not be a line for the current reference's table name. That would mean that we can only search "backward"
-			final Optional<PartitionerConfigLine> currentLineOrNull = config.getLine(currentTableName);
+	/**
+	 * Loads the given records of one table and adds the records they reference ("forward") and the records that reference them ("backward") to the given <code>result</code>.
+	 *
+	 * @return {@code true} if the crawler was signaled to stop
+	 */
+	private boolean crawlBatch(
+			final PartitionConfig config,
+			final IContextAware ctxAware,
+			final IIterateResult result,
+			final String currentTableName,
+			final Collection<Integer> currentRecordIds)
+	{
+		final Map<Integer, IDLMAware> currentRecords = retrieveRecords(ctxAware, currentTableName, currentRecordIds);
+		if (currentRecords.isEmpty())
+		{
+			return false;
+		}
+		logger.debug("{}: crawling {} records", currentTableName, currentRecords.size());
 
-			if (currentLineOrNull.isPresent())
+		// there might or migth not be a line for the current reference's table name. That would mean that we can only search "backward"
+		final Optional<PartitionerConfigLine> currentLineOrNull = config.getLine(currentTableName);
+		if (currentLineOrNull.isPresent())
+		{
+			// look FORWARD
+			//
+			// look at all the records that are referenced by the current records and add them to 'result',
+			// but only load them if they were not yet identified as parts of this partition.
+			for (final PartitionerConfigReference forwardRef : currentLineOrNull.get().getReferences())
 			{
-				final List<PartitionerConfigReference> forwardRefs = currentLineOrNull.get().getReferences();
+				if (forwardRef.isPartitionBoundary())
+				{
+					continue; // don't follow it
+				}
 
-				// look FORWARD
-				//
-				// look at all the records that are referenced by 'currentRecord' and add them to 'hull',
-				// but only add them if they were not yet identified as parts of this partition (i.e. not yet added to 'records').
-				for (final PartitionerConfigReference forwardRef : forwardRefs)
+				final boolean stop = crawlForward(ctxAware, result, currentTableName, currentRecords.values(), forwardRef);
+				if (stop)
 				{
-					if (forwardRef.isPartitionBoundary())
-					{
-						continue; // don't follow it
-					}
+					return true;
+				}
+			}
+		}
 
-					// the table name for the foreign record which has 'foreignKey' as its ID
-					final String forwardTableName = forwardRef.getReferencedTableName();
-					final String forwardColumnName = forwardRef.getReferencingColumnName();
+		// Look BACKWARD, i.e. get all config-references that point to 'currentTableName'.
+		// Then, for each of them, load the records that reference the current records via the respective config-reference.
+		for (final PartitionerConfigReference backwardRef : config.getReferences(currentTableName))
+		{
+			if (backwardRef.isPartitionBoundary())
+			{
+				continue;
+			}
 
-					// first check if this is all about a Record_ID/AD_Table_ID reference.
-					// if that is the case, then we need to verify that the AD_Table_ID of 'record' actually points to the table named 'forwardTableName'
-					if (columnBL.isRecordColumnName(forwardColumnName))
-					{
-						final String tableColumnName = columnBL.getTableColumnName(currentTableName, forwardColumnName)
-								.orElseThrow(Check.supplyEx("Table={} has no table column name for recordColumnName={}", currentTableName, forwardColumnName));
+			final boolean stop = crawlBackward(ctxAware, result, currentTableName, currentRecords.keySet(), backwardRef);
+			if (stop)
+			{
+				return true;
+			}
+		}
 
-						final Integer tableId = InterfaceWrapperHelper.getValueOrNull(currentRecord, tableColumnName);
-						if (tableId == null || tableId <= 0)
-						{
-							logger.trace("{}[{}] forward: the column={} does not reference any table; skipping", currentTableName, currentRecordId, forwardColumnName, forwardTableName, tableColumnName);
-							continue;
-						}
+		return false;
+	}
 
-						final String tableName = adTableDAO.retrieveTableName(tableId);
-						if (!tableName.equals(forwardTableName))
-						{
-							logger.trace("{}[{}] forward: the column={} does not reference a {}-record, but a {}-record; skipping", currentTableName, currentRecordId, forwardColumnName, forwardTableName, tableName);
-							continue;
-						}
-					}
+	/**
+	 * @return {@code true} if the crawler was signaled to stop
+	 */
+	private boolean crawlForward(
+			final IContextAware ctxAware,
+			final IIterateResult result,
+			final String currentTableName,
+			final Collection<IDLMAware> currentRecords,
+			final PartitionerConfigReference forwardRef)
+	{
+		final IColumnBL columnBL = Services.get(IColumnBL.class);
+		final IADTableDAO adTableDAO = Services.get(IADTableDAO.class);
 
-					// get the foreign key ID of
-					// table DLM_PartitionLine_Config.AD_Table_ID,
-					// column DLM_PartitionReference_Config.DLM_Referencing_Column_ID
-					final Integer forwardKey = InterfaceWrapperHelper.getValueOrNull(currentRecord, forwardColumnName);
-					if (forwardKey == null || forwardKey <= 0)
-					{
-						logger.trace("{}[{}] forward: the column={} does not reference anything; skipping", currentTableName, currentRecordId, forwardColumnName);
-						continue;
-					}
+		// the table name for the foreign record which has 'foreignKey' as its ID
+		final String forwardTableName = forwardRef.getReferencedTableName();
+		final String forwardColumnName = forwardRef.getReferencingColumnName();
 
-					final TableRecordReference forwardReference = new TableRecordReference(forwardTableName, forwardKey);
+		// first check if this is all about a Record_ID/AD_Table_ID reference.
+		// if that is the case, then we need to verify that the AD_Table_ID of each record actually points to the table named 'forwardTableName'
+		final String tableColumnName;
+		final int forwardTableId;
+		if (columnBL.isRecordColumnName(forwardColumnName))
+		{
+			tableColumnName = columnBL.getTableColumnName(currentTableName, forwardColumnName)
+					.orElseThrow(Check.supplyEx("Table={} has no table column name for recordColumnName={}", currentTableName, forwardColumnName));
+			forwardTableId = adTableDAO.retrieveTableId(forwardTableName);
+		}
+		else
+		{
+			tableColumnName = null;
+			forwardTableId = -1;
+		}
 
-					final boolean recordWasAlreadyAddedBefore = result.contains(forwardReference);
-					if (recordWasAlreadyAddedBefore)
-					{
-						logger.trace("{}[{}] forward: ITableRecordReference={} was already added in a previous iteration. Returning", currentTableName, currentRecordId, forwardReference); // avoid circles and also avoid loading the whole PO again
-					}
-					else
-					{
-						// the foreign record was not yet added before. Load it now.
-						final IDLMAware forwardRecord = forwardReference.getModel(ctxAware, IDLMAware.class);
-						if (forwardRecord == null)
-						{
-							// this happens with our "minidump" where we left out the HUs
-							Loggables.get().withLogger(logger, Level.WARN).addLog(
-									"{}[{}] forward: the record from table={} which we attempted to load via {}.{}={} is NULL",
-									currentTableName, currentRecordId, forwardTableName, currentTableName, forwardColumnName, forwardKey);
-							continue;
-						}
+		// collect the foreign keys of table DLM_PartitionLine_Config.AD_Table_ID, column DLM_PartitionReference_Config.DLM_Referencing_Column_ID
+		final ListMultimap<Integer, ITableRecordReference> forwardKey2currentReferences = ArrayListMultimap.create();
+		for (final IDLMAware currentRecord : currentRecords)
+		{
+			if (tableColumnName != null)
+			{
+				final Integer tableId = InterfaceWrapperHelper.getValueOrNull(currentRecord, tableColumnName);
+				if (tableId == null || tableId != forwardTableId)
+				{
+					logger.trace("{} forward: the column={} does not reference a {}-record; skipping", currentRecord, forwardColumnName, forwardTableName);
+					continue;
+				}
+			}
 
-						logger.debug("{}[{}] forward: loaded from table={} via {}.{}={}: referenced IDLMAware={}",
-								currentTableName, currentRecordId, forwardTableName, currentTableName, forwardColumnName, forwardKey, forwardRecord);
+			final Integer forwardKey = InterfaceWrapperHelper.getValueOrNull(currentRecord, forwardColumnName);
+			if (forwardKey == null || forwardKey <= 0)
+			{
+				logger.trace("{} forward: the column={} does not reference anything; skipping", currentRecord, forwardColumnName);
+				continue;
+			}
 
-						final AddResult addResult = result.addReferencedRecord(currentReference, forwardReference, forwardRecord.getDLM_Partition_ID());
-						if (forwardRecord.getDLM_Partition_ID() > 0)
-						{
-							// log why we do not search further using the new found foreign record
-							logger.debug("{}[{}] forward: referenced IDLMAware={} already has DLM_Partition_ID={}",
-									currentTableName, currentRecordId, forwardRecord, forwardRecord.getDLM_Partition_ID());
-						}
-						if(AddResult.STOP.equals(addResult))
-						{
-							Loggables.get().withLogger(logger, Level.WARN)
-								.addLog("The crawler was signaled to stop when it added ReferencedRecord={} to the result. Stopping now", forwardReference);
-							break mainLoop;
-						}
-					}
-				}
+			if (result.contains(new TableRecordReference(forwardTableName, forwardKey)))
+			{
+				logger.trace("{} forward: {}[{}] was already added in a previous iteration; skipping", currentRecord, forwardTableName, forwardKey); // avoid circles and also avoid loading the record again
+				continue;
 			}
 
-			// Look BACKWARD, i.e. get all config-references that point to 'currentTableName'.
-			// Then, for each of them, load the records that reference 'currentRecord' via the respective config-reference.
-			//
-			final List<PartitionerConfigReference> backwardRefs = config.getReferences(currentTableName);
-			for (final PartitionerConfigReference backwardRef : backwardRefs)
+			forwardKey2currentReferences.put(forwardKey, ITableRecordReference.FromModelConverter.convert(currentRecord));
+		}
+		if (forwardKey2currentReferences.isEmpty())
+		{
+			return false;
+		}
+
+		// the foreign records were not yet added before. Load them now.
+		final Map<Integer, IDLMAware> forwardRecords = retrieveRecords(ctxAware, forwardTableName, forwardKey2currentReferences.keySet());
+		for (final Integer forwardKey : forwardKey2currentReferences.keySet())
+		{
+			final List<ITableRecordReference> currentReferences = forwardKey2currentReferences.get(forwardKey);
+
+			final IDLMAware forwardRecord = forwardRecords.get(forwardKey);
+			if (forwardRecord == null)
+			{
+				// this happens with our "minidump" where we left out the HUs
+				Loggables.get().withLogger(logger, Level.WARN).addLog(
+						"{} forward: the record from table={} which we attempted to load via {}.{}={} is NULL",
+						currentReferences, forwardTableName, currentTableName, forwardColumnName, forwardKey);
+				continue;
+			}
+
+			final ITableRecordReference forwardReference = new TableRecordReference(forwardTableName, forwardKey);
+			final int forwardPartitionId = forwardRecord.getDLM_Partition_ID();
+			if (forwardPartitionId > 0)
+			{
+				// log why we do not search further using the new found foreign record
+				logger.debug("{} forward: referenced IDLMAware={} already has DLM_Partition_ID={}", currentReferences, forwardRecord, forwardPartitionId);
+			}
+
+			for (final ITableRecordReference currentReference : currentReferences)
 			{
-				if (backwardRef.isPartitionBoundary())
+				final AddResult addResult = result.addReferencedRecord(currentReference, forwardReference, forwardPartitionId);
+				if (AddResult.STOP.equals(addResult))
 				{
-					continue;
+					Loggables.get().withLogger(logger, Level.WARN)
+							.addLog("The crawler was signaled to stop when it added ReferencedRecord={} to the result. Stopping now", forwardReference);
+					return true;
 				}
+			}
+		}
+		return false;
+	}
 
-				final PartitionerConfigLine backwardLine = backwardRef.getParent();
-				final String backwardTableName = backwardLine.getTableName();
-				final String backwardColumnName = backwardRef.getReferencingColumnName();
-
-				// load all records which reference foreignRecord
-				// don't excluded records with DLM_Partition_ID>0 becase we might need to merge them into the partition we are currently building
-				final IQueryBuilder<IDLMAware> queryBuilder = Services.get(IQueryBL.class)
-						.createQueryBuilder(IDLMAware.class, backwardTableName, ctxAware)
-						.addEqualsFilter(backwardRef.getReferencingColumnName(), currentRecordId);
+	/**
+	 * @return {@code true} if the crawler was signaled to stop
+	 */
+	private boolean crawlBackward(
+			final IContextAware ctxAware,
+			final IIterateResult result,
+			final String currentTableName,
+			final Collection<Integer> currentRecordIds,
+			final PartitionerConfigReference backwardRef)
+	{
+		final IColumnBL columnBL = Services.get(IColumnBL.class);
+		final IADTableDAO adTableDAO = Services.get(IADTableDAO.class);
 
-				// if we have a case of AD_Table_ID/Record_ID,
-				// then we need to make sure to only load records whose AD_Table_ID references currentRecord
-				if (columnBL.isRecordColumnName(backwardColumnName))
-				{
-					// note that referencedTableColumnName = AD_Table_ID, in most cases
-					final String referencedTableColumnName = columnBL.getTableColumnName(backwardTableName, backwardRef.getReferencingColumnName())
-							.orElseThrow(Check.supplyEx("Table={} has no table column name for recordColumnName={}", backwardTableName, backwardColumnName));
+		final PartitionerConfigLine backwardLine = backwardRef.getParent();
+		final String backwardTableName = backwardLine.getTableName();
+		final String backwardColumnName = backwardRef.getReferencingColumnName();
 
-					final int referencedTableID = adTableDAO.retrieveTableId(currentTableName);
+		// if we have a case of AD_Table_ID/Record_ID,
+		// then we need to make sure to only load records whose AD_Table_ID references the current table
+		final String referencedTableColumnName;
+		final int referencedTableID;
+		if (columnBL.isRecordColumnName(backwardColumnName))
+		{
+			// note that referencedTableColumnName = AD_Table_ID, in most cases
+			referencedTableColumnName = columnBL.getTableColumnName(backwardTableName, backwardColumnName)
+					.orElseThrow(Check.supplyEx("Table={} has no table column name for recordColumnName={}", backwardTableName, backwardColumnName));
+			referencedTableID = adTableDAO.retrieveTableId(currentTableName);
+		}
+		else
+		{
+			referencedTableColumnName = null;
+			referencedTableID = -1;
+		}
 
-					queryBuilder.addEqualsFilter(referencedTableColumnName, referencedTableID);
-				}
+		for (final List<Integer> currentRecordIdsChunk : Iterables.partition(currentRecordIds, MAX_IN_LIST_SIZE))
+		{
+			// load all records which reference the current records
+			// don't excluded records with DLM_Partition_ID>0 becase we might need to merge them into the partition we are currently building
+			final IQueryBuilder<IDLMAware> queryBuilder = Services.get(IQueryBL.class)
+					.createQueryBuilder(IDLMAware.class, backwardTableName, ctxAware)
+					.addInArrayFilter(backwardColumnName, currentRecordIdsChunk);
+			if (referencedTableColumnName != null)
+			{
+				queryBuilder.addEqualsFilter(referencedTableColumnName, referencedTableID);
+			}
 
-				// avoid loading the records we already added before.
-				// This doesn't work well. NOT IN is probably not very performant, see
-				// http://stackoverflow.com/questions/7125291/postgresql-not-in-versus-except-performance-difference-edited-2
-				// maybe it would become better when we do something along the lines of
-				// https://www.datadoghq.com/blog/100x-faster-postgres-performance-by-changing-1-line/
-				// at any rate it looks the postgresql jdbc driver "only" supports prepared statements with 65536 parameters,
-				// Solutions:
-				// 1. don't try to exclude anything and live with records beeing returned that we already saw earlier
-				// 2. store the partition more regularly and add some sort of negative left-join to the query
-				// {
-				// final String columnName = columnBL.getSingleKeyColumn(backwardTableName);
-				// final Collection<Integer> alreadyAddedBackwardIds = result.getIds(backwardTableName);
-				//
-				// queryBuilder.addNotInArrayFilter(columnName, alreadyAddedBackwardIds);
-				// }
-
-				// de.metas.dlm.partitioner.PartitionerTools.dumpHistogram(result)
-				final List<IDLMAware> backwardRecords = queryBuilder
-						.create()
-						.list();
-
-				for (final IDLMAware backwardRecord : backwardRecords)
+			// note that we don't try to exclude the records we already added before, because a NOT IN with all of them performs badly
+			// and the postgresql jdbc driver "only" supports prepared statements with 65536 parameters.
+			// Records we already have are simply returned as NOT_ADDED_CONTINUE by the result.
+			// stream the referencing records, because e.g. for a large partition there can be a lot of them
+			try (final Stream<IDLMAware> backwardRecords = queryBuilder
+					.create()
+					.streamUsingCursor(IDLMAware.class))
+			{
+				final Iterator<IDLMAware> backwardRecordsIterator = backwardRecords.iterator();
+				while (backwardRecordsIterator.hasNext())
 				{
+					final IDLMAware backwardRecord = backwardRecordsIterator.next();
 					InterfaceWrapperHelper.setTrxName(backwardRecord, ctxAware.getTrxName()); // we need this for MPinstance, because it explicitly ignores the trx it is loaded with in its constructor.
 
 					final ITableRecordReference backwardTableRecordReference = ITableRecordReference.FromModelConverter.convert(backwardRecord);
+					final Integer currentRecordId = InterfaceWrapperHelper.getValueOrNull(backwardRecord, backwardColumnName);
+					final ITableRecordReference currentReference = new TableRecordReference(currentTableName, currentRecordId);
 
 					final AddResult addRecordResult = result.addReferencingRecord(backwardTableRecordReference, currentReference, backwardRecord.getDLM_Partition_ID());
-
-					// should not happen because we excluded alreadyAddedBackwardIds from the loading query
-					// Check.errorUnless(recordWasNotYetAddedBefore, "{}[{}] backward: WAS ALREADY ADDED! - loaded referencing IDLMAware={} from table={} via {}.{}={}",
-					// currentTableName, currentRecordId, backwardRecord, backwardTableName, backwardTableName, backwardColumnName, currentRecordId);
-
 					switch (addRecordResult)
 					{
 						case ADDED_CONTINUE:
 							// log that the foreign record was not yet added before. We added it now
-							logger.debug("{}[{}] backward: loaded from table={} via {}.{}={}: referencing IDLMAware={}",
-									currentTableName, currentRecordId, backwardTableName, backwardTableName, backwardColumnName, currentRecordId, backwardRecord);
+							logger.debug("{} backward: loaded from table={} via {}.{}={}: referencing IDLMAware={}",
+									currentReference, backwardTableName, backwardTableName, backwardColumnName, currentRecordId, backwardRecord);
 
 							if (backwardRecord.getDLM_Partition_ID() > 0)
 							{
 								// log why we did not search further using the new found foreign record
-								logger.debug("{}[{}] backward: referenced IDLMAware={} already has DLM_Partition_ID={}",
-										currentTableName, currentRecordId, backwardRecord, backwardRecord.getDLM_Partition_ID());
+								logger.debug("{} backward: referenced IDLMAware={} already has DLM_Partition_ID={}",
+										currentReference, backwardRecord, backwardRecord.getDLM_Partition_ID());
 							}
 							break;
 						case NOT_ADDED_CONTINUE:
-							logger.trace("{}[{}] backward: ReferencingRecord={} was already added in a previous iteration. Returning", currentTableName, currentRecordId, backwardTableRecordReference);
+							logger.trace("{} backward: ReferencingRecord={} was already added in a previous iteration. Returning", currentReference, backwardTableRecordReference);
 							break;
 						case STOP:
 							Loggables.get().addLog("The crawler was signaled to stop when it added ReferencingRecord={} the result. Stopping now", backwardTableRecordReference);
-							break mainLoop;
+							return true;
 						default:
 							Check.errorIf(true, "Unexpected result={}", addRecordResult);
 							break;
@@ -287,17 +398,36 @@ public class RecordCrawlerService implements IRecordCrawlerService
 				}
 			}
 		}
-
-		logger.info("Found {} records via config.name={}", result.size(), config.getName());
-		storeIterateResult(config, result, ctxAware);
-		return result;
+		return false;
 	}
 
-	private boolean shallStoreResult(final IIterateResult result)
+	/**
+	 * Loads the records with the given IDs, using <code>IN (...)</code> queries.
+	 *
+	 * @return the loaded records by ID; records which were not found are missing
+	 */
+	private Map<Integer, IDLMAware> retrieveRecords(
+			final IContextAware ctxAware,
+			final String tableName,
+			final Collection<Integer> recordIds)
 	{
-		// return true;
-		final int maxSize = 100000;
-		return result.size() > maxSize;
+		final String keyColumnName = Services.get(IColumnBL.class).getSingleKeyColumn(tableName);
+
+		final Map<Integer, IDLMAware> result = new LinkedHashMap<>(recordIds.size());
+		for (final List<Integer> recordIdsChunk : Iterables.partition(recordIds, MAX_IN_LIST_SIZE))
+		{
+			final List<IDLMAware> records = Services.get(IQueryBL.class)
+					.createQueryBuilder(IDLMAware.class, tableName, ctxAware)
+					.addInArrayFilter(keyColumnName, recordIdsChunk)
+					.create()
+					.list();
+			for (final IDLMAware record : records)
+			{
+				InterfaceWrapperHelper.setTrxName(record, ctxAware.getTrxName()); // see the comment in crawlBackward
+				result.put(InterfaceWrapperHelper.getId(record), record);
+			}
+		}
+		return result;
 	}
 
 	private void storeIterateResult(final PartitionConfig config,
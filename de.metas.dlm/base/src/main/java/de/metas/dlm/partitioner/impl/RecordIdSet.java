@@ -0,0 +1,180 @@
+package de.metas.dlm.partitioner.impl;
+
+import java.util.function.IntConsumer;
+
+/*
+ * #%L
+ * metasfresh-dlm
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Set of record IDs, backed by a primitive open addressing hash table.
+ * <p>
+ * The crawler keeps one instance per table for the records it already visited. Compared to a {@code HashSet<ITableRecordReference>} this needs a few bytes per record instead of about hundred.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+final class RecordIdSet
+{
+	/** Marks an empty slot; record ID zero is tracked separately via {@link #containsZero}. */
+	private static final int FREE = 0;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] slots = new int[INITIAL_CAPACITY];
+	private int size = 0;
+	private boolean containsZero = false;
+
+	/**
+	 * @return {@code true} if the given ID was not yet contained
+	 */
+	public boolean add(final int recordId)
+	{
+		if (recordId == FREE)
+		{
+			if (containsZero)
+			{
+				return false;
+			}
+			containsZero = true;
+			size++;
+			return true;
+		}
+
+		// keep the load factor below 0.5
+		if ((size + 1) * 2 > slots.length)
+		{
+			rehash(slots.length * 2);
+		}
+
+		if (!insert(slots, recordId))
+		{
+			return false;
+		}
+		size++;
+		return true;
+	}
+
+	public boolean contains(final int recordId)
+	{
+		if (recordId == FREE)
+		{
+			return containsZero;
+		}
+
+		final int mask = slots.length - 1;
+		int idx = mix(recordId) & mask;
+		while (true)
+		{
+			final int slot = slots[idx];
+			if (slot == FREE)
+			{
+				return false;
+			}
+			if (slot == recordId)
+			{
+				return true;
+			}
+			idx = (idx + 1) & mask;
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void clear()
+	{
+		slots = new int[INITIAL_CAPACITY];
+		size = 0;
+		containsZero = false;
+	}
+
+	public void forEach(final IntConsumer action)
+	{
+		if (containsZero)
+		{
+			action.accept(0);
+		}
+		for (final int slot : slots)
+		{
+			if (slot != FREE)
+			{
+				action.accept(slot);
+			}
+		}
+	}
+
+	private void rehash(final int newCapacity)
+	{
+		final int[] newSlots = new int[newCapacity];
+		for (final int slot : slots)
+		{
+			if (slot != FREE)
+			{
+				insert(newSlots, slot);
+			}
+		}
+		slots = newSlots;
+	}
+
+	/**
+	 * @return {@code false} if the given slots already contain the given ID
+	 */
+	private static boolean insert(final int[] slots, final int recordId)
+	{
+		final int mask = slots.length - 1;
+		int idx = mix(recordId) & mask;
+		while (true)
+		{
+			final int slot = slots[idx];
+			if (slot == FREE)
+			{
+				slots[idx] = recordId;
+				return true;
+			}
+			if (slot == recordId)
+			{
+				return false;
+			}
+			idx = (idx + 1) & mask;
+		}
+	}
+
+	/** Spreads the sequential record IDs over the table. */
+	private static int mix(final int recordId)
+	{
+		final int h = recordId * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "RecordIdSet [size=" + size + "]";
+	}
+}
@@ -0,0 +1,81 @@
+package de.metas.dlm.partitioner.impl;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/*
+ * #%L
+ * metasfresh-dlm
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class RecordIdSetTests
+{
+	@Test
+	public void testAddContains()
+	{
+		final RecordIdSet set = new RecordIdSet();
+		assertThat(set.isEmpty(), is(true));
+
+		assertThat(set.add(1000000), is(true));
+		assertThat(set.add(1000000), is(false));
+		assertThat(set.add(0), is(true)); // System records have ID 0
+		assertThat(set.add(0), is(false));
+
+		assertThat(set.contains(1000000), is(true));
+		assertThat(set.contains(0), is(true));
+		assertThat(set.contains(1000001), is(false));
+		assertThat(set.size(), is(2));
+
+		set.clear();
+		assertThat(set.isEmpty(), is(true));
+		assertThat(set.contains(0), is(false));
+		assertThat(set.contains(1000000), is(false));
+	}
+
+	/**
+	 * Adds many sequential IDs, so the set needs to grow several times.
+	 */
+	@Test
+	public void testGrow()
+	{
+		final RecordIdSet set = new RecordIdSet();
+		for (int id = 1000000; id < 1100000; id++)
+		{
+			assertThat(set.add(id), is(true));
+		}
+		assertThat(set.size(), is(100000));
+
+		for (int id = 1000000; id < 1100000; id++)
+		{
+			assertThat(set.contains(id), is(true));
+		}
+		assertThat(set.contains(999999), is(false));
+		assertThat(set.contains(1100000), is(false));
+
+		final Set<Integer> ids = new HashSet<>();
+		set.forEach(id -> ids.add(id));
+		assertThat(ids.size(), is(100000));
+	}
+}
@@ -34,6 +34,7 @@ import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.archive.api.IArchiveEventManager;
 import org.adempiere.archive.api.IArchiveStorageFactory;
 import org.adempiere.archive.api.IArchiveStorageFactory.AccessMode;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
 import org.adempiere.archive.spi.impl.FilesystemArchiveStorage;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.util.Services;
@@ -92,12 +93,15 @@ public class Archive_Main_Validator implements ModelValidator
 		Services.registerService(org.adempiere.archive.api.IArchiveDAO.class, new org.adempiere.archive.api.impl.DocumentArchiveDAO());
 
 		// Register RemoteArchiveStorage
+		// NOTE: content addressed archives are read and written by the server too, like the filesystem ones
 		archiveStorageFactory.registerArchiveStorage(IArchiveStorageFactory.STORAGETYPE_Filesystem, AccessMode.CLIENT, RemoteArchiveStorage.class);
+		archiveStorageFactory.registerArchiveStorage(IArchiveStorageFactory.STORAGETYPE_ContentAddressed, AccessMode.CLIENT, RemoteArchiveStorage.class);
 
 		// NOTE: if we are in developer mode, in most of the cases Remote storage is not accessible but the filesystem storage is on our machine
 		if (developerModeBL.isEnabled())
 		{
 			archiveStorageFactory.registerArchiveStorage(IArchiveStorageFactory.STORAGETYPE_Filesystem, AccessMode.CLIENT, FilesystemArchiveStorage.class);
+			archiveStorageFactory.registerArchiveStorage(IArchiveStorageFactory.STORAGETYPE_ContentAddressed, AccessMode.CLIENT, ContentAddressedArchiveStorage.class);
 		}
 
 		archiveEventManager.registerArchiveEventListener(new DocOutboundArchiveEventListener());
@@ -30,6 +30,7 @@ import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.archive.api.IArchiveStorageFactory;
 import org.adempiere.archive.api.IArchiveStorageFactory.AccessMode;
 import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
 import org.adempiere.archive.spi.impl.DBArchiveStorage;
 import org.adempiere.archive.spi.impl.FilesystemArchiveStorage;
 import org.adempiere.model.InterfaceWrapperHelper;
@@ -191,6 +192,41 @@ public class RemoteArchiveStorageTests
 		}
 	}
 
+	@Test
+	public void test_getBinaryData_ContentAddressed()
+	{
+		storageFactory.registerArchiveStorage(
+				IArchiveStorageFactory.STORAGETYPE_ContentAddressed,
+				AccessMode.ALL,
+				ContentAddressedArchiveStorage.class);
+		storageFactory.registerArchiveStorage(
+				IArchiveStorageFactory.STORAGETYPE_ContentAddressed,
+				AccessMode.CLIENT,
+				RemoteArchiveStorage.class);
+
+		final byte[] data = createTestData();
+
+		final I_AD_Archive archive;
+
+		// Create archive on server
+		{
+			Ini.setClient(false);
+			final IArchiveStorage storage = storageFactory.getArchiveStorage(ctx, IArchiveStorageFactory.STORAGETYPE_ContentAddressed);
+			archive = storage.newArchive(ctx, ITrx.TRXNAME_None);
+			storage.setBinaryData(archive, data);
+			InterfaceWrapperHelper.save(archive);
+		}
+
+		// Retrieve archive on client
+		{
+			Ini.setClient(true);
+			final IArchiveStorage storage = storageFactory.getArchiveStorage(archive);
+			Assert.assertEquals("Invalid storage class", RemoteArchiveStorage.class, storage.getClass());
+			final byte[] dataActual = storage.getBinaryData(archive);
+			Assert.assertArrayEquals("Invalid binary data", data, dataActual);
+		}
+	}
+
 	@Test
 	public void test_setBinaryData()
 	{
@@ -51,8 +51,12 @@ public interface IESModelIndexer
 
 	/**
 	 * Add given models to ES index.
+	 * <p>
+	 * The models are streamed: they are sent in bulk requests of limited size while the iterator is consumed.
+	 * Models which are not in a transaction are denormalized in parallel.
 	 *
 	 * @param models
+	 * @return aggregated result of all bulk requests
 	 */
 	IESIndexerResult addToIndex(Iterator<?> models);
 
@@ -0,0 +1,190 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.ElasticsearchException;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Stopwatch;
+
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+
+/*
+ * #%L
+ * de.metas.elasticsearch.server
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Result aggregated over all bulk requests executed by one {@link ESBulkIndexingPipeline} run.
+ * <p>
+ * The counters are updated concurrently by the bulk listener; only the first {@value #MAX_FAILURE_MESSAGES} failure messages are kept.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class ESBulkIndexerResult implements IESIndexerResult
+{
+	private static final int MAX_FAILURE_MESSAGES = 100;
+
+	private final Stopwatch duration = Stopwatch.createStarted();
+	private final AtomicInteger countOK = new AtomicInteger(0);
+	private final AtomicInteger countFailures = new AtomicInteger(0);
+	private final AtomicInteger countBulkRequests = new AtomicInteger(0);
+	private final List<String> failureMessages = new ArrayList<>();
+
+	/* package */ ESBulkIndexerResult()
+	{
+		super();
+	}
+
+	@Override
+	public String toString()
+	{
+		return getSummary();
+	}
+
+	@Override
+	public String getSummary()
+	{
+		return MoreObjects.toStringHelper(this)
+				.omitNullValues()
+				.add("TotalCount", getTotalCount())
+				.add("FailuresCount", getFailuresCount())
+				.add("BulkRequests", getBulkRequestsCount())
+				.add("DocsPerSecond", getDocumentsPerSecond())
+				.add("ErrorMsg", hasFailures() ? getFirstFailureMessage() : null)
+				.add("Duration", duration)
+				.toString();
+	}
+
+	/* package */ void recordBulkRequest()
+	{
+		countBulkRequests.incrementAndGet();
+	}
+
+	/* package */ void recordOK(final int count)
+	{
+		countOK.addAndGet(count);
+	}
+
+	/* package */ void recordFailures(final int count, final String failureMessage)
+	{
+		countFailures.addAndGet(count);
+		synchronized (failureMessages)
+		{
+			if (failureMessages.size() < MAX_FAILURE_MESSAGES)
+			{
+				failureMessages.add(failureMessage);
+			}
+		}
+	}
+
+	/* package */ void markFinished()
+	{
+		if (duration.isRunning())
+		{
+			duration.stop();
+		}
+	}
+
+	@Override
+	public long getDurationInMillis()
+	{
+		return duration.elapsed(TimeUnit.MILLISECONDS);
+	}
+
+	/** @return successfully indexed documents per second */
+	public long getDocumentsPerSecond()
+	{
+		final long durationMillis = Math.max(getDurationInMillis(), 1);
+		return getOKCount() * TimeUnit.SECONDS.toMillis(1) / durationMillis;
+	}
+
+	public int getBulkRequestsCount()
+	{
+		return countBulkRequests.get();
+	}
+
+	@Override
+	public int getTotalCount()
+	{
+		return getOKCount() + getFailuresCount();
+	}
+
+	@Override
+	public int getOKCount()
+	{
+		return countOK.get();
+	}
+
+	@Override
+	public int getFailuresCount()
+	{
+		return countFailures.get();
+	}
+
+	@Override
+	public boolean hasFailures()
+	{
+		return getFailuresCount() > 0;
+	}
+
+	private String getFirstFailureMessage()
+	{
+		synchronized (failureMessages)
+		{
+			return failureMessages.isEmpty() ? null : failureMessages.get(0);
+		}
+	}
+
+	@Override
+	public String getFailureMessage()
+	{
+		if (!hasFailures())
+		{
+			return null;
+		}
+
+		synchronized (failureMessages)
+		{
+			final StringBuilder failureMessage = new StringBuilder();
+			failureMessage.append(getFailuresCount()).append(" failure(s):\n");
+			Joiner.on("\n").appendTo(failureMessage, failureMessages);
+			if (getFailuresCount() > failureMessages.size())
+			{
+				failureMessage.append("\n...");
+			}
+			return failureMessage.toString();
+		}
+	}
+
+	@Override
+	public void throwExceceptionIfAnyFailure()
+	{
+		if (hasFailures())
+		{
+			throw new ElasticsearchException(getFailureMessage());
+		}
+	}
+}
@@ -0,0 +1,386 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.Check;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.slf4j.Logger;
+
+import com.google.common.base.MoreObjects;
+
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+import de.metas.logging.LogManager;
+
+/*
+ * #%L
+ * de.metas.elasticsearch.server
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Streams models into an Elasticsearch index.
+ * <p>
+ * The models are read from the given iterator on the calling thread. Each model is converted to an {@link IndexRequest} by a bounded pool of worker threads,
+ * at most {@link Builder#setPrefetchSize(int)} models ahead of the bulk requests. The index requests are collected by a {@link BulkProcessor},
+ * which is flushing them when the {@link Builder#setBulkActions(int) actions count} or the {@link Builder#setBulkSizeBytes(long) size} limit is reached.
+ * At most {@link Builder#setMaxInFlightRequests(int)} bulk requests are executed concurrently; when that limit is reached, the calling thread is blocked until one of them completes.
+ * <p>
+ * Memory usage is therefore bounded, no matter how many models are indexed.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class ESBulkIndexingPipeline
+{
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	private static final transient Logger logger = LogManager.getLogger(ESBulkIndexingPipeline.class);
+
+	/** How long to wait for the in-flight bulk requests, after all models were added */
+	private static final long AWAIT_CLOSE_TIMEOUT_MINUTES = 10;
+
+	private final Client client;
+	private final String indexName;
+	private final Function<Object, IndexRequest> indexRequestFactory;
+	private final Predicate<Object> asyncIndexRequestAllowed;
+	private final int bulkActions;
+	private final long bulkSizeBytes;
+	private final int maxInFlightRequests;
+	private final int threadsCount;
+	private final int prefetchSize;
+	private final ESModelIndexerStatistics statistics;
+
+	private ESBulkIndexingPipeline(final Builder builder)
+	{
+		super();
+
+		client = builder.client;
+		Check.assumeNotNull(client, "Parameter client is not null");
+		indexName = builder.indexName;
+		Check.assumeNotEmpty(indexName, "indexName is not empty");
+		indexRequestFactory = builder.indexRequestFactory;
+		Check.assumeNotNull(indexRequestFactory, "Parameter indexRequestFactory is not null");
+		asyncIndexRequestAllowed = builder.asyncIndexRequestAllowed;
+
+		bulkActions = builder.bulkActions;
+		Check.assume(bulkActions > 0, "bulkActions > 0 but it was {}", bulkActions);
+		bulkSizeBytes = builder.bulkSizeBytes;
+		Check.assume(bulkSizeBytes > 0, "bulkSizeBytes > 0 but it was {}", bulkSizeBytes);
+		maxInFlightRequests = Math.max(builder.maxInFlightRequests, 0);
+		threadsCount = Math.max(builder.threadsCount, 1);
+		prefetchSize = Math.max(builder.prefetchSize, threadsCount);
+
+		statistics = ESModelIndexerStatistics.getOrCreate(indexName);
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("indexName", indexName)
+				.add("bulkActions", bulkActions)
+				.add("bulkSizeBytes", bulkSizeBytes)
+				.add("maxInFlightRequests", maxInFlightRequests)
+				.add("threadsCount", threadsCount)
+				.add("prefetchSize", prefetchSize)
+				.toString();
+	}
+
+	public IESIndexerResult index(final Iterator<?> models)
+	{
+		final ESBulkIndexerResult result = new ESBulkIndexerResult();
+		final AtomicInteger pendingActions = new AtomicInteger(0);
+		final BulkProcessor bulkProcessor = createBulkProcessor(result, pendingActions);
+		final ThreadPoolExecutor executor = threadsCount > 1 ? createExecutor() : null;
+
+		final Deque<CompletableFuture<IndexRequest>> prefetchedRequests = new ArrayDeque<>(prefetchSize + 1);
+		try
+		{
+			while (models.hasNext())
+			{
+				final Object model = models.next();
+				prefetchedRequests.addLast(createIndexRequest(model, executor));
+
+				while (prefetchedRequests.size() > prefetchSize)
+				{
+					addToBulk(bulkProcessor, prefetchedRequests.removeFirst(), result);
+				}
+			}
+
+			while (!prefetchedRequests.isEmpty())
+			{
+				addToBulk(bulkProcessor, prefetchedRequests.removeFirst(), result);
+			}
+		}
+		finally
+		{
+			if (executor != null)
+			{
+				executor.shutdownNow();
+			}
+			awaitClose(bulkProcessor, result, pendingActions);
+			result.markFinished();
+		}
+
+		if (result.getTotalCount() <= 0)
+		{
+			return IESIndexerResult.NULL;
+		}
+
+		statistics.recordRun(result);
+		logger.debug("Indexed into {}: {}", indexName, result);
+		return result;
+	}
+
+	private ThreadPoolExecutor createExecutor()
+	{
+		return new ThreadPoolExecutor(
+				threadsCount, threadsCount,
+				0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(prefetchSize),
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(ESBulkIndexingPipeline.class.getName() + "-" + indexName)
+						.setDaemon(true)
+						.build(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	private CompletableFuture<IndexRequest> createIndexRequest(final Object model, final ThreadPoolExecutor executor)
+	{
+		if (executor != null && asyncIndexRequestAllowed.test(model))
+		{
+			return CompletableFuture.supplyAsync(() -> indexRequestFactory.apply(model), executor);
+		}
+
+		final CompletableFuture<IndexRequest> future = new CompletableFuture<>();
+		try
+		{
+			future.complete(indexRequestFactory.apply(model));
+		}
+		catch (final Exception ex)
+		{
+			future.completeExceptionally(ex);
+		}
+		return future;
+	}
+
+	private void addToBulk(final BulkProcessor bulkProcessor, final CompletableFuture<IndexRequest> indexRequestFuture, final ESBulkIndexerResult result)
+	{
+		final IndexRequest indexRequest;
+		try
+		{
+			indexRequest = indexRequestFuture.join();
+		}
+		catch (final CompletionException ex)
+		{
+			final Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+			logger.warn("Failed creating the index request. Skipped.", cause);
+
+			result.recordFailures(1, AdempiereException.extractMessage(cause));
+			statistics.recordBulkRequest(0, 1, 0);
+			return;
+		}
+
+		// NOTE: blocks while maxInFlightRequests bulk requests are executing
+		bulkProcessor.add(indexRequest);
+	}
+
+	private BulkProcessor createBulkProcessor(final ESBulkIndexerResult result, final AtomicInteger pendingActions)
+	{
+		final BulkProcessor.Listener listener = new BulkProcessor.Listener()
+		{
+			@Override
+			public void beforeBulk(final long executionId, final BulkRequest request)
+			{
+				pendingActions.addAndGet(request.numberOfActions());
+			}
+
+			@Override
+			public void afterBulk(final long executionId, final BulkRequest request, final BulkResponse response)
+			{
+				int countOK = 0;
+				int countFailures = 0;
+				for (final BulkItemResponse item : response.getItems())
+				{
+					if (item.isFailed())
+					{
+						countFailures++;
+						result.recordFailures(1, "[" + item.getId() + "]: " + item.getFailureMessage());
+					}
+					else
+					{
+						countOK++;
+					}
+				}
+
+				result.recordOK(countOK);
+				result.recordBulkRequest();
+				statistics.recordBulkRequest(countOK, countFailures, response.getTookInMillis());
+				pendingActions.addAndGet(-request.numberOfActions());
+			}
+
+			@Override
+			public void afterBulk(final long executionId, final BulkRequest request, final Throwable failure)
+			{
+				final int count = request.numberOfActions();
+				logger.warn("Bulk request with {} actions failed for {}", count, indexName, failure);
+
+				result.recordFailures(count, "Bulk request with " + count + " actions failed: " + failure.getLocalizedMessage());
+				result.recordBulkRequest();
+				statistics.recordBulkRequest(0, count, 0);
+				pendingActions.addAndGet(-count);
+			}
+		};
+
+		return BulkProcessor.builder(client, listener)
+				.setName(ESBulkIndexingPipeline.class.getSimpleName() + "-" + indexName)
+				.setBulkActions(bulkActions)
+				.setBulkSize(new ByteSizeValue(bulkSizeBytes))
+				.setConcurrentRequests(maxInFlightRequests)
+				.build();
+	}
+
+	private void awaitClose(final BulkProcessor bulkProcessor, final ESBulkIndexerResult result, final AtomicInteger pendingActions)
+	{
+		try
+		{
+			if (!bulkProcessor.awaitClose(AWAIT_CLOSE_TIMEOUT_MINUTES, TimeUnit.MINUTES))
+			{
+				final int count = pendingActions.get();
+				result.recordFailures(count, "Timeout while waiting for " + count + " actions to be indexed");
+			}
+		}
+		catch (final InterruptedException ex)
+		{
+			final int count = pendingActions.get();
+			result.recordFailures(count, "Interrupted while waiting for " + count + " actions to be indexed");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static final class Builder
+	{
+		private Client client;
+		private String indexName;
+		private Function<Object, IndexRequest> indexRequestFactory;
+		private Predicate<Object> asyncIndexRequestAllowed = model -> true;
+		private int bulkActions = 1000;
+		private long bulkSizeBytes = 5 * 1024 * 1024;
+		private int maxInFlightRequests = 1;
+		private int threadsCount = 1;
+		private int prefetchSize = 100;
+
+		private Builder()
+		{
+			super();
+		}
+
+		public ESBulkIndexingPipeline build()
+		{
+			return new ESBulkIndexingPipeline(this);
+		}
+
+		public Builder setClient(final Client client)
+		{
+			this.client = client;
+			return this;
+		}
+
+		public Builder setIndexName(final String indexName)
+		{
+			this.indexName = indexName;
+			return this;
+		}
+
+		/**
+		 * @param indexRequestFactory converts a model to its index request. Might be called from a worker thread, see {@link #setAsyncIndexRequestAllowed(Predicate)}.
+		 */
+		public Builder setIndexRequestFactory(final Function<Object, IndexRequest> indexRequestFactory)
+		{
+			this.indexRequestFactory = indexRequestFactory;
+			return this;
+		}
+
+		/**
+		 * @param asyncIndexRequestAllowed tells if the index request for a given model may be created by a worker thread. If not, it's created on the calling thread.
+		 */
+		public Builder setAsyncIndexRequestAllowed(final Predicate<Object> asyncIndexRequestAllowed)
+		{
+			Check.assumeNotNull(asyncIndexRequestAllowed, "Parameter asyncIndexRequestAllowed is not null");
+			this.asyncIndexRequestAllowed = asyncIndexRequestAllowed;
+			return this;
+		}
+
+		/** Flush the bulk request when it has this many actions */
+		public Builder setBulkActions(final int bulkActions)
+		{
+			this.bulkActions = bulkActions;
+			return this;
+		}
+
+		/** Flush the bulk request when its size reaches this many bytes */
+		public Builder setBulkSizeBytes(final long bulkSizeBytes)
+		{
+			this.bulkSizeBytes = bulkSizeBytes;
+			return this;
+		}
+
+		/** How many bulk requests can be executed concurrently while the next one is collected. Zero means each bulk request is executed synchronously. */
+		public Builder setMaxInFlightRequests(final int maxInFlightRequests)
+		{
+			this.maxInFlightRequests = maxInFlightRequests;
+			return this;
+		}
+
+		/** How many threads are creating the index requests. One means no worker threads, everything is done by the calling thread. */
+		public Builder setThreadsCount(final int threadsCount)
+		{
+			this.threadsCount = threadsCount;
+			return this;
+		}
+
+		/** How many index requests can be created ahead of the bulk request */
+		public Builder setPrefetchSize(final int prefetchSize)
+		{
+			this.prefetchSize = prefetchSize;
+			return this;
+		}
+	}
+}
@@ -8,9 +8,12 @@ import java.util.stream.Stream;
 
 import javax.annotation.concurrent.Immutable;
 
+import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
-import org.adempiere.util.collections.IteratorUtils;
+import org.adempiere.util.Services;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
@@ -61,6 +64,17 @@ public final class ESModelIndexer implements IESModelIndexer
 {
 	private static final transient Logger logger = LogManager.getLogger(ESModelIndexer.class);
 
+	private static final String SYSCONFIG_BulkActions = "de.metas.elasticsearch.indexer.BulkActions";
+	private static final int DEFAULT_BulkActions = 1000;
+	private static final String SYSCONFIG_BulkSizeKB = "de.metas.elasticsearch.indexer.BulkSizeKB";
+	private static final int DEFAULT_BulkSizeKB = 5 * 1024;
+	private static final String SYSCONFIG_MaxInFlightRequests = "de.metas.elasticsearch.indexer.MaxInFlightRequests";
+	private static final int DEFAULT_MaxInFlightRequests = 2;
+	private static final String SYSCONFIG_ThreadsCount = "de.metas.elasticsearch.indexer.ThreadsCount";
+	private static final int DEFAULT_ThreadsCount = 4;
+	private static final String SYSCONFIG_PrefetchSize = "de.metas.elasticsearch.indexer.PrefetchSize";
+	private static final int DEFAULT_PrefetchSize = 200;
+
 	private final Client _elasticsearchClient;
 	private final ObjectMapper jsonObjectMapper;
 
@@ -296,19 +310,6 @@ public final class ESModelIndexer implements IESModelIndexer
 		}
 	}
 
-	private Stream<IndexRequestBuilder> createIndexRequests(final Object model)
-	{
-		// NOTE: for debugging purposes we are checking it each time
-		// createUpdateIndex();
-
-		//
-		// model (parent) index requests
-		final Stream<IndexRequestBuilder> result = Stream.of(model)
-				.map(indexer -> createIndexRequestForModel(model));
-
-		return result;
-	}
-
 	private IndexRequestBuilder createIndexRequestForModel(final Object model)
 	{
 		final IESModelDenormalizer modelDenormalizer = getModelDenormalizer();
@@ -339,24 +340,25 @@ public final class ESModelIndexer implements IESModelIndexer
 	@Override
 	public IESIndexerResult addToIndex(final Iterator<?> models)
 	{
-		final BulkRequestBuilder bulkRequest = getClient().prepareBulk();
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+
+		final ESBulkIndexingPipeline pipeline = ESBulkIndexingPipeline.builder()
+				.setClient(getClient())
+				.setIndexName(getIndexName())
+				.setIndexRequestFactory(model -> createIndexRequestForModel(model).request())
+				// models which are in a transaction have to be denormalized on the calling thread, because the referenced models are loaded in that same transaction
+				.setAsyncIndexRequestAllowed(model -> trxManager.isNull(InterfaceWrapperHelper.getTrxName(model)))
+				.setBulkActions(sysConfigBL.getIntValue(SYSCONFIG_BulkActions, DEFAULT_BulkActions))
+				.setBulkSizeBytes(sysConfigBL.getIntValue(SYSCONFIG_BulkSizeKB, DEFAULT_BulkSizeKB) * 1024L)
+				.setMaxInFlightRequests(sysConfigBL.getIntValue(SYSCONFIG_MaxInFlightRequests, DEFAULT_MaxInFlightRequests))
+				.setThreadsCount(sysConfigBL.getIntValue(SYSCONFIG_ThreadsCount, DEFAULT_ThreadsCount))
+				.setPrefetchSize(sysConfigBL.getIntValue(SYSCONFIG_PrefetchSize, DEFAULT_PrefetchSize))
+				.build();
 
 		try
 		{
-			IteratorUtils.stream(models)
-					.flatMap(model -> createIndexRequests(model))
-					.forEach(bulkRequest::add);
-
-			if (bulkRequest.numberOfActions() <= 0)
-			{
-				return IESIndexerResult.NULL;
-			}
-
-			final BulkResponse bulkResponse = bulkRequest.execute().actionGet();
-			final IESIndexerResult esResponse = ESIndexerResult.of(bulkResponse);
-
-			logger.debug("Added {}", esResponse);
-			return esResponse;
+			return pipeline.index(models);
 		}
 		catch (final AdempiereException ex)
 		{
@@ -364,9 +366,9 @@ public final class ESModelIndexer implements IESModelIndexer
 		}
 		catch (final Exception ex)
 		{
-			final int count = bulkRequest.numberOfActions();
-			final String errmsg = "Failed indexing " + count + " models because: " + ex.getLocalizedMessage()
-					+ "\n Indexer: " + this;
+			final String errmsg = "Failed indexing models because: " + ex.getLocalizedMessage()
+					+ "\n Indexer: " + this
+					+ "\n Pipeline: " + pipeline;
 			throw new AdempiereException(errmsg, ex);
 		}
 	}
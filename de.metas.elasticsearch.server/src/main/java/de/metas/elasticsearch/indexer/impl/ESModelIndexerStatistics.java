@@ -0,0 +1,158 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.adempiere.util.jmx.JMXRegistry;
+import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
+
+/*
+ * #%L
+ * de.metas.elasticsearch.server
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Indexing statistics of one Elasticsearch index.
+ * <p>
+ * The statistics are collected by {@link ESBulkIndexingPipeline} and are exposed by {@link JMXESModelIndexerStatistics}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class ESModelIndexerStatistics
+{
+	private static final ConcurrentHashMap<String, ESModelIndexerStatistics> statisticsByIndexName = new ConcurrentHashMap<>();
+
+	static
+	{
+		JMXRegistry.get().registerJMX(new JMXESModelIndexerStatistics(), OnJMXAlreadyExistsPolicy.Replace);
+	}
+
+	public static ESModelIndexerStatistics getOrCreate(final String indexName)
+	{
+		return statisticsByIndexName.computeIfAbsent(indexName, ESModelIndexerStatistics::new);
+	}
+
+	/** @return all statistics, ordered by index name */
+	public static List<ESModelIndexerStatistics> getAll()
+	{
+		final List<ESModelIndexerStatistics> statistics = new ArrayList<>(statisticsByIndexName.values());
+		statistics.sort(Comparator.comparing(ESModelIndexerStatistics::getIndexName));
+		return statistics;
+	}
+
+	public static void resetAll()
+	{
+		statisticsByIndexName.values().forEach(ESModelIndexerStatistics::reset);
+	}
+
+	private final String indexName;
+	private final LongAdder countIndexed = new LongAdder();
+	private final LongAdder countFailures = new LongAdder();
+	private final LongAdder countBulkRequests = new LongAdder();
+	private final LongAdder bulkRequestsMillis = new LongAdder();
+	private final LongAdder totalMillis = new LongAdder();
+	private volatile long lastRunDocumentsPerSecond = 0;
+
+	private ESModelIndexerStatistics(final String indexName)
+	{
+		this.indexName = indexName;
+	}
+
+	@Override
+	public String toString()
+	{
+		final long countBulkRequests = getBulkRequestsCount();
+		final long avgBulkRequestMillis = countBulkRequests > 0 ? getBulkRequestsMillis() / countBulkRequests : 0;
+
+		return indexName
+				+ ": indexed=" + getIndexedCount()
+				+ ", failures=" + getFailuresCount()
+				+ ", docsPerSecond=" + getDocumentsPerSecond()
+				+ ", lastRunDocsPerSecond=" + getLastRunDocumentsPerSecond()
+				+ ", bulkRequests=" + countBulkRequests
+				+ ", avgBulkRequestMillis=" + avgBulkRequestMillis;
+	}
+
+	/* package */ void recordBulkRequest(final int countOK, final int countFailures, final long durationMillis)
+	{
+		countIndexed.add(countOK);
+		this.countFailures.add(countFailures);
+		countBulkRequests.increment();
+		bulkRequestsMillis.add(durationMillis);
+	}
+
+	/* package */ void recordRun(final ESBulkIndexerResult result)
+	{
+		totalMillis.add(result.getDurationInMillis());
+		lastRunDocumentsPerSecond = result.getDocumentsPerSecond();
+	}
+
+	public String getIndexName()
+	{
+		return indexName;
+	}
+
+	public long getIndexedCount()
+	{
+		return countIndexed.sum();
+	}
+
+	public long getFailuresCount()
+	{
+		return countFailures.sum();
+	}
+
+	public long getBulkRequestsCount()
+	{
+		return countBulkRequests.sum();
+	}
+
+	public long getBulkRequestsMillis()
+	{
+		return bulkRequestsMillis.sum();
+	}
+
+	/** @return indexed documents per second, over all indexing runs since the statistics were reset */
+	public long getDocumentsPerSecond()
+	{
+		final long totalMillis = Math.max(this.totalMillis.sum(), 1);
+		return getIndexedCount() * TimeUnit.SECONDS.toMillis(1) / totalMillis;
+	}
+
+	public long getLastRunDocumentsPerSecond()
+	{
+		return lastRunDocumentsPerSecond;
+	}
+
+	private void reset()
+	{
+		countIndexed.reset();
+		countFailures.reset();
+		countBulkRequests.reset();
+		bulkRequestsMillis.reset();
+		totalMillis.reset();
+		lastRunDocumentsPerSecond = 0;
+	}
+}
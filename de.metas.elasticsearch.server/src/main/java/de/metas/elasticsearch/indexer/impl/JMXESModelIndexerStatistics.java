@@ -0,0 +1,80 @@
+package de.metas.elasticsearch.indexer.impl;
+
+/*
+ * #%L
+ * de.metas.elasticsearch.server
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import org.adempiere.util.jmx.IJMXNameAware;
+
+/**
+ * JMX bean for Elasticsearch indexing statistics (implementation).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class JMXESModelIndexerStatistics implements JMXESModelIndexerStatisticsMBean, IJMXNameAware
+{
+	private static final String JMX_NAME = "de.metas.elasticsearch:type=ModelIndexerStatistics";
+
+	/* package */ JMXESModelIndexerStatistics()
+	{
+		super();
+	}
+
+	@Override
+	public String getJMXName()
+	{
+		return JMX_NAME;
+	}
+
+	@Override
+	public String[] getStatistics()
+	{
+		return ESModelIndexerStatistics.getAll()
+				.stream()
+				.map(ESModelIndexerStatistics::toString)
+				.toArray(String[]::new);
+	}
+
+	@Override
+	public long getTotalIndexedCount()
+	{
+		return ESModelIndexerStatistics.getAll()
+				.stream()
+				.mapToLong(ESModelIndexerStatistics::getIndexedCount)
+				.sum();
+	}
+
+	@Override
+	public long getTotalFailuresCount()
+	{
+		return ESModelIndexerStatistics.getAll()
+				.stream()
+				.mapToLong(ESModelIndexerStatistics::getFailuresCount)
+				.sum();
+	}
+
+	@Override
+	public void resetStatistics()
+	{
+		ESModelIndexerStatistics.resetAll();
+	}
+}
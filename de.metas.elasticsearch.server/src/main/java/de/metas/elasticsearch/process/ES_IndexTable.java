@@ -10,6 +10,7 @@ import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.dao.IQueryFilter;
 import org.adempiere.ad.dao.impl.TypedSqlQueryFilter;
+import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
@@ -155,7 +156,9 @@ public class ES_IndexTable extends JavaProcess
 			triggerFilters.addFilter(filter);
 		}
 
-		final IQueryBuilder<Object> queryBuilder = queryBL.createQueryBuilder(modelTableName, this)
+		// NOTE: we are retrieving the models out of transaction,
+		// so that they (and the models they are referencing) can be denormalized in parallel, each on its own connection.
+		final IQueryBuilder<Object> queryBuilder = queryBL.createQueryBuilder(modelTableName, getCtx(), ITrx.TRXNAME_None)
 				.filter(triggerFilters);
 
 		if (!Check.isEmpty(p_WhereClause, true))
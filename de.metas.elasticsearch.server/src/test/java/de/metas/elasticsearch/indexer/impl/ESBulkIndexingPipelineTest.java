@@ -0,0 +1,166 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import java.util.Iterator;
+import java.util.stream.IntStream;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableMap;
+
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+
+/*
+ * #%L
+ * de.metas.elasticsearch.server
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Runs the pipeline against an embedded, local Elasticsearch node.
+ */
+public class ESBulkIndexingPipelineTest
+{
+	private static final String INDEX_NAME = "test_pipeline";
+	private static final String INDEX_TYPE = "doc";
+
+	@Rule
+	public final TemporaryFolder dataFolder = new TemporaryFolder();
+
+	private Node node;
+	private Client client;
+
+	@Before
+	public void init()
+	{
+		node = NodeBuilder.nodeBuilder()
+				.local(true)
+				.settings(Settings.settingsBuilder()
+						.put("path.home", dataFolder.getRoot().getAbsolutePath())
+						.put("http.enabled", false))
+				.node();
+		client = node.client();
+	}
+
+	@After
+	public void close()
+	{
+		if (node != null)
+		{
+			node.close();
+		}
+	}
+
+	private ESBulkIndexingPipeline.Builder newPipeline()
+	{
+		return ESBulkIndexingPipeline.builder()
+				.setClient(client)
+				.setIndexName(INDEX_NAME)
+				.setIndexRequestFactory(this::createIndexRequest)
+				.setBulkActions(7)
+				.setMaxInFlightRequests(2)
+				.setThreadsCount(3)
+				.setPrefetchSize(5);
+	}
+
+	private IndexRequest createIndexRequest(final Object model)
+	{
+		final int id = (Integer)model;
+		if (id == 13)
+		{
+			throw new AdempiereException("Failed denormalizing " + id);
+		}
+
+		return client.prepareIndex(INDEX_NAME, INDEX_TYPE, String.valueOf(id))
+				.setSource(ImmutableMap.of("id", id, "name", "Document " + id))
+				.request();
+	}
+
+	private long countIndexedDocuments()
+	{
+		client.admin().indices().prepareRefresh(INDEX_NAME).get();
+		return client.prepareSearch(INDEX_NAME)
+				.setSize(0)
+				.get()
+				.getHits()
+				.getTotalHits();
+	}
+
+	private static Iterator<Object> models(final int count)
+	{
+		return IntStream.rangeClosed(1, count).<Object> mapToObj(Integer::valueOf).iterator();
+	}
+
+	@Test
+	public void test_IndexInBulks()
+	{
+		final ESBulkIndexerResult result = (ESBulkIndexerResult)newPipeline().build().index(models(100));
+
+		Assert.assertEquals(100, result.getTotalCount());
+		Assert.assertEquals(99, result.getOKCount());
+		Assert.assertEquals(1, result.getFailuresCount());
+		Assert.assertTrue(result.getFailureMessage().contains("Failed denormalizing 13"));
+		Assert.assertEquals("bulk requests", 15, result.getBulkRequestsCount()); // 99 actions, 7 per bulk
+		Assert.assertEquals(99, countIndexedDocuments());
+	}
+
+	@Test
+	public void test_IndexOnCallingThread_SyncBulkRequests()
+	{
+		final IESIndexerResult result = newPipeline()
+				.setThreadsCount(1)
+				.setMaxInFlightRequests(0)
+				.build()
+				.index(models(20));
+
+		Assert.assertEquals(20, result.getTotalCount());
+		Assert.assertEquals(1, result.getFailuresCount());
+		Assert.assertEquals(19, countIndexedDocuments());
+	}
+
+	@Test
+	public void test_NoModels()
+	{
+		final IESIndexerResult result = newPipeline().build().index(models(0));
+		Assert.assertSame(IESIndexerResult.NULL, result);
+	}
+
+	@Test
+	public void test_Statistics()
+	{
+		final ESModelIndexerStatistics statistics = ESModelIndexerStatistics.getOrCreate(INDEX_NAME);
+		final long indexedBefore = statistics.getIndexedCount();
+		final long failuresBefore = statistics.getFailuresCount();
+
+		newPipeline().build().index(models(30));
+
+		Assert.assertEquals(29, statistics.getIndexedCount() - indexedBefore);
+		Assert.assertEquals(1, statistics.getFailuresCount() - failuresBefore);
+	}
+}
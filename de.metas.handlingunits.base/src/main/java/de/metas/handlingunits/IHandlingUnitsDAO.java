@@ -360,6 +360,26 @@ public interface IHandlingUnitsDAO extends ISingletonService
 	 */
 	List<I_M_HU> retrieveChildHUsForItem(I_M_HU_Item parentItem);
 
+	/**
+	 * Loads the given top level HUs together with their whole hierarchy, i.e. items, included HUs, HU storages, HU item storages and HU attributes.
+	 * <p>
+	 * The hierarchy is loaded level by level, with a constant number of queries per level (no matter how many HUs there are).
+	 * When the returned HUs are iterated (e.g. using an HU iterator), their items, included HUs, storages and attributes are retrieved the first time without going to database.
+	 *
+	 * @param ctx
+	 * @param topLevelHUIds
+	 * @param trxName
+	 * @return top level HUs, ordered by M_HU_ID
+	 */
+	List<I_M_HU> retrieveHUTrees(Properties ctx, Collection<Integer> topLevelHUIds, String trxName);
+
+	/**
+	 * Same as {@link #retrieveHUTrees(Properties, Collection, String)}, but for HUs which were already loaded.
+	 *
+	 * @param topLevelHUs HUs which all have the same context and transaction
+	 */
+	void prefetchHUTrees(List<I_M_HU> topLevelHUs);
+
 	/**
 	 * Retrieve all the warehouses that contain the HUs in the given list
 	 * 
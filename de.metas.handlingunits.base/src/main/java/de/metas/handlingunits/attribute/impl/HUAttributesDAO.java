@@ -36,6 +36,7 @@ import org.adempiere.util.lang.NullAutoCloseable;
 import org.compiere.model.I_M_Attribute;
 
 import de.metas.handlingunits.attribute.IHUAttributesDAO;
+import de.metas.handlingunits.impl.HUPrefetchedRecords;
 import de.metas.handlingunits.model.I_M_HU;
 import de.metas.handlingunits.model.I_M_HU_Attribute;
 
@@ -77,6 +78,12 @@ public final class HUAttributesDAO implements IHUAttributesDAO
 	public List<I_M_HU_Attribute> retrieveAttributesOrdered(final I_M_HU hu)
 	{
 		// NOTE: don't cache on this level. Caching is handled on upper levels
+		// ...but use the records which were bulk-loaded together with the HU hierarchy, if any
+		final List<I_M_HU_Attribute> prefetchedHUAttributes = HUPrefetchedRecords.pollAttributes(hu);
+		if (prefetchedHUAttributes != null)
+		{
+			return prefetchedHUAttributes;
+		}
 
 		// there are only some dozen attributes at most, so i think it'S fine to order them after loading
 		final List<I_M_HU_Attribute> huAttributes = Services.get(IQueryBL.class).createQueryBuilder(I_M_HU_Attribute.class, hu)
@@ -159,6 +159,12 @@ public final class HUAndItemsDAO extends AbstractHUAndItemsDAO
 	@Override
 	public List<I_M_HU> retrieveIncludedHUs(final I_M_HU_Item item)
 	{
+		final List<I_M_HU> prefetchedIncludedHUs = HUPrefetchedRecords.pollIncludedHUs(item);
+		if (prefetchedIncludedHUs != null)
+		{
+			return prefetchedIncludedHUs;
+		}
+
 		final IncludedHUsLocalCache includedHUsCache = IncludedHUsLocalCache.getCreate(item);
 		return includedHUsCache.getItems();
 	}
@@ -166,6 +172,12 @@ public final class HUAndItemsDAO extends AbstractHUAndItemsDAO
 	@Override
 	public List<I_M_HU_Item> retrieveItems(final I_M_HU hu)
 	{
+		final List<I_M_HU_Item> prefetchedItems = HUPrefetchedRecords.pollItems(hu);
+		if (prefetchedItems != null)
+		{
+			return prefetchedItems;
+		}
+
 		final HUItemsLocalCache huItemsCache = HUItemsLocalCache.getCreate(hu);
 		return huItemsCache.getItems();
 	}
@@ -0,0 +1,276 @@
+package de.metas.handlingunits.impl;
+
+/*
+ * #%L
+ * de.metas.handlingunits.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.model.IContextAware;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.model.PlainContextAware;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+
+import de.metas.handlingunits.model.I_M_HU;
+import de.metas.handlingunits.model.I_M_HU_Attribute;
+import de.metas.handlingunits.model.I_M_HU_Item;
+import de.metas.handlingunits.model.I_M_HU_Item_Storage;
+import de.metas.handlingunits.model.I_M_HU_Storage;
+import lombok.NonNull;
+
+/**
+ * Holds records which were bulk-loaded by {@link HUTreeLoader} and attaches them to their parent model (as dynamic attribute).
+ * <p>
+ * The DAOs which are retrieving the children of an HU or HU item are first asking this class.
+ * The prefetched records are handed out only <b>once</b>; after that, the DAO is retrieving them as usual (from its own cache or from the database).
+ * <p>
+ * Prefetched records are discarded if
+ * <ul>
+ * <li>any of the parent's children was created, changed or deleted after prefetching (see {@link HUPrefetchedRecordsInvalidator}). The changes are tracked by parent ID, because the changed child usually doesn't know the parent model instance which holds the prefetched records.
+ * <li>the parent model's context or transaction has changed, or if the parent model was reloaded meanwhile.
+ * </ul>
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class HUPrefetchedRecords
+{
+	private static final String DYNATTR_Items = HUPrefetchedRecords.class.getName() + ".Items";
+	private static final String DYNATTR_IncludedHUs = HUPrefetchedRecords.class.getName() + ".IncludedHUs";
+	private static final String DYNATTR_Storages = HUPrefetchedRecords.class.getName() + ".Storages";
+	private static final String DYNATTR_ItemStorages = HUPrefetchedRecords.class.getName() + ".ItemStorages";
+	private static final String DYNATTR_Attributes = HUPrefetchedRecords.class.getName() + ".Attributes";
+
+	/** Increased on each change; prefetched records remember the version from before they were loaded. */
+	private static final AtomicLong version = new AtomicLong(0);
+
+	/**
+	 * The highest version which was evicted from {@link #changeVersionsByParentKey}.
+	 * Records which were prefetched before that version are discarded, because we don't know anymore if their parent was changed.
+	 */
+	private static final AtomicLong evictedChangeVersion = new AtomicLong(0);
+
+	/** Parent key (see {@link #mkParentKey(String, int)}) to the version of its last change. Only the most recent changes are kept. */
+	private static final Cache<String, Long> changeVersionsByParentKey = CacheBuilder.newBuilder()
+			.maximumSize(10000)
+			.removalListener((RemovalListener<String, Long>)notification -> {
+				if (notification.wasEvicted())
+				{
+					evictedChangeVersion.accumulateAndGet(notification.getValue(), Math::max);
+				}
+			})
+			.build();
+
+	private HUPrefetchedRecords()
+	{
+	}
+
+	/** @return the version to be passed to the <code>set*</code> methods; to be called <b>before</b> the records are loaded */
+	/* package */ static long getCurrentVersion()
+	{
+		return version.get();
+	}
+
+	/* package */ static void setItems(final I_M_HU hu, final List<I_M_HU_Item> items, final long prefetchVersion)
+	{
+		set(hu, DYNATTR_Items, items, prefetchVersion);
+	}
+
+	/** @return prefetched items of given HU or <code>null</code> */
+	public static List<I_M_HU_Item> pollItems(final I_M_HU hu)
+	{
+		return poll(hu, DYNATTR_Items);
+	}
+
+	/* package */ static void invalidateItems(final int huId)
+	{
+		invalidate(DYNATTR_Items, huId);
+	}
+
+	/* package */ static void setIncludedHUs(final I_M_HU_Item huItem, final List<I_M_HU> includedHUs, final long prefetchVersion)
+	{
+		set(huItem, DYNATTR_IncludedHUs, includedHUs, prefetchVersion);
+	}
+
+	/** @return prefetched included HUs of given HU item or <code>null</code> */
+	public static List<I_M_HU> pollIncludedHUs(final I_M_HU_Item huItem)
+	{
+		return poll(huItem, DYNATTR_IncludedHUs);
+	}
+
+	/* package */ static void invalidateIncludedHUs(final int huItemId)
+	{
+		invalidate(DYNATTR_IncludedHUs, huItemId);
+	}
+
+	/* package */ static void setStorages(final I_M_HU hu, final List<I_M_HU_Storage> storages, final long prefetchVersion)
+	{
+		set(hu, DYNATTR_Storages, storages, prefetchVersion);
+	}
+
+	/** @return prefetched storages of given HU or <code>null</code> */
+	public static List<I_M_HU_Storage> pollStorages(final I_M_HU hu)
+	{
+		return poll(hu, DYNATTR_Storages);
+	}
+
+	/* package */ static void invalidateStorages(final int huId)
+	{
+		invalidate(DYNATTR_Storages, huId);
+	}
+
+	/* package */ static void setItemStorages(final I_M_HU_Item huItem, final List<I_M_HU_Item_Storage> itemStorages, final long prefetchVersion)
+	{
+		set(huItem, DYNATTR_ItemStorages, itemStorages, prefetchVersion);
+	}
+
+	/** @return prefetched storages of given HU item or <code>null</code> */
+	public static List<I_M_HU_Item_Storage> pollItemStorages(final I_M_HU_Item huItem)
+	{
+		return poll(huItem, DYNATTR_ItemStorages);
+	}
+
+	/* package */ static void invalidateItemStorages(final int huItemId)
+	{
+		invalidate(DYNATTR_ItemStorages, huItemId);
+	}
+
+	/* package */ static void setAttributes(final I_M_HU hu, final List<I_M_HU_Attribute> attributes, final long prefetchVersion)
+	{
+		set(hu, DYNATTR_Attributes, attributes, prefetchVersion);
+	}
+
+	/** @return prefetched attributes of given HU (ordered by SeqNo) or <code>null</code> */
+	public static List<I_M_HU_Attribute> pollAttributes(final I_M_HU hu)
+	{
+		return poll(hu, DYNATTR_Attributes);
+	}
+
+	/* package */ static void invalidateAttributes(final int huId)
+	{
+		invalidate(DYNATTR_Attributes, huId);
+	}
+
+	private static <T> void set(@NonNull final Object parentModel, final String dynAttributeName, @NonNull final List<T> records, final long prefetchVersion)
+	{
+		final PrefetchedRecords<T> prefetchedRecords = new PrefetchedRecords<>(createPlainContextAware(parentModel), InterfaceWrapperHelper.getLoadCount(parentModel), prefetchVersion, records);
+		InterfaceWrapperHelper.setDynAttribute(parentModel, dynAttributeName, prefetchedRecords);
+	}
+
+	private static <T> List<T> poll(@NonNull final Object parentModel, final String dynAttributeName)
+	{
+		final PrefetchedRecords<T> prefetchedRecords = InterfaceWrapperHelper.getDynAttribute(parentModel, dynAttributeName);
+		if (prefetchedRecords == null)
+		{
+			return null;
+		}
+
+		// hand them out only once
+		InterfaceWrapperHelper.setDynAttribute(parentModel, dynAttributeName, null);
+
+		if (isChangedSince(mkParentKey(dynAttributeName, InterfaceWrapperHelper.getId(parentModel)), prefetchedRecords.getPrefetchVersion()))
+		{
+			return null;
+		}
+		if (!prefetchedRecords.getCtx().equals(createPlainContextAware(parentModel)))
+		{
+			return null;
+		}
+		if (prefetchedRecords.getParentModelLoadCount() != InterfaceWrapperHelper.getLoadCount(parentModel))
+		{
+			return null;
+		}
+
+		return new ArrayList<>(prefetchedRecords.getRecords());
+	}
+
+	private static void invalidate(final String dynAttributeName, final int parentId)
+	{
+		if (parentId <= 0)
+		{
+			return;
+		}
+		changeVersionsByParentKey.put(mkParentKey(dynAttributeName, parentId), version.incrementAndGet());
+	}
+
+	private static boolean isChangedSince(final String parentKey, final long prefetchVersion)
+	{
+		if (evictedChangeVersion.get() > prefetchVersion)
+		{
+			return true;
+		}
+
+		final Long changeVersion = changeVersionsByParentKey.getIfPresent(parentKey);
+		return changeVersion != null && changeVersion > prefetchVersion;
+	}
+
+	private static String mkParentKey(final String dynAttributeName, final int parentId)
+	{
+		return dynAttributeName + "#" + parentId;
+	}
+
+	private static PlainContextAware createPlainContextAware(final Object model)
+	{
+		final IContextAware contextAware = InterfaceWrapperHelper.getContextAware(model);
+		return PlainContextAware.newCopy(contextAware);
+	}
+
+	private static final class PrefetchedRecords<T>
+	{
+		private final PlainContextAware ctx;
+		private final int parentModelLoadCount;
+		private final long prefetchVersion;
+		private final List<T> records;
+
+		private PrefetchedRecords(final PlainContextAware ctx, final int parentModelLoadCount, final long prefetchVersion, final List<T> records)
+		{
+			this.ctx = ctx;
+			this.parentModelLoadCount = parentModelLoadCount;
+			this.prefetchVersion = prefetchVersion;
+			this.records = records;
+		}
+
+		public PlainContextAware getCtx()
+		{
+			return ctx;
+		}
+
+		public int getParentModelLoadCount()
+		{
+			return parentModelLoadCount;
+		}
+
+		public long getPrefetchVersion()
+		{
+			return prefetchVersion;
+		}
+
+		public List<T> getRecords()
+		{
+			return records;
+		}
+	}
+}
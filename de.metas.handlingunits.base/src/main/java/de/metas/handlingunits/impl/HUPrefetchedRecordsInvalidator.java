@@ -0,0 +1,103 @@
+package de.metas.handlingunits.impl;
+
+/*
+ * #%L
+ * de.metas.handlingunits.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import org.adempiere.ad.modelvalidator.AbstractModelInterceptor;
+import org.adempiere.ad.modelvalidator.IModelValidationEngine;
+import org.adempiere.ad.modelvalidator.ModelChangeType;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.compiere.model.I_AD_Client;
+
+import de.metas.handlingunits.model.I_M_HU;
+import de.metas.handlingunits.model.I_M_HU_Attribute;
+import de.metas.handlingunits.model.I_M_HU_Item;
+import de.metas.handlingunits.model.I_M_HU_Item_Storage;
+import de.metas.handlingunits.model.I_M_HU_Storage;
+
+/**
+ * Discards the {@link HUPrefetchedRecords} of an HU or HU item when one of its children is created, changed or deleted.
+ * <p>
+ * This covers all the ways in which HU children are changed (e.g. {@link de.metas.handlingunits.IHandlingUnitsDAO#createHUItem(I_M_HU, de.metas.handlingunits.model.I_M_HU_PI_Item)},
+ * {@link de.metas.handlingunits.IHandlingUnitsDAO#setParentItem(I_M_HU, I_M_HU_Item)}, the storage and attribute DAOs, but also plain saves).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class HUPrefetchedRecordsInvalidator extends AbstractModelInterceptor
+{
+	public static final HUPrefetchedRecordsInvalidator INSTANCE = new HUPrefetchedRecordsInvalidator();
+
+	private HUPrefetchedRecordsInvalidator()
+	{
+	}
+
+	@Override
+	protected void onInit(final IModelValidationEngine engine, final I_AD_Client client)
+	{
+		engine.addModelChange(I_M_HU.Table_Name, this);
+		engine.addModelChange(I_M_HU_Item.Table_Name, this);
+		engine.addModelChange(I_M_HU_Storage.Table_Name, this);
+		engine.addModelChange(I_M_HU_Item_Storage.Table_Name, this);
+		engine.addModelChange(I_M_HU_Attribute.Table_Name, this);
+	}
+
+	/**
+	 * Invalidates before the change is saved, so that nobody gets stale records while saving, and again after it was saved, to also discard what was prefetched in the meantime.
+	 */
+	@Override
+	public void onModelChange(final Object model, final ModelChangeType changeType)
+	{
+		final String tableName = InterfaceWrapperHelper.getModelTableName(model);
+		if (I_M_HU.Table_Name.equals(tableName))
+		{
+			// the included HUs of the parent item contain the HU record itself, so any change of the HU makes them stale
+			final I_M_HU hu = InterfaceWrapperHelper.create(model, I_M_HU.class);
+			HUPrefetchedRecords.invalidateIncludedHUs(hu.getM_HU_Item_Parent_ID());
+			if (changeType.isChange())
+			{
+				HUPrefetchedRecords.invalidateIncludedHUs(InterfaceWrapperHelper.createOld(hu, I_M_HU.class).getM_HU_Item_Parent_ID());
+			}
+		}
+		else if (I_M_HU_Item.Table_Name.equals(tableName))
+		{
+			final I_M_HU_Item huItem = InterfaceWrapperHelper.create(model, I_M_HU_Item.class);
+			HUPrefetchedRecords.invalidateItems(huItem.getM_HU_ID());
+			if (changeType.isChange())
+			{
+				HUPrefetchedRecords.invalidateItems(InterfaceWrapperHelper.createOld(huItem, I_M_HU_Item.class).getM_HU_ID());
+			}
+		}
+		else if (I_M_HU_Storage.Table_Name.equals(tableName))
+		{
+			HUPrefetchedRecords.invalidateStorages(InterfaceWrapperHelper.create(model, I_M_HU_Storage.class).getM_HU_ID());
+		}
+		else if (I_M_HU_Item_Storage.Table_Name.equals(tableName))
+		{
+			HUPrefetchedRecords.invalidateItemStorages(InterfaceWrapperHelper.create(model, I_M_HU_Item_Storage.class).getM_HU_Item_ID());
+		}
+		else if (I_M_HU_Attribute.Table_Name.equals(tableName))
+		{
+			HUPrefetchedRecords.invalidateAttributes(InterfaceWrapperHelper.create(model, I_M_HU_Attribute.class).getM_HU_ID());
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package de.metas.handlingunits.impl;
+
+/*
+ * #%L
+ * de.metas.handlingunits.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.dao.IQueryBuilder;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.GuavaCollectors;
+import org.adempiere.util.Services;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+
+import de.metas.handlingunits.IHandlingUnitsDAO;
+import de.metas.handlingunits.attribute.impl.HUAttributesBySeqNoComparator;
+import de.metas.handlingunits.model.I_M_HU;
+import de.metas.handlingunits.model.I_M_HU_Attribute;
+import de.metas.handlingunits.model.I_M_HU_Item;
+import de.metas.handlingunits.model.I_M_HU_Item_Storage;
+import de.metas.handlingunits.model.I_M_HU_Storage;
+import lombok.NonNull;
+
+/**
+ * Loads whole HU hierarchies (HUs, items, storages, item storages and attributes) in bulk and attaches the records to their parents using {@link HUPrefetchedRecords}.
+ * <p>
+ * The hierarchy is loaded level by level (e.g. LUs, then TUs, then VHUs), with 5 queries per level, no matter how many HUs there are on that level.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */ final class HUTreeLoader
+{
+	private static final int IN_ARRAY_ChunkSize = 1000;
+
+	/** Safety net, HU hierarchies are usually 3 levels deep (LU, TU, VHU) */
+	private static final int MAX_LEVELS = 100;
+
+	private final IQueryBL queryBL = Services.get(IQueryBL.class);
+
+	public List<I_M_HU> retrieveHUTrees(final Properties ctx, final Collection<Integer> topLevelHUIds, final String trxName)
+	{
+		if (topLevelHUIds.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		final List<I_M_HU> topLevelHUs = new ArrayList<>(topLevelHUIds.size());
+		for (final List<Integer> huIdsChunk : Iterables.partition(topLevelHUIds, IN_ARRAY_ChunkSize))
+		{
+			topLevelHUs.addAll(queryBL.createQueryBuilder(I_M_HU.class, ctx, trxName)
+					.addInArrayFilter(I_M_HU.COLUMN_M_HU_ID, huIdsChunk)
+					.orderBy().addColumn(I_M_HU.COLUMN_M_HU_ID).endOrderBy()
+					.create()
+					.list(I_M_HU.class));
+		}
+
+		prefetchHUTrees(topLevelHUs);
+		return topLevelHUs;
+	}
+
+	public void prefetchHUTrees(@NonNull final List<I_M_HU> topLevelHUs)
+	{
+		// changes which are made while we are loading shall discard what we prefetched
+		final long prefetchVersion = HUPrefetchedRecords.getCurrentVersion();
+
+		List<I_M_HU> hus = topLevelHUs;
+		for (int level = 1; !hus.isEmpty() && level <= MAX_LEVELS; level++)
+		{
+			hus = prefetchLevel(hus, prefetchVersion);
+		}
+	}
+
+	/**
+	 * Prefetches the children of given HUs.
+	 *
+	 * @return the included HUs, i.e. the HUs of the next level
+	 */
+	private List<I_M_HU> prefetchLevel(final List<I_M_HU> hus, final long prefetchVersion)
+	{
+		final Map<Integer, I_M_HU> husById = mapById(hus, I_M_HU::getM_HU_ID);
+		final I_M_HU contextProvider = hus.get(0);
+
+		//
+		// HU items (only active ones; see HUItemsLocalCache)
+		final ListMultimap<Integer, I_M_HU_Item> itemsByHUId = retrieveByParentIds(I_M_HU_Item.class, contextProvider, I_M_HU_Item.COLUMNNAME_M_HU_ID, husById.keySet(), true, I_M_HU_Item::getM_HU_ID);
+		final List<I_M_HU_Item> allItems = new ArrayList<>();
+		for (final I_M_HU hu : hus)
+		{
+			final List<I_M_HU_Item> items = new ArrayList<>(itemsByHUId.get(hu.getM_HU_ID()));
+			items.forEach(item -> item.setM_HU(hu));
+			Collections.sort(items, IHandlingUnitsDAO.HU_ITEMS_COMPARATOR);
+			HUPrefetchedRecords.setItems(hu, items, prefetchVersion);
+			allItems.addAll(items);
+		}
+
+		//
+		// HU storages
+		final ListMultimap<Integer, I_M_HU_Storage> storagesByHUId = retrieveByParentIds(I_M_HU_Storage.class, contextProvider, I_M_HU_Storage.COLUMNNAME_M_HU_ID, husById.keySet(), true, I_M_HU_Storage::getM_HU_ID);
+		for (final I_M_HU hu : hus)
+		{
+			final List<I_M_HU_Storage> storages = new ArrayList<>(storagesByHUId.get(hu.getM_HU_ID()));
+			storages.forEach(storage -> storage.setM_HU(hu));
+			HUPrefetchedRecords.setStorages(hu, storages, prefetchVersion);
+		}
+
+		//
+		// HU attributes
+		final ListMultimap<Integer, I_M_HU_Attribute> attributesByHUId = retrieveByParentIds(I_M_HU_Attribute.class, contextProvider, I_M_HU_Attribute.COLUMNNAME_M_HU_ID, husById.keySet(), true, I_M_HU_Attribute::getM_HU_ID);
+		for (final I_M_HU hu : hus)
+		{
+			final List<I_M_HU_Attribute> attributes = new ArrayList<>(attributesByHUId.get(hu.getM_HU_ID()));
+			attributes.forEach(attribute -> attribute.setM_HU(hu));
+			Collections.sort(attributes, HUAttributesBySeqNoComparator.instance);
+			HUPrefetchedRecords.setAttributes(hu, attributes, prefetchVersion);
+		}
+
+		if (allItems.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+		final Map<Integer, I_M_HU_Item> itemsById = mapById(allItems, I_M_HU_Item::getM_HU_Item_ID);
+
+		//
+		// HU item storages
+		final ListMultimap<Integer, I_M_HU_Item_Storage> itemStoragesByItemId = retrieveByParentIds(I_M_HU_Item_Storage.class, contextProvider, I_M_HU_Item_Storage.COLUMNNAME_M_HU_Item_ID, itemsById.keySet(), true, I_M_HU_Item_Storage::getM_HU_Item_ID);
+		for (final I_M_HU_Item item : allItems)
+		{
+			final List<I_M_HU_Item_Storage> itemStorages = new ArrayList<>(itemStoragesByItemId.get(item.getM_HU_Item_ID()));
+			itemStorages.forEach(itemStorage -> itemStorage.setM_HU_Item(item));
+			HUPrefetchedRecords.setItemStorages(item, itemStorages, prefetchVersion);
+		}
+
+		//
+		// Included HUs; also the inactive ones (see IncludedHUsLocalCache)
+		final ListMultimap<Integer, I_M_HU> includedHUsByItemId = retrieveByParentIds(I_M_HU.class, contextProvider, I_M_HU.COLUMNNAME_M_HU_Item_Parent_ID, itemsById.keySet(), false, I_M_HU::getM_HU_Item_Parent_ID);
+		final List<I_M_HU> allIncludedHUs = new ArrayList<>();
+		for (final I_M_HU_Item item : allItems)
+		{
+			final List<I_M_HU> includedHUs = new ArrayList<>(includedHUsByItemId.get(item.getM_HU_Item_ID()));
+			includedHUs.forEach(includedHU -> includedHU.setM_HU_Item_Parent(item));
+			HUPrefetchedRecords.setIncludedHUs(item, includedHUs, prefetchVersion);
+			allIncludedHUs.addAll(includedHUs);
+		}
+
+		return allIncludedHUs;
+	}
+
+	/**
+	 * @return records grouped by parent ID; for each parent, the records are ordered by their primary key
+	 */
+	private <T> ListMultimap<Integer, T> retrieveByParentIds(
+			final Class<T> modelClass,
+			final Object contextProvider,
+			final String parentIdColumnName,
+			final Collection<Integer> parentIds,
+			final boolean onlyActive,
+			final Function<T, Integer> parentIdExtractor)
+	{
+		final String keyColumnName = InterfaceWrapperHelper.getKeyColumnName(modelClass);
+
+		final ListMultimap<Integer, T> result = ArrayListMultimap.create();
+		for (final List<Integer> parentIdsChunk : Iterables.partition(parentIds, IN_ARRAY_ChunkSize))
+		{
+			final IQueryBuilder<T> queryBuilder = queryBL.createQueryBuilder(modelClass, contextProvider)
+					.addInArrayFilter(parentIdColumnName, parentIdsChunk);
+			if (onlyActive)
+			{
+				queryBuilder.addOnlyActiveRecordsFilter();
+			}
+
+			queryBuilder.orderBy().addColumn(keyColumnName).endOrderBy()
+					.create()
+					.list(modelClass)
+					.forEach(record -> result.put(parentIdExtractor.apply(record), record));
+		}
+		return result;
+	}
+
+	private static <T> Map<Integer, T> mapById(final List<T> records, final Function<T, Integer> idExtractor)
+	{
+		return records.stream().collect(GuavaCollectors.toImmutableMapByKey(idExtractor));
+	}
+}
@@ -602,6 +602,22 @@ public class HandlingUnitsDAO implements IHandlingUnitsDAO
 				.iterate(I_M_HU.class);
 	}
 
+	@Override
+	public List<I_M_HU> retrieveHUTrees(final Properties ctx, @NonNull final Collection<Integer> topLevelHUIds, final String trxName)
+	{
+		return new HUTreeLoader().retrieveHUTrees(ctx, topLevelHUIds, trxName);
+	}
+
+	@Override
+	public void prefetchHUTrees(@NonNull final List<I_M_HU> topLevelHUs)
+	{
+		if (topLevelHUs.isEmpty())
+		{
+			return;
+		}
+		new HUTreeLoader().prefetchHUTrees(topLevelHUs);
+	}
+
 	@Override
 	public List<I_M_HU> retrieveChildHUsForItem(final I_M_HU_Item parentItem)
 	{
@@ -146,6 +146,9 @@ public final class Main extends AbstractModuleInterceptor
 
 		engine.addModelValidator(de.metas.handlingunits.hutransaction.interceptor.M_HU.INSTANCE, client);
 
+		// discard bulk-loaded HU children when they are changed
+		engine.addModelValidator(de.metas.handlingunits.impl.HUPrefetchedRecordsInvalidator.INSTANCE, client);
+
 		// #484 HU tracing
 		engine.addModelValidator(de.metas.handlingunits.trace.interceptor.HUTraceModuleInterceptor.INSTANCE, client);
 
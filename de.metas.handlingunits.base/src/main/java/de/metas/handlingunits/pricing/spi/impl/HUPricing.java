@@ -1,5 +1,6 @@
 package de.metas.handlingunits.pricing.spi.impl;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 import org.adempiere.ad.dao.impl.EqualsQueryFilter;
@@ -100,6 +101,21 @@ public class HUPricing extends AttributePricing
 		return Optional.of(productPrice);
 	}
 
+	/**
+	 * @return the super class's key plus the referenced object's M_HU_PI_Item_Product_ID
+	 */
+	@Override
+	public Object getReferencedObjectCacheKey(final IPricingContext pricingCtx)
+	{
+		final Object attributePricingKey = super.getReferencedObjectCacheKey(pricingCtx);
+		if (attributePricingKey == null || attributePricingKey == REFERENCEDOBJECT_CACHEKEY_NotCacheable)
+		{
+			return attributePricingKey;
+		}
+
+		return Arrays.asList(attributePricingKey, getM_HU_PI_Item_Product_ID(pricingCtx));
+	}
+
 	/**
 	 * Just calls the parent method and nothing else.
 	 * In particular, does not do anything special about the "HU price".
@@ -34,6 +34,7 @@ import org.compiere.model.I_C_UOM;
 import org.compiere.model.I_M_Product;
 
 import de.metas.handlingunits.exceptions.HUException;
+import de.metas.handlingunits.impl.HUPrefetchedRecords;
 import de.metas.handlingunits.model.I_M_HU;
 import de.metas.handlingunits.model.I_M_HU_Item;
 import de.metas.handlingunits.model.I_M_HU_Item_Storage;
@@ -85,6 +86,12 @@ public class HUStorageDAO extends AbstractHUStorageDAO
 	@Override
 	public List<I_M_HU_Storage> retrieveStorages(final I_M_HU hu)
 	{
+		final List<I_M_HU_Storage> prefetchedStorages = HUPrefetchedRecords.pollStorages(hu);
+		if (prefetchedStorages != null)
+		{
+			return prefetchedStorages;
+		}
+
 		final List<I_M_HU_Storage> huStorages = Services.get(IQueryBL.class)
 				.createQueryBuilder(I_M_HU_Storage.class, hu)
 				.filter(new EqualsQueryFilter<I_M_HU_Storage>(I_M_HU_Storage.COLUMNNAME_M_HU_ID, hu.getM_HU_ID()))
@@ -115,6 +122,12 @@ public class HUStorageDAO extends AbstractHUStorageDAO
 	@Override
 	public List<I_M_HU_Item_Storage> retrieveItemStorages(final I_M_HU_Item huItem)
 	{
+		final List<I_M_HU_Item_Storage> prefetchedItemStorages = HUPrefetchedRecords.pollItemStorages(huItem);
+		if (prefetchedItemStorages != null)
+		{
+			return prefetchedItemStorages;
+		}
+
 		final IQueryBuilder<I_M_HU_Item_Storage> queryBuilder = Services.get(IQueryBL.class)
 				.createQueryBuilder(I_M_HU_Item_Storage.class, huItem)
 				.filter(new EqualsQueryFilter<I_M_HU_Item_Storage>(I_M_HU_Item_Storage.COLUMNNAME_M_HU_Item_ID, huItem.getM_HU_Item_ID()));
@@ -1,6 +1,9 @@
 package de.metas.handlingunits.trace.repository;
 
 import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -8,21 +11,29 @@ import java.util.stream.Collectors;
 
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
+import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
+import org.adempiere.ad.dao.impl.TypedSqlQueryFilter;
 import org.adempiere.ad.model.util.ModelByIdComparator;
 import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
 import org.compiere.Adempiere;
 import org.compiere.model.IQuery;
 import org.compiere.util.TimeUtil;
+import org.slf4j.Logger;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 
 import de.metas.handlingunits.model.I_M_HU_Trace;
 import de.metas.handlingunits.trace.HUTraceEvent;
 import de.metas.handlingunits.trace.HUTraceEventQuery;
 import de.metas.handlingunits.trace.HUTraceEventQuery.RecursionMode;
+import de.metas.logging.LogManager;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 
@@ -51,6 +62,20 @@ import lombok.experimental.UtilityClass;
 @UtilityClass
 public class RetrieveDbRecordsUtil
 {
+	private static final transient Logger logger = LogManager.getLogger(RetrieveDbRecordsUtil.class);
+
+	/**
+	 * If {@code Y} (default), the recursive queries resolve all reachable VHUs with one {@code WITH RECURSIVE} SQL.
+	 * If {@code N}, they run one query per hop.
+	 */
+	private static final String SYSCONFIG_UseRecursiveSql = "de.metas.handlingunits.trace.repository.RetrieveDbRecordsUtil.UseRecursiveSql";
+
+	/** Max number of hops when the reachable VHUs are collected with one query per hop. */
+	private static final String SYSCONFIG_MaxRecursionDepth = "de.metas.handlingunits.trace.repository.RetrieveDbRecordsUtil.MaxRecursionDepth";
+	private static final int DEFAULT_MaxRecursionDepth = 1000;
+
+	private static final int IN_ARRAY_ChunkSize = 1000;
+
 	public static List<HUTraceEvent> query(@NonNull final HUTraceEventQuery query)
 	{
 		final ListResult resultOut = (ListResult)queryDbRecord(query, new ListResult());
@@ -239,15 +264,15 @@ public class RetrieveDbRecordsUtil
 			case NONE:
 				break;
 			case FORWARD:
-				resultOut.addAll(resurseForwards(noRecursiveResult));
+				resultOut.addAll(recurse(noRecursiveResult, RecursionMode.FORWARD));
 				break;
 			case BACKWARD:
 				// recurse and add the records whose M_HU_IDs show up as M_HU_Source_IDs in the records we already loaded
-				resultOut.addAll(recurseBackwards(noRecursiveResult));
+				resultOut.addAll(recurse(noRecursiveResult, RecursionMode.BACKWARD));
 				break;
 			case BOTH:
-				resultOut.addAll(resurseForwards(noRecursiveResult));
-				resultOut.addAll(recurseBackwards(noRecursiveResult));
+				resultOut.addAll(recurse(noRecursiveResult, RecursionMode.FORWARD));
+				resultOut.addAll(recurse(noRecursiveResult, RecursionMode.BACKWARD));
 				break;
 			default:
 				throw new AdempiereException("Unexpected RecursionMode=" + huTraceEventQuery.getRecursionMode())
@@ -382,51 +407,160 @@ public class RetrieveDbRecordsUtil
 		return false;
 	}
 
-	private Result recurseBackwards(@NonNull final Result resultIn)
+	/**
+	 * Loads the records of all VHUs that are reachable from the given {@code resultIn} in the given direction.
+	 * <p>
+	 * Forwards, those are the records whose {@code VHU_Source_ID}s are our {@code VHU_ID}s, the records whose {@code VHU_Source_ID}s are <i>their</i> {@code VHU_ID}s and so on.<br>
+	 * Backwards, those are the records whose {@code VHU_ID}s are our {@code VHU_Source_ID}s, and so on.
+	 * <p>
+	 * The VHU_IDs are resolved either by one {@code WITH RECURSIVE} SQL (see {@link #createRecursiveVhuIdsSql(Collection, RecursionMode)})
+	 * or by one query per hop (see {@link #retrieveReachableVhuIds(Collection, RecursionMode)}).
+	 * Either way, the records are then loaded with one single query, directly into the given result's list or selection.
+	 */
+	private Result recurse(@NonNull final Result resultIn, @NonNull final RecursionMode direction)
 	{
 		final Result resultOut = resultIn.newEmptyResult();
-		final List<Integer> vhuSourceIDs = resultIn.getVhuSourceIds();
-		for (final int vhuSourceId : vhuSourceIDs)
+
+		final List<Integer> startVhuIds = direction == RecursionMode.FORWARD ? resultIn.getVhuIds() : resultIn.getVhuSourceIds();
+		if (startVhuIds.isEmpty())
 		{
-			resultOut.addAll(queryDbRecord(HUTraceEventQuery
-					.builder()
-					.vhuId(vhuSourceId)
-					.recursionMode(RecursionMode.BACKWARD)
-					.build(),
-					resultIn));
+			return resultOut;
+		}
+
+		final IQueryBuilder<I_M_HU_Trace> queryBuilder = Services.get(IQueryBL.class).createQueryBuilder(I_M_HU_Trace.class)
+				.addOnlyActiveRecordsFilter();
+		if (isUseRecursiveSql())
+		{
+			final String sql = I_M_HU_Trace.COLUMNNAME_VHU_ID + " IN (" + createRecursiveVhuIdsSql(startVhuIds, direction) + ")";
+			queryBuilder.filter(TypedSqlQueryFilter.of(sql));
+		}
+		else
+		{
+			final Set<Integer> vhuIds = retrieveReachableVhuIds(startVhuIds, direction);
+			if (vhuIds.isEmpty())
+			{
+				return resultOut;
+			}
+			queryBuilder.addInArrayFilter(I_M_HU_Trace.COLUMN_VHU_ID, vhuIds);
 		}
+
+		final IQuery<I_M_HU_Trace> query = queryBuilder
+				.orderBy().addColumn(I_M_HU_Trace.COLUMN_EventTime).endOrderBy()
+				.create();
+		resultOut.executeQueryAndAddAll(query);
 		return resultOut;
 	}
 
-	private Result resurseForwards(@NonNull final Result resultIn)
+	private static boolean isUseRecursiveSql()
 	{
-		final Result resultOut = resultIn.newEmptyResult();
+		if (Adempiere.isUnitTestMode())
+		{
+			return false; // there is no database to run the SQL against
+		}
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_UseRecursiveSql, true);
+	}
 
-		final List<Integer> vhuIDs = resultIn.getVhuIds();
-		for (final int vhuId : vhuIDs)
+	/**
+	 * Creates an SQL which selects the {@code VHU_ID}s of all VHUs that are reachable from the given {@code startVhuIds}.
+	 * <p>
+	 * Note that we use {@code UNION} (and not {@code UNION ALL}), so every VHU_ID is expanded only once and the recursion also terminates if the trace graph has cycles.
+	 * The IDs are integers, so it's safe to add them to the SQL as literals; that way we don't run into the max number of parameters if there are many start IDs.
+	 */
+	@VisibleForTesting
+	static String createRecursiveVhuIdsSql(@NonNull final Collection<Integer> startVhuIds, @NonNull final RecursionMode direction)
+	{
+		Check.assumeNotEmpty(startVhuIds, "startVhuIds is not empty");
+		final String startVhuIdsList = Joiner.on(",").join(startVhuIds);
+
+		final String seedSql;
+		final String recursiveSql;
+		switch (direction)
 		{
-			// get the records where our M_HU_IDs are the M_HU_Source_IDs
-			final HUTraceEventQuery directFollowUpRecordsQuery = HUTraceEventQuery.builder()
-					.vhuSourceId(vhuId)
-					.recursionMode(RecursionMode.NONE)
-					.build();
-			final Result directFollowUpRecordsResult = queryDbRecord(directFollowUpRecordsQuery, resultIn);
+			case FORWARD:
+				// the VHUs that were created from our start VHUs, and then the ones that were created from those
+				seedSql = "SELECT t.VHU_ID FROM M_HU_Trace t WHERE t.IsActive='Y' AND t.VHU_Source_ID IN (" + startVhuIdsList + ")";
+				recursiveSql = "SELECT t.VHU_ID FROM M_HU_Trace t INNER JOIN vhus ON t.VHU_Source_ID=vhus.VHU_ID WHERE t.IsActive='Y'";
+				break;
+			case BACKWARD:
+				// our start VHUs (which are already source VHUs), and then the VHUs they were created from
+				seedSql = "SELECT unnest(ARRAY[" + startVhuIdsList + "]::numeric[])";
+				recursiveSql = "SELECT t.VHU_Source_ID FROM M_HU_Trace t INNER JOIN vhus ON t.VHU_ID=vhus.VHU_ID WHERE t.IsActive='Y' AND t.VHU_Source_ID > 0";
+				break;
+			default:
+				throw new AdempiereException("Unexpected direction=" + direction + "; only FORWARD and BACKWARD are allowed");
+		}
 
-			final List<Integer> directFollowupVhuIDs = directFollowUpRecordsResult.getVhuIds();
+		return "WITH RECURSIVE vhus(VHU_ID) AS (" + seedSql + " UNION " + recursiveSql + ") SELECT vhus.VHU_ID FROM vhus";
+	}
+
+	/**
+	 * Collects the VHU_IDs of all VHUs which are reachable from the given {@code startVhuIds}, running one query per hop (for all VHU_IDs of that hop).
+	 * Used in unit test mode and if {@value #SYSCONFIG_UseRecursiveSql} is {@code N}.
+	 * <p>
+	 * Stops after {@value #SYSCONFIG_MaxRecursionDepth} hops and logs a warning in that case.
+	 */
+	@VisibleForTesting
+	static Set<Integer> retrieveReachableVhuIds(@NonNull final Collection<Integer> startVhuIds, @NonNull final RecursionMode direction)
+	{
+		final Set<Integer> result = new LinkedHashSet<>();
+		Set<Integer> currentVhuIds;
+		switch (direction)
+		{
+			case FORWARD:
+				currentVhuIds = ImmutableSet.copyOf(startVhuIds);
+				break;
+			case BACKWARD:
+				// the start VHU_IDs are already VHU_Source_IDs, so they are part of the result
+				result.addAll(startVhuIds);
+				currentVhuIds = ImmutableSet.copyOf(startVhuIds);
+				break;
+			default:
+				throw new AdempiereException("Unexpected direction=" + direction + "; only FORWARD and BACKWARD are allowed");
+		}
 
-			// and now expand on those direct follow ups
-			for (final int directFollowupVhuID : directFollowupVhuIDs)
+		final int maxDepth = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_MaxRecursionDepth, DEFAULT_MaxRecursionDepth);
+		int depth = 0;
+		while (!currentVhuIds.isEmpty())
+		{
+			if (depth >= maxDepth)
 			{
-				final Result forwardResult = queryDbRecord(
-						HUTraceEventQuery.builder()
-								.vhuId(directFollowupVhuID)
-								.recursionMode(RecursionMode.FORWARD)
-								.build(),
-						resultIn);
-				resultOut.addAll(forwardResult);
+				logger.warn("Stopped collecting the reachable VHU_IDs after {} hops; direction={}, startVhuIds={}", depth, direction, startVhuIds);
+				break;
 			}
+			depth++;
+
+			final Set<Integer> nextVhuIds = new HashSet<>();
+			for (final List<Integer> currentVhuIdsChunk : Iterables.partition(currentVhuIds, IN_ARRAY_ChunkSize))
+			{
+				nextVhuIds.addAll(retrieveNextVhuIds(currentVhuIdsChunk, direction));
+			}
+			nextVhuIds.removeAll(result);
+
+			result.addAll(nextVhuIds);
+			currentVhuIds = nextVhuIds;
+		}
+		return result;
+	}
+
+	private static List<Integer> retrieveNextVhuIds(@NonNull final List<Integer> vhuIds, @NonNull final RecursionMode direction)
+	{
+		final IQueryBuilder<I_M_HU_Trace> queryBuilder = Services.get(IQueryBL.class).createQueryBuilder(I_M_HU_Trace.class)
+				.addOnlyActiveRecordsFilter();
+		if (direction == RecursionMode.FORWARD)
+		{
+			return queryBuilder
+					.addInArrayFilter(I_M_HU_Trace.COLUMN_VHU_Source_ID, vhuIds)
+					.create()
+					.listDistinct(I_M_HU_Trace.COLUMNNAME_VHU_ID, Integer.class);
+		}
+		else
+		{
+			return queryBuilder
+					.addInArrayFilter(I_M_HU_Trace.COLUMN_VHU_ID, vhuIds)
+					.addCompareFilter(I_M_HU_Trace.COLUMN_VHU_Source_ID, Operator.GREATER, 0)
+					.create()
+					.listDistinct(I_M_HU_Trace.COLUMNNAME_VHU_Source_ID, Integer.class);
 		}
-		return resultOut;
 	}
 
 	/**
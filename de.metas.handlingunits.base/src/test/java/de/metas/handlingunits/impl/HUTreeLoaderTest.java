@@ -0,0 +1,253 @@
+package de.metas.handlingunits.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.adempiere.ad.modelvalidator.IModelInterceptorRegistry;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.wrapper.POJOLookupMap;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.Services;
+import org.compiere.util.Env;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.handlingunits.IHandlingUnitsDAO;
+import de.metas.handlingunits.attribute.impl.HUAttributesDAO;
+import de.metas.handlingunits.model.I_M_HU;
+import de.metas.handlingunits.model.I_M_HU_Attribute;
+import de.metas.handlingunits.model.I_M_HU_Item;
+import de.metas.handlingunits.model.I_M_HU_Item_Storage;
+import de.metas.handlingunits.model.I_M_HU_Storage;
+import de.metas.handlingunits.model.X_M_HU_Item;
+import de.metas.handlingunits.storage.impl.HUStorageDAO;
+
+/*
+ * #%L
+ * de.metas.handlingunits.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class HUTreeLoaderTest
+{
+	private IHandlingUnitsDAO handlingUnitsDAO;
+
+	private I_M_HU lu;
+	private I_M_HU_Item luItem;
+	private I_M_HU tu;
+	private I_M_HU_Item tuItem;
+	private I_M_HU_Storage huStorage;
+	private I_M_HU_Item_Storage huItemStorage;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		Services.get(IModelInterceptorRegistry.class).addModelInterceptor(HUPrefetchedRecordsInvalidator.INSTANCE);
+		handlingUnitsDAO = Services.get(IHandlingUnitsDAO.class);
+
+		lu = createHU(null);
+		luItem = createHUItem(lu, X_M_HU_Item.ITEMTYPE_HandlingUnit);
+		tu = createHU(luItem);
+		tuItem = createHUItem(tu, X_M_HU_Item.ITEMTYPE_Material);
+
+		huStorage = InterfaceWrapperHelper.newInstance(I_M_HU_Storage.class);
+		huStorage.setM_HU(tu);
+		huStorage.setQty(BigDecimal.TEN);
+		InterfaceWrapperHelper.save(huStorage);
+
+		huItemStorage = InterfaceWrapperHelper.newInstance(I_M_HU_Item_Storage.class);
+		huItemStorage.setM_HU_Item(tuItem);
+		huItemStorage.setQty(BigDecimal.TEN);
+		InterfaceWrapperHelper.save(huItemStorage);
+
+		final I_M_HU_Attribute huAttribute = InterfaceWrapperHelper.newInstance(I_M_HU_Attribute.class);
+		huAttribute.setM_HU(tu);
+		InterfaceWrapperHelper.save(huAttribute);
+	}
+
+	@Test
+	public void retrieveHUTrees()
+	{
+		final List<I_M_HU> topLevelHUs = handlingUnitsDAO.retrieveHUTrees(Env.getCtx(), ImmutableList.of(lu.getM_HU_ID()), ITrx.TRXNAME_None);
+		assertThat(topLevelHUs).hasSize(1);
+
+		final I_M_HU luLoaded = topLevelHUs.get(0);
+		final List<I_M_HU_Item> luItems = handlingUnitsDAO.retrieveItems(luLoaded);
+		assertThat(luItems).extracting(I_M_HU_Item::getM_HU_Item_ID).containsExactly(luItem.getM_HU_Item_ID());
+
+		final List<I_M_HU> includedHUs = handlingUnitsDAO.retrieveIncludedHUs(luItems.get(0));
+		assertThat(includedHUs).extracting(I_M_HU::getM_HU_ID).containsExactly(tu.getM_HU_ID());
+
+		final I_M_HU tuLoaded = includedHUs.get(0);
+		assertThat(tuLoaded.getM_HU_Item_Parent_ID()).isEqualTo(luItem.getM_HU_Item_ID());
+
+		final List<I_M_HU_Item> tuItems = handlingUnitsDAO.retrieveItems(tuLoaded);
+		assertThat(tuItems).extracting(I_M_HU_Item::getM_HU_Item_ID).containsExactly(tuItem.getM_HU_Item_ID());
+
+		assertThat(new HUStorageDAO().retrieveStorages(tuLoaded)).hasSize(1);
+		assertThat(new HUStorageDAO().retrieveItemStorages(tuItems.get(0))).hasSize(1);
+		assertThat(HUAttributesDAO.instance.retrieveAttributesOrdered(tuLoaded)).hasSize(1);
+	}
+
+	/**
+	 * Verifies that the prefetched records are used instead of querying the database, but only once.
+	 */
+	@Test
+	public void prefetchedRecordsAreHandedOutOnlyOnce()
+	{
+		final I_M_HU luLoaded = retrieveHUTree(lu);
+
+		final long queriesCount = getQueriesCount();
+		assertThat(handlingUnitsDAO.retrieveItems(luLoaded)).hasSize(1); // prefetched
+		assertThat(getQueriesCount()).isEqualTo(queriesCount);
+
+		assertThat(handlingUnitsDAO.retrieveItems(luLoaded)).hasSize(1); // retrieved from database
+		assertThat(getQueriesCount()).isGreaterThan(queriesCount);
+	}
+
+	@Test
+	public void prefetchedItemsAreDiscardedIfItemWasAdded()
+	{
+		final I_M_HU luLoaded = retrieveHUTree(lu);
+
+		// this one is added after prefetching, so it's not part of the prefetched items
+		createHUItem(luLoaded, X_M_HU_Item.ITEMTYPE_PackingMaterial);
+
+		final long queriesCount = getQueriesCount();
+		assertThat(handlingUnitsDAO.retrieveItems(luLoaded)).hasSize(2);
+		assertThat(getQueriesCount()).isGreaterThan(queriesCount); // retrieved from database
+	}
+
+	@Test
+	public void prefetchedIncludedHUsAreDiscardedIfHUWasAdded()
+	{
+		final I_M_HU luLoaded = retrieveHUTree(lu);
+		final I_M_HU_Item luItemLoaded = handlingUnitsDAO.retrieveItems(luLoaded).get(0);
+
+		createHU(luItem);
+
+		assertThat(handlingUnitsDAO.retrieveIncludedHUs(luItemLoaded)).hasSize(2);
+	}
+
+	@Test
+	public void prefetchedStoragesAreDiscardedIfStorageWasChanged()
+	{
+		final I_M_HU tuLoaded = retrieveTU(retrieveHUTree(lu));
+
+		huStorage.setQty(BigDecimal.ONE);
+		InterfaceWrapperHelper.save(huStorage);
+
+		final List<I_M_HU_Storage> storages = new HUStorageDAO().retrieveStorages(tuLoaded);
+		assertThat(storages).hasSize(1);
+		assertThat(storages.get(0).getQty()).isEqualByComparingTo(BigDecimal.ONE);
+	}
+
+	@Test
+	public void prefetchedItemStoragesAreDiscardedIfItemStorageWasChanged()
+	{
+		final I_M_HU tuLoaded = retrieveTU(retrieveHUTree(lu));
+		final I_M_HU_Item tuItemLoaded = handlingUnitsDAO.retrieveItems(tuLoaded).get(0);
+
+		huItemStorage.setQty(BigDecimal.ONE);
+		InterfaceWrapperHelper.save(huItemStorage);
+
+		final List<I_M_HU_Item_Storage> itemStorages = new HUStorageDAO().retrieveItemStorages(tuItemLoaded);
+		assertThat(itemStorages).hasSize(1);
+		assertThat(itemStorages.get(0).getQty()).isEqualByComparingTo(BigDecimal.ONE);
+	}
+
+	@Test
+	public void prefetchedAttributesAreDiscardedIfAttributeWasAdded()
+	{
+		final I_M_HU tuLoaded = retrieveTU(retrieveHUTree(lu));
+
+		final I_M_HU_Attribute huAttribute = InterfaceWrapperHelper.newInstance(I_M_HU_Attribute.class);
+		huAttribute.setM_HU(tu);
+		InterfaceWrapperHelper.save(huAttribute);
+
+		assertThat(HUAttributesDAO.instance.retrieveAttributesOrdered(tuLoaded)).hasSize(2);
+	}
+
+	/**
+	 * Verifies that prefetched records of other parents are still used.
+	 */
+	@Test
+	public void prefetchedRecordsOfOtherParentsAreStillUsed()
+	{
+		final I_M_HU luLoaded = retrieveHUTree(lu);
+
+		huStorage.setQty(BigDecimal.ONE);
+		InterfaceWrapperHelper.save(huStorage);
+
+		final long queriesCount = getQueriesCount();
+		assertThat(handlingUnitsDAO.retrieveItems(luLoaded)).hasSize(1); // prefetched
+		assertThat(getQueriesCount()).isEqualTo(queriesCount);
+	}
+
+	@Test
+	public void prefetchedRecordsAreDiscardedIfTrxChanged()
+	{
+		final I_M_HU luLoaded = retrieveHUTree(lu);
+
+		InterfaceWrapperHelper.setTrxName(luLoaded, "HUTreeLoaderTest_OtherTrx");
+		assertThat(HUPrefetchedRecords.pollItems(luLoaded)).isNull();
+	}
+
+	private I_M_HU retrieveHUTree(final I_M_HU topLevelHU)
+	{
+		return handlingUnitsDAO.retrieveHUTrees(Env.getCtx(), ImmutableList.of(topLevelHU.getM_HU_ID()), ITrx.TRXNAME_None).get(0);
+	}
+
+	/** @return the TU of our LU, navigating through the prefetched records */
+	private I_M_HU retrieveTU(final I_M_HU luLoaded)
+	{
+		final I_M_HU_Item luItemLoaded = handlingUnitsDAO.retrieveItems(luLoaded).get(0);
+		return handlingUnitsDAO.retrieveIncludedHUs(luItemLoaded).get(0);
+	}
+
+	/** @return how many queries were run against our in-memory database */
+	private static long getQueriesCount()
+	{
+		final POJOLookupMap db = POJOLookupMap.get();
+		return db.getIndexHitsCount() + db.getIndexMissesCount();
+	}
+
+	private I_M_HU createHU(final I_M_HU_Item parentItem)
+	{
+		final I_M_HU hu = InterfaceWrapperHelper.newInstance(I_M_HU.class);
+		hu.setM_HU_Item_Parent(parentItem);
+		InterfaceWrapperHelper.save(hu);
+		return hu;
+	}
+
+	private I_M_HU_Item createHUItem(final I_M_HU hu, final String itemType)
+	{
+		final I_M_HU_Item item = InterfaceWrapperHelper.newInstance(I_M_HU_Item.class);
+		item.setM_HU(hu);
+		item.setItemType(itemType);
+		InterfaceWrapperHelper.save(item);
+		return item;
+	}
+}
@@ -13,9 +13,12 @@ import org.adempiere.util.Services;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+
 import de.metas.handlingunits.model.I_M_HU_Trace;
 import de.metas.handlingunits.trace.HUTraceEvent;
 import de.metas.handlingunits.trace.HUTraceEventQuery;
+import de.metas.handlingunits.trace.HUTraceEventQuery.RecursionMode;
 import de.metas.handlingunits.trace.HUTraceRepository;
 import de.metas.handlingunits.trace.HUTraceRepositoryTests;
 
@@ -93,4 +96,56 @@ public class RetrieveDbRecordsUtilTest
 
 		assertThat(result).hasSize(1);
 	}
+
+	/**
+	 * Verifies that the per-hop variant terminates and returns every VHU exactly once, even if the trace graph has a cycle.
+	 */
+	@Test
+	public void retrieveReachableVhuIds_cycle()
+	{
+		final Instant eventTime = Instant.now();
+		addTransformEvent(eventTime, 2, 1);
+		addTransformEvent(eventTime.plusSeconds(1), 3, 2);
+		addTransformEvent(eventTime.plusSeconds(2), 1, 3); // back to the start
+		addTransformEvent(eventTime.plusSeconds(3), 4, 3);
+
+		assertThat(RetrieveDbRecordsUtil.retrieveReachableVhuIds(ImmutableList.of(1), RecursionMode.FORWARD)).containsOnly(1, 2, 3, 4);
+		assertThat(RetrieveDbRecordsUtil.retrieveReachableVhuIds(ImmutableList.of(4), RecursionMode.FORWARD)).isEmpty();
+		assertThat(RetrieveDbRecordsUtil.retrieveReachableVhuIds(ImmutableList.of(3), RecursionMode.BACKWARD)).containsOnly(1, 2, 3);
+	}
+
+	@Test
+	public void retrieveReachableVhuIds_chain()
+	{
+		final Instant eventTime = Instant.now();
+		addTransformEvent(eventTime, 2, 1);
+		addTransformEvent(eventTime.plusSeconds(1), 3, 2);
+		addTransformEvent(eventTime.plusSeconds(2), 4, 3);
+
+		assertThat(RetrieveDbRecordsUtil.retrieveReachableVhuIds(ImmutableList.of(2), RecursionMode.FORWARD)).containsExactly(3, 4);
+		assertThat(RetrieveDbRecordsUtil.retrieveReachableVhuIds(ImmutableList.of(2), RecursionMode.BACKWARD)).containsExactly(2, 1);
+	}
+
+	@Test
+	public void createRecursiveVhuIdsSql()
+	{
+		assertThat(RetrieveDbRecordsUtil.createRecursiveVhuIdsSql(ImmutableList.of(10, 20), RecursionMode.FORWARD))
+				.startsWith("WITH RECURSIVE vhus(VHU_ID) AS (")
+				.contains("t.VHU_Source_ID IN (10,20)")
+				.contains(" UNION SELECT t.VHU_ID FROM M_HU_Trace t INNER JOIN vhus ON t.VHU_Source_ID=vhus.VHU_ID");
+
+		assertThat(RetrieveDbRecordsUtil.createRecursiveVhuIdsSql(ImmutableList.of(10, 20), RecursionMode.BACKWARD))
+				.contains("unnest(ARRAY[10,20]::numeric[])")
+				.contains(" UNION SELECT t.VHU_Source_ID FROM M_HU_Trace t INNER JOIN vhus ON t.VHU_ID=vhus.VHU_ID");
+	}
+
+	private void addTransformEvent(final Instant eventTime, final int vhuId, final int vhuSourceId)
+	{
+		huTraceRepository.addEvent(HUTraceRepositoryTests.createCommonEventBuilder()
+				.eventTime(eventTime)
+				.topLevelHuId(vhuId)
+				.vhuId(vhuId)
+				.vhuSourceId(vhuSourceId)
+				.build());
+	}
 }
@@ -14,6 +14,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.adempiere.ad.dao.ICompositeQueryUpdater;
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
@@ -789,6 +790,34 @@ public class CandidateRepository
 				.collect(Collectors.toList());
 	}
 
+	/**
+	 * Adds the given {@code delta} to the quantity of all records that match the given {@code query} and sets their groupId, all in one SQL UPDATE.
+	 * <p>
+	 * Note: unlike {@link #addOrUpdateOverwriteStoredSeqNo(Candidate)}, the records are not loaded and saved one by one, so no model interceptors are fired.
+	 *
+	 * @param query the records to update; no ordering is needed
+	 * @param delta the quantity (positive or negative) to add
+	 * @param groupId the groupId to set; ignored if it's not greater than zero
+	 * @return the number of updated records
+	 */
+	public int applyDeltaToMatchingQuantities(
+			@NonNull final CandidatesQuery query,
+			@NonNull final BigDecimal delta,
+			final int groupId)
+	{
+		final ICompositeQueryUpdater<I_MD_Candidate> updater = Services.get(IQueryBL.class)
+				.createCompositeQueryUpdater(I_MD_Candidate.class)
+				.addAddValueToColumn(I_MD_Candidate.COLUMNNAME_Qty, delta);
+		if (groupId > 0)
+		{
+			updater.addSetColumnValue(I_MD_Candidate.COLUMNNAME_MD_Candidate_GroupId, groupId);
+		}
+
+		return mkQueryBuilder(query)
+				.create()
+				.updateDirectly(updater);
+	}
+
 	/**
 	 * turns the given segment into the "where part" of a big query builder. Does not specify the ordering.
 	 *
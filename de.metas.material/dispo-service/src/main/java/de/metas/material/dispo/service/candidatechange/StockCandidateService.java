@@ -2,7 +2,6 @@ package de.metas.material.dispo.service.candidatechange;
 
 import java.math.BigDecimal;
 import java.util.Date;
-import java.util.List;
 import java.util.function.Supplier;
 
 import org.springframework.stereotype.Service;
@@ -153,8 +152,8 @@ public class StockCandidateService
 	}
 
 	/**
-	 * Selects all stock candidates which have the same product and locator but a later timestamp than the one from the given {@code segment}.
-	 * Iterate them and add the given {@code delta} to their quantity.
+	 * Adds the given {@code delta} to the quantity of all stock candidates which have the same product and locator but a later timestamp than the one from the given {@code segment}.
+	 * This is done with one set-based update, i.e. the stock candidates are not loaded and stored one by one.
 	 * <p>
 	 * That's it for now :-). Don't alter those stock candidates' children or parents.
 	 *
@@ -181,13 +180,6 @@ public class StockCandidateService
 				.dateOperator(DateOperator.AFTER)
 				.build();
 
-		final List<Candidate> candidatesToUpdate = candidateRepository.retrieveOrderedByDateAndSeqNo(segment);
-		for (final Candidate candidate : candidatesToUpdate)
-		{
-			final BigDecimal newQty = candidate.getQuantity().add(delta);
-			candidateRepository.addOrUpdateOverwriteStoredSeqNo(candidate
-					.withQuantity(newQty)
-					.withGroupId(groupId));
-		}
+		candidateRepository.applyDeltaToMatchingQuantities(segment, delta, groupId);
 	}
 }
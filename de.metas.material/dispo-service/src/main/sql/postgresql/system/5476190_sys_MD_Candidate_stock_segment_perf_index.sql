@@ -0,0 +1,5 @@
+
+-- supports the set-based update of all later stock candidates of a product and warehouse (StockCandidateService.applyDeltaToLaterStockCandidates)
+CREATE INDEX IF NOT EXISTS md_candidate_stock_product_warehouse_date
+   ON public.md_candidate (m_product_id, m_warehouse_id, dateprojected)
+   WHERE IsActive='Y' AND MD_Candidate_Type='STOCK';
@@ -23,9 +23,12 @@ package de.metas.printing.api.impl;
  */
 
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -39,7 +42,6 @@ import de.metas.logging.LogManager;
 import javax.print.attribute.standard.MediaSize;
 
 import org.adempiere.ad.service.IDeveloperModeBL;
-import org.adempiere.archive.api.IArchiveBL;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
@@ -60,6 +62,7 @@ import de.metas.printing.api.IPrintJobBL;
 import de.metas.printing.api.IPrintJobLinesAggregator;
 import de.metas.printing.api.IPrintPackageCtx;
 import de.metas.printing.api.IPrintingDAO;
+import de.metas.printing.api.util.PdfFile;
 import de.metas.printing.exception.PrintingQueueAggregationException;
 import de.metas.printing.model.I_AD_PrinterHW;
 import de.metas.printing.model.I_AD_PrinterHW_Calibration;
@@ -97,6 +100,9 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 	// NOTE: we shall use IdentityHashMap instead of HashMap because key content (I_C_Print_PackageInfo) is changing
 	private final Map<I_C_Print_PackageInfo, List<ArchivePart>> mapArchiveParts = new IdentityHashMap<I_C_Print_PackageInfo, List<ArchivePart>>();
 
+	/** All archives which were added; their PDF files are kept until the print package was created */
+	private final List<ArchiveData> archiveDatas = new ArrayList<>();
+
 	/**
 	 * True if aggregator was already executed
 	 */
@@ -156,6 +162,8 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		}
 		catch (final Exception e)
 		{
+			// createPrintPackage() won't be called, so don't leave the temporary PDF files behind
+			closeArchiveDatas();
 			throw new PrintingQueueAggregationException(jobLine.getC_Printing_Queue_ID(), e);
 		}
 	}
@@ -176,6 +184,7 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		// Create ArchiveData from Print Job Line
 		final I_AD_Archive archive = jobLine.getC_Printing_Queue().getAD_Archive();
 		final ArchiveData archiveData = new ArchiveData(jobLine, archive);
+		archiveDatas.add(archiveData);
 		if (!archiveData.hasData())
 		{
 			logger.info("Print Job Line's Archive has no data: {}. Skipping it", archiveData);
@@ -371,14 +380,36 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 	@Override
 	public I_C_Print_Package createPrintPackage()
 	{
-		final ByteArrayOutputStream pdfBuf = new ByteArrayOutputStream();
-		final int pages = createPDFData(pdfBuf); // create the PDS data, and update the print package infos' pageFrom and pageto values
-		if (pages <= 0)
+		//
+		// Create the PDF data in a temporary file, and update the print package infos' pageFrom and pageto values.
+		// The PDF is not buffered in memory while it's created, so we hold it only once (when reading it for the print package data).
+		final int pages;
+		final byte[] data;
+		File pdfFile = null;
+		try
+		{
+			pdfFile = File.createTempFile("C_Print_Package_", ".pdf");
+			try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(pdfFile)))
+			{
+				pages = createPDFData(out);
+			}
+			if (pages <= 0)
+			{
+				throw new AdempiereException("No PDF pages found. No package created."); // TRL
+			}
+
+			data = Files.readAllBytes(pdfFile.toPath());
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed creating the PDF data for " + printJob, e);
+		}
+		finally
 		{
-			throw new AdempiereException("No PDF pages found. No package created."); // TRL
+			deleteTempFile(pdfFile);
+			closeArchiveDatas();
 		}
 
-		final byte[] data = pdfBuf.toByteArray();
 		if (data == null || data.length == 0)
 		{
 			throw new AdempiereException("No PDF data found. No package created."); // TRL
@@ -423,6 +454,22 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		return printPackage;
 	}
 
+	private static void deleteTempFile(final File file)
+	{
+		if (file == null)
+		{
+			return;
+		}
+		try
+		{
+			Files.deleteIfExists(file.toPath());
+		}
+		catch (final IOException e)
+		{
+			logger.warn("Failed deleting {}. Ignored.", file, e);
+		}
+	}
+
 	private void updatePrintJobLines(final I_C_Print_PackageInfo printPackageInfo, final I_C_Print_Package printPackage)
 	{
 		// for (I_C_Print_PackageInfo i : mapArchiveParts.keySet()) System.out.println("-> "+i.hashCode());
@@ -641,6 +688,16 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		return documentCurrentPage;
 	}
 
+	/** Deletes the temporary PDF files of all added archives */
+	private void closeArchiveDatas()
+	{
+		for (final ArchiveData archiveData : archiveDatas)
+		{
+			archiveData.close();
+		}
+		archiveDatas.clear();
+	}
+
 	private int addArchivePartToPDF(final PdfCopy copy, final ArchivePart archivePart)
 	{
 		try
@@ -664,8 +721,19 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 			return 0;
 		}
 
-		final PdfReader reader = archiveData.createPdfReader();
+		final PdfReader reader = archiveData.getPdfFile().createPdfReader();
+		try
+		{
+			return addPagesToPDF(copy, reader, archivePart);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
 
+	private int addPagesToPDF(final PdfCopy copy, final PdfReader reader, final ArchivePart archivePart) throws IOException
+	{
 		final int archivePageNums = reader.getNumberOfPages();
 
 		int pageFrom = archivePart.getPageFrom();
@@ -705,7 +773,6 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		}
 
 		copy.freeReader(reader);
-		reader.close();
 
 		logger.debug("Added {} pages", pagesAdded);
 		return pagesAdded;
@@ -713,17 +780,16 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 
 	private static class ArchiveData
 	{
-		// Services
-		private final transient IArchiveBL archiveBL = Services.get(IArchiveBL.class);
-
 		// Parameters
 		private final I_C_Print_Job_Line printJobLine;
 		private final I_AD_Archive archive;
 
 		// Arhive's Data
+		// NOTE: we are not keeping the data itself in memory, because we could have thousands of archives in one print package.
+		// Instead we keep the PDF file (which is a temporary file if the archive is not stored as file), so the archive is fetched only once.
 		private boolean dataLoaded;
-		private transient byte[] data;
-		private Integer numberOfPages = null;
+		private PdfFile pdfFile;
+		private int numberOfPages = 0;
 
 		public ArchiveData(final I_C_Print_Job_Line printJobLine, final I_AD_Archive archive)
 		{
@@ -743,72 +809,77 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 			return printJobLine;
 		}
 
-		private final byte[] getData()
+		private final void loadData()
 		{
 			if (dataLoaded)
 			{
-				return data;
+				return;
 			}
 
-			data = archiveBL.getBinaryData(archive);
-			dataLoaded = true;
-			if (data == null || data.length == 0)
+			final PdfFile pdfFile = PdfFile.ofArchive(archive);
+			if (pdfFile == null)
 			{
 				logger.info("Archive {} does not contain any data. Skip", archive);
-				data = null;
+				numberOfPages = 0;
+			}
+			else
+			{
+				try
+				{
+					final PdfReader reader = pdfFile.createPdfReader();
+					try
+					{
+						numberOfPages = reader.getNumberOfPages();
+					}
+					finally
+					{
+						reader.close();
+					}
+				}
+				catch (final IOException e)
+				{
+					pdfFile.close();
+					throw new AdempiereException("Cannot get number of pages for archive " + archive, e);
+				}
 			}
 
-			return data;
+			this.pdfFile = pdfFile;
+			dataLoaded = true;
 		}
 
 		public boolean hasData()
 		{
-			return getData() != null;
+			loadData();
+			return pdfFile != null;
 		}
 
-		public PdfReader createPdfReader() throws IOException
+		/**
+		 * @return the archive's PDF file; it's kept until {@link #close()} is called
+		 */
+		public PdfFile getPdfFile()
 		{
-			final PdfReader reader = new PdfReader(getData());
-			return reader;
+			loadData();
+			Check.assumeNotNull(pdfFile, "Archive {} has data", archive);
+			return pdfFile;
 		}
 
-		public int getNumberOfPages()
+		/**
+		 * Deletes the archive's PDF file if it's a temporary one.
+		 */
+		public void close()
 		{
-			if (numberOfPages != null)
-			{
-				return numberOfPages;
-			}
-
-			if (!hasData())
+			if (pdfFile != null)
 			{
-				return 0;
+				pdfFile.close();
+				pdfFile = null;
 			}
+			dataLoaded = false;
+		}
 
-			PdfReader reader = null;
-			try
-			{
-				reader = createPdfReader();
-				numberOfPages = reader.getNumberOfPages();
-				return numberOfPages;
-			}
-			catch (final IOException e)
-			{
-				throw new AdempiereException("Cannot get number of pages for archive " + archive, e);
-			}
-			finally
-			{
-				if (reader != null)
-				{
-					try
-					{
-						reader.close();
-					}
-					catch (final Exception e)
-					{
-					}
-					reader = null;
-				}
-			}
+		public int getNumberOfPages()
+		{
+			loadData();
+			return numberOfPages;
 		}
 	}
 
@@ -23,7 +23,10 @@ package de.metas.printing.api.util;
  */
 
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -36,10 +39,18 @@ import com.lowagie.text.DocumentException;
 import com.lowagie.text.pdf.BadPdfFormatException;
 import com.lowagie.text.pdf.PdfCopy;
 import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
 
+/**
+ * Concatenates pages of multiple PDFs into one PDF.
+ * <p>
+ * The pages are written to the output stream (or file) while they are added, and the source PDFs are read on demand (see {@link PdfFile}),
+ * so the memory usage does not depend on the number of pages, unless the in memory {@link #PdfCollator()} is used.
+ */
 public class PdfCollator
 {
 	private final OutputStream out;
+	private final boolean closeOut;
 	private PdfCopy pdfCopy = null;
 	private Document pdfDocument = null;
 	private boolean closed = false;
@@ -53,6 +64,24 @@ public class PdfCollator
 	{
 		Check.assume(out != null, "out not null");
 		this.out = out;
+		closeOut = false;
+	}
+
+	/**
+	 * Writes the collated PDF to given file. The file is closed when this collator is {@link #close()}d.
+	 */
+	public PdfCollator(final File outFile)
+	{
+		Check.assume(outFile != null, "outFile not null");
+		try
+		{
+			out = new BufferedOutputStream(new FileOutputStream(outFile));
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Cannot write to " + outFile, e);
+		}
+		closeOut = true;
 	}
 
 	private PdfCopy getPdfCopy()
@@ -78,14 +107,34 @@ public class PdfCollator
 		return pdfCopy;
 	}
 
+	/**
+	 * Adds pages of given PDF stream. The stream is copied to a temporary file first, but it's not closed.
+	 */
 	public PdfCollator addPages(final InputStream pdfIn, final int pageFrom, final int pageTo)
 	{
 		Check.assume(pdfIn != null, "pdfIn not null");
 
+		try (final PdfFile pdfFile = PdfFile.ofStream(pdfIn))
+		{
+			if (pdfFile == null)
+			{
+				throw new AdempiereException("No PDF data found");
+			}
+			return addPages(pdfFile, pageFrom, pageTo);
+		}
+	}
+
+	/**
+	 * Adds pages of given PDF file. The file is read on demand, see {@link PdfFile}.
+	 */
+	public PdfCollator addPages(final File pdfFile, final int pageFrom, final int pageTo)
+	{
+		Check.assume(pdfFile != null, "pdfFile not null");
+
 		final PdfReader reader;
 		try
 		{
-			reader = new PdfReader(pdfIn);
+			reader = new PdfReader(new RandomAccessFileOrArray(pdfFile.getAbsolutePath(), false, true), null);
 		}
 		catch (final IOException e)
 		{
@@ -95,6 +144,12 @@ public class PdfCollator
 		return addPages(reader, pageFrom, pageTo);
 	}
 
+	public PdfCollator addPages(final PdfFile pdfFile, final int pageFrom, final int pageTo)
+	{
+		Check.assume(pdfFile != null, "pdfFile not null");
+		return addPages(pdfFile.getFile(), pageFrom, pageTo);
+	}
+
 	public PdfCollator addPages(final byte[] pdfData, final int pageFrom, final int pageTo)
 	{
 		final PdfReader reader;
@@ -156,15 +211,25 @@ public class PdfCollator
 		}
 		closed = true;
 
-		if (pdfCopy == null)
+		if (pdfCopy != null)
 		{
-			return this;
-		}
+			pdfDocument.close();
 
-		pdfDocument.close();
+			pdfCopy = null;
+			pdfDocument = null;
+		}
 
-		pdfCopy = null;
-		pdfDocument = null;
+		if (closeOut)
+		{
+			try
+			{
+				out.close();
+			}
+			catch (final IOException e)
+			{
+				throw new AdempiereException(e);
+			}
+		}
 
 		return this;
 	}
@@ -0,0 +1,172 @@
+package de.metas.printing.api.util;
+
+/*
+ * #%L
+ * de.metas.printing.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.adempiere.archive.api.IArchiveBL;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.Check;
+import org.adempiere.util.Services;
+import org.compiere.model.I_AD_Archive;
+import org.slf4j.Logger;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+
+import de.metas.logging.LogManager;
+
+/**
+ * PDF file from which pages are read.
+ * <p>
+ * The {@link PdfReader}s created by this class are reading the file on demand, so only the PDF's cross reference table and the objects of the currently copied page are held in memory.
+ * <p>
+ * If the data is not already available as a plain file (e.g. the archive is stored in database), it's copied to a temporary file which is deleted on {@link #close()}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class PdfFile implements AutoCloseable
+{
+	private static final Logger logger = LogManager.getLogger(PdfFile.class);
+
+	/**
+	 * @return PDF file or <code>null</code> if the archive has no data
+	 */
+	public static PdfFile ofArchive(final I_AD_Archive archive)
+	{
+		Check.assumeNotNull(archive, "Parameter archive is not null");
+		final IArchiveBL archiveBL = Services.get(IArchiveBL.class);
+
+		final File archiveFile = archiveBL.getBinaryDataFile(archive);
+		if (archiveFile != null)
+		{
+			return archiveFile.length() > 0 ? new PdfFile(archiveFile, false) : null;
+		}
+
+		try (final InputStream in = archiveBL.getBinaryDataAsStream(archive))
+		{
+			if (in == null)
+			{
+				return null;
+			}
+			return ofStream(in);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed reading the data of " + archive, e);
+		}
+	}
+
+	/**
+	 * Copies given stream to a temporary file. The stream is not closed.
+	 *
+	 * @return PDF file or <code>null</code> if the stream has no data
+	 */
+	public static PdfFile ofStream(final InputStream in)
+	{
+		Check.assumeNotNull(in, "Parameter in is not null");
+
+		File tempFile = null;
+		try
+		{
+			tempFile = File.createTempFile(PdfFile.class.getSimpleName(), ".pdf");
+			Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			if (tempFile.length() <= 0)
+			{
+				deleteFile(tempFile);
+				return null;
+			}
+
+			return new PdfFile(tempFile, true);
+		}
+		catch (final IOException e)
+		{
+			deleteFile(tempFile);
+			throw new AdempiereException("Failed copying PDF data to a temporary file", e);
+		}
+	}
+
+	private final File file;
+	private final boolean temporary;
+
+	private PdfFile(final File file, final boolean temporary)
+	{
+		super();
+		this.file = file;
+		this.temporary = temporary;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PdfFile [file=" + file + ", temporary=" + temporary + "]";
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * @return a new reader, which is reading the file on demand; the caller is responsible for closing it
+	 */
+	public PdfReader createPdfReader() throws IOException
+	{
+		final RandomAccessFileOrArray source = new RandomAccessFileOrArray(file.getAbsolutePath(), false, true);
+		return new PdfReader(source, null);
+	}
+
+	/**
+	 * Deletes the file if it's a temporary one.
+	 */
+	@Override
+	public void close()
+	{
+		if (temporary)
+		{
+			deleteFile(file);
+		}
+	}
+
+	private static void deleteFile(final File file)
+	{
+		if (file == null)
+		{
+			return;
+		}
+
+		try
+		{
+			Files.deleteIfExists(file.toPath());
+		}
+		catch (final IOException e)
+		{
+			logger.warn("Failed deleting {}. Ignored.", file, e);
+		}
+	}
+}
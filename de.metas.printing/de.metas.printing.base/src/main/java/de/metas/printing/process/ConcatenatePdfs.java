@@ -30,7 +30,6 @@ import java.util.Iterator;
 import java.util.Properties;
 
 import org.adempiere.ad.trx.api.ITrx;
-import org.adempiere.archive.api.IArchiveBL;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
@@ -45,6 +44,7 @@ import com.lowagie.text.pdf.PdfCopy;
 import com.lowagie.text.pdf.PdfReader;
 
 import de.metas.printing.api.IPrintingDAO;
+import de.metas.printing.api.util.PdfFile;
 import de.metas.printing.model.I_C_Print_Job;
 import de.metas.printing.model.I_C_Print_Job_Line;
 import de.metas.printing.model.I_C_Printing_Queue;
@@ -111,15 +111,18 @@ public class ConcatenatePdfs extends JavaProcess
 			final I_AD_Archive archive = queue.getAD_Archive();
 			Check.assume(archive != null, queue + " references an AD_Archive record");
 
-			final byte[] data = Services.get(IArchiveBL.class).getBinaryData(archive);
-			final PdfReader reader = new PdfReader(data);
-
-			for (int page = 0; page < reader.getNumberOfPages();)
+			try (final PdfFile pdfFile = PdfFile.ofArchive(archive))
 			{
-				copy.addPage(copy.getImportedPage(reader, ++page));
+				Check.assume(pdfFile != null, archive + " has binary data");
+				final PdfReader reader = pdfFile.createPdfReader();
+
+				for (int page = 0; page < reader.getNumberOfPages();)
+				{
+					copy.addPage(copy.getImportedPage(reader, ++page));
+				}
+				copy.freeReader(reader);
+				reader.close();
 			}
-			copy.freeReader(reader);
-			reader.close();
 		}
 		document.close();
 		fos.close();
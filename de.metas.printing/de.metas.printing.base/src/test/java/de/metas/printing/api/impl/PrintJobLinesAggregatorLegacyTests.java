@@ -25,6 +25,7 @@ package de.metas.printing.api.impl;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.InputStream;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -260,6 +261,17 @@ public class PrintJobLinesAggregatorLegacyTests extends AbstractPrintingTest
 			return super.getBinaryData(archive);
 		}
 
+		@Override
+		public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
+		{
+			final int archiveId = archive.getAD_Archive_ID();
+			if (archiveIdsToFail.contains(archiveId))
+			{
+				throw new RuntimeException("Failing on request for " + archive);
+			}
+			return super.getBinaryDataAsStream(archive);
+		}
+
 		public static void setFailGetBinaryData(final I_AD_Archive archive, boolean fail)
 		{
 			Check.assumeNotNull(archive, "archive not null");
@@ -49,13 +49,49 @@ public class ProcurementFlatrateRule implements IPricingRule
 	@Override
 	public boolean applies(final IPricingContext pricingCtx, final IPricingResult result)
 	{
+		final I_C_OrderLine ol = getPurchaseOrderLineOrNull(pricingCtx);
+		if (ol == null)
+		{
+			return false;
+		}
+
+		final IPMMPricingAware pricingAwareOrderLine = PMMPricingAware_C_OrderLine.of(ol);
+
+		// the partner from the order must have a current contract for the product
+		if (pricingAwareOrderLine.getC_Flatrate_Term() == null)
+		{
+			return false;
+		}
+
+		final PMMPricingAware_C_OrderLine pricingAware = PMMPricingAware_C_OrderLine.of(ol);
+		final boolean appliesResult = Services.get(IPMMPricingBL.class).updatePriceFromContract(pricingAware);
+		if (appliesResult)
+		{
+			pricingAwareFromApplies.set(pricingAware);
+		}
+		return appliesResult;
+	}
 
+	/**
+	 * @return {@link #REFERENCEDOBJECT_CACHEKEY_NotCacheable} for purchase order lines, because the contract price depends on the order line's flatrate term
+	 */
+	@Override
+	public Object getReferencedObjectCacheKey(final IPricingContext pricingCtx)
+	{
+		return getPurchaseOrderLineOrNull(pricingCtx) == null ? null : REFERENCEDOBJECT_CACHEKEY_NotCacheable;
+	}
+
+	/**
+	 * @return the referenced object of the given {@code pricingCtx} if it is a purchase order line, <code>null</code> otherwise
+	 */
+	private I_C_OrderLine getPurchaseOrderLineOrNull(final IPricingContext pricingCtx)
+	{
 		// make sure an object is referenced
 		final Object referencedObject = pricingCtx.getReferencedObject();
 		if (referencedObject == null)
 		{
 			logger.debug("Not applying because pricingCtx has no referencedObject");
-			return false;
+			return null;
 		}
 
 		// This rule only applies to C_OrderLine entries
@@ -63,7 +99,7 @@ public class ProcurementFlatrateRule implements IPricingRule
 		if (!org.compiere.model.I_C_OrderLine.Table_Name.equals(tableName))
 		{
 			logger.debug("Not applying because referencedObject='" + referencedObject + "' has tableName='" + tableName + "'");
-			return false;
+			return null;
 		}
 
 		// orderline instance
@@ -76,24 +112,10 @@ public class ProcurementFlatrateRule implements IPricingRule
 		{
 			// this rule only applies to purchase orders
 			logger.debug("Not applying because the referencedObject's header is a sales order");
-			return false;
+			return null;
 		}
 
-		final IPMMPricingAware pricingAwareOrderLine = PMMPricingAware_C_OrderLine.of(ol);
-
-		// the partner from the order must have a current contract for the product
-		if (pricingAwareOrderLine.getC_Flatrate_Term() == null)
-		{
-			return false;
-		}
-
-		final PMMPricingAware_C_OrderLine pricingAware = PMMPricingAware_C_OrderLine.of(ol);
-		final boolean appliesResult = Services.get(IPMMPricingBL.class).updatePriceFromContract(pricingAware);
-		if (appliesResult)
-		{
-			pricingAwareFromApplies.set(pricingAware);
-		}
-		return appliesResult;
+		return ol;
 	}
 
 	@Override
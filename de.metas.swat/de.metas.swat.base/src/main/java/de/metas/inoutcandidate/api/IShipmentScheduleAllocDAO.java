@@ -23,7 +23,9 @@ package de.metas.inoutcandidate.api;
  */
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.util.ISingletonService;
@@ -66,6 +68,13 @@ public interface IShipmentScheduleAllocDAO extends ISingletonService
 	 */
 	BigDecimal retrievePickedNotDeliveredQty(I_M_ShipmentSchedule shipmentSchedule);
 
+	/**
+	 * Bulk version of {@link #retrievePickedNotDeliveredQty(I_M_ShipmentSchedule)}.
+	 *
+	 * @return M_ShipmentSchedule_ID to QtyPicked map, containing all given shipment schedules
+	 */
+	Map<Integer, BigDecimal> retrievePickedNotDeliveredQtys(Collection<? extends I_M_ShipmentSchedule> shipmentSchedules);
+
 	/**
 	 * Retrieve all Picked records (delivered or not, active or not)
 	 *
@@ -111,4 +120,11 @@ public interface IShipmentScheduleAllocDAO extends ISingletonService
 	 * @return
 	 */
 	BigDecimal retrieveQtyDelivered(I_M_ShipmentSchedule shipmentSchedule);
+
+	/**
+	 * Bulk version of {@link #retrieveQtyDelivered(I_M_ShipmentSchedule)}.
+	 *
+	 * @return M_ShipmentSchedule_ID to QtyDelivered map, containing all given shipment schedules
+	 */
+	Map<Integer, BigDecimal> retrieveQtysDelivered(Collection<? extends I_M_ShipmentSchedule> shipmentSchedules);
 }
@@ -23,7 +23,10 @@ package de.metas.inoutcandidate.api.impl;
  */
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.adempiere.ad.dao.ICompositeQueryFilter;
@@ -32,16 +35,25 @@ import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.dao.IQueryFilter;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
+import org.adempiere.util.NumberUtils;
 import org.adempiere.util.Services;
 import org.compiere.model.IQuery;
 import org.compiere.model.I_M_InOutLine;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.SetMultimap;
+
 import de.metas.inoutcandidate.api.IShipmentScheduleAllocDAO;
 import de.metas.inoutcandidate.model.I_M_ShipmentSchedule;
 import de.metas.inoutcandidate.model.I_M_ShipmentSchedule_QtyPicked;
 
 public class ShipmentScheduleAllocDAO implements IShipmentScheduleAllocDAO
 {
+	/** Max number of IDs to be used in one IN (...) filter when retrieving in bulk */
+	private static final int BULK_QUERY_ChunkSize = 1000;
+
 	@Override
 	public <T extends I_M_ShipmentSchedule_QtyPicked> List<T> retrievePickedNotDeliveredRecords(I_M_ShipmentSchedule shipmentSchedule, Class<T> clazz)
 	{
@@ -151,6 +163,126 @@ public class ShipmentScheduleAllocDAO implements IShipmentScheduleAllocDAO
 		return qty != null ? qty : BigDecimal.ZERO;
 	}
 
+	@Override
+	public Map<Integer, BigDecimal> retrievePickedNotDeliveredQtys(final Collection<? extends I_M_ShipmentSchedule> shipmentSchedules)
+	{
+		final Map<Integer, BigDecimal> qtysByShipmentScheduleId = newZeroQtysMap(shipmentSchedules);
+		if (qtysByShipmentScheduleId.isEmpty())
+		{
+			return qtysByShipmentScheduleId;
+		}
+
+		final I_M_ShipmentSchedule firstShipmentSchedule = shipmentSchedules.iterator().next();
+		final Properties ctx = InterfaceWrapperHelper.getCtx(firstShipmentSchedule);
+		final String trxName = InterfaceWrapperHelper.getTrxName(firstShipmentSchedule);
+
+		for (final List<Integer> shipmentScheduleIds : Iterables.partition(qtysByShipmentScheduleId.keySet(), BULK_QUERY_ChunkSize))
+		{
+			final List<Map<String, Object>> rows = Services.get(IQueryBL.class)
+					.createQueryBuilder(I_M_ShipmentSchedule_QtyPicked.class, ctx, trxName)
+					.addInArrayFilter(I_M_ShipmentSchedule_QtyPicked.COLUMN_M_ShipmentSchedule_ID, shipmentScheduleIds)
+					.addEqualsFilter(I_M_ShipmentSchedule_QtyPicked.COLUMN_M_InOutLine_ID, null) // NOT delivered ONLY
+					.addOnlyActiveRecordsFilter()
+					.create()
+					.listColumns(I_M_ShipmentSchedule_QtyPicked.COLUMNNAME_M_ShipmentSchedule_ID, I_M_ShipmentSchedule_QtyPicked.COLUMNNAME_QtyPicked);
+
+			for (final Map<String, Object> row : rows)
+			{
+				final int shipmentScheduleId = NumberUtils.asInt(row.get(I_M_ShipmentSchedule_QtyPicked.COLUMNNAME_M_ShipmentSchedule_ID), -1);
+				final BigDecimal qtyPicked = NumberUtils.asBigDecimal(row.get(I_M_ShipmentSchedule_QtyPicked.COLUMNNAME_QtyPicked), BigDecimal.ZERO);
+				qtysByShipmentScheduleId.merge(shipmentScheduleId, qtyPicked, BigDecimal::add);
+			}
+		}
+
+		return qtysByShipmentScheduleId;
+	}
+
+	@Override
+	public Map<Integer, BigDecimal> retrieveQtysDelivered(final Collection<? extends I_M_ShipmentSchedule> shipmentSchedules)
+	{
+		final Map<Integer, BigDecimal> qtysByShipmentScheduleId = newZeroQtysMap(shipmentSchedules);
+		if (qtysByShipmentScheduleId.isEmpty())
+		{
+			return qtysByShipmentScheduleId;
+		}
+
+		final I_M_ShipmentSchedule firstShipmentSchedule = shipmentSchedules.iterator().next();
+		final Properties ctx = InterfaceWrapperHelper.getCtx(firstShipmentSchedule);
+		final String trxName = InterfaceWrapperHelper.getTrxName(firstShipmentSchedule);
+		final IQueryBL queryBL = Services.get(IQueryBL.class);
+
+		//
+		// Fetch the M_InOutLine_IDs which are linked to our shipment schedules.
+		// NOTE: same as in retrieveQtyDelivered(), an inout line is counted only once per shipment schedule
+		final SetMultimap<Integer, Integer> inoutLineIdsByShipmentScheduleId = HashMultimap.create();
+		for (final List<Integer> shipmentScheduleIds : Iterables.partition(qtysByShipmentScheduleId.keySet(), BULK_QUERY_ChunkSize))
+		{
+			final List<Map<String, Object>> rows = queryBL
+					.createQueryBuilder(I_M_ShipmentSchedule_QtyPicked.class, ctx, trxName)
+					.addInArrayFilter(I_M_ShipmentSchedule_QtyPicked.COLUMN_M_ShipmentSchedule_ID, shipmentScheduleIds)
+					.addNotEqualsFilter(I_M_ShipmentSchedule_QtyPicked.COLUMN_M_InOutLine_ID, null)
+					.addOnlyActiveRecordsFilter()
+					.create()
+					.listDistinct(I_M_ShipmentSchedule_QtyPicked.COLUMNNAME_M_ShipmentSchedule_ID, I_M_ShipmentSchedule_QtyPicked.COLUMNNAME_M_InOutLine_ID);
+
+			for (final Map<String, Object> row : rows)
+			{
+				final int shipmentScheduleId = NumberUtils.asInt(row.get(I_M_ShipmentSchedule_QtyPicked.COLUMNNAME_M_ShipmentSchedule_ID), -1);
+				final int inoutLineId = NumberUtils.asInt(row.get(I_M_ShipmentSchedule_QtyPicked.COLUMNNAME_M_InOutLine_ID), -1);
+				inoutLineIdsByShipmentScheduleId.put(shipmentScheduleId, inoutLineId);
+			}
+		}
+		if (inoutLineIdsByShipmentScheduleId.isEmpty())
+		{
+			return qtysByShipmentScheduleId;
+		}
+
+		//
+		// Fetch the MovementQtys of the processed inout lines
+		final Map<Integer, BigDecimal> movementQtysByInOutLineId = new HashMap<>();
+		for (final List<Integer> inoutLineIds : Iterables.partition(ImmutableSet.copyOf(inoutLineIdsByShipmentScheduleId.values()), BULK_QUERY_ChunkSize))
+		{
+			final List<Map<String, Object>> rows = queryBL
+					.createQueryBuilder(I_M_InOutLine.class, ctx, trxName)
+					.addInArrayFilter(I_M_InOutLine.COLUMN_M_InOutLine_ID, inoutLineIds)
+					.addOnlyActiveRecordsFilter()
+					.addEqualsFilter(I_M_InOutLine.COLUMNNAME_Processed, true)
+					.create()
+					.listColumns(I_M_InOutLine.COLUMNNAME_M_InOutLine_ID, I_M_InOutLine.COLUMNNAME_MovementQty);
+
+			for (final Map<String, Object> row : rows)
+			{
+				final int inoutLineId = NumberUtils.asInt(row.get(I_M_InOutLine.COLUMNNAME_M_InOutLine_ID), -1);
+				final BigDecimal movementQty = NumberUtils.asBigDecimal(row.get(I_M_InOutLine.COLUMNNAME_MovementQty), BigDecimal.ZERO);
+				movementQtysByInOutLineId.put(inoutLineId, movementQty);
+			}
+		}
+
+		//
+		// Sum up the MovementQtys for each shipment schedule
+		for (final Map.Entry<Integer, Integer> shipmentScheduleIdAndInOutLineId : inoutLineIdsByShipmentScheduleId.entries())
+		{
+			final BigDecimal movementQty = movementQtysByInOutLineId.get(shipmentScheduleIdAndInOutLineId.getValue());
+			if (movementQty == null)
+			{
+				continue; // not processed or not active
+			}
+			qtysByShipmentScheduleId.merge(shipmentScheduleIdAndInOutLineId.getKey(), movementQty, BigDecimal::add);
+		}
+
+		return qtysByShipmentScheduleId;
+	}
+
+	private static Map<Integer, BigDecimal> newZeroQtysMap(final Collection<? extends I_M_ShipmentSchedule> shipmentSchedules)
+	{
+		final Map<Integer, BigDecimal> qtysByShipmentScheduleId = new HashMap<>(shipmentSchedules.size());
+		for (final I_M_ShipmentSchedule shipmentSchedule : shipmentSchedules)
+		{
+			qtysByShipmentScheduleId.put(shipmentSchedule.getM_ShipmentSchedule_ID(), BigDecimal.ZERO);
+		}
+		return qtysByShipmentScheduleId;
+	}
+
 	@Override
 	public BigDecimal retrieveQtyDelivered(final I_M_ShipmentSchedule shipmentSchedule)
 	{
@@ -69,13 +69,15 @@ import org.compiere.util.Util.ArrayKey;
 import org.slf4j.Logger;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.MoreObjects.ToStringHelper;
+import com.google.common.base.Stopwatch;
 
 import de.metas.adempiere.model.I_AD_User;
 import de.metas.adempiere.model.I_M_Product;
 import de.metas.document.engine.IDocumentBL;
 import de.metas.inoutcandidate.api.IDeliverRequest;
 import de.metas.inoutcandidate.api.IShipmentConstraintsBL;
-import de.metas.inoutcandidate.api.IShipmentScheduleAllocDAO;
 import de.metas.inoutcandidate.api.IShipmentScheduleBL;
 import de.metas.inoutcandidate.api.IShipmentScheduleEffectiveBL;
 import de.metas.inoutcandidate.api.IShipmentSchedulePA;
@@ -138,6 +140,13 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 		final IDocumentBL docActionBL = Services.get(IDocumentBL.class);
 		final IShipmentScheduleEffectiveBL shipmentScheduleEffectiveBL = Services.get(IShipmentScheduleEffectiveBL.class);
 
+		final PhaseTimings timings = new PhaseTimings();
+
+		//
+		// Fetch the data we need for all our shipment schedules in one go, instead of querying it for each shipment schedule
+		final ShipmentSchedulesPrefetchedData prefetchedData = ShipmentSchedulesPrefetchedData.prefetch(olsAndScheds);
+		timings.phaseDone("prefetch");
+
 		//
 		// Briefly update our shipment schedules:
 		// * set BPartnerAddress_Override if was not set before
@@ -154,12 +163,15 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 
 			updateShipmentConstraints(sched);
 		}
+		timings.phaseDone("prepare");
 
-		final ShipmentSchedulesDuringUpdate firstRun = generate(ctx, olsAndScheds, null, trxName);
+		final ShipmentSchedulesDuringUpdate firstRun = generate(ctx, olsAndScheds, null, prefetchedData, trxName);
 		firstRun.updateCompleteStatusAndSetQtyToZeroWhereNeeded();
+		timings.phaseDone("firstRun");
 
 		final int removeCnt = applyCandidateProcessors(ctx, firstRun, trxName);
 		logger.info("{} records were discarded by candidate processors", removeCnt);
+		timings.phaseDone("candidateProcessors");
 
 		// evaluate the processor's result: lines that have been discarded won't
 		// be delivered and won't be validated in the second run.
@@ -179,7 +191,8 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 		}
 
 		// make the second run
-		final IShipmentSchedulesDuringUpdate secondRun = generate(ctx, olsAndScheds, firstRun, trxName);
+		final IShipmentSchedulesDuringUpdate secondRun = generate(ctx, olsAndScheds, firstRun, prefetchedData, trxName);
+		timings.phaseDone("secondRun");
 
 		// finally update the shipment schedule entries
 		for (final OlAndSched olAndSched : olsAndScheds)
@@ -200,7 +213,7 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 
 			// task 09358: ol.qtyReserved should be as correct as QtyOrdered and QtyDelivered, but in some cases isn't. this here is a workaround to the problem
 			// task 09869: don't rely on ol anyways
-			final BigDecimal qtyDelivered = Services.get(IShipmentScheduleAllocDAO.class).retrieveQtyDelivered(sched);
+			final BigDecimal qtyDelivered = prefetchedData.getQtyDelivered(sched);
 			sched.setQtyDelivered(qtyDelivered);
 			sched.setQtyReserved(BigDecimal.ZERO.max(deliverRequest.getQtyOrdered().subtract(sched.getQtyDelivered())));
 
@@ -211,7 +224,7 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 			if (olAndSched.getOl().isPresent())
 			{
 				final I_C_OrderLine ol = olAndSched.getOl().get();
-				final org.compiere.model.I_M_Product product = ol.getM_Product();
+				final org.compiere.model.I_M_Product product = prefetchedData.getProduct(ol);
 				updateLineNewAmt(ctx, olAndSched.getOl().get(), sched, product);
 			}
 			else
@@ -225,7 +238,7 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 
 			if (olAndSched.getOl().isPresent())
 			{
-				final String orderDocStatus = olAndSched.getOl().get().getC_Order().getDocStatus();
+				final String orderDocStatus = prefetchedData.getOrder(olAndSched.getOl().get()).getDocStatus();
 				if (!docActionBL.isStatusCompletedOrClosedOrReversed(orderDocStatus) // task 07355: thread closed orders like completed orders
 						&& !sched.isProcessed() // task 05206: ts: don't try to delete already processed scheds..it won't work
 						&& sched.getQtyDelivered().signum() == 0 // also don't try to delete if there is already a picked or delivered Qty.
@@ -263,10 +276,10 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 			// I talked with Mark and he observed that in the wiki-page of 08459 it is specified differently.
 			// I will let it here nevertheless, so we can keep track of it's way to work
 
-			final org.compiere.model.I_C_BPartner partner = sched.getC_BPartner();
+			final org.compiere.model.I_C_BPartner partner = prefetchedData.getBPartner(sched);
 
 			// FRESH-334 retrieve the bp product for org or for org 0
-			final org.compiere.model.I_M_Product product = olAndSched.getSched().getM_Product();
+			final org.compiere.model.I_M_Product product = prefetchedData.getProduct(sched);
 			final int orgId = product.getAD_Org_ID();
 
 			final de.metas.interfaces.I_C_BPartner_Product bpp = InterfaceWrapperHelper.create(Services.get(IBPartnerProductDAO.class).retrieveBPartnerProductAssociation(partner, product, orgId),
@@ -314,6 +327,30 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 			}
 			save(sched);
 		}
+		timings.phaseDone("update");
+
+		logger.info("Updated {} shipment schedules; timings: {}", olsAndScheds.size(), timings);
+	}
+
+	/**
+	 * Measures the duration of the consecutive phases of an update run.
+	 */
+	private static final class PhaseTimings
+	{
+		private final Stopwatch stopwatch = Stopwatch.createStarted();
+		private final ToStringHelper durations = MoreObjects.toStringHelper("");
+
+		public void phaseDone(final String phaseName)
+		{
+			durations.add(phaseName, stopwatch.toString());
+			stopwatch.reset().start();
+		}
+
+		@Override
+		public String toString()
+		{
+			return durations.toString();
+		}
 	}
 
 	private void updateHeaderAggregationKey(final I_M_ShipmentSchedule sched)
@@ -387,11 +424,11 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 			final Properties ctx,
 			final List<OlAndSched> lines,
 			final ShipmentSchedulesDuringUpdate firstRun,
+			final ShipmentSchedulesPrefetchedData prefetchedData,
 			final String trxName)
 	{
 		// services
 		final IShipmentScheduleEffectiveBL shipmentScheduleEffectiveValuesBL = Services.get(IShipmentScheduleEffectiveBL.class);
-		final IShipmentScheduleAllocDAO shipmentScheduleAllocDAO = Services.get(IShipmentScheduleAllocDAO.class);
 		final IProductBL productBL = Services.get(IProductBL.class);
 		final IStorageBL storageBL = Services.get(IStorageBL.class);
 
@@ -436,7 +473,7 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 			}
 			else
 			{
-				final BigDecimal qtyDelivered = Services.get(IShipmentScheduleAllocDAO.class).retrieveQtyDelivered(sched);
+				final BigDecimal qtyDelivered = prefetchedData.getQtyDelivered(sched);
 				qtyRequired = deliverRequest.getQtyOrdered().subtract(qtyDelivered);
 			}
 
@@ -449,14 +486,14 @@ public class ShipmentScheduleBL implements IShipmentScheduleBL
 				qtyUnconfirmedShipments = qtyOnHands.getQtyUnconfirmedShipmentsPerShipmentSchedule(sched);
 
 				// task 08123: we also take those numbers into account that are *not* on an M_InOutLine yet, but are nonetheless picked
-				final BigDecimal qtyPickedNotDelivered = shipmentScheduleAllocDAO.retrievePickedNotDeliveredQty(sched);
+				final BigDecimal qtyPickedNotDelivered = prefetchedData.getQtyPickedNotDelivered(sched);
 				qtyUnconfirmedShipments = qtyUnconfirmedShipments.add(qtyPickedNotDelivered);
 
 				// Update shipment schedule's field
 				sched.setQtyPickList(qtyUnconfirmedShipments);
 			}
 
-			final I_M_Product product = create(olAndSched.getSched().getM_Product(), I_M_Product.class);
+			final I_M_Product product = create(prefetchedData.getProduct(sched), I_M_Product.class);
 
 			//
 			// Check if there is any point to continue calculating how much we can deliver and also create those internal M_InOutLines.
@@ -0,0 +1,175 @@
+package de.metas.inoutcandidate.api.impl;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.I_C_BPartner;
+import org.compiere.model.I_C_Order;
+import org.compiere.model.I_C_OrderLine;
+import org.compiere.model.I_M_Product;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+import de.metas.inoutcandidate.api.IShipmentScheduleAllocDAO;
+import de.metas.inoutcandidate.api.OlAndSched;
+import de.metas.inoutcandidate.model.I_M_ShipmentSchedule;
+
+/**
+ * Data which is needed by {@link ShipmentScheduleBL#updateSchedules(Properties, List, String)} for each shipment schedule,
+ * fetched upfront for all shipment schedules of one update run, using a few bulk queries instead of a few queries per shipment schedule.
+ * <p>
+ * Immutable. If a value is not found (e.g. a shipment schedule's product was changed in meantime), it falls back to loading it the usual way.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class ShipmentSchedulesPrefetchedData
+{
+	public static ShipmentSchedulesPrefetchedData prefetch(final List<OlAndSched> olsAndScheds)
+	{
+		return new ShipmentSchedulesPrefetchedData(olsAndScheds);
+	}
+
+	/** Max number of IDs to be used in one IN (...) filter */
+	private static final int QUERY_ChunkSize = 1000;
+
+	private final ImmutableMap<Integer, BigDecimal> qtysDelivered;
+	private final ImmutableMap<Integer, BigDecimal> qtysPickedNotDelivered;
+	private final ImmutableMap<Integer, I_M_Product> productsById;
+	private final ImmutableMap<Integer, I_C_Order> ordersById;
+	private final ImmutableMap<Integer, I_C_BPartner> bpartnersById;
+
+	private ShipmentSchedulesPrefetchedData(final List<OlAndSched> olsAndScheds)
+	{
+		final IShipmentScheduleAllocDAO shipmentScheduleAllocDAO = Services.get(IShipmentScheduleAllocDAO.class);
+
+		final ImmutableSet.Builder<I_M_ShipmentSchedule> shipmentSchedules = ImmutableSet.builder();
+		final ImmutableSet.Builder<Integer> productIds = ImmutableSet.builder();
+		final ImmutableSet.Builder<Integer> orderIds = ImmutableSet.builder();
+		final ImmutableSet.Builder<Integer> bpartnerIds = ImmutableSet.builder();
+		for (final OlAndSched olAndSched : olsAndScheds)
+		{
+			final I_M_ShipmentSchedule sched = olAndSched.getSched();
+			shipmentSchedules.add(sched);
+			productIds.add(sched.getM_Product_ID());
+			bpartnerIds.add(sched.getC_BPartner_ID());
+
+			if (olAndSched.getOl().isPresent())
+			{
+				final I_C_OrderLine ol = olAndSched.getOl().get();
+				productIds.add(ol.getM_Product_ID());
+				orderIds.add(ol.getC_Order_ID());
+			}
+		}
+
+		final Set<I_M_ShipmentSchedule> shipmentSchedulesSet = shipmentSchedules.build();
+		qtysDelivered = ImmutableMap.copyOf(shipmentScheduleAllocDAO.retrieveQtysDelivered(shipmentSchedulesSet));
+		qtysPickedNotDelivered = ImmutableMap.copyOf(shipmentScheduleAllocDAO.retrievePickedNotDeliveredQtys(shipmentSchedulesSet));
+
+		final I_M_ShipmentSchedule firstShipmentSchedule = olsAndScheds.get(0).getSched();
+		final Properties ctx = InterfaceWrapperHelper.getCtx(firstShipmentSchedule);
+		final String trxName = InterfaceWrapperHelper.getTrxName(firstShipmentSchedule);
+		productsById = retrieveByIds(I_M_Product.class, I_M_Product.COLUMNNAME_M_Product_ID, productIds.build(), ctx, trxName);
+		ordersById = retrieveByIds(I_C_Order.class, I_C_Order.COLUMNNAME_C_Order_ID, orderIds.build(), ctx, trxName);
+		bpartnersById = retrieveByIds(I_C_BPartner.class, I_C_BPartner.COLUMNNAME_C_BPartner_ID, bpartnerIds.build(), ctx, trxName);
+	}
+
+	private static <T> ImmutableMap<Integer, T> retrieveByIds(
+			final Class<T> modelClass,
+			final String idColumnName,
+			final Collection<Integer> ids,
+			final Properties ctx,
+			final String trxName)
+	{
+		final ImmutableMap.Builder<Integer, T> result = ImmutableMap.builder();
+		for (final List<Integer> idsChunk : Iterables.partition(Iterables.filter(ids, id -> id > 0), QUERY_ChunkSize))
+		{
+			result.putAll(Services.get(IQueryBL.class)
+					.createQueryBuilder(modelClass, ctx, trxName)
+					.addInArrayFilter(idColumnName, idsChunk)
+					.create()
+					.mapToId(modelClass));
+		}
+		return result.build();
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[shipmentSchedules=" + qtysDelivered.size()
+				+ ", products=" + productsById.size()
+				+ ", orders=" + ordersById.size()
+				+ ", bpartners=" + bpartnersById.size()
+				+ "]";
+	}
+
+	/** @see IShipmentScheduleAllocDAO#retrieveQtyDelivered(I_M_ShipmentSchedule) */
+	public BigDecimal getQtyDelivered(final I_M_ShipmentSchedule sched)
+	{
+		return getOrLoad(qtysDelivered, sched.getM_ShipmentSchedule_ID(), () -> Services.get(IShipmentScheduleAllocDAO.class).retrieveQtyDelivered(sched));
+	}
+
+	/** @see IShipmentScheduleAllocDAO#retrievePickedNotDeliveredQty(I_M_ShipmentSchedule) */
+	public BigDecimal getQtyPickedNotDelivered(final I_M_ShipmentSchedule sched)
+	{
+		return getOrLoad(qtysPickedNotDelivered, sched.getM_ShipmentSchedule_ID(), () -> Services.get(IShipmentScheduleAllocDAO.class).retrievePickedNotDeliveredQty(sched));
+	}
+
+	public I_M_Product getProduct(final I_M_ShipmentSchedule sched)
+	{
+		return getOrLoad(productsById, sched.getM_Product_ID(), sched::getM_Product);
+	}
+
+	public I_M_Product getProduct(final I_C_OrderLine ol)
+	{
+		return getOrLoad(productsById, ol.getM_Product_ID(), ol::getM_Product);
+	}
+
+	public I_C_Order getOrder(final I_C_OrderLine ol)
+	{
+		return getOrLoad(ordersById, ol.getC_Order_ID(), ol::getC_Order);
+	}
+
+	public I_C_BPartner getBPartner(final I_M_ShipmentSchedule sched)
+	{
+		return getOrLoad(bpartnersById, sched.getC_BPartner_ID(), sched::getC_BPartner);
+	}
+
+	private static <T> T getOrLoad(final Map<Integer, T> prefetched, final int id, final Supplier<T> loader)
+	{
+		final T value = prefetched.get(id);
+		return value != null ? value : loader.get();
+	}
+}
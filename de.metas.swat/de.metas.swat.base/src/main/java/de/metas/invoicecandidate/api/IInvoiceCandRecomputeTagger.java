@@ -24,6 +24,7 @@ package de.metas.invoicecandidate.api;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 
 import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
@@ -80,6 +81,29 @@ public interface IInvoiceCandRecomputeTagger
 	 */
 	Iterator<I_C_Invoice_Candidate> retrieveInvoiceCandidates();
 
+	/**
+	 * Splits the tagged invoice candidates into disjoint partitions, which can be updated in parallel.
+	 * 
+	 * The invoice candidates are distributed by their <code>C_Order_ID</code>, or by their <code>C_Invoice_Candidate_ID</code> if they have no order,
+	 * so that all invoice candidates of one order are in the same partition.
+	 * Manual and not-manual invoice candidates are never mixed, because the manual ones depend on the not-manual ones and have to be updated after them.
+	 * 
+	 * This method assumes {@link #tag()} was called before.
+	 * 
+	 * @param partitionsCount how many partitions we want at most
+	 * @param manual if true then only manual invoice candidates are considered, else only the not-manual ones
+	 * @return <code>C_Invoice_Candidate_ID</code>s of each partition, ordered ascending; empty partitions are not returned
+	 */
+	List<List<Integer>> retrieveInvoiceCandidateIdPartitions(int partitionsCount, boolean manual);
+
+	/**
+	 * Retrieves the given invoice candidates, chunk by chunk, in the given order.
+	 * Only the invoice candidates which are still tagged are retrieved, so the ones which were already updated (and un-tagged by {@link #deleteTagged(Collection)}) are skipped.
+	 * 
+	 * @param invoiceCandidateIds one partition returned by {@link #retrieveInvoiceCandidateIdPartitions(int, boolean)}
+	 */
+	Iterator<I_C_Invoice_Candidate> retrieveInvoiceCandidates(List<Integer> invoiceCandidateIds);
+
 	/** @param recomputeTag recompute tag to be used */
 	IInvoiceCandRecomputeTagger setRecomputeTag(final InvoiceCandRecomputeTag recomputeTag);
 
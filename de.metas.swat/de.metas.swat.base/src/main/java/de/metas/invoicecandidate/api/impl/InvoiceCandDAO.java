@@ -72,7 +72,9 @@ import org.compiere.util.Env;
 import org.compiere.util.TimeUtil;
 import org.slf4j.Logger;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
 
 import de.metas.adempiere.util.CacheCtx;
 import de.metas.adempiere.util.CacheModel;
@@ -940,6 +942,70 @@ public class InvoiceCandDAO implements IInvoiceCandDAO
 		return count;
 	}
 
+	/**
+	 * @return <code>C_Invoice_Candidate_ID</code> to <code>C_Order_ID</code> (or zero) of the invoice candidates which were tagged by given tagger, ordered by <code>C_Invoice_Candidate_ID</code>
+	 */
+	protected final Map<Integer, Integer> retrieveTaggedInvoiceCandidateIdsAndOrderIds(final InvoiceCandRecomputeTagger tagger, final boolean manual)
+	{
+		Check.assumeNotNull(tagger, "tagger not null");
+		final Properties ctx = tagger.getCtx();
+		final InvoiceCandRecomputeTag recomputeTag = tagger.getRecomputeTag();
+		final String trxName = tagger.getTrxName();
+
+		return Services.get(IQueryBL.class)
+				.createQueryBuilder(I_C_Invoice_Candidate_Recompute.class, ctx, trxName)
+				.addEqualsFilter(I_C_Invoice_Candidate_Recompute.COLUMN_AD_PInstance_ID, recomputeTag.getAD_PInstance_ID())
+				//
+				// Collect invoice candidates
+				.andCollect(I_C_Invoice_Candidate_Recompute.COLUMN_C_Invoice_Candidate_ID)
+				.addOnlyContextClient()
+				.addOnlyActiveRecordsFilter()
+				.addEqualsFilter(I_C_Invoice_Candidate.COLUMN_IsManual, manual)
+				.orderBy()
+				.addColumn(I_C_Invoice_Candidate.COLUMN_C_Invoice_Candidate_ID)
+				.endOrderBy()
+				.create()
+				.listColumns(I_C_Invoice_Candidate.COLUMNNAME_C_Invoice_Candidate_ID, I_C_Invoice_Candidate.COLUMNNAME_C_Order_ID)
+				.stream()
+				.collect(ImmutableMap.toImmutableMap(
+						row -> toInt(row.get(I_C_Invoice_Candidate.COLUMNNAME_C_Invoice_Candidate_ID)),
+						row -> toInt(row.get(I_C_Invoice_Candidate.COLUMNNAME_C_Order_ID))));
+	}
+
+	private static int toInt(final Object value)
+	{
+		return value instanceof Number ? ((Number)value).intValue() : 0;
+	}
+
+	/**
+	 * Loads the given invoice candidates lazily, in chunks of {@value #RetrieveInvoiceCandidatesByIds_ChunkSize}, preserving the order of the given IDs.
+	 * Only the invoice candidates which are still tagged by given tagger are loaded.
+	 */
+	protected final Iterator<I_C_Invoice_Candidate> retrieveInvoiceCandidatesByIds(final InvoiceCandRecomputeTagger tagger, final List<Integer> invoiceCandidateIds)
+	{
+		Check.assumeNotNull(tagger, "tagger not null");
+		final Properties ctx = tagger.getCtx();
+		final InvoiceCandRecomputeTag recomputeTag = tagger.getRecomputeTag();
+		final String trxName = tagger.getTrxName();
+
+		final Iterator<List<Integer>> idChunks = Iterators.partition(invoiceCandidateIds.iterator(), RetrieveInvoiceCandidatesByIds_ChunkSize);
+		return Iterators.concat(Iterators.transform(idChunks, idsChunk -> Services.get(IQueryBL.class)
+				.createQueryBuilder(I_C_Invoice_Candidate_Recompute.class, ctx, trxName)
+				.addEqualsFilter(I_C_Invoice_Candidate_Recompute.COLUMN_AD_PInstance_ID, recomputeTag.getAD_PInstance_ID())
+				.addInArrayFilter(I_C_Invoice_Candidate_Recompute.COLUMN_C_Invoice_Candidate_ID, idsChunk)
+				//
+				// Collect invoice candidates
+				.andCollect(I_C_Invoice_Candidate_Recompute.COLUMN_C_Invoice_Candidate_ID)
+				.orderBy()
+				.addColumn(I_C_Invoice_Candidate.COLUMN_C_Invoice_Candidate_ID)
+				.endOrderBy()
+				.create()
+				.list(I_C_Invoice_Candidate.class)
+				.iterator()));
+	}
+
+	private static final int RetrieveInvoiceCandidatesByIds_ChunkSize = 500;
+
 	@Override
 	public final boolean hasInvalidInvoiceCandidatesForTag(final InvoiceCandRecomputeTag tag)
 	{
@@ -27,6 +27,12 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.trx.api.ITrxManager;
@@ -35,14 +41,22 @@ import org.adempiere.ad.trx.processor.api.ITrxItemExecutorBuilder.OnItemErrorPol
 import org.adempiere.ad.trx.processor.api.ITrxItemProcessorExecutorService;
 import org.adempiere.ad.trx.processor.spi.TrxItemChunkProcessorAdapter;
 import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.exceptions.DBDeadLockDetectedException;
+import org.adempiere.exceptions.DBException;
 import org.adempiere.model.IContextAware;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
+import org.adempiere.util.ILoggable;
 import org.adempiere.util.Loggables;
 import org.adempiere.util.Services;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
 import org.adempiere.util.lang.IAutoCloseable;
 import org.compiere.model.I_C_InvoiceCandidate_InOutLine;
+import org.compiere.util.Env;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
 
 import de.metas.inout.IInOutDAO;
 import de.metas.invoicecandidate.api.IInvoiceCandDAO;
@@ -71,6 +85,19 @@ import lombok.NonNull;
 	private static final String SYSCONFIG_ItemsPerBatch = "de.metas.invoicecandidate.api.impl.InvoiceCandInvalidUpdater.ItemsPerBatch";
 	private static final int DEFAULT_ItemsPerBatch = 100;
 
+	/** How many threads to use when updating the invoice candidates. 1 means sequential update, in the current thread. */
+	private static final String SYSCONFIG_Parallelism = "de.metas.invoicecandidate.api.impl.InvoiceCandInvalidUpdater.Parallelism";
+	private static final int DEFAULT_Parallelism = 1;
+
+	/**
+	 * Executes the partitions when updating in parallel. Shared between all updaters, so we don't create new threads on each run; idle threads are discarded after a minute.
+	 * There is no upper limit, because the number of concurrently running partitions is limited by the {@link #SYSCONFIG_Parallelism} of each run.
+	 */
+	private static final ExecutorService partitionsExecutor = Executors.newCachedThreadPool(CustomizableThreadFactory.builder()
+			.setThreadNamePrefix(InvoiceCandInvalidUpdater.class.getSimpleName() + "-Partition")
+			.setDaemon(true)
+			.build());
+
 	//
 	// Parameters
 	private Properties _ctx;
@@ -88,6 +115,13 @@ import lombok.NonNull;
 		icTagger = invoiceCandDAO.tagToRecompute();
 	}
 
+	@VisibleForTesting
+	InvoiceCandInvalidUpdater(@NonNull final InvoiceCandBL invoiceCandBL, @NonNull final IInvoiceCandRecomputeTagger icTagger)
+	{
+		this.invoiceCandBL = invoiceCandBL;
+		this.icTagger = icTagger;
+	}
+
 	@Override
 	public void update()
 	{
@@ -138,6 +172,16 @@ import lombok.NonNull;
 		final boolean processInBatches = !icTagger.isOnlyC_Invoice_Candidate_IDs();
 		final int itemsPerBatch = processInBatches ? getItemsPerBatch() : Integer.MAX_VALUE;
 
+		//
+		// Update the invoice candidates in parallel if configured.
+		// We can do this only if we are managing the transactions ourselves, because each partition is updated in it's own transactions.
+		final int parallelism = processInBatches && trxManager.isNull(_trxName) ? getParallelism() : 1;
+		if (parallelism > 1)
+		{
+			updateTaggedInParallel(parallelism, itemsPerBatch);
+			return;
+		}
+
 		//
 		// Fetch the invoice candidates to update
 		final Iterator<I_C_Invoice_Candidate> candidatesToUpdate = icTagger.retrieveInvoiceCandidates();
@@ -149,81 +193,260 @@ import lombok.NonNull;
 
 		//
 		// Update invoice candidates in chunks
-		final ICUpdateResult result = new ICUpdateResult();
+		final ICUpdateResult result = new ICUpdateResult(null);
 		try (final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
 		{
-			trxItemProcessorExecutorService.<I_C_Invoice_Candidate, ICUpdateResult> createExecutor()
-					.setContext(getCtx(), getTrxName()) // if called from process or wp-processor then getTrxName() is null because *we* want to manage the trx => commit after each chunk
-					.setItemsPerBatch(itemsPerBatch)
+			updateInChunks(candidatesToUpdate, itemsPerBatch, result);
+		}
 
-					// Don't use trx savepoints because they are expensive and we are not going to rollback anyways (OnItemErrorPolicy.ContinueChunkAndCommit)
-					// Note that if our trx is null, then this doesn't matter anyways.
-					.setUseTrxSavepoints(false)
+		//
+		// Log the result
+		Loggables.get().addLog("Update invalid result: {}", result.getSummary());
+	}
 
-					.setExceptionHandler(new ICTrxItemExceptionHandler(result))
+	/**
+	 * Splits the tagged invoice candidates in partitions and updates each partition in it's own thread.
+	 * The manual invoice candidates are updated after all the other ones, because they depend on them (see {@link de.metas.invoicecandidate.spi.impl.ManualCandidateHandler}).
+	 * <p>
+	 * About locking: the partitions are built per order (see {@link IInvoiceCandRecomputeTagger#retrieveInvoiceCandidateIdPartitions(int, boolean)}),
+	 * so two partitions never update the same <code>C_Order</code> or <code>C_OrderLine</code> records.
+	 * Shared master data like <code>C_Invoice_Candidate_Agg</code> is only read while updating, so it's not locked.
+	 * If the database still detects a deadlock between two partitions, it aborts the transaction of one of them; that partition is updated again, sequentially, after all the others are done.
+	 * Only the invoice candidates of that partition which were not yet updated (i.e. which are still tagged) are updated again.
+	 */
+	private final void updateTaggedInParallel(final int parallelism, final int itemsPerBatch)
+	{
+		final ILoggable loggable = Loggables.get();
 
-					// issue #302: ICTrxItemExceptionHandler will deal with problems, so we just continue if they happen.
-					.setOnItemErrorPolicy(OnItemErrorPolicy.ContinueChunkAndCommit)
+		// the partitions are logging concurrently, so add their logs one by one
+		final ILoggable partitionsLoggable = (msg, msgParameters) -> {
+			synchronized (loggable)
+			{
+				loggable.addLog(msg, msgParameters);
+			}
+		};
 
-					.setProcessor(new TrxItemChunkProcessorAdapter<I_C_Invoice_Candidate, ICUpdateResult>()
-					{
-						/** the invoice candidates which were updated in current batch/chunk */
-						final List<Integer> chunkInvoiceCandidateIds = new ArrayList<>();
+		final List<ICUpdateResult> results = new ArrayList<>();
+		try
+		{
+			updateTaggedInParallel(parallelism, (invoiceCandidateIds, result) -> updatePartition(invoiceCandidateIds, itemsPerBatch, partitionsLoggable, result), results);
+		}
+		finally
+		{
+			logResults(loggable, results);
+		}
+	}
 
-						@Override
-						public void process(final I_C_Invoice_Candidate ic) throws Exception
-						{
-							chunkInvoiceCandidateIds.add(ic.getC_Invoice_Candidate_ID());
-
-							updateInvalid(ic);
-							if (!ic.isError())
-							{
-								result.addInvoiceCandidate(ic);
-							}
-							else
-							{
-								result.incrementErrorsCount();
-							}
-						}
+	/**
+	 * Updates the not-manual partitions in parallel, then the manual invoice candidates.
+	 *
+	 * @param partitionUpdater updates the given invoice candidates and collects the counters into the given result
+	 * @param results the results of all partitions are added to this list, also if a partition fails
+	 * @throws AdempiereException if a partition failed, after all other not-manual partitions were done; the manual invoice candidates are not updated in that case
+	 */
+	@VisibleForTesting
+	/* package */ final void updateTaggedInParallel(
+			final int parallelism,
+			@NonNull final BiConsumer<List<Integer>, ICUpdateResult> partitionUpdater,
+			@NonNull final List<ICUpdateResult> results)
+	{
+		//
+		// Update the not-manual invoice candidates, in parallel
+		final List<List<Integer>> partitions = icTagger.retrieveInvoiceCandidateIdPartitions(parallelism, false);
+		final List<Future<?>> futures = new ArrayList<>(partitions.size());
+		for (int i = 0; i < partitions.size(); i++)
+		{
+			final List<Integer> invoiceCandidateIds = partitions.get(i);
+			final ICUpdateResult partitionResult = new ICUpdateResult("Partition " + (i + 1) + "/" + partitions.size());
+			results.add(partitionResult);
 
-						@Override
-						public ICUpdateResult getResult()
-						{
-							return result;
-						}
+			futures.add(partitionsExecutor.submit(() -> partitionUpdater.accept(invoiceCandidateIds, partitionResult)));
+		}
 
-						/**
-						 * Always return <code>true</code> and let the caller decide when to close the chunk (based on ItemsPerBatch setting).
-						 * We do this because in fact, each IC is independent from each other.
-						 * On the other hand, we don't want the overhead of dealing with each IC independently (trx-commit etc).
-						 */
-						@Override
-						public boolean isSameChunk(final I_C_Invoice_Candidate item)
-						{
-							return true;
-						}
+		//
+		// Update the deadlocked partitions again, sequentially
+		for (final int partitionIndex : waitForAll(futures))
+		{
+			final ICUpdateResult retryResult = new ICUpdateResult("Partition " + (partitionIndex + 1) + "/" + partitions.size() + " (retry after deadlock)");
+			results.add(retryResult);
+
+			partitionUpdater.accept(partitions.get(partitionIndex), retryResult);
+		}
+
+		//
+		// Update the manual invoice candidates, sequentially
+		for (final List<Integer> invoiceCandidateIds : icTagger.retrieveInvoiceCandidateIdPartitions(1, true))
+		{
+			final ICUpdateResult manualResult = new ICUpdateResult("Manual");
+			results.add(manualResult);
+
+			partitionUpdater.accept(invoiceCandidateIds, manualResult);
+		}
+	}
 
-						@Override
-						public void newChunk(final I_C_Invoice_Candidate item)
+	private final void updatePartition(final List<Integer> invoiceCandidateIds, final int itemsPerBatch, final ILoggable loggable, final ICUpdateResult result)
+	{
+		result.start();
+		try (final IAutoCloseable ctxCloseable = Env.switchContext(getCtx());
+				final IAutoCloseable loggableCloseable = Loggables.temporarySetLoggable(loggable);
+				final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
+		{
+			updateInChunks(icTagger.retrieveInvoiceCandidates(invoiceCandidateIds), itemsPerBatch, result);
+		}
+		finally
+		{
+			result.stop();
+		}
+	}
+
+	/**
+	 * Waits until all given futures are done, even if some of them failed.
+	 *
+	 * @return the indexes of the futures which failed because of a deadlock; those can be retried
+	 * @throws AdempiereException the first failure which was not a deadlock, having the other failures as suppressed exceptions
+	 */
+	private static List<Integer> waitForAll(final List<Future<?>> futures)
+	{
+		final List<Integer> deadlockedIndexes = new ArrayList<>();
+		AdempiereException failure = null;
+		for (int i = 0; i < futures.size(); i++)
+		{
+			try
+			{
+				futures.get(i).get();
+			}
+			catch (final InterruptedException ex)
+			{
+				futures.forEach(f -> f.cancel(true));
+				Thread.currentThread().interrupt();
+				throw new AdempiereException("Interrupted while waiting for the invoice candidates to be updated", ex);
+			}
+			catch (final ExecutionException ex)
+			{
+				final Throwable cause = ex.getCause();
+				if (isDeadLock(cause))
+				{
+					deadlockedIndexes.add(i);
+					continue;
+				}
+
+				final AdempiereException partitionFailure = AdempiereException.wrapIfNeeded(cause);
+				if (failure == null)
+				{
+					failure = partitionFailure;
+				}
+				else
+				{
+					failure.addSuppressed(partitionFailure);
+				}
+			}
+		}
+
+		if (failure != null)
+		{
+			throw failure;
+		}
+		return deadlockedIndexes;
+	}
+
+	/** PostgreSQL's <code>deadlock_detected</code> */
+	private static final String SQLSTATE_DeadlockDetected = "40P01";
+
+	private static boolean isDeadLock(final Throwable throwable)
+	{
+		for (Throwable t = throwable; t != null; t = t.getCause())
+		{
+			if (t instanceof DBDeadLockDetectedException || DBException.isSQLState(t, SQLSTATE_DeadlockDetected))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void logResults(final ILoggable loggable, final List<ICUpdateResult> results)
+	{
+		int countOk = 0;
+		int countErrors = 0;
+		for (final ICUpdateResult result : results)
+		{
+			loggable.addLog("Update invalid result: {}", result.getSummary());
+			countOk += result.getCountOk();
+			countErrors += result.getCountErrors();
+		}
+
+		loggable.addLog("Update invalid result: Updated {} invoice candidates, {} errors, using {} partitions", countOk, countErrors, results.size());
+	}
+
+	private final void updateInChunks(final Iterator<I_C_Invoice_Candidate> candidatesToUpdate, final int itemsPerBatch, final ICUpdateResult result)
+	{
+		trxItemProcessorExecutorService.<I_C_Invoice_Candidate, ICUpdateResult> createExecutor()
+				.setContext(getCtx(), getTrxName()) // if called from process or wp-processor then getTrxName() is null because *we* want to manage the trx => commit after each chunk
+				.setItemsPerBatch(itemsPerBatch)
+
+				// Don't use trx savepoints because they are expensive and we are not going to rollback anyways (OnItemErrorPolicy.ContinueChunkAndCommit)
+				// Note that if our trx is null, then this doesn't matter anyways.
+				.setUseTrxSavepoints(false)
+
+				.setExceptionHandler(new ICTrxItemExceptionHandler(result))
+
+				// issue #302: ICTrxItemExceptionHandler will deal with problems, so we just continue if they happen.
+				.setOnItemErrorPolicy(OnItemErrorPolicy.ContinueChunkAndCommit)
+
+				.setProcessor(new TrxItemChunkProcessorAdapter<I_C_Invoice_Candidate, ICUpdateResult>()
+				{
+					/** the invoice candidates which were updated in current batch/chunk */
+					final List<Integer> chunkInvoiceCandidateIds = new ArrayList<>();
+
+					@Override
+					public void process(final I_C_Invoice_Candidate ic) throws Exception
+					{
+						chunkInvoiceCandidateIds.add(ic.getC_Invoice_Candidate_ID());
+
+						updateInvalid(ic);
+						if (!ic.isError())
 						{
-							chunkInvoiceCandidateIds.clear(); // better safe than sorry
+							result.addInvoiceCandidate(ic);
 						}
-
-						/** Delete the items which we just updated from <code>C_Invoice_Candidate_Recompute</code>. */
-						@Override
-						public void completeChunk()
+						else
 						{
-							icTagger.deleteTagged(chunkInvoiceCandidateIds);
-							chunkInvoiceCandidateIds.clear();
+							result.incrementErrorsCount();
 						}
-					})
-					//
-					.process(candidatesToUpdate);
-		}
+					}
 
-		//
-		// Log the result
-		Loggables.get().addLog("Update invalid result: {}", result.getSummary());
+					@Override
+					public ICUpdateResult getResult()
+					{
+						return result;
+					}
+
+					/**
+					 * Always return <code>true</code> and let the caller decide when to close the chunk (based on ItemsPerBatch setting).
+					 * We do this because in fact, each IC is independent from each other.
+					 * On the other hand, we don't want the overhead of dealing with each IC independently (trx-commit etc).
+					 */
+					@Override
+					public boolean isSameChunk(final I_C_Invoice_Candidate item)
+					{
+						return true;
+					}
+
+					@Override
+					public void newChunk(final I_C_Invoice_Candidate item)
+					{
+						chunkInvoiceCandidateIds.clear(); // better safe than sorry
+					}
+
+					/** Delete the items which we just updated from <code>C_Invoice_Candidate_Recompute</code>. */
+					@Override
+					public void completeChunk()
+					{
+						icTagger.deleteTagged(chunkInvoiceCandidateIds);
+						chunkInvoiceCandidateIds.clear();
+					}
+				})
+				//
+				.process(candidatesToUpdate);
 	}
 
 	private final void updateInvalid(final I_C_Invoice_Candidate ic)
@@ -476,17 +699,33 @@ import lombok.NonNull;
 		return sysConfigBL.getIntValue(SYSCONFIG_ItemsPerBatch, DEFAULT_ItemsPerBatch);
 	}
 
+	private final int getParallelism()
+	{
+		return Math.max(sysConfigBL.getIntValue(SYSCONFIG_Parallelism, DEFAULT_Parallelism), 1);
+	}
+
 	/**
 	 * IC update result.
 	 *
+	 * When updating in parallel, there is one result for each partition, so the counters are only changed by one thread.
+	 *
 	 * @author metas-dev <dev@metasfresh.com>
 	 *
 	 */
-	private static final class ICUpdateResult
+	/* package */ static final class ICUpdateResult
 	{
+		private final String partitionName;
+
 		private int countOk = 0;
 		private int countErrors = 0;
 
+		private final Stopwatch stopwatch = Stopwatch.createUnstarted();
+
+		public ICUpdateResult(final String partitionName)
+		{
+			this.partitionName = partitionName;
+		}
+
 		public final void addInvoiceCandidate(final I_C_Invoice_Candidate ic)
 		{
 			countOk++;
@@ -497,6 +736,26 @@ import lombok.NonNull;
 			countErrors++;
 		}
 
+		public int getCountOk()
+		{
+			return countOk;
+		}
+
+		public int getCountErrors()
+		{
+			return countErrors;
+		}
+
+		public void start()
+		{
+			stopwatch.start();
+		}
+
+		public void stop()
+		{
+			stopwatch.stop();
+		}
+
 		@Override
 		public final String toString()
 		{
@@ -505,7 +764,22 @@ import lombok.NonNull;
 
 		public String getSummary()
 		{
-			return "Updated " + countOk + " invoice candidates, " + countErrors + " errors";
+			final StringBuilder summary = new StringBuilder();
+			if (partitionName != null)
+			{
+				summary.append(partitionName).append(": ");
+			}
+
+			summary.append("Updated " + countOk + " invoice candidates, " + countErrors + " errors");
+
+			final long durationMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+			if (durationMillis > 0)
+			{
+				final long itemsPerSecond = (countOk + countErrors) * 1000L / durationMillis;
+				summary.append(" in " + stopwatch + " (" + itemsPerSecond + " items/sec)");
+			}
+
+			return summary.toString();
 		}
 	}
 
@@ -532,6 +806,12 @@ import lombok.NonNull;
 		@Override
 		public void onItemError(final Throwable e, final Object item)
 		{
+			// the database aborted our transaction, so we can't save the error; let the whole partition fail, it will be retried
+			if (isDeadLock(e))
+			{
+				throw AdempiereException.wrapIfNeeded(e);
+			}
+
 			result.incrementErrorsCount();
 
 			final I_C_Invoice_Candidate ic = InterfaceWrapperHelper.create(item, I_C_Invoice_Candidate.class);
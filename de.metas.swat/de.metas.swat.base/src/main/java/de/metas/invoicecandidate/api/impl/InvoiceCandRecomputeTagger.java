@@ -22,9 +22,12 @@ package de.metas.invoicecandidate.api.impl;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -32,6 +35,8 @@ import org.adempiere.util.Check;
 import org.adempiere.util.lang.ObjectUtils;
 import org.adempiere.util.text.annotation.ToStringBuilder;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import de.metas.invoicecandidate.api.IInvoiceCandRecomputeTagger;
@@ -122,6 +127,51 @@ import de.metas.lock.api.ILock;
 		return invoiceCandidates;
 	}
 
+	@Override
+	public List<List<Integer>> retrieveInvoiceCandidateIdPartitions(final int partitionsCount, final boolean manual)
+	{
+		return partition(invoiceCandDAO.retrieveTaggedInvoiceCandidateIdsAndOrderIds(this, manual), partitionsCount);
+	}
+
+	/**
+	 * Distributes the given invoice candidates by their <code>C_Order_ID</code> modulo <code>partitionsCount</code>, or by their <code>C_Invoice_Candidate_ID</code> if they have no order.
+	 * <p>
+	 * So all invoice candidates of the same order end up in the same partition, and partitions which are updated in parallel don't update the same <code>C_Order</code> and <code>C_OrderLine</code> records.
+	 *
+	 * @param invoiceCandidateId2OrderId <code>C_Invoice_Candidate_ID</code> to <code>C_Order_ID</code> (or zero), ordered by <code>C_Invoice_Candidate_ID</code>
+	 * @return the partitions' <code>C_Invoice_Candidate_ID</code>s, ordered ascending; empty partitions are not returned
+	 */
+	@VisibleForTesting
+	/* package */ static List<List<Integer>> partition(final Map<Integer, Integer> invoiceCandidateId2OrderId, final int partitionsCount)
+	{
+		Check.assume(partitionsCount > 0, "partitionsCount > 0 but it was {}", partitionsCount);
+
+		final List<List<Integer>> partitions = new ArrayList<>(partitionsCount);
+		for (int i = 0; i < partitionsCount; i++)
+		{
+			partitions.add(new ArrayList<>());
+		}
+
+		// NOTE: the IDs are ordered, so each partition will be ordered too
+		for (final Map.Entry<Integer, Integer> invoiceCandidateIdAndOrderId : invoiceCandidateId2OrderId.entrySet())
+		{
+			final int invoiceCandidateId = invoiceCandidateIdAndOrderId.getKey();
+			final int orderId = invoiceCandidateIdAndOrderId.getValue();
+			final int partitionKey = orderId > 0 ? orderId : invoiceCandidateId;
+			partitions.get(partitionKey % partitionsCount).add(invoiceCandidateId);
+		}
+
+		return partitions.stream()
+				.filter(partition -> !partition.isEmpty())
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	@Override
+	public Iterator<I_C_Invoice_Candidate> retrieveInvoiceCandidates(final List<Integer> invoiceCandidateIds)
+	{
+		return invoiceCandDAO.retrieveInvoiceCandidatesByIds(this, invoiceCandidateIds);
+	}
+
 	@Override
 	public IInvoiceCandRecomputeTagger setContext(final Properties ctx, final String trxName)
 	{
@@ -23,12 +23,18 @@ package de.metas.inoutcandidate.api.impl;
  */
 
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.test.AdempiereTestHelper;
 import org.adempiere.util.Services;
+import org.compiere.model.I_M_InOutLine;
 import org.compiere.util.Env;
 import org.junit.Assert;
 import org.junit.Before;
@@ -90,6 +96,45 @@ public class ShipmentScheduleAllocDAOTest
 
 	}
 
+	/**
+	 * Makes sure the bulk methods {@link IShipmentScheduleAllocDAO#retrieveQtysDelivered(java.util.Collection)} and {@link IShipmentScheduleAllocDAO#retrievePickedNotDeliveredQtys(java.util.Collection)}
+	 * are returning the same as their single shipment schedule counterparts.
+	 */
+	@Test
+	public void test_retrieveQtysDelivered_retrievePickedNotDeliveredQtys()
+	{
+		final I_M_ShipmentSchedule ss1 = createM_ShipmentSchedule();
+		final I_M_ShipmentSchedule ss2 = createM_ShipmentSchedule();
+		final I_M_ShipmentSchedule ss3 = createM_ShipmentSchedule(); // nothing picked
+
+		final I_M_InOutLine processedLine = createM_InOutLine("10", true);
+		final I_M_InOutLine notProcessedLine = createM_InOutLine("7", false);
+
+		createShipmentScheduleQtyPickedRecord(ss1, 0, "3");
+		createShipmentScheduleQtyPickedRecord(ss1, 0, "2");
+		createShipmentScheduleQtyPickedRecord(ss1, processedLine.getM_InOutLine_ID(), "4");
+		createShipmentScheduleQtyPickedRecord(ss1, processedLine.getM_InOutLine_ID(), "6"); // same inout line => counted once
+		createShipmentScheduleQtyPickedRecord(ss2, notProcessedLine.getM_InOutLine_ID(), "7");
+		createShipmentScheduleQtyPickedRecord(ss2, 0, "1");
+
+		final List<I_M_ShipmentSchedule> shipmentSchedules = Arrays.asList(ss1, ss2, ss3);
+		final Map<Integer, BigDecimal> qtysDelivered = dao.retrieveQtysDelivered(shipmentSchedules);
+		final Map<Integer, BigDecimal> qtysPickedNotDelivered = dao.retrievePickedNotDeliveredQtys(shipmentSchedules);
+
+		assertThat(qtysDelivered.get(ss1.getM_ShipmentSchedule_ID())).isEqualByComparingTo("10");
+		assertThat(qtysPickedNotDelivered.get(ss1.getM_ShipmentSchedule_ID())).isEqualByComparingTo("5");
+		assertThat(qtysDelivered.get(ss2.getM_ShipmentSchedule_ID())).isEqualByComparingTo("0");
+		assertThat(qtysPickedNotDelivered.get(ss2.getM_ShipmentSchedule_ID())).isEqualByComparingTo("1");
+		assertThat(qtysDelivered.get(ss3.getM_ShipmentSchedule_ID())).isEqualByComparingTo("0");
+		assertThat(qtysPickedNotDelivered.get(ss3.getM_ShipmentSchedule_ID())).isEqualByComparingTo("0");
+
+		for (final I_M_ShipmentSchedule ss : shipmentSchedules)
+		{
+			assertThat(qtysDelivered.get(ss.getM_ShipmentSchedule_ID())).isEqualByComparingTo(dao.retrieveQtyDelivered(ss));
+			assertThat(qtysPickedNotDelivered.get(ss.getM_ShipmentSchedule_ID())).isEqualByComparingTo(dao.retrievePickedNotDeliveredQty(ss));
+		}
+	}
+
 	private final I_M_ShipmentSchedule createM_ShipmentSchedule()
 	{
 		final I_M_ShipmentSchedule ss = InterfaceWrapperHelper.create(Env.getCtx(), I_M_ShipmentSchedule.class, ITrx.TRXNAME_None);
@@ -105,4 +150,21 @@ public class ShipmentScheduleAllocDAOTest
 		InterfaceWrapperHelper.save(record);
 		return record;
 	}
+
+	private final I_M_ShipmentSchedule_QtyPicked createShipmentScheduleQtyPickedRecord(final I_M_ShipmentSchedule ss, final int inoutLineId, final String qtyPicked)
+	{
+		final I_M_ShipmentSchedule_QtyPicked record = createShipmentScheduleQtyPickedRecord(ss, inoutLineId);
+		record.setQtyPicked(new BigDecimal(qtyPicked));
+		InterfaceWrapperHelper.save(record);
+		return record;
+	}
+
+	private final I_M_InOutLine createM_InOutLine(final String movementQty, final boolean processed)
+	{
+		final I_M_InOutLine inoutLine = InterfaceWrapperHelper.create(Env.getCtx(), I_M_InOutLine.class, ITrx.TRXNAME_None);
+		inoutLine.setMovementQty(new BigDecimal(movementQty));
+		inoutLine.setProcessed(processed);
+		InterfaceWrapperHelper.save(inoutLine);
+		return inoutLine;
+	}
 }
@@ -0,0 +1,212 @@
+package de.metas.invoicecandidate.api.impl;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.invoicecandidate.api.IInvoiceCandRecomputeTagger;
+import de.metas.invoicecandidate.api.impl.InvoiceCandInvalidUpdater.ICUpdateResult;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+
+/**
+ * Tests how {@link InvoiceCandInvalidUpdater} updates the partitions in parallel, see {@link InvoiceCandInvalidUpdater#updateTaggedInParallel(int, BiConsumer, List)}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class InvoiceCandInvalidUpdaterTest
+{
+	private static final List<Integer> PARTITION1 = ImmutableList.of(2, 4);
+	private static final List<Integer> PARTITION2 = ImmutableList.of(1, 3);
+	private static final List<Integer> PARTITION_MANUAL = ImmutableList.of(5);
+
+	@Mocked
+	private IInvoiceCandRecomputeTagger icTagger;
+
+	@Mocked
+	private InvoiceCandBL invoiceCandBL;
+
+	private InvoiceCandInvalidUpdater updater;
+
+	/** the partitions which were updated, in the order they were completed */
+	private final List<List<Integer>> updatedPartitions = Collections.synchronizedList(new ArrayList<>());
+
+	private final List<ICUpdateResult> results = new ArrayList<>();
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		updater = new InvoiceCandInvalidUpdater(invoiceCandBL, icTagger);
+
+		// @formatter:off
+		new Expectations()
+		{{
+			icTagger.retrieveInvoiceCandidateIdPartitions(2, false); minTimes = 0; result = ImmutableList.of(PARTITION1, PARTITION2);
+			icTagger.retrieveInvoiceCandidateIdPartitions(1, true); minTimes = 0; result = ImmutableList.of(PARTITION_MANUAL);
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void partitionsAreUpdatedInParallelAndManualInvoiceCandidatesLast()
+	{
+		// each of the two partitions waits until the other one was started, so they can only complete if they run in parallel
+		final CountDownLatch bothPartitionsStarted = new CountDownLatch(2);
+
+		updater.updateTaggedInParallel(2, (invoiceCandidateIds, result) -> {
+			if (!invoiceCandidateIds.equals(PARTITION_MANUAL))
+			{
+				bothPartitionsStarted.countDown();
+				await(bothPartitionsStarted);
+			}
+			updatedPartitions.add(invoiceCandidateIds);
+		}, results);
+
+		assertEquals(3, updatedPartitions.size());
+		assertTrue(updatedPartitions.subList(0, 2).containsAll(ImmutableList.of(PARTITION1, PARTITION2)));
+		assertEquals(PARTITION_MANUAL, updatedPartitions.get(2));
+		assertEquals(3, results.size());
+	}
+
+	@Test
+	public void partitionFailureIsPropagatedAfterTheOtherPartitionsAreDone()
+	{
+		final AdempiereException partitionFailure = new AdempiereException("partition failed");
+		final AtomicBoolean partition2Done = new AtomicBoolean(false);
+
+		try
+		{
+			updater.updateTaggedInParallel(2, (invoiceCandidateIds, result) -> {
+				if (invoiceCandidateIds.equals(PARTITION1))
+				{
+					throw partitionFailure;
+				}
+				sleep(200); // make sure that partition1 fails first
+				updatedPartitions.add(invoiceCandidateIds);
+				partition2Done.set(true);
+			}, results);
+			fail("partition failure expected");
+		}
+		catch (final AdempiereException ex)
+		{
+			assertSame(partitionFailure, ex);
+			assertTrue("the other partition shall be done before the failure is propagated", partition2Done.get());
+		}
+
+		// the manual invoice candidates depend on the other ones, so they shall not be updated if a partition failed
+		assertEquals(ImmutableList.of(PARTITION2), updatedPartitions);
+		assertEquals(2, results.size());
+
+		// @formatter:off
+		new Verifications()
+		{{
+			icTagger.retrieveInvoiceCandidateIdPartitions(1, true); times = 0;
+		}};
+		// @formatter:on
+	}
+
+	@Test
+	public void failuresOfAllPartitionsArePropagated()
+	{
+		final AdempiereException partition1Failure = new AdempiereException("partition 1 failed");
+		final AdempiereException partition2Failure = new AdempiereException("partition 2 failed");
+
+		try
+		{
+			updater.updateTaggedInParallel(2, (invoiceCandidateIds, result) -> {
+				throw invoiceCandidateIds.equals(PARTITION1) ? partition1Failure : partition2Failure;
+			}, results);
+			fail("partition failure expected");
+		}
+		catch (final AdempiereException ex)
+		{
+			// the failures are reported in the order of the partitions
+			assertSame(partition1Failure, ex);
+			assertEquals(1, ex.getSuppressed().length);
+			assertSame(partition2Failure, ex.getSuppressed()[0]);
+		}
+	}
+
+	@Test
+	public void deadlockedPartitionIsUpdatedAgainSequentially()
+	{
+		final AtomicBoolean deadlocked = new AtomicBoolean(false);
+
+		updater.updateTaggedInParallel(2, (invoiceCandidateIds, result) -> {
+			if (invoiceCandidateIds.equals(PARTITION2) && deadlocked.compareAndSet(false, true))
+			{
+				throw new AdempiereException("deadlock", new SQLException("deadlock detected", "40P01"));
+			}
+			updatedPartitions.add(invoiceCandidateIds);
+		}, results);
+
+		assertEquals(ImmutableList.of(PARTITION1, PARTITION2, PARTITION_MANUAL), updatedPartitions);
+		assertEquals("two partitions, the retry and the manual ICs", 4, results.size());
+	}
+
+	private static void await(final CountDownLatch latch)
+	{
+		try
+		{
+			assertTrue("timed out; partitions are not updated in parallel", latch.await(10, TimeUnit.SECONDS));
+		}
+		catch (final InterruptedException e)
+		{
+			throw new AdempiereException(e);
+		}
+	}
+
+	private static void sleep(final long millis)
+	{
+		try
+		{
+			Thread.sleep(millis);
+		}
+		catch (final InterruptedException e)
+		{
+			throw new AdempiereException(e);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package de.metas.invoicecandidate.api.impl;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@link InvoiceCandRecomputeTagger#partition(Map, int)}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class InvoiceCandRecomputeTaggerTest
+{
+	@Test
+	public void partitionByInvoiceCandidateIdModuloPartitionsCount()
+	{
+		final Map<Integer, Integer> invoiceCandidateId2OrderId = ImmutableMap.<Integer, Integer> builder()
+				.put(10, 0)
+				.put(11, 0)
+				.put(12, 0)
+				.put(13, 0)
+				.put(14, 0)
+				.put(15, 0)
+				.put(16, 0)
+				.build();
+
+		final List<List<Integer>> partitions = InvoiceCandRecomputeTagger.partition(invoiceCandidateId2OrderId, 3);
+
+		assertEquals(ImmutableList.of(
+				ImmutableList.of(12, 15),
+				ImmutableList.of(10, 13, 16),
+				ImmutableList.of(11, 14)),
+				partitions);
+	}
+
+	/**
+	 * Verifies that all invoice candidates of one order end up in the same partition, so that two partitions don't update the same order lines.
+	 */
+	@Test
+	public void partitionKeepsTheInvoiceCandidatesOfOneOrderTogether()
+	{
+		final Map<Integer, Integer> invoiceCandidateId2OrderId = ImmutableMap.<Integer, Integer> builder()
+				.put(10, 100)
+				.put(11, 101)
+				.put(12, 100)
+				.put(13, 0)
+				.put(14, 101)
+				.put(15, 100)
+				.build();
+
+		final List<List<Integer>> partitions = InvoiceCandRecomputeTagger.partition(invoiceCandidateId2OrderId, 2);
+
+		assertEquals(ImmutableList.of(
+				ImmutableList.of(10, 12, 15), // order 100
+				ImmutableList.of(11, 13, 14)), // order 101 and IC 13 which has no order
+				partitions);
+	}
+
+	@Test
+	public void partitionDoesNotReturnEmptyPartitions()
+	{
+		final Map<Integer, Integer> invoiceCandidateId2OrderId = ImmutableMap.of(10, 0, 20, 0);
+
+		final List<List<Integer>> partitions = InvoiceCandRecomputeTagger.partition(invoiceCandidateId2OrderId, 5);
+
+		assertEquals(ImmutableList.of(ImmutableList.of(10, 20)), partitions);
+	}
+
+	@Test
+	public void partitionNothing()
+	{
+		assertEquals(ImmutableList.of(), InvoiceCandRecomputeTagger.partition(ImmutableMap.of(), 4));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void partitionFailsForZeroPartitions()
+	{
+		InvoiceCandRecomputeTagger.partition(ImmutableMap.of(10, 0), 0);
+	}
+}